@@ -0,0 +1,113 @@
+package com.rometransit.bench;
+
+import com.rometransit.data.repository.GTFSRepository;
+import com.rometransit.service.gtfs.GTFSDataManager;
+import com.rometransit.service.gtfs.GTFSParser;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Per-fork setup shared by the benchmarks
+ *
+ * - user.home points to a temporary directory, so the SQLite database, config and caches of
+ *   the benchmarked singletons never touch the real ~/.damose (deleted when the fork exits)
+ * - the application's console logging is silenced (-Ddamose.bench.verbose=true keeps it)
+ * - generated feeds are cached on disk by scale and seed (-Ddamose.bench.data, default target/bench-data)
+ */
+public final class BenchmarkEnvironment {
+
+    private static final String DATA_DIRECTORY = System.getProperty("damose.bench.data", "target/bench-data");
+
+    private static final Map<Double, SyntheticGtfsGenerator> generators = new HashMap<>();
+    private static Path home;
+    private static double importedScale = -1;
+
+    private BenchmarkEnvironment() {
+    }
+
+    /**
+     * Prepare the fork; must run before any application singleton is created
+     */
+    public static synchronized void init() {
+        if (home != null) {
+            return;
+        }
+        try {
+            home = Files.createTempDirectory("damose-bench-");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create benchmark home", e);
+        }
+        System.setProperty("user.home", home.toString());
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteRecursively(home), "bench-cleanup"));
+
+        if (!Boolean.getBoolean("damose.bench.verbose")) {
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+    }
+
+    public static synchronized SyntheticGtfsGenerator generator(double scale) {
+        init();
+        return generators.computeIfAbsent(scale, SyntheticGtfsGenerator::new);
+    }
+
+    /**
+     * GTFS zip of the scale, generated on first use
+     */
+    public static synchronized Path feedZip(double scale) {
+        SyntheticGtfsGenerator generator = generator(scale);
+        Path zip = Paths.get(DATA_DIRECTORY, String.format(Locale.ROOT, "gtfs-%s-%d.zip", scale, generator.getSeed()));
+        if (!Files.exists(zip)) {
+            try {
+                generator.writeZip(zip);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot write synthetic feed " + zip, e);
+            }
+        }
+        return zip.toAbsolutePath();
+    }
+
+    /**
+     * Import the feed of the scale into the fork's database and load it in GTFSDataManager,
+     * the same path the application takes on first start
+     */
+    public static synchronized GTFSDataManager staticData(double scale) throws Exception {
+        if (importedScale == scale) {
+            return GTFSDataManager.getInstance();
+        }
+        if (importedScale >= 0) {
+            throw new IllegalStateException("Fork already holds scale " + importedScale + ", run with forks > 0");
+        }
+
+        Path zip = feedZip(scale);
+        GTFSRepository repository = GTFSRepository.getInstance();
+        repository.clearAllData();
+        new GTFSParser(repository).parseGTFSZip(zip.toString());
+
+        // The manager loads the freshly imported database when it is created
+        GTFSDataManager manager = GTFSDataManager.getInstance();
+        if (!manager.isStaticDataLoaded()) {
+            manager.initializeStaticData(zip.toString());
+        }
+        importedScale = scale;
+        return manager;
+    }
+
+    private static void deleteRecursively(Path root) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            // Temporary directory, best effort
+        }
+    }
+}
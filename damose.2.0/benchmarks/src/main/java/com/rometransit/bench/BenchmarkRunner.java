@@ -0,0 +1,202 @@
+package com.rometransit.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rometransit.util.json.JsonUtil;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Entry point of benchmarks.jar: runs the JMH benchmarks, writes the JSON results and
+ * optionally compares them with a previous run
+ *
+ * Options:
+ *   --scale 0.1,1        synthetic feed scales (1 = Rome), one run per scale
+ *   --include regex      benchmarks to run (default: all)
+ *   --out file.json      JMH JSON results (default target/bench-results/damose-<timestamp>.json)
+ *   --baseline file.json previous results; prints the differences, exit code 1 on regressions
+ *   --threshold 10       regression threshold in percent (default 10)
+ *   --forks n, --heap 4g, --quick (1 warmup and 2 measurement iterations), --list
+ */
+public class BenchmarkRunner {
+
+    private static final String DEFAULT_INCLUDE = "com\\.rometransit\\..*Benchmark";
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+            .include(options.getOrDefault("include", DEFAULT_INCLUDE))
+            .shouldFailOnError(true);
+
+        if (options.containsKey("list")) {
+            new Runner(builder.build()).list();
+            return;
+        }
+
+        Path out = Paths.get(options.getOrDefault("out",
+            "target/bench-results/damose-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".json")).toAbsolutePath();
+        Files.createDirectories(out.getParent());
+        Path dataDirectory = Paths.get(System.getProperty("damose.bench.data", "target/bench-data")).toAbsolutePath();
+
+        builder.resultFormat(ResultFormatType.JSON)
+            .result(out.toString())
+            .jvmArgsAppend("-Xmx" + options.getOrDefault("heap", "4g"),
+                           "-Ddamose.bench.data=" + dataDirectory);
+        if (options.containsKey("scale")) {
+            builder.param("scale", options.get("scale").split(","));
+        }
+        if (options.containsKey("forks")) {
+            builder.forks(Integer.parseInt(options.get("forks")));
+        }
+        if (options.containsKey("quick")) {
+            builder.warmupIterations(1).measurementIterations(2);
+        }
+
+        new Runner(builder.build()).run();
+        System.out.println("📊 Results written to " + out);
+
+        if (options.containsKey("baseline")) {
+            double threshold = Double.parseDouble(options.getOrDefault("threshold", "10"));
+            int regressions = compare(Paths.get(options.get("baseline")), out, threshold);
+            if (regressions > 0) {
+                System.exit(1);
+            }
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String name = args[i].substring(2);
+            if (name.equals("quick") || name.equals("list")) {
+                options.put(name, "true");
+            } else if (i + 1 < args.length) {
+                options.put(name, args[++i]);
+            } else {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+        }
+        return options;
+    }
+
+    // ===== Baseline comparison =====
+
+    /**
+     * Compare two JMH JSON result files and write the comparison next to the current one
+     * A change counts as a regression only beyond the threshold and outside both error margins.
+     * @return number of regressions
+     */
+    public static int compare(Path baseline, Path current, double thresholdPercent) throws IOException {
+        Map<String, JsonNode> before = indexResults(baseline);
+        Map<String, JsonNode> after = indexResults(current);
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        int regressions = 0;
+
+        System.out.println("\n📈 Comparison with " + baseline + " (threshold " + thresholdPercent + "%):");
+        for (Map.Entry<String, JsonNode> entry : after.entrySet()) {
+            JsonNode old = before.get(entry.getKey());
+            if (old == null) {
+                System.out.printf("   %-70s %s%n", entry.getKey(), "new");
+                continue;
+            }
+
+            JsonNode now = entry.getValue();
+            double oldScore = old.path("primaryMetric").path("score").asDouble();
+            double newScore = now.path("primaryMetric").path("score").asDouble();
+            double noise = errorOf(old) + errorOf(now);
+            String unit = now.path("primaryMetric").path("scoreUnit").asText();
+            boolean higherIsBetter = "thrpt".equals(now.path("mode").asText());
+
+            double change = oldScore != 0 ? (newScore - oldScore) / oldScore * 100.0 : 0.0;
+            double worse = higherIsBetter ? -change : change;
+            boolean regression = worse > thresholdPercent && Math.abs(newScore - oldScore) > noise;
+            boolean improvement = worse < -thresholdPercent && Math.abs(newScore - oldScore) > noise;
+            if (regression) {
+                regressions++;
+            }
+
+            System.out.printf("   %-70s %12.3f -> %12.3f %-8s %+7.1f%% %s%n", entry.getKey(), oldScore, newScore,
+                unit, change, regression ? "❌ REGRESSION" : improvement ? "✅ faster" : "");
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("benchmark", entry.getKey());
+            row.put("unit", unit);
+            row.put("baseline", oldScore);
+            row.put("current", newScore);
+            row.put("changePercent", change);
+            row.put("regression", regression);
+            rows.add(row);
+        }
+        for (String missing : before.keySet()) {
+            if (!after.containsKey(missing)) {
+                System.out.printf("   %-70s %s%n", missing, "not run");
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("baseline", baseline.toAbsolutePath().toString());
+        report.put("current", current.toAbsolutePath().toString());
+        report.put("thresholdPercent", thresholdPercent);
+        report.put("regressions", regressions);
+        report.put("results", rows);
+        String name = current.getFileName().toString().replaceFirst("\\.json$", "");
+        Path reportFile = current.resolveSibling(name + "-comparison.json");
+        Files.writeString(reportFile, JsonUtil.toPrettyJson(report));
+
+        System.out.println(regressions == 0
+            ? "✅ No regressions"
+            : "❌ " + regressions + " regression(s) beyond " + thresholdPercent + "%");
+        System.out.println("   Comparison written to " + reportFile);
+        return regressions;
+    }
+
+    /**
+     * JMH results by "benchmark [param=value, ...]"
+     */
+    private static Map<String, JsonNode> indexResults(Path file) throws IOException {
+        ObjectMapper mapper = JsonUtil.getObjectMapper();
+        Map<String, JsonNode> results = new TreeMap<>();
+        for (JsonNode result : mapper.readTree(file.toFile())) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText()
+                .replaceFirst("^com\\.rometransit\\.", ""));
+            JsonNode params = result.path("params");
+            if (params.isObject() && params.size() > 0) {
+                Map<String, String> sorted = new TreeMap<>();
+                Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    sorted.put(field.getKey(), field.getValue().asText());
+                }
+                key.append(' ').append(sorted);
+            }
+            results.put(key.toString(), result);
+        }
+        return results;
+    }
+
+    private static double errorOf(JsonNode result) {
+        double error = result.path("primaryMetric").path("scoreError").asDouble(0);
+        return Double.isNaN(error) ? 0 : error;
+    }
+}
@@ -0,0 +1,104 @@
+package com.rometransit.bench;
+
+import com.rometransit.model.dto.ArrivalPrediction;
+import com.rometransit.model.dto.VehiclePosition;
+import com.rometransit.service.gtfs.GTFSDataManager;
+import com.rometransit.service.gtfs.GTFSRealtimeParser;
+import com.rometransit.service.transit.ArrivalPredictionEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ArrivalPredictionEngine on realtime feeds of the synthetic network
+ *
+ * cycle applies one TripUpdates and one VehiclePositions feed and publishes the boards, as a
+ * realtime sync does. Each iteration replays TICKS consecutive feeds 30 s apart (vehicles
+ * moving along their trips), after a primed first feed that rebuilds the trip geometry;
+ * the score is the time of the whole sequence.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+public class PredictionBenchmark {
+
+    private static final int TICKS = 20;
+    private static final int TICK_SECONDS = 30;
+    private static final int BOARD_STOPS = 1024;
+
+    @Param({"0.1"})
+    public double scale;
+
+    private ArrivalPredictionEngine engine;
+    private List<VehiclePosition>[] positions;
+    private List<ArrivalPrediction>[] updates;
+    private String[] boardStops;
+    private int tick;
+    private int nextStop;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        BenchmarkEnvironment.staticData(scale);
+        SyntheticGtfsGenerator generator = BenchmarkEnvironment.generator(scale);
+        // Bound like the app binds the primary feed
+        GTFSRealtimeParser parser = new GTFSRealtimeParser(() -> GTFSDataManager.getInstance().getSymbols());
+
+        long start = System.currentTimeMillis() / 1000;
+        positions = new List[TICKS + 1];
+        updates = new List[TICKS + 1];
+        for (int k = 0; k <= TICKS; k++) {
+            long at = start + (long) k * TICK_SECONDS;
+            positions[k] = parser.parseVehiclePositions(generator.vehiclePositionsFeed(at));
+            updates[k] = parser.parseTripUpdates(generator.tripUpdatesFeed(at));
+        }
+        boardStops = generator.sampleStopIds(BOARD_STOPS, 7);
+        engine = ArrivalPredictionEngine.getInstance();
+    }
+
+    @Setup(Level.Iteration)
+    public void prime() {
+        engine.invalidateStaticIndexes();
+        applyTick(0);
+        tick = 0;
+    }
+
+    private void applyTick(int k) {
+        engine.applyTripUpdates(updates[k]);
+        engine.applyVehiclePositions(positions[k]);
+        engine.publish();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = TICKS)
+    @Measurement(iterations = 10, batchSize = TICKS)
+    public ArrivalPredictionEngine cycle() {
+        tick = Math.min(tick + 1, TICKS);
+        applyTick(tick);
+        return engine;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public List<ArrivalPrediction> board() {
+        String stopId = boardStops[nextStop];
+        nextStop = nextStop + 1 == boardStops.length ? 0 : nextStop + 1;
+        return engine.getBoard(stopId);
+    }
+}
@@ -0,0 +1,67 @@
+package com.rometransit.bench;
+
+import com.google.transit.realtime.GtfsRealtime;
+import com.rometransit.model.dto.ArrivalPrediction;
+import com.rometransit.model.dto.VehiclePosition;
+import com.rometransit.service.gtfs.GTFSRealtimeParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GTFS-RT protobuf decoding of one VehiclePositions and one TripUpdates feed
+ *
+ * bindingsVehiclePositions decodes the same bytes with the generated protobuf classes,
+ * as a reference for the streaming decoder used by GTFSRealtimeParser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RealtimeParseBenchmark {
+
+    @Param({"0.1"})
+    public double scale;
+
+    private GTFSRealtimeParser parser;
+    private byte[] vehiclePositions;
+    private byte[] tripUpdates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticGtfsGenerator generator = BenchmarkEnvironment.generator(scale);
+        long now = System.currentTimeMillis() / 1000;
+        vehiclePositions = generator.vehiclePositionsFeed(now);
+        tripUpdates = generator.tripUpdatesFeed(now);
+        parser = new GTFSRealtimeParser();
+    }
+
+    @Benchmark
+    public List<VehiclePosition> parseVehiclePositions() throws Exception {
+        return parser.parseVehiclePositions(vehiclePositions);
+    }
+
+    @Benchmark
+    public List<ArrivalPrediction> parseTripUpdates() throws Exception {
+        return parser.parseTripUpdates(tripUpdates);
+    }
+
+    @Benchmark
+    public GtfsRealtime.FeedMessage bindingsVehiclePositions() throws Exception {
+        return GtfsRealtime.FeedMessage.parseFrom(vehiclePositions);
+    }
+}
@@ -0,0 +1,85 @@
+package com.rometransit.bench;
+
+import com.rometransit.model.entity.Stop;
+import com.rometransit.util.spatial.SpatialIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stop lookups of the geohash SpatialIndex at the query points the map and "nearby" use
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialIndexBenchmark {
+
+    private static final int QUERY_POINTS = 1024;
+    private static final double NEARBY_RADIUS_KM = 0.5;
+    private static final double VIEWPORT_HALF_LAT = 0.01;
+    private static final double VIEWPORT_HALF_LON = 0.015;
+
+    @Param({"0.1"})
+    public double scale;
+
+    private List<Stop> stops;
+    private SpatialIndex index;
+    private double[][] points;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticGtfsGenerator generator = BenchmarkEnvironment.generator(scale);
+        stops = generator.stops();
+        points = generator.samplePoints(QUERY_POINTS, 42);
+        index = new SpatialIndex();
+        index.indexAll(stops);
+    }
+
+    private double[] nextPoint() {
+        double[] point = points[next];
+        next = next + 1 == points.length ? 0 : next + 1;
+        return point;
+    }
+
+    @Benchmark
+    public List<Stop> findNearby() {
+        double[] point = nextPoint();
+        return index.findNearby(point[0], point[1], NEARBY_RADIUS_KM);
+    }
+
+    @Benchmark
+    public List<Stop> findKNearest() {
+        double[] point = nextPoint();
+        return index.findKNearest(point[0], point[1], 10);
+    }
+
+    @Benchmark
+    public List<Stop> findInBounds() {
+        double[] point = nextPoint();
+        return index.findInBounds(point[0] - VIEWPORT_HALF_LAT, point[1] - VIEWPORT_HALF_LON,
+                                  point[0] + VIEWPORT_HALF_LAT, point[1] + VIEWPORT_HALF_LON);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public SpatialIndex rebuild() {
+        index.rebuild(stops);
+        return index;
+    }
+}
@@ -0,0 +1,79 @@
+package com.rometransit.bench;
+
+import com.rometransit.data.repository.GTFSRepository;
+import com.rometransit.model.entity.Agency;
+import com.rometransit.model.entity.Route;
+import com.rometransit.model.entity.Shape;
+import com.rometransit.model.entity.Stop;
+import com.rometransit.model.entity.StopTime;
+import com.rometransit.model.entity.Trip;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saving a whole static feed to SQLite
+ *
+ * - bulk: empty database, the import fast path (first start, or after clearing the data)
+ * - upsert: every row already present, the transactional insert-or-replace path
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SqliteInsertBenchmark {
+
+    @Param({"0.1"})
+    public double scale;
+
+    @Param({"bulk", "upsert"})
+    public String mode;
+
+    private GTFSRepository repository;
+    private List<Agency> agencies;
+    private List<Route> routes;
+    private List<Stop> stops;
+    private List<Trip> trips;
+    private List<StopTime> stopTimes;
+    private List<Shape> shapes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticGtfsGenerator generator = BenchmarkEnvironment.generator(scale);
+        agencies = generator.agencies();
+        routes = generator.routes();
+        stops = generator.stops();
+        trips = generator.trips();
+        stopTimes = generator.stopTimes();
+        shapes = generator.shapes();
+        repository = GTFSRepository.getInstance();
+    }
+
+    @Setup(Level.Iteration)
+    public void prepareDatabase() throws Exception {
+        if ("bulk".equals(mode)) {
+            repository.clearAllData();
+        } else if (repository.isStaticDataEmpty()) {
+            repository.saveAllGTFSData(agencies, routes, stops, trips, stopTimes, shapes);
+        }
+    }
+
+    @Benchmark
+    public void saveAllGTFSData() throws Exception {
+        repository.saveAllGTFSData(agencies, routes, stops, trips, stopTimes, shapes);
+    }
+}
@@ -0,0 +1,68 @@
+package com.rometransit.bench;
+
+import com.rometransit.model.entity.Route;
+import com.rometransit.model.entity.Stop;
+import com.rometransit.service.gtfs.GTFSDataManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory static data of GTFSDataManager: the stop_times load and the search box queries
+ *
+ * The feed is imported once per fork into the temporary database, as on first start.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StaticDataBenchmark {
+
+    @Param({"0.1"})
+    public double scale;
+
+    // A stop name, a route number (also part of stop codes) and a name prefix with the separator
+    @Param({"termini", "12", "cavour/"})
+    public String query;
+
+    private GTFSDataManager manager;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        manager = BenchmarkEnvironment.staticData(scale);
+    }
+
+    @Benchmark
+    public List<Stop> searchStops() {
+        return manager.searchStops(query);
+    }
+
+    @Benchmark
+    public List<Route> searchRoutes() {
+        return manager.searchRoutes(query);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public GTFSDataManager loadStopTimesData() {
+        manager.loadStopTimesData();
+        return manager;
+    }
+}
@@ -0,0 +1,724 @@
+package com.rometransit.bench;
+
+import com.google.transit.realtime.GtfsRealtime;
+import com.rometransit.model.entity.Agency;
+import com.rometransit.model.entity.Route;
+import com.rometransit.model.entity.Shape;
+import com.rometransit.model.entity.Stop;
+import com.rometransit.model.entity.StopTime;
+import com.rometransit.model.entity.Trip;
+import com.rometransit.model.enums.TransportType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Deterministic synthetic GTFS feed with the size and shape of the Rome network
+ *
+ * Scale 1 is roughly the ATAC feed: ~420 routes, ~9,000 stops, ~80,000 trips and ~3.1 million
+ * stop_times; larger scales add routes over a proportionally larger area, so stop density and
+ * trip length stay the same. The same scale and seed always produce byte-identical files.
+ *
+ * Trips run all day (times past 24:00 included), so the realtime feeds generated for any
+ * instant have ~4,000 vehicles per scale unit: each on schedule plus a fixed per-trip delay.
+ */
+public class SyntheticGtfsGenerator {
+
+    public static final long DEFAULT_SEED = 20240501L;
+
+    // Rome at scale 1
+    private static final int ROUTES_PER_SCALE = 420;
+    private static final int TRIPS_PER_DIRECTION = 95;
+    private static final int MIN_STOPS_PER_PATTERN = 25;
+    private static final int MAX_STOPS_PER_PATTERN = 55;
+    private static final double NETWORK_RADIUS_METERS = 4500.0;
+
+    private static final double CENTER_LAT = 41.8967;
+    private static final double CENTER_LON = 12.4822;
+    private static final double METERS_PER_DEG_LAT = 111_320.0;
+    private static final double METERS_PER_DEG_LON = METERS_PER_DEG_LAT * Math.cos(Math.toRadians(CENTER_LAT));
+
+    private static final double STOP_SPACING_METERS = 400.0;
+    private static final double STOP_REUSE_METERS = 200.0;
+    private static final double STOP_REUSE_PROBABILITY = 0.85;
+    private static final double GRID_CELL_METERS = 200.0;
+    private static final double SPEED_MPS = 15 / 3.6;
+    private static final int DWELL_SECONDS = 20;
+    private static final int SHAPE_POINTS_PER_SEGMENT = 3;
+    private static final int DAY_SECONDS = 86_400;
+
+    private static final String AGENCY_ID = "SYN";
+    private static final String SERVICE_ID = "DAILY";
+    private static final LocalDateTime ZIP_ENTRY_TIME = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private static final String[] STREETS = {
+        "Termini", "Nazionale", "Venezia", "Cavour", "Flaminio", "Tuscolana", "Appia Nuova", "Prenestina",
+        "Casilina", "Ostiense", "Aurelia", "Cassia", "Nomentana", "Tiburtina", "Salaria", "Labicana",
+        "Merulana", "Marconi", "Trastevere", "Gianicolense", "Portuense", "Colombo", "Laurentina",
+        "Boccea", "Trionfale", "Flaminia", "Tiburtino", "Prati", "Risorgimento", "Ottaviano", "Lepanto",
+        "Barberini", "Repubblica", "Castro Pretorio", "San Giovanni", "Re di Roma", "Furio Camillo",
+        "Arco di Travertino", "Cinecittà", "Anagnina", "Eur Fermi", "Magliana", "Piramide", "Testaccio",
+        "Aventino", "Circo Massimo", "Colosseo", "Largo Argentina", "Corso Vittorio", "Chiesa Nuova",
+        "Monteverde", "Pigneto", "Centocelle", "Torpignattara", "Quadraro", "Garbatella", "Montesacro",
+        "Talenti", "Bufalotta", "Primavalle", "Balduina", "Monte Mario", "Parioli", "Pinciano", "Villa Borghese"
+    };
+
+    private final double scale;
+    private final long seed;
+    private final Random random;
+
+    private final List<StopPoint> stops = new ArrayList<>();
+    private final Map<Long, List<Integer>> stopGrid = new HashMap<>();
+    private final List<RouteInfo> routes = new ArrayList<>();
+    private final List<Pattern> patterns = new ArrayList<>();
+    private final List<TripPlan> trips = new ArrayList<>();
+    private long stopTimeCount;
+
+    public SyntheticGtfsGenerator(double scale) {
+        this(scale, DEFAULT_SEED);
+    }
+
+    public SyntheticGtfsGenerator(double scale, long seed) {
+        if (scale <= 0) {
+            throw new IllegalArgumentException("Scale must be positive: " + scale);
+        }
+        this.scale = scale;
+        this.seed = seed;
+        this.random = new Random(seed);
+        generateNetwork();
+    }
+
+    // ===== Network generation =====
+
+    private void generateNetwork() {
+        int routeCount = Math.max(1, (int) Math.round(ROUTES_PER_SCALE * scale));
+        double radius = NETWORK_RADIUS_METERS * Math.sqrt(Math.max(1.0, scale));
+
+        for (int r = 0; r < routeCount; r++) {
+            int[] stopIndexes = generateRouteStops(radius);
+            RouteInfo route = newRoute(r, stopIndexes);
+            routes.add(route);
+
+            for (int direction = 0; direction < 2; direction++) {
+                int[] ordered = direction == 0 ? stopIndexes : reversed(stopIndexes);
+                Pattern pattern = newPattern(route, direction, ordered);
+                patterns.add(pattern);
+
+                double headway = (double) DAY_SECONDS / TRIPS_PER_DIRECTION;
+                for (int k = 0; k < TRIPS_PER_DIRECTION; k++) {
+                    int start = (int) ((k + direction * 0.5 + random.nextDouble() * 0.3) * headway);
+                    String tripId = route.id + "#" + direction + "-" + (k + 1);
+                    int delay = random.nextInt(361) - 60;
+                    trips.add(new TripPlan(trips.size(), tripId, pattern, start, delay));
+                    stopTimeCount += pattern.stops.length;
+                }
+            }
+        }
+    }
+
+    /**
+     * A bus line as a gently bending walk, sharing the stops it passes close to
+     */
+    private int[] generateRouteStops(double radius) {
+        int count = MIN_STOPS_PER_PATTERN + random.nextInt(MAX_STOPS_PER_PATTERN - MIN_STOPS_PER_PATTERN + 1);
+        double x = random.nextGaussian() * radius;
+        double y = random.nextGaussian() * radius;
+        double heading = random.nextDouble() * 2 * Math.PI;
+
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                heading += (random.nextDouble() - 0.5) * 0.6;
+                double step = STOP_SPACING_METERS * (0.7 + random.nextDouble() * 0.6);
+                x += Math.cos(heading) * step;
+                y += Math.sin(heading) * step;
+            }
+            result[i] = stopAt(x, y, result, i);
+        }
+        return result;
+    }
+
+    private int stopAt(double x, double y, int[] previous, int previousCount) {
+        int nearby = nearestStop(x, y);
+        if (nearby >= 0 && random.nextDouble() < STOP_REUSE_PROBABILITY && !contains(previous, previousCount, nearby)) {
+            return nearby;
+        }
+
+        int index = stops.size();
+        String first = STREETS[random.nextInt(STREETS.length)];
+        String second = STREETS[random.nextInt(STREETS.length)];
+        String code = String.valueOf(70000 + index);
+        stops.add(new StopPoint(code, code, first + "/" + second, x, y,
+            round6(CENTER_LAT + y / METERS_PER_DEG_LAT), round6(CENTER_LON + x / METERS_PER_DEG_LON)));
+        stopGrid.computeIfAbsent(cellKey(cell(x), cell(y)), k -> new ArrayList<>()).add(index);
+        return index;
+    }
+
+    private int nearestStop(double x, double y) {
+        int cx = cell(x);
+        int cy = cell(y);
+        int best = -1;
+        double bestDistance = STOP_REUSE_METERS;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                List<Integer> cell = stopGrid.get(cellKey(cx + dx, cy + dy));
+                if (cell == null) {
+                    continue;
+                }
+                for (int index : cell) {
+                    StopPoint stop = stops.get(index);
+                    double distance = Math.hypot(stop.x - x, stop.y - y);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = index;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private RouteInfo newRoute(int index, int[] stopIndexes) {
+        String shortName;
+        int gtfsType = 3;
+        if (index % 23 == 22) {
+            shortName = "N" + (index / 23 + 1);
+        } else if (index % 40 == 39) {
+            shortName = "T" + (index / 40 + 1);
+            gtfsType = 0;
+        } else {
+            shortName = String.valueOf(index + 1);
+        }
+        String longName = streetOf(stopIndexes[0]) + " - " + streetOf(stopIndexes[stopIndexes.length - 1]);
+        String color = String.format(Locale.ROOT, "%06X", random.nextInt(0x1000000));
+        return new RouteInfo(shortName, shortName, longName, gtfsType, color);
+    }
+
+    private Pattern newPattern(RouteInfo route, int direction, int[] stopIndexes) {
+        int n = stopIndexes.length;
+        int[] offsets = new int[n];
+        double[] stopDistances = new double[n];
+        int points = (n - 1) * (SHAPE_POINTS_PER_SEGMENT + 1) + 1;
+        double[] shapeLat = new double[points];
+        double[] shapeLon = new double[points];
+        double[] shapeDistances = new double[points];
+
+        int p = 0;
+        double along = 0;
+        double prevX = stops.get(stopIndexes[0]).x;
+        double prevY = stops.get(stopIndexes[0]).y;
+        for (int i = 0; i < n; i++) {
+            StopPoint stop = stops.get(stopIndexes[i]);
+            if (i > 0) {
+                StopPoint from = stops.get(stopIndexes[i - 1]);
+                for (int s = 1; s <= SHAPE_POINTS_PER_SEGMENT; s++) {
+                    double t = (double) s / (SHAPE_POINTS_PER_SEGMENT + 1);
+                    double jitter = (random.nextDouble() - 0.5) * 20.0;
+                    double x = from.x + (stop.x - from.x) * t + jitter;
+                    double y = from.y + (stop.y - from.y) * t - jitter;
+                    along += Math.hypot(x - prevX, y - prevY);
+                    addShapePoint(shapeLat, shapeLon, shapeDistances, p++, x, y, along);
+                    prevX = x;
+                    prevY = y;
+                }
+                along += Math.hypot(stop.x - prevX, stop.y - prevY);
+                offsets[i] = offsets[i - 1] + DWELL_SECONDS +
+                    (int) Math.round((along - stopDistances[i - 1]) / SPEED_MPS);
+            }
+            stopDistances[i] = along;
+            addShapePoint(shapeLat, shapeLon, shapeDistances, p++, stop.x, stop.y, along);
+            prevX = stop.x;
+            prevY = stop.y;
+        }
+
+        String shapeId = route.id + "_" + direction;
+        return new Pattern(route, direction, shapeId, stopIndexes, offsets, stopDistances,
+            shapeLat, shapeLon, shapeDistances);
+    }
+
+    private static void addShapePoint(double[] lat, double[] lon, double[] distances, int p,
+                                      double x, double y, double along) {
+        lat[p] = round6(CENTER_LAT + y / METERS_PER_DEG_LAT);
+        lon[p] = round6(CENTER_LON + x / METERS_PER_DEG_LON);
+        distances[p] = Math.round(along * 10) / 10.0;
+    }
+
+    // ===== Entities =====
+
+    public List<Agency> agencies() {
+        Agency agency = new Agency(AGENCY_ID, "Synthetic Roma TPL", "https://example.org", "Europe/Rome");
+        agency.setAgencyLang("it");
+        return List.of(agency);
+    }
+
+    public List<Stop> stops() {
+        List<Stop> result = new ArrayList<>(stops.size());
+        for (StopPoint point : stops) {
+            result.add(new Stop(point.id, point.code, point.name, point.lat, point.lon));
+        }
+        return result;
+    }
+
+    public List<Route> routes() {
+        List<Route> result = new ArrayList<>(routes.size());
+        for (RouteInfo info : routes) {
+            Route route = new Route(info.id, info.shortName, info.longName, TransportType.fromGtfsType(info.gtfsType));
+            route.setAgencyId(AGENCY_ID);
+            route.setRouteColor(info.color);
+            route.setRouteTextColor("FFFFFF");
+            result.add(route);
+        }
+        return result;
+    }
+
+    public List<Trip> trips() {
+        List<Trip> result = new ArrayList<>(trips.size());
+        for (TripPlan plan : trips) {
+            Trip trip = new Trip(plan.id, plan.pattern.route.id, SERVICE_ID, headsignOf(plan.pattern));
+            trip.setDirectionId(plan.pattern.direction);
+            trip.setShapeId(plan.pattern.shapeId);
+            result.add(trip);
+        }
+        return result;
+    }
+
+    public List<StopTime> stopTimes() {
+        List<StopTime> result = new ArrayList<>((int) Math.min(Integer.MAX_VALUE - 8, stopTimeCount));
+        for (TripPlan plan : trips) {
+            Pattern pattern = plan.pattern;
+            for (int i = 0; i < pattern.stops.length; i++) {
+                String arrival = formatTime(plan.start + pattern.offsets[i]);
+                String departure = i == 0 ? arrival : formatTime(plan.start + pattern.offsets[i] + DWELL_SECONDS);
+                StopTime stopTime = new StopTime(plan.id, stops.get(pattern.stops[i]).id, i + 1, arrival, departure);
+                stopTime.setShapeDistTraveled(Math.round(pattern.stopDistances[i] * 10) / 10.0);
+                stopTime.setTimepoint(1);
+                result.add(stopTime);
+            }
+        }
+        return result;
+    }
+
+    public List<Shape> shapes() {
+        List<Shape> result = new ArrayList<>();
+        for (Pattern pattern : patterns) {
+            for (int p = 0; p < pattern.shapeLat.length; p++) {
+                result.add(new Shape(pattern.shapeId, pattern.shapeLat[p], pattern.shapeLon[p], p + 1,
+                    pattern.shapeDistances[p]));
+            }
+        }
+        return result;
+    }
+
+    // ===== Static feed files =====
+
+    /**
+     * Write the feed as a GTFS zip; stop_times are streamed, never held in memory
+     */
+    public void writeZip(Path zipFile) throws IOException {
+        Path parent = zipFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = zipFile.resolveSibling(zipFile.getFileName() + ".tmp");
+
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(temp));
+             Writer out = new BufferedWriter(new OutputStreamWriter(nonClosing(zip), StandardCharsets.UTF_8), 1 << 16)) {
+
+            beginEntry(zip, out, "agency.txt");
+            out.write("agency_id,agency_name,agency_url,agency_timezone,agency_lang\n");
+            for (Agency agency : agencies()) {
+                out.write(csv(agency.getAgencyId()) + "," + csv(agency.getAgencyName()) + "," +
+                          agency.getAgencyUrl() + "," + agency.getAgencyTimezone() + "," + agency.getAgencyLang() + "\n");
+            }
+
+            beginEntry(zip, out, "stops.txt");
+            out.write("stop_id,stop_code,stop_name,stop_lat,stop_lon,location_type,wheelchair_boarding\n");
+            for (StopPoint stop : stops) {
+                out.write(stop.id + "," + stop.code + "," + csv(stop.name) + "," + stop.lat + "," + stop.lon + ",0,1\n");
+            }
+
+            beginEntry(zip, out, "routes.txt");
+            out.write("route_id,agency_id,route_short_name,route_long_name,route_type,route_color,route_text_color\n");
+            for (RouteInfo route : routes) {
+                out.write(route.id + "," + AGENCY_ID + "," + csv(route.shortName) + "," + csv(route.longName) + "," +
+                          route.gtfsType + "," + route.color + ",FFFFFF\n");
+            }
+
+            beginEntry(zip, out, "trips.txt");
+            out.write("route_id,service_id,trip_id,trip_headsign,direction_id,shape_id\n");
+            for (TripPlan trip : trips) {
+                out.write(trip.pattern.route.id + "," + SERVICE_ID + "," + csv(trip.id) + "," +
+                          csv(headsignOf(trip.pattern)) + "," + trip.pattern.direction + "," + trip.pattern.shapeId + "\n");
+            }
+
+            beginEntry(zip, out, "stop_times.txt");
+            out.write("trip_id,arrival_time,departure_time,stop_id,stop_sequence,shape_dist_traveled,timepoint\n");
+            for (TripPlan trip : trips) {
+                Pattern pattern = trip.pattern;
+                String tripId = csv(trip.id);
+                for (int i = 0; i < pattern.stops.length; i++) {
+                    String arrival = formatTime(trip.start + pattern.offsets[i]);
+                    String departure = i == 0 ? arrival : formatTime(trip.start + pattern.offsets[i] + DWELL_SECONDS);
+                    out.write(tripId + "," + arrival + "," + departure + "," + stops.get(pattern.stops[i]).id + "," +
+                              (i + 1) + "," + Math.round(pattern.stopDistances[i] * 10) / 10.0 + ",1\n");
+                }
+            }
+
+            beginEntry(zip, out, "calendar.txt");
+            out.write("service_id,monday,tuesday,wednesday,thursday,friday,saturday,sunday,start_date,end_date\n");
+            out.write(SERVICE_ID + ",1,1,1,1,1,1,1,20240101,20991231\n");
+
+            beginEntry(zip, out, "shapes.txt");
+            out.write("shape_id,shape_pt_lat,shape_pt_lon,shape_pt_sequence,shape_dist_traveled\n");
+            for (Pattern pattern : patterns) {
+                for (int p = 0; p < pattern.shapeLat.length; p++) {
+                    out.write(pattern.shapeId + "," + pattern.shapeLat[p] + "," + pattern.shapeLon[p] + "," +
+                              (p + 1) + "," + pattern.shapeDistances[p] + "\n");
+                }
+            }
+
+            out.flush();
+            zip.closeEntry();
+        }
+
+        Files.move(temp, zipFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void beginEntry(ZipOutputStream zip, Writer out, String name) throws IOException {
+        out.flush();
+        ZipEntry entry = new ZipEntry(name);
+        entry.setTimeLocal(ZIP_ENTRY_TIME);
+        zip.putNextEntry(entry);
+    }
+
+    private static OutputStream nonClosing(OutputStream target) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                target.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                target.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                target.flush();
+            }
+
+            @Override
+            public void close() {
+                // The zip stream is closed by its own try-with-resources
+            }
+        };
+    }
+
+    // ===== Realtime feeds =====
+
+    /**
+     * GTFS-RT VehiclePositions for the trips running at the given instant
+     */
+    public byte[] vehiclePositionsFeed(long epochSeconds) {
+        GtfsRealtime.FeedMessage.Builder feed = newFeed(epochSeconds);
+        for (ActiveTrip active : activeTrips(epochSeconds)) {
+            Pattern pattern = active.plan.pattern;
+            int next = active.nextStop;
+            StopPoint from = stops.get(pattern.stops[next - 1]);
+            StopPoint to = stops.get(pattern.stops[next]);
+            double x = from.x + (to.x - from.x) * active.fraction;
+            double y = from.y + (to.y - from.y) * active.fraction;
+            float bearing = (float) ((Math.toDegrees(Math.atan2(to.x - from.x, to.y - from.y)) + 360) % 360);
+            String vehicleId = String.valueOf(5000 + active.plan.index);
+
+            GtfsRealtime.VehiclePosition.Builder vehicle = GtfsRealtime.VehiclePosition.newBuilder()
+                .setTrip(tripDescriptor(active.plan))
+                .setVehicle(GtfsRealtime.VehicleDescriptor.newBuilder().setId(vehicleId).setLabel(vehicleId))
+                .setPosition(GtfsRealtime.Position.newBuilder()
+                    .setLatitude((float) (CENTER_LAT + y / METERS_PER_DEG_LAT))
+                    .setLongitude((float) (CENTER_LON + x / METERS_PER_DEG_LON))
+                    .setBearing(bearing)
+                    .setSpeed((float) SPEED_MPS))
+                .setCurrentStopSequence(next + 1)
+                .setStopId(to.id)
+                .setCurrentStatus(GtfsRealtime.VehiclePosition.VehicleStopStatus.IN_TRANSIT_TO)
+                .setTimestamp(epochSeconds)
+                .setOccupancyStatus(GtfsRealtime.VehiclePosition.OccupancyStatus.values()[active.plan.index % 4]);
+
+            feed.addEntity(GtfsRealtime.FeedEntity.newBuilder().setId(vehicleId).setVehicle(vehicle));
+        }
+        return feed.build().toByteArray();
+    }
+
+    /**
+     * GTFS-RT TripUpdates for the trips running at the given instant, one update per remaining stop
+     */
+    public byte[] tripUpdatesFeed(long epochSeconds) {
+        GtfsRealtime.FeedMessage.Builder feed = newFeed(epochSeconds);
+        for (ActiveTrip active : activeTrips(epochSeconds)) {
+            Pattern pattern = active.plan.pattern;
+            GtfsRealtime.TripUpdate.Builder update = GtfsRealtime.TripUpdate.newBuilder()
+                .setTrip(tripDescriptor(active.plan))
+                .setTimestamp(epochSeconds);
+
+            for (int i = active.nextStop; i < pattern.stops.length; i++) {
+                long arrival = active.serviceDay + active.plan.start + pattern.offsets[i] + active.plan.delay;
+                update.addStopTimeUpdate(GtfsRealtime.TripUpdate.StopTimeUpdate.newBuilder()
+                    .setStopSequence(i + 1)
+                    .setStopId(stops.get(pattern.stops[i]).id)
+                    .setArrival(GtfsRealtime.TripUpdate.StopTimeEvent.newBuilder()
+                        .setDelay(active.plan.delay)
+                        .setTime(arrival))
+                    .setDeparture(GtfsRealtime.TripUpdate.StopTimeEvent.newBuilder()
+                        .setDelay(active.plan.delay)
+                        .setTime(arrival + DWELL_SECONDS)));
+            }
+
+            feed.addEntity(GtfsRealtime.FeedEntity.newBuilder().setId("TU" + active.plan.index).setTripUpdate(update));
+        }
+        return feed.build().toByteArray();
+    }
+
+    /**
+     * Trips between their first and last stop at the instant, including those of the previous service day
+     */
+    private List<ActiveTrip> activeTrips(long epochSeconds) {
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate today = Instant.ofEpochSecond(epochSeconds).atZone(zone).toLocalDate();
+        long[] serviceDays = {
+            today.atStartOfDay(zone).toEpochSecond(),
+            today.minusDays(1).atStartOfDay(zone).toEpochSecond()
+        };
+
+        List<ActiveTrip> active = new ArrayList<>();
+        for (TripPlan plan : trips) {
+            int[] offsets = plan.pattern.offsets;
+            for (long serviceDay : serviceDays) {
+                // Where the vehicle is, given its delay
+                long position = epochSeconds - serviceDay - plan.start - plan.delay;
+                if (position <= 0 || position >= offsets[offsets.length - 1]) {
+                    continue;
+                }
+                int next = 1;
+                while (offsets[next] <= position) {
+                    next++;
+                }
+                int segmentStart = offsets[next - 1] + (next - 1 > 0 ? DWELL_SECONDS : 0);
+                double fraction = position <= segmentStart ? 0.0
+                    : (double) (position - segmentStart) / Math.max(1, offsets[next] - segmentStart);
+                active.add(new ActiveTrip(plan, serviceDay, next, fraction));
+                break;
+            }
+        }
+        return active;
+    }
+
+    private static GtfsRealtime.FeedMessage.Builder newFeed(long epochSeconds) {
+        return GtfsRealtime.FeedMessage.newBuilder()
+            .setHeader(GtfsRealtime.FeedHeader.newBuilder()
+                .setGtfsRealtimeVersion("2.0")
+                .setIncrementality(GtfsRealtime.FeedHeader.Incrementality.FULL_DATASET)
+                .setTimestamp(epochSeconds));
+    }
+
+    private static GtfsRealtime.TripDescriptor.Builder tripDescriptor(TripPlan plan) {
+        return GtfsRealtime.TripDescriptor.newBuilder()
+            .setTripId(plan.id)
+            .setRouteId(plan.pattern.route.id)
+            .setDirectionId(plan.pattern.direction);
+    }
+
+    // ===== Queries for the benchmarks =====
+
+    public double getScale() {
+        return scale;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getStopCount() {
+        return stops.size();
+    }
+
+    public int getRouteCount() {
+        return routes.size();
+    }
+
+    public int getTripCount() {
+        return trips.size();
+    }
+
+    public long getStopTimeCount() {
+        return stopTimeCount;
+    }
+
+    /**
+     * Random points over the network area (stop positions with some noise), for spatial queries
+     */
+    public double[][] samplePoints(int count, long pointSeed) {
+        Random points = new Random(pointSeed);
+        double[][] result = new double[count][];
+        for (int i = 0; i < count; i++) {
+            StopPoint stop = stops.get(points.nextInt(stops.size()));
+            double x = stop.x + points.nextGaussian() * 300;
+            double y = stop.y + points.nextGaussian() * 300;
+            result[i] = new double[] { CENTER_LAT + y / METERS_PER_DEG_LAT, CENTER_LON + x / METERS_PER_DEG_LON };
+        }
+        return result;
+    }
+
+    /**
+     * Stop ids served by at least one route, for board lookups
+     */
+    public String[] sampleStopIds(int count, long pointSeed) {
+        Random sample = new Random(pointSeed);
+        String[] result = new String[count];
+        for (int i = 0; i < count; i++) {
+            Pattern pattern = patterns.get(sample.nextInt(patterns.size()));
+            result[i] = stops.get(pattern.stops[sample.nextInt(pattern.stops.length)]).id;
+        }
+        return result;
+    }
+
+    public String describe() {
+        return String.format(Locale.ROOT, "scale %.2f (seed %d): %,d routes, %,d stops, %,d trips, %,d stop_times",
+            scale, seed, routes.size(), stops.size(), trips.size(), stopTimeCount);
+    }
+
+    // ===== Helpers =====
+
+    private String streetOf(int stopIndex) {
+        String name = stops.get(stopIndex).name;
+        int slash = name.indexOf('/');
+        return slash > 0 ? name.substring(0, slash) : name;
+    }
+
+    private String headsignOf(Pattern pattern) {
+        return streetOf(pattern.stops[pattern.stops.length - 1]);
+    }
+
+    static String formatTime(int seconds) {
+        int h = seconds / 3600;
+        int m = (seconds / 60) % 60;
+        int s = seconds % 60;
+        char[] time = {
+            (char) ('0' + h / 10), (char) ('0' + h % 10), ':',
+            (char) ('0' + m / 10), (char) ('0' + m % 10), ':',
+            (char) ('0' + s / 10), (char) ('0' + s % 10)
+        };
+        return new String(time);
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static int cell(double meters) {
+        return (int) Math.floor(meters / GRID_CELL_METERS);
+    }
+
+    private static long cellKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] reversed(int[] values) {
+        int[] result = Arrays.copyOf(values, values.length);
+        for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+            int tmp = result[i];
+            result[i] = result[j];
+            result[j] = tmp;
+        }
+        return result;
+    }
+
+    private static double round6(double value) {
+        return Math.round(value * 1_000_000) / 1_000_000.0;
+    }
+
+    private record StopPoint(String id, String code, String name, double x, double y, double lat, double lon) {}
+
+    private record RouteInfo(String id, String shortName, String longName, int gtfsType, String color) {}
+
+    private record Pattern(RouteInfo route, int direction, String shapeId, int[] stops, int[] offsets,
+                           double[] stopDistances, double[] shapeLat, double[] shapeLon, double[] shapeDistances) {}
+
+    private record TripPlan(int index, String id, Pattern pattern, int start, int delay) {}
+
+    private record ActiveTrip(TripPlan plan, long serviceDay, int nextStop, double fraction) {}
+
+    // ===== Command line =====
+
+    /**
+     * Write a feed and realtime snapshots to a directory:
+     * SyntheticGtfsGenerator <dir> [--scale 1] [--seed n] [--at epochSeconds]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: SyntheticGtfsGenerator <output-dir> [--scale 1] [--seed n] [--at epochSeconds]");
+            return;
+        }
+
+        Path directory = Paths.get(args[0]);
+        double scale = 1.0;
+        long seed = DEFAULT_SEED;
+        long at = System.currentTimeMillis() / 1000;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--scale" -> scale = Double.parseDouble(args[i + 1]);
+                case "--seed" -> seed = Long.parseLong(args[i + 1]);
+                case "--at" -> at = Long.parseLong(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        SyntheticGtfsGenerator generator = new SyntheticGtfsGenerator(scale, seed);
+        System.out.println("🏗️ " + generator.describe());
+
+        Files.createDirectories(directory);
+        Path zip = directory.resolve(String.format(Locale.ROOT, "gtfs-synthetic-%s.zip", scale));
+        generator.writeZip(zip);
+        Files.write(directory.resolve("vehicle_positions.pb"), generator.vehiclePositionsFeed(at));
+        Files.write(directory.resolve("trip_updates.pb"), generator.tripUpdatesFeed(at));
+        System.out.println("✅ Written " + zip + " and realtime feeds in " + (System.currentTimeMillis() - start) + "ms");
+    }
+}
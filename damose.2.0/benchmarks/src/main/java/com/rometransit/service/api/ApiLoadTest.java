@@ -0,0 +1,301 @@
+package com.rometransit.service.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.rometransit.util.json.JsonUtil;
+import com.rometransit.util.metrics.LatencyHistogram;
+import com.rometransit.util.metrics.MetricsRegistry;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Load test client for the headless API: N virtual-thread workers replay a kiosk-like
+ * request mix for a fixed duration, optionally with M event stream subscribers, then
+ * report throughput and per-endpoint latency.
+ *
+ * Usage: ApiLoadTest [--url http://127.0.0.1:8080] [--concurrency 64] [--duration 30]
+ *                    [--warmup 5] [--sse 0] [--etag] [--no-gzip]
+ *
+ * Mix: 50% arrivals, 15% search, 15% vehicles of a route, 10% stop, 5% route, 5% health.
+ * With --etag every worker revalidates with If-None-Match, as a browser cache would.
+ */
+public class ApiLoadTest {
+
+    private static final String[] SEARCH_TERMS = {
+        "termini", "cavour", "piazza", "via", "roma", "san", "stazione", "largo", "ponte", "porta", "12", "64"
+    };
+
+    private final String baseUrl;
+    private final int concurrency;
+    private final int durationSeconds;
+    private final int warmupSeconds;
+    private final int streamClients;
+    private final boolean revalidate;
+    private final boolean gzip;
+
+    private final HttpClient client;
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, String> etags = new ConcurrentHashMap<>();
+    private final LongAdder ok = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final AtomicLong streamEvents = new AtomicLong();
+    private final AtomicLong streamBytes = new AtomicLong();
+    private volatile boolean recording;
+
+    private List<String> stopIds = List.of();
+    private List<String> routeIds = List.of();
+
+    public ApiLoadTest(String baseUrl, int concurrency, int durationSeconds, int warmupSeconds,
+                       int streamClients, boolean revalidate, boolean gzip) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.concurrency = concurrency;
+        this.durationSeconds = durationSeconds;
+        this.warmupSeconds = warmupSeconds;
+        this.streamClients = streamClients;
+        this.revalidate = revalidate;
+        this.gzip = gzip;
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    }
+
+    public void run() throws Exception {
+        sampleIds();
+        System.out.println("🚦 " + concurrency + " workers, " + streamClients + " stream clients, " +
+                           warmupSeconds + "s warmup + " + durationSeconds + "s against " + baseUrl +
+                           " (" + stopIds.size() + " stops, " + routeIds.size() + " routes sampled" +
+                           (revalidate ? ", ETag revalidation" : "") + (gzip ? ", gzip" : "") + ")");
+
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmupSeconds + durationSeconds);
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < streamClients; i++) {
+                workers.submit(() -> stream(end));
+            }
+            for (int i = 0; i < concurrency; i++) {
+                workers.submit(() -> work(end));
+            }
+
+            Thread.sleep(TimeUnit.SECONDS.toMillis(warmupSeconds));
+            recording = true;
+            workers.shutdown();
+            // Stream readers notice the end at their next heartbeat
+            workers.awaitTermination(durationSeconds + 30L, TimeUnit.SECONDS);
+            report(durationSeconds);
+        }
+    }
+
+    // ===== Workers =====
+
+    private void work(long end) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            int pick = random.nextInt(100);
+            String endpoint;
+            String path;
+            if (pick < 50) {
+                endpoint = "arrivals";
+                path = "/api/stops/" + encode(pickOne(stopIds, random)) + "/arrivals";
+            } else if (pick < 65) {
+                endpoint = "search";
+                path = "/api/search?q=" + encode(SEARCH_TERMS[random.nextInt(SEARCH_TERMS.length)]);
+            } else if (pick < 80) {
+                endpoint = "route_vehicles";
+                path = "/api/routes/" + encode(pickOne(routeIds, random)) + "/vehicles";
+            } else if (pick < 90) {
+                endpoint = "stop";
+                path = "/api/stops/" + encode(pickOne(stopIds, random));
+            } else if (pick < 95) {
+                endpoint = "route";
+                path = "/api/routes/" + encode(pickOne(routeIds, random));
+            } else {
+                endpoint = "health";
+                path = "/api/health";
+            }
+            request(endpoint, path);
+        }
+    }
+
+    private void request(String endpoint, String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(Duration.ofSeconds(10))
+            .GET();
+        if (gzip) {
+            builder.header("Accept-Encoding", "gzip");
+        }
+        String etag = revalidate ? etags.get(path) : null;
+        if (etag != null) {
+            builder.header("If-None-Match", etag);
+        }
+
+        long start = System.nanoTime();
+        try {
+            HttpResponse<byte[]> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+            int status = response.statusCode();
+            if (revalidate && status == 200) {
+                response.headers().firstValue("ETag").ifPresent(tag -> etags.put(path, tag));
+            }
+            if (!recording) {
+                return;
+            }
+            histogram(endpoint).recordSince(start);
+            bytes.add(response.body().length);
+            if (status == 200) {
+                ok.increment();
+            } else if (status == 304) {
+                notModified.increment();
+            } else {
+                clientErrors.increment();
+            }
+        } catch (Exception e) {
+            if (recording) {
+                failures.increment();
+            }
+        }
+    }
+
+    /**
+     * One event stream subscriber, reconnecting until the end of the run
+     */
+    private void stream(long end) {
+        while (System.nanoTime() < end) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + "/api/vehicles/stream"));
+            if (gzip) {
+                builder.header("Accept-Encoding", "gzip");
+            }
+            try {
+                HttpResponse<InputStream> response = client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+                InputStream body = response.body();
+                if (response.headers().firstValue("Content-Encoding").orElse("").equals("gzip")) {
+                    body = new GZIPInputStream(body);
+                }
+                try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+                    String line;
+                    while (System.nanoTime() < end && (line = reader.readLine()) != null) {
+                        streamBytes.addAndGet(line.length() + 1);
+                        if (line.startsWith("event:") && recording) {
+                            streamEvents.incrementAndGet();
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                if (recording) {
+                    failures.increment();
+                }
+                sleepQuietly(1000);
+            }
+        }
+    }
+
+    // ===== Setup and report =====
+
+    private void sampleIds() throws Exception {
+        stopIds = sample("/api/stops", 500);
+        routeIds = sample("/api/routes", 200);
+        if (stopIds.isEmpty() || routeIds.isEmpty()) {
+            throw new IllegalStateException("Server has no static data yet (see " + baseUrl + "/api/health)");
+        }
+    }
+
+    private List<String> sample(String path, int max) throws Exception {
+        HttpResponse<String> response = client.send(
+            HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build(), HttpResponse.BodyHandlers.ofString());
+        JsonNode items = JsonUtil.getObjectMapper().readTree(response.body());
+        List<String> ids = new ArrayList<>();
+        for (JsonNode item : items) {
+            ids.add(item.path("id").asText());
+        }
+        Collections.shuffle(ids, new Random(42));
+        return ids.subList(0, Math.min(max, ids.size()));
+    }
+
+    private void report(double seconds) {
+        long total = ok.sum() + notModified.sum() + clientErrors.sum();
+        System.out.println();
+        System.out.printf("📊 %d requests in %.1fs: %.0f req/s, %.1f MB/s%n", total, seconds, total / seconds,
+                          bytes.sum() / seconds / (1024.0 * 1024.0));
+        System.out.printf("   200: %d   304: %d   4xx/5xx: %d   failed: %d%n",
+                          ok.sum(), notModified.sum(), clientErrors.sum(), failures.sum());
+        System.out.printf("   %-16s %9s %9s %9s %9s %9s %9s%n", "endpoint", "count", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (LatencyHistogram histogram : latencies.values()) {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            System.out.printf("   %-16s %9d %9.0f %9.2f %9.2f %9.2f %9.2f%n",
+                              snapshot.name.substring("loadtest.".length()), snapshot.count, snapshot.count / seconds,
+                              snapshot.p50Ms, snapshot.p90Ms, snapshot.p99Ms, snapshot.maxMs);
+        }
+        if (streamClients > 0) {
+            System.out.printf("   stream: %d events to %d clients, %.1f MB%n", streamEvents.get(), streamClients,
+                              streamBytes.get() / (1024.0 * 1024.0));
+        }
+    }
+
+    private LatencyHistogram histogram(String endpoint) {
+        return latencies.computeIfAbsent(endpoint,
+            name -> MetricsRegistry.getInstance().histogram("loadtest." + name));
+    }
+
+    private static String pickOne(List<String> ids, ThreadLocalRandom random) {
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i].replaceFirst("^--", "");
+            if (name.equals("etag") || name.equals("no-gzip")) {
+                options.put(name, "true");
+            } else if (i + 1 < args.length) {
+                options.put(name, args[++i]);
+            }
+        }
+
+        new ApiLoadTest(
+            options.getOrDefault("url", "http://127.0.0.1:8080"),
+            Integer.parseInt(options.getOrDefault("concurrency", "64")),
+            Integer.parseInt(options.getOrDefault("duration", "30")),
+            Integer.parseInt(options.getOrDefault("warmup", "5")),
+            Integer.parseInt(options.getOrDefault("sse", "0")),
+            options.containsKey("etag"),
+            !options.containsKey("no-gzip")
+        ).run();
+        System.exit(0);
+    }
+}
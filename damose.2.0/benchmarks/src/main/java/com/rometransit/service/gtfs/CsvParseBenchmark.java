@@ -0,0 +1,94 @@
+package com.rometransit.service.gtfs;
+
+import com.rometransit.bench.BenchmarkEnvironment;
+import com.rometransit.data.repository.GTFSRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * GTFS CSV parsing: single stop_times lines and the whole stop_times.txt of the feed
+ *
+ * Lives in the parser's package to reach the package-private entry points.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvParseBenchmark {
+
+    private static final int SAMPLE_LINES = 4096;
+
+    @Param({"0.1"})
+    public double scale;
+
+    private String[] lines;
+    private int next;
+    private Path stopTimesFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path zip = BenchmarkEnvironment.feedZip(scale);
+        stopTimesFile = Files.createTempFile("stop_times-", ".txt");
+        stopTimesFile.toFile().deleteOnExit();
+
+        try (ZipFile zipFile = new ZipFile(zip.toFile())) {
+            ZipEntry entry = zipFile.getEntry("stop_times.txt");
+            try (InputStream in = zipFile.getInputStream(entry)) {
+                Files.copy(in, stopTimesFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+
+        List<String> sample = new ArrayList<>(SAMPLE_LINES);
+        try (BufferedReader reader = Files.newBufferedReader(stopTimesFile, StandardCharsets.UTF_8)) {
+            reader.readLine(); // Header
+            String line;
+            while (sample.size() < SAMPLE_LINES && (line = reader.readLine()) != null) {
+                sample.add(line);
+            }
+        }
+        lines = sample.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public String[] parseLine() {
+        String line = lines[next];
+        next = next + 1 == lines.length ? 0 : next + 1;
+        return GTFSParser.parseCSVLine(line);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public GTFSParser parseStopTimesFile() throws Exception {
+        GTFSParser parser = new GTFSParser((GTFSRepository) null);
+        parser.parseStopTimes(stopTimesFile);
+        return parser;
+    }
+}
@@ -0,0 +1,239 @@
+package com.rometransit.service.realtime.replay;
+
+import com.google.transit.realtime.GtfsRealtime;
+import com.google.transit.realtime.GtfsRealtime.FeedEntity;
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
+import com.rometransit.service.gtfs.GTFSRealtimeStreamDecoder;
+
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares full FeedMessage parsing with {@link GTFSRealtimeStreamDecoder}.
+ *
+ * Both sides read the same fields out of every vehicle position and stop time update,
+ * so the difference is the object graph the generated classes build. Reports time and
+ * heap allocated per decode (HotSpot per-thread allocation counter). Without a recording
+ * a synthetic feed of 3,000 vehicles and their trip updates is used.
+ *
+ * Usage: DecoderBenchmark [recording.dmrt] [--iterations N]
+ */
+public class DecoderBenchmark {
+
+    private static final int SYNTHETIC_VEHICLES = 3000;
+    private static final int SYNTHETIC_STOPS_PER_TRIP = 10;
+
+    private final List<byte[]> feeds;
+    private final GTFSRealtimeStreamDecoder decoder = new GTFSRealtimeStreamDecoder();
+    private long sink; // Keeps the JIT from dropping the decoded values
+
+    public DecoderBenchmark(List<byte[]> feeds) {
+        this.feeds = feeds;
+    }
+
+    public Result runFull(int iterations) throws Exception {
+        return measure("FeedMessage", iterations, this::decodeFull);
+    }
+
+    public Result runStream(int iterations) throws Exception {
+        return measure("stream", iterations, this::decodeStream);
+    }
+
+    private void decodeFull(byte[] data) throws Exception {
+        FeedMessage message = FeedMessage.parseFrom(data);
+        for (FeedEntity entity : message.getEntityList()) {
+            if (entity.hasVehicle()) {
+                GtfsRealtime.VehiclePosition vehicle = entity.getVehicle();
+                sink += vehicle.getVehicle().getId().length() + vehicle.getTrip().getTripId().length();
+                sink += Float.floatToIntBits(vehicle.getPosition().getLatitude());
+                sink += Float.floatToIntBits(vehicle.getPosition().getLongitude());
+                sink += Float.floatToIntBits(vehicle.getPosition().getBearing());
+                sink += vehicle.getTimestamp() + vehicle.getOccupancyStatus().getNumber();
+            }
+            if (entity.hasTripUpdate()) {
+                for (GtfsRealtime.TripUpdate.StopTimeUpdate update : entity.getTripUpdate().getStopTimeUpdateList()) {
+                    sink += update.getStopId().length() + update.getArrival().getTime() + update.getArrival().getDelay();
+                }
+            }
+        }
+    }
+
+    private void decodeStream(byte[] data) throws Exception {
+        GTFSRealtimeStreamDecoder.DecodedFeed feed = decoder.decode(data);
+        for (int i = 0; i < feed.getVehicleCount(); i++) {
+            GTFSRealtimeStreamDecoder.VehicleRecord vehicle = feed.getVehicle(i);
+            sink += (vehicle.vehicleId != null ? vehicle.vehicleId.length() : 0) +
+                    (vehicle.tripId != null ? vehicle.tripId.length() : 0);
+            sink += Float.floatToIntBits(vehicle.latitude) + Float.floatToIntBits(vehicle.longitude);
+            sink += Float.floatToIntBits(vehicle.bearing);
+            sink += vehicle.timestamp + vehicle.occupancyStatus;
+        }
+        for (int i = 0; i < feed.getStopTimeUpdateCount(); i++) {
+            GTFSRealtimeStreamDecoder.StopTimeUpdateRecord update = feed.getStopTimeUpdate(i);
+            sink += (update.stopId != null ? update.stopId.length() : 0) + update.arrivalTime + update.arrivalDelay;
+        }
+    }
+
+    private Result measure(String name, int iterations, Decode decode) throws Exception {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        // Warm-up so both paths are compiled before measuring
+        for (int i = 0; i < Math.max(10, iterations / 5); i++) {
+            for (byte[] feed : feeds) {
+                decode.decode(feed);
+            }
+        }
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (byte[] feed : feeds) {
+                decode.decode(feed);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        long operations = (long) iterations * feeds.size();
+        return new Result(name, elapsed / (double) operations, allocated / (double) operations);
+    }
+
+    /**
+     * One decode call under measurement
+     */
+    @FunctionalInterface
+    private interface Decode {
+        void decode(byte[] data) throws Exception;
+    }
+
+    /**
+     * Average cost of one decode
+     */
+    public static class Result {
+        public final String name;
+        public final double nanosPerDecode;
+        public final double bytesPerDecode;
+
+        Result(String name, double nanosPerDecode, double bytesPerDecode) {
+            this.name = name;
+            this.nanosPerDecode = nanosPerDecode;
+            this.bytesPerDecode = bytesPerDecode;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("   %-12s %10.3f ms/decode %12.1f KB/decode",
+                name, nanosPerDecode / 1_000_000.0, bytesPerDecode / 1024.0);
+        }
+    }
+
+    // ===== Input feeds =====
+
+    static List<byte[]> loadRecording(String file) throws Exception {
+        List<byte[]> feeds = new ArrayList<>();
+        try (FeedRecording recording = new FeedRecording(Paths.get(file))) {
+            FeedRecording.Snapshot snapshot;
+            while ((snapshot = recording.next()) != null) {
+                if (snapshot.isChanged() && snapshot.getType() != FeedType.SERVICE_ALERTS) {
+                    feeds.add(snapshot.getPayload());
+                }
+            }
+        }
+        return feeds;
+    }
+
+    /**
+     * Vehicle positions feed plus a trip updates feed for the same trips, shaped like the Rome feed
+     */
+    static List<byte[]> syntheticFeeds(int vehicles) {
+        long now = System.currentTimeMillis() / 1000;
+        GtfsRealtime.FeedHeader header = GtfsRealtime.FeedHeader.newBuilder()
+            .setGtfsRealtimeVersion("2.0")
+            .setTimestamp(now)
+            .build();
+
+        FeedMessage.Builder positions = FeedMessage.newBuilder().setHeader(header);
+        FeedMessage.Builder tripUpdates = FeedMessage.newBuilder().setHeader(header);
+        for (int i = 0; i < vehicles; i++) {
+            String vehicleId = "V" + (4000 + i);
+            GtfsRealtime.TripDescriptor trip = GtfsRealtime.TripDescriptor.newBuilder()
+                .setTripId("0#" + (10000 + i) + "-" + (i % 7))
+                .setRouteId(String.valueOf(i % 350))
+                .setDirectionId(i % 2)
+                .setStartDate("20241018")
+                .build();
+
+            positions.addEntity(FeedEntity.newBuilder()
+                .setId(vehicleId)
+                .setVehicle(GtfsRealtime.VehiclePosition.newBuilder()
+                    .setTrip(trip)
+                    .setVehicle(GtfsRealtime.VehicleDescriptor.newBuilder().setId(vehicleId).setLabel("Bus " + i))
+                    .setPosition(GtfsRealtime.Position.newBuilder()
+                        .setLatitude(41.80f + (i % 100) * 0.002f)
+                        .setLongitude(12.40f + (i / 100) * 0.004f)
+                        .setBearing(i % 360)
+                        .setSpeed(i % 15)
+                        .setOdometer(i * 1000.0))
+                    .setCurrentStatus(GtfsRealtime.VehiclePosition.VehicleStopStatus.IN_TRANSIT_TO)
+                    .setCurrentStopSequence(i % SYNTHETIC_STOPS_PER_TRIP)
+                    .setStopId(String.valueOf(70000 + i % 8000))
+                    .setTimestamp(now - i % 30)
+                    .setOccupancyStatus(GtfsRealtime.VehiclePosition.OccupancyStatus.forNumber(i % 7))));
+
+            GtfsRealtime.TripUpdate.Builder update = GtfsRealtime.TripUpdate.newBuilder()
+                .setTrip(trip)
+                .setVehicle(GtfsRealtime.VehicleDescriptor.newBuilder().setId(vehicleId))
+                .setTimestamp(now);
+            for (int s = 0; s < SYNTHETIC_STOPS_PER_TRIP; s++) {
+                update.addStopTimeUpdate(GtfsRealtime.TripUpdate.StopTimeUpdate.newBuilder()
+                    .setStopSequence(s + 1)
+                    .setStopId(String.valueOf(70000 + (i * 3 + s) % 8000))
+                    .setArrival(GtfsRealtime.TripUpdate.StopTimeEvent.newBuilder()
+                        .setTime(now + s * 120L)
+                        .setDelay(i % 300))
+                    .setDeparture(GtfsRealtime.TripUpdate.StopTimeEvent.newBuilder()
+                        .setTime(now + s * 120L + 20)));
+            }
+            tripUpdates.addEntity(FeedEntity.newBuilder().setId("T" + i).setTripUpdate(update));
+        }
+
+        List<byte[]> feeds = new ArrayList<>();
+        feeds.add(positions.build().toByteArray());
+        feeds.add(tripUpdates.build().toByteArray());
+        return feeds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String recording = null;
+        int iterations = 50;
+        for (int i = 0; i < args.length; i++) {
+            if ("--iterations".equals(args[i])) {
+                iterations = Integer.parseInt(args[++i]);
+            } else {
+                recording = args[i];
+            }
+        }
+
+        List<byte[]> feeds = recording != null ? loadRecording(recording) : syntheticFeeds(SYNTHETIC_VEHICLES);
+        long bytes = feeds.stream().mapToLong(f -> f.length).sum();
+        System.out.println("📊 GTFS-RT decoder comparison: " +
+                           (recording != null ? recording : SYNTHETIC_VEHICLES + " synthetic vehicles") +
+                           " (" + feeds.size() + " feeds, " + bytes / 1024 + " KB, " + iterations + " iterations)");
+
+        DecoderBenchmark benchmark = new DecoderBenchmark(feeds);
+        Result full = benchmark.runFull(iterations);
+        Result stream = benchmark.runStream(iterations);
+        System.out.println(full);
+        System.out.println(stream);
+        System.out.printf("   Stream decoder: %.1fx faster, %.1fx less allocation%n",
+            full.nanosPerDecode / stream.nanosPerDecode,
+            full.bytesPerDecode / Math.max(1.0, stream.bytesPerDecode));
+        if (benchmark.sink == 42) {
+            System.out.println();
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.rometransit.service.realtime.replay;
+
+import com.rometransit.data.repository.GTFSRepository;
+import com.rometransit.model.dto.ArrivalPrediction;
+import com.rometransit.model.dto.VehiclePosition;
+import com.rometransit.service.gtfs.GTFSDataManager;
+import com.rometransit.service.gtfs.GTFSRealtimeParser;
+import com.rometransit.service.transit.ArrivalPredictionEngine;
+import com.rometransit.service.transit.ArrivalPredictionService;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * End-to-end benchmark of the realtime pipeline over a recorded feed.
+ *
+ * Every recorded vehicle positions snapshot is one cycle, paired with the latest trip
+ * updates snapshot, and runs the same stages as a sync cycle: parse, diff against the
+ * previous cycle, persist to SQLite, update predictions and notify the UI side (arrival
+ * boards re-read for the busiest stops). Per-stage latency percentiles are printed and
+ * can be appended to a CSV file so realtime throughput can be tracked offline.
+ *
+ * Persisting writes to the database under user.home: run with -Duser.home pointing at
+ * a scratch copy when benchmarking against real data.
+ *
+ * Usage: RealtimeBenchmark &lt;recording.dmrt&gt; [--speed 1x|10x|max] [--warmup N]
+ *        [--no-persist] [--csv results.csv]
+ */
+public class RealtimeBenchmark {
+
+    private static final int HOT_STOPS = 20;
+
+    private final Path recordingFile;
+    private final ReplaySpeed speed;
+    private final int warmupCycles;
+    private final boolean persist;
+
+    private final GTFSRealtimeParser parser = new GTFSRealtimeParser();
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private final Map<String, Long> previousFixes = new HashMap<>();
+    private final List<String> hotStops = new ArrayList<>();
+    private int cycles;
+
+    public RealtimeBenchmark(Path recordingFile, ReplaySpeed speed, int warmupCycles, boolean persist) {
+        this.recordingFile = recordingFile;
+        this.speed = speed;
+        this.warmupCycles = warmupCycles;
+        this.persist = persist;
+        for (String name : new String[]{"parse", "diff", "persist", "predict", "notify", "cycle"}) {
+            stages.put(name, new Stage(name));
+        }
+    }
+
+    public Map<String, Stage> run() throws Exception {
+        GTFSDataManager.getInstance(); // Static data for the prediction engine
+        GTFSRepository repository = GTFSRepository.getInstance();
+        ArrivalPredictionEngine engine = ArrivalPredictionEngine.getInstance();
+        ArrivalPredictionService predictionService = ArrivalPredictionService.getInstance();
+
+        byte[] latestTripUpdates = null;
+        long previousCapture = -1;
+
+        try (FeedRecording recording = new FeedRecording(recordingFile)) {
+            FeedRecording.Snapshot snapshot;
+            while ((snapshot = recording.next()) != null) {
+                if (snapshot.getType() == FeedType.TRIP_UPDATES) {
+                    latestTripUpdates = snapshot.getPayload();
+                    continue;
+                }
+                if (snapshot.getType() != FeedType.VEHICLE_POSITIONS) {
+                    continue;
+                }
+
+                if (previousCapture >= 0) {
+                    long wait = speed.scale(snapshot.getCapturedAtMillis() - previousCapture);
+                    if (wait > 0) {
+                        Thread.sleep(wait);
+                    }
+                }
+                previousCapture = snapshot.getCapturedAtMillis();
+
+                boolean measured = cycles >= warmupCycles;
+                long cycleStart = System.nanoTime();
+
+                long t = System.nanoTime();
+                List<VehiclePosition> positions = parser.parseVehiclePositions(snapshot.getPayload());
+                List<ArrivalPrediction> updates = latestTripUpdates != null
+                    ? parser.parseTripUpdates(latestTripUpdates) : Collections.emptyList();
+                t = record("parse", t, measured);
+
+                int changed = diff(positions);
+                t = record("diff", t, measured);
+
+                if (persist) {
+                    repository.saveVehiclePositions(positions);
+                    if (!updates.isEmpty()) {
+                        repository.saveTripUpdates(updates);
+                    }
+                }
+                t = record("persist", t, measured);
+
+                engine.applyVehiclePositions(positions);
+                engine.applyTripUpdates(updates);
+                engine.publish();
+                t = record("predict", t, measured);
+
+                if (hotStops.isEmpty()) {
+                    pickHotStops(updates);
+                }
+                for (String stopId : hotStops) {
+                    predictionService.getPredictionsForStop(stopId);
+                }
+                record("notify", t, measured);
+
+                record("cycle", cycleStart, measured);
+                cycles++;
+
+                if (cycles % 50 == 0) {
+                    System.out.printf("   %,d cycles (%d vehicles, %d changed)%n", cycles, positions.size(), changed);
+                }
+            }
+        }
+
+        return stages;
+    }
+
+    /**
+     * Vehicles whose fix changed since the previous cycle
+     */
+    private int diff(List<VehiclePosition> positions) {
+        int changed = 0;
+        Set<String> seen = new HashSet<>();
+        for (VehiclePosition position : positions) {
+            String vehicleId = position.getVehicleId();
+            seen.add(vehicleId);
+            Long previous = previousFixes.put(vehicleId, position.getTimestamp());
+            if (previous == null || previous != position.getTimestamp()) {
+                changed++;
+            }
+        }
+        previousFixes.keySet().retainAll(seen);
+        return changed;
+    }
+
+    /**
+     * Stops with the most realtime updates in the first cycle stand in for the boards users keep open
+     */
+    private void pickHotStops(List<ArrivalPrediction> updates) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (ArrivalPrediction update : updates) {
+            if (update.getStopId() != null) {
+                counts.merge(update.getStopId(), 1, Integer::sum);
+            }
+        }
+        counts.entrySet().stream()
+            .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+            .limit(HOT_STOPS)
+            .forEach(e -> hotStops.add(e.getKey()));
+    }
+
+    private long record(String stage, long startNanos, boolean measured) {
+        long now = System.nanoTime();
+        if (measured) {
+            stages.get(stage).add(now - startNanos);
+        }
+        return now;
+    }
+
+    public int getCycles() {
+        return cycles;
+    }
+
+    // ===== Reporting =====
+
+    public void printReport(PrintStream out) {
+        out.println("📊 Realtime pipeline benchmark: " + recordingFile.getFileName() + " (" + speed + ", " +
+                    cycles + " cycles, " + warmupCycles + " warm-up)");
+        out.printf("   %-8s %8s %10s %10s %10s %10s %10s%n", "stage", "count", "p50 ms", "p90 ms", "p99 ms", "max ms", "mean ms");
+        for (Stage stage : stages.values()) {
+            out.printf("   %-8s %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n", stage.name, stage.count(),
+                stage.percentileMs(50), stage.percentileMs(90), stage.percentileMs(99),
+                stage.percentileMs(100), stage.meanMs());
+        }
+        Stage cycle = stages.get("cycle");
+        if (cycle.count() > 0) {
+            out.printf("   Throughput: %.1f cycles/sec%n", 1000.0 / cycle.meanMs());
+        }
+    }
+
+    /**
+     * Append one row per stage: timestamp,recording,stage,count,p50,p90,p99,max,mean
+     */
+    public void appendCsv(Path csvFile) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        if (!Files.exists(csvFile)) {
+            sb.append("timestamp,recording,stage,count,p50_ms,p90_ms,p99_ms,max_ms,mean_ms\n");
+        }
+        String timestamp = LocalDateTime.now().toString();
+        for (Stage stage : stages.values()) {
+            sb.append(String.format(Locale.ROOT, "%s,%s,%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                timestamp, recordingFile.getFileName(), stage.name, stage.count(),
+                stage.percentileMs(50), stage.percentileMs(90), stage.percentileMs(99),
+                stage.percentileMs(100), stage.meanMs()));
+        }
+        Files.writeString(csvFile, sb.toString(), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Latency samples of one pipeline stage
+     */
+    public static class Stage {
+        private final String name;
+        private long[] samples = new long[256];
+        private int size;
+        private boolean sorted;
+
+        Stage(String name) {
+            this.name = name;
+        }
+
+        void add(long nanos) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = nanos;
+            sorted = false;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int count() {
+            return size;
+        }
+
+        /**
+         * Nearest-rank percentile in milliseconds (100 = max)
+         */
+        public double percentileMs(double percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            if (!sorted) {
+                Arrays.sort(samples, 0, size);
+                sorted = true;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * size);
+            return samples[Math.max(0, Math.min(size - 1, rank - 1))] / 1_000_000.0;
+        }
+
+        public double meanMs() {
+            if (size == 0) {
+                return 0;
+            }
+            long total = 0;
+            for (int i = 0; i < size; i++) {
+                total += samples[i];
+            }
+            return total / (double) size / 1_000_000.0;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: RealtimeBenchmark <recording" + FeedRecording.FILE_EXTENSION +
+                               "> [--speed 1x|10x|max] [--warmup N] [--no-persist] [--csv results.csv]");
+            System.exit(1);
+        }
+
+        ReplaySpeed speed = ReplaySpeed.MAX;
+        int warmup = 5;
+        boolean persist = true;
+        Path csv = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--speed": speed = ReplaySpeed.parse(args[++i]); break;
+                case "--warmup": warmup = Integer.parseInt(args[++i]); break;
+                case "--no-persist": persist = false; break;
+                case "--csv": csv = Paths.get(args[++i]); break;
+                default: throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        RealtimeBenchmark benchmark = new RealtimeBenchmark(Paths.get(args[0]), speed, warmup, persist);
+        benchmark.run();
+        benchmark.printReport(System.out);
+        System.out.println(ArrivalPredictionEngine.getInstance().getStats());
+        if (csv != null) {
+            benchmark.appendCsv(csv);
+            System.out.println("✅ Results appended to " + csv);
+        }
+        System.exit(0);
+    }
+}
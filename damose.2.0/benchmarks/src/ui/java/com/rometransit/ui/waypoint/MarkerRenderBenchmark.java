@@ -0,0 +1,184 @@
+package com.rometransit.ui.waypoint;
+
+import javafx.application.Platform;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Frame time of vector marker drawing versus {@link MarkerAtlas} drawImage.
+ *
+ * Draws the same markers (vehicles with bearing, a share of simulated ones, and stops) on a
+ * map-sized canvas. Each frame is snapshotted so the canvas is actually rasterized, not only
+ * its command buffer filled. Needs a JavaFX-capable display.
+ *
+ * Usage: MarkerRenderBenchmark [--markers N] [--frames N] [--zoom Z]
+ */
+public class MarkerRenderBenchmark {
+
+    private static final double WIDTH = 1440;
+    private static final double HEIGHT = 1000;
+    private static final Color VEHICLE_COLOR = Color.web("#27ae60");
+    private static final Color STOP_COLOR = Color.web("#3498db");
+
+    private final int markers;
+    private final int zoom;
+    private final double[] x;
+    private final double[] y;
+    private final double[] bearing;
+    private final boolean[] simulated;
+    private final boolean[] stop;
+
+    private final Canvas canvas = new Canvas(WIDTH, HEIGHT);
+    private final WritableImage target = new WritableImage((int) WIDTH, (int) HEIGHT);
+
+    public MarkerRenderBenchmark(int markers, int zoom) {
+        this.markers = markers;
+        this.zoom = zoom;
+        this.x = new double[markers];
+        this.y = new double[markers];
+        this.bearing = new double[markers];
+        this.simulated = new boolean[markers];
+        this.stop = new boolean[markers];
+
+        Random random = new Random(42);
+        for (int i = 0; i < markers; i++) {
+            x[i] = random.nextDouble() * WIDTH;
+            y[i] = random.nextDouble() * HEIGHT;
+            bearing[i] = random.nextDouble() * 360;
+            simulated[i] = random.nextInt(10) == 0;
+            stop[i] = i % 4 == 0;
+        }
+    }
+
+    public Result runVector(int frames) {
+        return measure("vector", frames, gc -> {
+            double vehicleRadius = VehicleMarkerWaypoint.radiusAt(8.0, zoom);
+            double stopRadius = StopMarkerWaypoint.getMarkerRadius(zoom);
+            for (int i = 0; i < markers; i++) {
+                if (stop[i]) {
+                    StopMarkerWaypoint.drawVector(gc, x[i], y[i], stopRadius, STOP_COLOR);
+                } else {
+                    VehicleMarkerWaypoint.drawVector(gc, x[i], y[i], vehicleRadius, VEHICLE_COLOR, simulated[i], bearing[i]);
+                }
+            }
+        });
+    }
+
+    public Result runAtlas(int frames) {
+        return measure("atlas", frames, gc -> {
+            MarkerAtlas.Sheet vehicles = MarkerAtlas.vehicleSheet(VEHICLE_COLOR, 8.0);
+            MarkerAtlas.Sheet stops = MarkerAtlas.stopSheet(STOP_COLOR);
+            for (int i = 0; i < markers; i++) {
+                if (stop[i]) {
+                    stops.drawStop(gc, zoom, x[i], y[i]);
+                } else {
+                    vehicles.drawVehicle(gc, zoom, simulated[i], bearing[i], x[i], y[i]);
+                }
+            }
+        });
+    }
+
+    private Result measure(String name, int frames, Draw draw) {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        long[] times = new long[frames];
+
+        // Warm-up, also builds the atlas sheets
+        for (int i = 0; i < Math.max(5, frames / 5); i++) {
+            frame(gc, draw);
+        }
+
+        for (int i = 0; i < frames; i++) {
+            long start = System.nanoTime();
+            frame(gc, draw);
+            times[i] = System.nanoTime() - start;
+        }
+
+        Arrays.sort(times);
+        long total = 0;
+        for (long time : times) {
+            total += time;
+        }
+        return new Result(name, total / (double) frames, times[frames / 2], times[(int) (frames * 0.95)]);
+    }
+
+    private void frame(GraphicsContext gc, Draw draw) {
+        gc.setFill(Color.web("#E0E0E0"));
+        gc.fillRect(0, 0, WIDTH, HEIGHT);
+        draw.draw(gc);
+        canvas.snapshot(null, target);
+    }
+
+    /**
+     * One frame worth of markers
+     */
+    @FunctionalInterface
+    private interface Draw {
+        void draw(GraphicsContext gc);
+    }
+
+    /**
+     * Frame time statistics
+     */
+    public static class Result {
+        public final String name;
+        public final double meanNanos;
+        public final long medianNanos;
+        public final long p95Nanos;
+
+        Result(String name, double meanNanos, long medianNanos, long p95Nanos) {
+            this.name = name;
+            this.meanNanos = meanNanos;
+            this.medianNanos = medianNanos;
+            this.p95Nanos = p95Nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("   %-8s mean %7.2f ms   median %7.2f ms   p95 %7.2f ms",
+                name, meanNanos / 1_000_000.0, medianNanos / 1_000_000.0, p95Nanos / 1_000_000.0);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int markers = 3000;
+        int frames = 100;
+        int zoom = 15;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--markers": markers = Integer.parseInt(args[++i]); break;
+                case "--frames": frames = Integer.parseInt(args[++i]); break;
+                case "--zoom": zoom = Integer.parseInt(args[++i]); break;
+                default:
+                    System.err.println("Unknown argument: " + args[i]);
+                    return;
+            }
+        }
+
+        int markerCount = markers;
+        int frameCount = frames;
+        int zoomLevel = zoom;
+        CountDownLatch done = new CountDownLatch(1);
+        Platform.startup(() -> {
+            try {
+                MarkerRenderBenchmark benchmark = new MarkerRenderBenchmark(markerCount, zoomLevel);
+                System.out.println("🗺️ Marker rendering, " + markerCount + " markers at zoom " + zoomLevel +
+                                   ", " + frameCount + " frames");
+                Result vector = benchmark.runVector(frameCount);
+                Result atlas = benchmark.runAtlas(frameCount);
+                System.out.println(vector);
+                System.out.println(atlas);
+                System.out.println(String.format("   atlas is %.1fx faster per frame", vector.meanNanos / atlas.meanNanos));
+            } finally {
+                done.countDown();
+            }
+        });
+        done.await();
+        Platform.exit();
+    }
+}
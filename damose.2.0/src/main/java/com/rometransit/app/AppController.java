@@ -1,5 +1,6 @@
 package com.rometransit.app;
 
+import com.rometransit.service.execution.ExecutionManager;
 import com.rometransit.service.network.NetworkManager;
 import com.rometransit.service.user.UserService;
 import com.rometransit.util.config.AppConfig;
@@ -40,7 +41,7 @@ public class AppController {
             // Inizializzazione completata
         }));
         
-        new Thread(initTask).start();
+        ExecutionManager.getInstance().io("app-init").execute(initTask);
     }
     
     public void shutdown() {
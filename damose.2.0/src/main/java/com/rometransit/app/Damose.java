@@ -1,9 +1,13 @@
 package com.rometransit.app;
 
 import com.rometransit.service.gtfs.GTFSDataManager;
+import com.rometransit.service.gtfs.feed.FeedShardManager;
 import com.rometransit.data.database.DatabaseManager;
 import com.rometransit.service.auth.AuthService;
 import com.rometransit.service.data.DataSyncService;
+import com.rometransit.service.execution.ExecutionManager;
+import com.rometransit.service.memory.MemoryGovernor;
+import com.rometransit.service.metrics.MetricsSnapshotWriter;
 import com.rometransit.service.realtime.RealtimeDataSyncService;
 import com.rometransit.model.entity.User;
 import javafx.application.Application;
@@ -11,6 +15,7 @@ import javafx.application.Platform;
 import javafx.stage.Stage;
 
 import java.io.File;
+import java.time.Duration;
 
 public class Damose extends Application {
     private static final String APP_TITLE = "Damose 2.0 - Rome Transit";
@@ -33,6 +38,11 @@ public class Damose extends Application {
         primaryStage.setTitle(APP_TITLE);
         primaryStage.setOnCloseRequest(e -> shutdown());
 
+        // Hot path latencies to ~/.damose/metrics (also exposed via JMX)
+        MetricsSnapshotWriter.getInstance().start();
+        // Cache budgets and heap pressure thresholds
+        MemoryGovernor.getInstance().start();
+
         // Initialize GTFS data in background
         initializeGTFSDataInBackground();
 
@@ -74,7 +84,8 @@ public class Damose extends Application {
     }
 
     private void initializeGTFSDataInBackground() {
-        Thread initThread = new Thread(() -> {
+        // Import and first realtime check block on disk, SQLite and HTTP: IO scope
+        ExecutionManager.getInstance().io("app-init").execute(() -> {
             try {
                 System.out.println("🚀 Starting background GTFS initialization...");
 
@@ -123,9 +134,6 @@ public class Damose extends Application {
                 e.printStackTrace();
             }
         });
-        initThread.setDaemon(true);
-        initThread.setName("GTFS-Background-Init");
-        initThread.start();
     }
 
     private void initializeRealtimeSyncService() {
@@ -221,13 +229,25 @@ public class Damose extends Application {
         if (gtfsDataManager != null) {
             gtfsDataManager.shutdown();
         }
+        MemoryGovernor.getInstance().stop();
+        // Last metrics snapshot of this run
+        MetricsSnapshotWriter.getInstance().stop();
+        // Let running tasks finish (bounded) before the database goes away
+        ExecutionManager.getInstance().shutdown(Duration.ofSeconds(5));
+        // Databases of the extra feeds
+        FeedShardManager.getInstance().shutdown();
         // Flush all pending database writes
         DatabaseManager.getInstance().shutdown();
         Platform.exit();
         System.exit(0);
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // --headless: engine and HTTP API only, no JavaFX
+        if (HeadlessServer.isHeadless(args)) {
+            HeadlessServer.main(args);
+            return;
+        }
         launch(args);
     }
 }
@@ -0,0 +1,142 @@
+package com.rometransit.app;
+
+import com.rometransit.data.database.DatabaseManager;
+import com.rometransit.service.api.ApiServer;
+import com.rometransit.service.execution.ExecutionManager;
+import com.rometransit.service.gtfs.GTFSDataManager;
+import com.rometransit.service.gtfs.feed.FeedShardManager;
+import com.rometransit.service.memory.MemoryGovernor;
+import com.rometransit.service.metrics.MetricsSnapshotWriter;
+import com.rometransit.service.realtime.RealtimeDataSyncService;
+import com.rometransit.util.config.AppConfig;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Headless mode: the transit engine without JavaFX, served over the local HTTP API
+ * (see ApiServer), so one instance can feed many kiosks.
+ *
+ * Usage: Damose --headless [--port 8080] [--bind 127.0.0.1] [--gtfs static_gtfs.zip]
+ * Port and bind address default to server.port and server.bind_address.
+ */
+public class HeadlessServer {
+
+    private final String gtfsPath;
+    private final GTFSDataManager gtfsDataManager;
+    private final ApiServer apiServer;
+    private RealtimeDataSyncService realtimeSyncService;
+
+    public HeadlessServer(String bindAddress, int port, String gtfsPath) throws Exception {
+        this.gtfsPath = gtfsPath;
+        this.gtfsDataManager = GTFSDataManager.getInstance();
+        this.apiServer = new ApiServer(bindAddress, port);
+    }
+
+    public void start() {
+        // Hot path latencies to ~/.damose/metrics (also exposed via JMX)
+        MetricsSnapshotWriter.getInstance().start();
+        // Cache budgets and heap pressure thresholds
+        MemoryGovernor.getInstance().start();
+
+        // Health answers "loading" until the import is done
+        apiServer.start();
+
+        String path = resolveGtfsPath();
+        if (path != null || !gtfsDataManager.isStaticDataLoaded()) {
+            System.out.println("📍 Loading GTFS static data from: " + path);
+            gtfsDataManager.initializeStaticData(path != null ? path : AppConfig.getInstance().getGtfsStaticFile());
+        } else {
+            System.out.println("✅ Using cached GTFS static data");
+        }
+
+        System.out.println("📶 Testing real-time connection...");
+        if (gtfsDataManager.testRealtimeConnection()) {
+            int interval = AppConfig.getInstance().getGtfsUpdateInterval();
+            realtimeSyncService = new RealtimeDataSyncService();
+            apiServer.attachRealtime(realtimeSyncService);
+            realtimeSyncService.startSync(interval);
+            System.out.println("✅ Real-time sync every " + interval + "s");
+        } else {
+            System.out.println("⚠️ Real-time updates not available - serving static data only");
+        }
+    }
+
+    public void stop() {
+        System.out.println("Shutting down headless server...");
+        apiServer.stop();
+        if (realtimeSyncService != null) {
+            realtimeSyncService.stopSync();
+        }
+        gtfsDataManager.shutdown();
+        MemoryGovernor.getInstance().stop();
+        // Last metrics snapshot of this run
+        MetricsSnapshotWriter.getInstance().stop();
+        // Drain background work before the database goes away
+        ExecutionManager.getInstance().shutdown(Duration.ofSeconds(5));
+        // Databases of the extra feeds
+        FeedShardManager.getInstance().shutdown();
+        // Flush all pending database writes
+        DatabaseManager.getInstance().shutdown();
+    }
+
+    /**
+     * --gtfs if given, otherwise the configured feed in the working directory,
+     * src/main/resources or ~/.damose; null when only the cache can be used
+     */
+    private String resolveGtfsPath() {
+        if (gtfsPath != null) {
+            return gtfsPath;
+        }
+        String fileName = AppConfig.getInstance().getGtfsStaticFile();
+        for (File candidate : new File[] {
+                new File(fileName),
+                new File("src/main/resources/" + fileName),
+                new File(System.getProperty("user.home") + "/.damose/" + fileName) }) {
+            if (candidate.isFile()) {
+                return candidate.getAbsolutePath();
+            }
+        }
+        return null;
+    }
+
+    public static boolean isHeadless(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--headless")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static void main(String[] args) throws Exception {
+        AppConfig config = AppConfig.getInstance();
+        String bindAddress = config.getServerBindAddress();
+        int port = config.getServerPort();
+        String gtfsPath = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--headless" -> { }
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--bind" -> bindAddress = args[++i];
+                case "--gtfs" -> gtfsPath = args[++i];
+                default -> {
+                    System.err.println("Usage: Damose --headless [--port 8080] [--bind 127.0.0.1] [--gtfs static_gtfs.zip]");
+                    System.exit(1);
+                }
+            }
+        }
+
+        HeadlessServer server = new HeadlessServer(bindAddress, port, gtfsPath);
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            stopped.countDown();
+        }, "HeadlessServer-Shutdown"));
+
+        server.start();
+        stopped.await();
+    }
+}
@@ -3,7 +3,12 @@ package com.rometransit.app;
 
 
 public class Launcher {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws Exception {
+        // Headless mode never touches the JavaFX classes
+        if (HeadlessServer.isHeadless(args)) {
+            HeadlessServer.main(args);
+            return;
+        }
         Damose.main(args);
     }
 }
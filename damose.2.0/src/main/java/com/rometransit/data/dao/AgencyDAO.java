@@ -5,6 +5,7 @@ import com.rometransit.model.entity.Agency;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,7 +16,11 @@ public class AgencyDAO {
     private final SQLiteDatabaseManager dbManager;
 
     public AgencyDAO() {
-        this.dbManager = SQLiteDatabaseManager.getInstance();
+        this(SQLiteDatabaseManager.getInstance());
+    }
+
+    public AgencyDAO(SQLiteDatabaseManager dbManager) {
+        this.dbManager = dbManager;
     }
 
     /**
@@ -55,15 +60,7 @@ public class AgencyDAO {
         dbManager.executeBatch(sql, new SQLiteDatabaseManager.BatchParameterSetter() {
             @Override
             public void setValues(PreparedStatement stmt, int index) throws SQLException {
-                Agency agency = agencies.get(index);
-                stmt.setString(1, agency.getAgencyId());
-                stmt.setString(2, agency.getAgencyName());
-                stmt.setString(3, agency.getAgencyUrl());
-                stmt.setString(4, agency.getAgencyTimezone());
-                stmt.setString(5, agency.getAgencyLang());
-                stmt.setString(6, agency.getAgencyPhone());
-                stmt.setString(7, agency.getAgencyFareUrl());
-                stmt.setString(8, agency.getAgencyEmail());
+                bindAgencyStatement(stmt, 0, agencies.get(index));
             }
 
             @Override
@@ -73,6 +70,70 @@ public class AgencyDAO {
         });
     }
 
+    /**
+     * Bulk insert into an empty table on a caller-managed connection.
+     * Used by the initial import fast path: multi-row VALUES statements, no conflict handling.
+     */
+    public void bulkInsert(Connection conn, List<Agency> agencies) throws SQLException {
+        if (agencies == null || agencies.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO agencies " +
+                    "(agency_id, agency_name, agency_url, agency_timezone, agency_lang, " +
+                    "agency_phone, agency_fare_url, agency_email)";
+
+        dbManager.executeMultiRowInsert(conn, sql, 8, agencies, this::bindAgencyStatement);
+    }
+
+    /**
+     * Insert or update agencies on a caller-managed connection.
+     * Used by delta imports so that several DAOs can share one bounded transaction.
+     */
+    public void upsertBatch(Connection conn, List<Agency> agencies) throws SQLException {
+        if (agencies == null || agencies.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO agencies " +
+                    "(agency_id, agency_name, agency_url, agency_timezone, agency_lang, " +
+                    "agency_phone, agency_fare_url, agency_email) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT(agency_id) DO UPDATE SET " +
+                    "agency_name = excluded.agency_name, " +
+                    "agency_url = excluded.agency_url, " +
+                    "agency_timezone = excluded.agency_timezone, " +
+                    "agency_lang = excluded.agency_lang, " +
+                    "agency_phone = excluded.agency_phone, " +
+                    "agency_fare_url = excluded.agency_fare_url, " +
+                    "agency_email = excluded.agency_email";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Agency agency : agencies) {
+                bindAgencyStatement(stmt, 0, agency);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Delete agencies by ID on a caller-managed connection
+     */
+    public void deleteByIds(Connection conn, Collection<String> ids) throws SQLException {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM agencies WHERE agency_id = ?")) {
+            for (String id : ids) {
+                stmt.setString(1, id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
     /**
      * Find agency by ID
      */
@@ -130,6 +191,21 @@ public class AgencyDAO {
         dbManager.executeUpdate("DELETE FROM agencies");
     }
 
+    /**
+     * Bind agency columns in table order (agency_id first),
+     * starting after the given parameter offset (multi-row inserts bind several rows per statement)
+     */
+    private void bindAgencyStatement(PreparedStatement stmt, int offset, Agency agency) throws SQLException {
+        stmt.setString(offset + 1, agency.getAgencyId());
+        stmt.setString(offset + 2, agency.getAgencyName());
+        stmt.setString(offset + 3, agency.getAgencyUrl());
+        stmt.setString(offset + 4, agency.getAgencyTimezone());
+        stmt.setString(offset + 5, agency.getAgencyLang());
+        stmt.setString(offset + 6, agency.getAgencyPhone());
+        stmt.setString(offset + 7, agency.getAgencyFareUrl());
+        stmt.setString(offset + 8, agency.getAgencyEmail());
+    }
+
     /**
      * Map ResultSet to Agency object
      */
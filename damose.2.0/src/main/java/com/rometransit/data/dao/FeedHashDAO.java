@@ -0,0 +1,97 @@
+package com.rometransit.data.dao;
+
+import com.rometransit.data.database.SQLiteDatabaseManager;
+
+import java.sql.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Data Access Object for the row hashes of the last imported static feed
+ * (feed_row_hashes table, used by delta imports)
+ */
+public class FeedHashDAO {
+    private final SQLiteDatabaseManager dbManager;
+
+    public FeedHashDAO() {
+        this(SQLiteDatabaseManager.getInstance());
+    }
+
+    public FeedHashDAO(SQLiteDatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    /**
+     * Load all stored hashes for an entity type (entity key -> hash)
+     */
+    public Map<String, Long> findByEntity(String entity) throws SQLException {
+        String sql = "SELECT entity_key, row_hash FROM feed_row_hashes WHERE entity = ?";
+
+        return dbManager.executeQuery(sql, rs -> {
+            Map<String, Long> hashes = new HashMap<>();
+            while (rs.next()) {
+                hashes.put(rs.getString("entity_key"), rs.getLong("row_hash"));
+            }
+            return hashes;
+        }, entity);
+    }
+
+    /**
+     * Insert or update hashes on a caller-managed connection
+     */
+    public void upsertBatch(Connection conn, String entity, Map<String, Long> hashes) throws SQLException {
+        if (hashes == null || hashes.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT OR REPLACE INTO feed_row_hashes (entity, entity_key, row_hash) VALUES (?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<String, Long> entry : hashes.entrySet()) {
+                stmt.setString(1, entity);
+                stmt.setString(2, entry.getKey());
+                stmt.setLong(3, entry.getValue());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Delete hashes on a caller-managed connection
+     */
+    public void deleteByKeys(Connection conn, String entity, Collection<String> keys) throws SQLException {
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
+
+        String sql = "DELETE FROM feed_row_hashes WHERE entity = ? AND entity_key = ?";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (String key : keys) {
+                stmt.setString(1, entity);
+                stmt.setString(2, key);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Delete all hashes of an entity type on a caller-managed connection
+     */
+    public void deleteByEntity(Connection conn, String entity) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM feed_row_hashes WHERE entity = ?")) {
+            stmt.setString(1, entity);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Delete all stored hashes
+     */
+    public void deleteAll() throws SQLException {
+        dbManager.executeUpdate("DELETE FROM feed_row_hashes");
+    }
+}
@@ -0,0 +1,151 @@
+package com.rometransit.data.dao;
+
+import com.rometransit.data.database.SQLiteDatabaseManager;
+import com.rometransit.model.entity.TransportIncident;
+
+import java.sql.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Data Access Object for incidents and route delays (incidents table)
+ */
+public class IncidentDAO {
+    private final SQLiteDatabaseManager dbManager;
+
+    public IncidentDAO() {
+        this.dbManager = SQLiteDatabaseManager.getInstance();
+    }
+
+    /**
+     * Insert or update incidents in a single transaction
+     */
+    public void upsertBatch(Collection<TransportIncident> incidents) throws SQLException {
+        if (incidents == null || incidents.isEmpty()) {
+            return;
+        }
+
+        List<TransportIncident> rows = new ArrayList<>(incidents);
+        String sql = "INSERT OR REPLACE INTO incidents " +
+                    "(incident_id, type, severity, location, description, affected_routes, " +
+                    "start_time, end_time, active, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        long now = System.currentTimeMillis() / 1000;
+        dbManager.executeBatch(sql, new SQLiteDatabaseManager.BatchParameterSetter() {
+            @Override
+            public void setValues(PreparedStatement stmt, int index) throws SQLException {
+                TransportIncident incident = rows.get(index);
+                stmt.setString(1, incident.getId());
+                stmt.setString(2, incident.getType());
+                stmt.setString(3, incident.getSeverity() != null ? incident.getSeverity().name() : TransportIncident.Severity.LOW.name());
+                stmt.setString(4, incident.getLocation());
+                stmt.setString(5, incident.getDescription());
+                stmt.setString(6, incident.getAffectedRoutes() != null ? String.join(",", incident.getAffectedRoutes()) : null);
+                setEpoch(stmt, 7, incident.getStartTime());
+                setEpoch(stmt, 8, incident.getEndTime());
+                stmt.setInt(9, incident.isActive() ? 1 : 0);
+                stmt.setLong(10, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    /**
+     * Find all active incidents
+     */
+    public List<TransportIncident> findActive() throws SQLException {
+        return dbManager.executeQuery("SELECT * FROM incidents WHERE active = 1", this::mapAll);
+    }
+
+    /**
+     * Find incident by ID, active or resolved
+     */
+    public TransportIncident findById(String incidentId) throws SQLException {
+        List<TransportIncident> found = dbManager.executeQuery(
+            "SELECT * FROM incidents WHERE incident_id = ?", this::mapAll, incidentId);
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    /**
+     * Find all incidents, most recent first
+     */
+    public List<TransportIncident> findAll() throws SQLException {
+        return dbManager.executeQuery("SELECT * FROM incidents ORDER BY start_time DESC", this::mapAll);
+    }
+
+    /**
+     * Mark former delay records (type DELAY/SEVERE_DELAY) as RITARDO
+     */
+    public int migrateLegacyDelayTypes() throws SQLException {
+        return dbManager.executeUpdate(
+            "UPDATE incidents SET type = 'RITARDO' WHERE type IN ('DELAY', 'SEVERE_DELAY')");
+    }
+
+    /**
+     * Delete resolved incidents that ended before the given epoch second
+     */
+    public int deleteResolvedBefore(long epochSeconds) throws SQLException {
+        return dbManager.executeUpdate(
+            "DELETE FROM incidents WHERE active = 0 AND end_time < ?", epochSeconds);
+    }
+
+    public int delete(String incidentId) throws SQLException {
+        return dbManager.executeUpdate("DELETE FROM incidents WHERE incident_id = ?", incidentId);
+    }
+
+    public long count() throws SQLException {
+        return dbManager.executeQuery("SELECT COUNT(*) FROM incidents", rs -> rs.next() ? rs.getLong(1) : 0L);
+    }
+
+    private List<TransportIncident> mapAll(ResultSet rs) throws SQLException {
+        List<TransportIncident> incidents = new ArrayList<>();
+        while (rs.next()) {
+            incidents.add(mapResultSet(rs));
+        }
+        return incidents;
+    }
+
+    private TransportIncident mapResultSet(ResultSet rs) throws SQLException {
+        TransportIncident incident = new TransportIncident();
+        incident.setId(rs.getString("incident_id"));
+        incident.setType(rs.getString("type"));
+        try {
+            incident.setSeverity(TransportIncident.Severity.valueOf(rs.getString("severity")));
+        } catch (IllegalArgumentException e) {
+            incident.setSeverity(TransportIncident.Severity.LOW);
+        }
+        incident.setLocation(rs.getString("location"));
+        incident.setDescription(rs.getString("description"));
+
+        String routes = rs.getString("affected_routes");
+        incident.setAffectedRoutes(routes == null || routes.isEmpty()
+            ? new ArrayList<>() : new ArrayList<>(Arrays.asList(routes.split(","))));
+
+        incident.setStartTime(toDateTime(rs.getLong("start_time"), rs.wasNull()));
+        incident.setEndTime(toDateTime(rs.getLong("end_time"), rs.wasNull()));
+        incident.setActive(rs.getInt("active") == 1);
+        return incident;
+    }
+
+    private static void setEpoch(PreparedStatement stmt, int index, LocalDateTime dateTime) throws SQLException {
+        if (dateTime != null) {
+            stmt.setLong(index, dateTime.atZone(ZoneId.systemDefault()).toEpochSecond());
+        } else {
+            stmt.setNull(index, Types.INTEGER);
+        }
+    }
+
+    private static LocalDateTime toDateTime(long epochSeconds, boolean isNull) {
+        return isNull ? null : LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSeconds), ZoneId.systemDefault());
+    }
+}
@@ -6,6 +6,7 @@ import com.rometransit.model.enums.TransportType;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,7 +17,11 @@ public class RouteDAO {
     private final SQLiteDatabaseManager dbManager;
 
     public RouteDAO() {
-        this.dbManager = SQLiteDatabaseManager.getInstance();
+        this(SQLiteDatabaseManager.getInstance());
+    }
+
+    public RouteDAO(SQLiteDatabaseManager dbManager) {
+        this.dbManager = dbManager;
     }
 
     /**
@@ -58,17 +63,7 @@ public class RouteDAO {
         dbManager.executeBatch(sql, new SQLiteDatabaseManager.BatchParameterSetter() {
             @Override
             public void setValues(PreparedStatement stmt, int index) throws SQLException {
-                Route route = routes.get(index);
-                stmt.setString(1, route.getRouteId());
-                stmt.setString(2, route.getAgencyId());
-                stmt.setString(3, route.getRouteShortName());
-                stmt.setString(4, route.getRouteLongName());
-                stmt.setString(5, route.getRouteDesc());
-                stmt.setInt(6, route.getRouteType() != null ? route.getRouteType().getGtfsCode() : 0);
-                stmt.setString(7, route.getRouteUrl());
-                stmt.setString(8, route.getRouteColor());
-                stmt.setString(9, route.getRouteTextColor());
-                stmt.setInt(10, route.getRouteSortOrder());
+                bindRouteStatement(stmt, 0, routes.get(index));
             }
 
             @Override
@@ -78,6 +73,72 @@ public class RouteDAO {
         });
     }
 
+    /**
+     * Bulk insert into an empty table on a caller-managed connection.
+     * Used by the initial import fast path: multi-row VALUES statements, no conflict handling.
+     */
+    public void bulkInsert(Connection conn, List<Route> routes) throws SQLException {
+        if (routes == null || routes.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO routes " +
+                    "(route_id, agency_id, route_short_name, route_long_name, route_desc, " +
+                    "route_type, route_url, route_color, route_text_color, route_sort_order)";
+
+        dbManager.executeMultiRowInsert(conn, sql, 10, routes, this::bindRouteStatement);
+    }
+
+    /**
+     * Insert or update routes on a caller-managed connection.
+     * Used by delta imports so that several DAOs can share one bounded transaction.
+     */
+    public void upsertBatch(Connection conn, List<Route> routes) throws SQLException {
+        if (routes == null || routes.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO routes " +
+                    "(route_id, agency_id, route_short_name, route_long_name, route_desc, " +
+                    "route_type, route_url, route_color, route_text_color, route_sort_order) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT(route_id) DO UPDATE SET " +
+                    "agency_id = excluded.agency_id, " +
+                    "route_short_name = excluded.route_short_name, " +
+                    "route_long_name = excluded.route_long_name, " +
+                    "route_desc = excluded.route_desc, " +
+                    "route_type = excluded.route_type, " +
+                    "route_url = excluded.route_url, " +
+                    "route_color = excluded.route_color, " +
+                    "route_text_color = excluded.route_text_color, " +
+                    "route_sort_order = excluded.route_sort_order";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Route route : routes) {
+                bindRouteStatement(stmt, 0, route);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Delete routes by ID on a caller-managed connection
+     */
+    public void deleteByIds(Connection conn, Collection<String> ids) throws SQLException {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM routes WHERE route_id = ?")) {
+            for (String id : ids) {
+                stmt.setString(1, id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
     /**
      * Find route by ID
      */
@@ -170,6 +231,23 @@ public class RouteDAO {
         dbManager.executeUpdate("DELETE FROM routes");
     }
 
+    /**
+     * Bind route columns in table order (route_id first),
+     * starting after the given parameter offset (multi-row inserts bind several rows per statement)
+     */
+    private void bindRouteStatement(PreparedStatement stmt, int offset, Route route) throws SQLException {
+        stmt.setString(offset + 1, route.getRouteId());
+        stmt.setString(offset + 2, route.getAgencyId());
+        stmt.setString(offset + 3, route.getRouteShortName());
+        stmt.setString(offset + 4, route.getRouteLongName());
+        stmt.setString(offset + 5, route.getRouteDesc());
+        stmt.setInt(offset + 6, route.getRouteType() != null ? route.getRouteType().getGtfsCode() : 0);
+        stmt.setString(offset + 7, route.getRouteUrl());
+        stmt.setString(offset + 8, route.getRouteColor());
+        stmt.setString(offset + 9, route.getRouteTextColor());
+        stmt.setInt(offset + 10, route.getRouteSortOrder());
+    }
+
     /**
      * Map ResultSet to Route object
      */
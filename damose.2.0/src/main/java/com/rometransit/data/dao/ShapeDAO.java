@@ -5,7 +5,9 @@ import com.rometransit.model.entity.Shape;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for Shape entity
@@ -14,7 +16,11 @@ public class ShapeDAO {
     private final SQLiteDatabaseManager dbManager;
 
     public ShapeDAO() {
-        this.dbManager = SQLiteDatabaseManager.getInstance();
+        this(SQLiteDatabaseManager.getInstance());
+    }
+
+    public ShapeDAO(SQLiteDatabaseManager dbManager) {
+        this.dbManager = dbManager;
     }
 
     /**
@@ -49,12 +55,7 @@ public class ShapeDAO {
         dbManager.executeBatch(sql, new SQLiteDatabaseManager.BatchParameterSetter() {
             @Override
             public void setValues(PreparedStatement stmt, int index) throws SQLException {
-                Shape shape = shapes.get(index);
-                stmt.setString(1, shape.getShapeId());
-                stmt.setDouble(2, shape.getShapePtLat());
-                stmt.setDouble(3, shape.getShapePtLon());
-                stmt.setInt(4, shape.getShapePtSequence());
-                stmt.setDouble(5, shape.getShapeDistTraveled());
+                bindShapeStatement(stmt, 0, shapes.get(index));
             }
 
             @Override
@@ -64,6 +65,75 @@ public class ShapeDAO {
         });
     }
 
+    /**
+     * Bulk insert into an empty table on a caller-managed connection.
+     * Used by the initial import fast path: multi-row VALUES statements, no conflict handling.
+     */
+    public void bulkInsert(Connection conn, List<Shape> shapes) throws SQLException {
+        if (shapes == null || shapes.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO shapes " +
+                    "(shape_id, shape_pt_lat, shape_pt_lon, shape_pt_sequence, shape_dist_traveled)";
+
+        dbManager.executeMultiRowInsert(conn, sql, 5, shapes, this::bindShapeStatement);
+    }
+
+    /**
+     * Replace all points of the given shapes on a caller-managed connection.
+     * A changed shape is rewritten as a unit (delete + insert).
+     */
+    public void replaceByShapes(Connection conn, Collection<String> shapeIds, List<Shape> rows) throws SQLException {
+        deleteByShapes(conn, shapeIds);
+        if (rows == null || rows.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO shapes " +
+                    "(shape_id, shape_pt_lat, shape_pt_lon, shape_pt_sequence, shape_dist_traveled) " +
+                    "VALUES (?, ?, ?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Shape shape : rows) {
+                bindShapeStatement(stmt, 0, shape);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Delete all points of the given shapes on a caller-managed connection
+     */
+    public void deleteByShapes(Connection conn, Collection<String> shapeIds) throws SQLException {
+        if (shapeIds == null || shapeIds.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM shapes WHERE shape_id = ?")) {
+            for (String id : shapeIds) {
+                stmt.setString(1, id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Stream all shape points ordered by shape and sequence without materializing the full table
+     */
+    public void forEachOrdered(Consumer<Shape> consumer) throws SQLException {
+        String sql = "SELECT * FROM shapes ORDER BY shape_id, shape_pt_sequence";
+
+        dbManager.executeQuery(sql, rs -> {
+            while (rs.next()) {
+                consumer.accept(mapResultSetToShape(rs));
+            }
+            return null;
+        });
+    }
+
     /**
      * Find shape points by shape ID
      */
@@ -135,6 +205,18 @@ public class ShapeDAO {
         dbManager.executeUpdate("DELETE FROM shapes");
     }
 
+    /**
+     * Bind shape columns in insert order,
+     * starting after the given parameter offset (multi-row inserts bind several rows per statement)
+     */
+    private void bindShapeStatement(PreparedStatement stmt, int offset, Shape shape) throws SQLException {
+        stmt.setString(offset + 1, shape.getShapeId());
+        stmt.setDouble(offset + 2, shape.getShapePtLat());
+        stmt.setDouble(offset + 3, shape.getShapePtLon());
+        stmt.setInt(offset + 4, shape.getShapePtSequence());
+        stmt.setDouble(offset + 5, shape.getShapeDistTraveled());
+    }
+
     /**
      * Map ResultSet to Shape object
      */
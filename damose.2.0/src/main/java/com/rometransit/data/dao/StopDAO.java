@@ -5,6 +5,7 @@ import com.rometransit.model.entity.Stop;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,7 +16,11 @@ public class StopDAO {
     private final SQLiteDatabaseManager dbManager;
 
     public StopDAO() {
-        this.dbManager = SQLiteDatabaseManager.getInstance();
+        this(SQLiteDatabaseManager.getInstance());
+    }
+
+    public StopDAO(SQLiteDatabaseManager dbManager) {
+        this.dbManager = dbManager;
     }
 
     /**
@@ -59,19 +64,7 @@ public class StopDAO {
         dbManager.executeBatch(sql, new SQLiteDatabaseManager.BatchParameterSetter() {
             @Override
             public void setValues(PreparedStatement stmt, int index) throws SQLException {
-                Stop stop = stops.get(index);
-                stmt.setString(1, stop.getStopId());
-                stmt.setString(2, stop.getStopCode());
-                stmt.setString(3, stop.getStopName());
-                stmt.setString(4, stop.getStopDesc());
-                stmt.setDouble(5, stop.getStopLat());
-                stmt.setDouble(6, stop.getStopLon());
-                stmt.setString(7, stop.getZoneId());
-                stmt.setString(8, stop.getStopUrl());
-                stmt.setInt(9, stop.getLocationType());
-                stmt.setString(10, stop.getParentStation());
-                stmt.setString(11, stop.getStopTimezone());
-                stmt.setInt(12, stop.getWheelchairBoarding());
+                bindStopStatement(stmt, 0, stops.get(index));
             }
 
             @Override
@@ -81,6 +74,74 @@ public class StopDAO {
         });
     }
 
+    /**
+     * Bulk insert into an empty table on a caller-managed connection.
+     * Used by the initial import fast path: multi-row VALUES statements, no conflict handling.
+     */
+    public void bulkInsert(Connection conn, List<Stop> stops) throws SQLException {
+        if (stops == null || stops.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO stops " +
+                    "(stop_id, stop_code, stop_name, stop_desc, stop_lat, stop_lon, " +
+                    "zone_id, stop_url, location_type, parent_station, stop_timezone, wheelchair_boarding)";
+
+        dbManager.executeMultiRowInsert(conn, sql, 12, stops, this::bindStopStatement);
+    }
+
+    /**
+     * Insert or update stops on a caller-managed connection.
+     * Used by delta imports so that several DAOs can share one bounded transaction.
+     */
+    public void upsertBatch(Connection conn, List<Stop> stops) throws SQLException {
+        if (stops == null || stops.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO stops " +
+                    "(stop_id, stop_code, stop_name, stop_desc, stop_lat, stop_lon, " +
+                    "zone_id, stop_url, location_type, parent_station, stop_timezone, wheelchair_boarding) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT(stop_id) DO UPDATE SET " +
+                    "stop_code = excluded.stop_code, " +
+                    "stop_name = excluded.stop_name, " +
+                    "stop_desc = excluded.stop_desc, " +
+                    "stop_lat = excluded.stop_lat, " +
+                    "stop_lon = excluded.stop_lon, " +
+                    "zone_id = excluded.zone_id, " +
+                    "stop_url = excluded.stop_url, " +
+                    "location_type = excluded.location_type, " +
+                    "parent_station = excluded.parent_station, " +
+                    "stop_timezone = excluded.stop_timezone, " +
+                    "wheelchair_boarding = excluded.wheelchair_boarding";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Stop stop : stops) {
+                bindStopStatement(stmt, 0, stop);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Delete stops by ID on a caller-managed connection
+     */
+    public void deleteByIds(Connection conn, Collection<String> ids) throws SQLException {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM stops WHERE stop_id = ?")) {
+            for (String id : ids) {
+                stmt.setString(1, id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
     /**
      * Find stop by ID
      */
@@ -176,6 +237,25 @@ public class StopDAO {
         dbManager.executeUpdate("DELETE FROM stops");
     }
 
+    /**
+     * Bind stop columns in table order (stop_id first),
+     * starting after the given parameter offset (multi-row inserts bind several rows per statement)
+     */
+    private void bindStopStatement(PreparedStatement stmt, int offset, Stop stop) throws SQLException {
+        stmt.setString(offset + 1, stop.getStopId());
+        stmt.setString(offset + 2, stop.getStopCode());
+        stmt.setString(offset + 3, stop.getStopName());
+        stmt.setString(offset + 4, stop.getStopDesc());
+        stmt.setDouble(offset + 5, stop.getStopLat());
+        stmt.setDouble(offset + 6, stop.getStopLon());
+        stmt.setString(offset + 7, stop.getZoneId());
+        stmt.setString(offset + 8, stop.getStopUrl());
+        stmt.setInt(offset + 9, stop.getLocationType());
+        stmt.setString(offset + 10, stop.getParentStation());
+        stmt.setString(offset + 11, stop.getStopTimezone());
+        stmt.setInt(offset + 12, stop.getWheelchairBoarding());
+    }
+
     /**
      * Map ResultSet to Stop object
      */
@@ -2,122 +2,434 @@ package com.rometransit.data.dao;
 
 import com.rometransit.data.database.SQLiteDatabaseManager;
 import com.rometransit.model.entity.StopTime;
+import com.rometransit.model.symbol.SymbolTable;
+import com.rometransit.model.timetable.StopPattern;
+import com.rometransit.model.timetable.TimeProfile;
+import com.rometransit.model.timetable.TripSchedule;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
- * Data Access Object for StopTime entity
+ * Data Access Object for StopTime entity.
+ *
+ * stop_times are stored in trip-pattern form (stop_patterns, pattern_stops, time_profiles,
+ * trip_schedules): writes group the rows of each trip into its pattern, profile and start
+ * time, reads expand them back into StopTime rows.
  */
 public class StopTimeDAO {
     private final SQLiteDatabaseManager dbManager;
 
+    private static final String SCHEDULE_COLUMNS =
+        "SELECT t.trip_id, t.start_time, p.pattern_id, p.stops, f.profile_id, f.offsets " +
+        "FROM trip_schedules t " +
+        "JOIN stop_patterns p ON p.pattern_id = t.pattern_id " +
+        "JOIN time_profiles f ON f.profile_id = t.profile_id ";
+
     public StopTimeDAO() {
-        this.dbManager = SQLiteDatabaseManager.getInstance();
+        this(SQLiteDatabaseManager.getInstance());
+    }
+
+    public StopTimeDAO(SQLiteDatabaseManager dbManager) {
+        this.dbManager = dbManager;
     }
 
     /**
-     * Insert a single stop time
+     * Insert a single stop time (its trip is rewritten with the row added or replaced)
      */
     public void insert(StopTime stopTime) throws SQLException {
-        String sql = "INSERT OR REPLACE INTO stop_times " +
-                    "(trip_id, arrival_time, departure_time, stop_id, stop_sequence, " +
-                    "stop_headsign, pickup_type, drop_off_type, shape_dist_traveled, timepoint) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-
-        dbManager.executeUpdate(sql,
-            stopTime.getTripId(),
-            stopTime.getArrivalTime(),
-            stopTime.getDepartureTime(),
-            stopTime.getStopId(),
-            stopTime.getStopSequence(),
-            stopTime.getStopHeadsign(),
-            stopTime.getPickupType(),
-            stopTime.getDropOffType(),
-            stopTime.getShapeDistTraveled(),
-            stopTime.getTimepoint()
-        );
+        List<StopTime> rows = findByTrip(stopTime.getTripId());
+        rows.removeIf(row -> row.getStopSequence() == stopTime.getStopSequence());
+        rows.add(stopTime);
+        insertBatch(rows);
     }
 
     /**
-     * Insert multiple stop times in batch
+     * Insert multiple stop times in one transaction; the given rows replace the stop times
+     * of their trips
      */
     public void insertBatch(List<StopTime> stopTimes) throws SQLException {
         if (stopTimes == null || stopTimes.isEmpty()) {
             return;
         }
 
-        String sql = "INSERT OR REPLACE INTO stop_times " +
-                    "(trip_id, arrival_time, departure_time, stop_id, stop_sequence, " +
-                    "stop_headsign, pickup_type, drop_off_type, shape_dist_traveled, timepoint) " +
-                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        dbManager.executeInTransaction(conn -> {
+            Map<String, List<StopTime>> byTrip = groupByTrip(stopTimes);
+            deleteByTrips(conn, byTrip.keySet());
+            writeTrips(conn, byTrip, true);
+            return null;
+        });
+    }
+
+    /**
+     * Bulk insert into empty tables on a caller-managed connection.
+     * Used by the initial import fast path: no lookups of existing patterns or profiles.
+     */
+    public void bulkInsert(Connection conn, List<StopTime> stopTimes) throws SQLException {
+        if (stopTimes == null || stopTimes.isEmpty()) {
+            return;
+        }
+
+        writeTrips(conn, groupByTrip(stopTimes), false);
+    }
+
+    /**
+     * Replace the stop times of the given trips on a caller-managed connection.
+     * A changed trip is rewritten as a unit (delete + insert).
+     */
+    public void replaceByTrips(Connection conn, Collection<String> tripIds, List<StopTime> rows) throws SQLException {
+        deleteByTrips(conn, tripIds);
+        if (rows == null || rows.isEmpty()) {
+            return;
+        }
+
+        writeTrips(conn, groupByTrip(rows), true);
+    }
+
+    /**
+     * Delete the stop times of the given trips on a caller-managed connection
+     * (patterns and profiles left unused are removed by pruneUnused)
+     */
+    public void deleteByTrips(Connection conn, Collection<String> tripIds) throws SQLException {
+        if (tripIds == null || tripIds.isEmpty()) {
+            return;
+        }
 
-        dbManager.executeBatch(sql, new SQLiteDatabaseManager.BatchParameterSetter() {
-            @Override
-            public void setValues(PreparedStatement stmt, int index) throws SQLException {
-                StopTime stopTime = stopTimes.get(index);
-                stmt.setString(1, stopTime.getTripId());
-                stmt.setString(2, stopTime.getArrivalTime());
-                stmt.setString(3, stopTime.getDepartureTime());
-                stmt.setString(4, stopTime.getStopId());
-                stmt.setInt(5, stopTime.getStopSequence());
-                stmt.setString(6, stopTime.getStopHeadsign());
-                stmt.setInt(7, stopTime.getPickupType());
-                stmt.setInt(8, stopTime.getDropOffType());
-                stmt.setDouble(9, stopTime.getShapeDistTraveled());
-                stmt.setInt(10, stopTime.getTimepoint());
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM trip_schedules WHERE trip_id = ?")) {
+            for (String id : tripIds) {
+                stmt.setString(1, id);
+                stmt.addBatch();
             }
+            stmt.executeBatch();
+        }
+    }
 
-            @Override
-            public int getBatchSize() {
-                return stopTimes.size();
+    /**
+     * Delete the patterns and profiles no trip refers to any more (after a delta import)
+     */
+    public int pruneUnused() throws SQLException {
+        return dbManager.executeInTransaction(conn -> {
+            int removed = 0;
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM pattern_stops WHERE pattern_id NOT IN (SELECT pattern_id FROM trip_schedules)");
+                removed += stmt.executeUpdate("DELETE FROM stop_patterns WHERE pattern_id NOT IN (SELECT pattern_id FROM trip_schedules)");
+                removed += stmt.executeUpdate("DELETE FROM time_profiles WHERE profile_id NOT IN (SELECT profile_id FROM trip_schedules)");
             }
+            return removed;
         });
     }
 
+    // ===== Writes in trip-pattern form =====
+
+    private static Map<String, List<StopTime>> groupByTrip(List<StopTime> stopTimes) {
+        Map<String, List<StopTime>> byTrip = new LinkedHashMap<>();
+        for (StopTime stopTime : stopTimes) {
+            byTrip.computeIfAbsent(stopTime.getTripId(), k -> new ArrayList<>()).add(stopTime);
+        }
+        for (List<StopTime> rows : byTrip.values()) {
+            rows.sort(Comparator.comparingInt(StopTime::getStopSequence));
+        }
+        return byTrip;
+    }
+
+    private void writeTrips(Connection conn, Map<String, List<StopTime>> byTrip, boolean lookupExisting) throws SQLException {
+        try (PatternWriter writer = new PatternWriter(conn, lookupExisting)) {
+            for (Map.Entry<String, List<StopTime>> entry : byTrip.entrySet()) {
+                writer.write(entry.getKey(), entry.getValue());
+            }
+            writer.flush();
+            if (writer.rows > 10000) {
+                System.out.printf("   🗜️ %,d stop_times of %,d trips stored as %,d new patterns and %,d new time profiles%n",
+                    writer.rows, writer.trips, writer.newPatterns, writer.newProfiles);
+            }
+        }
+    }
+
     /**
-     * Find stop times by trip ID
+     * Writes trips as (pattern, profile, start) on one connection, reusing the ids of the
+     * patterns and profiles already seen (and, unless bulk loading, already stored)
      */
-    public List<StopTime> findByTrip(String tripId) throws SQLException {
-        String sql = "SELECT * FROM stop_times WHERE trip_id = ? ORDER BY stop_sequence";
+    private static class PatternWriter implements AutoCloseable {
+        private final Connection conn;
+        private final boolean lookupExisting;
+        private final Map<String, Integer> patternIds = new HashMap<>();
+        private final Map<String, Integer> profileIds = new HashMap<>();
+        private final PreparedStatement findPattern;
+        private final PreparedStatement insertPattern;
+        private final PreparedStatement insertPatternStop;
+        private final PreparedStatement findProfile;
+        private final PreparedStatement insertProfile;
+        private final PreparedStatement insertSchedule;
+        private final PreparedStatement lastId;
+        private int pendingSchedules;
+        int trips;
+        long rows;
+        int newPatterns;
+        int newProfiles;
 
-        return dbManager.executeQuery(sql, rs -> {
-            List<StopTime> stopTimes = new ArrayList<>();
+        PatternWriter(Connection conn, boolean lookupExisting) throws SQLException {
+            this.conn = conn;
+            this.lookupExisting = lookupExisting;
+            this.findPattern = conn.prepareStatement("SELECT pattern_id FROM stop_patterns WHERE stops = ?");
+            this.insertPattern = conn.prepareStatement("INSERT INTO stop_patterns (stop_count, stops) VALUES (?, ?)");
+            this.insertPatternStop = conn.prepareStatement(
+                "INSERT OR IGNORE INTO pattern_stops (stop_id, pattern_id, position) VALUES (?, ?, ?)");
+            this.findProfile = conn.prepareStatement("SELECT profile_id FROM time_profiles WHERE offsets = ?");
+            this.insertProfile = conn.prepareStatement("INSERT INTO time_profiles (offsets) VALUES (?)");
+            this.insertSchedule = conn.prepareStatement(
+                "INSERT OR REPLACE INTO trip_schedules (trip_id, pattern_id, profile_id, start_time) VALUES (?, ?, ?, ?)");
+            this.lastId = conn.prepareStatement("SELECT last_insert_rowid()");
+        }
+
+        void write(String tripId, List<StopTime> tripRows) throws SQLException {
+            int startTime = TimeProfile.startTimeOf(tripRows);
+            StopPattern pattern = StopPattern.of(tripRows);
+            TimeProfile profile = TimeProfile.of(tripRows, startTime);
+
+            insertSchedule.setString(1, tripId);
+            insertSchedule.setInt(2, patternId(pattern));
+            insertSchedule.setInt(3, profileId(profile));
+            insertSchedule.setInt(4, startTime);
+            insertSchedule.addBatch();
+            if (++pendingSchedules >= 1000) {
+                flush();
+            }
+            trips++;
+            rows += tripRows.size();
+        }
+
+        private int patternId(StopPattern pattern) throws SQLException {
+            String key = pattern.encode();
+            Integer id = patternIds.get(key);
+            if (id == null && lookupExisting) {
+                id = find(findPattern, key);
+            }
+            if (id == null) {
+                insertPattern.setInt(1, pattern.size());
+                insertPattern.setString(2, key);
+                insertPattern.executeUpdate();
+                id = lastInsertId();
+                for (int i = 0; i < pattern.size(); i++) {
+                    insertPatternStop.setString(1, pattern.getStopId(i));
+                    insertPatternStop.setInt(2, id);
+                    insertPatternStop.setInt(3, i);
+                    insertPatternStop.addBatch();
+                }
+                insertPatternStop.executeBatch();
+                newPatterns++;
+            }
+            patternIds.put(key, id);
+            return id;
+        }
+
+        private int profileId(TimeProfile profile) throws SQLException {
+            String key = profile.encode();
+            Integer id = profileIds.get(key);
+            if (id == null && lookupExisting) {
+                id = find(findProfile, key);
+            }
+            if (id == null) {
+                insertProfile.setString(1, key);
+                insertProfile.executeUpdate();
+                id = lastInsertId();
+                newProfiles++;
+            }
+            profileIds.put(key, id);
+            return id;
+        }
+
+        private Integer find(PreparedStatement stmt, String key) throws SQLException {
+            stmt.setString(1, key);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : null;
+            }
+        }
+
+        private int lastInsertId() throws SQLException {
+            try (ResultSet rs = lastId.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+
+        void flush() throws SQLException {
+            if (pendingSchedules > 0) {
+                insertSchedule.executeBatch();
+                pendingSchedules = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            for (PreparedStatement stmt : List.of(findPattern, insertPattern, insertPatternStop,
+                                                  findProfile, insertProfile, insertSchedule, lastId)) {
+                stmt.close();
+            }
+        }
+    }
+
+    // ===== Reads =====
+
+    /**
+     * Stream all stop times ordered by trip and sequence without materializing the full table
+     */
+    public void forEachOrdered(Consumer<StopTime> consumer) throws SQLException {
+        Map<Integer, StopPattern> patterns = indexPatterns(loadPatterns());
+        Map<Integer, TimeProfile> profiles = indexProfiles(loadProfiles());
+        String sql = "SELECT trip_id, pattern_id, profile_id, start_time FROM trip_schedules ORDER BY trip_id";
+
+        dbManager.executeQuery(sql, rs -> {
             while (rs.next()) {
-                stopTimes.add(mapResultSetToStopTime(rs));
+                StopPattern pattern = patterns.get(rs.getInt("pattern_id"));
+                TimeProfile profile = profiles.get(rs.getInt("profile_id"));
+                if (pattern != null && profile != null) {
+                    expandTrip(rs.getString("trip_id"), pattern, profile, rs.getInt("start_time")).forEach(consumer);
+                }
             }
-            return stopTimes;
-        }, tripId);
+            return null;
+        });
+    }
+
+    /**
+     * Find stop times by trip ID
+     */
+    public List<StopTime> findByTrip(String tripId) throws SQLException {
+        String sql = SCHEDULE_COLUMNS + "WHERE t.trip_id = ?";
+
+        return dbManager.executeQuery(sql, this::mapTrips, tripId);
+    }
+
+    /**
+     * Find the stop times of several trips in one query, ordered by trip and sequence
+     */
+    public List<StopTime> findByTrips(Collection<String> tripIds) throws SQLException {
+        if (tripIds == null || tripIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(tripIds.size(), "?"));
+        String sql = SCHEDULE_COLUMNS + "WHERE t.trip_id IN (" + placeholders + ") ORDER BY t.trip_id";
+
+        return dbManager.executeQuery(sql, this::mapTrips, tripIds.toArray());
     }
 
     /**
-     * Find stop times by stop ID
+     * Find stop times by stop ID, ordered by arrival time
      */
     public List<StopTime> findByStop(String stopId) throws SQLException {
-        String sql = "SELECT * FROM stop_times WHERE stop_id = ? ORDER BY arrival_time";
+        String sql = "SELECT ps.position, t.trip_id, t.start_time, p.pattern_id, p.stops, f.profile_id, f.offsets " +
+                    "FROM pattern_stops ps " +
+                    "JOIN trip_schedules t ON t.pattern_id = ps.pattern_id " +
+                    "JOIN stop_patterns p ON p.pattern_id = ps.pattern_id " +
+                    "JOIN time_profiles f ON f.profile_id = t.profile_id " +
+                    "WHERE ps.stop_id = ?";
 
-        return dbManager.executeQuery(sql, rs -> {
-            List<StopTime> stopTimes = new ArrayList<>();
+        List<StopTime> stopTimes = dbManager.executeQuery(sql, rs -> {
+            Map<Integer, StopPattern> patterns = new HashMap<>();
+            Map<Integer, TimeProfile> profiles = new HashMap<>();
+            List<StopTime> rows = new ArrayList<>();
             while (rs.next()) {
-                stopTimes.add(mapResultSetToStopTime(rs));
+                StopPattern pattern = patterns.computeIfAbsent(rs.getInt("pattern_id"), id -> decodePattern(id, rs));
+                TimeProfile profile = profiles.computeIfAbsent(rs.getInt("profile_id"), id -> decodeProfile(id, rs));
+                rows.add(pattern.expand(rs.getInt("position"), rs.getString("trip_id"), SymbolTable.UNKNOWN,
+                                        profile, rs.getInt("start_time")));
             }
-            return stopTimes;
+            return rows;
         }, stopId);
+
+        stopTimes.sort(Comparator.comparing(StopTime::getArrivalTime, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return stopTimes;
     }
 
     /**
      * Find all stop times (careful: can be millions of records!)
      */
     public List<StopTime> findAll() throws SQLException {
-        String sql = "SELECT * FROM stop_times ORDER BY trip_id, stop_sequence";
+        List<StopTime> stopTimes = new ArrayList<>();
+        forEachOrdered(stopTimes::add);
+        return stopTimes;
+    }
+
+    /**
+     * All stop patterns, for the in-memory timetable
+     */
+    public List<StopPattern> loadPatterns() throws SQLException {
+        return dbManager.executeQuery("SELECT pattern_id, stops FROM stop_patterns", rs -> {
+            List<StopPattern> patterns = new ArrayList<>();
+            while (rs.next()) {
+                patterns.add(StopPattern.decode(rs.getInt("pattern_id"), rs.getString("stops")));
+            }
+            return patterns;
+        });
+    }
+
+    /**
+     * Distinct stop patterns run by the trips of a route, first direction first
+     */
+    public List<StopPattern> findPatternsByRoute(String routeId) throws SQLException {
+        String sql = "SELECT p.pattern_id, p.stops, MIN(tr.direction_id) AS direction " +
+                    "FROM trips tr " +
+                    "JOIN trip_schedules t ON t.trip_id = tr.trip_id " +
+                    "JOIN stop_patterns p ON p.pattern_id = t.pattern_id " +
+                    "WHERE tr.route_id = ? " +
+                    "GROUP BY p.pattern_id ORDER BY direction, p.pattern_id";
 
         return dbManager.executeQuery(sql, rs -> {
-            List<StopTime> stopTimes = new ArrayList<>();
+            List<StopPattern> patterns = new ArrayList<>();
+            while (rs.next()) {
+                patterns.add(StopPattern.decode(rs.getInt("pattern_id"), rs.getString("stops")));
+            }
+            return patterns;
+        }, routeId);
+    }
+
+    /**
+     * Trip of a route with the most stops, null if the route has no stop times
+     */
+    public String findLongestTripOfRoute(String routeId) throws SQLException {
+        String sql = "SELECT tr.trip_id FROM trips tr " +
+                    "JOIN trip_schedules t ON t.trip_id = tr.trip_id " +
+                    "JOIN stop_patterns p ON p.pattern_id = t.pattern_id " +
+                    "WHERE tr.route_id = ? " +
+                    "ORDER BY p.stop_count DESC, tr.direction_id, tr.trip_headsign, tr.trip_id LIMIT 1";
+
+        return dbManager.executeQuery(sql, rs -> rs.next() ? rs.getString(1) : null, routeId);
+    }
+
+    /**
+     * All time profiles, for the in-memory timetable
+     */
+    public List<TimeProfile> loadProfiles() throws SQLException {
+        return dbManager.executeQuery("SELECT profile_id, offsets FROM time_profiles", rs -> {
+            List<TimeProfile> profiles = new ArrayList<>();
             while (rs.next()) {
-                stopTimes.add(mapResultSetToStopTime(rs));
+                profiles.add(TimeProfile.decode(rs.getInt("profile_id"), rs.getString("offsets")));
             }
-            return stopTimes;
+            return profiles;
+        });
+    }
+
+    /**
+     * All trip schedules, for the in-memory timetable
+     */
+    public List<TripSchedule> loadSchedules() throws SQLException {
+        String sql = "SELECT trip_id, pattern_id, profile_id, start_time FROM trip_schedules";
+
+        return dbManager.executeQuery(sql, rs -> {
+            List<TripSchedule> schedules = new ArrayList<>();
+            while (rs.next()) {
+                schedules.add(new TripSchedule(rs.getString("trip_id"), rs.getInt("pattern_id"),
+                                               rs.getInt("profile_id"), rs.getInt("start_time")));
+            }
+            return schedules;
         });
     }
 
@@ -125,15 +437,16 @@ public class StopTimeDAO {
      * Delete stop times by trip ID
      */
     public void deleteByTrip(String tripId) throws SQLException {
-        String sql = "DELETE FROM stop_times WHERE trip_id = ?";
+        String sql = "DELETE FROM trip_schedules WHERE trip_id = ?";
         dbManager.executeUpdate(sql, tripId);
     }
 
     /**
-     * Count total stop times
+     * Count total stop times (rows the compressed form stands for)
      */
     public int count() throws SQLException {
-        String sql = "SELECT COUNT(*) FROM stop_times";
+        String sql = "SELECT COALESCE(SUM(p.stop_count), 0) FROM trip_schedules t " +
+                    "JOIN stop_patterns p ON p.pattern_id = t.pattern_id";
         return dbManager.executeQuery(sql, rs -> {
             if (rs.next()) {
                 return rs.getInt(1);
@@ -146,11 +459,134 @@ public class StopTimeDAO {
      * Delete all stop times
      */
     public void deleteAll() throws SQLException {
-        dbManager.executeUpdate("DELETE FROM stop_times");
+        dbManager.executeInTransaction(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DELETE FROM trip_schedules");
+                stmt.execute("DELETE FROM pattern_stops");
+                stmt.execute("DELETE FROM stop_patterns");
+                stmt.execute("DELETE FROM time_profiles");
+            }
+            return null;
+        });
+    }
+
+    // ===== Legacy table =====
+
+    /**
+     * Whether the database still has the stop_times table of the format before trip patterns
+     */
+    public boolean hasLegacyTable() throws SQLException {
+        String sql = "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = 'stop_times'";
+        Boolean legacy = dbManager.executeQuery(sql, rs -> rs.next() && rs.getInt(1) > 0);
+        return legacy;
+    }
+
+    /**
+     * Convert the stop_times table of a database created before the trip-pattern form,
+     * then drop it, in one transaction (the table is left untouched if this fails).
+     * Trips already stored in trip-pattern form keep their rows. Progress is reported
+     * in percent. Returns the number of rows converted (0 if there was no such table).
+     */
+    public int migrateLegacyTable(IntConsumer progress) throws SQLException {
+        if (!hasLegacyTable()) {
+            return 0;
+        }
+
+        int total = dbManager.executeQuery("SELECT COUNT(*) FROM stop_times", rs -> rs.next() ? rs.getInt(1) : 0);
+        System.out.printf("🗜️ Converting %,d stop_times rows to trip patterns...%n", total);
+        long startTime = System.currentTimeMillis();
+        progress.accept(0);
+        int converted = dbManager.executeInTransaction(conn -> {
+            String sql = "SELECT * FROM stop_times WHERE trip_id NOT IN (SELECT trip_id FROM trip_schedules) " +
+                        "ORDER BY trip_id, stop_sequence";
+            int rows = 0;
+            try (PatternWriter writer = new PatternWriter(conn, true);
+                 Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                String currentTrip = null;
+                List<StopTime> tripRows = new ArrayList<>();
+                while (rs.next()) {
+                    StopTime stopTime = mapResultSetToStopTime(rs);
+                    if (!stopTime.getTripId().equals(currentTrip) && !tripRows.isEmpty()) {
+                        writer.write(currentTrip, tripRows);
+                        tripRows = new ArrayList<>();
+                    }
+                    currentTrip = stopTime.getTripId();
+                    tripRows.add(stopTime);
+
+                    rows++;
+                    if (rows % 50000 == 0) {
+                        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+                        System.out.printf("   Converted %,d / %,d stop_times (%.0f/sec)%n", rows, total, rows * 1000.0 / elapsed);
+                        progress.accept((int) (rows * 100L / Math.max(1, total)));
+                    }
+                }
+                if (!tripRows.isEmpty()) {
+                    writer.write(currentTrip, tripRows);
+                }
+                writer.flush();
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP TABLE stop_times");
+            }
+            return rows;
+        });
+        progress.accept(100);
+
+        System.out.printf("✅ Converted %,d stop_times rows in %,dms%n", converted, System.currentTimeMillis() - startTime);
+        return converted;
+    }
+
+    // ===== Mapping =====
+
+    private List<StopTime> mapTrips(ResultSet rs) throws SQLException {
+        List<StopTime> stopTimes = new ArrayList<>();
+        while (rs.next()) {
+            StopPattern pattern = StopPattern.decode(rs.getInt("pattern_id"), rs.getString("stops"));
+            TimeProfile profile = TimeProfile.decode(rs.getInt("profile_id"), rs.getString("offsets"));
+            stopTimes.addAll(expandTrip(rs.getString("trip_id"), pattern, profile, rs.getInt("start_time")));
+        }
+        return stopTimes;
+    }
+
+    private static List<StopTime> expandTrip(String tripId, StopPattern pattern, TimeProfile profile, int startTime) {
+        List<StopTime> rows = new ArrayList<>(pattern.size());
+        for (int i = 0; i < pattern.size() && i < profile.size(); i++) {
+            rows.add(pattern.expand(i, tripId, SymbolTable.UNKNOWN, profile, startTime));
+        }
+        return rows;
+    }
+
+    private static StopPattern decodePattern(int id, ResultSet rs) {
+        try {
+            return StopPattern.decode(id, rs.getString("stops"));
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static TimeProfile decodeProfile(int id, ResultSet rs) {
+        try {
+            return TimeProfile.decode(id, rs.getString("offsets"));
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<Integer, StopPattern> indexPatterns(List<StopPattern> patterns) {
+        Map<Integer, StopPattern> byId = new HashMap<>(patterns.size() * 2);
+        patterns.forEach(pattern -> byId.put(pattern.getPatternId(), pattern));
+        return byId;
+    }
+
+    private static Map<Integer, TimeProfile> indexProfiles(List<TimeProfile> profiles) {
+        Map<Integer, TimeProfile> byId = new HashMap<>(profiles.size() * 2);
+        profiles.forEach(profile -> byId.put(profile.getProfileId(), profile));
+        return byId;
     }
 
     /**
-     * Map ResultSet to StopTime object
+     * Map a row of the legacy stop_times table to a StopTime object
      */
     private StopTime mapResultSetToStopTime(ResultSet rs) throws SQLException {
         StopTime stopTime = new StopTime();
@@ -0,0 +1,67 @@
+package com.rometransit.data.dao;
+
+import com.rometransit.data.database.SQLiteDatabaseManager;
+import com.rometransit.model.symbol.SymbolTable;
+
+import java.sql.*;
+
+/**
+ * Data Access Object for the symbol table of the static feed (id_symbols table)
+ */
+public class SymbolDAO {
+    private final SQLiteDatabaseManager dbManager;
+
+    public SymbolDAO() {
+        this(SQLiteDatabaseManager.getInstance());
+    }
+
+    public SymbolDAO(SQLiteDatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    /**
+     * Load the stored symbols (empty table if none were persisted yet)
+     */
+    public SymbolTable loadAll() throws SQLException {
+        String sql = "SELECT kind, id, symbol FROM id_symbols ORDER BY kind, id";
+
+        return dbManager.executeQuery(sql, rs -> {
+            SymbolTable table = new SymbolTable();
+            while (rs.next()) {
+                table.restore(SymbolTable.Kind.fromCode(rs.getInt("kind")), rs.getInt("id"), rs.getString("symbol"));
+            }
+            return table;
+        });
+    }
+
+    /**
+     * Insert the symbols assigned after the given sizes (SymbolTable.sizes()) on a
+     * caller-managed connection; existing rows are never rewritten
+     */
+    public void insertSince(Connection conn, SymbolTable table, int[] persistedSizes) throws SQLException {
+        String sql = "INSERT OR IGNORE INTO id_symbols (kind, id, symbol) VALUES (?, ?, ?)";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (SymbolTable.Kind kind : SymbolTable.Kind.values()) {
+                for (int id = persistedSizes[kind.ordinal()]; id < table.size(kind); id++) {
+                    stmt.setInt(1, kind.code);
+                    stmt.setInt(2, id);
+                    stmt.setString(3, table.name(kind, id));
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    public int count() throws SQLException {
+        return dbManager.executeQuery("SELECT COUNT(*) FROM id_symbols", rs -> rs.next() ? rs.getInt(1) : 0);
+    }
+
+    /**
+     * Delete all symbols
+     */
+    public void deleteAll() throws SQLException {
+        dbManager.executeUpdate("DELETE FROM id_symbols");
+    }
+}
@@ -5,6 +5,7 @@ import com.rometransit.model.entity.Trip;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,7 +16,11 @@ public class TripDAO {
     private final SQLiteDatabaseManager dbManager;
 
     public TripDAO() {
-        this.dbManager = SQLiteDatabaseManager.getInstance();
+        this(SQLiteDatabaseManager.getInstance());
+    }
+
+    public TripDAO(SQLiteDatabaseManager dbManager) {
+        this.dbManager = dbManager;
     }
 
     /**
@@ -57,17 +62,7 @@ public class TripDAO {
         dbManager.executeBatch(sql, new SQLiteDatabaseManager.BatchParameterSetter() {
             @Override
             public void setValues(PreparedStatement stmt, int index) throws SQLException {
-                Trip trip = trips.get(index);
-                stmt.setString(1, trip.getTripId());
-                stmt.setString(2, trip.getRouteId());
-                stmt.setString(3, trip.getServiceId());
-                stmt.setString(4, trip.getTripHeadsign());
-                stmt.setString(5, trip.getTripShortName());
-                stmt.setInt(6, trip.getDirectionId());
-                stmt.setString(7, trip.getBlockId());
-                stmt.setString(8, trip.getShapeId());
-                stmt.setInt(9, trip.getWheelchairAccessible());
-                stmt.setInt(10, trip.getBikesAllowed());
+                bindTripStatement(stmt, 0, trips.get(index));
             }
 
             @Override
@@ -77,6 +72,72 @@ public class TripDAO {
         });
     }
 
+    /**
+     * Bulk insert into an empty table on a caller-managed connection.
+     * Used by the initial import fast path: multi-row VALUES statements, no conflict handling.
+     */
+    public void bulkInsert(Connection conn, List<Trip> trips) throws SQLException {
+        if (trips == null || trips.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO trips " +
+                    "(trip_id, route_id, service_id, trip_headsign, trip_short_name, " +
+                    "direction_id, block_id, shape_id, wheelchair_accessible, bikes_allowed)";
+
+        dbManager.executeMultiRowInsert(conn, sql, 10, trips, this::bindTripStatement);
+    }
+
+    /**
+     * Insert or update trips on a caller-managed connection.
+     * Used by delta imports so that several DAOs can share one bounded transaction.
+     */
+    public void upsertBatch(Connection conn, List<Trip> trips) throws SQLException {
+        if (trips == null || trips.isEmpty()) {
+            return;
+        }
+
+        String sql = "INSERT INTO trips " +
+                    "(trip_id, route_id, service_id, trip_headsign, trip_short_name, " +
+                    "direction_id, block_id, shape_id, wheelchair_accessible, bikes_allowed) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT(trip_id) DO UPDATE SET " +
+                    "route_id = excluded.route_id, " +
+                    "service_id = excluded.service_id, " +
+                    "trip_headsign = excluded.trip_headsign, " +
+                    "trip_short_name = excluded.trip_short_name, " +
+                    "direction_id = excluded.direction_id, " +
+                    "block_id = excluded.block_id, " +
+                    "shape_id = excluded.shape_id, " +
+                    "wheelchair_accessible = excluded.wheelchair_accessible, " +
+                    "bikes_allowed = excluded.bikes_allowed";
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Trip trip : trips) {
+                bindTripStatement(stmt, 0, trip);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Delete trips by ID on a caller-managed connection
+     */
+    public void deleteByIds(Connection conn, Collection<String> ids) throws SQLException {
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM trips WHERE trip_id = ?")) {
+            for (String id : ids) {
+                stmt.setString(1, id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
     /**
      * Find trip by ID
      */
@@ -168,6 +229,23 @@ public class TripDAO {
         dbManager.executeUpdate("DELETE FROM trips");
     }
 
+    /**
+     * Bind trip columns in table order (trip_id first),
+     * starting after the given parameter offset (multi-row inserts bind several rows per statement)
+     */
+    private void bindTripStatement(PreparedStatement stmt, int offset, Trip trip) throws SQLException {
+        stmt.setString(offset + 1, trip.getTripId());
+        stmt.setString(offset + 2, trip.getRouteId());
+        stmt.setString(offset + 3, trip.getServiceId());
+        stmt.setString(offset + 4, trip.getTripHeadsign());
+        stmt.setString(offset + 5, trip.getTripShortName());
+        stmt.setInt(offset + 6, trip.getDirectionId());
+        stmt.setString(offset + 7, trip.getBlockId());
+        stmt.setString(offset + 8, trip.getShapeId());
+        stmt.setInt(offset + 9, trip.getWheelchairAccessible());
+        stmt.setInt(offset + 10, trip.getBikesAllowed());
+    }
+
     /**
      * Map ResultSet to Trip object
      */
@@ -7,6 +7,7 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -16,7 +17,11 @@ public class TripUpdateDAO {
     private final SQLiteDatabaseManager dbManager;
 
     public TripUpdateDAO() {
-        this.dbManager = SQLiteDatabaseManager.getInstance();
+        this(SQLiteDatabaseManager.getInstance());
+    }
+
+    public TripUpdateDAO(SQLiteDatabaseManager dbManager) {
+        this.dbManager = dbManager;
     }
 
     /**
@@ -257,6 +262,27 @@ public class TripUpdateDAO {
         dbManager.executeUpdate("DELETE FROM trip_updates WHERE last_updated < ?", cutoff);
     }
 
+    /**
+     * Delete trip updates that reference static rows about to be removed by a delta import.
+     * The column must be one of trip_id, route_id or stop_id.
+     */
+    public void deleteByReferences(Connection conn, String column, Collection<String> ids) throws SQLException {
+        if (!column.equals("trip_id") && !column.equals("route_id") && !column.equals("stop_id")) {
+            throw new IllegalArgumentException("Unsupported reference column: " + column);
+        }
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM trip_updates WHERE " + column + " = ?")) {
+            for (String id : ids) {
+                stmt.setString(1, id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
     /**
      * Delete all trip updates
      */
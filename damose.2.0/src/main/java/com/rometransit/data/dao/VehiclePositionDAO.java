@@ -8,6 +8,7 @@ import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,7 +19,11 @@ public class VehiclePositionDAO {
     private final SQLiteDatabaseManager dbManager;
 
     public VehiclePositionDAO() {
-        this.dbManager = SQLiteDatabaseManager.getInstance();
+        this(SQLiteDatabaseManager.getInstance());
+    }
+
+    public VehiclePositionDAO(SQLiteDatabaseManager dbManager) {
+        this.dbManager = dbManager;
     }
 
     /**
@@ -239,6 +244,29 @@ public class VehiclePositionDAO {
         dbManager.executeUpdate("DELETE FROM vehicle_positions WHERE last_updated < ?", cutoff);
     }
 
+    /**
+     * Set references to static rows about to be removed by a delta import to NULL,
+     * consistent with how unknown ids are stored on insert.
+     * The column must be route_id or trip_id.
+     */
+    public void clearReferences(Connection conn, String column, Collection<String> ids) throws SQLException {
+        if (!column.equals("route_id") && !column.equals("trip_id")) {
+            throw new IllegalArgumentException("Unsupported reference column: " + column);
+        }
+        if (ids == null || ids.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE vehicle_positions SET " + column + " = NULL WHERE " + column + " = ?")) {
+            for (String id : ids) {
+                stmt.setString(1, id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
     /**
      * Delete all vehicle positions
      */
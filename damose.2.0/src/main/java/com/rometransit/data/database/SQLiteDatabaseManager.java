@@ -1,5 +1,10 @@
 package com.rometransit.data.database;
 
+import com.rometransit.util.diagnostics.SqliteTransactionEvent;
+import com.rometransit.util.metrics.Counter;
+import com.rometransit.util.metrics.LatencyHistogram;
+import com.rometransit.util.metrics.MetricsRegistry;
+
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -7,6 +12,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.*;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -22,24 +28,35 @@ public class SQLiteDatabaseManager {
 
     private final String databasePath;
     private final BlockingQueue<Connection> connectionPool;
+    private final int poolSize;
     private static final int POOL_SIZE = 10;
     private static final int CONNECTION_TIMEOUT_SECONDS = 30;
+    private static final int MULTI_ROW_INSERT_ROWS = 100;
+    private static final int MAX_BOUND_PARAMETERS = 32766; // SQLITE_MAX_VARIABLE_NUMBER since 3.32
 
     private volatile boolean initialized = false;
 
+    // Pool metrics
+    private static final LatencyHistogram POOL_WAIT_LATENCY = MetricsRegistry.getInstance().histogram("sqlite.pool.wait");
+    private static final LatencyHistogram TRANSACTION_LATENCY = MetricsRegistry.getInstance().histogram("sqlite.transaction");
+    private static final Counter POOL_TIMEOUTS = MetricsRegistry.getInstance().counter("sqlite.pool.timeouts");
+
     private SQLiteDatabaseManager() {
         // Database path: ~/.damose/damose.db
-        String userHome = System.getProperty("user.home");
-        Path damoseDir = Paths.get(userHome, ".damose");
+        this(Paths.get(System.getProperty("user.home"), ".damose", "damose.db"), POOL_SIZE);
+        MetricsRegistry.getInstance().gauge("sqlite.pool.idle", connectionPool::size);
+    }
 
+    private SQLiteDatabaseManager(Path databaseFile, int poolSize) {
         try {
-            Files.createDirectories(damoseDir);
+            Files.createDirectories(databaseFile.toAbsolutePath().getParent());
         } catch (Exception e) {
-            System.err.println("⚠️  Failed to create .damose directory: " + e.getMessage());
+            System.err.println("⚠️  Failed to create database directory: " + e.getMessage());
         }
 
-        this.databasePath = damoseDir.resolve("damose.db").toString();
-        this.connectionPool = new ArrayBlockingQueue<>(POOL_SIZE);
+        this.databasePath = databaseFile.toString();
+        this.poolSize = poolSize;
+        this.connectionPool = new ArrayBlockingQueue<>(poolSize);
 
         System.out.println("📊 SQLite Database Manager initializing...");
         System.out.println("   Database location: " + this.databasePath);
@@ -58,6 +75,14 @@ public class SQLiteDatabaseManager {
         return instance;
     }
 
+    /**
+     * Separate database with the same schema, e.g. one per extra GTFS feed.
+     * The caller owns it and must call shutdown().
+     */
+    public static SQLiteDatabaseManager open(Path databaseFile, int poolSize) {
+        return new SQLiteDatabaseManager(databaseFile, poolSize);
+    }
+
     /**
      * Initialize database and connection pool
      */
@@ -67,7 +92,7 @@ public class SQLiteDatabaseManager {
             Class.forName("org.sqlite.JDBC");
 
             // Create initial connections
-            for (int i = 0; i < POOL_SIZE; i++) {
+            for (int i = 0; i < poolSize; i++) {
                 Connection conn = createConnection();
                 connectionPool.offer(conn);
             }
@@ -77,7 +102,7 @@ public class SQLiteDatabaseManager {
 
             initialized = true;
             System.out.println("✅ SQLite Database initialized successfully");
-            System.out.println("   Connection pool size: " + POOL_SIZE);
+            System.out.println("   Connection pool size: " + poolSize);
 
         } catch (Exception e) {
             System.err.println("❌ Failed to initialize SQLite database: " + e.getMessage());
@@ -113,9 +138,12 @@ public class SQLiteDatabaseManager {
      */
     public Connection getConnection() throws SQLException {
         try {
+            long waitStart = System.nanoTime();
             Connection conn = connectionPool.poll(CONNECTION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            POOL_WAIT_LATENCY.recordSince(waitStart);
 
             if (conn == null) {
+                POOL_TIMEOUTS.increment();
                 System.err.println("⚠️  Connection pool timeout, creating new connection");
                 return createConnection();
             }
@@ -262,11 +290,55 @@ public class SQLiteDatabaseManager {
         }
     }
 
+    /**
+     * Insert rows using multi-row VALUES statements on a caller-managed connection.
+     * insertPrefix is "INSERT INTO table (columns)"; the binder sets one row's columns
+     * starting after the given parameter offset. Returns the number of rows inserted.
+     */
+    public <T> int executeMultiRowInsert(Connection conn, String insertPrefix, int columnCount,
+                                         List<T> rows, RowBinder<T> binder) throws SQLException {
+        if (rows == null || rows.isEmpty()) {
+            return 0;
+        }
+
+        int rowsPerStatement = Math.max(1, Math.min(MULTI_ROW_INSERT_ROWS, MAX_BOUND_PARAMETERS / columnCount));
+        int fullChunks = rows.size() / rowsPerStatement;
+        int remainder = rows.size() % rowsPerStatement;
+        int inserted = 0;
+
+        if (fullChunks > 0) {
+            try (PreparedStatement stmt = conn.prepareStatement(buildMultiRowInsert(insertPrefix, columnCount, rowsPerStatement))) {
+                for (int chunk = 0; chunk < fullChunks; chunk++) {
+                    int base = chunk * rowsPerStatement;
+                    for (int i = 0; i < rowsPerStatement; i++) {
+                        binder.bind(stmt, i * columnCount, rows.get(base + i));
+                    }
+                    inserted += stmt.executeUpdate();
+                }
+            }
+        }
+
+        if (remainder > 0) {
+            try (PreparedStatement stmt = conn.prepareStatement(buildMultiRowInsert(insertPrefix, columnCount, remainder))) {
+                int base = fullChunks * rowsPerStatement;
+                for (int i = 0; i < remainder; i++) {
+                    binder.bind(stmt, i * columnCount, rows.get(base + i));
+                }
+                inserted += stmt.executeUpdate();
+            }
+        }
+
+        return inserted;
+    }
+
     /**
      * Execute within a transaction
      */
     public <T> T executeInTransaction(TransactionCallback<T> callback) throws SQLException {
         Connection conn = null;
+        long start = System.nanoTime();
+        SqliteTransactionEvent event = new SqliteTransactionEvent();
+        event.begin();
 
         try {
             conn = getConnection();
@@ -275,6 +347,8 @@ public class SQLiteDatabaseManager {
             T result = callback.execute(conn);
 
             conn.commit();
+            TRANSACTION_LATENCY.recordSince(start);
+            event.committed = true;
             return result;
 
         } catch (Exception e) {
@@ -295,6 +369,7 @@ public class SQLiteDatabaseManager {
                 }
             }
             releaseConnection(conn);
+            event.commit();
         }
     }
 
@@ -346,12 +421,17 @@ public class SQLiteDatabaseManager {
             try (Statement stmt = conn.createStatement()) {
                 stmt.execute("DELETE FROM trip_updates;");
                 stmt.execute("DELETE FROM vehicle_positions;");
-                stmt.execute("DELETE FROM stop_times;");
+                stmt.execute("DELETE FROM trip_schedules;");
+                stmt.execute("DELETE FROM pattern_stops;");
+                stmt.execute("DELETE FROM stop_patterns;");
+                stmt.execute("DELETE FROM time_profiles;");
                 stmt.execute("DELETE FROM shapes;");
                 stmt.execute("DELETE FROM trips;");
                 stmt.execute("DELETE FROM stops;");
                 stmt.execute("DELETE FROM routes;");
                 stmt.execute("DELETE FROM agencies;");
+                stmt.execute("DELETE FROM feed_row_hashes;");
+                stmt.execute("DELETE FROM id_symbols;");
 
                 // Keep metadata
                 stmt.execute("DELETE FROM metadata WHERE key NOT IN ('version', 'schema_version', 'created_at');");
@@ -407,9 +487,16 @@ public class SQLiteDatabaseManager {
                 rs = stmt.executeQuery("SELECT COUNT(*) FROM trips;");
                 if (rs.next()) stats.tripsCount = rs.getInt(1);
 
-                rs = stmt.executeQuery("SELECT COUNT(*) FROM stop_times;");
+                rs = stmt.executeQuery("SELECT COALESCE(SUM(p.stop_count), 0) FROM trip_schedules t " +
+                                       "JOIN stop_patterns p ON p.pattern_id = t.pattern_id;");
                 if (rs.next()) stats.stopTimesCount = rs.getInt(1);
 
+                rs = stmt.executeQuery("SELECT COUNT(*) FROM stop_patterns;");
+                if (rs.next()) stats.stopPatternsCount = rs.getInt(1);
+
+                rs = stmt.executeQuery("SELECT COUNT(*) FROM time_profiles;");
+                if (rs.next()) stats.timeProfilesCount = rs.getInt(1);
+
                 rs = stmt.executeQuery("SELECT COUNT(*) FROM shapes;");
                 if (rs.next()) stats.shapesCount = rs.getInt(1);
 
@@ -465,6 +552,24 @@ public class SQLiteDatabaseManager {
 
     // ===== Helper Methods =====
 
+    private static String buildMultiRowInsert(String insertPrefix, int columnCount, int rowCount) {
+        StringBuilder row = new StringBuilder("(");
+        for (int i = 0; i < columnCount; i++) {
+            row.append(i == 0 ? "?" : ", ?");
+        }
+        row.append(")");
+
+        StringBuilder sql = new StringBuilder(insertPrefix.length() + rowCount * (row.length() + 2) + 8);
+        sql.append(insertPrefix).append(" VALUES ");
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(row);
+        }
+        return sql.toString();
+    }
+
     private void closeQuietly(AutoCloseable resource) {
         if (resource != null) {
             try {
@@ -487,6 +592,11 @@ public class SQLiteDatabaseManager {
         int getBatchSize();
     }
 
+    @FunctionalInterface
+    public interface RowBinder<T> {
+        void bind(PreparedStatement stmt, int parameterOffset, T row) throws SQLException;
+    }
+
     @FunctionalInterface
     public interface TransactionCallback<T> {
         T execute(Connection conn) throws Exception;
@@ -500,6 +610,8 @@ public class SQLiteDatabaseManager {
         public int stopsCount;
         public int tripsCount;
         public int stopTimesCount;
+        public int stopPatternsCount;
+        public int timeProfilesCount;
         public int shapesCount;
         public int vehiclePositionsCount;
         public int tripUpdatesCount;
@@ -513,13 +625,13 @@ public class SQLiteDatabaseManager {
                 "  Routes: %,d\n" +
                 "  Stops: %,d\n" +
                 "  Trips: %,d\n" +
-                "  Stop Times: %,d\n" +
+                "  Stop Times: %,d (%,d patterns, %,d time profiles)\n" +
                 "  Shapes: %,d\n" +
                 "  Vehicle Positions: %,d\n" +
                 "  Trip Updates: %,d\n" +
                 "  Database Size: %.2f MB",
                 agenciesCount, routesCount, stopsCount, tripsCount,
-                stopTimesCount, shapesCount, vehiclePositionsCount,
+                stopTimesCount, stopPatternsCount, timeProfilesCount, shapesCount, vehiclePositionsCount,
                 tripUpdatesCount, databaseSizeBytes / (1024.0 * 1024.0)
             );
         }
@@ -0,0 +1,239 @@
+package com.rometransit.data.repository;
+
+import com.rometransit.data.dao.*;
+import com.rometransit.data.database.SQLiteDatabaseManager;
+import com.rometransit.model.entity.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fast path for the initial import of a GTFS feed into an empty database.
+ *
+ * For the duration of the load the static tables' secondary indexes are dropped and
+ * rebuilt afterwards, foreign key enforcement and fsyncs are relaxed and WAL
+ * auto-checkpointing is paused. Rows are written with typed setters through multi-row
+ * VALUES statements, one transaction per table. Settings are always restored, and
+ * foreign keys are verified once at the end with PRAGMA foreign_key_check.
+ */
+public class GTFSBulkLoader {
+
+    private static final String[] STATIC_TABLES = {"agencies", "routes", "stops", "trips",
+        "stop_patterns", "pattern_stops", "time_profiles", "trip_schedules", "shapes"};
+
+    private final SQLiteDatabaseManager dbManager;
+    private final AgencyDAO agencyDAO;
+    private final RouteDAO routeDAO;
+    private final StopDAO stopDAO;
+    private final TripDAO tripDAO;
+    private final StopTimeDAO stopTimeDAO;
+    private final ShapeDAO shapeDAO;
+
+    GTFSBulkLoader(SQLiteDatabaseManager dbManager, AgencyDAO agencyDAO, RouteDAO routeDAO, StopDAO stopDAO,
+                   TripDAO tripDAO, StopTimeDAO stopTimeDAO, ShapeDAO shapeDAO) {
+        this.dbManager = dbManager;
+        this.agencyDAO = agencyDAO;
+        this.routeDAO = routeDAO;
+        this.stopDAO = stopDAO;
+        this.tripDAO = tripDAO;
+        this.stopTimeDAO = stopTimeDAO;
+        this.shapeDAO = shapeDAO;
+    }
+
+    /**
+     * Load a complete feed into empty static tables
+     */
+    public BulkLoadReport load(List<Agency> agencies, List<Route> routes, List<Stop> stops,
+                               List<Trip> trips, List<StopTime> stopTimes, List<Shape> shapes) throws SQLException {
+        System.out.println("⚡ Bulk-loading GTFS data into empty database...");
+        BulkLoadReport report = new BulkLoadReport();
+        long startTime = System.currentTimeMillis();
+
+        Connection conn = dbManager.getConnection();
+        List<String> droppedIndexes = new ArrayList<>();
+        try {
+            enterBulkMode(conn);
+            droppedIndexes.addAll(dropSecondaryIndexes(conn));
+
+            loadTable(conn, report, "agencies", agencies, rows -> agencyDAO.bulkInsert(conn, rows));
+            loadTable(conn, report, "routes", routes, rows -> routeDAO.bulkInsert(conn, rows));
+            loadTable(conn, report, "stops", stops, rows -> stopDAO.bulkInsert(conn, rows));
+            loadTable(conn, report, "trips", trips, rows -> tripDAO.bulkInsert(conn, rows));
+            loadTable(conn, report, "stop_times", stopTimes, rows -> stopTimeDAO.bulkInsert(conn, rows));
+            loadTable(conn, report, "shapes", shapes, rows -> shapeDAO.bulkInsert(conn, rows));
+        } finally {
+            long indexStart = System.currentTimeMillis();
+            recreateIndexes(conn, droppedIndexes);
+            report.indexRebuildMs = System.currentTimeMillis() - indexStart;
+
+            report.foreignKeyViolations = countForeignKeyViolations(conn);
+            exitBulkMode(conn);
+            dbManager.releaseConnection(conn);
+        }
+
+        report.totalMs = System.currentTimeMillis() - startTime;
+        System.out.println(report);
+        return report;
+    }
+
+    private <T> void loadTable(Connection conn, BulkLoadReport report, String table, List<T> rows,
+                               TableWriter<T> writer) throws SQLException {
+        if (rows == null || rows.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        conn.setAutoCommit(false);
+        try {
+            writer.write(rows);
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw new SQLException("Bulk load failed for table " + table, e);
+        } finally {
+            conn.setAutoCommit(true);
+        }
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        report.tables.put(table, new TableStats(rows.size(), elapsedMs));
+        System.out.printf("   %s: %,d rows in %,dms (%,.0f rows/sec)%n",
+            table, rows.size(), elapsedMs, rows.size() * 1000.0 / elapsedMs);
+    }
+
+    // ===== Load window settings =====
+
+    private void enterBulkMode(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // Must be changed outside a transaction
+            stmt.execute("PRAGMA foreign_keys = OFF;");
+            stmt.execute("PRAGMA synchronous = OFF;");
+            stmt.execute("PRAGMA wal_autocheckpoint = 0;");
+            stmt.execute("PRAGMA cache_size = -65536;"); // 64MB for the load window
+        }
+    }
+
+    private void exitBulkMode(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA foreign_keys = ON;");
+            stmt.execute("PRAGMA synchronous = NORMAL;");
+            stmt.execute("PRAGMA wal_autocheckpoint = 1000;");
+            stmt.execute("PRAGMA cache_size = 10000;");
+            stmt.execute("PRAGMA wal_checkpoint(TRUNCATE);");
+            stmt.execute("ANALYZE;");
+        } catch (SQLException e) {
+            System.err.println("⚠️  Failed to restore settings after bulk load: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drop the explicit indexes of the static tables and return their CREATE statements
+     * (primary keys and automatic indexes are kept)
+     */
+    private List<String> dropSecondaryIndexes(Connection conn) throws SQLException {
+        Map<String, String> indexes = new LinkedHashMap<>();
+        String placeholders = String.join(", ", java.util.Collections.nCopies(STATIC_TABLES.length, "?"));
+        String sql = "SELECT name, sql FROM sqlite_master WHERE type = 'index' AND sql IS NOT NULL " +
+                    "AND tbl_name IN (" + placeholders + ")";
+
+        try (java.sql.PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < STATIC_TABLES.length; i++) {
+                stmt.setString(i + 1, STATIC_TABLES[i]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    indexes.put(rs.getString("name"), rs.getString("sql"));
+                }
+            }
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String name : indexes.keySet()) {
+                stmt.execute("DROP INDEX IF EXISTS " + name + ";");
+            }
+        }
+
+        System.out.println("   Deferred " + indexes.size() + " secondary indexes until after the load");
+        return new ArrayList<>(indexes.values());
+    }
+
+    private void recreateIndexes(Connection conn, List<String> createStatements) {
+        if (createStatements.isEmpty()) {
+            return;
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            for (String create : createStatements) {
+                stmt.execute(create);
+            }
+        } catch (SQLException e) {
+            System.err.println("⚠️  Failed to rebuild indexes after bulk load: " + e.getMessage());
+        }
+    }
+
+    private int countForeignKeyViolations(Connection conn) {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA foreign_key_check;")) {
+            int violations = 0;
+            while (rs.next()) {
+                violations++;
+            }
+            if (violations > 0) {
+                System.err.println("⚠️  Bulk load left " + violations + " rows with dangling foreign keys");
+            }
+            return violations;
+        } catch (SQLException e) {
+            System.err.println("⚠️  Foreign key check failed: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // ===== Helper Types =====
+
+    @FunctionalInterface
+    private interface TableWriter<T> {
+        void write(List<T> rows) throws SQLException;
+    }
+
+    public static class TableStats {
+        public final int rows;
+        public final long elapsedMs;
+
+        TableStats(int rows, long elapsedMs) {
+            this.rows = rows;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public double rowsPerSecond() {
+            return elapsedMs > 0 ? rows * 1000.0 / elapsedMs : rows;
+        }
+    }
+
+    /**
+     * Per-table import throughput of a bulk load
+     */
+    public static class BulkLoadReport {
+        public final Map<String, TableStats> tables = new LinkedHashMap<>();
+        public long indexRebuildMs;
+        public long totalMs;
+        public int foreignKeyViolations;
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("✅ Bulk load completed in ").append(totalMs).append("ms\n");
+            for (Map.Entry<String, TableStats> entry : tables.entrySet()) {
+                TableStats stats = entry.getValue();
+                sb.append(String.format("   %-10s %,10d rows %,8dms %,12.0f rows/sec%n",
+                    entry.getKey(), stats.rows, stats.elapsedMs, stats.rowsPerSecond()));
+            }
+            sb.append(String.format("   Index rebuild: %,dms, foreign key violations: %d",
+                indexRebuildMs, foreignKeyViolations));
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,562 @@
+package com.rometransit.data.repository;
+
+import com.rometransit.data.dao.*;
+import com.rometransit.data.database.SQLiteDatabaseManager;
+import com.rometransit.model.entity.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Differential importer for GTFS static feed refreshes.
+ *
+ * Instead of clearing the database and re-inserting every row, each entity is hashed
+ * (one hash per agency/route/stop/trip row, one per trip for stop_times and one per
+ * shape_id for shapes) and compared with the hashes stored for the previous import.
+ * Only inserts, updates and deletes are applied, in small transactions, so the realtime
+ * writers can interleave their own transactions during a weekly feed refresh.
+ */
+public class GTFSDeltaImporter {
+
+    // Entity names used as keys in feed_row_hashes
+    static final String AGENCY = "agency";
+    static final String ROUTE = "route";
+    static final String STOP = "stop";
+    static final String TRIP = "trip";
+    static final String TRIP_STOP_TIMES = "trip_stop_times";
+    static final String SHAPE = "shape";
+
+    // Bounded transaction sizes: rows for flat entities, groups for stop_times/shapes
+    private static final int ROWS_PER_TRANSACTION = 2000;
+    private static final int GROUPS_PER_TRANSACTION = 200;
+
+    private final SQLiteDatabaseManager dbManager;
+    private final AgencyDAO agencyDAO;
+    private final RouteDAO routeDAO;
+    private final StopDAO stopDAO;
+    private final TripDAO tripDAO;
+    private final StopTimeDAO stopTimeDAO;
+    private final ShapeDAO shapeDAO;
+    private final VehiclePositionDAO vehiclePositionDAO;
+    private final TripUpdateDAO tripUpdateDAO;
+    private final FeedHashDAO feedHashDAO;
+
+    GTFSDeltaImporter(SQLiteDatabaseManager dbManager, AgencyDAO agencyDAO, RouteDAO routeDAO,
+                      StopDAO stopDAO, TripDAO tripDAO, StopTimeDAO stopTimeDAO, ShapeDAO shapeDAO,
+                      VehiclePositionDAO vehiclePositionDAO, TripUpdateDAO tripUpdateDAO,
+                      FeedHashDAO feedHashDAO) {
+        this.dbManager = dbManager;
+        this.agencyDAO = agencyDAO;
+        this.routeDAO = routeDAO;
+        this.stopDAO = stopDAO;
+        this.tripDAO = tripDAO;
+        this.stopTimeDAO = stopTimeDAO;
+        this.shapeDAO = shapeDAO;
+        this.vehiclePositionDAO = vehiclePositionDAO;
+        this.tripUpdateDAO = tripUpdateDAO;
+        this.feedHashDAO = feedHashDAO;
+    }
+
+    /**
+     * Apply a freshly parsed feed against the current database content
+     */
+    public DeltaResult applyDelta(List<Agency> agencies, List<Route> routes, List<Stop> stops,
+                                  List<Trip> trips, List<StopTime> stopTimes, List<Shape> shapes) throws SQLException {
+        System.out.println("🔀 Computing GTFS delta against current database...");
+        long startTime = System.currentTimeMillis();
+        DeltaResult result = new DeltaResult();
+
+        Map<String, Agency> agencyById = indexById(agencies, Agency::getAgencyId);
+        Map<String, Route> routeById = indexById(routes, Route::getRouteId);
+        Map<String, Stop> stopById = indexById(stops, Stop::getStopId);
+        Map<String, Trip> tripById = indexById(trips, Trip::getTripId);
+        Map<String, List<StopTime>> stopTimesByTrip = groupStopTimes(stopTimes);
+        Map<String, List<Shape>> pointsByShape = groupShapes(shapes);
+
+        EntityDiff agencyDiff = diff(AGENCY, hashAll(agencyById, GTFSDeltaImporter::hashAgency));
+        EntityDiff routeDiff = diff(ROUTE, hashAll(routeById, GTFSDeltaImporter::hashRoute));
+        EntityDiff stopDiff = diff(STOP, hashAll(stopById, GTFSDeltaImporter::hashStop));
+        EntityDiff tripDiff = diff(TRIP, hashAll(tripById, GTFSDeltaImporter::hashTrip));
+        EntityDiff stopTimeDiff = diff(TRIP_STOP_TIMES, hashAll(stopTimesByTrip, GTFSDeltaImporter::hashStopTimes));
+        EntityDiff shapeDiff = diff(SHAPE, hashAll(pointsByShape, GTFSDeltaImporter::hashShapePoints));
+
+        System.out.println("   Agencies: " + agencyDiff);
+        System.out.println("   Routes: " + routeDiff);
+        System.out.println("   Stops: " + stopDiff);
+        System.out.println("   Trips: " + tripDiff);
+        System.out.println("   Stop times (per trip): " + stopTimeDiff);
+        System.out.println("   Shapes: " + shapeDiff);
+
+        // Parents first for inserts/updates, so foreign keys are always satisfied
+        result.transactions += upsertRows(AGENCY, agencyDiff, agencyById,
+            (conn, rows) -> agencyDAO.upsertBatch(conn, rows));
+        result.transactions += upsertRows(ROUTE, routeDiff, routeById,
+            (conn, rows) -> routeDAO.upsertBatch(conn, rows));
+        result.transactions += upsertRows(STOP, stopDiff, stopById,
+            (conn, rows) -> stopDAO.upsertBatch(conn, rows));
+        result.transactions += upsertRows(TRIP, tripDiff, tripById,
+            (conn, rows) -> tripDAO.upsertBatch(conn, rows));
+        result.transactions += replaceGroups(SHAPE, shapeDiff, pointsByShape,
+            (conn, keys, rows) -> shapeDAO.replaceByShapes(conn, keys, rows));
+        result.transactions += replaceGroups(TRIP_STOP_TIMES, stopTimeDiff, stopTimesByTrip,
+            (conn, keys, rows) -> stopTimeDAO.replaceByTrips(conn, keys, rows));
+
+        // Children first for deletes
+        result.transactions += deleteKeys(TRIP_STOP_TIMES, stopTimeDiff.deleted,
+            (conn, keys) -> stopTimeDAO.deleteByTrips(conn, keys));
+        result.transactions += deleteKeys(TRIP, tripDiff.deleted, (conn, keys) -> {
+            stopTimeDAO.deleteByTrips(conn, keys);
+            tripUpdateDAO.deleteByReferences(conn, "trip_id", keys);
+            vehiclePositionDAO.clearReferences(conn, "trip_id", keys);
+            tripDAO.deleteByIds(conn, keys);
+        });
+        result.transactions += deleteKeys(SHAPE, shapeDiff.deleted,
+            (conn, keys) -> shapeDAO.deleteByShapes(conn, keys));
+        result.transactions += deleteKeys(STOP, stopDiff.deleted, (conn, keys) -> {
+            tripUpdateDAO.deleteByReferences(conn, "stop_id", keys);
+            stopDAO.deleteByIds(conn, keys);
+        });
+        result.transactions += deleteKeys(ROUTE, routeDiff.deleted, (conn, keys) -> {
+            tripUpdateDAO.deleteByReferences(conn, "route_id", keys);
+            vehiclePositionDAO.clearReferences(conn, "route_id", keys);
+            routeDAO.deleteByIds(conn, keys);
+        });
+        result.transactions += deleteKeys(AGENCY, agencyDiff.deleted,
+            (conn, keys) -> agencyDAO.deleteByIds(conn, keys));
+
+        for (EntityDiff d : List.of(agencyDiff, routeDiff, stopDiff, tripDiff, stopTimeDiff, shapeDiff)) {
+            result.inserted += d.inserted.size();
+            result.updated += d.updated.size();
+            result.deleted += d.deleted.size();
+            result.unchanged += d.unchanged;
+        }
+        result.elapsedMs = System.currentTimeMillis() - startTime;
+
+        System.out.println("✅ GTFS delta applied: " + result);
+        return result;
+    }
+
+    /**
+     * Store the hashes of a feed that was just imported in full, so the next refresh
+     * can be applied as a delta
+     */
+    public void recordBaseline(List<Agency> agencies, List<Route> routes, List<Stop> stops,
+                               List<Trip> trips, List<StopTime> stopTimes, List<Shape> shapes) throws SQLException {
+        long startTime = System.currentTimeMillis();
+
+        storeHashes(AGENCY, hashAll(indexById(agencies, Agency::getAgencyId), GTFSDeltaImporter::hashAgency));
+        storeHashes(ROUTE, hashAll(indexById(routes, Route::getRouteId), GTFSDeltaImporter::hashRoute));
+        storeHashes(STOP, hashAll(indexById(stops, Stop::getStopId), GTFSDeltaImporter::hashStop));
+        storeHashes(TRIP, hashAll(indexById(trips, Trip::getTripId), GTFSDeltaImporter::hashTrip));
+        storeHashes(TRIP_STOP_TIMES, hashAll(groupStopTimes(stopTimes), GTFSDeltaImporter::hashStopTimes));
+        storeHashes(SHAPE, hashAll(groupShapes(shapes), GTFSDeltaImporter::hashShapePoints));
+
+        System.out.println("   Recorded feed row hashes in " + (System.currentTimeMillis() - startTime) + "ms");
+    }
+
+    // ===== Diffing =====
+
+    private EntityDiff diff(String entity, Map<String, Long> newHashes) throws SQLException {
+        Map<String, Long> oldHashes = loadPreviousHashes(entity);
+        EntityDiff diff = new EntityDiff(newHashes);
+
+        for (Map.Entry<String, Long> entry : newHashes.entrySet()) {
+            Long previous = oldHashes.get(entry.getKey());
+            if (previous == null) {
+                diff.inserted.add(entry.getKey());
+            } else if (previous.longValue() != entry.getValue()) {
+                diff.updated.add(entry.getKey());
+            } else {
+                diff.unchanged++;
+            }
+        }
+        for (String key : oldHashes.keySet()) {
+            if (!newHashes.containsKey(key)) {
+                diff.deleted.add(key);
+            }
+        }
+        return diff;
+    }
+
+    /**
+     * Stored hashes, or hashes recomputed from the current tables for databases
+     * that were populated before feed_row_hashes existed
+     */
+    private Map<String, Long> loadPreviousHashes(String entity) throws SQLException {
+        Map<String, Long> stored = feedHashDAO.findByEntity(entity);
+        if (!stored.isEmpty()) {
+            return stored;
+        }
+
+        switch (entity) {
+            case AGENCY:
+                return hashAll(indexById(agencyDAO.findAll(), Agency::getAgencyId), GTFSDeltaImporter::hashAgency);
+            case ROUTE:
+                return hashAll(indexById(routeDAO.findAll(), Route::getRouteId), GTFSDeltaImporter::hashRoute);
+            case STOP:
+                return hashAll(indexById(stopDAO.findAll(), Stop::getStopId), GTFSDeltaImporter::hashStop);
+            case TRIP:
+                return hashAll(indexById(tripDAO.findAll(), Trip::getTripId), GTFSDeltaImporter::hashTrip);
+            case TRIP_STOP_TIMES: {
+                // Streamed in (trip_id, stop_sequence) order: hash one trip at a time
+                Map<String, Long> hashes = new HashMap<>();
+                GroupHasher<StopTime> hasher = new GroupHasher<>(hashes, StopTime::getTripId, GTFSDeltaImporter::addStopTime);
+                stopTimeDAO.forEachOrdered(hasher);
+                hasher.finish();
+                return hashes;
+            }
+            case SHAPE: {
+                Map<String, Long> hashes = new HashMap<>();
+                GroupHasher<Shape> hasher = new GroupHasher<>(hashes, Shape::getShapeId, GTFSDeltaImporter::addShapePoint);
+                shapeDAO.forEachOrdered(hasher);
+                hasher.finish();
+                return hashes;
+            }
+            default:
+                return stored;
+        }
+    }
+
+    // ===== Bounded transactions =====
+
+    private <T> int upsertRows(String entity, EntityDiff diff, Map<String, T> byId,
+                               ChunkWriter<List<T>> writer) throws SQLException {
+        List<String> keys = diff.changedKeys();
+        int transactions = 0;
+
+        for (int from = 0; from < keys.size(); from += ROWS_PER_TRANSACTION) {
+            List<String> chunk = keys.subList(from, Math.min(from + ROWS_PER_TRANSACTION, keys.size()));
+            List<T> rows = new ArrayList<>(chunk.size());
+            for (String key : chunk) {
+                rows.add(byId.get(key));
+            }
+
+            dbManager.executeInTransaction(conn -> {
+                writer.write(conn, rows);
+                feedHashDAO.upsertBatch(conn, entity, diff.hashesFor(chunk));
+                return null;
+            });
+            transactions++;
+        }
+        return transactions;
+    }
+
+    private <T> int replaceGroups(String entity, EntityDiff diff, Map<String, List<T>> groups,
+                                  GroupWriter<T> writer) throws SQLException {
+        List<String> keys = diff.changedKeys();
+        int transactions = 0;
+
+        for (int from = 0; from < keys.size(); from += GROUPS_PER_TRANSACTION) {
+            List<String> chunk = keys.subList(from, Math.min(from + GROUPS_PER_TRANSACTION, keys.size()));
+            List<T> rows = new ArrayList<>();
+            for (String key : chunk) {
+                rows.addAll(groups.get(key));
+            }
+
+            dbManager.executeInTransaction(conn -> {
+                writer.write(conn, chunk, rows);
+                feedHashDAO.upsertBatch(conn, entity, diff.hashesFor(chunk));
+                return null;
+            });
+            transactions++;
+        }
+        return transactions;
+    }
+
+    private int deleteKeys(String entity, List<String> keys, ChunkWriter<List<String>> writer) throws SQLException {
+        int transactions = 0;
+
+        for (int from = 0; from < keys.size(); from += GROUPS_PER_TRANSACTION) {
+            List<String> chunk = keys.subList(from, Math.min(from + GROUPS_PER_TRANSACTION, keys.size()));
+
+            dbManager.executeInTransaction(conn -> {
+                writer.write(conn, chunk);
+                feedHashDAO.deleteByKeys(conn, entity, chunk);
+                return null;
+            });
+            transactions++;
+        }
+        return transactions;
+    }
+
+    private void storeHashes(String entity, Map<String, Long> hashes) throws SQLException {
+        List<String> keys = new ArrayList<>(hashes.keySet());
+
+        dbManager.executeInTransaction(conn -> {
+            feedHashDAO.deleteByEntity(conn, entity);
+            return null;
+        });
+
+        for (int from = 0; from < keys.size(); from += ROWS_PER_TRANSACTION) {
+            List<String> chunk = keys.subList(from, Math.min(from + ROWS_PER_TRANSACTION, keys.size()));
+            Map<String, Long> part = new HashMap<>();
+            for (String key : chunk) {
+                part.put(key, hashes.get(key));
+            }
+            dbManager.executeInTransaction(conn -> {
+                feedHashDAO.upsertBatch(conn, entity, part);
+                return null;
+            });
+        }
+    }
+
+    // ===== Grouping and hashing =====
+
+    private static <T> Map<String, T> indexById(List<T> rows, Function<T, String> idOf) {
+        Map<String, T> byId = new LinkedHashMap<>();
+        if (rows != null) {
+            for (T row : rows) {
+                String id = idOf.apply(row);
+                if (id != null) {
+                    byId.put(id, row);
+                }
+            }
+        }
+        return byId;
+    }
+
+    private static Map<String, List<StopTime>> groupStopTimes(List<StopTime> stopTimes) {
+        Map<String, List<StopTime>> byTrip = new LinkedHashMap<>();
+        if (stopTimes != null) {
+            for (StopTime stopTime : stopTimes) {
+                if (stopTime.getTripId() != null) {
+                    byTrip.computeIfAbsent(stopTime.getTripId(), k -> new ArrayList<>()).add(stopTime);
+                }
+            }
+        }
+        byTrip.values().forEach(list -> list.sort(Comparator.comparingInt(StopTime::getStopSequence)));
+        return byTrip;
+    }
+
+    private static Map<String, List<Shape>> groupShapes(List<Shape> shapes) {
+        Map<String, List<Shape>> byShape = new LinkedHashMap<>();
+        if (shapes != null) {
+            for (Shape shape : shapes) {
+                if (shape.getShapeId() != null) {
+                    byShape.computeIfAbsent(shape.getShapeId(), k -> new ArrayList<>()).add(shape);
+                }
+            }
+        }
+        byShape.values().forEach(list -> list.sort(Comparator.comparingInt(Shape::getShapePtSequence)));
+        return byShape;
+    }
+
+    private static <T> Map<String, Long> hashAll(Map<String, T> byKey, Function<T, Long> hasher) {
+        Map<String, Long> hashes = new HashMap<>(byKey.size() * 2);
+        for (Map.Entry<String, T> entry : byKey.entrySet()) {
+            hashes.put(entry.getKey(), hasher.apply(entry.getValue()));
+        }
+        return hashes;
+    }
+
+    private static long hashAgency(Agency a) {
+        return new RowHash().add(a.getAgencyId()).add(a.getAgencyName()).add(a.getAgencyUrl())
+            .add(a.getAgencyTimezone()).add(a.getAgencyLang()).add(a.getAgencyPhone())
+            .add(a.getAgencyFareUrl()).add(a.getAgencyEmail()).value();
+    }
+
+    private static long hashRoute(Route r) {
+        return new RowHash().add(r.getRouteId()).add(r.getAgencyId()).add(r.getRouteShortName())
+            .add(r.getRouteLongName()).add(r.getRouteDesc())
+            .add(r.getRouteType() != null ? r.getRouteType().getGtfsCode() : 0)
+            .add(r.getRouteUrl()).add(r.getRouteColor()).add(r.getRouteTextColor())
+            .add(r.getRouteSortOrder()).value();
+    }
+
+    private static long hashStop(Stop s) {
+        return new RowHash().add(s.getStopId()).add(s.getStopCode()).add(s.getStopName())
+            .add(s.getStopDesc()).add(s.getStopLat()).add(s.getStopLon()).add(s.getZoneId())
+            .add(s.getStopUrl()).add(s.getLocationType()).add(s.getParentStation())
+            .add(s.getStopTimezone()).add(s.getWheelchairBoarding()).value();
+    }
+
+    private static long hashTrip(Trip t) {
+        return new RowHash().add(t.getTripId()).add(t.getRouteId()).add(t.getServiceId())
+            .add(t.getTripHeadsign()).add(t.getTripShortName()).add(t.getDirectionId())
+            .add(t.getBlockId()).add(t.getShapeId()).add(t.getWheelchairAccessible())
+            .add(t.getBikesAllowed()).value();
+    }
+
+    private static long hashStopTimes(List<StopTime> stopTimes) {
+        RowHash hash = new RowHash();
+        for (StopTime stopTime : stopTimes) {
+            addStopTime(hash, stopTime);
+        }
+        return hash.value();
+    }
+
+    private static void addStopTime(RowHash hash, StopTime st) {
+        hash.add(st.getStopSequence()).add(st.getStopId()).add(st.getArrivalTime())
+            .add(st.getDepartureTime()).add(st.getStopHeadsign()).add(st.getPickupType())
+            .add(st.getDropOffType()).add(st.getShapeDistTraveled()).add(st.getTimepoint());
+    }
+
+    private static long hashShapePoints(List<Shape> points) {
+        RowHash hash = new RowHash();
+        for (Shape point : points) {
+            addShapePoint(hash, point);
+        }
+        return hash.value();
+    }
+
+    private static void addShapePoint(RowHash hash, Shape p) {
+        hash.add(p.getShapePtSequence()).add(p.getShapePtLat()).add(p.getShapePtLon())
+            .add(p.getShapeDistTraveled());
+    }
+
+    /**
+     * 64-bit FNV-1a hash over a sequence of column values.
+     * Nulls and empty strings hash differently; a separator keeps column boundaries unambiguous.
+     */
+    static final class RowHash {
+        private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+        private static final long FNV_PRIME = 0x100000001b3L;
+
+        private long hash = FNV_OFFSET;
+
+        RowHash add(String value) {
+            if (value == null) {
+                mix(0xFF);
+            } else {
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    mix(c & 0xFF);
+                    mix(c >>> 8);
+                }
+            }
+            mix(0x1F);
+            return this;
+        }
+
+        RowHash add(int value) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                mix((value >>> shift) & 0xFF);
+            }
+            mix(0x1F);
+            return this;
+        }
+
+        RowHash add(double value) {
+            long bits = Double.doubleToLongBits(value);
+            for (int shift = 0; shift < 64; shift += 8) {
+                mix((int) ((bits >>> shift) & 0xFF));
+            }
+            mix(0x1F);
+            return this;
+        }
+
+        long value() {
+            return hash;
+        }
+
+        private void mix(int b) {
+            hash ^= b;
+            hash *= FNV_PRIME;
+        }
+    }
+
+    /**
+     * Hashes rows streamed in group order (e.g. stop_times ordered by trip_id)
+     */
+    private static final class GroupHasher<T> implements java.util.function.Consumer<T> {
+        private final Map<String, Long> target;
+        private final Function<T, String> keyOf;
+        private final java.util.function.BiConsumer<RowHash, T> addRow;
+        private String currentKey;
+        private RowHash current;
+
+        GroupHasher(Map<String, Long> target, Function<T, String> keyOf,
+                    java.util.function.BiConsumer<RowHash, T> addRow) {
+            this.target = target;
+            this.keyOf = keyOf;
+            this.addRow = addRow;
+        }
+
+        @Override
+        public void accept(T row) {
+            String key = keyOf.apply(row);
+            if (!Objects.equals(key, currentKey)) {
+                finish();
+                currentKey = key;
+                current = new RowHash();
+            }
+            addRow.accept(current, row);
+        }
+
+        void finish() {
+            if (currentKey != null && current != null) {
+                target.put(currentKey, current.value());
+            }
+            currentKey = null;
+            current = null;
+        }
+    }
+
+    // ===== Helper Types =====
+
+    @FunctionalInterface
+    private interface ChunkWriter<C> {
+        void write(Connection conn, C chunk) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface GroupWriter<T> {
+        void write(Connection conn, List<String> keys, List<T> rows) throws SQLException;
+    }
+
+    private static final class EntityDiff {
+        final Map<String, Long> newHashes;
+        final List<String> inserted = new ArrayList<>();
+        final List<String> updated = new ArrayList<>();
+        final List<String> deleted = new ArrayList<>();
+        int unchanged;
+
+        EntityDiff(Map<String, Long> newHashes) {
+            this.newHashes = newHashes;
+        }
+
+        List<String> changedKeys() {
+            List<String> keys = new ArrayList<>(inserted.size() + updated.size());
+            keys.addAll(inserted);
+            keys.addAll(updated);
+            return keys;
+        }
+
+        Map<String, Long> hashesFor(List<String> keys) {
+            Map<String, Long> hashes = new HashMap<>(keys.size() * 2);
+            for (String key : keys) {
+                hashes.put(key, newHashes.get(key));
+            }
+            return hashes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("+%d ~%d -%d (=%d)", inserted.size(), updated.size(), deleted.size(), unchanged);
+        }
+    }
+
+    /**
+     * Summary of an applied delta
+     */
+    public static class DeltaResult {
+        public int inserted;
+        public int updated;
+        public int deleted;
+        public int unchanged;
+        public int transactions;
+        public long elapsedMs;
+
+        public boolean hasChanges() {
+            return inserted > 0 || updated > 0 || deleted > 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d inserted, %d updated, %d deleted, %d unchanged in %d transactions (%dms)",
+                inserted, updated, deleted, unchanged, transactions, elapsedMs);
+        }
+    }
+}
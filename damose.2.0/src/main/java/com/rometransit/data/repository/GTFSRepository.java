@@ -5,10 +5,16 @@ import com.rometransit.data.database.SQLiteDatabaseManager;
 import com.rometransit.model.dto.ArrivalPrediction;
 import com.rometransit.model.dto.VehiclePosition;
 import com.rometransit.model.entity.*;
+import com.rometransit.model.symbol.SymbolTable;
+import com.rometransit.model.timetable.StopPattern;
+import com.rometransit.model.timetable.TimeProfile;
+import com.rometransit.model.timetable.TripSchedule;
 
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.IntConsumer;
 
 /**
  * Repository pattern for GTFS data access
@@ -28,19 +34,36 @@ public class GTFSRepository {
     private final ShapeDAO shapeDAO;
     private final VehiclePositionDAO vehiclePositionDAO;
     private final TripUpdateDAO tripUpdateDAO;
+    private final SymbolDAO symbolDAO;
+    private final GTFSDeltaImporter deltaImporter;
+    private final GTFSBulkLoader bulkLoader;
+    private volatile GTFSBulkLoader.BulkLoadReport lastBulkLoadReport;
 
     private GTFSRepository() {
-        this.dbManager = SQLiteDatabaseManager.getInstance();
-        this.agencyDAO = new AgencyDAO();
-        this.routeDAO = new RouteDAO();
-        this.stopDAO = new StopDAO();
-        this.tripDAO = new TripDAO();
-        this.stopTimeDAO = new StopTimeDAO();
-        this.shapeDAO = new ShapeDAO();
-        this.vehiclePositionDAO = new VehiclePositionDAO();
-        this.tripUpdateDAO = new TripUpdateDAO();
+        this(SQLiteDatabaseManager.getInstance());
+    }
 
-        System.out.println("📊 GTFS Repository initialized (SQLite-based)");
+    /**
+     * Repository over its own database (see SQLiteDatabaseManager.open), used for the
+     * extra feed shards; the application-wide one is getInstance()
+     */
+    public GTFSRepository(SQLiteDatabaseManager dbManager) {
+        this.dbManager = dbManager;
+        this.agencyDAO = new AgencyDAO(dbManager);
+        this.routeDAO = new RouteDAO(dbManager);
+        this.stopDAO = new StopDAO(dbManager);
+        this.tripDAO = new TripDAO(dbManager);
+        this.stopTimeDAO = new StopTimeDAO(dbManager);
+        this.shapeDAO = new ShapeDAO(dbManager);
+        this.vehiclePositionDAO = new VehiclePositionDAO(dbManager);
+        this.tripUpdateDAO = new TripUpdateDAO(dbManager);
+        this.symbolDAO = new SymbolDAO(dbManager);
+        this.deltaImporter = new GTFSDeltaImporter(dbManager, agencyDAO, routeDAO, stopDAO, tripDAO,
+                stopTimeDAO, shapeDAO, vehiclePositionDAO, tripUpdateDAO, new FeedHashDAO(dbManager));
+        this.bulkLoader = new GTFSBulkLoader(dbManager, agencyDAO, routeDAO, stopDAO, tripDAO,
+                stopTimeDAO, shapeDAO);
+
+        System.out.println("📊 GTFS Repository initialized (SQLite-based): " + dbManager.getDatabasePath());
     }
 
     public static synchronized GTFSRepository getInstance() {
@@ -136,10 +159,58 @@ public class GTFSRepository {
         return stopTimeDAO.findByTrip(tripId);
     }
 
+    public List<StopTime> getStopTimesByTrips(Collection<String> tripIds) throws SQLException {
+        return stopTimeDAO.findByTrips(tripIds);
+    }
+
     public List<StopTime> getStopTimesByStop(String stopId) throws SQLException {
         return stopTimeDAO.findByStop(stopId);
     }
 
+    public List<StopPattern> loadStopPatterns() throws SQLException {
+        return stopTimeDAO.loadPatterns();
+    }
+
+    public List<StopPattern> getStopPatternsByRoute(String routeId) throws SQLException {
+        return stopTimeDAO.findPatternsByRoute(routeId);
+    }
+
+    public String getLongestTripOfRoute(String routeId) throws SQLException {
+        return stopTimeDAO.findLongestTripOfRoute(routeId);
+    }
+
+    public List<TimeProfile> loadTimeProfiles() throws SQLException {
+        return stopTimeDAO.loadProfiles();
+    }
+
+    public List<TripSchedule> loadTripSchedules() throws SQLException {
+        return stopTimeDAO.loadSchedules();
+    }
+
+    /**
+     * Whether stop_times are still in the table of an older version (see convertLegacyStopTimes)
+     */
+    public boolean hasLegacyStopTimes() throws SQLException {
+        return stopTimeDAO.hasLegacyTable();
+    }
+
+    /**
+     * Convert a stop_times table left by an older version to trip-pattern form, then
+     * reclaim its pages. Slow on a full feed: call it off the UI thread.
+     */
+    public int convertLegacyStopTimes(IntConsumer progress) throws SQLException {
+        int converted = stopTimeDAO.migrateLegacyTable(progress);
+        if (converted > 0) {
+            try {
+                dbManager.optimize();
+            } catch (SQLException e) {
+                // The conversion is committed, only the file size is affected
+                System.err.println("⚠️  Failed to compact the database after converting stop_times: " + e.getMessage());
+            }
+        }
+        return converted;
+    }
+
     // ===== Shape Methods =====
 
     public void saveShapes(List<Shape> shapes) throws SQLException {
@@ -195,11 +266,18 @@ public class GTFSRepository {
     // ===== Bulk Operations =====
 
     /**
-     * Save all GTFS static data in a transaction
+     * Save all GTFS static data.
+     * An empty database takes the bulk-load fast path; otherwise rows are upserted in a transaction.
      */
     public void saveAllGTFSData(List<Agency> agencies, List<Route> routes, List<Stop> stops,
                                 List<Trip> trips, List<StopTime> stopTimes, List<Shape> shapes) throws SQLException {
 
+        if (isStaticDataEmpty()) {
+            lastBulkLoadReport = bulkLoader.load(agencies, routes, stops, trips, stopTimes, shapes);
+            syncSymbols(routes, stops, trips, shapes);
+            return;
+        }
+
         System.out.println("💾 Saving all GTFS data to SQLite database...");
         long startTime = System.currentTimeMillis();
 
@@ -241,10 +319,77 @@ public class GTFSRepository {
             }
         });
 
+        syncSymbols(routes, stops, trips, shapes);
+
         long elapsed = System.currentTimeMillis() - startTime;
         System.out.println("✅ All GTFS data saved in " + elapsed + "ms");
     }
 
+    /**
+     * Apply a refreshed GTFS feed as a delta against the current database.
+     * Only changed entities are written, in small transactions, so realtime
+     * persistence keeps running while a new static feed is imported.
+     */
+    public GTFSDeltaImporter.DeltaResult applyGTFSDelta(List<Agency> agencies, List<Route> routes, List<Stop> stops,
+                                                        List<Trip> trips, List<StopTime> stopTimes, List<Shape> shapes) throws SQLException {
+        GTFSDeltaImporter.DeltaResult result = deltaImporter.applyDelta(agencies, routes, stops, trips, stopTimes, shapes);
+        stopTimeDAO.pruneUnused();
+        syncSymbols(routes, stops, trips, shapes);
+        return result;
+    }
+
+    /**
+     * Record the row hashes of a fully imported feed (baseline for later delta updates)
+     */
+    public void recordFeedBaseline(List<Agency> agencies, List<Route> routes, List<Stop> stops,
+                                   List<Trip> trips, List<StopTime> stopTimes, List<Shape> shapes) throws SQLException {
+        deltaImporter.recordBaseline(agencies, routes, stops, trips, stopTimes, shapes);
+    }
+
+    // ===== Symbol Methods =====
+
+    /**
+     * Load the persisted symbol table (empty if the database predates it)
+     */
+    public SymbolTable loadSymbolTable() throws SQLException {
+        return symbolDAO.loadAll();
+    }
+
+    /**
+     * Give a symbol to every id of the given entities that does not have one yet and persist
+     * the new ones. Existing symbols keep their ids, removed entities keep theirs unused.
+     */
+    public SymbolTable syncSymbols(List<Route> routes, List<Stop> stops, List<Trip> trips, List<Shape> shapes) throws SQLException {
+        SymbolTable table = symbolDAO.loadAll();
+        int persisted = table.totalSize();
+        int[] persistedSizes = table.sizes();
+
+        if (routes != null) {
+            routes.forEach(route -> table.intern(SymbolTable.Kind.ROUTE, route.getRouteId()));
+        }
+        if (stops != null) {
+            stops.forEach(stop -> table.intern(SymbolTable.Kind.STOP, stop.getStopId()));
+        }
+        if (trips != null) {
+            for (Trip trip : trips) {
+                table.intern(SymbolTable.Kind.TRIP, trip.getTripId());
+                table.intern(SymbolTable.Kind.SHAPE, trip.getShapeId());
+            }
+        }
+        if (shapes != null) {
+            shapes.forEach(shape -> table.intern(SymbolTable.Kind.SHAPE, shape.getShapeId()));
+        }
+
+        if (table.totalSize() > persisted) {
+            dbManager.executeInTransaction(conn -> {
+                symbolDAO.insertSince(conn, table, persistedSizes);
+                return null;
+            });
+            System.out.println("🔤 Assigned " + (table.totalSize() - persisted) + " new symbols: " + table);
+        }
+        return table;
+    }
+
     /**
      * Clear all data from database
      */
@@ -286,6 +431,25 @@ public class GTFSRepository {
         }
     }
 
+    /**
+     * Check that every static table is empty (precondition for the bulk-load fast path)
+     */
+    public boolean isStaticDataEmpty() {
+        try {
+            return agencyDAO.count() == 0 && routeDAO.count() == 0 && stopDAO.count() == 0 &&
+                   tripDAO.count() == 0 && stopTimeDAO.count() == 0 && shapeDAO.count() == 0;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Per-table throughput of the last bulk load, or null if none ran in this session
+     */
+    public GTFSBulkLoader.BulkLoadReport getLastBulkLoadReport() {
+        return lastBulkLoadReport;
+    }
+
     /**
      * Get counts for all entities
      */
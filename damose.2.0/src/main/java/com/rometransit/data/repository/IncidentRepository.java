@@ -1,60 +1,246 @@
 package com.rometransit.data.repository;
 
+import com.rometransit.data.dao.IncidentDAO;
 import com.rometransit.model.entity.TransportIncident;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+
+import java.sql.SQLException;
+import java.time.ZoneId;
+import java.time.LocalDateTime;
+import java.util.*;
 
 /**
- * Legacy IncidentRepository stub for backward compatibility
+ * Repository for incidents and route delays, backed by the SQLite incidents table.
  *
- * @deprecated Incidents are not yet migrated to SQLite - placeholder only
+ * Active incidents are also held in memory. Every write rebuilds an immutable view
+ * (sorted list, per-route lists, per-severity counts), so the dashboard and the
+ * notification monitor read the active set without touching the database.
  */
-@Deprecated
 public class IncidentRepository {
 
-    public IncidentRepository() {
-        System.out.println("⚠️  IncidentRepository stub - incidents not yet in SQLite");
+    private static IncidentRepository instance;
+
+    private final IncidentDAO incidentDAO;
+    private final Map<String, TransportIncident> activeById = new HashMap<>();
+    private volatile ActiveView view = ActiveView.EMPTY;
+
+    private IncidentRepository() {
+        this.incidentDAO = new IncidentDAO();
+        loadActive();
     }
 
-    public Optional<TransportIncident> findById(String incidentId) {
-        return Optional.empty();
+    public static synchronized IncidentRepository getInstance() {
+        if (instance == null) {
+            instance = new IncidentRepository();
+        }
+        return instance;
     }
 
-    public List<TransportIncident> findAll() {
-        return new ArrayList<>();
+    private synchronized void loadActive() {
+        try {
+            for (TransportIncident incident : incidentDAO.findActive()) {
+                activeById.put(incident.getId(), incident);
+            }
+            rebuildView();
+            System.out.println("✅ Loaded " + activeById.size() + " active incidents from database");
+        } catch (SQLException e) {
+            System.err.println("❌ Error loading active incidents: " + e.getMessage());
+        }
     }
 
+    // ===== Reads (active set, in memory) =====
+
+    /**
+     * Active incidents, highest severity first (unmodifiable)
+     */
     public List<TransportIncident> findActive() {
-        return new ArrayList<>();
+        return view.all;
+    }
+
+    public List<TransportIncident> findActiveIncidents() {
+        return findActive();
     }
 
+    /**
+     * Active incidents affecting a route (unmodifiable)
+     */
     public List<TransportIncident> findByRoute(String routeId) {
-        return new ArrayList<>();
+        return view.byRoute.getOrDefault(routeId, Collections.emptyList());
     }
 
-    public void save(TransportIncident incident) {
-        // No-op stub
+    public int countActive() {
+        return view.all.size();
+    }
+
+    public int countActiveBySeverity(TransportIncident.Severity severity) {
+        return view.bySeverity[severity.ordinal()];
+    }
+
+    /**
+     * Incremented on every change of the active set, lets pollers skip unchanged sets
+     */
+    public long getVersion() {
+        return view.version;
     }
 
-    public void delete(String incidentId) {
-        // No-op stub
+    // ===== Reads (database) =====
+
+    public Optional<TransportIncident> findById(String incidentId) {
+        TransportIncident active = view.byId.get(incidentId);
+        if (active != null) {
+            return Optional.of(active);
+        }
+        try {
+            return Optional.ofNullable(incidentDAO.findById(incidentId));
+        } catch (SQLException e) {
+            System.err.println("❌ Error finding incident " + incidentId + ": " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * All stored incidents including resolved ones, most recent first
+     */
+    public List<TransportIncident> findAll() {
+        try {
+            return incidentDAO.findAll();
+        } catch (SQLException e) {
+            System.err.println("❌ Error loading incidents: " + e.getMessage());
+            return new ArrayList<>();
+        }
     }
 
     public long count() {
-        return 0;
+        try {
+            return incidentDAO.count();
+        } catch (SQLException e) {
+            System.err.println("❌ Error counting incidents: " + e.getMessage());
+            return 0;
+        }
     }
 
+    // ===== Writes =====
+
+    public void save(TransportIncident incident) {
+        saveAll(Collections.singletonList(incident));
+    }
+
+    /**
+     * Persist incidents in one transaction and update the active set;
+     * incidents saved as inactive leave it
+     */
+    public synchronized void saveAll(Collection<TransportIncident> incidents) {
+        if (incidents == null || incidents.isEmpty()) {
+            return;
+        }
+
+        try {
+            incidentDAO.upsertBatch(incidents);
+        } catch (SQLException e) {
+            // Keep the in-memory set current, the next save of these incidents persists them
+            System.err.println("❌ Error saving " + incidents.size() + " incidents: " + e.getMessage());
+        }
+
+        for (TransportIncident incident : incidents) {
+            if (incident.isActive()) {
+                activeById.put(incident.getId(), incident);
+            } else {
+                activeById.remove(incident.getId());
+            }
+        }
+        rebuildView();
+    }
+
+    public synchronized void delete(String incidentId) {
+        try {
+            incidentDAO.delete(incidentId);
+        } catch (SQLException e) {
+            System.err.println("❌ Error deleting incident " + incidentId + ": " + e.getMessage());
+        }
+        if (activeById.remove(incidentId) != null) {
+            rebuildView();
+        }
+    }
+
+    /**
+     * Delete resolved incidents that ended more than the given minutes ago
+     */
     public void cleanupOldIncidents(int minutesThreshold) {
-        // No-op stub
+        long cutoff = LocalDateTime.now().minusMinutes(minutesThreshold)
+            .atZone(ZoneId.systemDefault()).toEpochSecond();
+        try {
+            int deleted = incidentDAO.deleteResolvedBefore(cutoff);
+            if (deleted > 0) {
+                System.out.println("🗑️  Deleted " + deleted + " resolved incidents");
+            }
+        } catch (SQLException e) {
+            System.err.println("❌ Error cleaning up incidents: " + e.getMessage());
+        }
     }
 
+    /**
+     * Rename legacy DELAY/SEVERE_DELAY records to RITARDO
+     */
     public int migrateOldDelaysToRitardi() {
-        // No-op stub - returns 0 as no records were migrated
-        return 0;
+        try {
+            int migrated = incidentDAO.migrateLegacyDelayTypes();
+            if (migrated > 0) {
+                synchronized (this) {
+                    activeById.clear();
+                    loadActive();
+                }
+            }
+            return migrated;
+        } catch (SQLException e) {
+            System.err.println("❌ Error migrating legacy delays: " + e.getMessage());
+            return 0;
+        }
     }
 
-    public List<TransportIncident> findActiveIncidents() {
-        return findActive();
+    // ===== Active set view =====
+
+    private void rebuildView() {
+        List<TransportIncident> all = new ArrayList<>(activeById.values());
+        all.sort(Comparator.comparing(TransportIncident::getSeverity,
+            Comparator.nullsLast(Comparator.reverseOrder())));
+
+        Map<String, List<TransportIncident>> byRoute = new HashMap<>();
+        int[] bySeverity = new int[TransportIncident.Severity.values().length];
+        for (TransportIncident incident : all) {
+            if (incident.getSeverity() != null) {
+                bySeverity[incident.getSeverity().ordinal()]++;
+            }
+            if (incident.getAffectedRoutes() != null) {
+                for (String routeId : incident.getAffectedRoutes()) {
+                    byRoute.computeIfAbsent(routeId, k -> new ArrayList<>(2)).add(incident);
+                }
+            }
+        }
+        byRoute.replaceAll((routeId, list) -> Collections.unmodifiableList(list));
+
+        view = new ActiveView(Collections.unmodifiableList(all), Map.copyOf(activeById),
+                              byRoute, bySeverity, view.version + 1);
+    }
+
+    /**
+     * Immutable snapshot of the active incidents with its indexes
+     */
+    private static class ActiveView {
+        static final ActiveView EMPTY = new ActiveView(Collections.emptyList(), Collections.emptyMap(),
+            Collections.emptyMap(), new int[TransportIncident.Severity.values().length], 0);
+
+        final List<TransportIncident> all;
+        final Map<String, TransportIncident> byId;
+        final Map<String, List<TransportIncident>> byRoute;
+        final int[] bySeverity;
+        final long version;
+
+        ActiveView(List<TransportIncident> all, Map<String, TransportIncident> byId,
+                   Map<String, List<TransportIncident>> byRoute, int[] bySeverity, long version) {
+            this.all = all;
+            this.byId = byId;
+            this.byRoute = byRoute;
+            this.bySeverity = bySeverity;
+            this.version = version;
+        }
     }
 }
@@ -2,7 +2,9 @@ package com.rometransit.model.dto;
 
 import com.rometransit.model.entity.Route;
 import com.rometransit.model.entity.Stop;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Objects;
 
 public class ArrivalPrediction {
@@ -80,7 +82,13 @@ public class ArrivalPrediction {
         this.scheduledArrival = scheduledArrival;
     }
 
+    /**
+     * Realtime feeds only set the epoch arrival time; the LocalDateTime is derived on first use
+     */
     public LocalDateTime getPredictedArrival() {
+        if (predictedArrival == null && arrivalTime > 0) {
+            predictedArrival = LocalDateTime.ofInstant(Instant.ofEpochSecond(arrivalTime), ZoneId.systemDefault());
+        }
         return predictedArrival;
     }
 
@@ -184,11 +192,11 @@ public class ArrivalPrediction {
     }
 
     public LocalDateTime getPredictedArrivalTime() {
-        return predictedArrival;
+        return getPredictedArrival();
     }
 
     public int getMinutesUntilArrival() {
-        return (int) java.time.Duration.between(LocalDateTime.now(), predictedArrival).toMinutes();
+        return (int) java.time.Duration.between(LocalDateTime.now(), getPredictedArrival()).toMinutes();
     }
 
     public String getDelayStatus() {
@@ -207,7 +215,7 @@ public class ArrivalPrediction {
     }
 
     public LocalDateTime getExpectedArrivalTime() {
-        return expectedArrivalTime != null ? expectedArrivalTime : predictedArrival;
+        return expectedArrivalTime != null ? expectedArrivalTime : getPredictedArrival();
     }
 
     public void setExpectedArrivalTime(LocalDateTime expectedArrivalTime) {
@@ -256,7 +264,7 @@ public class ArrivalPrediction {
         return "ArrivalPrediction{" +
                 "route=" + (route != null ? route.getRouteShortName() : "null") +
                 ", stop=" + (stop != null ? stop.getStopName() : "null") +
-                ", predictedArrival=" + predictedArrival +
+                ", predictedArrival=" + getPredictedArrival() +
                 ", delayMinutes=" + delayMinutes +
                 ", isRealtime=" + isRealtime +
                 '}';
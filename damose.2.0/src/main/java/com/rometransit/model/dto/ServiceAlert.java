@@ -0,0 +1,223 @@
+package com.rometransit.model.dto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * GTFS-RT service alert with its informed entities and active periods.
+ * Texts are kept per language ("" for untranslated text); times are epoch seconds.
+ */
+public class ServiceAlert {
+
+    /**
+     * Active period, 0 for an open start or end
+     */
+    public static class ActivePeriod {
+        private final long start;
+        private final long end;
+
+        public ActivePeriod(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() { return start; }
+        public long getEnd() { return end; }
+
+        public boolean contains(long epochSeconds) {
+            return (start == 0 || epochSeconds >= start) && (end == 0 || epochSeconds < end);
+        }
+    }
+
+    private String alertId;
+    private String cause;
+    private String effect;
+    private String severityLevel;
+    private final Map<String, String> headerText = new HashMap<>();
+    private final Map<String, String> descriptionText = new HashMap<>();
+    private String url;
+    private final List<ActivePeriod> activePeriods = new ArrayList<>();
+    private final List<String> routeIds = new ArrayList<>();
+    private final List<String> stopIds = new ArrayList<>();
+    private final List<String> tripIds = new ArrayList<>();
+    private final List<String> agencyIds = new ArrayList<>();
+    private int contentHash;
+
+    public ServiceAlert() {}
+
+    public ServiceAlert(String alertId) {
+        this.alertId = alertId;
+    }
+
+    /**
+     * Active at the given time: inside any active period, or always when none is given
+     */
+    public boolean isActiveAt(long epochSeconds) {
+        if (activePeriods.isEmpty()) {
+            return true;
+        }
+        for (ActivePeriod period : activePeriods) {
+            if (period.contains(epochSeconds)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * First period boundary after the given time, or 0 if the active state never changes again
+     */
+    public long getNextTransitionAfter(long epochSeconds) {
+        long next = 0;
+        for (ActivePeriod period : activePeriods) {
+            if (period.getStart() > epochSeconds && (next == 0 || period.getStart() < next)) {
+                next = period.getStart();
+            }
+            if (period.getEnd() > epochSeconds && (next == 0 || period.getEnd() < next)) {
+                next = period.getEnd();
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Start of the first active period, 0 when open or absent
+     */
+    public long getActiveFrom() {
+        long from = 0;
+        for (ActivePeriod period : activePeriods) {
+            if (period.getStart() == 0) {
+                return 0;
+            }
+            if (from == 0 || period.getStart() < from) {
+                from = period.getStart();
+            }
+        }
+        return from;
+    }
+
+    public String getHeaderText(String languageCode) {
+        return translate(headerText, languageCode);
+    }
+
+    public String getDescriptionText(String languageCode) {
+        return translate(descriptionText, languageCode);
+    }
+
+    private static String translate(Map<String, String> texts, String languageCode) {
+        if (texts.isEmpty()) {
+            return null;
+        }
+        String text = texts.get(languageCode);
+        if (text == null) {
+            text = texts.get("");
+        }
+        return text != null ? text : texts.values().iterator().next();
+    }
+
+    public void putHeaderText(String languageCode, String text) {
+        headerText.put(languageCode != null ? languageCode : "", text);
+    }
+
+    public void putDescriptionText(String languageCode, String text) {
+        descriptionText.put(languageCode != null ? languageCode : "", text);
+    }
+
+    public String getAlertId() {
+        return alertId;
+    }
+
+    public void setAlertId(String alertId) {
+        this.alertId = alertId;
+    }
+
+    public String getCause() {
+        return cause;
+    }
+
+    public void setCause(String cause) {
+        this.cause = cause;
+    }
+
+    public String getEffect() {
+        return effect;
+    }
+
+    public void setEffect(String effect) {
+        this.effect = effect;
+    }
+
+    public String getSeverityLevel() {
+        return severityLevel;
+    }
+
+    public void setSeverityLevel(String severityLevel) {
+        this.severityLevel = severityLevel;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public List<ActivePeriod> getActivePeriods() {
+        return activePeriods;
+    }
+
+    public List<String> getRouteIds() {
+        return routeIds;
+    }
+
+    public List<String> getStopIds() {
+        return stopIds;
+    }
+
+    public List<String> getTripIds() {
+        return tripIds;
+    }
+
+    public List<String> getAgencyIds() {
+        return agencyIds;
+    }
+
+    /**
+     * Hash of the decoded alert message, changes whenever any field of the alert changes
+     */
+    public int getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(int contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ServiceAlert that = (ServiceAlert) o;
+        return Objects.equals(alertId, that.alertId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(alertId);
+    }
+
+    @Override
+    public String toString() {
+        return "ServiceAlert{" +
+                "alertId='" + alertId + '\'' +
+                ", effect=" + effect +
+                ", routes=" + routeIds +
+                ", stops=" + stopIds +
+                ", periods=" + activePeriods.size() +
+                '}';
+    }
+}
@@ -1,9 +1,11 @@
 package com.rometransit.model.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.rometransit.model.entity.Vehicle;
 import com.rometransit.model.entity.Route;
 import com.rometransit.model.enums.VehicleStatus;
+import com.rometransit.model.symbol.SymbolTable;
 import java.time.LocalDateTime;
 import java.util.Objects;
 
@@ -34,6 +36,10 @@ public class VehiclePosition {
     private int directionId;
     private boolean isSimulated; // Indica se questo veicolo è simulato (non real-time)
 
+    // Symbols of routeId/tripId in the primary dataset's SymbolTable, bound by the realtime parser
+    private int routeSymbol = SymbolTable.UNKNOWN;
+    private int tripSymbol = SymbolTable.UNKNOWN;
+
     public VehiclePosition() {}
 
     public VehiclePosition(Vehicle vehicle, Route route) {
@@ -67,6 +73,7 @@ public class VehiclePosition {
 
     public void setRouteId(String routeId) {
         this.routeId = routeId;
+        this.routeSymbol = SymbolTable.UNKNOWN;
     }
 
     public String getRouteShortName() {
@@ -83,6 +90,7 @@ public class VehiclePosition {
 
     public void setTripId(String tripId) {
         this.tripId = tripId;
+        this.tripSymbol = SymbolTable.UNKNOWN;
     }
 
     public String getHeadsign() {
@@ -133,7 +141,13 @@ public class VehiclePosition {
         this.status = status;
     }
 
+    /**
+     * Realtime feeds only set the epoch timestamp; the LocalDateTime is derived on first use
+     */
     public LocalDateTime getLastUpdate() {
+        if (lastUpdate == null && timestamp > 0) {
+            lastUpdate = LocalDateTime.ofInstant(java.time.Instant.ofEpochSecond(timestamp), java.time.ZoneId.systemDefault());
+        }
         return lastUpdate;
     }
 
@@ -234,9 +248,31 @@ public class VehiclePosition {
         isSimulated = simulated;
     }
 
+    @JsonIgnore
+    public int getRouteSymbol() {
+        return routeSymbol;
+    }
+
+    @JsonIgnore
+    public int getTripSymbol() {
+        return tripSymbol;
+    }
+
+    /**
+     * Bind the vehicle to the symbol table of its dataset: symbols of its route and trip, and
+     * the table's copy of their id strings (ids not in the dataset stay UNKNOWN)
+     */
+    public void bindSymbols(SymbolTable symbols) {
+        routeSymbol = symbols.id(SymbolTable.Kind.ROUTE, routeId);
+        tripSymbol = symbols.id(SymbolTable.Kind.TRIP, tripId);
+        routeId = symbols.canonical(SymbolTable.Kind.ROUTE, routeId);
+        tripId = symbols.canonical(SymbolTable.Kind.TRIP, tripId);
+    }
+
     public boolean isStale() {
-        return lastUpdate != null && 
-               java.time.Duration.between(lastUpdate, LocalDateTime.now()).toMinutes() > 5;
+        LocalDateTime updated = getLastUpdate();
+        return updated != null &&
+               java.time.Duration.between(updated, LocalDateTime.now()).toMinutes() > 5;
     }
 
     public String getOccupancyDescription() {
@@ -272,7 +308,7 @@ public class VehiclePosition {
                 ", status=" + status +
                 ", latitude=" + latitude +
                 ", longitude=" + longitude +
-                ", lastUpdate=" + lastUpdate +
+                ", lastUpdate=" + getLastUpdate() +
                 '}';
     }
 }
\ No newline at end of file
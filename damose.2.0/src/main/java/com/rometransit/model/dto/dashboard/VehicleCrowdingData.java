@@ -5,6 +5,7 @@ package com.rometransit.model.dto.dashboard;
  * Utilizzato per visualizzare le informazioni nella ListView del crowding.
  */
 public class VehicleCrowdingData {
+    private String vehicleId;
     private String routeId;
     private String routeName;
     private int occupancy;       // Passeggeri attuali
@@ -22,6 +23,11 @@ public class VehicleCrowdingData {
         this.percentage = capacity > 0 ? (double) occupancy / capacity * 100 : 0;
     }
 
+    public VehicleCrowdingData(String vehicleId, String routeId, String routeName, int occupancy, int capacity) {
+        this(routeId, routeName, occupancy, capacity);
+        this.vehicleId = vehicleId;
+    }
+
     /**
      * Restituisce il livello di affollamento basato sulla percentuale
      * @return LOW (<50%), MEDIUM (50-80%), HIGH (>80%)
@@ -50,6 +56,14 @@ public class VehicleCrowdingData {
 
     // Getters e Setters
 
+    public String getVehicleId() {
+        return vehicleId;
+    }
+
+    public void setVehicleId(String vehicleId) {
+        this.vehicleId = vehicleId;
+    }
+
     public String getRouteId() {
         return routeId;
     }
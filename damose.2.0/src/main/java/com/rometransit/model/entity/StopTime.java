@@ -1,5 +1,8 @@
 package com.rometransit.model.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.rometransit.model.symbol.SymbolTable;
+
 import java.util.Objects;
 
 public class StopTime {
@@ -14,6 +17,10 @@ public class StopTime {
     private double shapeDistTraveled;
     private int timepoint;
 
+    // Symbols of tripId/stopId in the dataset's SymbolTable (not persisted with the row)
+    private int tripSymbol = SymbolTable.UNKNOWN;
+    private int stopSymbol = SymbolTable.UNKNOWN;
+
     public StopTime() {}
 
     public StopTime(String tripId, String stopId, int stopSequence, String arrivalTime, String departureTime) {
@@ -104,6 +111,39 @@ public class StopTime {
         this.timepoint = timepoint;
     }
 
+    @JsonIgnore
+    public int getTripSymbol() {
+        return tripSymbol;
+    }
+
+    @JsonIgnore
+    public int getStopSymbol() {
+        return stopSymbol;
+    }
+
+    /**
+     * Set symbols already known to the caller (rows expanded from a stop pattern)
+     */
+    public void setSymbols(int tripSymbol, int stopSymbol) {
+        this.tripSymbol = tripSymbol;
+        this.stopSymbol = stopSymbol;
+    }
+
+    /**
+     * Bind the row to a symbol table: symbols of its ids, and the table's copy of the id
+     * strings instead of the row's own
+     */
+    public void bindSymbols(SymbolTable symbols) {
+        tripSymbol = symbols.id(SymbolTable.Kind.TRIP, tripId);
+        stopSymbol = symbols.id(SymbolTable.Kind.STOP, stopId);
+        if (tripSymbol != SymbolTable.UNKNOWN) {
+            tripId = symbols.name(SymbolTable.Kind.TRIP, tripSymbol);
+        }
+        if (stopSymbol != SymbolTable.UNKNOWN) {
+            stopId = symbols.name(SymbolTable.Kind.STOP, stopSymbol);
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -35,6 +35,21 @@ public class TransportIncident {
         this.startTime = LocalDateTime.now();
     }
 
+    /**
+     * Copy of an incident, with its own list of affected routes
+     */
+    public TransportIncident(TransportIncident other) {
+        this.id = other.id;
+        this.type = other.type;
+        this.location = other.location;
+        this.description = other.description;
+        this.startTime = other.startTime;
+        this.endTime = other.endTime;
+        this.severity = other.severity;
+        this.affectedRoutes = other.affectedRoutes != null ? new ArrayList<>(other.affectedRoutes) : new ArrayList<>();
+        this.active = other.active;
+    }
+
     // Getters and setters
     public String getId() {
         return id;
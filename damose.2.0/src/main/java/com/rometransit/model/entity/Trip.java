@@ -1,5 +1,8 @@
 package com.rometransit.model.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.rometransit.model.symbol.SymbolTable;
+
 import java.util.Objects;
 
 public class Trip {
@@ -14,6 +17,11 @@ public class Trip {
     private int wheelchairAccessible;
     private int bikesAllowed;
 
+    // Symbols in the dataset's SymbolTable (not persisted with the row)
+    private int tripSymbol = SymbolTable.UNKNOWN;
+    private int routeSymbol = SymbolTable.UNKNOWN;
+    private int shapeSymbol = SymbolTable.UNKNOWN;
+
     public Trip() {}
 
     public Trip(String tripId, String routeId, String serviceId, String tripHeadsign) {
@@ -103,6 +111,34 @@ public class Trip {
         this.bikesAllowed = bikesAllowed;
     }
 
+    @JsonIgnore
+    public int getTripSymbol() {
+        return tripSymbol;
+    }
+
+    @JsonIgnore
+    public int getRouteSymbol() {
+        return routeSymbol;
+    }
+
+    @JsonIgnore
+    public int getShapeSymbol() {
+        return shapeSymbol;
+    }
+
+    /**
+     * Bind the trip to a symbol table: symbols of its ids, and the table's copy of the id
+     * strings instead of the row's own
+     */
+    public void bindSymbols(SymbolTable symbols) {
+        tripSymbol = symbols.id(SymbolTable.Kind.TRIP, tripId);
+        routeSymbol = symbols.id(SymbolTable.Kind.ROUTE, routeId);
+        shapeSymbol = symbols.id(SymbolTable.Kind.SHAPE, shapeId);
+        tripId = symbols.canonical(SymbolTable.Kind.TRIP, tripId);
+        routeId = symbols.canonical(SymbolTable.Kind.ROUTE, routeId);
+        shapeId = symbols.canonical(SymbolTable.Kind.SHAPE, shapeId);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
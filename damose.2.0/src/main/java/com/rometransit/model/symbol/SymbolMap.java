@@ -0,0 +1,121 @@
+package com.rometransit.model.symbol;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Map from symbols (dense ints >= 0) to values, backed by an array indexed by symbol:
+ * no hashing and no boxed keys. The array grows to the largest symbol stored, so it suits
+ * maps over a good share of a dataset's symbols (one entry per active trip, per shape...),
+ * not small sets of arbitrary symbols.
+ *
+ * Not synchronized: callers guard it like they would a HashMap.
+ */
+public final class SymbolMap<V> {
+
+    private Object[] values;
+    private int size;
+
+    public SymbolMap() {
+        this(16);
+    }
+
+    public SymbolMap(int capacity) {
+        this.values = new Object[Math.max(capacity, 1)];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int symbol) {
+        return symbol >= 0 && symbol < values.length ? (V) values[symbol] : null;
+    }
+
+    public boolean containsKey(int symbol) {
+        return get(symbol) != null;
+    }
+
+    /**
+     * @return the previous value, null if none
+     */
+    public V put(int symbol, V value) {
+        if (symbol < 0) {
+            throw new IllegalArgumentException("Invalid symbol " + symbol);
+        }
+        if (value == null) {
+            return remove(symbol);
+        }
+        if (symbol >= values.length) {
+            values = Arrays.copyOf(values, Math.max(values.length * 2, symbol + 1));
+        }
+        V previous = get(symbol);
+        values[symbol] = value;
+        if (previous == null) {
+            size++;
+        }
+        return previous;
+    }
+
+    public V remove(int symbol) {
+        V previous = get(symbol);
+        if (previous != null) {
+            values[symbol] = null;
+            size--;
+        }
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Visit the entries in symbol order
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjIntConsumer<? super V> action) {
+        for (int symbol = 0; symbol < values.length; symbol++) {
+            if (values[symbol] != null) {
+                action.accept((V) values[symbol], symbol);
+            }
+        }
+    }
+
+    /**
+     * Remove the entries whose symbol matches
+     */
+    public void removeIf(IntPredicate filter) {
+        for (int symbol = 0; symbol < values.length; symbol++) {
+            if (values[symbol] != null && filter.test(symbol)) {
+                values[symbol] = null;
+                size--;
+            }
+        }
+    }
+
+    /**
+     * Remove entries in symbol order as long as the predicate accepts them; the first one it
+     * rejects is kept and ends the walk
+     */
+    @SuppressWarnings("unchecked")
+    public void removeWhile(Predicate<? super V> accept) {
+        for (int symbol = 0; symbol < values.length; symbol++) {
+            if (values[symbol] != null) {
+                if (!accept.test((V) values[symbol])) {
+                    return;
+                }
+                values[symbol] = null;
+                size--;
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.rometransit.model.symbol;
+
+import java.util.Arrays;
+
+/**
+ * Dense int ids for the string ids of one GTFS dataset (stops, routes, trips, shapes).
+ *
+ * Symbols are assigned at import in order of appearance and persisted with the data
+ * (id_symbols table), append-only: a delta import never renumbers an existing id, so ints
+ * held in memory or on disk stay valid. Hot-path indexes key on these ints (arrays), and
+ * the strings are resolved only where ids leave the engine (API, UI, realtime parsing).
+ *
+ * A table is filled once (import or load) and then only read: lookups are not synchronized.
+ */
+public final class SymbolTable {
+
+    public static final int UNKNOWN = -1;
+
+    public enum Kind {
+        STOP(1), ROUTE(2), TRIP(3), SHAPE(4);
+
+        // Persisted in id_symbols.kind
+        public final int code;
+
+        Kind(int code) {
+            this.code = code;
+        }
+
+        public static Kind fromCode(int code) {
+            for (Kind kind : values()) {
+                if (kind.code == code) {
+                    return kind;
+                }
+            }
+            throw new IllegalArgumentException("Unknown symbol kind " + code);
+        }
+    }
+
+    private final Dictionary[] dictionaries = new Dictionary[Kind.values().length];
+
+    public SymbolTable() {
+        for (Kind kind : Kind.values()) {
+            dictionaries[kind.ordinal()] = new Dictionary();
+        }
+    }
+
+    /**
+     * Symbol of an id, assigning the next free int if the id is new
+     */
+    public synchronized int intern(Kind kind, String name) {
+        if (name == null) {
+            return UNKNOWN;
+        }
+        return dictionaries[kind.ordinal()].intern(name);
+    }
+
+    /**
+     * Put a persisted symbol back at its id
+     */
+    public synchronized void restore(Kind kind, int id, String name) {
+        dictionaries[kind.ordinal()].restore(id, name);
+    }
+
+    /**
+     * Symbol of an id, UNKNOWN if it is not in the dataset
+     */
+    public int id(Kind kind, String name) {
+        return name != null ? dictionaries[kind.ordinal()].find(name) : UNKNOWN;
+    }
+
+    /**
+     * Id string of a symbol, null for UNKNOWN
+     */
+    public String name(Kind kind, int id) {
+        return dictionaries[kind.ordinal()].name(id);
+    }
+
+    /**
+     * The table's own instance of an id string, so rows read from SQLite or a feed share one
+     * copy per id instead of one per row; unknown ids are returned as given
+     */
+    public String canonical(Kind kind, String name) {
+        int id = id(kind, name);
+        return id != UNKNOWN ? name(kind, id) : name;
+    }
+
+    /**
+     * Number of symbols of a kind: valid ids are 0 .. size - 1 (arrays indexed by symbol)
+     */
+    public int size(Kind kind) {
+        return dictionaries[kind.ordinal()].size;
+    }
+
+    public int totalSize() {
+        int total = 0;
+        for (Dictionary dictionary : dictionaries) {
+            total += dictionary.size;
+        }
+        return total;
+    }
+
+    /**
+     * Current size of every kind, indexed by Kind.ordinal() (what a sync persists after)
+     */
+    public int[] sizes() {
+        int[] sizes = new int[dictionaries.length];
+        for (Kind kind : Kind.values()) {
+            sizes[kind.ordinal()] = size(kind);
+        }
+        return sizes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SymbolTable{stops=%d, routes=%d, trips=%d, shapes=%d}",
+            size(Kind.STOP), size(Kind.ROUTE), size(Kind.TRIP), size(Kind.SHAPE));
+    }
+
+    /**
+     * Open-addressing string -> int index over an array of names (no boxed keys or values)
+     */
+    private static final class Dictionary {
+        String[] names = new String[64];
+        int size;
+        // Slot holds id + 1, 0 = empty; capacity is a power of two, load factor <= 0.5
+        int[] slots = new int[128];
+
+        int find(String name) {
+            int mask = slots.length - 1;
+            for (int slot = spread(name.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+                int entry = slots[slot];
+                if (entry == 0) {
+                    return UNKNOWN;
+                }
+                if (names[entry - 1].equals(name)) {
+                    return entry - 1;
+                }
+            }
+        }
+
+        int intern(String name) {
+            int existing = find(name);
+            if (existing != UNKNOWN) {
+                return existing;
+            }
+            restore(size, name);
+            return size - 1;
+        }
+
+        void restore(int id, String name) {
+            if (id >= names.length) {
+                names = Arrays.copyOf(names, Math.max(names.length * 2, id + 1));
+            }
+            names[id] = name;
+            size = Math.max(size, id + 1);
+            if (size * 2 > slots.length) {
+                rehash(Integer.highestOneBit(size * 4));
+            } else {
+                insert(id, name);
+            }
+        }
+
+        String name(int id) {
+            return id >= 0 && id < size ? names[id] : null;
+        }
+
+        private void insert(int id, String name) {
+            int mask = slots.length - 1;
+            int slot = spread(name.hashCode()) & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+
+        private void rehash(int capacity) {
+            slots = new int[capacity];
+            for (int id = 0; id < size; id++) {
+                if (names[id] != null) {
+                    insert(id, names[id]);
+                }
+            }
+        }
+
+        private static int spread(int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
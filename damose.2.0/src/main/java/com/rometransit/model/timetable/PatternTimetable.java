@@ -0,0 +1,284 @@
+package com.rometransit.model.timetable;
+
+import com.rometransit.model.entity.StopTime;
+import com.rometransit.model.symbol.SymbolTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory timetable of the primary dataset in trip-pattern form.
+ *
+ * Each trip is three ints (pattern, profile, start time) in arrays indexed by trip symbol;
+ * patterns and profiles are shared by all the trips that run them. stop_times rows are
+ * expanded on demand, per trip or per stop (through the patterns that visit the stop).
+ * Built once per load, then read-only.
+ */
+public final class PatternTimetable {
+
+    private static final int NONE = -1;
+
+    private final SymbolTable symbols;
+    private final StopPattern[] patterns;
+    private final TimeProfile[] profiles;
+    private final int[] tripPattern;    // trip symbol -> pattern index
+    private final int[] tripProfile;    // trip symbol -> profile index
+    private final int[] tripStart;      // trip symbol -> start time
+    private final int[][] tripsByPattern; // pattern index -> trip symbols, by start time
+    private final int[][] visitsByStop;   // stop symbol -> (pattern index, position) pairs
+    private final int tripCount;
+    private final long rowCount;
+    private final int skipped;
+    private final long orphanRows;
+
+    private PatternTimetable(SymbolTable symbols, StopPattern[] patterns, TimeProfile[] profiles,
+                             int[] tripPattern, int[] tripProfile, int[] tripStart,
+                             int[][] tripsByPattern, int[][] visitsByStop, int tripCount, long rowCount, int skipped, long orphanRows) {
+        this.symbols = symbols;
+        this.patterns = patterns;
+        this.profiles = profiles;
+        this.tripPattern = tripPattern;
+        this.tripProfile = tripProfile;
+        this.tripStart = tripStart;
+        this.tripsByPattern = tripsByPattern;
+        this.visitsByStop = visitsByStop;
+        this.tripCount = tripCount;
+        this.rowCount = rowCount;
+        this.skipped = skipped;
+        this.orphanRows = orphanRows;
+    }
+
+    public static PatternTimetable empty() {
+        return new PatternTimetable(new SymbolTable(), new StopPattern[0], new TimeProfile[0],
+                                    new int[0], new int[0], new int[0], new int[0][], new int[0][], 0, 0, 0, 0);
+    }
+
+    /**
+     * Index the compressed rows read from the database. Patterns are bound to the symbol
+     * table; schedules of unknown trips or with a missing pattern/profile are skipped.
+     */
+    public static PatternTimetable build(SymbolTable symbols, Collection<StopPattern> patternRows,
+                                         Collection<TimeProfile> profileRows, Collection<TripSchedule> schedules) {
+        // Dense indexes for the database ids
+        StopPattern[] patterns = new StopPattern[patternRows.size()];
+        Map<Integer, Integer> patternIndex = new HashMap<>(patternRows.size() * 2);
+        for (StopPattern pattern : patternRows) {
+            pattern.bindSymbols(symbols);
+            patternIndex.put(pattern.getPatternId(), patternIndex.size());
+            patterns[patternIndex.size() - 1] = pattern;
+        }
+        TimeProfile[] profiles = new TimeProfile[profileRows.size()];
+        Map<Integer, Integer> profileIndex = new HashMap<>(profileRows.size() * 2);
+        for (TimeProfile profile : profileRows) {
+            profileIndex.put(profile.getProfileId(), profileIndex.size());
+            profiles[profileIndex.size() - 1] = profile;
+        }
+
+        int tripSymbols = symbols.size(SymbolTable.Kind.TRIP);
+        int[] tripPattern = new int[tripSymbols];
+        int[] tripProfile = new int[tripSymbols];
+        int[] tripStart = new int[tripSymbols];
+        Arrays.fill(tripPattern, NONE);
+
+        int[] tripsPerPattern = new int[patterns.length];
+        int tripCount = 0;
+        long rowCount = 0;
+        int skipped = 0;
+        for (TripSchedule schedule : schedules) {
+            int trip = symbols.id(SymbolTable.Kind.TRIP, schedule.getTripId());
+            Integer pattern = patternIndex.get(schedule.getPatternId());
+            Integer profile = profileIndex.get(schedule.getProfileId());
+            if (trip == SymbolTable.UNKNOWN || pattern == null || profile == null
+                    || patterns[pattern].size() != profiles[profile].size()) {
+                skipped++;
+                continue;
+            }
+            tripPattern[trip] = pattern;
+            tripProfile[trip] = profile;
+            tripStart[trip] = schedule.getStartTime();
+            tripsPerPattern[pattern]++;
+            tripCount++;
+            rowCount += patterns[pattern].size();
+        }
+
+        // Trips of each pattern in start time order
+        int[][] tripsByPattern = new int[patterns.length][];
+        for (int p = 0; p < patterns.length; p++) {
+            tripsByPattern[p] = new int[tripsPerPattern[p]];
+        }
+        int[] filled = new int[patterns.length];
+        for (int trip = 0; trip < tripSymbols; trip++) {
+            int pattern = tripPattern[trip];
+            if (pattern != NONE) {
+                tripsByPattern[pattern][filled[pattern]++] = trip;
+            }
+        }
+        for (int[] trips : tripsByPattern) {
+            sortByStart(trips, tripStart);
+        }
+
+        // Stop visits of the patterns that have trips
+        int stopSymbols = symbols.size(SymbolTable.Kind.STOP);
+        int[] visitsPerStop = new int[stopSymbols];
+        long orphanRows = 0;
+        for (int p = 0; p < patterns.length; p++) {
+            for (int i = 0; tripsByPattern[p].length > 0 && i < patterns[p].size(); i++) {
+                int stop = patterns[p].getStopSymbol(i);
+                if (stop != SymbolTable.UNKNOWN) {
+                    visitsPerStop[stop]++;
+                } else {
+                    orphanRows += tripsByPattern[p].length; // Refers to a stop missing from the feed
+                }
+            }
+        }
+        int[][] visitsByStop = new int[stopSymbols][];
+        int[] visitsFilled = new int[stopSymbols];
+        for (int p = 0; p < patterns.length; p++) {
+            for (int i = 0; tripsByPattern[p].length > 0 && i < patterns[p].size(); i++) {
+                int stop = patterns[p].getStopSymbol(i);
+                if (stop == SymbolTable.UNKNOWN) {
+                    continue;
+                }
+                if (visitsByStop[stop] == null) {
+                    visitsByStop[stop] = new int[visitsPerStop[stop] * 2];
+                }
+                visitsByStop[stop][visitsFilled[stop]++] = p;
+                visitsByStop[stop][visitsFilled[stop]++] = i;
+            }
+        }
+
+        return new PatternTimetable(symbols, patterns, profiles, tripPattern, tripProfile, tripStart,
+                                    tripsByPattern, visitsByStop, tripCount, rowCount, skipped, orphanRows);
+    }
+
+    private static void sortByStart(int[] trips, int[] tripStart) {
+        long[] keyed = new long[trips.length];
+        for (int i = 0; i < trips.length; i++) {
+            keyed[i] = ((long) tripStart[trips[i]] << 32) | trips[i];
+        }
+        Arrays.sort(keyed);
+        for (int i = 0; i < trips.length; i++) {
+            trips[i] = (int) keyed[i];
+        }
+    }
+
+    // ===== Lookups =====
+
+    public boolean hasTrip(int tripSymbol) {
+        return patternIndexOf(tripSymbol) != NONE;
+    }
+
+    /**
+     * Index of a trip's pattern (0 .. getPatternCount() - 1), -1 if the trip has no stop_times
+     */
+    public int patternIndexOf(int tripSymbol) {
+        return tripSymbol >= 0 && tripSymbol < tripPattern.length ? tripPattern[tripSymbol] : NONE;
+    }
+
+    public StopPattern getPattern(int patternIndex) {
+        return patterns[patternIndex];
+    }
+
+    /**
+     * Expanded stop_times of a trip, ordered by stop_sequence (rows at stops missing from the
+     * feed are left out)
+     */
+    public List<StopTime> getStopTimesForTrip(int tripSymbol) {
+        int pattern = patternIndexOf(tripSymbol);
+        if (pattern == NONE) {
+            return new ArrayList<>();
+        }
+        StopPattern stopPattern = patterns[pattern];
+        TimeProfile profile = profiles[tripProfile[tripSymbol]];
+        String tripId = symbols.name(SymbolTable.Kind.TRIP, tripSymbol);
+
+        List<StopTime> rows = new ArrayList<>(stopPattern.size());
+        for (int i = 0; i < stopPattern.size(); i++) {
+            if (stopPattern.getStopSymbol(i) != SymbolTable.UNKNOWN) {
+                rows.add(stopPattern.expand(i, tripId, tripSymbol, profile, tripStart[tripSymbol]));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Expanded stop_times at a stop: every trip of every pattern visiting it
+     */
+    public List<StopTime> getStopTimesForStop(int stopSymbol) {
+        int[] visits = stopSymbol >= 0 && stopSymbol < visitsByStop.length ? visitsByStop[stopSymbol] : null;
+        if (visits == null) {
+            return new ArrayList<>();
+        }
+
+        int total = 0;
+        for (int v = 0; v < visits.length; v += 2) {
+            total += tripsByPattern[visits[v]].length;
+        }
+        List<StopTime> rows = new ArrayList<>(total);
+        for (int v = 0; v < visits.length; v += 2) {
+            StopPattern stopPattern = patterns[visits[v]];
+            int position = visits[v + 1];
+            for (int trip : tripsByPattern[visits[v]]) {
+                rows.add(stopPattern.expand(position, symbols.name(SymbolTable.Kind.TRIP, trip), trip,
+                                            profiles[tripProfile[trip]], tripStart[trip]));
+            }
+        }
+        return rows;
+    }
+
+    // ===== Stats =====
+
+    public int getTripCount() {
+        return tripCount;
+    }
+
+    public int getPatternCount() {
+        return patterns.length;
+    }
+
+    public int getProfileCount() {
+        return profiles.length;
+    }
+
+    /**
+     * Number of stop_times rows the timetable stands for
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getSkippedTrips() {
+        return skipped;
+    }
+
+    /**
+     * Rows at stops missing from the feed (not expanded)
+     */
+    public long getOrphanRows() {
+        return orphanRows;
+    }
+
+    /**
+     * Estimated bytes retained by the compressed form
+     */
+    public long footprint() {
+        long bytes = 12L * tripPattern.length + 4L * tripCount + 16L * visitsByStop.length;
+        for (StopPattern pattern : patterns) {
+            bytes += pattern.footprint() + 4L * pattern.size();
+        }
+        for (TimeProfile profile : profiles) {
+            bytes += 48 + 8L * profile.size();
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PatternTimetable{trips=%d, rows=%d, patterns=%d, profiles=%d}",
+            tripCount, rowCount, patterns.length, profiles.length);
+    }
+}
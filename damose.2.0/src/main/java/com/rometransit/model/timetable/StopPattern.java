@@ -0,0 +1,203 @@
+package com.rometransit.model.timetable;
+
+import com.rometransit.model.entity.StopTime;
+import com.rometransit.model.symbol.SymbolTable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stop sequence shared by the trips that serve the same stops with the same per-stop
+ * attributes (stop_sequence, headsign, pickup/drop-off, shape distance, timepoint).
+ *
+ * Together with a TimeProfile and a start time it is everything stop_times holds for a
+ * trip; expand() rebuilds the rows. Attribute arrays that only hold defaults are null.
+ */
+public final class StopPattern {
+
+    // Field and record separators of the encoded form (ASCII unit / record separators)
+    private static final char FIELD = '\u001F';
+    private static final char RECORD = '\u001E';
+
+    private final int patternId;
+    private final String[] stopIds;
+    private final int[] stopSequences;
+    private final String[] headsigns;
+    private final int[] pickupTypes;
+    private final int[] dropOffTypes;
+    private final double[] shapeDistTraveled;
+    private final int[] timepoints;
+    private int[] stopSymbols;
+
+    private StopPattern(int patternId, String[] stopIds, int[] stopSequences, String[] headsigns,
+                        int[] pickupTypes, int[] dropOffTypes, double[] shapeDistTraveled, int[] timepoints) {
+        this.patternId = patternId;
+        this.stopIds = stopIds;
+        this.stopSequences = stopSequences;
+        this.headsigns = allNull(headsigns) ? null : headsigns;
+        this.pickupTypes = allZero(pickupTypes) ? null : pickupTypes;
+        this.dropOffTypes = allZero(dropOffTypes) ? null : dropOffTypes;
+        this.shapeDistTraveled = allZero(shapeDistTraveled) ? null : shapeDistTraveled;
+        this.timepoints = allZero(timepoints) ? null : timepoints;
+    }
+
+    /**
+     * Pattern of one trip's rows, ordered by stop_sequence
+     */
+    public static StopPattern of(List<StopTime> tripRows) {
+        int n = tripRows.size();
+        String[] stopIds = new String[n];
+        int[] sequences = new int[n];
+        String[] headsigns = new String[n];
+        int[] pickups = new int[n];
+        int[] dropOffs = new int[n];
+        double[] distances = new double[n];
+        int[] timepoints = new int[n];
+        for (int i = 0; i < n; i++) {
+            StopTime row = tripRows.get(i);
+            stopIds[i] = row.getStopId();
+            sequences[i] = row.getStopSequence();
+            headsigns[i] = row.getStopHeadsign() != null && !row.getStopHeadsign().isEmpty() ? row.getStopHeadsign() : null;
+            pickups[i] = row.getPickupType();
+            dropOffs[i] = row.getDropOffType();
+            distances[i] = row.getShapeDistTraveled();
+            timepoints[i] = row.getTimepoint();
+        }
+        return new StopPattern(0, stopIds, sequences, headsigns, pickups, dropOffs, distances, timepoints);
+    }
+
+    public int getPatternId() {
+        return patternId;
+    }
+
+    public int size() {
+        return stopIds.length;
+    }
+
+    public String getStopId(int index) {
+        return stopIds[index];
+    }
+
+    public int getStopSymbol(int index) {
+        return stopSymbols != null ? stopSymbols[index] : SymbolTable.UNKNOWN;
+    }
+
+    public StopPattern withId(int id) {
+        StopPattern pattern = new StopPattern(id, stopIds, stopSequences, headsigns, pickupTypes,
+                                              dropOffTypes, shapeDistTraveled, timepoints);
+        pattern.stopSymbols = stopSymbols;
+        return pattern;
+    }
+
+    /**
+     * Bind the pattern to a symbol table: stop symbols, and the table's copy of the stop ids
+     */
+    public void bindSymbols(SymbolTable symbols) {
+        int[] bound = new int[stopIds.length];
+        for (int i = 0; i < stopIds.length; i++) {
+            bound[i] = symbols.id(SymbolTable.Kind.STOP, stopIds[i]);
+            if (bound[i] != SymbolTable.UNKNOWN) {
+                stopIds[i] = symbols.name(SymbolTable.Kind.STOP, bound[i]);
+            }
+        }
+        stopSymbols = bound;
+    }
+
+    /**
+     * The stop_times row at a position of a trip running this pattern
+     */
+    public StopTime expand(int index, String tripId, int tripSymbol, TimeProfile profile, int startTime) {
+        String arrival = TimeProfile.formatTime(profile.arrivalAt(index, startTime));
+        int departureTime = profile.departureAt(index, startTime);
+        String departure = departureTime == profile.arrivalAt(index, startTime)
+            ? arrival
+            : TimeProfile.formatTime(departureTime);
+
+        StopTime stopTime = new StopTime(tripId, stopIds[index], stopSequences[index], arrival, departure);
+        stopTime.setStopHeadsign(headsigns != null ? headsigns[index] : null);
+        stopTime.setPickupType(pickupTypes != null ? pickupTypes[index] : 0);
+        stopTime.setDropOffType(dropOffTypes != null ? dropOffTypes[index] : 0);
+        stopTime.setShapeDistTraveled(shapeDistTraveled != null ? shapeDistTraveled[index] : 0.0);
+        stopTime.setTimepoint(timepoints != null ? timepoints[index] : 0);
+        stopTime.setSymbols(tripSymbol, getStopSymbol(index));
+        return stopTime;
+    }
+
+    // ===== Encoding (stop_patterns.stops) =====
+
+    /**
+     * One record per stop: stop_id, stop_sequence, headsign, pickup, drop-off, shape distance,
+     * timepoint. Equal patterns have equal encodings (used as the deduplication key).
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder(stopIds.length * 16);
+        for (int i = 0; i < stopIds.length; i++) {
+            if (i > 0) {
+                sb.append(RECORD);
+            }
+            sb.append(stopIds[i]).append(FIELD)
+              .append(stopSequences[i]).append(FIELD)
+              .append(headsigns != null && headsigns[i] != null ? headsigns[i] : "").append(FIELD)
+              .append(pickupTypes != null ? pickupTypes[i] : 0).append(FIELD)
+              .append(dropOffTypes != null ? dropOffTypes[i] : 0).append(FIELD);
+            if (shapeDistTraveled != null && shapeDistTraveled[i] != 0.0) {
+                sb.append(shapeDistTraveled[i]);
+            }
+            sb.append(FIELD).append(timepoints != null ? timepoints[i] : 0);
+        }
+        return sb.toString();
+    }
+
+    public static StopPattern decode(int patternId, String stops) {
+        String[] records = stops.split(String.valueOf(RECORD), -1);
+        int n = records.length;
+        String[] stopIds = new String[n];
+        int[] sequences = new int[n];
+        String[] headsigns = new String[n];
+        int[] pickups = new int[n];
+        int[] dropOffs = new int[n];
+        double[] distances = new double[n];
+        int[] timepoints = new int[n];
+        for (int i = 0; i < n; i++) {
+            String[] fields = records[i].split(String.valueOf(FIELD), -1);
+            stopIds[i] = fields[0];
+            sequences[i] = Integer.parseInt(fields[1]);
+            headsigns[i] = fields[2].isEmpty() ? null : fields[2];
+            pickups[i] = Integer.parseInt(fields[3]);
+            dropOffs[i] = Integer.parseInt(fields[4]);
+            distances[i] = fields[5].isEmpty() ? 0.0 : Double.parseDouble(fields[5]);
+            timepoints[i] = Integer.parseInt(fields[6]);
+        }
+        return new StopPattern(patternId, stopIds, sequences, headsigns, pickups, dropOffs, distances, timepoints);
+    }
+
+    /**
+     * Estimated bytes retained (stop id strings are shared with the symbol table)
+     */
+    public long footprint() {
+        long perStop = 8 + 4 + 4;
+        perStop += headsigns != null ? 8 : 0;
+        perStop += pickupTypes != null ? 4 : 0;
+        perStop += dropOffTypes != null ? 4 : 0;
+        perStop += shapeDistTraveled != null ? 8 : 0;
+        perStop += timepoints != null ? 4 : 0;
+        return 64 + perStop * stopIds.length;
+    }
+
+    private static boolean allNull(Object[] values) {
+        for (Object value : values) {
+            if (value != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean allZero(int[] values) {
+        return Arrays.stream(values).allMatch(value -> value == 0);
+    }
+
+    private static boolean allZero(double[] values) {
+        return Arrays.stream(values).allMatch(value -> value == 0.0);
+    }
+}
@@ -0,0 +1,174 @@
+package com.rometransit.model.timetable;
+
+import com.rometransit.model.entity.StopTime;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Running-time profile shared by the trips of a stop pattern that run with the same
+ * inter-stop times: arrival and departure of each stop as seconds after the trip's start.
+ */
+public final class TimeProfile {
+
+    // Missing time (GTFS allows empty times between timepoints)
+    public static final int NO_TIME = Integer.MIN_VALUE;
+
+    private final int profileId;
+    private final int[] arrivals;
+    private final int[] departures; // same array as arrivals when every stop has arrival == departure
+
+    public TimeProfile(int profileId, int[] arrivals, int[] departures) {
+        this.profileId = profileId;
+        this.arrivals = arrivals;
+        this.departures = Arrays.equals(arrivals, departures) ? arrivals : departures;
+    }
+
+    /**
+     * Profile of one trip's rows (ordered by stop_sequence) relative to the given start
+     */
+    public static TimeProfile of(List<StopTime> tripRows, int startTime) {
+        int n = tripRows.size();
+        int[] arrivals = new int[n];
+        int[] departures = new int[n];
+        for (int i = 0; i < n; i++) {
+            arrivals[i] = offset(parseTime(tripRows.get(i).getArrivalTime()), startTime);
+            departures[i] = offset(parseTime(tripRows.get(i).getDepartureTime()), startTime);
+        }
+        return new TimeProfile(0, arrivals, departures);
+    }
+
+    /**
+     * Start of a trip: departure from its first stop, or the first time it has
+     */
+    public static int startTimeOf(List<StopTime> tripRows) {
+        for (StopTime stopTime : tripRows) {
+            int departure = parseTime(stopTime.getDepartureTime());
+            if (departure != NO_TIME) {
+                return departure;
+            }
+            int arrival = parseTime(stopTime.getArrivalTime());
+            if (arrival != NO_TIME) {
+                return arrival;
+            }
+        }
+        return 0;
+    }
+
+    private static int offset(int time, int startTime) {
+        return time != NO_TIME ? time - startTime : NO_TIME;
+    }
+
+    public int getProfileId() {
+        return profileId;
+    }
+
+    public int size() {
+        return arrivals.length;
+    }
+
+    public TimeProfile withId(int id) {
+        return new TimeProfile(id, arrivals, departures);
+    }
+
+    /**
+     * Arrival at a stop for a trip starting at startTime, NO_TIME if the row has none
+     */
+    public int arrivalAt(int index, int startTime) {
+        return arrivals[index] != NO_TIME ? startTime + arrivals[index] : NO_TIME;
+    }
+
+    public int departureAt(int index, int startTime) {
+        return departures[index] != NO_TIME ? startTime + departures[index] : NO_TIME;
+    }
+
+    // ===== Encoding (time_profiles.offsets) =====
+
+    /**
+     * "arrival[/departure]" per stop, comma separated; departure only when it differs,
+     * an empty field for a missing time
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder(arrivals.length * 6);
+        for (int i = 0; i < arrivals.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            appendOffset(sb, arrivals[i]);
+            if (departures[i] != arrivals[i]) {
+                sb.append('/');
+                appendOffset(sb, departures[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    public static TimeProfile decode(int profileId, String offsets) {
+        String[] fields = offsets.split(",", -1);
+        int[] arrivals = new int[fields.length];
+        int[] departures = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            String field = fields[i];
+            int slash = field.indexOf('/');
+            arrivals[i] = parseOffset(slash >= 0 ? field.substring(0, slash) : field);
+            departures[i] = slash >= 0 ? parseOffset(field.substring(slash + 1)) : arrivals[i];
+        }
+        return new TimeProfile(profileId, arrivals, departures);
+    }
+
+    private static void appendOffset(StringBuilder sb, int offset) {
+        if (offset != NO_TIME) {
+            sb.append(offset);
+        }
+    }
+
+    private static int parseOffset(String field) {
+        return field.isEmpty() ? NO_TIME : Integer.parseInt(field);
+    }
+
+    // ===== GTFS times =====
+
+    /**
+     * Seconds after service-day midnight of an "H:MM:SS" time (hours may exceed 24),
+     * NO_TIME if empty or malformed
+     */
+    public static int parseTime(String time) {
+        if (time == null) {
+            return NO_TIME;
+        }
+        String value = time.trim();
+        int firstColon = value.indexOf(':');
+        int secondColon = value.indexOf(':', firstColon + 1);
+        if (firstColon <= 0 || secondColon < 0) {
+            return NO_TIME;
+        }
+        try {
+            int hours = Integer.parseInt(value, 0, firstColon, 10);
+            int minutes = Integer.parseInt(value, firstColon + 1, secondColon, 10);
+            int seconds = Integer.parseInt(value, secondColon + 1, value.length(), 10);
+            return hours * 3600 + minutes * 60 + seconds;
+        } catch (NumberFormatException e) {
+            return NO_TIME;
+        }
+    }
+
+    /**
+     * "HH:MM:SS" of a time in seconds, null for NO_TIME
+     */
+    public static String formatTime(int time) {
+        if (time == NO_TIME || time < 0) {
+            return null;
+        }
+        int hours = time / 3600;
+        int minutes = time / 60 % 60;
+        int seconds = time % 60;
+        if (hours > 99) {
+            return String.format("%d:%02d:%02d", hours, minutes, seconds);
+        }
+        return new String(new char[] {
+            (char) ('0' + hours / 10), (char) ('0' + hours % 10), ':',
+            (char) ('0' + minutes / 10), (char) ('0' + minutes % 10), ':',
+            (char) ('0' + seconds / 10), (char) ('0' + seconds % 10)
+        });
+    }
+}
@@ -0,0 +1,35 @@
+package com.rometransit.model.timetable;
+
+/**
+ * A trip of the compressed timetable: its stop pattern, its time profile and its start
+ * time (seconds after service-day midnight), one trip_schedules row
+ */
+public final class TripSchedule {
+    private final String tripId;
+    private final int patternId;
+    private final int profileId;
+    private final int startTime;
+
+    public TripSchedule(String tripId, int patternId, int profileId, int startTime) {
+        this.tripId = tripId;
+        this.patternId = patternId;
+        this.profileId = profileId;
+        this.startTime = startTime;
+    }
+
+    public String getTripId() {
+        return tripId;
+    }
+
+    public int getPatternId() {
+        return patternId;
+    }
+
+    public int getProfileId() {
+        return profileId;
+    }
+
+    public int getStartTime() {
+        return startTime;
+    }
+}
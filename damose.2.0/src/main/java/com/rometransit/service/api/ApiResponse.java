@@ -0,0 +1,186 @@
+package com.rometransit.service.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.rometransit.util.json.JsonUtil;
+import com.rometransit.util.metrics.Counter;
+import com.rometransit.util.metrics.MetricsRegistry;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A serialized JSON response: the body is written once and can be sent to any number of
+ * clients, with a strong ETag over its bytes and a gzip copy made on first demand.
+ */
+public final class ApiResponse {
+
+    public static final String NO_CACHE = "no-cache";
+    public static final String STATIC_DATA = "public, max-age=300";
+    public static final String SHORT_LIVED = "public, max-age=30";
+
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final int GZIP_MIN_BYTES = 1024;
+
+    private static final Counter NOT_MODIFIED = MetricsRegistry.getInstance().counter("api.not_modified");
+    private static final Counter GZIPPED = MetricsRegistry.getInstance().counter("api.gzipped");
+    private static final Counter BYTES_SENT = MetricsRegistry.getInstance().counter("api.bytes_sent");
+
+    private final int status;
+    private final byte[] body;
+    private final String etag;
+    private final String cacheControl;
+    private volatile byte[] gzipped;
+
+    private ApiResponse(int status, byte[] body, String cacheControl) {
+        this.status = status;
+        this.body = body;
+        this.etag = status == 200 ? etagOf(body) : null;
+        this.cacheControl = cacheControl;
+    }
+
+    public static ApiResponse json(Object value, String cacheControl) {
+        try {
+            return new ApiResponse(200, JsonUtil.getObjectMapper().writeValueAsBytes(value), cacheControl);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static ApiResponse error(int status, String message) {
+        try {
+            byte[] body = JsonUtil.getObjectMapper().writeValueAsBytes(Map.of("error", message, "status", status));
+            return new ApiResponse(status, body, NO_CACHE);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Bytes retained by the response: body, gzipped copy once built, headers
+     */
+    public long getFootprintBytes() {
+        byte[] compressed = gzipped;
+        return 128 + body.length + (compressed != null ? compressed.length : 0);
+    }
+
+    // ===== Sending =====
+
+    /**
+     * Send the response, honouring If-None-Match (304 without body) and Accept-Encoding: gzip
+     */
+    public void send(HttpExchange exchange) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", JSON_CONTENT_TYPE);
+        headers.set("Cache-Control", cacheControl);
+        headers.set("Vary", "Accept-Encoding");
+        if (etag != null) {
+            headers.set("ETag", etag);
+            if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+                NOT_MODIFIED.increment();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+        }
+
+        byte[] payload = body;
+        if (body.length >= GZIP_MIN_BYTES && acceptsGzip(exchange)) {
+            payload = gzipped();
+            headers.set("Content-Encoding", "gzip");
+            GZIPPED.increment();
+        }
+
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            headers.set("Content-Length", String.valueOf(payload.length));
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+
+        exchange.sendResponseHeaders(status, payload.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(payload);
+        }
+        BYTES_SENT.add(payload.length);
+    }
+
+    static boolean acceptsGzip(HttpExchange exchange) {
+        for (String value : exchange.getRequestHeaders().getOrDefault("Accept-Encoding", List.of())) {
+            for (String coding : value.split(",")) {
+                String name = coding.trim();
+                int parameters = name.indexOf(';');
+                if (parameters >= 0) {
+                    if (name.substring(parameters).replace(" ", "").equals(";q=0")) {
+                        continue;
+                    }
+                    name = name.substring(0, parameters).trim();
+                }
+                if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private byte[] gzipped() {
+        byte[] compressed = gzipped;
+        if (compressed == null) {
+            compressed = gzip(body);
+            gzipped = compressed;
+        }
+        return compressed;
+    }
+
+    static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(256, data.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer, 8192)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Strong validator: CRC32C and length of the body
+     */
+    private static String etagOf(byte[] data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data);
+        return "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(data.length) + "\"";
+    }
+}
@@ -0,0 +1,478 @@
+package com.rometransit.service.api;
+
+import com.rometransit.model.dto.ArrivalPrediction;
+import com.rometransit.model.entity.Route;
+import com.rometransit.model.entity.Stop;
+import com.rometransit.service.execution.ExecutionManager;
+import com.rometransit.service.gtfs.GTFSDataManager;
+import com.rometransit.service.gtfs.StopTimePager;
+import com.rometransit.service.gtfs.feed.DatasetShard;
+import com.rometransit.service.gtfs.feed.FeedShardManager;
+import com.rometransit.service.memory.GovernedMap;
+import com.rometransit.service.memory.MemoryGovernor;
+import com.rometransit.service.realtime.RealtimeDataSyncService;
+import com.rometransit.service.transit.ArrivalPredictionEngine;
+import com.rometransit.service.transit.ArrivalPredictionService;
+import com.rometransit.util.config.AppConfig;
+import com.rometransit.util.logging.Logger;
+import com.rometransit.util.metrics.Counter;
+import com.rometransit.util.metrics.MetricsRegistry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Read-only HTTP API over the transit engine, for kiosks sharing one headless instance
+ *
+ *   GET /api/health                   status of static data, realtime sync and streams
+ *   GET /api/stops                    all stops
+ *   GET /api/stops/{id}               a stop with the routes serving it
+ *   GET /api/stops/{id}/arrivals      arrival board (realtime + schedule)
+ *   GET /api/arrivals?lat=..&lon=..[&radius=300]  arrivals at the stops around a point, all feeds merged
+ *   GET /api/routes                   all routes
+ *   GET /api/routes/{id}              a route with its stops
+ *   GET /api/routes/{id}/vehicles     vehicles of a route
+ *   GET /api/search?q=...             stops and routes matching a query
+ *   GET /api/vehicles[?route=id]      latest vehicle snapshot
+ *   GET /api/vehicles/stream[?route=id]  Server-Sent Events, one "vehicles" event per realtime cycle
+ *
+ * Requests run on virtual threads (the "api-http" IO scope). Responses are serialized once
+ * and reused: static data until the feed is reloaded, boards while the board cache returns
+ * the same list, vehicles once per realtime cycle. All of them carry an ETag (304 on match)
+ * and are gzipped for clients that accept it.
+ */
+public class ApiServer {
+
+    private static final Logger logger = Logger.getLogger(ApiServer.class);
+
+    private static final Set<String> ENDPOINTS = Set.of("health", "stops", "arrivals", "routes", "search", "vehicles");
+    private static final int SEARCH_MIN_LENGTH = 2;
+    private static final int SEARCH_CACHE_SIZE = 512;
+    private static final int SEARCH_MAX_RESULTS = 20;
+    private static final double NEARBY_DEFAULT_RADIUS_METERS = 300;
+    private static final double NEARBY_MAX_RADIUS_METERS = 1000;
+    private static final int NEARBY_MAX_ARRIVALS = 50;
+
+    private static final Counter REQUESTS = MetricsRegistry.getInstance().counter("api.requests");
+    private static final Counter ERRORS = MetricsRegistry.getInstance().counter("api.errors");
+
+    private final HttpServer server;
+    private final GTFSDataManager dataManager;
+    private final ArrivalPredictionService predictionService;
+    private final VehicleEventStream vehicleStream;
+    private final long startedAt = System.currentTimeMillis();
+    private volatile RealtimeDataSyncService realtimeSyncService;
+
+    // Serialized responses (see class comment)
+    private final Map<String, ApiResponse> staticResponses = new ConcurrentHashMap<>();
+    private final Map<String, BoardResponse> boardResponses = new ConcurrentHashMap<>();
+    private final Map<String, ApiResponse> searchResponses = Collections.synchronizedMap(
+        new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ApiResponse> eldest) {
+                return size() > SEARCH_CACHE_SIZE;
+            }
+        });
+
+    /**
+     * Board response, valid while the board cache returns the same list within the same minute
+     * ("minutes" fields are relative to the time of serialization)
+     */
+    private record BoardResponse(List<ArrivalPrediction> board, long minute, ApiResponse response) {
+    }
+
+    public ApiServer(String bindAddress, int port) throws IOException {
+        this.dataManager = GTFSDataManager.getInstance();
+        this.predictionService = ArrivalPredictionService.getInstance();
+        this.vehicleStream = new VehicleEventStream(AppConfig.getInstance().getServerMaxStreamClients());
+
+        this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        this.server.setExecutor(ExecutionManager.getInstance().io("api-http"));
+        this.server.createContext("/api/", this::handle);
+
+        ArrivalPredictionEngine.getInstance().addBoardListener(new ArrivalPredictionEngine.BoardListener() {
+            @Override
+            public void onBoardsChanged(Set<String> stopIds) {
+                boardResponses.keySet().removeAll(stopIds);
+            }
+
+            @Override
+            public void onStaticDataReloaded() {
+                staticResponses.clear();
+                boardResponses.clear();
+                searchResponses.clear();
+            }
+        });
+
+        MemoryGovernor governor = MemoryGovernor.getInstance();
+        governor.register("api_static", "api-static", new GovernedMap<>(staticResponses, ApiResponse::getFootprintBytes));
+        governor.register("arrival_boards", "api-boards",
+            new GovernedMap<>(boardResponses, board -> board.response().getFootprintBytes()));
+        governor.register("search", "api-search", new GovernedMap<>(searchResponses, ApiResponse::getFootprintBytes));
+    }
+
+    public void start() {
+        vehicleStream.start();
+        server.start();
+        System.out.println("🌐 API listening on http://" + server.getAddress().getHostString() + ":" + getPort() + "/api/");
+    }
+
+    public void stop() {
+        vehicleStream.stop();
+        server.stop(1);
+        System.out.println("🛑 API server stopped");
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Realtime sync whose vehicle updates feed the snapshots and the event stream
+     */
+    public void attachRealtime(RealtimeDataSyncService syncService) {
+        this.realtimeSyncService = syncService;
+        syncService.addVehicleUpdateListener(vehicleStream);
+    }
+
+    // ===== Dispatch =====
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        REQUESTS.increment();
+
+        String method = exchange.getRequestMethod();
+        if (!method.equals("GET") && !method.equals("HEAD")) {
+            exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+            ApiResponse.error(405, "Method not allowed").send(exchange);
+            return;
+        }
+
+        String[] path = segments(exchange.getRequestURI().getRawPath());
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+
+        if (path.length == 2 && path[0].equals("vehicles") && path[1].equals("stream")) {
+            vehicleStream.subscribe(exchange, query.get("route"));
+            return;
+        }
+
+        ApiResponse response;
+        try {
+            response = dispatch(path, query);
+        } catch (RuntimeException e) {
+            ERRORS.increment();
+            logger.error("API error on " + exchange.getRequestURI() + ": " + e.getMessage());
+            response = ApiResponse.error(500, "Internal error");
+        }
+
+        try {
+            response.send(exchange);
+        } catch (IOException e) {
+            // Client went away mid-response
+            exchange.close();
+        }
+        MetricsRegistry.getInstance().histogram("api." + endpointName(path)).recordSince(start);
+    }
+
+    private ApiResponse dispatch(String[] path, Map<String, String> query) {
+        if (path.length == 0) {
+            return ApiResponse.error(404, "Not found");
+        }
+        switch (path[0]) {
+            case "health":
+                return path.length == 1 ? health() : notFound();
+            case "stops":
+                if (path.length == 1) return stops();
+                if (path.length == 2) return stop(path[1]);
+                if (path.length == 3 && path[2].equals("arrivals")) return arrivals(path[1]);
+                return notFound();
+            case "arrivals":
+                return path.length == 1 ? arrivalsNear(query) : notFound();
+            case "routes":
+                if (path.length == 1) return routes();
+                if (path.length == 2) return route(path[1]);
+                if (path.length == 3 && path[2].equals("vehicles")) return routeVehicles(path[1]);
+                return notFound();
+            case "search":
+                return path.length == 1 ? search(query.get("q")) : notFound();
+            case "vehicles":
+                return path.length == 1 ? vehicleStream.snapshot(query.get("route")) : notFound();
+            default:
+                return notFound();
+        }
+    }
+
+    // ===== Endpoints =====
+
+    private ApiResponse health() {
+        Map<String, Object> staticData = new LinkedHashMap<>();
+        staticData.put("loaded", dataManager.isStaticDataLoaded());
+        staticData.put("stops", dataManager.getAllStops().size());
+        staticData.put("routes", dataManager.getRouteCount());
+        StopTimePager.PagerStats timetable = dataManager.getStopTimePagerStats();
+        staticData.put("timetable", timetable != null ? "paged" : "memory");
+        GTFSDataManager.TimetableStatus timetableStatus = dataManager.getTimetableStatus();
+        staticData.put("timetableStatus", timetableStatus.name().toLowerCase());
+        if (timetableStatus == GTFSDataManager.TimetableStatus.CONVERTING) {
+            staticData.put("timetableConversionPercent", dataManager.getTimetableConversionPercent());
+        }
+        if (timetable != null) {
+            staticData.put("timetableCachedRows", timetable.rows);
+            staticData.put("timetableHitRate", Math.round(timetable.hitRate() * 10) / 10.0);
+        }
+
+        Map<String, Object> realtime = new LinkedHashMap<>();
+        RealtimeDataSyncService sync = realtimeSyncService;
+        if (sync != null) {
+            RealtimeDataSyncService.SyncMetrics metrics = sync.getMetrics();
+            realtime.put("running", metrics.isRunning());
+            realtime.put("healthy", sync.isHealthy());
+            realtime.put("lastSuccess", metrics.getLastSuccess() != null ? metrics.getLastSuccess().toString() : null);
+            realtime.put("usingCache", metrics.isUsingCache());
+        } else {
+            realtime.put("running", false);
+        }
+        realtime.put("vehicles", vehicleStream.getVehicleCount());
+        realtime.put("sequence", vehicleStream.getSequence());
+        realtime.put("streamClients", vehicleStream.getClientCount());
+
+        List<Map<String, Object>> feeds = new ArrayList<>();
+        for (DatasetShard.ShardStats shard : FeedShardManager.getInstance().getStats()) {
+            Map<String, Object> feed = new LinkedHashMap<>();
+            feed.put("id", shard.feedId);
+            feed.put("name", shard.name);
+            feed.put("stops", shard.stops);
+            feed.put("routes", shard.routes);
+            feed.put("trips", shard.trips);
+            feed.put("vehicles", shard.vehicles);
+            feed.put("lastLoad", shard.lastLoad != null ? shard.lastLoad.toString() : null);
+            feed.put("lastRealtime", shard.lastRealtime != null ? shard.lastRealtime.toString() : null);
+            feed.put("lastError", shard.lastError);
+            feeds.add(feed);
+        }
+
+        MemoryGovernor.GovernorStats governor = MemoryGovernor.getInstance().getStats();
+        Map<String, Object> memory = new LinkedHashMap<>();
+        memory.put("heapUsedMb", governor.heapUsed / (1024 * 1024));
+        memory.put("heapMaxMb", governor.heapMax / (1024 * 1024));
+        memory.put("budgetScale", governor.budgetScale);
+        memory.put("pressureEvents", governor.warnings + governor.criticals + governor.outOfMemory);
+        List<Map<String, Object>> caches = new ArrayList<>();
+        for (MemoryGovernor.CacheFootprint cache : governor.caches) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("category", cache.category);
+            entry.put("name", cache.name);
+            entry.put("entries", cache.entries);
+            entry.put("bytes", cache.footprintBytes);
+            entry.put("budgetBytes", cache.budgetBytes);
+            caches.add(entry);
+        }
+        memory.put("caches", caches);
+
+        Map<String, Object> health = new LinkedHashMap<>();
+        String status = dataManager.isStaticDataLoaded() ? "ok" : "loading";
+        if (timetableStatus == GTFSDataManager.TimetableStatus.UNAVAILABLE) {
+            status = "degraded"; // Stops and routes are served, schedules are not
+        }
+        health.put("status", status);
+        health.put("version", AppConfig.getInstance().getAppVersion());
+        health.put("uptimeSeconds", (System.currentTimeMillis() - startedAt) / 1000);
+        health.put("staticData", staticData);
+        health.put("realtime", realtime);
+        health.put("feeds", feeds);
+        health.put("memory", memory);
+        return ApiResponse.json(health, ApiResponse.NO_CACHE);
+    }
+
+    private ApiResponse stops() {
+        return cachedStatic("stops", () -> ApiViews.list(dataManager.getAllStops(), ApiViews::stop));
+    }
+
+    private ApiResponse stop(String stopId) {
+        if (dataManager.getStopById(stopId) == null) {
+            return ApiResponse.error(404, "Unknown stop " + stopId);
+        }
+        return cachedStatic("stop:" + stopId, () -> {
+            Map<String, Object> view = ApiViews.stop(dataManager.getStopById(stopId));
+            view.put("routes", ApiViews.list(predictionService.getRoutesForStop(stopId), ApiViews::route));
+            return view;
+        });
+    }
+
+    private ApiResponse arrivals(String stopId) {
+        if (dataManager.getStopById(stopId) == null) {
+            return ApiResponse.error(404, "Unknown stop " + stopId);
+        }
+
+        List<ArrivalPrediction> board = predictionService.getPredictionsForStop(stopId);
+        LocalDateTime now = LocalDateTime.now();
+        long minute = System.currentTimeMillis() / 60_000;
+
+        BoardResponse cached = boardResponses.get(stopId);
+        if (cached != null && cached.board() == board && cached.minute() == minute) {
+            return cached.response();
+        }
+
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("stopId", stopId);
+        view.put("generatedAt", now.toString());
+        view.put("arrivals", ApiViews.list(board, arrival -> ApiViews.arrival(arrival, now)));
+        ApiResponse response = ApiResponse.json(view, ApiResponse.NO_CACHE);
+        boardResponses.put(stopId, new BoardResponse(board, minute, response));
+        return response;
+    }
+
+    /**
+     * Arrivals around a point, merged across the primary feed and the extra feed shards
+     */
+    private ApiResponse arrivalsNear(Map<String, String> query) {
+        double lat;
+        double lon;
+        double radius;
+        try {
+            lat = Double.parseDouble(query.getOrDefault("lat", ""));
+            lon = Double.parseDouble(query.getOrDefault("lon", ""));
+            radius = query.containsKey("radius") ? Double.parseDouble(query.get("radius")) : NEARBY_DEFAULT_RADIUS_METERS;
+        } catch (NumberFormatException e) {
+            return ApiResponse.error(400, "lat and lon are required, radius is in meters");
+        }
+        if (radius <= 0 || radius > NEARBY_MAX_RADIUS_METERS) {
+            return ApiResponse.error(400, "radius must be between 1 and " + (int) NEARBY_MAX_RADIUS_METERS + " meters");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<ArrivalPrediction> arrivals = predictionService.getPredictionsNear(lat, lon, radius / 1000.0, NEARBY_MAX_ARRIVALS);
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("lat", lat);
+        view.put("lon", lon);
+        view.put("radius", radius);
+        view.put("generatedAt", now.toString());
+        view.put("arrivals", ApiViews.list(arrivals, arrival -> {
+            Map<String, Object> item = ApiViews.arrival(arrival, now);
+            item.put("stopId", arrival.getStopId());
+            return item;
+        }));
+        return ApiResponse.json(view, ApiResponse.NO_CACHE);
+    }
+
+    private ApiResponse routes() {
+        return cachedStatic("routes", () -> ApiViews.list(dataManager.getAllRoutes(), ApiViews::route));
+    }
+
+    private ApiResponse route(String routeId) {
+        if (dataManager.getRouteById(routeId) == null) {
+            return ApiResponse.error(404, "Unknown route " + routeId);
+        }
+        return cachedStatic("route:" + routeId, () -> {
+            Map<String, Object> view = ApiViews.route(dataManager.getRouteById(routeId));
+            view.put("stops", ApiViews.list(dataManager.getStopsForRoute(routeId), ApiViews::stop));
+            return view;
+        });
+    }
+
+    private ApiResponse routeVehicles(String routeId) {
+        if (dataManager.getRouteById(routeId) == null) {
+            return ApiResponse.error(404, "Unknown route " + routeId);
+        }
+        return vehicleStream.snapshot(routeId);
+    }
+
+    private ApiResponse search(String rawQuery) {
+        String query = rawQuery != null ? rawQuery.trim().toLowerCase(Locale.ROOT) : "";
+        if (query.length() < SEARCH_MIN_LENGTH) {
+            return ApiResponse.error(400, "Query must have at least " + SEARCH_MIN_LENGTH + " characters");
+        }
+
+        ApiResponse cached = searchResponses.get(query);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<Stop> stops = dataManager.searchStops(query);
+        List<Route> routes = dataManager.searchRoutes(query);
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("query", query);
+        view.put("stops", ApiViews.list(stops.subList(0, Math.min(stops.size(), SEARCH_MAX_RESULTS)), ApiViews::stop));
+        view.put("routes", ApiViews.list(routes.subList(0, Math.min(routes.size(), SEARCH_MAX_RESULTS)), ApiViews::route));
+        ApiResponse response = ApiResponse.json(view, ApiResponse.SHORT_LIVED);
+        if (dataManager.isStaticDataLoaded()) {
+            searchResponses.put(query, response);
+        }
+        return response;
+    }
+
+    private ApiResponse cachedStatic(String key, Supplier<Object> view) {
+        ApiResponse cached = staticResponses.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        ApiResponse response = ApiResponse.json(view.get(), ApiResponse.STATIC_DATA);
+        // Nothing is cached while the import is still running
+        if (dataManager.isStaticDataLoaded()) {
+            staticResponses.put(key, response);
+        }
+        return response;
+    }
+
+    private static ApiResponse notFound() {
+        return ApiResponse.error(404, "Not found");
+    }
+
+    // ===== Request parsing =====
+
+    /**
+     * Decoded path segments after /api
+     */
+    private static String[] segments(String rawPath) {
+        String path = rawPath.startsWith("/api") ? rawPath.substring(4) : rawPath;
+        String[] parts = path.split("/");
+        return Arrays.stream(parts)
+            .filter(part -> !part.isEmpty())
+            .map(part -> URLDecoder.decode(part, StandardCharsets.UTF_8))
+            .toArray(String[]::new);
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals >= 0 ? pair.substring(0, equals) : pair;
+            String value = equals >= 0 ? pair.substring(equals + 1) : "";
+            params.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                               URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * Histogram name of a request: the route pattern, ids left out
+     */
+    private static String endpointName(String[] path) {
+        if (path.length == 0 || path.length > 3 || !ENDPOINTS.contains(path[0])) {
+            return "not_found";
+        }
+        if (path.length == 3 && !path[2].equals("arrivals") && !path[2].equals("vehicles")) {
+            return "not_found";
+        }
+        return path.length == 1 ? path[0] : path.length == 2 ? path[0] + ".id" : path[0] + ".id." + path[2];
+    }
+}
@@ -0,0 +1,94 @@
+package com.rometransit.service.api;
+
+import com.rometransit.model.dto.ArrivalPrediction;
+import com.rometransit.model.dto.VehiclePosition;
+import com.rometransit.model.entity.Route;
+import com.rometransit.model.entity.Stop;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * JSON shapes of the API: flat maps with stable field names, independent of the entity classes
+ */
+final class ApiViews {
+
+    private ApiViews() {
+    }
+
+    static Map<String, Object> stop(Stop stop) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", stop.getStopId());
+        view.put("code", stop.getStopCode());
+        view.put("name", stop.getStopName());
+        view.put("lat", stop.getStopLat());
+        view.put("lon", stop.getStopLon());
+        view.put("wheelchairBoarding", stop.getWheelchairBoarding());
+        return view;
+    }
+
+    static Map<String, Object> route(Route route) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", route.getRouteId());
+        view.put("shortName", route.getRouteShortName());
+        view.put("longName", route.getRouteLongName());
+        view.put("type", route.getRouteType() != null ? route.getRouteType().name() : null);
+        view.put("color", route.getRouteColor());
+        view.put("textColor", route.getRouteTextColor());
+        return view;
+    }
+
+    static Map<String, Object> arrival(ArrivalPrediction arrival, LocalDateTime now) {
+        LocalDateTime scheduled = arrival.getScheduledArrival();
+        LocalDateTime expected = arrival.getPredictedArrival() != null ? arrival.getPredictedArrival() : scheduled;
+
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("tripId", arrival.getTripId());
+        view.put("routeId", arrival.getRouteId());
+        view.put("routeShortName", arrival.getRoute() != null ? arrival.getRoute().getRouteShortName() : null);
+        view.put("headsign", arrival.getHeadsign());
+        view.put("scheduledArrival", scheduled != null ? scheduled.toString() : null);
+        view.put("expectedArrival", expected != null ? expected.toString() : null);
+        view.put("minutes", expected != null ? Duration.between(now, expected).toMinutes() : null);
+        view.put("delaySeconds", arrival.getDelaySeconds());
+        view.put("realtime", arrival.isRealtime());
+        view.put("vehicleId", arrival.getVehicleId());
+        view.put("stopSequence", arrival.getStopSequence());
+        view.put("scheduleRelationship", arrival.getScheduleRelationship());
+        return view;
+    }
+
+    static Map<String, Object> vehicle(VehiclePosition vehicle) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("id", vehicle.getVehicleId());
+        view.put("routeId", vehicle.getRouteId());
+        view.put("tripId", vehicle.getTripId());
+        view.put("directionId", vehicle.getDirectionId());
+        view.put("lat", vehicle.getLatitude());
+        view.put("lon", vehicle.getLongitude());
+        view.put("bearing", vehicle.getBearing());
+        view.put("speed", vehicle.getSpeed());
+        view.put("status", vehicle.getStatus() != null ? vehicle.getStatus().name() : null);
+        view.put("currentStopId", vehicle.getCurrentStopId());
+        view.put("delaySeconds", vehicle.getDelaySeconds());
+        view.put("occupancy", vehicle.getOccupancyLevel());
+        view.put("timestamp", vehicle.getTimestamp());
+        return view;
+    }
+
+    static <T> List<Map<String, Object>> list(Collection<T> items, Function<T, Map<String, Object>> view) {
+        List<Map<String, Object>> views = new ArrayList<>(items.size());
+        for (T item : items) {
+            if (item != null) {
+                views.add(view.apply(item));
+            }
+        }
+        return views;
+    }
+}
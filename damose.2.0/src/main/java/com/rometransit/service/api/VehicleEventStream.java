@@ -0,0 +1,279 @@
+package com.rometransit.service.api;
+
+import com.rometransit.model.dto.VehiclePosition;
+import com.rometransit.service.execution.ExecutionManager;
+import com.rometransit.service.execution.TaskScope;
+import com.rometransit.ui.listener.VehicleUpdateListener;
+import com.rometransit.util.logging.Logger;
+import com.rometransit.util.metrics.Counter;
+import com.rometransit.util.metrics.MetricsRegistry;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Vehicle snapshots of each realtime cycle, for polling (/api/vehicles) and as a
+ * Server-Sent Events stream (/api/vehicles/stream).
+ *
+ * Every update is serialized once (once per route filter in use) and handed to each client
+ * on its own virtual thread. A client still writing the previous event gets only the latest
+ * one afterwards, so a slow kiosk never holds back the others. Streams are gzipped with a
+ * sync flush per event when the client accepts it.
+ */
+public class VehicleEventStream implements VehicleUpdateListener {
+
+    private static final Logger logger = Logger.getLogger(VehicleEventStream.class);
+
+    private static final long HEARTBEAT_SECONDS = 15;
+    private static final long RETRY_MILLIS = 5000;
+
+    private static final Counter EVENTS_SENT = MetricsRegistry.getInstance().counter("api.sse.events");
+    private static final Counter EVENTS_COALESCED = MetricsRegistry.getInstance().counter("api.sse.coalesced");
+
+    private final int maxClients;
+    private final TaskScope scope = ExecutionManager.getInstance().io("api-sse");
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final Map<String, ApiResponse> routeSnapshots = new ConcurrentHashMap<>();
+    private volatile List<VehiclePosition> positions = List.of();
+    private volatile ApiResponse snapshot;
+    private volatile long sequence;
+    private volatile long updatedAt;
+    private ExecutionManager.PeriodicTask heartbeat;
+
+    public VehicleEventStream(int maxClients) {
+        this.maxClients = maxClients;
+        this.snapshot = ApiResponse.json(payload(positions), ApiResponse.NO_CACHE);
+        MetricsRegistry.getInstance().gauge("api.sse.clients", clients::size);
+    }
+
+    public void start() {
+        heartbeat = ExecutionManager.getInstance().scheduleAtFixedRate(scope, this::heartbeat,
+            HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public void stop() {
+        if (heartbeat != null) {
+            heartbeat.cancel();
+        }
+        for (Client client : clients) {
+            client.close();
+        }
+        clients.clear();
+    }
+
+    // ===== Snapshots =====
+
+    @Override
+    public void onVehiclesUpdated(List<VehiclePosition> positions) {
+        this.positions = List.copyOf(positions);
+        this.sequence++;
+        this.updatedAt = System.currentTimeMillis();
+        this.snapshot = ApiResponse.json(payload(this.positions), ApiResponse.NO_CACHE);
+        routeSnapshots.clear();
+        broadcast();
+    }
+
+    /**
+     * Current snapshot, all vehicles or those of one route
+     */
+    public ApiResponse snapshot(String routeId) {
+        if (routeId == null || routeId.isEmpty()) {
+            return snapshot;
+        }
+        return routeSnapshots.computeIfAbsent(routeId,
+            id -> ApiResponse.json(payload(filter(positions, id)), ApiResponse.NO_CACHE));
+    }
+
+    public int getVehicleCount() {
+        return positions.size();
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    private Map<String, Object> payload(List<VehiclePosition> vehicles) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("sequence", sequence);
+        payload.put("updatedAt", updatedAt);
+        payload.put("count", vehicles.size());
+        payload.put("vehicles", ApiViews.list(vehicles, ApiViews::vehicle));
+        return payload;
+    }
+
+    private static List<VehiclePosition> filter(List<VehiclePosition> positions, String routeId) {
+        List<VehiclePosition> matching = new ArrayList<>();
+        for (VehiclePosition position : positions) {
+            if (routeId.equals(position.getRouteId())) {
+                matching.add(position);
+            }
+        }
+        return matching;
+    }
+
+    // ===== Stream =====
+
+    /**
+     * Take over the exchange as an event stream; the handler thread returns right away
+     */
+    public void subscribe(HttpExchange exchange, String routeId) throws IOException {
+        if (clients.size() >= maxClients) {
+            ApiResponse.error(503, "Too many stream clients").send(exchange);
+            return;
+        }
+
+        boolean gzip = ApiResponse.acceptsGzip(exchange);
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", "text/event-stream; charset=utf-8");
+        headers.set("Cache-Control", "no-cache");
+        headers.set("X-Accel-Buffering", "no");
+        if (gzip) {
+            headers.set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(200, 0);
+
+        Client client = new Client(exchange, routeId, gzip);
+        clients.add(client);
+        byte[] retry = ("retry: " + RETRY_MILLIS + "\n\n").getBytes(StandardCharsets.UTF_8);
+        byte[] first = event(snapshot(routeId));
+        byte[] greeting = new byte[retry.length + first.length];
+        System.arraycopy(retry, 0, greeting, 0, retry.length);
+        System.arraycopy(first, 0, greeting, retry.length, first.length);
+        client.offer(greeting);
+        logger.info("SSE client connected (" + clients.size() + " open)" +
+                    (routeId != null ? " for route " + routeId : ""));
+    }
+
+    private void broadcast() {
+        if (clients.isEmpty()) {
+            return;
+        }
+        Map<String, byte[]> events = new HashMap<>();
+        for (Client client : clients) {
+            String key = client.routeId != null ? client.routeId : "";
+            client.offer(events.computeIfAbsent(key, id -> event(snapshot(id))));
+        }
+    }
+
+    private void heartbeat() {
+        byte[] comment = (": keep-alive " + System.currentTimeMillis() + "\n\n").getBytes(StandardCharsets.UTF_8);
+        for (Client client : clients) {
+            client.offerIfIdle(comment);
+        }
+    }
+
+    private byte[] event(ApiResponse response) {
+        byte[] json = response.getBody();
+        byte[] header = ("id: " + sequence + "\nevent: vehicles\ndata: ").getBytes(StandardCharsets.UTF_8);
+        byte[] event = new byte[header.length + json.length + 2];
+        System.arraycopy(header, 0, event, 0, header.length);
+        System.arraycopy(json, 0, event, header.length, json.length);
+        event[event.length - 2] = '\n';
+        event[event.length - 1] = '\n';
+        return event;
+    }
+
+    /**
+     * One connected stream. Writes run on the SSE scope, one at a time per client; events
+     * offered meanwhile replace each other, heartbeats only go out when nothing is pending.
+     */
+    private final class Client {
+        private final HttpExchange exchange;
+        private final String routeId;
+        private final OutputStream out;
+        private final AtomicReference<byte[]> pending = new AtomicReference<>();
+        private final AtomicBoolean writing = new AtomicBoolean(false);
+        private volatile boolean closed;
+
+        Client(HttpExchange exchange, String routeId, boolean gzip) throws IOException {
+            this.exchange = exchange;
+            this.routeId = routeId;
+            this.out = gzip
+                ? new GZIPOutputStream(exchange.getResponseBody(), 8192, true)
+                : exchange.getResponseBody();
+        }
+
+        void offer(byte[] event) {
+            if (closed) {
+                return;
+            }
+            if (pending.getAndSet(event) != null) {
+                EVENTS_COALESCED.increment();
+            }
+            schedule();
+        }
+
+        void offerIfIdle(byte[] comment) {
+            if (!closed && pending.compareAndSet(null, comment)) {
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (writing.compareAndSet(false, true)) {
+                try {
+                    scope.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                    close();
+                }
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                byte[] event = pending.getAndSet(null);
+                if (event == null) {
+                    writing.set(false);
+                    // An offer may have landed between the empty read and the flag reset
+                    if (pending.get() != null && writing.compareAndSet(false, true)) {
+                        continue;
+                    }
+                    return;
+                }
+                try {
+                    out.write(event);
+                    out.flush();
+                    EVENTS_SENT.increment();
+                } catch (IOException | RuntimeException e) {
+                    // Disconnected, or closed by stop() mid-write
+                    close();
+                    return;
+                }
+            }
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            clients.remove(this);
+            try {
+                out.close();
+            } catch (IOException e) {
+                // Client already gone
+            }
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.rometransit.service.dashboard;
+
+import com.rometransit.data.repository.IncidentRepository;
+import com.rometransit.model.converter.VehiclePositionConverter;
+import com.rometransit.model.dto.VehiclePosition;
+import com.rometransit.model.dto.dashboard.VehicleCrowdingData;
+import com.rometransit.model.entity.Route;
+import com.rometransit.model.entity.TransportIncident;
+import com.rometransit.model.entity.Vehicle;
+import com.rometransit.model.enums.VehicleStatus;
+import com.rometransit.service.gtfs.GTFSDataManager;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Streaming aggregator behind the dashboard metrics.
+ *
+ * Consumes each realtime cycle's vehicles once and keeps the counters incrementally:
+ * vehicles by status, vehicles per route (and so route coverage), and a crowding ranking
+ * ordered by occupancy. Every change publishes an immutable {@link DashboardSnapshot};
+ * dashboard reads return the current snapshot without touching the database.
+ */
+public class DashboardMetricsAggregator {
+
+    private static DashboardMetricsAggregator instance;
+
+    // Same horizon as the stale vehicle cleanup of the realtime sync
+    private static final long VEHICLE_EXPIRY_MS = 10 * 60 * 1000L;
+    private static final int CROWDING_TOP_K = 100;
+
+    private final Map<String, VehicleState> vehicles = new HashMap<>();
+    private final int[] statusCounts = new int[VehicleStatus.values().length];
+    private final Map<String, Integer> vehiclesByRoute = new HashMap<>();
+    private final TreeSet<VehicleState> crowdingRanking = new TreeSet<>(VehicleState.BY_CROWDING);
+    private final Map<String, String> routeNames = new HashMap<>();
+
+    private volatile DashboardSnapshot snapshot;
+    private long cycles;
+    private boolean seeded;
+
+    private DashboardMetricsAggregator() {
+        this.snapshot = DashboardSnapshot.EMPTY;
+    }
+
+    public static synchronized DashboardMetricsAggregator getInstance() {
+        if (instance == null) {
+            instance = new DashboardMetricsAggregator();
+        }
+        return instance;
+    }
+
+    // ===== Realtime cycle input =====
+
+    /**
+     * Apply the vehicles of one realtime cycle (converted and enriched with capacity)
+     */
+    public synchronized void onVehicleCycle(Collection<Vehicle> cycleVehicles) {
+        long now = System.currentTimeMillis();
+        seeded = true;
+
+        for (Vehicle vehicle : cycleVehicles) {
+            if (vehicle.getVehicleId() == null) {
+                continue;
+            }
+            VehicleState previous = vehicles.get(vehicle.getVehicleId());
+            VehicleState current = new VehicleState(vehicle, now);
+            if (previous != null) {
+                remove(previous);
+            }
+            add(current);
+            vehicles.put(current.vehicleId, current);
+        }
+
+        // Vehicles not reported for a while leave the counters
+        Iterator<VehicleState> iterator = vehicles.values().iterator();
+        while (iterator.hasNext()) {
+            VehicleState state = iterator.next();
+            if (now - state.lastSeenMillis > VEHICLE_EXPIRY_MS) {
+                remove(state);
+                iterator.remove();
+            }
+        }
+
+        cycles++;
+        publish();
+    }
+
+    private void add(VehicleState state) {
+        statusCounts[state.status.ordinal()]++;
+        if (state.routeId != null) {
+            vehiclesByRoute.merge(state.routeId, 1, Integer::sum);
+        }
+        if (state.capacity > 0) {
+            crowdingRanking.add(state);
+        }
+    }
+
+    private void remove(VehicleState state) {
+        statusCounts[state.status.ordinal()]--;
+        if (state.routeId != null) {
+            vehiclesByRoute.computeIfPresent(state.routeId, (k, count) -> count > 1 ? count - 1 : null);
+        }
+        if (state.capacity > 0) {
+            crowdingRanking.remove(state);
+        }
+    }
+
+    // ===== Snapshot =====
+
+    /**
+     * Current metrics; rebuilt only when the incident set changed since the last publish
+     */
+    public DashboardSnapshot getSnapshot() {
+        DashboardSnapshot current = snapshot;
+        if (!current.seeded || current.incidentVersion != IncidentRepository.getInstance().getVersion()) {
+            synchronized (this) {
+                if (!seeded) {
+                    seedFromDataManager();
+                }
+                if (snapshot.incidentVersion != IncidentRepository.getInstance().getVersion() || !snapshot.seeded) {
+                    publish();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Before the first realtime cycle, start from the primary feed's vehicles GTFSDataManager
+     * already holds (the last cycle, or the positions it restored from the database)
+     */
+    private void seedFromDataManager() {
+        seeded = true;
+        List<VehiclePosition> positions = GTFSDataManager.getInstance().getPrimaryVehiclePositions();
+        if (positions.isEmpty()) {
+            return;
+        }
+
+        VehiclePositionConverter converter = new VehiclePositionConverter();
+        List<Vehicle> cached = new ArrayList<>(positions.size());
+        for (VehiclePosition position : positions) {
+            try {
+                cached.add(converter.convertToEntity(position));
+            } catch (Exception e) {
+                // Skip invalid cached rows
+            }
+        }
+        onVehicleCycle(cached);
+        System.out.println("📊 Dashboard metrics seeded with " + cached.size() + " cached vehicles");
+    }
+
+    private void publish() {
+        IncidentRepository incidents = IncidentRepository.getInstance();
+        long incidentVersion = incidents.getVersion();
+
+        int active = statusCounts[VehicleStatus.IN_TRANSIT_TO.ordinal()] + statusCounts[VehicleStatus.STOPPED_AT.ordinal()];
+        int inactive = statusCounts[VehicleStatus.UNKNOWN.ordinal()];
+        int incoming = statusCounts[VehicleStatus.INCOMING_AT.ordinal()];
+        int total = vehicles.size();
+
+        // Cycles carry the primary feed's vehicles: extra feed shards would dilute the coverage
+        int totalRoutes = GTFSDataManager.getInstance().getPrimaryRouteCount();
+        int coveredRoutes = vehiclesByRoute.size();
+
+        List<VehicleCrowdingData> crowding = new ArrayList<>(Math.min(CROWDING_TOP_K, crowdingRanking.size()));
+        for (VehicleState state : crowdingRanking) {
+            if (crowding.size() == CROWDING_TOP_K) {
+                break;
+            }
+            crowding.add(new VehicleCrowdingData(state.vehicleId, state.routeId, routeName(state.routeId), state.occupancy, state.capacity));
+        }
+
+        int high = incidents.countActiveBySeverity(TransportIncident.Severity.HIGH);
+        int medium = incidents.countActiveBySeverity(TransportIncident.Severity.MEDIUM);
+        int low = incidents.countActiveBySeverity(TransportIncident.Severity.LOW);
+
+        double vehicleScore = total > 0 ? active * 100.0 / total : 0;
+        double incidentScore = Math.max(100 - (high * 15 + medium * 8 + low * 3), 0);
+        double punctualityScore = 100.0; // No network-wide delay figure yet
+        double coverageScore = totalRoutes > 0 ? Math.min(coveredRoutes * 100.0 / totalRoutes, 100.0) : 100.0;
+        double qualityScore = vehicleScore * 0.3 + incidentScore * 0.25 + punctualityScore * 0.25 + coverageScore * 0.2;
+
+        snapshot = new DashboardSnapshot(seeded, active, inactive, incoming, total,
+            Collections.unmodifiableMap(new HashMap<>(vehiclesByRoute)), coveredRoutes, totalRoutes,
+            Collections.unmodifiableList(crowding), high + medium + low, high,
+            vehicleScore, incidentScore, coverageScore, qualityScore,
+            incidentVersion, cycles, LocalDateTime.now());
+    }
+
+    private String routeName(String routeId) {
+        if (routeId == null) {
+            return "Unknown Route";
+        }
+        String name = routeNames.get(routeId);
+        if (name == null) {
+            // Unknown routes are not cached, static data may still be loading
+            Route route = GTFSDataManager.getInstance().getRouteById(routeId);
+            if (route == null) {
+                return "Unknown Route";
+            }
+            name = route.getRouteLongName() != null && !route.getRouteLongName().isEmpty()
+                    ? route.getRouteLongName()
+                    : (route.getRouteShortName() != null ? route.getRouteShortName() : route.getRouteId());
+            routeNames.put(routeId, name);
+        }
+        return name;
+    }
+
+    /**
+     * Last reported state of a vehicle, immutable so it can be removed from the ranking by value
+     */
+    private static class VehicleState {
+        static final Comparator<VehicleState> BY_CROWDING = Comparator
+            .comparingDouble((VehicleState s) -> s.occupancyRatio).reversed()
+            .thenComparing(s -> s.vehicleId);
+
+        final String vehicleId;
+        final String routeId;
+        final VehicleStatus status;
+        final int occupancy;
+        final int capacity;
+        final double occupancyRatio;
+        final long lastSeenMillis;
+
+        VehicleState(Vehicle vehicle, long lastSeenMillis) {
+            this.vehicleId = vehicle.getVehicleId();
+            this.routeId = vehicle.getRouteId();
+            this.status = vehicle.getCurrentStatus() != null ? vehicle.getCurrentStatus() : VehicleStatus.UNKNOWN;
+            this.occupancy = vehicle.getOccupancyStatus();
+            this.capacity = vehicle.getCapacity();
+            this.occupancyRatio = capacity > 0 ? (double) occupancy / capacity : 0;
+            this.lastSeenMillis = lastSeenMillis;
+        }
+    }
+
+    /**
+     * Immutable, internally consistent view of the dashboard metrics
+     */
+    public static class DashboardSnapshot {
+        static final DashboardSnapshot EMPTY = new DashboardSnapshot(false, 0, 0, 0, 0,
+            Collections.emptyMap(), 0, 0, Collections.emptyList(), 0, 0, 0, 100, 100, 0, -1, 0, LocalDateTime.now());
+
+        final boolean seeded;
+        public final int activeVehicles;       // IN_TRANSIT_TO + STOPPED_AT
+        public final int inactiveVehicles;     // UNKNOWN status
+        public final int incomingVehicles;     // INCOMING_AT
+        public final int totalVehicles;
+        public final Map<String, Integer> vehiclesByRoute;
+        public final int coveredRoutes;
+        public final int totalRoutes;
+        public final List<VehicleCrowdingData> crowding; // Most crowded first, top K
+        public final int activeIncidents;
+        public final int highSeverityIncidents;
+        public final double vehicleScore;
+        public final double incidentScore;
+        public final double coverageScore;
+        public final double qualityScore;
+        final long incidentVersion;
+        public final long cycles;
+        public final LocalDateTime timestamp;
+
+        DashboardSnapshot(boolean seeded, int activeVehicles, int inactiveVehicles, int incomingVehicles,
+                          int totalVehicles, Map<String, Integer> vehiclesByRoute, int coveredRoutes,
+                          int totalRoutes, List<VehicleCrowdingData> crowding, int activeIncidents,
+                          int highSeverityIncidents, double vehicleScore, double incidentScore,
+                          double coverageScore, double qualityScore, long incidentVersion, long cycles,
+                          LocalDateTime timestamp) {
+            this.seeded = seeded;
+            this.activeVehicles = activeVehicles;
+            this.inactiveVehicles = inactiveVehicles;
+            this.incomingVehicles = incomingVehicles;
+            this.totalVehicles = totalVehicles;
+            this.vehiclesByRoute = vehiclesByRoute;
+            this.coveredRoutes = coveredRoutes;
+            this.totalRoutes = totalRoutes;
+            this.crowding = crowding;
+            this.activeIncidents = activeIncidents;
+            this.highSeverityIncidents = highSeverityIncidents;
+            this.vehicleScore = vehicleScore;
+            this.incidentScore = incidentScore;
+            this.coverageScore = coverageScore;
+            this.qualityScore = qualityScore;
+            this.incidentVersion = incidentVersion;
+            this.cycles = cycles;
+            this.timestamp = timestamp;
+        }
+
+        public int getVehicleCount(String routeId) {
+            return vehiclesByRoute.getOrDefault(routeId, 0);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("DashboardSnapshot{vehicles=%d (active=%d, inactive=%d, incoming=%d), " +
+                "routes=%d/%d, crowding=%d, incidents=%d (high=%d), quality=%.1f}",
+                totalVehicles, activeVehicles, inactiveVehicles, incomingVehicles,
+                coveredRoutes, totalRoutes, crowding.size(), activeIncidents, highSeverityIncidents, qualityScore);
+        }
+    }
+}
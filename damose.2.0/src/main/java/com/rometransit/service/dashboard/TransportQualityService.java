@@ -2,44 +2,53 @@ package com.rometransit.service.dashboard;
 
 import com.rometransit.model.entity.*;
 import com.rometransit.service.gtfs.GTFSDataManager;
-import com.rometransit.model.enums.VehicleStatus;
 import com.rometransit.data.repository.VehicleRepository;
 import com.rometransit.data.repository.IncidentRepository;
+import com.rometransit.service.realtime.ServiceAlertStore;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Service for analyzing transport quality and generating dashboard metrics
- * Uses real data from database repositories
+ * Vehicle metrics come from the DashboardMetricsAggregator snapshot, incidents from the repositories
  */
 public class TransportQualityService {
 
     private final GTFSDataManager gtfsDataManager;
     private final VehicleRepository vehicleRepository;
     private final IncidentRepository incidentRepository;
-    private TransportMetrics currentMetrics;
+    private final DashboardMetricsAggregator metricsAggregator;
 
     public TransportQualityService(GTFSDataManager gtfsDataManager) {
         this.gtfsDataManager = gtfsDataManager;
         this.vehicleRepository = new VehicleRepository();
-        this.incidentRepository = new IncidentRepository();
+        this.incidentRepository = IncidentRepository.getInstance();
+        this.metricsAggregator = DashboardMetricsAggregator.getInstance();
     }
 
     public TransportQualityService(GTFSDataManager gtfsDataManager, VehicleRepository vehicleRepository, IncidentRepository incidentRepository) {
         this.gtfsDataManager = gtfsDataManager;
         this.vehicleRepository = vehicleRepository;
         this.incidentRepository = incidentRepository;
+        this.metricsAggregator = DashboardMetricsAggregator.getInstance();
     }
 
     /**
      * Get comprehensive transport quality metrics
      */
     public TransportMetrics getTransportMetrics() {
-        updateMetrics();
-        return currentMetrics;
+        DashboardMetricsAggregator.DashboardSnapshot snapshot = metricsAggregator.getSnapshot();
+        return new TransportMetrics(
+            snapshot.activeVehicles,
+            snapshot.inactiveVehicles,
+            snapshot.incomingVehicles,
+            snapshot.activeIncidents,
+            snapshot.highSeverityIncidents,
+            0.0, // avgDelay - can be calculated from real-time data if available
+            snapshot.qualityScore,
+            snapshot.timestamp
+        );
     }
 
     /**
@@ -52,57 +61,26 @@ public class TransportQualityService {
 
     /**
      * Get current incidents affecting transport
-     * Returns active incidents from database
+     * Returns the active incidents and service alerts, highest severity first (unmodifiable)
      */
     public List<TransportIncident> getCurrentIncidents() {
-        return incidentRepository.findActiveIncidents();
+        List<TransportIncident> alerts = ServiceAlertStore.getInstance().getActiveAlertIncidents();
+        if (alerts.isEmpty()) {
+            return incidentRepository.findActiveIncidents();
+        }
+
+        List<TransportIncident> incidents = new ArrayList<>(incidentRepository.findActiveIncidents());
+        incidents.addAll(alerts);
+        incidents.sort(Comparator.comparing(TransportIncident::getSeverity).reversed());
+        return Collections.unmodifiableList(incidents);
     }
 
     /**
-     * Get crowding data for all active vehicles
-     * Returns list of VehicleCrowdingData sorted by occupancy percentage (highest first)
-     * Uses real data from vehicle repository
+     * Get crowding data for the most crowded active vehicles
+     * Returns list of VehicleCrowdingData sorted by occupancy percentage (highest first, unmodifiable)
      */
     public List<com.rometransit.model.dto.dashboard.VehicleCrowdingData> getCrowdingData() {
-        List<com.rometransit.model.dto.dashboard.VehicleCrowdingData> crowdingList = new ArrayList<>();
-
-        try {
-            List<Vehicle> activeVehicles = vehicleRepository.findActiveVehicles();
-
-            for (Vehicle vehicle : activeVehicles) {
-                // Skip vehicles without occupancy data
-                if (vehicle.getCapacity() == 0) continue;
-
-                // Get route information
-                Route route = gtfsDataManager.getRouteById(vehicle.getRouteId());
-                String routeName = "Unknown Route";
-
-                if (route != null) {
-                    routeName = route.getRouteLongName() != null && !route.getRouteLongName().isEmpty()
-                            ? route.getRouteLongName()
-                            : (route.getRouteShortName() != null ? route.getRouteShortName() : route.getRouteId());
-                }
-
-                // Create crowding data object
-                com.rometransit.model.dto.dashboard.VehicleCrowdingData data =
-                    new com.rometransit.model.dto.dashboard.VehicleCrowdingData(
-                        vehicle.getRouteId(),
-                        routeName,
-                        vehicle.getOccupancyStatus(),
-                        vehicle.getCapacity()
-                    );
-
-                crowdingList.add(data);
-            }
-
-            // Sort by percentage descending (most crowded first)
-            crowdingList.sort((a, b) -> Double.compare(b.getPercentage(), a.getPercentage()));
-
-        } catch (Exception e) {
-            System.err.println("Error generating crowding data: " + e.getMessage());
-        }
-
-        return crowdingList;
+        return metricsAggregator.getSnapshot().crowding;
     }
 
     /**
@@ -110,11 +88,12 @@ public class TransportQualityService {
      */
     public Map<String, RoutePerformance> getRoutePerformance() {
         Map<String, RoutePerformance> performance = new HashMap<>();
+        DashboardMetricsAggregator.DashboardSnapshot snapshot = metricsAggregator.getSnapshot();
 
         try {
             List<Route> routes = gtfsDataManager.getAllRoutes();
             for (Route route : routes) {
-                RoutePerformance perf = analyzeRoutePerformance(route);
+                RoutePerformance perf = analyzeRoutePerformance(route, snapshot);
                 performance.put(route.getRouteId(), perf);
             }
         } catch (Exception e) {
@@ -128,53 +107,45 @@ public class TransportQualityService {
      * Get network-wide quality score (0-100)
      */
     public double getNetworkQualityScore() {
-        double vehicleScore = calculateVehicleQualityScore();
-        double incidentScore = calculateIncidentImpactScore();
-        double punctualityScore = calculatePunctualityScore();
-        double coverageScore = calculateCoverageScore();
-
-        return (vehicleScore * 0.3 + incidentScore * 0.25 + punctualityScore * 0.25 + coverageScore * 0.2);
+        return metricsAggregator.getSnapshot().qualityScore;
     }
 
     /**
      * Get alerts for transport quality issues
-     * Uses real data from database repositories
+     * Uses the aggregated dashboard metrics
      */
     public List<QualityAlert> getQualityAlerts() {
         List<QualityAlert> alerts = new ArrayList<>();
+        DashboardMetricsAggregator.DashboardSnapshot snapshot = metricsAggregator.getSnapshot();
 
-        List<TransportIncident> currentIncidents = incidentRepository.findActiveIncidents();
-        List<Vehicle> activeVehicles = vehicleRepository.findActiveVehicles();
+        int activeIncidents = snapshot.activeIncidents;
 
         // Check for high incident areas
-        if (currentIncidents.size() > 5) {
+        if (activeIncidents > 5) {
             alerts.add(new QualityAlert(
                 QualityAlert.Severity.HIGH,
                 "Alto numero di incidenti",
-                currentIncidents.size() + " incidenti attivi nel network",
+                activeIncidents + " incidenti attivi nel network",
                 LocalDateTime.now()
             ));
         }
 
         // Check for low vehicle availability
-        long inactiveVehicles = activeVehicles.stream()
-            .filter(v -> v.getCurrentStatus() == VehicleStatus.UNKNOWN)
-            .count();
+        int totalVehicles = snapshot.totalVehicles;
+        int inactiveVehicles = snapshot.inactiveVehicles;
 
-        if (!activeVehicles.isEmpty() && inactiveVehicles > activeVehicles.size() * 0.3) {
+        if (totalVehicles > 0 && inactiveVehicles > totalVehicles * 0.3) {
             alerts.add(new QualityAlert(
                 QualityAlert.Severity.MEDIUM,
                 "Disponibilità veicoli ridotta",
                 String.format("%.0f%% dei veicoli non è attivo",
-                    (inactiveVehicles * 100.0 / activeVehicles.size())),
+                    (inactiveVehicles * 100.0 / totalVehicles)),
                 LocalDateTime.now()
             ));
         }
 
         // Check for high severity incidents
-        long highSeverityCount = currentIncidents.stream()
-            .filter(i -> i.getSeverity() == TransportIncident.Severity.HIGH)
-            .count();
+        int highSeverityCount = snapshot.highSeverityIncidents;
 
         if (highSeverityCount > 0) {
             alerts.add(new QualityAlert(
@@ -188,51 +159,16 @@ public class TransportQualityService {
         return alerts;
     }
 
-    private void updateMetrics() {
-        List<Vehicle> activeVehicles = vehicleRepository.findActiveVehicles();
-        List<TransportIncident> currentIncidents = incidentRepository.findActiveIncidents();
-
-        long activeCount = activeVehicles.stream()
-            .filter(v -> v.getCurrentStatus() == VehicleStatus.IN_TRANSIT_TO || v.getCurrentStatus() == VehicleStatus.STOPPED_AT)
-            .count();
-
-        long inactiveCount = activeVehicles.stream()
-            .filter(v -> v.getCurrentStatus() == VehicleStatus.UNKNOWN)
-            .count();
-
-        long maintenanceCount = activeVehicles.stream()
-            .filter(v -> v.getCurrentStatus() == VehicleStatus.INCOMING_AT)
-            .count();
-
-        int highSeverityIncidents = (int) currentIncidents.stream()
-            .filter(i -> i.getSeverity() == TransportIncident.Severity.HIGH)
-            .count();
-
-        currentMetrics = new TransportMetrics(
-            activeCount,
-            inactiveCount,
-            maintenanceCount,
-            currentIncidents.size(),
-            highSeverityIncidents,
-            0.0, // avgDelay - can be calculated from real-time data if available
-            getNetworkQualityScore(),
-            LocalDateTime.now()
-        );
-    }
-
-    private RoutePerformance analyzeRoutePerformance(Route route) {
-        List<Vehicle> routeVehicles = vehicleRepository.findByRouteId(route.getRouteId());
-        List<TransportIncident> routeIncidents = incidentRepository.findByRoute(route.getRouteId());
-
-        long vehicleCount = routeVehicles.size();
+    private RoutePerformance analyzeRoutePerformance(Route route, DashboardMetricsAggregator.DashboardSnapshot snapshot) {
+        int vehicleCount = snapshot.getVehicleCount(route.getRouteId());
         int delay = 0; // Can be calculated from real-time data if available
-        boolean hasIncidents = !routeIncidents.isEmpty();
+        boolean hasIncidents = !incidentRepository.findByRoute(route.getRouteId()).isEmpty();
 
         double reliability = calculateRouteReliability(delay, hasIncidents);
 
         return new RoutePerformance(
             route.getRouteShortName() != null ? route.getRouteShortName() : route.getRouteId(),
-            (int) vehicleCount,
+            vehicleCount,
             delay,
             reliability,
             hasIncidents
@@ -253,49 +189,6 @@ public class TransportQualityService {
         return Math.max(score, 0);
     }
 
-    private double calculateVehicleQualityScore() {
-        List<Vehicle> activeVehicles = vehicleRepository.findActiveVehicles();
-        if (activeVehicles.isEmpty()) return 0;
-
-        long activeCount = activeVehicles.stream()
-            .filter(v -> v.getCurrentStatus() == VehicleStatus.IN_TRANSIT_TO || v.getCurrentStatus() == VehicleStatus.STOPPED_AT)
-            .count();
-
-        return (activeCount * 100.0) / activeVehicles.size();
-    }
-
-    private double calculateIncidentImpactScore() {
-        List<TransportIncident> currentIncidents = incidentRepository.findActiveIncidents();
-        if (currentIncidents.isEmpty()) return 100.0;
-
-        double impact = currentIncidents.stream()
-            .mapToDouble(i -> i.getSeverity() == TransportIncident.Severity.HIGH ? 15 :
-                            i.getSeverity() == TransportIncident.Severity.MEDIUM ? 8 : 3)
-            .sum();
-
-        return Math.max(100 - impact, 0);
-    }
-
-    private double calculatePunctualityScore() {
-        // Can be calculated from real-time delay data if available
-        return 100.0;
-    }
-
-    private double calculateCoverageScore() {
-        try {
-            List<Vehicle> activeVehicles = vehicleRepository.findActiveVehicles();
-            int totalRoutes = gtfsDataManager.getAllRoutes().size();
-            int activeRoutes = (int) activeVehicles.stream()
-                .map(Vehicle::getRouteId)
-                .distinct()
-                .count();
-
-            return totalRoutes > 0 ? (activeRoutes * 100.0) / totalRoutes : 100.0;
-        } catch (Exception e) {
-            return 75.0; // Default coverage score
-        }
-    }
-
     // Inner classes for data structures
     public static class TransportMetrics {
         private final long activeVehicles;
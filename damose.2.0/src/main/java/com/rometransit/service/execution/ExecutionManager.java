@@ -0,0 +1,253 @@
+package com.rometransit.service.execution;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Central execution framework of the application
+ *
+ * - IO scopes: one virtual thread per task, for blocking work (HTTP, SQLite, tile files)
+ * - CPU scopes: a bounded pool of platform threads shared by parsing and indexing work
+ * - one scheduler thread that only dispatches periodic tasks to their scope
+ *
+ * Scopes are named and keep their own queue and latency stats. Shutdown is coordinated:
+ * new work is rejected, periodic tasks are cancelled, running tasks get a bounded time to
+ * finish and are interrupted after it.
+ */
+public class ExecutionManager {
+
+    private static ExecutionManager instance;
+
+    private final ThreadPoolExecutor cpuPool;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Map<String, TaskScope> scopes = new ConcurrentHashMap<>();
+    private final List<PeriodicTask> periodicTasks = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean shuttingDown = new AtomicBoolean(false);
+    private final Object finishedLock = new Object();
+
+    private ExecutionManager() {
+        int cpuThreads = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+        AtomicInteger cpuThreadCount = new AtomicInteger();
+        this.cpuPool = new ThreadPoolExecutor(cpuThreads, cpuThreads, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "cpu-worker-" + cpuThreadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.cpuPool.allowCoreThreadTimeOut(true);
+
+        this.scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "execution-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    public static synchronized ExecutionManager getInstance() {
+        if (instance == null) {
+            instance = new ExecutionManager();
+        }
+        return instance;
+    }
+
+    // ===== Scopes =====
+
+    /**
+     * IO scope on virtual threads, unlimited concurrency
+     */
+    public TaskScope io(String name) {
+        return io(name, 0);
+    }
+
+    /**
+     * IO scope on virtual threads
+     * @param maxConcurrency tasks running at once, 0 for unlimited
+     */
+    public TaskScope io(String name, int maxConcurrency) {
+        return scopes.computeIfAbsent(name,
+            key -> new TaskScope(this, key, TaskScope.Kind.IO, maxConcurrency, null));
+    }
+
+    /**
+     * CPU scope on the shared bounded platform pool
+     */
+    public TaskScope cpu(String name) {
+        return scopes.computeIfAbsent(name,
+            key -> new TaskScope(this, key, TaskScope.Kind.CPU, cpuPool.getMaximumPoolSize(), cpuPool));
+    }
+
+    // ===== Scheduling =====
+
+    /**
+     * Run a task periodically on a scope. A run is skipped while the previous one is still
+     * executing, so slow cycles never pile up.
+     */
+    public PeriodicTask scheduleAtFixedRate(TaskScope scope, Runnable task,
+                                            long initialDelay, long period, TimeUnit unit) {
+        PeriodicTask periodic = new PeriodicTask(scope, task);
+        periodic.future = scheduler.scheduleAtFixedRate(periodic::dispatch, initialDelay, period, unit);
+        periodicTasks.add(periodic);
+        return periodic;
+    }
+
+    /**
+     * Run a task once on a scope after a delay
+     */
+    public ScheduledFuture<?> schedule(TaskScope scope, Runnable task, long delay, TimeUnit unit) {
+        return scheduler.schedule(() -> {
+            try {
+                scope.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Shutting down
+            }
+        }, delay, unit);
+    }
+
+    /**
+     * Periodic task handle
+     */
+    public class PeriodicTask {
+        private final TaskScope scope;
+        private final Runnable task;
+        private final AtomicBoolean running = new AtomicBoolean(false);
+        private volatile ScheduledFuture<?> future;
+
+        PeriodicTask(TaskScope scope, Runnable task) {
+            this.scope = scope;
+            this.task = task;
+        }
+
+        private void dispatch() {
+            if (!running.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                scope.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        running.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                running.set(false);
+            }
+        }
+
+        public void cancel() {
+            ScheduledFuture<?> scheduled = future;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            periodicTasks.remove(this);
+        }
+
+        public boolean isCancelled() {
+            return future == null || future.isCancelled();
+        }
+
+        public boolean isRunning() {
+            return running.get();
+        }
+    }
+
+    // ===== Shutdown =====
+
+    public boolean isShuttingDown() {
+        return shuttingDown.get();
+    }
+
+    void taskFinished() {
+        synchronized (finishedLock) {
+            finishedLock.notifyAll();
+        }
+    }
+
+    /**
+     * Stop accepting work, cancel periodic tasks and wait for running tasks up to the timeout;
+     * whatever is still running afterwards is interrupted
+     * @return true if all tasks finished in time
+     */
+    public boolean shutdown(Duration timeout) {
+        if (!shuttingDown.compareAndSet(false, true)) {
+            return true;
+        }
+        System.out.println("🛑 Shutting down execution scopes (max " + timeout.toMillis() + " ms)...");
+
+        periodicTasks.forEach(task -> {
+            if (task.future != null) {
+                task.future.cancel(false);
+            }
+        });
+        periodicTasks.clear();
+        scheduler.shutdownNow();
+        cpuPool.shutdown();
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (finishedLock) {
+            while (pendingTasks() > 0) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    break;
+                }
+                try {
+                    finishedLock.wait(Math.min(remainingMs, 100));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        long pending = pendingTasks();
+        if (pending > 0) {
+            System.out.println("⚠️ " + pending + " tasks still running after timeout, interrupting");
+            scopes.values().forEach(TaskScope::interruptRunning);
+            cpuPool.shutdownNow();
+            return false;
+        }
+
+        System.out.println("✅ Execution scopes stopped");
+        return true;
+    }
+
+    private long pendingTasks() {
+        long pending = 0;
+        for (TaskScope scope : scopes.values()) {
+            pending += scope.getPendingCount();
+        }
+        return pending;
+    }
+
+    // ===== Stats =====
+
+    public List<TaskScope.ScopeStats> getStats() {
+        List<TaskScope.ScopeStats> stats = new ArrayList<>();
+        scopes.values().forEach(scope -> stats.add(scope.getStats()));
+        stats.sort((a, b) -> a.name.compareTo(b.name));
+        return stats;
+    }
+
+    public int getCpuPoolSize() {
+        return cpuPool.getMaximumPoolSize();
+    }
+
+    public void printStats() {
+        System.out.println("\n🧵 Execution scopes (cpu pool " + cpuPool.getPoolSize() + "/" +
+                           cpuPool.getMaximumPoolSize() + " threads, " + periodicTasks.size() + " periodic tasks):");
+        getStats().forEach(stats -> System.out.println("   " + stats));
+    }
+}
@@ -0,0 +1,219 @@
+package com.rometransit.service.execution;
+
+import com.rometransit.util.metrics.LatencyHistogram;
+import com.rometransit.util.metrics.MetricsRegistry;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Named group of tasks running on one of the ExecutionManager pools
+ *
+ * IO scopes start a virtual thread per task, optionally limited to a number of concurrent
+ * tasks (the others wait on a semaphore, cheaply, as virtual threads). CPU scopes share the
+ * bounded platform pool. Each scope counts its tasks and measures queue wait and run time,
+ * so a slow download scope shows up as its own queue instead of starving everything else.
+ */
+public class TaskScope implements Executor {
+
+    public enum Kind { IO, CPU }
+
+    private final String name;
+    private final Kind kind;
+    private final int maxConcurrency;
+    private final Executor pool;          // Only for CPU scopes
+    private final Semaphore permits;      // Only for limited IO scopes
+    private final ExecutionManager manager;
+
+    // Threads running a task of this scope, interrupted on forced shutdown
+    private final Set<Thread> runningThreads = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong queueWaitNanos = new AtomicLong();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLong runNanos = new AtomicLong();
+    private final AtomicLong maxRunNanos = new AtomicLong();
+    private final LatencyHistogram queueWaitHistogram;
+
+    TaskScope(ExecutionManager manager, String name, Kind kind, int maxConcurrency, Executor pool) {
+        this.manager = manager;
+        this.name = name;
+        this.kind = kind;
+        this.maxConcurrency = maxConcurrency;
+        this.pool = pool;
+        this.permits = kind == Kind.IO && maxConcurrency > 0 ? new Semaphore(maxConcurrency, true) : null;
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.queueWaitHistogram = metrics.histogram("execution." + name + ".queue_wait");
+        metrics.gauge("execution." + name + ".active", runningThreads::size);
+        metrics.gauge("execution." + name + ".queued", () -> Math.max(0, submitted.get() - started.get()));
+    }
+
+    // ===== Submission =====
+
+    @Override
+    public void execute(Runnable task) {
+        if (manager.isShuttingDown()) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Execution shutting down, task rejected by scope " + name);
+        }
+
+        submitted.incrementAndGet();
+        long enqueued = System.nanoTime();
+        Runnable wrapped = () -> runMeasured(task, enqueued);
+
+        try {
+            if (kind == Kind.IO) {
+                Thread.ofVirtual().name(name + "-vt").start(wrapped);
+            } else {
+                pool.execute(wrapped);
+            }
+        } catch (RejectedExecutionException e) {
+            submitted.decrementAndGet();
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    public CompletableFuture<Void> run(Runnable task) {
+        return CompletableFuture.runAsync(task, this);
+    }
+
+    public <T> CompletableFuture<T> supply(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, this);
+    }
+
+    private void runMeasured(Runnable task, long enqueued) {
+        boolean acquired = false;
+        Thread current = Thread.currentThread();
+        try {
+            if (permits != null) {
+                permits.acquire();
+                acquired = true;
+            }
+
+            long start = System.nanoTime();
+            record(queueWaitNanos, maxQueueWaitNanos, start - enqueued);
+            queueWaitHistogram.record(start - enqueued);
+            started.incrementAndGet();
+            runningThreads.add(current);
+            try {
+                task.run();
+                completed.incrementAndGet();
+            } catch (Throwable t) {
+                failed.incrementAndGet();
+                System.err.println("❌ Task failed in scope " + name + ": " + t);
+            } finally {
+                runningThreads.remove(current);
+                record(runNanos, maxRunNanos, System.nanoTime() - start);
+            }
+        } catch (InterruptedException e) {
+            // Interrupted while queued (forced shutdown)
+            rejected.incrementAndGet();
+            submitted.decrementAndGet();
+            current.interrupt();
+        } finally {
+            if (acquired) {
+                permits.release();
+            }
+            manager.taskFinished();
+        }
+    }
+
+    private static void record(AtomicLong total, AtomicLong max, long nanos) {
+        total.addAndGet(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+
+    // ===== Shutdown support =====
+
+    int getActiveCount() {
+        return runningThreads.size();
+    }
+
+    long getPendingCount() {
+        return submitted.get() - completed.get() - failed.get();
+    }
+
+    void interruptRunning() {
+        runningThreads.forEach(Thread::interrupt);
+    }
+
+    // ===== Stats =====
+
+    public String getName() {
+        return name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public ScopeStats getStats() {
+        long startedCount = started.get();
+        long finished = completed.get() + failed.get();
+        return new ScopeStats(
+            name, kind, maxConcurrency,
+            submitted.get(), completed.get(), failed.get(), rejected.get(),
+            runningThreads.size(), Math.max(0, submitted.get() - startedCount),
+            startedCount > 0 ? queueWaitNanos.get() / (double) startedCount / 1_000_000.0 : 0,
+            maxQueueWaitNanos.get() / 1_000_000.0,
+            finished > 0 ? runNanos.get() / (double) finished / 1_000_000.0 : 0,
+            maxRunNanos.get() / 1_000_000.0);
+    }
+
+    /**
+     * Snapshot of a scope's counters
+     */
+    public static class ScopeStats {
+        public final String name;
+        public final Kind kind;
+        public final int maxConcurrency;     // 0 = unlimited (IO) or pool size (CPU)
+        public final long submitted;
+        public final long completed;
+        public final long failed;
+        public final long rejected;
+        public final int active;
+        public final long queued;
+        public final double avgQueueWaitMs;
+        public final double maxQueueWaitMs;
+        public final double avgRunMs;
+        public final double maxRunMs;
+
+        ScopeStats(String name, Kind kind, int maxConcurrency, long submitted, long completed, long failed,
+                   long rejected, int active, long queued, double avgQueueWaitMs, double maxQueueWaitMs,
+                   double avgRunMs, double maxRunMs) {
+            this.name = name;
+            this.kind = kind;
+            this.maxConcurrency = maxConcurrency;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.failed = failed;
+            this.rejected = rejected;
+            this.active = active;
+            this.queued = queued;
+            this.avgQueueWaitMs = avgQueueWaitMs;
+            this.maxQueueWaitMs = maxQueueWaitMs;
+            this.avgRunMs = avgRunMs;
+            this.maxRunMs = maxRunMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-18s %-3s active=%d queued=%d done=%d failed=%d rejected=%d " +
+                                 "wait avg=%.1fms max=%.1fms run avg=%.1fms max=%.1fms",
+                name, kind, active, queued, completed, failed, rejected,
+                avgQueueWaitMs, maxQueueWaitMs, avgRunMs, maxRunMs);
+        }
+    }
+}
@@ -7,15 +7,28 @@ import com.rometransit.model.entity.Stop;
 import com.rometransit.model.entity.StopTime;
 import com.rometransit.model.entity.Trip;
 import com.rometransit.model.enums.ConnectionStatus;
+import com.rometransit.model.symbol.SymbolTable;
+import com.rometransit.model.timetable.PatternTimetable;
+import com.rometransit.model.timetable.StopPattern;
+import com.rometransit.service.execution.ExecutionManager;
+import com.rometransit.service.gtfs.feed.DatasetShard;
+import com.rometransit.service.gtfs.feed.FeedShardManager;
+import com.rometransit.service.memory.MemoryGovernor;
+import com.rometransit.util.config.AppConfig;
+import com.rometransit.util.diagnostics.GtfsLoadEvent;
+import com.rometransit.util.diagnostics.RealtimeCycleEvent;
 import com.rometransit.util.exception.DataException;
+import com.rometransit.util.metrics.LatencyHistogram;
+import com.rometransit.util.metrics.MetricsRegistry;
 
 import java.io.File;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * Ultra-Optimized GTFS Data Manager
@@ -30,11 +43,23 @@ public class GTFSDataManager {
     private static GTFSDataManager instance;
     private static final Object lock = new Object();
 
+    private static final int SEARCH_LIMIT = 50;
+
+    // Metrics
+    private static final LatencyHistogram SEARCH_STOPS_LATENCY = MetricsRegistry.getInstance().histogram("search.stops");
+    private static final LatencyHistogram SEARCH_ROUTES_LATENCY = MetricsRegistry.getInstance().histogram("search.routes");
+    private static final LatencyHistogram SEARCH_TRIPS_LATENCY = MetricsRegistry.getInstance().histogram("search.trips");
+    private static final LatencyHistogram VEHICLES_DOWNLOAD_LATENCY = MetricsRegistry.getInstance().histogram("realtime.poll.download");
+    private static final LatencyHistogram VEHICLES_PARSE_LATENCY = MetricsRegistry.getInstance().histogram("realtime.poll.parse");
+    private static final LatencyHistogram VEHICLES_PERSIST_LATENCY = MetricsRegistry.getInstance().histogram("realtime.poll.persist");
+
     private final com.rometransit.data.repository.GTFSRepository repository;
     private final GTFSOnlineDataService onlineDataService;
     private final GTFSRealtimeParser realtimeParser;
     private final com.rometransit.service.transit.VehicleTrackingService vehicleTrackingService;
     private final com.rometransit.service.transit.RouteCalculationService routeCalculationService;
+    private final FeedShardManager feedShards;
+    private final StopTimePager stopTimePager; // null unless the low-memory timetable mode is on
     private ConnectionStatus connectionStatus;
     private boolean realtimeAvailable;
     private int updateIntervalSeconds = 30;
@@ -42,19 +67,34 @@ public class GTFSDataManager {
     private LocalDateTime lastRealtimeUpdate;
     private boolean staticDataLoaded = false;
     private boolean autoUpdateEnabled = true;
-    private ScheduledExecutorService realtimeScheduler;
+    private ExecutionManager.PeriodicTask realtimeTask;
 
     // Cached data
-    private Map<String, Stop> stops = new HashMap<>();
-    private Map<String, Route> routes = new HashMap<>();
-    private Map<String, Trip> trips = new HashMap<>();
-    private Map<String, List<Trip>> tripsByRoute = new HashMap<>(); // Secondary index: routeId -> list of trips
     private Map<String, List<com.rometransit.model.entity.Shape>> shapes = new HashMap<>(); // shapeId -> list of shape points
-    private Map<String, List<Stop>> stopsByTrip = new HashMap<>(); // tripId -> ordered list of stops
-    private Map<String, List<StopTime>> stopTimesByTrip = new HashMap<>(); // tripId -> list of stop_times
-    private Map<String, List<StopTime>> stopTimesByStop = new HashMap<>(); // stopId -> list of stop_times
+
+    // Stops, routes and trips of the primary dataset, indexed by symbol (SymbolTable ids): one array
+    // slot per id instead of a map entry, string ids are resolved once where they come in
+    // (getStopById, getTripsByRoute, getStopTimesForTrip...)
+    private volatile SymbolTable symbols = new SymbolTable();
+    private volatile Stop[] stopsBySymbol = new Stop[0];
+    private volatile Route[] routesBySymbol = new Route[0];
+    private volatile Trip[] tripsBySymbol = new Trip[0];
+    private volatile List<Trip>[] tripsByRouteSymbol = newIndex(0); // route symbol -> trips of the route
+    private int stopCount;
+    private int routeCount;
+    private int tripCount;
+    private volatile PatternTimetable timetable = PatternTimetable.empty(); // stop_times in trip-pattern form
+    private volatile List<Stop>[] stopsByPattern = newIndex(0); // pattern index -> ordered list of stops
+    private int tripsWithStopTimes;
+    private volatile TimetableStatus timetableStatus = TimetableStatus.LOADING;
+    private volatile int timetableConversionPercent;
+    private final AtomicBoolean timetableConversionRunning = new AtomicBoolean();
+    private final java.util.concurrent.CopyOnWriteArrayList<Consumer<TimetableStatus>> timetableListeners =
+        new java.util.concurrent.CopyOnWriteArrayList<>();
     private List<VehiclePosition> vehiclePositions = new ArrayList<>();
 
+    private volatile com.rometransit.util.spatial.SpatialIndex stopIndex; // built on first nearby query
+
     // Vehicle update listeners
     private final java.util.concurrent.CopyOnWriteArrayList<VehicleUpdateListener> vehicleListeners =
         new java.util.concurrent.CopyOnWriteArrayList<>();
@@ -79,9 +119,12 @@ public class GTFSDataManager {
     private GTFSDataManager() {
         this.repository = com.rometransit.data.repository.GTFSRepository.getInstance();
         this.onlineDataService = new GTFSOnlineDataService();
-        this.realtimeParser = new GTFSRealtimeParser();
+        this.realtimeParser = new GTFSRealtimeParser(this::getSymbols);
         this.vehicleTrackingService = new com.rometransit.service.transit.VehicleTrackingService();
         this.routeCalculationService = new com.rometransit.service.transit.RouteCalculationService();
+        this.feedShards = FeedShardManager.getInstance();
+        // Low-memory timetable: stop_times stay in SQLite and are paged in on demand
+        this.stopTimePager = createStopTimePager();
         this.connectionStatus = ConnectionStatus.CONNECTING;
         this.realtimeAvailable = false;
 
@@ -95,6 +138,9 @@ public class GTFSDataManager {
         // Initialize OfflineModeManager integration (after NetworkManager is ready)
         com.rometransit.service.network.OfflineModeManager.getInstance().registerWithNetworkManager();
 
+        // Extra feeds load in parallel with the primary one (see FeedShardManager)
+        feedShards.loadAll();
+
         // Try to load existing cached data
         tryLoadExistingCache();
     }
@@ -121,12 +167,12 @@ public class GTFSDataManager {
 
             // Database has data, load it
             loadCachedData();
-            if (!stops.isEmpty() || !routes.isEmpty() || !trips.isEmpty()) {
+            if (stopCount > 0 || routeCount > 0 || tripCount > 0) {
                 staticDataLoaded = true;
                 connectionStatus = ConnectionStatus.CONNECTED;
                 lastUpdate = LocalDateTime.now();
-                System.out.println("✅ Loaded existing data: " + stops.size() + " stops, " +
-                                 routes.size() + " routes, " + trips.size() + " trips");
+                System.out.println("✅ Loaded existing data: " + stopCount + " stops, " +
+                                 routeCount + " routes, " + tripCount + " trips");
             } else {
                 System.out.println("ℹ️  Database is empty, will need to initialize");
             }
@@ -203,7 +249,7 @@ public class GTFSDataManager {
             // Load the newly generated cache
             loadCachedData();
 
-            if (!stops.isEmpty() || !routes.isEmpty() || !trips.isEmpty()) {
+            if (stopCount > 0 || routeCount > 0 || tripCount > 0) {
                 staticDataLoaded = true;
                 connectionStatus = ConnectionStatus.CONNECTED;
                 lastUpdate = LocalDateTime.now();
@@ -224,6 +270,15 @@ public class GTFSDataManager {
     // === COMPATIBILITY METHODS FOR EXISTING CODE ===
     
     public void initializeStaticData(String gtfsZipPath) {
+        try {
+            initializePrimaryStaticData(gtfsZipPath);
+        } finally {
+            // Extra feeds were started in parallel by the constructor
+            feedShards.loadAll().join();
+        }
+    }
+
+    private void initializePrimaryStaticData(String gtfsZipPath) {
         try {
             System.out.println("📋 Initializing static GTFS data from: " + gtfsZipPath);
 
@@ -249,12 +304,12 @@ public class GTFSDataManager {
                 System.out.println("   Loading existing cache...");
                 try {
                     loadCachedData();
-                    if (!stops.isEmpty() || !routes.isEmpty() || !trips.isEmpty()) {
+                    if (stopCount > 0 || routeCount > 0 || tripCount > 0) {
                         connectionStatus = ConnectionStatus.CONNECTED;
                         lastUpdate = LocalDateTime.now();
                         staticDataLoaded = true;
                         System.out.println("✅ Loaded existing cache successfully");
-                        System.out.println("   📊 Loaded " + stops.size() + " stops, " + routes.size() + " routes, " + trips.size() + " trips");
+                        System.out.println("   📊 Loaded " + stopCount + " stops, " + routeCount + " routes, " + tripCount + " trips");
                         return;
                     } else {
                         System.out.println("⚠️ Cache loaded but appears empty, will regenerate");
@@ -277,7 +332,7 @@ public class GTFSDataManager {
             lastUpdate = LocalDateTime.now();
             staticDataLoaded = true;
             System.out.println("✅ Static data initialization completed");
-            System.out.println("   📊 Loaded " + stops.size() + " stops, " + routes.size() + " routes, " + trips.size() + " trips");
+            System.out.println("   📊 Loaded " + stopCount + " stops, " + routeCount + " routes, " + tripCount + " trips");
         } catch (Exception e) {
             System.err.println("❌ Failed to initialize static data: " + e.getMessage());
 
@@ -356,49 +411,80 @@ public class GTFSDataManager {
         }
     }
 
+    // === CACHE LOAD STAGES (metrics + JFR) ===
+
+    private static GtfsLoadEvent beginLoadStage() {
+        GtfsLoadEvent event = new GtfsLoadEvent();
+        event.begin();
+        return event;
+    }
+
+    private static void endLoadStage(GtfsLoadEvent event, long startNanos, String stage, long records) {
+        MetricsRegistry.getInstance().histogram("gtfs.load." + stage).recordSince(startNanos);
+        event.stage = stage;
+        event.records = records;
+        event.commit();
+    }
+
     private void loadCachedData() throws DataException {
         System.out.println("📦 Loading GTFS data from SQLite database into memory...");
 
         try {
+            long loadStart = System.nanoTime();
+            GtfsLoadEvent loadEvent = beginLoadStage();
+            long stageStart = loadStart;
+            GtfsLoadEvent stageEvent = beginLoadStage();
+
             // Load stops
             System.out.println("🔍 Loading stops from database...");
             List<Stop> stopList = repository.loadStops();
-            stops.clear();
-            for (Stop stop : stopList) {
-                stops.put(stop.getStopId(), stop);
-            }
-            System.out.println("✅ Loaded " + stops.size() + " stops");
+            System.out.println("✅ Loaded " + stopList.size() + " stops");
+            endLoadStage(stageEvent, stageStart, "stops", stopList.size());
+            stageStart = System.nanoTime();
+            stageEvent = beginLoadStage();
 
             // Load routes
             System.out.println("🔍 Loading routes from database...");
             List<Route> routeList = repository.loadRoutes();
-            routes.clear();
-            for (Route route : routeList) {
-                routes.put(route.getRouteId(), route);
-            }
-            System.out.println("✅ Loaded " + routes.size() + " routes");
+            System.out.println("✅ Loaded " + routeList.size() + " routes");
+            endLoadStage(stageEvent, stageStart, "routes", routeList.size());
+            stageStart = System.nanoTime();
+            stageEvent = beginLoadStage();
 
             // Load trips
             System.out.println("🔍 Loading trips from database...");
             List<Trip> tripList = repository.loadTrips();
-            trips.clear();
-            tripsByRoute.clear();
-            for (Trip trip : tripList) {
-                trips.put(trip.getTripId(), trip);
-                // Build secondary index for fast route lookup
-                tripsByRoute.computeIfAbsent(trip.getRouteId(), k -> new ArrayList<>()).add(trip);
-            }
-            System.out.println("✅ Loaded " + trips.size() + " trips");
+            System.out.println("✅ Loaded " + tripList.size() + " trips");
+            endLoadStage(stageEvent, stageStart, "trips", tripList.size());
+            stageStart = System.nanoTime();
+            stageEvent = beginLoadStage();
+
+            // Symbols (persisted at import; databases imported before id_symbols get theirs now)
+            // and the indexes by symbol
+            SymbolTable table = repository.syncSymbols(routeList, stopList, tripList, null);
+            bindSymbols(table, stopList, routeList, tripList);
+            System.out.println("✅ " + table);
+            endLoadStage(stageEvent, stageStart, "symbols", table.totalSize());
+            stageStart = System.nanoTime();
+            stageEvent = beginLoadStage();
 
             // Load shapes
             loadShapesData();
+            endLoadStage(stageEvent, stageStart, "shapes", shapes.size());
 
-            // Load stop_times
+            // Load stop_times (records its own stages)
             loadStopTimesData();
+            endLoadStage(loadEvent, loadStart, "total",
+                         stopCount + routeCount + tripCount + shapes.size() + tripsWithStopTimes);
+
+            stopIndex = null;
+
+            // Trip geometry cached by the prediction engine refers to the previous data
+            com.rometransit.service.transit.ArrivalPredictionEngine.getInstance().invalidateStaticIndexes();
 
-            System.out.println("✅ Data loaded into memory: " + stops.size() + " stops, " +
-                             routes.size() + " routes, " + trips.size() + " trips, " + shapes.size() + " shapes, " +
-                             stopTimesByTrip.size() + " trips with stop_times");
+            System.out.println("✅ Data loaded into memory: " + stopCount + " stops, " +
+                             routeCount + " routes, " + tripCount + " trips, " + shapes.size() + " shapes, " +
+                             tripsWithStopTimes + " trips with stop_times");
         } catch (Exception e) {
             System.err.println("❌ Error loading data from database: " + e.getMessage());
             e.printStackTrace();
@@ -439,7 +525,7 @@ public class GTFSDataManager {
             return;
         }
 
-        if (realtimeScheduler != null && !realtimeScheduler.isShutdown()) {
+        if (realtimeTask != null && !realtimeTask.isCancelled()) {
             System.out.println("⚠️ Real-time updates already running");
             return;
         }
@@ -447,15 +533,10 @@ public class GTFSDataManager {
         System.out.println("🚀 Starting real-time updates scheduler...");
         System.out.println("   ⏰ Update interval: " + updateIntervalSeconds + " seconds");
 
-        // Create scheduler with single thread
-        realtimeScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "GTFS-Realtime-Updater");
-            t.setDaemon(true);
-            return t;
-        });
-
-        // Schedule periodic updates
-        realtimeScheduler.scheduleAtFixedRate(
+        // Periodic update on the realtime IO scope (a cycle still running skips the next tick)
+        ExecutionManager execution = ExecutionManager.getInstance();
+        realtimeTask = execution.scheduleAtFixedRate(
+            execution.io("gtfs-realtime"),
             () -> {
                 try {
                     if (autoUpdateEnabled && realtimeAvailable) {
@@ -476,56 +557,58 @@ public class GTFSDataManager {
     }
 
     public void stopRealtimeUpdates() {
-        if (realtimeScheduler == null || realtimeScheduler.isShutdown()) {
+        if (realtimeTask == null || realtimeTask.isCancelled()) {
             return;
         }
 
+        // A cycle already running completes on its own (bounded by ExecutionManager.shutdown)
         System.out.println("🛑 Stopping real-time updates scheduler...");
-        realtimeScheduler.shutdown();
-
-        try {
-            if (!realtimeScheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                realtimeScheduler.shutdownNow();
-                if (!realtimeScheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                    System.err.println("Scheduler did not terminate");
-                }
-            }
-            System.out.println("✅ Real-time updates scheduler stopped");
-        } catch (InterruptedException e) {
-            realtimeScheduler.shutdownNow();
-            Thread.currentThread().interrupt();
-        }
+        realtimeTask.cancel();
+        realtimeTask = null;
+        System.out.println("✅ Real-time updates scheduler stopped");
     }
-    
+
     public boolean isRealtimeAvailable() {
         return realtimeAvailable;
     }
     
     public synchronized void updateVehiclePositions() {
+        RealtimeCycleEvent cycleEvent = new RealtimeCycleEvent();
+        cycleEvent.begin();
+        cycleEvent.source = "poll";
         try {
             System.out.println("🚗 Updating vehicle positions...");
 
             if (!realtimeAvailable) {
                 System.out.println("⚠️ Real-time updates not available, trying cache...");
+                cycleEvent.usingCache = true;
                 loadVehiclePositionsFromDatabase();
+                cycleEvent.vehicles = vehiclePositions.size();
                 return;
             }
 
             // Download vehicle positions from online service (Protocol Buffer format)
+            long stepStart = System.nanoTime();
             byte[] vehicleData = onlineDataService.downloadVehiclePositions();
+            VEHICLES_DOWNLOAD_LATENCY.recordSince(stepStart);
+            cycleEvent.bytes = vehicleData != null ? vehicleData.length : 0;
 
             // Parse the protobuf data
+            stepStart = System.nanoTime();
             List<VehiclePosition> newPositions = realtimeParser.parseVehiclePositions(vehicleData);
+            VEHICLES_PARSE_LATENCY.recordSince(stepStart);
 
             // Update in-memory cache (thread-safe replacement)
             vehiclePositions = new ArrayList<>(newPositions);
 
             // Save to SQLite database
+            stepStart = System.nanoTime();
             try {
                 repository.saveVehiclePositions(newPositions);
             } catch (Exception e) {
                 System.err.println("⚠️ Failed to save vehicle positions to database: " + e.getMessage());
             }
+            VEHICLES_PERSIST_LATENCY.recordSince(stepStart);
 
             // Update VehicleTrackingService with new positions
             for (VehiclePosition vp : newPositions) {
@@ -553,6 +636,8 @@ public class GTFSDataManager {
 
             // Notify listeners of updated vehicles
             notifyVehicleListeners(vehiclePositions);
+            cycleEvent.vehicles = vehiclePositions.size();
+            cycleEvent.success = true;
 
         } catch (Exception e) {
             connectionStatus = ConnectionStatus.ERROR;
@@ -561,7 +646,9 @@ public class GTFSDataManager {
 
             // Try to load from database as fallback
             System.out.println("🔄 Attempting to load from database...");
+            cycleEvent.usingCache = true;
             loadVehiclePositionsFromDatabase();
+            cycleEvent.vehicles = vehiclePositions.size();
 
             // Notify listeners of failure
             for (VehicleUpdateListener listener : vehicleListeners) {
@@ -571,6 +658,8 @@ public class GTFSDataManager {
                     // Ignore listener errors
                 }
             }
+        } finally {
+            cycleEvent.commit();
         }
     }
 
@@ -622,9 +711,9 @@ public class GTFSDataManager {
         report.append("Update Interval: ").append(updateIntervalSeconds).append(" seconds\n");
         report.append("Last Update: ").append(lastUpdate != null ? lastUpdate : "Never").append("\n");
         report.append("Last Real-time Update: ").append(lastRealtimeUpdate != null ? lastRealtimeUpdate : "Never").append("\n");
-        report.append("Loaded Stops: ").append(stops.size()).append("\n");
-        report.append("Loaded Routes: ").append(routes.size()).append("\n");
-        report.append("Loaded Trips: ").append(trips.size()).append("\n");
+        report.append("Loaded Stops: ").append(stopCount).append("\n");
+        report.append("Loaded Routes: ").append(routeCount).append("\n");
+        report.append("Loaded Trips: ").append(tripCount).append("\n");
         report.append("Vehicle Positions: ").append(vehiclePositions.size()).append("\n");
         report.append("Memory Usage: ").append(getMemoryUsage()).append("\n");
         return report.toString();
@@ -659,28 +748,212 @@ public class GTFSDataManager {
     // === DATA ACCESS METHODS ===
     
     public List<Stop> getAllStops() {
-        return new ArrayList<>(stops.values());
+        List<Stop> all = present(stopsBySymbol);
+        all.addAll(feedShards.collect(DatasetShard.Snapshot::getStops));
+        return all;
     }
     
     public List<Route> getAllRoutes() {
-        return new ArrayList<>(routes.values());
+        List<Route> all = present(routesBySymbol);
+        all.addAll(feedShards.collect(DatasetShard.Snapshot::getRoutes));
+        return all;
+    }
+
+    /**
+     * Routes of the primary feed only, the feed the realtime vehicles come from
+     */
+    public int getPrimaryRouteCount() {
+        return routeCount;
+    }
+
+    public int getRouteCount() {
+        int count = routeCount;
+        for (DatasetShard shard : feedShards.getShards()) {
+            count += shard.getSnapshot().getRoutes().size();
+        }
+        return count;
     }
 
     public Map<String, Trip> getAllTrips() {
-        return new HashMap<>(trips);
+        Map<String, Trip> all = new HashMap<>();
+        for (Trip trip : tripsBySymbol) {
+            if (trip != null) {
+                all.put(trip.getTripId(), trip);
+            }
+        }
+        for (DatasetShard shard : feedShards.getShards()) {
+            all.putAll(shard.getSnapshot().getTrips());
+        }
+        return all;
     }
 
     public Stop getStopById(String stopId) {
-        return stops.get(stopId);
+        DatasetShard.Snapshot shard = feedShards.snapshotFor(stopId);
+        return shard != null ? shard.getStop(stopId) : getStop(symbols.id(SymbolTable.Kind.STOP, stopId));
     }
     
     public Route getRouteById(String routeId) {
-        return routes.get(routeId);
+        DatasetShard.Snapshot shard = feedShards.snapshotFor(routeId);
+        return shard != null ? shard.getRoute(routeId) : getRoute(symbols.id(SymbolTable.Kind.ROUTE, routeId));
+    }
+
+    // === SYMBOL ACCESS (primary dataset) ===
+
+    /**
+     * Symbol table of the primary dataset (extra feed shards keep string ids)
+     */
+    public SymbolTable getSymbols() {
+        return symbols;
+    }
+
+    public Stop getStop(int stopSymbol) {
+        return slot(stopsBySymbol, stopSymbol);
+    }
+
+    public Route getRoute(int routeSymbol) {
+        return slot(routesBySymbol, routeSymbol);
+    }
+
+    public Trip getTrip(int tripSymbol) {
+        return slot(tripsBySymbol, tripSymbol);
+    }
+
+    /**
+     * Trips of a route of the primary dataset, in load order; empty for an unknown symbol
+     */
+    public List<Trip> getTripsByRoute(int routeSymbol) {
+        List<Trip> routeTrips = slot(tripsByRouteSymbol, routeSymbol);
+        return routeTrips != null ? routeTrips : Collections.emptyList();
+    }
+
+    /**
+     * Stop of a stop_time row: by symbol for the primary dataset, by id for shard rows
+     */
+    public Stop getStopOf(StopTime stopTime) {
+        Stop stop = getStop(stopTime.getStopSymbol());
+        return stop != null ? stop : getStopById(stopTime.getStopId());
+    }
+
+    /**
+     * Trip of a stop_time row: by symbol for the primary dataset, by id for shard rows
+     */
+    public Trip getTripOf(StopTime stopTime) {
+        Trip trip = getTrip(stopTime.getTripSymbol());
+        return trip != null ? trip : getTripById(stopTime.getTripId());
+    }
+
+    /**
+     * Route of a trip: by symbol for the primary dataset, by id for shard trips
+     */
+    public Route getRouteOf(Trip trip) {
+        Route route = getRoute(trip.getRouteSymbol());
+        return route != null ? route : getRouteById(trip.getRouteId());
+    }
+
+    /**
+     * Trip of a realtime vehicle: by the symbol the parser bound for the primary feed,
+     * by id for shard vehicles
+     */
+    public Trip getTripOf(VehiclePosition position) {
+        Trip trip = getTrip(position.getTripSymbol());
+        return trip != null ? trip : getTripById(position.getTripId());
+    }
+
+    /**
+     * Route of a realtime vehicle: by the symbol the parser bound for the primary feed,
+     * by id for shard vehicles
+     */
+    public Route getRouteOf(VehiclePosition position) {
+        Route route = getRoute(position.getRouteSymbol());
+        return route != null ? route : getRouteById(position.getRouteId());
+    }
+
+    private static <T> T slot(T[] index, int symbol) {
+        return symbol >= 0 && symbol < index.length ? index[symbol] : null;
+    }
+
+    /**
+     * Entities of an index by symbol (ids with no entity leave empty slots)
+     */
+    private static <T> List<T> present(T[] index) {
+        List<T> entities = new ArrayList<>(index.length);
+        for (T entity : index) {
+            if (entity != null) {
+                entities.add(entity);
+            }
+        }
+        return entities;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> List<T>[] newIndex(int size) {
+        return (List<T>[]) new List[size];
+    }
+
+    /**
+     * Bind the loaded entities to a symbol table and publish the indexes by symbol.
+     * Entities take the table's copy of their id strings, shared by every row that refers to them.
+     */
+    private void bindSymbols(SymbolTable table, List<Stop> stopList, List<Route> routeList, List<Trip> tripList) {
+        Stop[] stopIndex = new Stop[table.size(SymbolTable.Kind.STOP)];
+        for (Stop stop : stopList) {
+            int symbol = table.id(SymbolTable.Kind.STOP, stop.getStopId());
+            stop.setStopId(table.name(SymbolTable.Kind.STOP, symbol));
+            stopIndex[symbol] = stop;
+        }
+
+        Route[] routeIndex = new Route[table.size(SymbolTable.Kind.ROUTE)];
+        for (Route route : routeList) {
+            int symbol = table.id(SymbolTable.Kind.ROUTE, route.getRouteId());
+            route.setRouteId(table.name(SymbolTable.Kind.ROUTE, symbol));
+            routeIndex[symbol] = route;
+        }
+
+        Trip[] tripIndex = new Trip[table.size(SymbolTable.Kind.TRIP)];
+        List<Trip>[] tripsByRouteIndex = newIndex(routeIndex.length);
+        for (Trip trip : tripList) {
+            trip.bindSymbols(table);
+            tripIndex[trip.getTripSymbol()] = trip;
+            int route = trip.getRouteSymbol();
+            if (route != SymbolTable.UNKNOWN) {
+                if (tripsByRouteIndex[route] == null) {
+                    tripsByRouteIndex[route] = new ArrayList<>();
+                }
+                tripsByRouteIndex[route].add(trip);
+            }
+        }
+
+        symbols = table;
+        stopsBySymbol = stopIndex;
+        routesBySymbol = routeIndex;
+        tripsBySymbol = tripIndex;
+        tripsByRouteSymbol = tripsByRouteIndex;
+        stopCount = stopList.size();
+        routeCount = routeList.size();
+        tripCount = tripList.size();
     }
     
     public List<VehiclePosition> getVehiclePositions() {
+        return allVehiclePositions();
+    }
+
+    /**
+     * Vehicles of the primary feed only (latest cycle, or the positions cached in the database)
+     */
+    public List<VehiclePosition> getPrimaryVehiclePositions() {
         return new ArrayList<>(vehiclePositions);
     }
+
+    /**
+     * Vehicles of the primary feed plus the latest ones of the extra feeds
+     */
+    private List<VehiclePosition> allVehiclePositions() {
+        List<VehiclePosition> all = new ArrayList<>(vehiclePositions);
+        if (!feedShards.isEmpty()) {
+            all.addAll(feedShards.getVehiclePositions());
+        }
+        return all;
+    }
     
     public List<ArrivalPrediction> getArrivals(String stopId) {
         // Return empty list for now - would integrate with real-time predictions
@@ -700,26 +973,29 @@ public class GTFSDataManager {
             return new ArrayList<>();
         }
 
+        long start = System.nanoTime();
         String searchQuery = query.toLowerCase().trim();
-        return stops.values().stream()
-                .filter(stop ->
-                    (stop.getStopName() != null && stop.getStopName().toLowerCase().contains(searchQuery)) ||
-                    (stop.getStopCode() != null && stop.getStopCode().toLowerCase().contains(searchQuery)) ||
-                    (stop.getStopId() != null && stop.getStopId().toLowerCase().contains(searchQuery)))
-                .sorted((s1, s2) -> {
-                    // Sort by exact matches first, then by name
-                    String name1 = s1.getStopName() != null ? s1.getStopName().toLowerCase() : "";
-                    String name2 = s2.getStopName() != null ? s2.getStopName().toLowerCase() : "";
-
-                    if (name1.equals(searchQuery)) return -1;
-                    if (name2.equals(searchQuery)) return 1;
-                    if (name1.startsWith(searchQuery) && !name2.startsWith(searchQuery)) return -1;
-                    if (name2.startsWith(searchQuery) && !name1.startsWith(searchQuery)) return 1;
-
-                    return name1.compareTo(name2);
-                })
-                .limit(50) // Limit results for performance
-                .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+        Predicate<Stop> matches = stop ->
+            (stop.getStopName() != null && stop.getStopName().toLowerCase().contains(searchQuery)) ||
+            (stop.getStopCode() != null && stop.getStopCode().toLowerCase().contains(searchQuery)) ||
+            (stop.getStopId() != null && stop.getStopId().toLowerCase().contains(searchQuery));
+        Comparator<Stop> order = (s1, s2) -> {
+            // Sort by exact matches first, then by name
+            String name1 = s1.getStopName() != null ? s1.getStopName().toLowerCase() : "";
+            String name2 = s2.getStopName() != null ? s2.getStopName().toLowerCase() : "";
+
+            if (name1.equals(searchQuery)) return -1;
+            if (name2.equals(searchQuery)) return 1;
+            if (name1.startsWith(searchQuery) && !name2.startsWith(searchQuery)) return -1;
+            if (name2.startsWith(searchQuery) && !name1.startsWith(searchQuery)) return 1;
+
+            return name1.compareTo(name2);
+        };
+        // Same filter and order on every extra feed, merged into the primary results
+        List<Stop> results = feedShards.query(search(present(stopsBySymbol), matches, order),
+                shard -> search(shard.getStops(), matches, order), order, SEARCH_LIMIT);
+        SEARCH_STOPS_LATENCY.recordSince(start);
+        return results;
     }
 
     public List<Route> searchRoutes(String query) {
@@ -727,9 +1003,10 @@ public class GTFSDataManager {
             return new ArrayList<>();
         }
 
+        long start = System.nanoTime();
         String searchQuery = query.toLowerCase().trim();
         System.out.println("🔍 Searching routes for: '" + searchQuery + "'");
-        System.out.println("   Total routes in memory: " + routes.size());
+        System.out.println("   Total routes in memory: " + routeCount);
 
         // Detect if query is numeric (for bus/tram numbers like 70, 71, 64)
         boolean isNumericQuery = searchQuery.matches("\\d+");
@@ -737,86 +1014,86 @@ public class GTFSDataManager {
             System.out.println("   Detected numeric route search");
         }
 
-        List<Route> results = routes.values().stream()
-                .filter(route -> {
-                    // Search in route_short_name (usually contains numeric route number)
-                    if (route.getRouteShortName() != null) {
-                        String shortName = route.getRouteShortName().toLowerCase();
-                        // For numeric queries, prioritize exact numeric matches
-                        if (isNumericQuery) {
-                            // Extract numeric part from route name (e.g., "70", "71A", "N7")
-                            String numericPart = shortName.replaceAll("[^0-9]", "");
-                            if (numericPart.equals(searchQuery)) {
-                                return true; // Exact numeric match
-                            }
-                        }
-                        if (shortName.contains(searchQuery)) {
-                            return true;
-                        }
+        Predicate<Route> matches = route -> {
+            // Search in route_short_name (usually contains numeric route number)
+            if (route.getRouteShortName() != null) {
+                String shortName = route.getRouteShortName().toLowerCase();
+                // For numeric queries, prioritize exact numeric matches
+                if (isNumericQuery) {
+                    // Extract numeric part from route name (e.g., "70", "71A", "N7")
+                    String numericPart = shortName.replaceAll("[^0-9]", "");
+                    if (numericPart.equals(searchQuery)) {
+                        return true; // Exact numeric match
                     }
+                }
+                if (shortName.contains(searchQuery)) {
+                    return true;
+                }
+            }
 
-                    // Search in route_long_name
-                    if (route.getRouteLongName() != null &&
-                        route.getRouteLongName().toLowerCase().contains(searchQuery)) {
-                        return true;
-                    }
+            // Search in route_long_name
+            if (route.getRouteLongName() != null &&
+                route.getRouteLongName().toLowerCase().contains(searchQuery)) {
+                return true;
+            }
 
-                    // Search in route_id
-                    if (route.getRouteId() != null &&
-                        route.getRouteId().toLowerCase().contains(searchQuery)) {
-                        return true;
-                    }
+            // Search in route_id
+            if (route.getRouteId() != null &&
+                route.getRouteId().toLowerCase().contains(searchQuery)) {
+                return true;
+            }
 
-                    return false;
-                })
-                .sorted((r1, r2) -> {
-                    // PRIORITY SORTING: Exact matches first, then partial matches
-                    String name1 = r1.getRouteShortName() != null ? r1.getRouteShortName().toLowerCase() : "";
-                    String name2 = r2.getRouteShortName() != null ? r2.getRouteShortName().toLowerCase() : "";
+            return false;
+        };
+        Comparator<Route> order = (r1, r2) -> {
+            // PRIORITY SORTING: Exact matches first, then partial matches
+            String name1 = r1.getRouteShortName() != null ? r1.getRouteShortName().toLowerCase() : "";
+            String name2 = r2.getRouteShortName() != null ? r2.getRouteShortName().toLowerCase() : "";
+
+            // For numeric queries, prioritize exact numeric matches
+            if (isNumericQuery) {
+                String num1 = name1.replaceAll("[^0-9]", "");
+                String num2 = name2.replaceAll("[^0-9]", "");
+
+                boolean exactNum1 = num1.equals(searchQuery);
+                boolean exactNum2 = num2.equals(searchQuery);
+
+                if (exactNum1 && !exactNum2) return -1;
+                if (!exactNum1 && exactNum2) return 1;
+            }
 
-                    // For numeric queries, prioritize exact numeric matches
-                    if (isNumericQuery) {
-                        String num1 = name1.replaceAll("[^0-9]", "");
-                        String num2 = name2.replaceAll("[^0-9]", "");
+            // Check for exact matches first
+            boolean exactMatch1 = name1.equals(searchQuery);
+            boolean exactMatch2 = name2.equals(searchQuery);
 
-                        boolean exactNum1 = num1.equals(searchQuery);
-                        boolean exactNum2 = num2.equals(searchQuery);
+            if (exactMatch1 && !exactMatch2) return -1;
+            if (!exactMatch1 && exactMatch2) return 1;
 
-                        if (exactNum1 && !exactNum2) return -1;
-                        if (!exactNum1 && exactNum2) return 1;
-                    }
+            // Check for "starts with" matches (higher priority than "contains")
+            boolean startsWith1 = name1.startsWith(searchQuery);
+            boolean startsWith2 = name2.startsWith(searchQuery);
 
-                    // Check for exact matches first
-                    boolean exactMatch1 = name1.equals(searchQuery);
-                    boolean exactMatch2 = name2.equals(searchQuery);
-
-                    if (exactMatch1 && !exactMatch2) return -1;
-                    if (!exactMatch1 && exactMatch2) return 1;
-
-                    // Check for "starts with" matches (higher priority than "contains")
-                    boolean startsWith1 = name1.startsWith(searchQuery);
-                    boolean startsWith2 = name2.startsWith(searchQuery);
-
-                    if (startsWith1 && !startsWith2) return -1;
-                    if (!startsWith1 && startsWith2) return 1;
-
-                    // For numeric routes, sort numerically
-                    if (isNumericQuery) {
-                        try {
-                            Integer num1 = Integer.parseInt(name1.replaceAll("[^0-9]", ""));
-                            Integer num2 = Integer.parseInt(name2.replaceAll("[^0-9]", ""));
-                            int numCompare = num1.compareTo(num2);
-                            if (numCompare != 0) return numCompare;
-                        } catch (NumberFormatException e) {
-                            // Fallback to alphabetic sort
-                        }
-                    }
+            if (startsWith1 && !startsWith2) return -1;
+            if (!startsWith1 && startsWith2) return 1;
 
-                    // Finally, sort alphabetically
-                    return name1.compareTo(name2);
-                })
-                .limit(50) // Limit results for performance
-                .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+            // For numeric routes, sort numerically
+            if (isNumericQuery) {
+                try {
+                    Integer num1 = Integer.parseInt(name1.replaceAll("[^0-9]", ""));
+                    Integer num2 = Integer.parseInt(name2.replaceAll("[^0-9]", ""));
+                    int numCompare = num1.compareTo(num2);
+                    if (numCompare != 0) return numCompare;
+                } catch (NumberFormatException e) {
+                    // Fallback to alphabetic sort
+                }
+            }
+
+            // Finally, sort alphabetically
+            return name1.compareTo(name2);
+        };
+        List<Route> results = feedShards.query(search(present(routesBySymbol), matches, order),
+                shard -> search(shard.getRoutes(), matches, order), order, SEARCH_LIMIT);
+        SEARCH_ROUTES_LATENCY.recordSince(start);
 
         System.out.println("   Found " + results.size() + " matching routes");
         if (!results.isEmpty() && results.size() <= 10) {
@@ -832,22 +1109,55 @@ public class GTFSDataManager {
             return new ArrayList<>();
         }
 
+        long start = System.nanoTime();
         String searchQuery = query.toLowerCase().trim();
-        return trips.values().stream()
-                .filter(trip ->
-                    (trip.getTripHeadsign() != null && trip.getTripHeadsign().toLowerCase().contains(searchQuery)) ||
-                    (trip.getTripId() != null && trip.getTripId().toLowerCase().contains(searchQuery)) ||
-                    (trip.getRouteId() != null && trip.getRouteId().toLowerCase().contains(searchQuery)))
-                .sorted((t1, t2) -> {
-                    String name1 = t1.getTripHeadsign() != null ? t1.getTripHeadsign() : t1.getTripId();
-                    String name2 = t2.getTripHeadsign() != null ? t2.getTripHeadsign() : t2.getTripId();
-
-                    if (name1 == null) name1 = "";
-                    if (name2 == null) name2 = "";
-
-                    return name1.compareTo(name2);
-                })
-                .limit(50) // Limit results for performance
+        Predicate<Trip> matches = trip ->
+            (trip.getTripHeadsign() != null && trip.getTripHeadsign().toLowerCase().contains(searchQuery)) ||
+            (trip.getTripId() != null && trip.getTripId().toLowerCase().contains(searchQuery)) ||
+            (trip.getRouteId() != null && trip.getRouteId().toLowerCase().contains(searchQuery));
+        Comparator<Trip> order = (t1, t2) -> {
+            String name1 = t1.getTripHeadsign() != null ? t1.getTripHeadsign() : t1.getTripId();
+            String name2 = t2.getTripHeadsign() != null ? t2.getTripHeadsign() : t2.getTripId();
+
+            if (name1 == null) name1 = "";
+            if (name2 == null) name2 = "";
+
+            return name1.compareTo(name2);
+        };
+        List<Trip> results = feedShards.query(search(present(tripsBySymbol), matches, order),
+                shard -> search(shard.getTrips().values(), matches, order), order, SEARCH_LIMIT);
+        SEARCH_TRIPS_LATENCY.recordSince(start);
+        return results;
+    }
+
+    /**
+     * Stops within radiusKm of a point in the primary feed and every extra feed, nearest first
+     * (e.g. the metro station and the regional bus stop outside it)
+     */
+    public List<Stop> findStopsNearby(double latitude, double longitude, double radiusKm) {
+        com.rometransit.util.spatial.SpatialIndex index = stopIndex;
+        if (index == null) {
+            index = new com.rometransit.util.spatial.SpatialIndex();
+            index.indexAll(present(stopsBySymbol));
+            stopIndex = index;
+        }
+        Comparator<Stop> byDistance = Comparator.comparingDouble(stop ->
+            com.rometransit.util.math.GeoUtils.calculateDistance(latitude, longitude, stop.getStopLat(), stop.getStopLon()));
+        List<Stop> primary = index.findNearby(latitude, longitude, radiusKm);
+        primary.sort(byDistance);
+        return feedShards.query(primary, shard -> shard.findStopsNearby(latitude, longitude, radiusKm),
+                byDistance, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Best matches of one dataset, at most SEARCH_LIMIT (limit results for performance)
+     */
+    private static <T> List<T> search(Collection<T> items, Predicate<? super T> matches,
+                                      Comparator<? super T> order) {
+        return items.stream()
+                .filter(matches)
+                .sorted(order)
+                .limit(SEARCH_LIMIT)
                 .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
     }
 
@@ -860,7 +1170,10 @@ public class GTFSDataManager {
         if (routeId == null) return new ArrayList<>();
 
         // Use secondary index for O(1) lookup instead of O(n) stream filtering
-        List<Trip> routeTrips = tripsByRoute.getOrDefault(routeId, Collections.emptyList());
+        DatasetShard.Snapshot shard = feedShards.snapshotFor(routeId);
+        List<Trip> routeTrips = shard != null
+                ? shard.getTripsByRoute(routeId)
+                : getTripsByRoute(symbols.id(SymbolTable.Kind.ROUTE, routeId));
 
         // Return sorted copy
         List<Trip> result = new ArrayList<>(routeTrips);
@@ -886,7 +1199,7 @@ public class GTFSDataManager {
 
     /**
      * Get all unique stops for a specific route
-     * This method collects stops from all trips on the route and returns unique stops
+     * This method collects stops from each distinct stop pattern of the route and returns unique stops
      */
     public List<Stop> getStopsForRoute(String routeId) {
         if (routeId == null) return new ArrayList<>();
@@ -900,34 +1213,122 @@ public class GTFSDataManager {
         // Use LinkedHashSet to maintain order and avoid duplicates
         java.util.LinkedHashSet<Stop> uniqueStops = new java.util.LinkedHashSet<>();
 
-        // Collect stops from all trips
-        for (Trip trip : trips) {
-            List<Stop> tripStops = getStopsByTrip(trip.getTripId());
-            uniqueStops.addAll(tripStops);
+        DatasetShard.Snapshot shard = feedShards.snapshotFor(routeId);
+        if (shard != null) {
+            for (Trip trip : trips) {
+                uniqueStops.addAll(shard.getStopsByTrip(trip.getTripId()));
+            }
+        } else if (stopTimePager != null) {
+            // Low-memory mode: one query for the route's patterns instead of a page per trip
+            try {
+                for (StopPattern pattern : repository.getStopPatternsByRoute(routeId)) {
+                    for (int i = 0; i < pattern.size(); i++) {
+                        Stop stop = getStopById(pattern.getStopId(i));
+                        if (stop != null) {
+                            uniqueStops.add(stop);
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("⚠️ Error loading stop patterns of route " + routeId + ": " + e.getMessage());
+            }
+        } else {
+            // Trips of a route share a handful of patterns: expand each one once
+            PatternTimetable table = timetable;
+            Set<Integer> seenPatterns = new HashSet<>();
+            for (Trip trip : trips) {
+                int pattern = table.patternIndexOf(trip.getTripSymbol());
+                if (pattern >= 0 && seenPatterns.add(pattern)) {
+                    List<Stop> patternStops = slot(stopsByPattern, pattern);
+                    if (patternStops != null) {
+                        uniqueStops.addAll(patternStops);
+                    }
+                }
+            }
         }
 
         return new ArrayList<>(uniqueStops);
     }
 
+    /**
+     * Trip of a route with the most stops (the one drawn for the route), found from pattern
+     * sizes instead of expanding every trip; null if the route has no trips
+     */
+    public Trip getRepresentativeTrip(String routeId) {
+        List<Trip> routeTrips = getTripsByRoute(routeId);
+        if (routeTrips.isEmpty()) {
+            return null;
+        }
+
+        DatasetShard.Snapshot shard = feedShards.snapshotFor(routeId);
+        if (shard == null && stopTimePager != null) {
+            try {
+                String tripId = repository.getLongestTripOfRoute(routeId);
+                Trip trip = tripId != null ? getTripById(tripId) : null;
+                return trip != null ? trip : routeTrips.get(0);
+            } catch (Exception e) {
+                System.err.println("⚠️ Error finding longest trip of route " + routeId + ": " + e.getMessage());
+                return routeTrips.get(0);
+            }
+        }
+
+        PatternTimetable table = timetable;
+        Trip best = routeTrips.get(0);
+        int bestSize = -1;
+        for (Trip trip : routeTrips) {
+            int size;
+            if (shard != null) {
+                size = shard.getStopsByTrip(trip.getTripId()).size();
+            } else {
+                int pattern = table.patternIndexOf(trip.getTripSymbol());
+                size = pattern >= 0 ? table.getPattern(pattern).size() : 0;
+            }
+            if (size > bestSize) {
+                best = trip;
+                bestSize = size;
+            }
+        }
+        return best;
+    }
+
     /**
      * Get shape points for a specific shape ID
      */
     public List<com.rometransit.model.entity.Shape> getShapePoints(String shapeId) {
-        return shapes.getOrDefault(shapeId, new ArrayList<>());
+        DatasetShard.Snapshot shard = feedShards.snapshotFor(shapeId);
+        return shard != null ? shard.getShapePoints(shapeId) : shapes.getOrDefault(shapeId, new ArrayList<>());
     }
 
     /**
      * Get ordered list of stops for a specific trip
      */
     public List<Stop> getStopsByTrip(String tripId) {
-        return stopsByTrip.getOrDefault(tripId, new ArrayList<>());
+        DatasetShard.Snapshot shard = feedShards.snapshotFor(tripId);
+        if (shard != null) {
+            return shard.getStopsByTrip(tripId);
+        }
+        if (stopTimePager != null) {
+            // Low-memory mode: derived from the trip's stop_times page
+            List<Stop> stopsForTrip = new ArrayList<>();
+            for (StopTime stopTime : stopTimePager.getForTrip(tripId)) {
+                Stop stop = getStopOf(stopTime);
+                if (stop != null) {
+                    stopsForTrip.add(stop);
+                }
+            }
+            return stopsForTrip;
+        }
+        int tripSymbol = symbols.id(SymbolTable.Kind.TRIP, tripId);
+        List<Stop> stopsForTrip = slot(stopsByPattern, timetable.patternIndexOf(tripSymbol));
+        return stopsForTrip != null ? new ArrayList<>(stopsForTrip) : new ArrayList<>();
     }
 
     /**
      * Get a trip by ID
      */
     public Trip getTripById(String tripId) {
-        return trips.get(tripId);
+        DatasetShard.Snapshot shard = feedShards.snapshotFor(tripId);
+        return shard != null ? shard.getTrip(tripId) : getTrip(symbols.id(SymbolTable.Kind.TRIP, tripId));
     }
 
     /**
@@ -956,107 +1357,282 @@ public class GTFSDataManager {
     }
 
     /**
-     * Load stop_times data (called after GTFS parsing)
+     * Pager of the low-memory timetable mode, null when stop_times are loaded in memory
+     * (gtfs.low_memory: true, false, or auto below gtfs.low_memory.heap_threshold_mb of heap)
      */
-    public void loadStopTimesData() {
-        try {
-            System.out.println("🔍 Loading stop_times from database...");
-            System.out.println("   This may take a while for large datasets...");
-            long startTime = System.currentTimeMillis();
+    private StopTimePager createStopTimePager() {
+        AppConfig config = AppConfig.getInstance();
+        String mode = config.getGtfsLowMemoryMode();
+        long maxHeapMb = Runtime.getRuntime().maxMemory() / (1024 * 1024);
+        boolean enabled = mode.equals("true") ||
+                          (mode.equals("auto") && maxHeapMb < config.getGtfsLowMemoryHeapThresholdMb());
+        if (!enabled) {
+            return null;
+        }
 
-            List<StopTime> stopTimeList = repository.loadStopTimes();
+        int prefetchTrips = config.getGtfsLowMemoryPrefetchTrips();
+        StopTimePager pager = new StopTimePager(repository, tripId -> neighbourTrips(tripId, prefetchTrips),
+                                                stopTime -> stopTime.bindSymbols(symbols),
+                                                config.getGtfsLowMemoryMaxCachedRows());
+        MemoryGovernor.getInstance().register("stop_times", "stop-time-pages", pager);
+        System.out.println("🪶 Low-memory timetable mode (" + maxHeapMb + " MB heap): stop_times paged from SQLite");
+        return pager;
+    }
 
-            // Group by trip ID and stop ID
-            stopTimesByTrip.clear();
-            stopTimesByStop.clear();
+    /**
+     * Trips next to the given one in its route's trip list, prefetched after a miss
+     */
+    private List<String> neighbourTrips(String tripId, int count) {
+        Trip trip = getTrip(symbols.id(SymbolTable.Kind.TRIP, tripId));
+        List<Trip> routeTrips = trip != null ? getTripsByRoute(trip.getRouteSymbol()) : List.of();
+        if (routeTrips.isEmpty() || count <= 0) {
+            return List.of();
+        }
 
-            int count = 0;
-            for (StopTime stopTime : stopTimeList) {
-                // Index by trip ID
-                stopTimesByTrip.computeIfAbsent(stopTime.getTripId(), k -> new ArrayList<>()).add(stopTime);
+        int index = routeTrips.indexOf(trip);
+        List<String> neighbours = new ArrayList<>(count);
+        for (int offset = 1; neighbours.size() < count && offset <= count; offset++) {
+            if (index + offset < routeTrips.size()) {
+                neighbours.add(routeTrips.get(index + offset).getTripId());
+            }
+            if (neighbours.size() < count && index - offset >= 0) {
+                neighbours.add(routeTrips.get(index - offset).getTripId());
+            }
+        }
+        return neighbours;
+    }
 
-                // Index by stop ID
-                stopTimesByStop.computeIfAbsent(stopTime.getStopId(), k -> new ArrayList<>()).add(stopTime);
+    public boolean isLowMemoryTimetable() {
+        return stopTimePager != null;
+    }
 
-                count++;
-                if (count % 50000 == 0) {
-                    long elapsed = System.currentTimeMillis() - startTime;
-                    double rate = count * 1000.0 / elapsed;
-                    System.out.printf("   Indexed %,d stop_times (%.0f/sec)%n", count, rate);
-                }
-            }
+    /**
+     * Page cache stats of the low-memory timetable mode, null when it is off
+     */
+    public StopTimePager.PagerStats getStopTimePagerStats() {
+        return stopTimePager != null ? stopTimePager.getStats() : null;
+    }
 
-            // Sort each trip's stop_times by sequence
-            stopTimesByTrip.values().forEach(stopTimesList ->
-                stopTimesList.sort(Comparator.comparingInt(StopTime::getStopSequence))
-            );
+    /**
+     * Load stop_times data (called after GTFS parsing).
+     *
+     * stop_times are kept in trip-pattern form: the patterns and time profiles shared by the
+     * trips plus three ints per trip, expanded into rows on demand.
+     */
+    public void loadStopTimesData() {
+        if (convertLegacyTimetableInBackground()) {
+            return;
+        }
 
-            long elapsed = System.currentTimeMillis() - startTime;
-            System.out.printf("✅ Loaded and indexed %,d stop_times in %,dms%n", count, elapsed);
-            System.out.printf("   %,d trips, %,d stops%n", stopTimesByTrip.size(), stopTimesByStop.size());
+        if (stopTimePager != null) {
+            // Low-memory mode: nothing to load, pages of the previous data are dropped
+            timetable = PatternTimetable.empty();
+            stopsByPattern = newIndex(0);
+            tripsWithStopTimes = 0;
+            stopTimePager.invalidateAll();
+            setTimetableStatus(TimetableStatus.READY);
+            System.out.println("🪶 stop_times left in SQLite (low-memory timetable mode)");
+            return;
+        }
+
+        try {
+            System.out.println("🔍 Loading stop_times from database...");
+            long startTime = System.currentTimeMillis();
+            long stageStart = System.nanoTime();
+            GtfsLoadEvent stageEvent = beginLoadStage();
 
-            // Build stopsByTrip index from stopTimesByTrip
-            System.out.println("🔍 Building stopsByTrip index from stop_times...");
-            long indexStartTime = System.currentTimeMillis();
-            stopsByTrip.clear();
+            PatternTimetable loaded = PatternTimetable.build(symbols, repository.loadStopPatterns(),
+                repository.loadTimeProfiles(), repository.loadTripSchedules());
 
-            int tripsProcessed = 0;
+            long elapsed = System.currentTimeMillis() - startTime;
+            System.out.printf("✅ Loaded %,d stop_times as %,d patterns and %,d time profiles in %,dms%n",
+                loaded.getRowCount(), loaded.getPatternCount(), loaded.getProfileCount(), elapsed);
+            System.out.printf("   %,d trips, ~%,d KB in memory%n", loaded.getTripCount(), loaded.footprint() / 1024);
+            if (loaded.getSkippedTrips() > 0 || loaded.getOrphanRows() > 0) {
+                System.out.printf("   ⚠️ Skipped %,d trips and %,d stop_times of unknown trips or stops%n",
+                    loaded.getSkippedTrips(), loaded.getOrphanRows());
+            }
+            endLoadStage(stageEvent, stageStart, "stop_times", loaded.getRowCount());
+            stageStart = System.nanoTime();
+            stageEvent = beginLoadStage();
+
+            // Ordered stops of each pattern, shared by the trips that run it
+            Stop[] stopIndex = stopsBySymbol;
+            List<Stop>[] stopsForPatterns = newIndex(loaded.getPatternCount());
             int stopsAdded = 0;
-            for (Map.Entry<String, List<StopTime>> entry : stopTimesByTrip.entrySet()) {
-                String tripId = entry.getKey();
-                List<StopTime> stopTimes = entry.getValue();
-
-                // Create ordered list of Stop objects from stop_times
-                List<Stop> stopsForTrip = new ArrayList<>();
-                for (StopTime stopTime : stopTimes) {
-                    Stop stop = stops.get(stopTime.getStopId());
+            for (int p = 0; p < stopsForPatterns.length; p++) {
+                StopPattern pattern = loaded.getPattern(p);
+                List<Stop> stopsForPattern = new ArrayList<>(pattern.size());
+                for (int i = 0; i < pattern.size(); i++) {
+                    Stop stop = slot(stopIndex, pattern.getStopSymbol(i));
                     if (stop != null) {
-                        stopsForTrip.add(stop);
-                        stopsAdded++;
+                        stopsForPattern.add(stop);
                     }
                 }
-
-                if (!stopsForTrip.isEmpty()) {
-                    stopsByTrip.put(tripId, stopsForTrip);
-                }
-
-                tripsProcessed++;
-                if (tripsProcessed % 1000 == 0) {
-                    long indexElapsed = System.currentTimeMillis() - indexStartTime;
-                    double rate = tripsProcessed * 1000.0 / indexElapsed;
-                    System.out.printf("   Indexed %,d trips (%.0f trips/sec)%n", tripsProcessed, rate);
+                if (!stopsForPattern.isEmpty()) {
+                    stopsForPatterns[p] = List.copyOf(stopsForPattern);
+                    stopsAdded += stopsForPattern.size();
                 }
             }
 
-            long indexElapsed = System.currentTimeMillis() - indexStartTime;
-            System.out.printf("✅ Built stopsByTrip index in %,dms%n", indexElapsed);
-            System.out.printf("   %,d trips with stops, %,d total stop references%n",
-                            stopsByTrip.size(), stopsAdded);
+            timetable = loaded;
+            stopsByPattern = stopsForPatterns;
+            tripsWithStopTimes = loaded.getTripCount();
+            setTimetableStatus(TimetableStatus.READY);
+
+            System.out.printf("   %,d stop references in %,d patterns%n", stopsAdded, stopsForPatterns.length);
+            endLoadStage(stageEvent, stageStart, "stops_by_trip", stopsAdded);
 
         } catch (Exception e) {
             System.err.println("❌ Failed to load stop_times: " + e.getMessage());
             System.err.println("   The app will work with limited arrival prediction accuracy");
+            setTimetableStatus(TimetableStatus.UNAVAILABLE);
         }
     }
 
+    // ===== Timetable status =====
+
+    /**
+     * State of the stop_times of the primary dataset
+     */
+    public enum TimetableStatus {
+        LOADING,     // Not loaded yet
+        CONVERTING,  // Database of an older version being converted to trip-pattern form
+        READY,       // Loaded (or paged from SQLite in low-memory mode)
+        UNAVAILABLE  // Conversion or load failed: trips have no schedule until the next load
+    }
+
+    /**
+     * Start the conversion of a stop_times table left by an older version, if there is one.
+     * It rewrites every row, so it runs on an IO scope and the timetable is published once
+     * it is done. Returns true if the timetable is left to the conversion.
+     */
+    private boolean convertLegacyTimetableInBackground() {
+        boolean legacy;
+        try {
+            legacy = repository.hasLegacyStopTimes();
+        } catch (Exception e) {
+            System.err.println("⚠️ Failed to check the stop_times format: " + e.getMessage());
+            return false;
+        }
+        if (!legacy) {
+            return false;
+        }
+
+        timetable = PatternTimetable.empty();
+        stopsByPattern = newIndex(0);
+        tripsWithStopTimes = 0;
+        if (timetableConversionRunning.compareAndSet(false, true)) {
+            timetableConversionPercent = 0;
+            setTimetableStatus(TimetableStatus.CONVERTING);
+            ExecutionManager.getInstance().io("timetable-conversion").run(this::convertLegacyTimetable);
+        }
+        return true;
+    }
+
+    private void convertLegacyTimetable() {
+        try {
+            repository.convertLegacyStopTimes(percent -> timetableConversionPercent = percent);
+        } catch (Exception e) {
+            System.err.println("❌ Failed to convert stop_times to trip patterns: " + e.getMessage());
+            System.err.println("   Schedules are unavailable until the next start (the old table is kept)");
+            setTimetableStatus(TimetableStatus.UNAVAILABLE);
+            return;
+        } finally {
+            timetableConversionRunning.set(false);
+        }
+
+        loadStopTimesData();
+        // Trip geometry cached by the prediction engine was built without schedules
+        com.rometransit.service.transit.ArrivalPredictionEngine.getInstance().invalidateStaticIndexes();
+    }
+
+    private void setTimetableStatus(TimetableStatus status) {
+        if (timetableStatus == status) {
+            return;
+        }
+        timetableStatus = status;
+        for (Consumer<TimetableStatus> listener : timetableListeners) {
+            try {
+                listener.accept(status);
+            } catch (Exception e) {
+                // Ignore listener errors
+            }
+        }
+    }
+
+    public TimetableStatus getTimetableStatus() {
+        return timetableStatus;
+    }
+
+    /**
+     * Progress of the stop_times conversion in percent (meaningful while CONVERTING)
+     */
+    public int getTimetableConversionPercent() {
+        return timetableConversionPercent;
+    }
+
+    /**
+     * Listen to timetable status changes (called on the thread that changes it)
+     */
+    public void addTimetableStatusListener(Consumer<TimetableStatus> listener) {
+        if (listener != null) {
+            timetableListeners.addIfAbsent(listener);
+        }
+    }
+
+    public void removeTimetableStatusListener(Consumer<TimetableStatus> listener) {
+        timetableListeners.remove(listener);
+    }
+
     /**
      * Get stop_times for a specific trip
      */
     public List<StopTime> getStopTimesForTrip(String tripId) {
-        return stopTimesByTrip.getOrDefault(tripId, new ArrayList<>());
+        DatasetShard.Snapshot shard = feedShards.snapshotFor(tripId);
+        if (shard != null) {
+            return shard.getStopTimesForTrip(tripId);
+        }
+        return stopTimePager != null ? stopTimePager.getForTrip(tripId) : getStopTimesForTrip(symbols.id(SymbolTable.Kind.TRIP, tripId));
+    }
+
+    /**
+     * Get stop_times for a trip of the primary dataset by symbol
+     */
+    public List<StopTime> getStopTimesForTrip(int tripSymbol) {
+        if (stopTimePager != null) {
+            String tripId = symbols.name(SymbolTable.Kind.TRIP, tripSymbol);
+            return tripId != null ? stopTimePager.getForTrip(tripId) : new ArrayList<>();
+        }
+        return timetable.getStopTimesForTrip(tripSymbol);
     }
 
     /**
      * Get stop_times for a specific stop
      */
     public List<StopTime> getStopTimesForStop(String stopId) {
-        return stopTimesByStop.getOrDefault(stopId, new ArrayList<>());
+        DatasetShard.Snapshot shard = feedShards.snapshotFor(stopId);
+        if (shard != null) {
+            return shard.getStopTimesForStop(stopId);
+        }
+        return stopTimePager != null ? stopTimePager.getForStop(stopId) : getStopTimesForStop(symbols.id(SymbolTable.Kind.STOP, stopId));
+    }
+
+    /**
+     * Get stop_times for a stop of the primary dataset by symbol
+     */
+    public List<StopTime> getStopTimesForStop(int stopSymbol) {
+        if (stopTimePager != null) {
+            String stopId = symbols.name(SymbolTable.Kind.STOP, stopSymbol);
+            return stopId != null ? stopTimePager.getForStop(stopId) : new ArrayList<>();
+        }
+        return timetable.getStopTimesForStop(stopSymbol);
     }
 
     // === ASYNC METHODS FOR PERFORMANCE ===
     
     public CompletableFuture<Void> initializeStaticDataAsync(String gtfsZipPath) {
-        return CompletableFuture.runAsync(() -> initializeStaticData(gtfsZipPath));
+        return ExecutionManager.getInstance().cpu("gtfs-import").run(() -> initializeStaticData(gtfsZipPath));
     }
 
     /**
@@ -1078,11 +1654,11 @@ public class GTFSDataManager {
     }
 
     public CompletableFuture<Boolean> testRealtimeConnectionAsync() {
-        return CompletableFuture.supplyAsync(this::testRealtimeConnection);
+        return ExecutionManager.getInstance().io("gtfs-realtime").supply(this::testRealtimeConnection);
     }
     
     public CompletableFuture<Void> updateVehiclePositionsAsync() {
-        return CompletableFuture.runAsync(this::updateVehiclePositions);
+        return ExecutionManager.getInstance().io("gtfs-realtime").run(this::updateVehiclePositions);
     }
     
     // === PERFORMANCE MONITORING ===
@@ -1100,26 +1676,11 @@ public class GTFSDataManager {
         health.put("lastUpdate", lastUpdate);
         health.put("lastRealtimeUpdate", lastRealtimeUpdate);
         health.put("memoryUsage", getMemoryUsage());
-        health.put("dataLoaded", !stops.isEmpty() || staticDataLoaded);
+        health.put("dataLoaded", stopCount > 0 || staticDataLoaded);
         health.put("autoUpdates", autoUpdateEnabled);
         return health;
     }
     
-    public void performEmergencyCacheCleanup() {
-        System.out.println("🧹 Performing emergency cache cleanup...");
-        try {
-            // Clear in-memory caches
-            vehiclePositions.clear();
-            
-            // Suggest garbage collection
-            System.gc();
-            
-            System.out.println("✅ Emergency cache cleanup completed");
-        } catch (Exception e) {
-            System.err.println("❌ Cache cleanup failed: " + e.getMessage());
-        }
-    }
-    
     private String getMemoryUsage() {
         Runtime runtime = Runtime.getRuntime();
         long used = runtime.totalMemory() - runtime.freeMemory();
@@ -1134,8 +1695,8 @@ public class GTFSDataManager {
         // Stop real-time updates
         stopRealtimeUpdates();
 
-        // Cleanup resources
-        performEmergencyCacheCleanup();
+        // Cleanup resources (cache budgets are handled by the MemoryGovernor)
+        vehiclePositions.clear();
 
         // Update status
         connectionStatus = ConnectionStatus.OFFLINE;
@@ -1178,9 +1739,17 @@ public class GTFSDataManager {
             // Download the file
             java.nio.file.Path downloadedFile = onlineDataService.downloadGTFSZip();
 
-            // Parse and load the downloaded file
+            // Parse the downloaded file; the parser applies it as a delta against the
+            // existing database, so realtime persistence keeps running meanwhile
             System.out.println("   📋 Parsing downloaded GTFS data...");
-            initializeStaticData(downloadedFile.toString());
+            GTFSParser parser = new GTFSParser(repository);
+            parser.parseGTFSZip(downloadedFile.toString());
+
+            // Reload the in-memory indexes from the updated database
+            loadCachedData();
+            connectionStatus = ConnectionStatus.CONNECTED;
+            lastUpdate = LocalDateTime.now();
+            staticDataLoaded = true;
 
             System.out.println("✅ Successfully downloaded and loaded updated GTFS data");
 
@@ -1303,7 +1872,7 @@ public class GTFSDataManager {
             return new ArrayList<>();
         }
 
-        return vehiclePositions.stream()
+        return allVehiclePositions().stream()
             .filter(vp -> routeId.equals(vp.getRouteId()))
             .filter(vp -> !vp.isStale()) // Escludi dati vecchi
             .collect(java.util.stream.Collectors.toList());
@@ -1349,7 +1918,7 @@ public class GTFSDataManager {
      * Ottiene TUTTE le posizioni veicoli valide (non stale)
      */
     public List<VehiclePosition> getActiveVehiclePositions() {
-        return vehiclePositions.stream()
+        return allVehiclePositions().stream()
             .filter(vp -> !vp.isStale())
             .collect(java.util.stream.Collectors.toList());
     }
@@ -1376,7 +1945,7 @@ public class GTFSDataManager {
             return null;
         }
 
-        return vehiclePositions.stream()
+        return allVehiclePositions().stream()
             .filter(vp -> vehicleId.equals(vp.getVehicleId()))
             .filter(vp -> !vp.isStale())
             .findFirst()
@@ -5,6 +5,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.rometransit.service.network.NetworkManager;
+import com.rometransit.service.execution.ExecutionManager;
+import com.rometransit.service.realtime.replay.FeedRecorder;
+import com.rometransit.service.realtime.replay.FeedType;
 import com.rometransit.util.config.AppConfig;
 import com.rometransit.util.exception.DataException;
 import com.rometransit.util.exception.NetworkException;
@@ -165,7 +168,7 @@ public class GTFSOnlineDataService {
      * Download GTFS ZIP asynchronously
      */
     public CompletableFuture<Path> downloadGTFSZipAsync() {
-        return CompletableFuture.supplyAsync(() -> {
+        return ExecutionManager.getInstance().io("gtfs-download").supply(() -> {
             try {
                 return downloadGTFSZip();
             } catch (DataException e) {
@@ -275,6 +278,7 @@ public class GTFSOnlineDataService {
             }
 
             System.out.println("   ✅ Downloaded " + data.length + " bytes of vehicle data");
+            recordSnapshot(FeedType.VEHICLE_POSITIONS, data);
             return data;
 
         } catch (NetworkException e) {
@@ -303,6 +307,7 @@ public class GTFSOnlineDataService {
             }
 
             System.out.println("   ✅ Downloaded " + data.length + " bytes of trip update data");
+            recordSnapshot(FeedType.TRIP_UPDATES, data);
             return data;
 
         } catch (NetworkException e) {
@@ -331,6 +336,7 @@ public class GTFSOnlineDataService {
             }
 
             System.out.println("   ✅ Downloaded " + data.length + " bytes of service alerts data");
+            recordSnapshot(FeedType.SERVICE_ALERTS, data);
             return data;
 
         } catch (NetworkException e) {
@@ -342,7 +348,7 @@ public class GTFSOnlineDataService {
      * Download all real-time feeds asynchronously
      */
     public CompletableFuture<Map<String, byte[]>> downloadRealtimeDataAsync() {
-        return CompletableFuture.supplyAsync(() -> {
+        return ExecutionManager.getInstance().io("gtfs-download").supply(() -> {
             Map<String, byte[]> realtimeData = new HashMap<>();
 
             try {
@@ -428,6 +434,16 @@ public class GTFSOnlineDataService {
 
     // === UTILITY METHODS ===
 
+    /**
+     * Append a raw feed response to the capture log when recording is enabled
+     */
+    private void recordSnapshot(FeedType type, byte[] data) {
+        FeedRecorder recorder = FeedRecorder.shared();
+        if (recorder != null) {
+            recorder.record(type, data);
+        }
+    }
+
     private void createLatestSymlink(Path targetPath) {
         try {
             Path latestLink = cacheDirectory.resolve("gtfs_static_latest.zip");
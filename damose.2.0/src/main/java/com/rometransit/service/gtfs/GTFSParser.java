@@ -4,8 +4,10 @@ import com.rometransit.model.entity.*;
 import com.rometransit.model.enums.TransportType;
 import com.rometransit.service.network.NetworkManager;
 import com.rometransit.util.config.AppConfig;
+import com.rometransit.util.diagnostics.GtfsImportEvent;
 import com.rometransit.util.exception.DataException;
 import com.rometransit.util.exception.NetworkException;
+import com.rometransit.util.metrics.MetricsRegistry;
 
 import java.io.*;
 import java.lang.reflect.Type;
@@ -45,6 +47,10 @@ public class GTFSParser {
     private int shapesCount = 0;
     private int agenciesCount = 0;
 
+    // Current import phase
+    private long phaseStart;
+    private GtfsImportEvent phaseEvent;
+
     public GTFSParser(com.rometransit.data.repository.GTFSRepository repository) {
         this.repository = repository;
     }
@@ -68,20 +74,41 @@ public class GTFSParser {
             tempDir = Files.createTempDirectory("gtfs_extract_");
             System.out.println("📂 Created temp directory: " + tempDir);
 
+            long importStart = System.nanoTime();
+            GtfsImportEvent importEvent = new GtfsImportEvent();
+            importEvent.begin();
+            beginPhase();
+
             // Extract ZIP file
             extractZipFile(zipFilePath, tempDir);
+            endPhase("extract", 0);
 
             // Parse each GTFS file
             parseAgencies(tempDir.resolve("agency.txt"));
+            endPhase("agency", agencies.size());
             parseStops(tempDir.resolve("stops.txt"));
+            endPhase("stops", stops.size());
             parseRoutes(tempDir.resolve("routes.txt"));
+            endPhase("routes", routes.size());
             parseTrips(tempDir.resolve("trips.txt"));
+            endPhase("trips", trips.size());
             parseStopTimes(tempDir.resolve("stop_times.txt"));
+            endPhase("stop_times", stopTimes.size());
             parseCalendar(tempDir.resolve("calendar.txt"));
+            endPhase("calendar", calendars.size());
             parseShapes(tempDir.resolve("shapes.txt"));
+            endPhase("shapes", shapes.size());
 
             // Save all data to cache
+            long totalRecords = (long) agencies.size() + stops.size() + routes.size() + trips.size() +
+                                stopTimes.size() + shapes.size();
             saveAllToCache(zipFilePath);
+            endPhase("save", totalRecords);
+
+            MetricsRegistry.getInstance().histogram("gtfs.import.total").recordSince(importStart);
+            importEvent.phase = "total";
+            importEvent.records = totalRecords;
+            importEvent.commit();
 
         } catch (IOException e) {
             throw new DataException("Failed to parse GTFS ZIP file", e);
@@ -95,6 +122,25 @@ public class GTFSParser {
         System.out.println("✅ GTFS parsing completed successfully");
     }
 
+    // === IMPORT PHASES (metrics + JFR) ===
+
+    private void beginPhase() {
+        phaseStart = System.nanoTime();
+        phaseEvent = new GtfsImportEvent();
+        phaseEvent.begin();
+    }
+
+    /**
+     * Record the phase that just ended and start timing the next one
+     */
+    private void endPhase(String phase, long records) {
+        MetricsRegistry.getInstance().histogram("gtfs.import." + phase).recordSince(phaseStart);
+        phaseEvent.phase = phase;
+        phaseEvent.records = records;
+        phaseEvent.commit();
+        beginPhase();
+    }
+
     private void extractZipFile(String zipFilePath, Path targetDir) throws IOException {
         System.out.println("📦 Extracting ZIP file...");
 
@@ -415,7 +461,13 @@ public class GTFSParser {
         System.out.println("💾 Saving parsed data to SQLite database...");
 
         try {
-            repository.saveAllGTFSData(agencies, routes, stops, trips, stopTimes, shapes);
+            if (repository.hasData()) {
+                // Feed refresh: only write what changed, in bounded transactions
+                repository.applyGTFSDelta(agencies, routes, stops, trips, stopTimes, shapes);
+            } else {
+                repository.saveAllGTFSData(agencies, routes, stops, trips, stopTimes, shapes);
+                repository.recordFeedBaseline(agencies, routes, stops, trips, stopTimes, shapes);
+            }
             System.out.println("✅ All data saved to database successfully");
         } catch (Exception e) {
             System.err.println("❌ Failed to save data to database: " + e.getMessage());
@@ -424,7 +476,8 @@ public class GTFSParser {
         }
     }
 
-    private void parseStopTimes(Path filePath) throws DataException {
+    // Package-private for the benchmark module
+    void parseStopTimes(Path filePath) throws DataException {
         if (!Files.exists(filePath)) {
             System.out.println("⚠️  Stop times file not found, skipping");
             return;
@@ -485,7 +538,7 @@ public class GTFSParser {
 
     // === UTILITY METHODS ===
 
-    private String[] parseCSVLine(String line) {
+    static String[] parseCSVLine(String line) {
         List<String> fields = new ArrayList<>();
         StringBuilder currentField = new StringBuilder();
         boolean inQuotes = false;
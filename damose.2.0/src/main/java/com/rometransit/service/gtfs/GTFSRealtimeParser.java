@@ -1,28 +1,52 @@
 package com.rometransit.service.gtfs;
 
 import com.google.transit.realtime.GtfsRealtime;
-import com.google.transit.realtime.GtfsRealtime.FeedMessage;
 import com.google.transit.realtime.GtfsRealtime.FeedEntity;
-import com.google.transit.realtime.GtfsRealtime.VehiclePosition.VehicleStopStatus;
+import com.google.transit.realtime.GtfsRealtime.FeedMessage;
 import com.rometransit.model.dto.VehiclePosition;
 import com.rometransit.model.dto.ArrivalPrediction;
+import com.rometransit.model.dto.ServiceAlert;
+import com.rometransit.model.enums.VehicleStatus;
+import com.rometransit.model.symbol.SymbolTable;
 import com.rometransit.util.exception.DataException;
 
-import java.io.ByteArrayInputStream;
-import java.io.InputStream;
 import java.time.LocalDateTime;
-import java.time.Instant;
-import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * Parser for GTFS real-time Protocol Buffer data feeds
- * Handles vehicle positions and trip updates from Roma Mobilità
+ * Handles vehicle positions, trip updates and service alerts from Roma Mobilità
+ *
+ * Decoding goes through {@link GTFSRealtimeStreamDecoder}, which reads only the fields
+ * mapped below; times are kept as epoch seconds and the DTOs derive LocalDateTime lazily.
+ * A parser of the primary feed binds each vehicle to the dataset's symbols, so the realtime
+ * joins (trip, route) are array lookups.
  */
 public class GTFSRealtimeParser {
 
+    // One decoder per thread, its record pools are reused across feeds
+    private static final ThreadLocal<GTFSRealtimeStreamDecoder> DECODER =
+        ThreadLocal.withInitial(GTFSRealtimeStreamDecoder::new);
+
+    // gtfs-realtime.proto VehicleStopStatus values
+    private static final int STATUS_INCOMING_AT = 0;
+    private static final int STATUS_STOPPED_AT = 1;
+    private static final int STATUS_IN_TRANSIT_TO = 2;
+
+    // GTFS-RT OccupancyStatus (EMPTY .. NOT_ACCEPTING_PASSENGERS) as approximate load percentage
+    private static final int[] OCCUPANCY_PERCENT = {0, 25, 50, 75, 90, 100, 100};
+
+    // Symbols of the dataset the feed refers to, null when vehicles are not bound (extra feeds)
+    private final Supplier<SymbolTable> symbols;
+
     public GTFSRealtimeParser() {
+        this(null);
+    }
+
+    public GTFSRealtimeParser(Supplier<SymbolTable> symbols) {
+        this.symbols = symbols;
         System.out.println("🔧 GTFSRealtimeParser initialized for Protocol Buffers");
     }
 
@@ -47,28 +71,26 @@ public class GTFSRealtimeParser {
                 return positions;
             }
 
-            InputStream inputStream = new ByteArrayInputStream(protobufData);
-            FeedMessage feedMessage = FeedMessage.parseFrom(inputStream);
+            GTFSRealtimeStreamDecoder.DecodedFeed feed = DECODER.get().decode(protobufData);
 
             // Verify FeedMessage has required header field
-            if (!feedMessage.hasHeader()) {
+            if (!feed.hasHeader()) {
                 System.err.println("⚠️ FeedMessage missing required 'header' field - data is malformed");
                 return positions; // Return empty list for malformed data
             }
 
-            System.out.println("📦 Parsing GTFS-RT FeedMessage with " + feedMessage.getEntityCount() + " entities");
+            System.out.println("📦 Parsing GTFS-RT FeedMessage with " + feed.getVehicleCount() + " vehicles");
 
-            for (FeedEntity entity : feedMessage.getEntityList()) {
-                if (entity.hasVehicle()) {
-                    try {
-                        VehiclePosition position = parseVehicleEntity(entity);
-                        if (position != null) {
-                            positions.add(position);
-                        }
-                    } catch (Exception e) {
-                        System.err.println("⚠️ Error parsing vehicle entity " + entity.getId() + ": " + e.getMessage());
-                        // Continue parsing other entities
+            long now = System.currentTimeMillis() / 1000;
+            SymbolTable table = symbols != null ? symbols.get() : null;
+            positions = new ArrayList<>(feed.getVehicleCount());
+            for (int i = 0; i < feed.getVehicleCount(); i++) {
+                VehiclePosition position = toVehiclePosition(feed.getVehicle(i), now);
+                if (position != null) {
+                    if (table != null) {
+                        position.bindSymbols(table);
                     }
+                    positions.add(position);
                 }
             }
 
@@ -80,146 +102,57 @@ public class GTFSRealtimeParser {
         }
     }
 
-    private VehiclePosition parseVehicleEntity(FeedEntity entity) {
-        GtfsRealtime.VehiclePosition vehicleProto = entity.getVehicle();
-        VehiclePosition position = new VehiclePosition();
-
-        // Vehicle ID
-        if (vehicleProto.hasVehicle() && vehicleProto.getVehicle().hasId()) {
-            position.setVehicleId(vehicleProto.getVehicle().getId());
-        } else if (entity.hasId()) {
-            position.setVehicleId(entity.getId());
+    private VehiclePosition toVehiclePosition(GTFSRealtimeStreamDecoder.VehicleRecord record, long now) {
+        // Validate required fields
+        String vehicleId = record.vehicleId != null ? record.vehicleId : record.entityId;
+        if (vehicleId == null || record.latitude == 0.0f || record.longitude == 0.0f) {
+            return null; // Invalid position
         }
 
-        // Trip information
-        if (vehicleProto.hasTrip()) {
-            GtfsRealtime.TripDescriptor trip = vehicleProto.getTrip();
-
-            if (trip.hasTripId()) {
-                position.setTripId(trip.getTripId());
-            }
-            if (trip.hasRouteId()) {
-                position.setRouteId(trip.getRouteId());
-            }
-            // DirectionId not used in VehiclePosition DTO
+        VehiclePosition position = new VehiclePosition();
+        position.setVehicleId(vehicleId);
+        position.setTripId(record.tripId);
+        position.setRouteId(record.routeId);
+        position.setLatitude(record.latitude);
+        position.setLongitude(record.longitude);
+        if (record.hasBearing) {
+            position.setBearing((double) record.bearing);
         }
-
-        // Position data
-        if (vehicleProto.hasPosition()) {
-            GtfsRealtime.Position pos = vehicleProto.getPosition();
-
-            if (pos.hasLatitude()) {
-                position.setLatitude(pos.getLatitude());
-            }
-            if (pos.hasLongitude()) {
-                position.setLongitude(pos.getLongitude());
-            }
-            if (pos.hasBearing()) {
-                position.setBearing((double) pos.getBearing());
-            }
-            if (pos.hasSpeed()) {
-                position.setSpeed((double) pos.getSpeed());
-            }
+        if (record.hasSpeed) {
+            position.setSpeed((double) record.speed);
         }
 
-        // Timestamp
-        if (vehicleProto.hasTimestamp()) {
-            long timestamp = vehicleProto.getTimestamp();
-            position.setTimestamp(timestamp);
-            LocalDateTime dateTime = LocalDateTime.ofInstant(
-                Instant.ofEpochSecond(timestamp),
-                ZoneId.systemDefault()
-            );
-            position.setLastUpdate(dateTime);
-        } else {
-            position.setTimestamp(System.currentTimeMillis() / 1000);
-            position.setLastUpdate(LocalDateTime.now());
-        }
+        // Epoch seconds only, getLastUpdate() derives the LocalDateTime when a view needs it
+        position.setTimestamp(record.timestamp > 0 ? record.timestamp : now);
 
-        // Current stop information
-        if (vehicleProto.hasStopId()) {
-            position.setCurrentStopId(vehicleProto.getStopId());
+        if (record.stopId != null) {
+            position.setCurrentStopId(record.stopId);
         }
 
         // Stop status - map protobuf status to VehicleStatus enum
-        if (vehicleProto.hasCurrentStatus()) {
-            VehicleStopStatus pbStatus = vehicleProto.getCurrentStatus();
-            com.rometransit.model.enums.VehicleStatus status;
-            switch (pbStatus) {
-                case IN_TRANSIT_TO:
-                    status = com.rometransit.model.enums.VehicleStatus.IN_TRANSIT_TO;
+        if (record.currentStatus >= 0) {
+            switch (record.currentStatus) {
+                case STATUS_IN_TRANSIT_TO:
+                    position.setStatus(VehicleStatus.IN_TRANSIT_TO);
                     break;
-                case STOPPED_AT:
-                    status = com.rometransit.model.enums.VehicleStatus.STOPPED_AT;
+                case STATUS_STOPPED_AT:
+                    position.setStatus(VehicleStatus.STOPPED_AT);
                     break;
-                case INCOMING_AT:
-                    status = com.rometransit.model.enums.VehicleStatus.INCOMING_AT;
+                case STATUS_INCOMING_AT:
+                    position.setStatus(VehicleStatus.INCOMING_AT);
                     break;
                 default:
-                    status = com.rometransit.model.enums.VehicleStatus.UNKNOWN;
+                    position.setStatus(VehicleStatus.UNKNOWN);
                     break;
             }
-            position.setStatus(status);
         }
 
-        // Occupancy Status - Extract passenger load information
-        if (vehicleProto.hasOccupancyStatus()) {
-            GtfsRealtime.VehiclePosition.OccupancyStatus occStatus = vehicleProto.getOccupancyStatus();
-
-            // Map GTFS-RT OccupancyStatus to integer value
-            // GTFS-RT OccupancyStatus values:
-            // EMPTY = 0, MANY_SEATS_AVAILABLE = 1, FEW_SEATS_AVAILABLE = 2,
-            // STANDING_ROOM_ONLY = 3, CRUSHED_STANDING_ROOM_ONLY = 4,
-            // FULL = 5, NOT_ACCEPTING_PASSENGERS = 6
-            int occupancyValue = 0;
-
-            switch (occStatus) {
-                case EMPTY:
-                    occupancyValue = 0;  // 0% occupancy
-                    break;
-                case MANY_SEATS_AVAILABLE:
-                    occupancyValue = 25; // ~25% occupancy
-                    break;
-                case FEW_SEATS_AVAILABLE:
-                    occupancyValue = 50; // ~50% occupancy
-                    break;
-                case STANDING_ROOM_ONLY:
-                    occupancyValue = 75; // ~75% occupancy
-                    break;
-                case CRUSHED_STANDING_ROOM_ONLY:
-                    occupancyValue = 90; // ~90% occupancy
-                    break;
-                case FULL:
-                    occupancyValue = 100; // 100% occupancy
-                    break;
-                case NOT_ACCEPTING_PASSENGERS:
-                    occupancyValue = 100; // Treat as full
-                    break;
-                default:
-                    occupancyValue = 0; // Unknown - treat as empty
-                    break;
-            }
-
-            position.setOccupancyLevel(occupancyValue);
-            System.out.println("📊 Vehicle " + position.getVehicleId() + " occupancy: " +
-                             occStatus.name() + " (" + occupancyValue + "%)");
-        }
-
-        // Occupancy Percentage - If available, use exact percentage
-        // Note: Some feeds provide occupancyPercentage field (0-100)
-        // This is more accurate than the enum-based occupancyStatus
-        if (vehicleProto.hasOccupancyPercentage()) {
-            int exactOccupancy = vehicleProto.getOccupancyPercentage();
-            position.setOccupancyLevel(exactOccupancy);
-            System.out.println("📊 Vehicle " + position.getVehicleId() +
-                             " exact occupancy: " + exactOccupancy + "%");
-        }
-
-        // Validate required fields
-        if (position.getVehicleId() == null ||
-            position.getLatitude() == 0.0 ||
-            position.getLongitude() == 0.0) {
-            return null; // Invalid position
+        // Exact occupancy percentage wins over the coarse occupancy status
+        if (record.occupancyPercentage >= 0) {
+            position.setOccupancyLevel(record.occupancyPercentage);
+        } else if (record.occupancyStatus >= 0) {
+            position.setOccupancyLevel(record.occupancyStatus < OCCUPANCY_PERCENT.length
+                ? OCCUPANCY_PERCENT[record.occupancyStatus] : 0);
         }
 
         return position;
@@ -245,26 +178,22 @@ public class GTFSRealtimeParser {
                 return predictions;
             }
 
-            InputStream inputStream = new ByteArrayInputStream(protobufData);
-            FeedMessage feedMessage = FeedMessage.parseFrom(inputStream);
+            GTFSRealtimeStreamDecoder.DecodedFeed feed = DECODER.get().decode(protobufData);
 
             // Verify FeedMessage has required header field
-            if (!feedMessage.hasHeader()) {
+            if (!feed.hasHeader()) {
                 System.err.println("⚠️ FeedMessage missing required 'header' field - data is malformed");
                 return predictions;
             }
 
-            System.out.println("📦 Parsing GTFS-RT TripUpdates with " + feedMessage.getEntityCount() + " entities");
+            System.out.println("📦 Parsing GTFS-RT TripUpdates with " + feed.getStopTimeUpdateCount() + " stop time updates");
 
-            for (FeedEntity entity : feedMessage.getEntityList()) {
-                if (entity.hasTripUpdate()) {
-                    try {
-                        List<ArrivalPrediction> entityPredictions = parseTripUpdateEntity(entity);
-                        predictions.addAll(entityPredictions);
-                    } catch (Exception e) {
-                        System.err.println("⚠️ Error parsing trip update entity " + entity.getId() + ": " + e.getMessage());
-                        // Continue parsing other entities
-                    }
+            LocalDateTime predictionTime = LocalDateTime.now();
+            predictions = new ArrayList<>(feed.getStopTimeUpdateCount());
+            for (int i = 0; i < feed.getStopTimeUpdateCount(); i++) {
+                ArrivalPrediction prediction = toArrivalPrediction(feed.getStopTimeUpdate(i), predictionTime);
+                if (prediction != null) {
+                    predictions.add(prediction);
                 }
             }
 
@@ -276,92 +205,115 @@ public class GTFSRealtimeParser {
         }
     }
 
-    private List<ArrivalPrediction> parseTripUpdateEntity(FeedEntity entity) {
-        List<ArrivalPrediction> predictions = new ArrayList<>();
-        GtfsRealtime.TripUpdate tripUpdate = entity.getTripUpdate();
-
-        // Get trip information
-        String tripId = null;
-        String routeId = null;
-
-        if (tripUpdate.hasTrip()) {
-            GtfsRealtime.TripDescriptor trip = tripUpdate.getTrip();
-            tripId = trip.hasTripId() ? trip.getTripId() : null;
-            routeId = trip.hasRouteId() ? trip.getRouteId() : null;
+    private ArrivalPrediction toArrivalPrediction(GTFSRealtimeStreamDecoder.StopTimeUpdateRecord record,
+                                                  LocalDateTime predictionTime) {
+        // Validate required fields
+        if (record.stopId == null || record.arrivalTime <= 0) {
+            return null;
         }
 
-        // Process stop time updates
-        for (GtfsRealtime.TripUpdate.StopTimeUpdate stopTimeUpdate : tripUpdate.getStopTimeUpdateList()) {
-            try {
-                ArrivalPrediction prediction = parseStopTimeUpdate(stopTimeUpdate, tripId, routeId);
-                if (prediction != null) {
-                    predictions.add(prediction);
-                }
-            } catch (Exception e) {
-                System.err.println("⚠️ Error parsing stop time update: " + e.getMessage());
-            }
+        ArrivalPrediction prediction = new ArrivalPrediction();
+        prediction.setStopId(record.stopId);
+        prediction.setStopSequence(record.stopSequence);
+        prediction.setTripId(record.tripId);
+        prediction.setRouteId(record.routeId);
+
+        // Epoch seconds only, getPredictedArrival() derives the LocalDateTime when needed
+        prediction.setArrivalTime(record.arrivalTime);
+        prediction.setRealtime(true);
+
+        if (record.hasArrivalDelay) {
+            prediction.setDelay(record.arrivalDelay);
+            prediction.setDelayMinutes(record.arrivalDelay / 60);
+        }
+        if (record.departureTime > 0) {
+            prediction.setDepartureTime(record.departureTime);
         }
 
-        return predictions;
+        prediction.setPredictionTime(predictionTime);
+        return prediction;
     }
 
-    private ArrivalPrediction parseStopTimeUpdate(
-            GtfsRealtime.TripUpdate.StopTimeUpdate stopTimeUpdate,
-            String tripId,
-            String routeId) {
+    /**
+     * Parse service alerts from GTFS Realtime Protocol Buffer data
+     * The alerts feed is small and every field is used, so it goes through the generated classes
+     * @param protobufData Binary Protocol Buffer data
+     * @return List of parsed service alerts
+     */
+    public List<ServiceAlert> parseServiceAlerts(byte[] protobufData) throws DataException {
+        List<ServiceAlert> alerts = new ArrayList<>();
 
-        ArrivalPrediction prediction = new ArrivalPrediction();
+        try {
+            if (protobufData == null || protobufData.length == 0) {
+                System.out.println("⚠️ Empty protobuf data received - no service alerts available");
+                return alerts;
+            }
 
-        // Stop information
-        if (stopTimeUpdate.hasStopId()) {
-            prediction.setStopId(stopTimeUpdate.getStopId());
-        }
+            FeedMessage feedMessage = FeedMessage.parseFrom(protobufData);
 
-        // Trip and route IDs
-        prediction.setTripId(tripId);
-        prediction.setRouteId(routeId);
-
-        // Arrival time
-        if (stopTimeUpdate.hasArrival()) {
-            GtfsRealtime.TripUpdate.StopTimeEvent arrival = stopTimeUpdate.getArrival();
-
-            if (arrival.hasTime()) {
-                long timestamp = arrival.getTime();
-                prediction.setArrivalTime(timestamp);
-                LocalDateTime arrivalTime = LocalDateTime.ofInstant(
-                    Instant.ofEpochSecond(timestamp),
-                    ZoneId.systemDefault()
-                );
-                prediction.setPredictedArrival(arrivalTime);
-                prediction.setRealtime(true);
+            // Verify FeedMessage has required header field
+            if (!feedMessage.hasHeader()) {
+                System.err.println("⚠️ FeedMessage missing required 'header' field - data is malformed");
+                return alerts;
             }
 
-            if (arrival.hasDelay()) {
-                int delaySeconds = arrival.getDelay();
-                prediction.setDelay(delaySeconds);
-                prediction.setDelayMinutes(delaySeconds / 60);
+            for (FeedEntity entity : feedMessage.getEntityList()) {
+                if (entity.hasAlert() && !entity.getIsDeleted()) {
+                    alerts.add(toServiceAlert(entity.getId(), entity.getAlert()));
+                }
             }
+
+            System.out.println("✅ Parsed " + alerts.size() + " service alerts");
+            return alerts;
+
+        } catch (Exception e) {
+            throw new DataException("Failed to parse service alerts protobuf", e);
         }
+    }
 
-        // Departure time
-        if (stopTimeUpdate.hasDeparture()) {
-            GtfsRealtime.TripUpdate.StopTimeEvent departure = stopTimeUpdate.getDeparture();
+    private ServiceAlert toServiceAlert(String alertId, GtfsRealtime.Alert alertProto) {
+        ServiceAlert alert = new ServiceAlert(alertId);
+        alert.setContentHash(alertProto.hashCode());
+        alert.setCause(alertProto.getCause().name());
+        alert.setEffect(alertProto.getEffect().name());
+        if (alertProto.hasSeverityLevel()) {
+            alert.setSeverityLevel(alertProto.getSeverityLevel().name());
+        }
 
-            if (departure.hasTime()) {
-                long timestamp = departure.getTime();
-                prediction.setDepartureTime(timestamp);
-            }
+        for (GtfsRealtime.TranslatedString.Translation t : alertProto.getHeaderText().getTranslationList()) {
+            alert.putHeaderText(t.getLanguage(), t.getText());
+        }
+        for (GtfsRealtime.TranslatedString.Translation t : alertProto.getDescriptionText().getTranslationList()) {
+            alert.putDescriptionText(t.getLanguage(), t.getText());
+        }
+        if (alertProto.getUrl().getTranslationCount() > 0) {
+            alert.setUrl(alertProto.getUrl().getTranslation(0).getText());
         }
 
-        // Set prediction time to now
-        prediction.setPredictionTime(LocalDateTime.now());
+        for (GtfsRealtime.TimeRange period : alertProto.getActivePeriodList()) {
+            alert.getActivePeriods().add(new ServiceAlert.ActivePeriod(period.getStart(), period.getEnd()));
+        }
 
-        // Validate required fields
-        if (prediction.getStopId() == null || prediction.getPredictedArrival() == null) {
-            return null;
+        for (GtfsRealtime.EntitySelector selector : alertProto.getInformedEntityList()) {
+            if (selector.hasAgencyId()) {
+                alert.getAgencyIds().add(selector.getAgencyId());
+            }
+            if (selector.hasRouteId()) {
+                alert.getRouteIds().add(selector.getRouteId());
+            }
+            if (selector.hasStopId()) {
+                alert.getStopIds().add(selector.getStopId());
+            }
+            if (selector.hasTrip()) {
+                if (selector.getTrip().hasTripId()) {
+                    alert.getTripIds().add(selector.getTrip().getTripId());
+                } else if (selector.getTrip().hasRouteId()) {
+                    alert.getRouteIds().add(selector.getTrip().getRouteId());
+                }
+            }
         }
 
-        return prediction;
+        return alert;
     }
 
     /**
@@ -0,0 +1,445 @@
+package com.rometransit.service.gtfs;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming GTFS-RT decoder that reads only the fields the app uses.
+ *
+ * Walks the protobuf wire format with CodedInputStream directly over the downloaded
+ * byte array instead of materializing the FeedMessage object graph. Vehicle positions
+ * and stop time updates land in pooled, primitive-backed records that are reset and
+ * reused by the next decode, and times stay in epoch seconds.
+ *
+ * Not thread-safe: the returned {@link DecodedFeed} is overwritten by the next call,
+ * so use one decoder per thread.
+ */
+public class GTFSRealtimeStreamDecoder {
+
+    // gtfs-realtime.proto field numbers
+    private static final int FEED_HEADER = 1;
+    private static final int FEED_ENTITY = 2;
+    private static final int HEADER_TIMESTAMP = 3;
+
+    private static final int ENTITY_ID = 1;
+    private static final int ENTITY_TRIP_UPDATE = 3;
+    private static final int ENTITY_VEHICLE = 4;
+
+    private static final int VP_TRIP = 1;
+    private static final int VP_POSITION = 2;
+    private static final int VP_CURRENT_STATUS = 4;
+    private static final int VP_TIMESTAMP = 5;
+    private static final int VP_STOP_ID = 7;
+    private static final int VP_VEHICLE = 8;
+    private static final int VP_OCCUPANCY_STATUS = 9;
+    private static final int VP_OCCUPANCY_PERCENTAGE = 10;
+
+    private static final int TRIP_TRIP_ID = 1;
+    private static final int TRIP_ROUTE_ID = 5;
+
+    private static final int POSITION_LATITUDE = 1;
+    private static final int POSITION_LONGITUDE = 2;
+    private static final int POSITION_BEARING = 3;
+    private static final int POSITION_SPEED = 5;
+
+    private static final int VEHICLE_ID = 1;
+
+    private static final int TU_TRIP = 1;
+    private static final int TU_STOP_TIME_UPDATE = 2;
+
+    private static final int STU_STOP_SEQUENCE = 1;
+    private static final int STU_ARRIVAL = 2;
+    private static final int STU_DEPARTURE = 3;
+    private static final int STU_STOP_ID = 4;
+
+    private static final int EVENT_DELAY = 1;
+    private static final int EVENT_TIME = 2;
+
+    private final DecodedFeed feed = new DecodedFeed();
+
+    // Trip descriptor of the trip update being decoded
+    private String tripId;
+    private String routeId;
+
+    /**
+     * Decode a FeedMessage. The result is only valid until the next call.
+     */
+    public DecodedFeed decode(byte[] data) throws IOException {
+        feed.reset();
+        if (data == null || data.length == 0) {
+            return feed;
+        }
+
+        CodedInputStream in = CodedInputStream.newInstance(data);
+        in.enableAliasing(true);
+
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case FEED_HEADER:
+                    if (isMessage(tag)) {
+                        int limit = in.pushLimit(in.readRawVarint32());
+                        readHeader(in);
+                        in.popLimit(limit);
+                        feed.hasHeader = true;
+                    } else {
+                        in.skipField(tag);
+                    }
+                    break;
+                case FEED_ENTITY:
+                    if (isMessage(tag)) {
+                        int limit = in.pushLimit(in.readRawVarint32());
+                        readEntity(in);
+                        in.popLimit(limit);
+                    } else {
+                        in.skipField(tag);
+                    }
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+        return feed;
+    }
+
+    private void readHeader(CodedInputStream in) throws IOException {
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            if (WireFormat.getTagFieldNumber(tag) == HEADER_TIMESTAMP && isVarint(tag)) {
+                feed.headerTimestamp = in.readUInt64();
+            } else {
+                in.skipField(tag);
+            }
+        }
+    }
+
+    private void readEntity(CodedInputStream in) throws IOException {
+        String entityId = null;
+        VehicleRecord vehicle = null;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            int field = WireFormat.getTagFieldNumber(tag);
+            if (field == ENTITY_ID && isMessage(tag)) {
+                entityId = in.readString();
+            } else if (field == ENTITY_VEHICLE && isMessage(tag)) {
+                vehicle = feed.nextVehicle();
+                int limit = in.pushLimit(in.readRawVarint32());
+                readVehicle(in, vehicle);
+                in.popLimit(limit);
+            } else if (field == ENTITY_TRIP_UPDATE && isMessage(tag)) {
+                int limit = in.pushLimit(in.readRawVarint32());
+                readTripUpdate(in);
+                in.popLimit(limit);
+            } else {
+                in.skipField(tag);
+            }
+        }
+        if (vehicle != null) {
+            vehicle.entityId = entityId;
+        }
+    }
+
+    // ===== VehiclePosition =====
+
+    private void readVehicle(CodedInputStream in, VehicleRecord record) throws IOException {
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case VP_TRIP:
+                    if (!isMessage(tag)) { in.skipField(tag); break; }
+                    int tripLimit = in.pushLimit(in.readRawVarint32());
+                    readTripDescriptor(in);
+                    record.tripId = tripId;
+                    record.routeId = routeId;
+                    in.popLimit(tripLimit);
+                    break;
+                case VP_POSITION:
+                    if (!isMessage(tag)) { in.skipField(tag); break; }
+                    int positionLimit = in.pushLimit(in.readRawVarint32());
+                    readPosition(in, record);
+                    in.popLimit(positionLimit);
+                    break;
+                case VP_VEHICLE:
+                    if (!isMessage(tag)) { in.skipField(tag); break; }
+                    int vehicleLimit = in.pushLimit(in.readRawVarint32());
+                    readVehicleDescriptor(in, record);
+                    in.popLimit(vehicleLimit);
+                    break;
+                case VP_CURRENT_STATUS:
+                    if (isVarint(tag)) record.currentStatus = in.readEnum(); else in.skipField(tag);
+                    break;
+                case VP_TIMESTAMP:
+                    if (isVarint(tag)) record.timestamp = in.readUInt64(); else in.skipField(tag);
+                    break;
+                case VP_STOP_ID:
+                    if (isMessage(tag)) record.stopId = in.readString(); else in.skipField(tag);
+                    break;
+                case VP_OCCUPANCY_STATUS:
+                    if (isVarint(tag)) record.occupancyStatus = in.readEnum(); else in.skipField(tag);
+                    break;
+                case VP_OCCUPANCY_PERCENTAGE:
+                    if (isVarint(tag)) record.occupancyPercentage = in.readUInt32(); else in.skipField(tag);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+    }
+
+    private void readPosition(CodedInputStream in, VehicleRecord record) throws IOException {
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            if (WireFormat.getTagWireType(tag) != WireFormat.WIRETYPE_FIXED32) {
+                in.skipField(tag);
+                continue;
+            }
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case POSITION_LATITUDE:
+                    record.latitude = in.readFloat();
+                    break;
+                case POSITION_LONGITUDE:
+                    record.longitude = in.readFloat();
+                    break;
+                case POSITION_BEARING:
+                    record.bearing = in.readFloat();
+                    record.hasBearing = true;
+                    break;
+                case POSITION_SPEED:
+                    record.speed = in.readFloat();
+                    record.hasSpeed = true;
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+    }
+
+    private void readVehicleDescriptor(CodedInputStream in, VehicleRecord record) throws IOException {
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            if (WireFormat.getTagFieldNumber(tag) == VEHICLE_ID && isMessage(tag)) {
+                record.vehicleId = in.readString();
+            } else {
+                in.skipField(tag);
+            }
+        }
+    }
+
+    private void readTripDescriptor(CodedInputStream in) throws IOException {
+        tripId = null;
+        routeId = null;
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            int field = WireFormat.getTagFieldNumber(tag);
+            if (field == TRIP_TRIP_ID && isMessage(tag)) {
+                tripId = in.readString();
+            } else if (field == TRIP_ROUTE_ID && isMessage(tag)) {
+                routeId = in.readString();
+            } else {
+                in.skipField(tag);
+            }
+        }
+    }
+
+    // ===== TripUpdate =====
+
+    private void readTripUpdate(CodedInputStream in) throws IOException {
+        tripId = null;
+        routeId = null;
+        int firstUpdate = feed.stopTimeUpdateCount;
+
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            int field = WireFormat.getTagFieldNumber(tag);
+            if (field == TU_TRIP && isMessage(tag)) {
+                int limit = in.pushLimit(in.readRawVarint32());
+                readTripDescriptor(in);
+                in.popLimit(limit);
+            } else if (field == TU_STOP_TIME_UPDATE && isMessage(tag)) {
+                StopTimeUpdateRecord record = feed.nextStopTimeUpdate();
+                int limit = in.pushLimit(in.readRawVarint32());
+                readStopTimeUpdate(in, record);
+                in.popLimit(limit);
+            } else {
+                in.skipField(tag);
+            }
+        }
+
+        // The trip descriptor may follow the updates on the wire
+        for (int i = firstUpdate; i < feed.stopTimeUpdateCount; i++) {
+            StopTimeUpdateRecord record = feed.stopTimeUpdates.get(i);
+            record.tripId = tripId;
+            record.routeId = routeId;
+        }
+    }
+
+    private void readStopTimeUpdate(CodedInputStream in, StopTimeUpdateRecord record) throws IOException {
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case STU_STOP_SEQUENCE:
+                    if (isVarint(tag)) record.stopSequence = in.readUInt32(); else in.skipField(tag);
+                    break;
+                case STU_STOP_ID:
+                    if (isMessage(tag)) record.stopId = in.readString(); else in.skipField(tag);
+                    break;
+                case STU_ARRIVAL:
+                    if (!isMessage(tag)) { in.skipField(tag); break; }
+                    int arrivalLimit = in.pushLimit(in.readRawVarint32());
+                    readStopTimeEvent(in, record, true);
+                    in.popLimit(arrivalLimit);
+                    break;
+                case STU_DEPARTURE:
+                    if (!isMessage(tag)) { in.skipField(tag); break; }
+                    int departureLimit = in.pushLimit(in.readRawVarint32());
+                    readStopTimeEvent(in, record, false);
+                    in.popLimit(departureLimit);
+                    break;
+                default:
+                    in.skipField(tag);
+            }
+        }
+    }
+
+    private void readStopTimeEvent(CodedInputStream in, StopTimeUpdateRecord record, boolean arrival) throws IOException {
+        int tag;
+        while ((tag = in.readTag()) != 0) {
+            int field = WireFormat.getTagFieldNumber(tag);
+            if (field == EVENT_TIME && isVarint(tag)) {
+                long time = in.readInt64();
+                if (arrival) {
+                    record.arrivalTime = time;
+                } else {
+                    record.departureTime = time;
+                }
+            } else if (field == EVENT_DELAY && isVarint(tag) && arrival) {
+                record.arrivalDelay = in.readInt32();
+                record.hasArrivalDelay = true;
+            } else {
+                in.skipField(tag);
+            }
+        }
+    }
+
+    private static boolean isMessage(int tag) {
+        return WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_LENGTH_DELIMITED;
+    }
+
+    private static boolean isVarint(int tag) {
+        return WireFormat.getTagWireType(tag) == WireFormat.WIRETYPE_VARINT;
+    }
+
+    // ===== Records =====
+
+    /**
+     * Result of one decode, backed by record pools that grow to the largest feed seen
+     */
+    public static class DecodedFeed {
+        private final List<VehicleRecord> vehicles = new ArrayList<>();
+        private final List<StopTimeUpdateRecord> stopTimeUpdates = new ArrayList<>();
+        private int vehicleCount;
+        private int stopTimeUpdateCount;
+        private boolean hasHeader;
+        private long headerTimestamp;
+
+        void reset() {
+            vehicleCount = 0;
+            stopTimeUpdateCount = 0;
+            hasHeader = false;
+            headerTimestamp = 0;
+        }
+
+        VehicleRecord nextVehicle() {
+            if (vehicleCount == vehicles.size()) {
+                vehicles.add(new VehicleRecord());
+            }
+            VehicleRecord record = vehicles.get(vehicleCount++);
+            record.reset();
+            return record;
+        }
+
+        StopTimeUpdateRecord nextStopTimeUpdate() {
+            if (stopTimeUpdateCount == stopTimeUpdates.size()) {
+                stopTimeUpdates.add(new StopTimeUpdateRecord());
+            }
+            StopTimeUpdateRecord record = stopTimeUpdates.get(stopTimeUpdateCount++);
+            record.reset();
+            return record;
+        }
+
+        public boolean hasHeader() { return hasHeader; }
+        public long getHeaderTimestamp() { return headerTimestamp; }
+        public int getVehicleCount() { return vehicleCount; }
+        public VehicleRecord getVehicle(int index) { return vehicles.get(index); }
+        public int getStopTimeUpdateCount() { return stopTimeUpdateCount; }
+        public StopTimeUpdateRecord getStopTimeUpdate(int index) { return stopTimeUpdates.get(index); }
+    }
+
+    /**
+     * Fields of a VehiclePosition entity; enums keep their wire values (-1 when absent)
+     */
+    public static class VehicleRecord {
+        public String entityId;
+        public String vehicleId;
+        public String tripId;
+        public String routeId;
+        public String stopId;
+        public float latitude;
+        public float longitude;
+        public float bearing;
+        public float speed;
+        public boolean hasBearing;
+        public boolean hasSpeed;
+        public long timestamp;          // epoch seconds, 0 when absent
+        public int currentStatus;
+        public int occupancyStatus;
+        public int occupancyPercentage;
+
+        void reset() {
+            entityId = null;
+            vehicleId = null;
+            tripId = null;
+            routeId = null;
+            stopId = null;
+            latitude = 0;
+            longitude = 0;
+            bearing = 0;
+            speed = 0;
+            hasBearing = false;
+            hasSpeed = false;
+            timestamp = 0;
+            currentStatus = -1;
+            occupancyStatus = -1;
+            occupancyPercentage = -1;
+        }
+    }
+
+    /**
+     * One stop_time_update with its trip descriptor; times in epoch seconds, 0 when absent
+     */
+    public static class StopTimeUpdateRecord {
+        public String tripId;
+        public String routeId;
+        public String stopId;
+        public int stopSequence;
+        public long arrivalTime;
+        public long departureTime;
+        public int arrivalDelay;
+        public boolean hasArrivalDelay;
+
+        void reset() {
+            tripId = null;
+            routeId = null;
+            stopId = null;
+            stopSequence = 0;
+            arrivalTime = 0;
+            departureTime = 0;
+            arrivalDelay = 0;
+            hasArrivalDelay = false;
+        }
+    }
+}
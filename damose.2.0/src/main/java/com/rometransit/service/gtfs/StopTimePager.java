@@ -0,0 +1,292 @@
+package com.rometransit.service.gtfs;
+
+import com.rometransit.data.repository.GTFSRepository;
+import com.rometransit.model.entity.StopTime;
+import com.rometransit.service.execution.ExecutionManager;
+import com.rometransit.service.execution.TaskScope;
+import com.rometransit.service.memory.MemoryBudgeted;
+import com.rometransit.util.metrics.Counter;
+import com.rometransit.util.metrics.LatencyHistogram;
+import com.rometransit.util.metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * stop_times of the low-memory timetable mode: read from SQLite on demand instead of
+ * being loaded whole into GTFSDataManager.
+ *
+ * Pages are the rows of one trip (trip_schedules lookup) or of one stop (through pattern_stops),
+ * kept in one LRU bounded by a number of rows and by the "stop_times" memory budget.
+ * A trip miss also prefetches, in one background query, the neighbouring trips of the
+ * same route: a board or a vehicle on a route usually needs the next trips of that route.
+ */
+public final class StopTimePager implements MemoryBudgeted {
+
+    // StopTime with its own time strings read from SQLite (trip and stop ids are the symbol table's)
+    private static final long ROW_BYTES = 224;
+    private static final long PAGE_BYTES = 96;
+
+    private static final Counter HITS = MetricsRegistry.getInstance().counter("stop_times.page.hit");
+    private static final Counter MISSES = MetricsRegistry.getInstance().counter("stop_times.page.miss");
+    private static final Counter PREFETCHED = MetricsRegistry.getInstance().counter("stop_times.page.prefetched");
+    private static final Counter PREFETCH_HITS = MetricsRegistry.getInstance().counter("stop_times.page.prefetch_hit");
+    private static final LatencyHistogram PAGE_IN_LATENCY = MetricsRegistry.getInstance().histogram("stop_times.page.load");
+
+    private final GTFSRepository repository;
+    private final Function<String, List<String>> neighbourTrips;
+    private final Consumer<StopTime> binder;
+    private final int maxRows;
+    private final TaskScope prefetchScope;
+
+    // "t:<tripId>" or "s:<stopId>" -> rows, access-ordered (guarded by this)
+    private final LinkedHashMap<String, Page> pages = new LinkedHashMap<>(1024, 0.75f, true);
+    private long cachedRows;
+    private long generation;
+    private long evictions;
+
+    // Trips whose prefetch is queued or running
+    private final Set<String> prefetching = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param neighbourTrips trips to prefetch after a miss on the given trip
+     * @param binder applied to every row read (symbol binding)
+     * @param maxRows upper bound of cached rows (trip and stop pages together)
+     */
+    public StopTimePager(GTFSRepository repository, Function<String, List<String>> neighbourTrips,
+                         Consumer<StopTime> binder, int maxRows) {
+        this.repository = repository;
+        this.neighbourTrips = neighbourTrips;
+        this.binder = binder;
+        this.maxRows = Math.max(1000, maxRows);
+        this.prefetchScope = ExecutionManager.getInstance().io("stop-times-prefetch", 2);
+
+        MetricsRegistry.getInstance().gauge("stop_times.page.rows", () -> getCachedRows());
+        MetricsRegistry.getInstance().gauge("stop_times.page.hit_rate", () -> getStats().hitRate());
+    }
+
+    // ===== Lookups =====
+
+    public List<StopTime> getForTrip(String tripId) {
+        List<StopTime> rows = lookup("t:" + tripId);
+        if (rows != null) {
+            return rows;
+        }
+        long startGeneration = currentGeneration();
+        rows = load(() -> repository.getStopTimesByTrip(tripId));
+        if (rows == null) {
+            return List.of();
+        }
+        store("t:" + tripId, rows, startGeneration, false);
+        prefetchNeighbours(tripId);
+        return rows;
+    }
+
+    public List<StopTime> getForStop(String stopId) {
+        List<StopTime> rows = lookup("s:" + stopId);
+        if (rows != null) {
+            return rows;
+        }
+        long startGeneration = currentGeneration();
+        rows = load(() -> repository.getStopTimesByStop(stopId));
+        if (rows == null) {
+            return List.of();
+        }
+        store("s:" + stopId, rows, startGeneration, false);
+        return rows;
+    }
+
+    private synchronized List<StopTime> lookup(String key) {
+        Page page = pages.get(key);
+        if (page == null) {
+            MISSES.increment();
+            return null;
+        }
+        HITS.increment();
+        if (page.prefetched) {
+            page.prefetched = false;
+            PREFETCH_HITS.increment();
+        }
+        return page.rows;
+    }
+
+    /**
+     * Rows of one query, null if SQLite failed (not cached, so the read is retried)
+     */
+    private List<StopTime> load(Query query) {
+        long start = System.nanoTime();
+        try {
+            List<StopTime> rows = query.run();
+            rows.forEach(binder);
+            return Collections.unmodifiableList(rows);
+        } catch (Exception e) {
+            System.err.println("⚠️ Failed to read stop_times: " + e.getMessage());
+            return null;
+        } finally {
+            PAGE_IN_LATENCY.recordSince(start);
+        }
+    }
+
+    /**
+     * Cache a page unless the data was reloaded meanwhile (empty pages are cached too:
+     * realtime feeds keep asking for trips that are not in the timetable)
+     */
+    private synchronized void store(String key, List<StopTime> rows, long startGeneration, boolean prefetched) {
+        if (generation != startGeneration || pages.containsKey(key)) {
+            return;
+        }
+        pages.put(key, new Page(rows, prefetched));
+        cachedRows += rows.size();
+        evictWhile(() -> cachedRows > maxRows);
+    }
+
+    // ===== Prefetch =====
+
+    private void prefetchNeighbours(String tripId) {
+        List<String> missing = new ArrayList<>();
+        synchronized (this) {
+            for (String neighbour : neighbourTrips.apply(tripId)) {
+                if (!pages.containsKey("t:" + neighbour) && prefetching.add(neighbour)) {
+                    missing.add(neighbour);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        long startGeneration = currentGeneration();
+        try {
+            prefetchScope.execute(() -> {
+                try {
+                    List<StopTime> rows = load(() -> repository.getStopTimesByTrips(missing));
+                    if (rows == null) {
+                        return;
+                    }
+                    Map<String, List<StopTime>> byTrip = new LinkedHashMap<>();
+                    for (StopTime stopTime : rows) {
+                        byTrip.computeIfAbsent(stopTime.getTripId(), k -> new ArrayList<>()).add(stopTime);
+                    }
+                    // Neighbours without rows get an empty page, as getForTrip stores one
+                    for (String neighbour : missing) {
+                        List<StopTime> tripRows = byTrip.get(neighbour);
+                        store("t:" + neighbour, tripRows != null ? Collections.unmodifiableList(tripRows) : List.of(),
+                              startGeneration, true);
+                        PREFETCHED.increment();
+                    }
+                } finally {
+                    missing.forEach(prefetching::remove);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            missing.forEach(prefetching::remove);
+        }
+    }
+
+    // ===== Invalidation and eviction =====
+
+    /**
+     * Drop every page (static data reloaded)
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        pages.clear();
+        cachedRows = 0;
+    }
+
+    private synchronized long currentGeneration() {
+        return generation;
+    }
+
+    private void evictWhile(BooleanSupplier condition) {
+        Iterator<Page> iterator = pages.values().iterator();
+        while (condition.getAsBoolean() && iterator.hasNext()) {
+            cachedRows -= iterator.next().rows.size();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized long getCachedRows() {
+        return cachedRows;
+    }
+
+    // ===== Memory budget =====
+
+    @Override
+    public synchronized long getFootprintBytes() {
+        return cachedRows * ROW_BYTES + pages.size() * PAGE_BYTES;
+    }
+
+    @Override
+    public synchronized int getEntryCount() {
+        return pages.size();
+    }
+
+    @Override
+    public synchronized void trimTo(long maxBytes) {
+        evictWhile(() -> getFootprintBytes() > maxBytes);
+    }
+
+    // ===== Stats =====
+
+    public synchronized PagerStats getStats() {
+        PagerStats stats = new PagerStats();
+        stats.pages = pages.size();
+        stats.rows = cachedRows;
+        stats.maxRows = maxRows;
+        stats.hits = HITS.getCount();
+        stats.misses = MISSES.getCount();
+        stats.prefetched = PREFETCHED.getCount();
+        stats.prefetchHits = PREFETCH_HITS.getCount();
+        stats.evictions = evictions;
+        return stats;
+    }
+
+    @FunctionalInterface
+    private interface Query {
+        List<StopTime> run() throws Exception;
+    }
+
+    private static class Page {
+        final List<StopTime> rows;
+        boolean prefetched;
+
+        Page(List<StopTime> rows, boolean prefetched) {
+            this.rows = rows;
+            this.prefetched = prefetched;
+        }
+    }
+
+    public static class PagerStats {
+        public int pages;
+        public long rows;
+        public int maxRows;
+        public long hits;
+        public long misses;
+        public long prefetched;
+        public long prefetchHits;
+        public long evictions;
+
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests > 0 ? (double) hits / requests * 100 : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("StopTimePager{pages=%d, rows=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, prefetched=%d, prefetchHits=%d, evictions=%d}",
+                pages, rows, maxRows, hits, misses, hitRate(), prefetched, prefetchHits, evictions);
+        }
+    }
+}
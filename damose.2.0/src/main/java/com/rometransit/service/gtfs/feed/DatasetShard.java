@@ -0,0 +1,390 @@
+package com.rometransit.service.gtfs.feed;
+
+import com.rometransit.data.database.SQLiteDatabaseManager;
+import com.rometransit.data.repository.GTFSRepository;
+import com.rometransit.model.dto.ArrivalPrediction;
+import com.rometransit.model.dto.VehiclePosition;
+import com.rometransit.model.entity.Route;
+import com.rometransit.model.entity.Shape;
+import com.rometransit.model.entity.Stop;
+import com.rometransit.model.entity.StopTime;
+import com.rometransit.model.entity.Trip;
+import com.rometransit.service.gtfs.GTFSParser;
+import com.rometransit.service.gtfs.GTFSRealtimeParser;
+import com.rometransit.service.network.NetworkManager;
+import com.rometransit.util.exception.DataException;
+import com.rometransit.util.metrics.MetricsRegistry;
+import com.rometransit.util.spatial.SpatialIndex;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One extra GTFS feed: its own SQLite database (feed-native ids) and an immutable in-memory
+ * snapshot with namespaced ids (see FeedIds), swapped in one step on refresh so readers never
+ * see a half-loaded feed. Each shard is loaded, refreshed and polled on its own.
+ */
+public class DatasetShard {
+
+    private static final int POOL_SIZE = 2;
+
+    private final FeedDefinition definition;
+    private final Path directory;
+    private final SQLiteDatabaseManager database;
+    private final GTFSRepository repository;
+    private final GTFSRealtimeParser realtimeParser = new GTFSRealtimeParser();
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile List<VehiclePosition> vehicles = List.of();
+    private volatile LocalDateTime lastLoad;
+    private volatile LocalDateTime lastRealtime;
+    private volatile String lastError;
+
+    DatasetShard(FeedDefinition definition, Path directory) {
+        this.definition = definition;
+        this.directory = directory;
+        this.database = SQLiteDatabaseManager.open(directory.resolve(definition.id() + ".db"), POOL_SIZE);
+        this.repository = new GTFSRepository(database);
+    }
+
+    // ===== Static data =====
+
+    /**
+     * Load the snapshot from the shard database, importing the feed first when it is empty
+     */
+    synchronized void load() throws DataException {
+        if (!repository.hasData()) {
+            importStatic();
+        }
+        rebuildSnapshot();
+    }
+
+    /**
+     * Re-import the feed (only what changed is written, see GTFSDeltaImporter) and swap the snapshot
+     */
+    synchronized void refresh() throws DataException {
+        importStatic();
+        rebuildSnapshot();
+    }
+
+    private void importStatic() throws DataException {
+        File zip = resolveStaticFile();
+        if (zip == null) {
+            throw new DataException("No static GTFS for feed " + definition.id() +
+                                    " (set gtfs.feed." + definition.id() + ".static.file or .static.download_url)");
+        }
+        System.out.println("📋 [" + definition.id() + "] Importing static GTFS from: " + zip.getAbsolutePath());
+        new GTFSParser(repository).parseGTFSZip(zip.getAbsolutePath());
+    }
+
+    /**
+     * Configured file if present, otherwise a fresh download into the feeds directory
+     */
+    private File resolveStaticFile() {
+        if (definition.staticFile() != null) {
+            for (File candidate : new File[] {
+                    new File(definition.staticFile()),
+                    directory.resolve(definition.staticFile()).toFile() }) {
+                if (candidate.isFile() && candidate.length() > 0) {
+                    return candidate;
+                }
+            }
+        }
+        if (definition.staticDownloadUrl() != null) {
+            File target = directory.resolve(definition.id() + "_gtfs.zip").toFile();
+            System.out.println("🌐 [" + definition.id() + "] Downloading static GTFS...");
+            if (NetworkManager.getInstance().downloadFile(definition.staticDownloadUrl(), target.getPath())) {
+                return target;
+            }
+        }
+        return null;
+    }
+
+    private void rebuildSnapshot() throws DataException {
+        long start = System.nanoTime();
+        try {
+            Snapshot loaded = Snapshot.load(definition.id(), repository);
+            snapshot = loaded;
+            lastLoad = LocalDateTime.now();
+            lastError = null;
+            MetricsRegistry.getInstance().histogram("feed." + definition.id() + ".load").recordSince(start);
+            System.out.println("✅ [" + definition.id() + "] Loaded " + loaded.stops.size() + " stops, " +
+                               loaded.routes.size() + " routes, " + loaded.trips.size() + " trips");
+        } catch (SQLException e) {
+            throw new DataException("Failed to load feed " + definition.id() + " from database", e);
+        }
+    }
+
+    // ===== Realtime =====
+
+    /**
+     * Download and parse the shard's realtime feeds; ids come back namespaced.
+     * A missing or failing feed yields an empty list for that part.
+     */
+    RealtimeBatch fetchRealtime() {
+        List<VehiclePosition> positions = List.of();
+        List<ArrivalPrediction> updates = List.of();
+        NetworkManager network = NetworkManager.getInstance();
+        long start = System.nanoTime();
+
+        try {
+            if (definition.vehiclePositionsUrl() != null) {
+                positions = realtimeParser.parseVehiclePositions(network.fetchBinaryData(definition.vehiclePositionsUrl()));
+                for (VehiclePosition position : positions) {
+                    qualify(position);
+                }
+            }
+            if (definition.tripUpdatesUrl() != null) {
+                updates = realtimeParser.parseTripUpdates(network.fetchBinaryData(definition.tripUpdatesUrl()));
+                for (ArrivalPrediction update : updates) {
+                    qualify(update);
+                }
+            }
+            vehicles = List.copyOf(positions);
+            lastRealtime = LocalDateTime.now();
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            System.err.println("⚠️ [" + definition.id() + "] Realtime fetch failed: " + e.getMessage());
+        }
+        MetricsRegistry.getInstance().histogram("feed." + definition.id() + ".realtime").recordSince(start);
+        return new RealtimeBatch(definition.id(), positions, updates);
+    }
+
+    private void qualify(VehiclePosition position) {
+        String feedId = definition.id();
+        position.setVehicleId(FeedIds.qualify(feedId, position.getVehicleId()));
+        position.setRouteId(FeedIds.qualify(feedId, position.getRouteId()));
+        position.setTripId(FeedIds.qualify(feedId, position.getTripId()));
+        position.setCurrentStopId(FeedIds.qualify(feedId, position.getCurrentStopId()));
+        position.setNextStopId(FeedIds.qualify(feedId, position.getNextStopId()));
+    }
+
+    private void qualify(ArrivalPrediction update) {
+        String feedId = definition.id();
+        update.setTripId(FeedIds.qualify(feedId, update.getTripId()));
+        update.setRouteId(FeedIds.qualify(feedId, update.getRouteId()));
+        update.setStopId(FeedIds.qualify(feedId, update.getStopId()));
+        update.setVehicleId(FeedIds.qualify(feedId, update.getVehicleId()));
+    }
+
+    void shutdown() {
+        database.shutdown();
+    }
+
+    // ===== Accessors =====
+
+    public String getId() {
+        return definition.id();
+    }
+
+    public FeedDefinition getDefinition() {
+        return definition;
+    }
+
+    public Snapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public List<VehiclePosition> getVehicles() {
+        return vehicles;
+    }
+
+    public ShardStats getStats() {
+        Snapshot current = snapshot;
+        ShardStats stats = new ShardStats();
+        stats.feedId = definition.id();
+        stats.name = definition.name();
+        stats.stops = current.stops.size();
+        stats.routes = current.routes.size();
+        stats.trips = current.trips.size();
+        stats.stopTimes = current.stopTimeCount;
+        stats.vehicles = vehicles.size();
+        stats.lastLoad = lastLoad;
+        stats.lastRealtime = lastRealtime;
+        stats.lastError = lastError;
+        return stats;
+    }
+
+    /**
+     * One realtime poll of a shard
+     */
+    public record RealtimeBatch(String feedId, List<VehiclePosition> vehicles, List<ArrivalPrediction> tripUpdates) {
+    }
+
+    /**
+     * Immutable static data of a shard, indexed like GTFSDataManager's maps, with namespaced ids
+     */
+    public static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(Map.of(), Map.of(), Map.of(), Map.of(), Map.of(),
+                                                   Map.of(), Map.of(), Map.of(), 0, new SpatialIndex());
+
+        private final Map<String, Stop> stops;
+        private final Map<String, Route> routes;
+        private final Map<String, Trip> trips;
+        private final Map<String, List<Trip>> tripsByRoute;
+        private final Map<String, List<Shape>> shapes;
+        private final Map<String, List<Stop>> stopsByTrip;
+        private final Map<String, List<StopTime>> stopTimesByTrip;
+        private final Map<String, List<StopTime>> stopTimesByStop;
+        private final int stopTimeCount;
+        private final SpatialIndex stopIndex;
+
+        private Snapshot(Map<String, Stop> stops, Map<String, Route> routes, Map<String, Trip> trips,
+                         Map<String, List<Trip>> tripsByRoute, Map<String, List<Shape>> shapes,
+                         Map<String, List<Stop>> stopsByTrip, Map<String, List<StopTime>> stopTimesByTrip,
+                         Map<String, List<StopTime>> stopTimesByStop, int stopTimeCount, SpatialIndex stopIndex) {
+            this.stops = stops;
+            this.routes = routes;
+            this.trips = trips;
+            this.tripsByRoute = tripsByRoute;
+            this.shapes = shapes;
+            this.stopsByTrip = stopsByTrip;
+            this.stopTimesByTrip = stopTimesByTrip;
+            this.stopTimesByStop = stopTimesByStop;
+            this.stopTimeCount = stopTimeCount;
+            this.stopIndex = stopIndex;
+        }
+
+        static Snapshot load(String feedId, GTFSRepository repository) throws SQLException {
+            Map<String, Stop> stops = new HashMap<>();
+            for (Stop stop : repository.loadStops()) {
+                stop.setStopId(FeedIds.qualify(feedId, stop.getStopId()));
+                stop.setParentStation(FeedIds.qualify(feedId, stop.getParentStation()));
+                stops.put(stop.getStopId(), stop);
+            }
+
+            Map<String, Route> routes = new HashMap<>();
+            for (Route route : repository.loadRoutes()) {
+                route.setRouteId(FeedIds.qualify(feedId, route.getRouteId()));
+                route.setAgencyId(FeedIds.qualify(feedId, route.getAgencyId()));
+                routes.put(route.getRouteId(), route);
+            }
+
+            Map<String, Trip> trips = new HashMap<>();
+            Map<String, List<Trip>> tripsByRoute = new HashMap<>();
+            for (Trip trip : repository.loadTrips()) {
+                trip.setTripId(FeedIds.qualify(feedId, trip.getTripId()));
+                trip.setRouteId(FeedIds.qualify(feedId, trip.getRouteId()));
+                trip.setServiceId(FeedIds.qualify(feedId, trip.getServiceId()));
+                trip.setShapeId(FeedIds.qualify(feedId, trip.getShapeId()));
+                trip.setBlockId(FeedIds.qualify(feedId, trip.getBlockId()));
+                trips.put(trip.getTripId(), trip);
+                tripsByRoute.computeIfAbsent(trip.getRouteId(), k -> new ArrayList<>()).add(trip);
+            }
+
+            Map<String, List<Shape>> shapes = new HashMap<>();
+            for (Shape shape : repository.loadShapes()) {
+                shape.setShapeId(FeedIds.qualify(feedId, shape.getShapeId()));
+                shapes.computeIfAbsent(shape.getShapeId(), k -> new ArrayList<>()).add(shape);
+            }
+            shapes.values().forEach(points -> points.sort(Comparator.comparingInt(Shape::getShapePtSequence)));
+
+            Map<String, List<StopTime>> stopTimesByTrip = new HashMap<>();
+            Map<String, List<StopTime>> stopTimesByStop = new HashMap<>();
+            List<StopTime> stopTimes = repository.loadStopTimes();
+            for (StopTime stopTime : stopTimes) {
+                stopTime.setTripId(FeedIds.qualify(feedId, stopTime.getTripId()));
+                stopTime.setStopId(FeedIds.qualify(feedId, stopTime.getStopId()));
+                stopTimesByTrip.computeIfAbsent(stopTime.getTripId(), k -> new ArrayList<>()).add(stopTime);
+                stopTimesByStop.computeIfAbsent(stopTime.getStopId(), k -> new ArrayList<>()).add(stopTime);
+            }
+            stopTimesByTrip.values().forEach(list -> list.sort(Comparator.comparingInt(StopTime::getStopSequence)));
+
+            Map<String, List<Stop>> stopsByTrip = new HashMap<>();
+            for (Map.Entry<String, List<StopTime>> entry : stopTimesByTrip.entrySet()) {
+                List<Stop> tripStops = new ArrayList<>(entry.getValue().size());
+                for (StopTime stopTime : entry.getValue()) {
+                    Stop stop = stops.get(stopTime.getStopId());
+                    if (stop != null) {
+                        tripStops.add(stop);
+                    }
+                }
+                if (!tripStops.isEmpty()) {
+                    stopsByTrip.put(entry.getKey(), tripStops);
+                }
+            }
+
+            SpatialIndex stopIndex = new SpatialIndex();
+            stopIndex.indexAll(stops.values());
+
+            return new Snapshot(stops, routes, trips, tripsByRoute, shapes, stopsByTrip,
+                                stopTimesByTrip, stopTimesByStop, stopTimes.size(), stopIndex);
+        }
+
+        public Collection<Stop> getStops() {
+            return Collections.unmodifiableCollection(stops.values());
+        }
+
+        public Collection<Route> getRoutes() {
+            return Collections.unmodifiableCollection(routes.values());
+        }
+
+        public Map<String, Trip> getTrips() {
+            return Collections.unmodifiableMap(trips);
+        }
+
+        public Stop getStop(String stopId) {
+            return stops.get(stopId);
+        }
+
+        public Route getRoute(String routeId) {
+            return routes.get(routeId);
+        }
+
+        public Trip getTrip(String tripId) {
+            return trips.get(tripId);
+        }
+
+        public List<Trip> getTripsByRoute(String routeId) {
+            return tripsByRoute.getOrDefault(routeId, Collections.emptyList());
+        }
+
+        public List<Shape> getShapePoints(String shapeId) {
+            return shapes.getOrDefault(shapeId, Collections.emptyList());
+        }
+
+        public List<Stop> getStopsByTrip(String tripId) {
+            return stopsByTrip.getOrDefault(tripId, Collections.emptyList());
+        }
+
+        public List<StopTime> getStopTimesForTrip(String tripId) {
+            return stopTimesByTrip.getOrDefault(tripId, Collections.emptyList());
+        }
+
+        public List<StopTime> getStopTimesForStop(String stopId) {
+            return stopTimesByStop.getOrDefault(stopId, Collections.emptyList());
+        }
+
+        public List<Stop> findStopsNearby(double latitude, double longitude, double radiusKm) {
+            return stopIndex.findNearby(latitude, longitude, radiusKm);
+        }
+    }
+
+    public static class ShardStats {
+        public String feedId;
+        public String name;
+        public int stops;
+        public int routes;
+        public int trips;
+        public int stopTimes;
+        public int vehicles;
+        public LocalDateTime lastLoad;
+        public LocalDateTime lastRealtime;
+        public String lastError;
+
+        @Override
+        public String toString() {
+            return String.format("%s (%s): %d stops, %d routes, %d trips, %d stop_times, %d vehicles",
+                                 feedId, name, stops, routes, trips, stopTimes, vehicles);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.rometransit.service.gtfs.feed;
+
+import com.rometransit.util.config.AppConfig;
+
+/**
+ * Configuration of one extra feed (gtfs.feed.&lt;id&gt;.* in application.properties)
+ */
+public record FeedDefinition(String id,
+                             String name,
+                             String staticFile,
+                             String staticDownloadUrl,
+                             String vehiclePositionsUrl,
+                             String tripUpdatesUrl) {
+
+    public static FeedDefinition fromConfig(AppConfig config, String id) {
+        if (!FeedIds.isValidFeedId(id)) {
+            throw new IllegalArgumentException("Invalid feed id '" + id + "' (use lowercase letters, digits, '-' and '_')");
+        }
+        String name = config.getGtfsFeedProperty(id, "name");
+        return new FeedDefinition(
+            id,
+            name != null ? name : id,
+            config.getGtfsFeedProperty(id, "static.file"),
+            config.getGtfsFeedProperty(id, "static.download_url"),
+            config.getGtfsFeedProperty(id, "realtime.vehicle_positions_url"),
+            config.getGtfsFeedProperty(id, "realtime.trip_updates_url"));
+    }
+
+    public boolean hasRealtime() {
+        return vehiclePositionsUrl != null || tripUpdatesUrl != null;
+    }
+}
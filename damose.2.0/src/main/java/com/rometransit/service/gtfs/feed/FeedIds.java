@@ -0,0 +1,46 @@
+package com.rometransit.service.gtfs.feed;
+
+/**
+ * Namespaced ids of the extra feed shards: "&lt;feedId&gt;:&lt;id&gt;" (e.g. "cotral:F123").
+ * Ids of the primary Roma Mobilità feed stay bare, so existing data and callers are unchanged.
+ */
+public final class FeedIds {
+
+    public static final char SEPARATOR = ':';
+
+    private FeedIds() {
+    }
+
+    public static String qualify(String feedId, String id) {
+        return id == null || id.isEmpty() ? id : feedId + SEPARATOR + id;
+    }
+
+    /**
+     * Feed prefix of an id, or null when it has none (a candidate for the primary feed)
+     */
+    public static String feedOf(String id) {
+        if (id == null) {
+            return null;
+        }
+        int separator = id.indexOf(SEPARATOR);
+        return separator > 0 ? id.substring(0, separator) : null;
+    }
+
+    /**
+     * The id as it appears in the feed's own files
+     */
+    public static String localId(String id) {
+        if (id == null) {
+            return null;
+        }
+        int separator = id.indexOf(SEPARATOR);
+        return separator > 0 ? id.substring(separator + 1) : id;
+    }
+
+    /**
+     * Feed ids become id prefixes and file names: lowercase letters, digits, '-' and '_'
+     */
+    public static boolean isValidFeedId(String feedId) {
+        return feedId != null && feedId.matches("[a-z0-9_-]+");
+    }
+}
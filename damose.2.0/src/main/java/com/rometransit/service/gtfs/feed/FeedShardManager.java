@@ -0,0 +1,221 @@
+package com.rometransit.service.gtfs.feed;
+
+import com.rometransit.model.dto.VehiclePosition;
+import com.rometransit.service.execution.ExecutionManager;
+import com.rometransit.service.execution.TaskScope;
+import com.rometransit.service.transit.ArrivalPredictionEngine;
+import com.rometransit.util.config.AppConfig;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+/**
+ * Extra GTFS feeds configured with gtfs.feeds, one DatasetShard each.
+ *
+ * Shards are imported and polled in parallel (one task per feed), queried together for
+ * federated search, and refreshed one at a time without touching the other feeds or the
+ * primary Roma Mobilità data held by GTFSDataManager.
+ *
+ * SINGLETON - Use getInstance()
+ */
+public class FeedShardManager {
+
+    private static FeedShardManager instance;
+
+    private final Map<String, DatasetShard> shards;
+    private final TaskScope importScope;
+    private final TaskScope realtimeScope;
+    private final TaskScope queryScope;
+    private CompletableFuture<Void> loading;
+
+    private FeedShardManager() {
+        AppConfig config = AppConfig.getInstance();
+        Path directory = Paths.get(config.getGtfsFeedsDirectory());
+        Map<String, DatasetShard> configured = new LinkedHashMap<>();
+        for (String feedId : config.getGtfsFeedIds()) {
+            try {
+                configured.put(feedId, new DatasetShard(FeedDefinition.fromConfig(config, feedId), directory));
+            } catch (Exception e) {
+                System.err.println("❌ Feed " + feedId + " disabled: " + e.getMessage());
+            }
+        }
+        this.shards = Collections.unmodifiableMap(configured);
+
+        ExecutionManager execution = ExecutionManager.getInstance();
+        this.importScope = execution.io("feed-import");
+        this.realtimeScope = execution.io("feed-realtime");
+        // Virtual threads: a federated query joined from a pool thread cannot starve that pool
+        this.queryScope = execution.io("feed-query");
+
+        if (!shards.isEmpty()) {
+            System.out.println("🗂️ Feed shards configured: " + String.join(", ", shards.keySet()));
+        }
+    }
+
+    public static synchronized FeedShardManager getInstance() {
+        if (instance == null) {
+            instance = new FeedShardManager();
+        }
+        return instance;
+    }
+
+    // ===== Loading =====
+
+    /**
+     * Load every shard in parallel (first call only); a shard that fails stays empty
+     * and does not hold back the others
+     */
+    public synchronized CompletableFuture<Void> loadAll() {
+        if (loading == null) {
+            List<CompletableFuture<Void>> loads = new ArrayList<>();
+            for (DatasetShard shard : shards.values()) {
+                loads.add(importScope.run(() -> {
+                    try {
+                        shard.load();
+                        ArrivalPredictionEngine.getInstance().invalidateFeed(shard.getId());
+                    } catch (Exception e) {
+                        System.err.println("❌ Failed to load feed " + shard.getId() + ": " + e.getMessage());
+                    }
+                }));
+            }
+            loading = CompletableFuture.allOf(loads.toArray(new CompletableFuture<?>[0]));
+        }
+        return loading;
+    }
+
+    /**
+     * Re-import one feed and swap its snapshot; the other shards keep serving meanwhile
+     */
+    public CompletableFuture<Void> refresh(String feedId) {
+        DatasetShard shard = shards.get(feedId);
+        if (shard == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unknown feed: " + feedId));
+        }
+        return importScope.run(() -> {
+            try {
+                shard.refresh();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+            ArrivalPredictionEngine.getInstance().invalidateFeed(feedId);
+        });
+    }
+
+    // ===== Realtime =====
+
+    /**
+     * Poll the realtime feeds of all shards in parallel; completes when every shard answered
+     * (a failing shard contributes empty lists, see DatasetShard.fetchRealtime)
+     */
+    public CompletableFuture<List<DatasetShard.RealtimeBatch>> fetchRealtimeAsync() {
+        List<CompletableFuture<DatasetShard.RealtimeBatch>> fetches = new ArrayList<>();
+        try {
+            for (DatasetShard shard : shards.values()) {
+                if (shard.getDefinition().hasRealtime()) {
+                    fetches.add(realtimeScope.supply(shard::fetchRealtime));
+                }
+            }
+        } catch (RejectedExecutionException e) {
+            // Shutting down: keep what was already submitted
+        }
+        return CompletableFuture.allOf(fetches.toArray(new CompletableFuture<?>[0]))
+            .thenApply(done -> fetches.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * Latest vehicles of all shards
+     */
+    public List<VehiclePosition> getVehiclePositions() {
+        List<VehiclePosition> all = new ArrayList<>();
+        for (DatasetShard shard : shards.values()) {
+            all.addAll(shard.getVehicles());
+        }
+        return all;
+    }
+
+    // ===== Federated queries =====
+
+    public boolean isEmpty() {
+        return shards.isEmpty();
+    }
+
+    /**
+     * Snapshot owning a namespaced id, null for ids of the primary feed
+     */
+    public DatasetShard.Snapshot snapshotFor(String id) {
+        if (shards.isEmpty()) {
+            return null;
+        }
+        String feedId = FeedIds.feedOf(id);
+        DatasetShard shard = feedId != null ? shards.get(feedId) : null;
+        return shard != null ? shard.getSnapshot() : null;
+    }
+
+    /**
+     * Run a query on every shard in parallel and merge the results with those of the primary
+     * feed in the given order, at most limit items
+     */
+    public <T> List<T> query(List<T> primary, Function<DatasetShard.Snapshot, List<T>> query,
+                             Comparator<? super T> order, int limit) {
+        if (shards.isEmpty()) {
+            return primary;
+        }
+        List<CompletableFuture<List<T>>> parts = new ArrayList<>();
+        for (DatasetShard shard : shards.values()) {
+            DatasetShard.Snapshot snapshot = shard.getSnapshot();
+            parts.add(queryScope.supply(() -> query.apply(snapshot)));
+        }
+        List<T> merged = new ArrayList<>(primary);
+        for (CompletableFuture<List<T>> part : parts) {
+            merged.addAll(part.join());
+        }
+        merged.sort(order);
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /**
+     * Items of every shard, e.g. all stops for the map
+     */
+    public <T> List<T> collect(Function<DatasetShard.Snapshot, Collection<T>> items) {
+        List<T> all = new ArrayList<>();
+        for (DatasetShard shard : shards.values()) {
+            all.addAll(items.apply(shard.getSnapshot()));
+        }
+        return all;
+    }
+
+    // ===== Status =====
+
+    public Collection<DatasetShard> getShards() {
+        return shards.values();
+    }
+
+    public DatasetShard getShard(String feedId) {
+        return shards.get(feedId);
+    }
+
+    public List<DatasetShard.ShardStats> getStats() {
+        List<DatasetShard.ShardStats> stats = new ArrayList<>();
+        for (DatasetShard shard : shards.values()) {
+            stats.add(shard.getStats());
+        }
+        return stats;
+    }
+
+    public void shutdown() {
+        for (DatasetShard shard : shards.values()) {
+            shard.shutdown();
+        }
+    }
+}
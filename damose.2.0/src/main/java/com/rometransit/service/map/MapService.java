@@ -4,6 +4,7 @@ import com.rometransit.model.dto.map.MapCoordinate;
 import com.rometransit.model.dto.map.MapTile;
 import com.rometransit.model.entity.Stop;
 import com.rometransit.model.entity.Route;
+import com.rometransit.service.execution.ExecutionManager;
 
 import java.io.*;
 import java.net.HttpURLConnection;
@@ -146,7 +147,7 @@ public class MapService {
      * Download and cache map tiles for offline use
      */
     public CompletableFuture<Integer> cacheMapTiles(double lat, double lon, int zoom, int radius) {
-        return CompletableFuture.supplyAsync(() -> {
+        return ExecutionManager.getInstance().io("tile-maintenance").supply(() -> {
             try {
                 System.out.println("🗺️ Starting map tile caching for zoom " + zoom + " with radius " + radius);
 
@@ -5,6 +5,7 @@ import com.rometransit.model.entity.Shape;
 import com.rometransit.model.entity.Stop;
 import com.rometransit.model.entity.Trip;
 import com.rometransit.service.gtfs.GTFSDataManager;
+import com.rometransit.service.transit.ArrivalPredictionService;
 import com.rometransit.ui.component.NativeMapView;
 import com.rometransit.ui.map.MapVehicleManager;
 import com.rometransit.ui.waypoint.RouteVisualizationWaypoint;
@@ -128,66 +129,18 @@ public class StopVisualizationService {
         List<RouteInfo> routeInfos = new ArrayList<>();
 
         try {
-            // Ottieni tutti i trips
-            Map<String, Trip> allTrips = gtfsDataManager.getAllTrips();
-            if (allTrips == null || allTrips.isEmpty()) {
-                System.out.println("⚠️ No trips data available");
-                return routeInfos;
-            }
-
-            // Set di route IDs che servono questa fermata
-            Set<String> routeIds = new HashSet<>();
-
-            // Trova tutti i trips che includono questa fermata
-            System.out.println("   Scanning " + allTrips.size() + " trips...");
-            int processedTrips = 0;
-            for (Trip trip : allTrips.values()) {
-                List<Stop> stopsForTrip = gtfsDataManager.getStopsByTrip(trip.getTripId());
-                if (stopsForTrip == null || stopsForTrip.isEmpty()) {
-                    continue;
-                }
-
-                boolean tripServesStop = stopsForTrip.stream()
-                    .anyMatch(s -> s != null && s.getStopId() != null && s.getStopId().equals(stop.getStopId()));
-
-                if (tripServesStop) {
-                    routeIds.add(trip.getRouteId());
-                }
-
-                processedTrips++;
-                if (processedTrips % 1000 == 0) {
-                    System.out.println("   Processed " + processedTrips + " trips, found " + routeIds.size() + " routes so far...");
-                }
-            }
-
-            System.out.println("   Found " + routeIds.size() + " unique routes for this stop");
+            // Route che servono questa fermata: una lettura indicizzata degli stop_times della fermata
+            List<Route> routes = ArrivalPredictionService.getInstance().getRoutesForStop(stop.getStopId());
+            System.out.println("   Found " + routes.size() + " unique routes for this stop");
 
             // Per ogni route, ottieni i dati completi
-            for (String routeId : routeIds) {
-                Route route = gtfsDataManager.getRouteById(routeId);
-                if (route == null) {
-                    System.out.println("   ⚠️ Route not found: " + routeId);
-                    continue;
-                }
-
-                // Ottieni un trip rappresentativo per questa route
-                List<Trip> tripsForRoute = gtfsDataManager.getTripsByRoute(routeId);
-                if (tripsForRoute == null || tripsForRoute.isEmpty()) {
-                    System.out.println("   ⚠️ No trips for route: " + routeId);
-                    continue;
-                }
-
-                // Prendi il trip con più fermate
-                Trip representativeTrip = tripsForRoute.stream()
-                    .filter(t -> t != null)
-                    .max(Comparator.comparingInt(t -> {
-                        List<Stop> stops = gtfsDataManager.getStopsByTrip(t.getTripId());
-                        return stops != null ? stops.size() : 0;
-                    }))
-                    .orElse(tripsForRoute.get(0));
+            for (Route route : routes) {
+                String routeId = route.getRouteId();
 
+                // Trip rappresentativo: quello con più fermate
+                Trip representativeTrip = gtfsDataManager.getRepresentativeTrip(routeId);
                 if (representativeTrip == null) {
-                    System.out.println("   ⚠️ No representative trip for route: " + routeId);
+                    System.out.println("   ⚠️ No trips for route: " + routeId);
                     continue;
                 }
 
@@ -307,27 +260,12 @@ public class StopVisualizationService {
             System.out.println("\n   🔄 Processing route: " + route.getRouteShortName() + " (ID: " + route.getRouteId() + ")");
             javafx.scene.paint.Color routeColor = routeColors[colorIndex % routeColors.length];
 
-            // Ottieni un trip rappresentativo per questa route
-            System.out.println("      Fetching trips for route " + route.getRouteId() + "...");
-            List<Trip> tripsForRoute = gtfsDataManager.getTripsByRoute(route.getRouteId());
-            System.out.println("      Found " + (tripsForRoute != null ? tripsForRoute.size() : 0) + " trips");
-
-            if (tripsForRoute == null || tripsForRoute.isEmpty()) {
-                System.out.println("   ⚠️  SKIPPED route " + route.getRouteId() + " - No trips found");
-                continue;
-            }
-
-            // Prendi il trip con più fermate
-            Trip representativeTrip = tripsForRoute.stream()
-                .filter(t -> t != null)
-                .max(Comparator.comparingInt(t -> {
-                    List<Stop> stops = gtfsDataManager.getStopsByTrip(t.getTripId());
-                    return stops != null ? stops.size() : 0;
-                }))
-                .orElse(tripsForRoute.get(0));
+            // Trip rappresentativo: quello con più fermate
+            System.out.println("      Fetching representative trip for route " + route.getRouteId() + "...");
+            Trip representativeTrip = gtfsDataManager.getRepresentativeTrip(route.getRouteId());
 
             if (representativeTrip == null) {
-                System.out.println("   ⚠️  SKIPPED route " + route.getRouteId() + " - No representative trip found");
+                System.out.println("   ⚠️  SKIPPED route " + route.getRouteId() + " - No trips found");
                 continue;
             }
 
@@ -402,18 +340,13 @@ public class StopVisualizationService {
             vehicleManager.clearAll();
         }
 
-        // Ottieni trips per questa route
-        List<Trip> trips = gtfsDataManager.getTripsByRoute(route.getRouteId());
-        if (trips.isEmpty()) {
+        // Prendi il trip con più fermate
+        Trip trip = gtfsDataManager.getRepresentativeTrip(route.getRouteId());
+        if (trip == null) {
             System.out.println("⚠️ No trips found for route: " + route.getRouteId());
             return;
         }
 
-        // Prendi il trip con più fermate
-        Trip trip = trips.stream()
-            .max(Comparator.comparingInt(t -> gtfsDataManager.getStopsByTrip(t.getTripId()).size()))
-            .orElse(trips.get(0));
-
         List<Stop> stops = gtfsDataManager.getStopsByTrip(trip.getTripId());
         List<Shape> shapePoints = gtfsDataManager.getShapePoints(trip.getShapeId());
 
@@ -1,8 +1,15 @@
 package com.rometransit.service.map;
 
 import com.rometransit.model.dto.map.MapTile;
-import javafx.application.Platform;
-import javafx.concurrent.Task;
+import com.rometransit.service.execution.ExecutionManager;
+import com.rometransit.service.execution.TaskScope;
+import com.rometransit.service.memory.GovernedMap;
+import com.rometransit.service.memory.MemoryBudgeted;
+import com.rometransit.service.memory.MemoryGovernor;
+import com.rometransit.util.diagnostics.TileLoadEvent;
+import com.rometransit.util.metrics.Counter;
+import com.rometransit.util.metrics.LatencyHistogram;
+import com.rometransit.util.metrics.MetricsRegistry;
 import javafx.scene.image.Image;
 
 import java.io.*;
@@ -27,17 +34,29 @@ public class TileManager {
     private static final String CACHE_DIR = System.getProperty("user.home") + "/.damose/map_cache";
     private static final int MAX_CACHE_SIZE = 500; // Reduced for better memory management
     private static final int TILE_SIZE = 256;
+    private static final long TILE_IMAGE_BYTES = (long) TILE_SIZE * TILE_SIZE * 4; // Decoded ARGB
     private static final long TILE_EXPIRATION_DAYS = 30;
     private static final long CONNECTION_CHECK_CACHE_MS = 30000; // 30s
 
     private final Path cacheDirectory;
     private final Map<String, MapTile> tileCache;
     private final Map<String, WeakReference<Image>> imageCache;
+    private final MemoryBudgeted tileCacheBudget;
     private final PriorityBlockingQueue<TileRequest> downloadQueue;
-    private final ExecutorService downloadExecutor;
-    private final ExecutorService diskExecutor;
+    private final Map<String, TileRequest> inFlight;
+    private final TaskScope downloadScope;
+    private final TaskScope diskScope;
+    private final TaskScope maintenanceScope;
     private volatile boolean offlineMode = false;
 
+    // Metrics
+    private static final LatencyHistogram DISK_LOAD_LATENCY = MetricsRegistry.getInstance().histogram("tile.disk.load");
+    private static final LatencyHistogram DOWNLOAD_LATENCY = MetricsRegistry.getInstance().histogram("tile.download");
+    private static final Counter DISK_HITS = MetricsRegistry.getInstance().counter("tile.disk.hit");
+    private static final Counter DISK_MISSES = MetricsRegistry.getInstance().counter("tile.disk.miss");
+    private static final Counter DOWNLOAD_FAILURES = MetricsRegistry.getInstance().counter("tile.download.failures");
+    private static final Counter DOWNLOADS_CANCELLED = MetricsRegistry.getInstance().counter("tile.download.cancelled");
+
     // Connection check cache
     private volatile boolean lastConnectionStatus = true;
     private volatile long lastConnectionCheckTime = 0;
@@ -45,9 +64,13 @@ public class TileManager {
     // Priority tile request
     private static class TileRequest implements Comparable<TileRequest> {
         final int zoom, x, y;
-        final int priority;
+        volatile int priority; // Changed only while out of the download queue
         final CompletableFuture<MapTile> future;
 
+        String key() {
+            return String.format("%d/%d/%d", zoom, x, y);
+        }
+
         TileRequest(int zoom, int x, int y, int priority) {
             this.zoom = zoom;
             this.x = x;
@@ -76,20 +99,42 @@ public class TileManager {
         // WeakReference image cache for memory management
         this.imageCache = new ConcurrentHashMap<>();
 
+        // Loaded tiles count against the "tiles" budget; evicted images stay reachable
+        // through the weak cache until the next collection
+        GovernedMap<String, MapTile> governedTiles =
+            new GovernedMap<>(tileCache, tile -> tile.isLoaded() ? TILE_IMAGE_BYTES : 0);
+        this.tileCacheBudget = new MemoryBudgeted() {
+            @Override
+            public long getFootprintBytes() {
+                return governedTiles.getFootprintBytes();
+            }
+
+            @Override
+            public int getEntryCount() {
+                return governedTiles.getEntryCount();
+            }
+
+            @Override
+            public void trimTo(long maxBytes) {
+                governedTiles.trimTo(maxBytes);
+                imageCache.values().removeIf(ref -> ref.get() == null);
+            }
+        };
+        MemoryGovernor.getInstance().register("tiles", "tile-manager", tileCacheBudget);
+
         // Priority queue for tile downloads
         this.downloadQueue = new PriorityBlockingQueue<>();
+        MetricsRegistry.getInstance().gauge("tile.download.queued", downloadQueue::size);
 
-        // Reduced thread pools to limit concurrent memory usage
-        this.downloadExecutor = Executors.newFixedThreadPool(3, r -> {
-            Thread t = new Thread(r, "TileDownloader");
-            t.setDaemon(false);
-            return t;
-        });
-        this.diskExecutor = Executors.newFixedThreadPool(2, r -> {
-            Thread t = new Thread(r, "TileDiskLoader");
-            t.setDaemon(false);
-            return t;
-        });
+        // Loads in progress, shared by concurrent requests for the same tile
+        this.inFlight = new ConcurrentHashMap<>();
+
+        // Virtual-thread scopes: 2 concurrent downloads (tile server policy), 4 disk reads
+        ExecutionManager execution = ExecutionManager.getInstance();
+        this.downloadScope = execution.io("tile-download", 2);
+        this.diskScope = execution.io("tile-disk", 4);
+        // Warmup, preload and cleanup wait on tile loads: kept off the limited scopes
+        this.maintenanceScope = execution.io("tile-maintenance");
 
         // Initialize cache directory
         try {
@@ -97,9 +142,6 @@ public class TileManager {
             Files.createDirectories(cacheDirectory);
             System.out.println("🗺️ Tile cache initialized at: " + cacheDirectory.toAbsolutePath());
 
-            // Start download queue processor
-            startDownloadQueueProcessor();
-
             // Clean expired tiles in background
             cleanExpiredTiles();
         } catch (IOException e) {
@@ -107,24 +149,20 @@ public class TileManager {
         }
     }
 
-    private void startDownloadQueueProcessor() {
-        // Reduced concurrent downloads from 4 to 2 to limit memory usage
-        for (int i = 0; i < 2; i++) {
-            downloadExecutor.submit(() -> {
-                while (!Thread.currentThread().isInterrupted()) {
-                    try {
-                        TileRequest request = downloadQueue.take();
-                        processTileDownload(request);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        break;
-                    } catch (OutOfMemoryError e) {
-                        System.err.println("OOM in tile download processor - clearing caches");
-                        imageCache.clear();
-                        System.gc();
-                    }
-                }
-            });
+    /**
+     * Download the highest-priority queued tile; one task is submitted per queued request
+     */
+    private void downloadNext() {
+        TileRequest request = downloadQueue.poll();
+        if (request == null) {
+            return;
+        }
+        try {
+            processTileDownload(request);
+        } catch (OutOfMemoryError e) {
+            System.err.println("OOM in tile download - releasing caches");
+            MemoryGovernor.getInstance().onOutOfMemory("tile download");
+            completeRequest(request, tileCache.get(request.key()));
         }
     }
 
@@ -193,47 +231,123 @@ public class TileManager {
 
         final MapTile tile = cachedTile;
 
-        // Avoid loading the same tile multiple times
-        if (tile.isLoading()) {
-            return waitForTileLoad(tile);
-        }
-
-        tile.setLoading(true);
-
+        // Avoid loading the same tile multiple times: share the load in progress
         TileRequest request = new TileRequest(zoom, x, y, priority);
+        synchronized (tile) {
+            TileRequest pending = inFlight.get(tileKey);
+            if (pending != null) {
+                // A prefetched tile that became visible moves ahead of the other queued downloads
+                raisePriority(pending, priority);
+                return pending.future;
+            }
+            if (tile.isLoaded()) {
+                return CompletableFuture.completedFuture(tile);
+            }
+            tile.setLoading(true);
+            inFlight.put(tileKey, request);
+        }
 
         // Try loading from disk cache first
-        diskExecutor.submit(() -> {
-            try {
-                Image diskImage = loadTileFromDisk(zoom, x, y);
-                if (diskImage != null) {
-                    tile.setImage(diskImage);
-                    imageCache.put(tileKey, new WeakReference<>(diskImage));
-                    request.future.complete(tile);
-                    return;
-                }
+        try {
+            diskScope.execute(() -> {
+                try {
+                    long diskStart = System.nanoTime();
+                    TileLoadEvent diskEvent = new TileLoadEvent();
+                    diskEvent.begin();
+                    Image diskImage = loadTileFromDisk(zoom, x, y);
+                    DISK_LOAD_LATENCY.recordSince(diskStart);
+                    commitTileEvent(diskEvent, zoom, x, y, "disk", 0, diskImage != null);
+                    if (diskImage != null) {
+                        DISK_HITS.increment();
+                        tile.setImage(diskImage);
+                        imageCache.put(tileKey, new WeakReference<>(diskImage));
+                        completeRequest(request, tile);
+                        return;
+                    }
 
-                // If not in disk cache and not in offline mode, queue for download
-                if (!offlineMode && hasInternetConnection()) {
-                    downloadQueue.offer(request);
-                } else {
+                    // If not in disk cache and not in offline mode, queue for download
+                    DISK_MISSES.increment();
+                    if (!offlineMode && hasInternetConnection()) {
+                        synchronized (request) {
+                            downloadQueue.offer(request);
+                        }
+                        downloadScope.execute(this::downloadNext);
+                    } else {
+                        tile.setFailed(true);
+                        completeRequest(request, tile);
+                    }
+                } catch (Exception e) {
                     tile.setFailed(true);
-                    request.future.complete(tile);
+                    completeRequest(request, tile);
                 }
-            } catch (Exception e) {
-                tile.setFailed(true);
-                request.future.complete(tile);
-            }
-        });
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            tile.setFailed(true);
+            completeRequest(request, tile);
+        }
 
         return request.future;
     }
 
+    private void completeRequest(TileRequest request, MapTile tile) {
+        inFlight.remove(request.key(), request);
+        request.future.complete(tile);
+    }
+
+    /**
+     * Raise the priority of a load in progress; a request waiting for a download slot is
+     * re-queued, one still reading the disk cache keeps the new priority if it gets queued
+     */
+    private void raisePriority(TileRequest request, int priority) {
+        synchronized (request) {
+            if (priority <= request.priority) {
+                return;
+            }
+            boolean queued = downloadQueue.remove(request);
+            request.priority = priority;
+            if (queued) {
+                downloadQueue.offer(request);
+            }
+        }
+    }
+
+    /**
+     * Drop a request still waiting for a download slot (a prefetch the view no longer needs).
+     * Its future completes with the tile neither loaded nor failed; downloads already running
+     * and disk reads are left alone.
+     * @return true if the request was dropped
+     */
+    public boolean cancelQueued(int zoom, int x, int y) {
+        String tileKey = String.format("%d/%d/%d", zoom, x, y);
+        TileRequest request = inFlight.get(tileKey);
+        if (request == null) {
+            return false;
+        }
+        synchronized (request) {
+            if (!downloadQueue.remove(request)) {
+                return false;
+            }
+        }
+        MapTile tile = tileCache.get(tileKey);
+        if (tile != null) {
+            tile.setLoading(false);
+        }
+        DOWNLOADS_CANCELLED.increment();
+        completeRequest(request, tile);
+        return true;
+    }
+
     private void processTileDownload(TileRequest request) {
+        long start = System.nanoTime();
+        TileLoadEvent event = new TileLoadEvent();
+        event.begin();
+        long bytes = 0;
+        boolean loaded = false;
         try {
             MapTile tile = tileCache.get(String.format("%d/%d/%d", request.zoom, request.x, request.y));
             if (tile == null || tile.isLoaded()) {
-                request.future.complete(tile);
+                completeRequest(request, tile);
                 return;
             }
 
@@ -250,6 +364,7 @@ public class TileManager {
                 try (InputStream inputStream = connection.getInputStream()) {
                     // Limit max size to prevent OOM
                     byte[] imageData = inputStream.readNBytes(512 * 1024); // Max 512KB per tile
+                    bytes = imageData.length;
 
                     // Save to disk cache
                     saveTileToDisk(request.zoom, request.x, request.y, imageData);
@@ -262,65 +377,52 @@ public class TileManager {
                     if (!image.isError()) {
                         tile.setImage(image);
                         imageCache.put(tile.getTileKey(), new WeakReference<>(image));
+                        DOWNLOAD_LATENCY.recordSince(start);
+                        loaded = true;
                     } else {
                         tile.setFailed(true);
+                        DOWNLOAD_FAILURES.increment();
                     }
-                    request.future.complete(tile);
+                    completeRequest(request, tile);
                 }
             } else {
                 tile.setFailed(true);
-                request.future.complete(tile);
+                DOWNLOAD_FAILURES.increment();
+                completeRequest(request, tile);
             }
         } catch (OutOfMemoryError e) {
             System.err.println("OOM downloading tile " + request.zoom + "/" + request.x + "/" + request.y);
-            imageCache.clear();
-            System.gc();
+            MemoryGovernor.getInstance().onOutOfMemory("tile download");
             MapTile tile = tileCache.get(String.format("%d/%d/%d", request.zoom, request.x, request.y));
             if (tile != null) {
                 tile.setFailed(true);
             }
-            request.future.complete(tile);
+            completeRequest(request, tile);
         } catch (Exception e) {
+            DOWNLOAD_FAILURES.increment();
             MapTile tile = tileCache.get(String.format("%d/%d/%d", request.zoom, request.x, request.y));
             if (tile != null) {
                 tile.setFailed(true);
             }
-            request.future.complete(tile);
+            completeRequest(request, tile);
+        } finally {
+            commitTileEvent(event, request.zoom, request.x, request.y, "network", bytes, loaded);
         }
     }
 
-    private CompletableFuture<MapTile> waitForTileLoad(MapTile tile) {
-        CompletableFuture<MapTile> future = new CompletableFuture<>();
-
-        // Poll until tile is loaded
-        Task<Void> waitTask = new Task<>() {
-            @Override
-            protected Void call() throws Exception {
-                while (tile.isLoading() && !isCancelled()) {
-                    Thread.sleep(50);
-                }
-                return null;
-            }
-
-            @Override
-            protected void succeeded() {
-                future.complete(tile);
-            }
-
-            @Override
-            protected void failed() {
-                future.complete(tile);
-            }
-        };
-
-        Thread waitThread = new Thread(waitTask);
-        waitThread.setDaemon(true);
-        waitThread.start();
-
-        return future;
+    private static void commitTileEvent(TileLoadEvent event, int zoom, int x, int y,
+                                        String source, long bytes, boolean success) {
+        if (event.shouldCommit()) {
+            event.zoom = zoom;
+            event.x = x;
+            event.y = y;
+            event.source = source;
+            event.bytes = bytes;
+            event.success = success;
+            event.commit();
+        }
     }
 
-
     private Image loadTileFromDisk(int zoom, int x, int y) {
         try {
             Path tilePath = getTilePath(zoom, x, y);
@@ -350,8 +452,7 @@ public class TileManager {
             }
         } catch (OutOfMemoryError e) {
             System.err.println("OOM loading tile from disk: " + zoom + "/" + x + "/" + y);
-            imageCache.clear();
-            System.gc();
+            MemoryGovernor.getInstance().onOutOfMemory("tile disk load");
         } catch (Exception e) {
             // Silently fail for disk loading
         }
@@ -396,7 +497,7 @@ public class TileManager {
     }
 
     private void cleanExpiredTiles() {
-        diskExecutor.submit(() -> {
+        maintenanceScope.execute(() -> {
             try {
                 Instant cutoff = Instant.now().minus(TILE_EXPIRATION_DAYS, java.time.temporal.ChronoUnit.DAYS);
                 Files.walk(cacheDirectory)
@@ -428,7 +529,7 @@ public class TileManager {
      * Reduced to prevent memory issues
      */
     public void warmupCacheForRome() {
-        diskExecutor.submit(() -> {
+        maintenanceScope.execute(() -> {
             System.out.println("🔥 Starting cache warmup for Rome (reduced for memory efficiency)...");
             int totalTiles = 0;
 
@@ -476,7 +577,7 @@ public class TileManager {
      * Preload tiles for a given area
      */
     public CompletableFuture<Integer> preloadTiles(double lat, double lon, int zoom, int radius) {
-        return CompletableFuture.supplyAsync(() -> {
+        return maintenanceScope.supply(() -> {
             int centerX = lonToTileX(lon, zoom);
             int centerY = latToTileY(lat, zoom);
             int tilesLoaded = 0;
@@ -572,19 +673,18 @@ public class TileManager {
         }
     }
 
+    /**
+     * Drop queued downloads; running loads finish within the ExecutionManager shutdown
+     */
     public void shutdown() {
-        downloadExecutor.shutdown();
-        diskExecutor.shutdown();
-        try {
-            if (!downloadExecutor.awaitTermination(2, TimeUnit.SECONDS)) {
-                downloadExecutor.shutdownNow();
-            }
-            if (!diskExecutor.awaitTermination(2, TimeUnit.SECONDS)) {
-                diskExecutor.shutdownNow();
+        MemoryGovernor.getInstance().unregister(tileCacheBudget);
+        TileRequest request;
+        while ((request = downloadQueue.poll()) != null) {
+            MapTile tile = tileCache.get(request.key());
+            if (tile != null) {
+                tile.setFailed(true);
             }
-        } catch (InterruptedException e) {
-            downloadExecutor.shutdownNow();
-            diskExecutor.shutdownNow();
+            completeRequest(request, tile);
         }
     }
 
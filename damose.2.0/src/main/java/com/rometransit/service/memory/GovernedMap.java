@@ -0,0 +1,59 @@
+package com.rometransit.service.memory;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * MemoryBudgeted view of an existing map cache.
+ *
+ * Eviction follows the iteration order of the map: eldest first for an access-ordered
+ * LinkedHashMap, arbitrary for a ConcurrentHashMap (fine for caches whose entries are
+ * rebuilt on demand). Iteration holds the map's monitor, which is the lock of a
+ * Collections.synchronizedMap; the map must not be confined to another thread.
+ */
+public class GovernedMap<K, V> implements MemoryBudgeted {
+
+    // Map node, key string and value header
+    static final long ENTRY_OVERHEAD_BYTES = 96;
+
+    private final Map<K, V> map;
+    private final ToLongFunction<? super V> valueBytes;
+
+    public GovernedMap(Map<K, V> map, ToLongFunction<? super V> valueBytes) {
+        this.map = map;
+        this.valueBytes = valueBytes;
+    }
+
+    @Override
+    public long getFootprintBytes() {
+        long bytes = 0;
+        synchronized (map) {
+            for (V value : map.values()) {
+                bytes += ENTRY_OVERHEAD_BYTES + valueBytes.applyAsLong(value);
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public int getEntryCount() {
+        return map.size();
+    }
+
+    @Override
+    public void trimTo(long maxBytes) {
+        synchronized (map) {
+            if (maxBytes <= 0) {
+                map.clear();
+                return;
+            }
+            long excess = getFootprintBytes() - maxBytes;
+            Iterator<V> values = map.values().iterator();
+            while (excess > 0 && values.hasNext()) {
+                excess -= ENTRY_OVERHEAD_BYTES + valueBytes.applyAsLong(values.next());
+                values.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.rometransit.service.memory;
+
+import com.rometransit.model.symbol.SymbolMap;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * MemoryBudgeted view of a cache keyed by symbol (see GovernedMap for map caches).
+ *
+ * Eviction walks the symbols in order, fine for caches whose entries are rebuilt on demand.
+ * A SymbolMap is not synchronized: the owner and the governor both access it holding the
+ * map's monitor.
+ */
+public class GovernedSymbolMap<V> implements MemoryBudgeted {
+
+    // Array slot and value header
+    static final long ENTRY_OVERHEAD_BYTES = 24;
+
+    private final SymbolMap<V> map;
+    private final ToLongFunction<? super V> valueBytes;
+
+    public GovernedSymbolMap(SymbolMap<V> map, ToLongFunction<? super V> valueBytes) {
+        this.map = map;
+        this.valueBytes = valueBytes;
+    }
+
+    @Override
+    public long getFootprintBytes() {
+        long[] bytes = {0};
+        synchronized (map) {
+            map.forEach((value, symbol) -> bytes[0] += ENTRY_OVERHEAD_BYTES + valueBytes.applyAsLong(value));
+        }
+        return bytes[0];
+    }
+
+    @Override
+    public int getEntryCount() {
+        synchronized (map) {
+            return map.size();
+        }
+    }
+
+    @Override
+    public void trimTo(long maxBytes) {
+        synchronized (map) {
+            if (maxBytes <= 0) {
+                map.clear();
+                return;
+            }
+            long[] excess = {getFootprintBytes() - maxBytes};
+            map.removeWhile(value -> {
+                if (excess[0] <= 0) {
+                    return false;
+                }
+                excess[0] -= ENTRY_OVERHEAD_BYTES + valueBytes.applyAsLong(value);
+                return true;
+            });
+        }
+    }
+}
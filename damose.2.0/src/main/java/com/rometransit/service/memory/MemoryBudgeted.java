@@ -0,0 +1,23 @@
+package com.rometransit.service.memory;
+
+/**
+ * A cache whose size is governed by the MemoryGovernor.
+ *
+ * Footprints are estimates (retained bytes of the values plus a fixed overhead per entry):
+ * they only need to be comparable between caches, not exact.
+ */
+public interface MemoryBudgeted {
+
+    /**
+     * Estimated heap retained by the cache, in bytes
+     */
+    long getFootprintBytes();
+
+    int getEntryCount();
+
+    /**
+     * Evict entries (least recently used first when the cache keeps an order) until the
+     * footprint is at most maxBytes; 0 empties the cache
+     */
+    void trimTo(long maxBytes);
+}
@@ -0,0 +1,512 @@
+package com.rometransit.service.memory;
+
+import com.rometransit.service.execution.ExecutionManager;
+import com.rometransit.service.execution.TaskScope;
+import com.rometransit.util.config.AppConfig;
+import com.rometransit.util.diagnostics.MemoryPressureEvent;
+import com.rometransit.util.metrics.Counter;
+import com.rometransit.util.metrics.MetricsRegistry;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap budget shared by the in-memory caches (map tiles, shapes, stop_times views,
+ * arrival boards, API responses, search results).
+ *
+ * - Each cache category gets a share of memory.cache_budget_percent of the max heap,
+ *   split among the caches registered in it; caches over budget are trimmed periodically
+ * - The tenured heap pools get a post-GC usage threshold (warning) and a usage threshold
+ *   (critical) through MemoryPoolMXBean; when one is crossed every cache is shrunk by the
+ *   same fraction, sized to bring the heap back under the warning level, and the budgets
+ *   stay reduced until usage after GC is comfortable again
+ * - An OutOfMemoryError caught on a hot path empties the caches (onOutOfMemory)
+ *
+ * The JVM collects on its own: nothing here calls System.gc().
+ *
+ * SINGLETON - Use getInstance()
+ */
+public class MemoryGovernor {
+
+    public enum Pressure { WARNING, CRITICAL, OOM }
+
+    // Default shares of the cache budget (percent), overridden by memory.budget.<category>
+    private static final Map<String, Integer> DEFAULT_SHARES = new LinkedHashMap<>();
+    static {
+        DEFAULT_SHARES.put("tiles", 40);
+        DEFAULT_SHARES.put("stop_times", 20);
+        DEFAULT_SHARES.put("shapes", 15);
+        DEFAULT_SHARES.put("arrival_boards", 10);
+        DEFAULT_SHARES.put("api_static", 10);
+        DEFAULT_SHARES.put("search", 5);
+    }
+
+    private static final double MIN_BUDGET_SCALE = 0.1;
+    private static final double BUDGET_RECOVERY_STEP = 0.1;
+    // A trim always releases at least a quarter of each cache
+    private static final double MAX_KEEP_FRACTION = 0.75;
+    private static final double CRITICAL_KEEP_FRACTION = 0.25;
+    // Trims aim this far below the warning threshold
+    private static final double TARGET_MARGIN = 0.10;
+
+    private static MemoryGovernor instance;
+
+    private final boolean enabled;
+    private final long maxHeap;
+    private final long cacheBudget;
+    private final double warningFraction;
+    private final double criticalFraction;
+    private final int checkIntervalSeconds;
+
+    private final Map<String, Category> categories = new LinkedHashMap<>();
+    private final List<MemoryPoolMXBean> tenuredPools = new ArrayList<>();
+    private final TaskScope scope;
+    private final NotificationListener thresholdListener = this::onThresholdNotification;
+    private ExecutionManager.PeriodicTask task;
+
+    // Pressure state (guarded by this)
+    private double budgetScale = 1.0;
+    private long lastCollectionUsed = -1;
+    private long releasedBytes;
+    private long trims;
+
+    private static final Counter WARNINGS = MetricsRegistry.getInstance().counter("memory.pressure.warning");
+    private static final Counter CRITICALS = MetricsRegistry.getInstance().counter("memory.pressure.critical");
+    private static final Counter OOMS = MetricsRegistry.getInstance().counter("memory.pressure.oom");
+
+    private MemoryGovernor() {
+        AppConfig config = AppConfig.getInstance();
+        this.enabled = config.isMemoryGovernorEnabled();
+        this.maxHeap = Runtime.getRuntime().maxMemory();
+        this.cacheBudget = maxHeap / 100 * Math.max(1, Math.min(90, config.getMemoryCacheBudgetPercent()));
+        this.warningFraction = config.getMemoryWarningPercent() / 100.0;
+        this.criticalFraction = Math.max(warningFraction, config.getMemoryCriticalPercent() / 100.0);
+        this.checkIntervalSeconds = Math.max(1, config.getMemoryCheckInterval());
+        this.scope = ExecutionManager.getInstance().io("memory");
+
+        MetricsRegistry.getInstance().gauge("memory.budget_scale", () -> getBudgetScale());
+        MetricsRegistry.getInstance().gauge("memory.heap.used_bytes",
+            () -> ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+    }
+
+    public static synchronized MemoryGovernor getInstance() {
+        if (instance == null) {
+            instance = new MemoryGovernor();
+        }
+        return instance;
+    }
+
+    // ===== Registration =====
+
+    /**
+     * Put a cache under the budget of a category (tiles, shapes, stop_times, arrival_boards,
+     * api_static, search); name identifies it in stats and logs
+     */
+    public void register(String category, String name, MemoryBudgeted cache) {
+        boolean created;
+        Category target;
+        synchronized (this) {
+            target = categories.get(category);
+            created = target == null;
+            if (created) {
+                int share = AppConfig.getInstance().getMemoryCacheShare(category,
+                    DEFAULT_SHARES.getOrDefault(category, 5));
+                int totalShares = 0;
+                for (Map.Entry<String, Integer> entry : DEFAULT_SHARES.entrySet()) {
+                    totalShares += AppConfig.getInstance().getMemoryCacheShare(entry.getKey(), entry.getValue());
+                }
+                target = new Category(category, cacheBudget * share / Math.max(share, totalShares));
+                categories.put(category, target);
+            }
+        }
+        target.members.add(new Member(name, cache));
+
+        if (created) {
+            Category registered = target;
+            MetricsRegistry.getInstance().gauge("memory." + category + ".bytes", () -> registered.footprint());
+            MetricsRegistry.getInstance().gauge("memory." + category + ".budget_bytes", () -> budgetOf(registered));
+        }
+    }
+
+    /**
+     * Remove a cache whose owner was disposed
+     */
+    public synchronized void unregister(MemoryBudgeted cache) {
+        for (Category category : categories.values()) {
+            category.members.removeIf(member -> member.cache == cache);
+        }
+    }
+
+    // ===== Lifecycle =====
+
+    /**
+     * Install the heap thresholds and start the periodic budget check (no-op if disabled or started)
+     */
+    public synchronized void start() {
+        if (task != null || !enabled) {
+            return;
+        }
+        installThresholds();
+        ExecutionManager execution = ExecutionManager.getInstance();
+        task = execution.scheduleAtFixedRate(scope, this::check,
+            checkIntervalSeconds, checkIntervalSeconds, TimeUnit.SECONDS);
+        System.out.printf("🧠 Memory governor: %d MB cache budget of %d MB heap, pressure at %.0f%%/%.0f%% (%d pools)%n",
+            cacheBudget / (1024 * 1024), maxHeap / (1024 * 1024),
+            warningFraction * 100, criticalFraction * 100, tenuredPools.size());
+    }
+
+    public synchronized void stop() {
+        if (task == null) {
+            return;
+        }
+        task.cancel();
+        task = null;
+        try {
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(thresholdListener);
+        } catch (Exception e) {
+            // Not registered
+        }
+    }
+
+    private void installThresholds() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            // Old generation pools: the only heap pools supporting both thresholds
+            if (pool.getType() != MemoryType.HEAP || !pool.isUsageThresholdSupported()
+                    || !pool.isCollectionUsageThresholdSupported()) {
+                continue;
+            }
+            long max = poolMax(pool);
+            pool.setCollectionUsageThreshold((long) (max * warningFraction));
+            pool.setUsageThreshold((long) (max * criticalFraction));
+            tenuredPools.add(pool);
+        }
+        try {
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean())
+                .addNotificationListener(thresholdListener, null, null);
+        } catch (Exception e) {
+            System.err.println("⚠️ Heap threshold notifications not available, using periodic checks: " + e.getMessage());
+        }
+    }
+
+    // ===== Pressure detection =====
+
+    private void onThresholdNotification(Notification notification, Object handback) {
+        Pressure level;
+        if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+            level = Pressure.WARNING;
+        } else if (MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+            level = Pressure.CRITICAL;
+        } else {
+            return;
+        }
+        MemoryNotificationInfo info = MemoryNotificationInfo.from((CompositeData) notification.getUserData());
+        MemoryUsage usage = info.getUsage();
+        String reason = info.getPoolName() + " threshold";
+        long max = usage.getMax() > 0 ? usage.getMax() : maxHeap;
+
+        // Off the JMX notification thread
+        try {
+            scope.execute(() -> relieve(level, reason, usage.getUsed(), max));
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * Run a check now, e.g. after heavy views were disposed (asynchronous)
+     */
+    public void checkNow() {
+        try {
+            scope.execute(this::check);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * Periodic check: trim caches over budget, react to sustained pressure (thresholds only
+     * notify when crossed) and let the budgets recover once the heap is comfortable
+     */
+    void check() {
+        enforceBudgets();
+
+        for (MemoryPoolMXBean pool : tenuredPools) {
+            long max = poolMax(pool);
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            MemoryUsage current = pool.getUsage();
+            if (current != null && current.getUsed() >= max * criticalFraction) {
+                relieve(Pressure.CRITICAL, pool.getName() + " usage", current.getUsed(), max);
+                return;
+            }
+            if (afterGc != null && afterGc.getUsed() >= max * warningFraction) {
+                synchronized (this) {
+                    // Act once per post-GC measurement
+                    if (afterGc.getUsed() == lastCollectionUsed) {
+                        return;
+                    }
+                }
+                relieve(Pressure.WARNING, pool.getName() + " after GC", afterGc.getUsed(), max);
+                return;
+            }
+        }
+
+        synchronized (this) {
+            if (budgetScale < 1.0 && heapFractionAfterGc() < warningFraction - 2 * TARGET_MARGIN) {
+                budgetScale = Math.min(1.0, budgetScale + BUDGET_RECOVERY_STEP);
+            }
+        }
+    }
+
+    private void enforceBudgets() {
+        List<Category> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(categories.values());
+        }
+        for (Category category : snapshot) {
+            if (category.members.isEmpty()) {
+                continue;
+            }
+            long memberBudget = budgetOf(category) / category.members.size();
+            for (Member member : category.members) {
+                try {
+                    if (member.cache.getFootprintBytes() > memberBudget) {
+                        member.cache.trimTo(memberBudget);
+                        member.budgetTrims++;
+                    }
+                } catch (Exception e) {
+                    System.err.println("⚠️ Failed to trim cache " + member.name + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    // ===== Relief =====
+
+    /**
+     * Empty every cache after an OutOfMemoryError; the caller just drops the work it was doing
+     */
+    public void onOutOfMemory(String where) {
+        try {
+            MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            relieve(Pressure.OOM, where, heap.getUsed(), heap.getMax() > 0 ? heap.getMax() : maxHeap);
+        } catch (Throwable t) {
+            // Still out of memory: nothing more to do here
+        }
+    }
+
+    /**
+     * Shrink every cache by the same fraction, sized to bring usage back under the warning level
+     */
+    private synchronized void relieve(Pressure level, String reason, long used, long max) {
+        List<Member> members = new ArrayList<>();
+        for (Category category : categories.values()) {
+            members.addAll(category.members);
+        }
+        long footprint = 0;
+        long[] footprints = new long[members.size()];
+        for (int i = 0; i < footprints.length; i++) {
+            footprints[i] = safeFootprint(members.get(i));
+            footprint += footprints[i];
+        }
+
+        double keep;
+        if (level == Pressure.OOM || footprint == 0) {
+            keep = 0;
+        } else {
+            long excess = used - (long) (max * (warningFraction - TARGET_MARGIN));
+            keep = Math.max(0, Math.min(MAX_KEEP_FRACTION, 1.0 - (double) excess / footprint));
+            if (level == Pressure.CRITICAL) {
+                keep = Math.min(keep, CRITICAL_KEEP_FRACTION);
+            }
+        }
+
+        long released = 0;
+        for (int i = 0; i < footprints.length; i++) {
+            long keepBytes = (long) (footprints[i] * keep);
+            try {
+                members.get(i).cache.trimTo(keepBytes);
+                members.get(i).pressureTrims++;
+                released += footprints[i] - keepBytes;
+            } catch (Exception e) {
+                System.err.println("⚠️ Failed to trim cache " + members.get(i).name + ": " + e.getMessage());
+            }
+        }
+
+        budgetScale = Math.max(MIN_BUDGET_SCALE, Math.min(budgetScale, keep));
+        releasedBytes += released;
+        trims++;
+        if (level == Pressure.WARNING) {
+            lastCollectionUsed = used;
+        }
+        switch (level) {
+            case WARNING -> WARNINGS.increment();
+            case CRITICAL -> CRITICALS.increment();
+            case OOM -> OOMS.increment();
+        }
+
+        System.err.printf("⚠️ Memory pressure (%s, %s): %d/%d MB, caches kept at %.0f%%, ~%d MB released%n",
+            level.name().toLowerCase(), reason, used / (1024 * 1024), max / (1024 * 1024),
+            keep * 100, released / (1024 * 1024));
+
+        MemoryPressureEvent event = new MemoryPressureEvent();
+        if (event.shouldCommit()) {
+            event.level = level.name().toLowerCase();
+            event.reason = reason;
+            event.heapUsed = used;
+            event.heapMax = max;
+            event.cacheFootprint = footprint;
+            event.released = released;
+            event.keepFraction = keep;
+            event.commit();
+        }
+    }
+
+    // ===== Helpers =====
+
+    private synchronized long budgetOf(Category category) {
+        return (long) (category.budget * budgetScale);
+    }
+
+    public synchronized double getBudgetScale() {
+        return budgetScale;
+    }
+
+    private double heapFractionAfterGc() {
+        double fraction = 0;
+        for (MemoryPoolMXBean pool : tenuredPools) {
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            if (afterGc != null) {
+                fraction = Math.max(fraction, (double) afterGc.getUsed() / poolMax(pool));
+            }
+        }
+        return fraction;
+    }
+
+    private long poolMax(MemoryPoolMXBean pool) {
+        long max = pool.getUsage().getMax();
+        return max > 0 ? max : maxHeap;
+    }
+
+    private static long safeFootprint(Member member) {
+        try {
+            return member.cache.getFootprintBytes();
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    private static class Category {
+        final String name;
+        final long budget;
+        final List<Member> members = new CopyOnWriteArrayList<>();
+
+        Category(String name, long budget) {
+            this.name = name;
+            this.budget = budget;
+        }
+
+        long footprint() {
+            long bytes = 0;
+            for (Member member : members) {
+                bytes += safeFootprint(member);
+            }
+            return bytes;
+        }
+    }
+
+    private static class Member {
+        final String name;
+        final MemoryBudgeted cache;
+        volatile long budgetTrims;
+        volatile long pressureTrims;
+
+        Member(String name, MemoryBudgeted cache) {
+            this.name = name;
+            this.cache = cache;
+        }
+    }
+
+    // ===== Stats =====
+
+    public synchronized GovernorStats getStats() {
+        GovernorStats stats = new GovernorStats();
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        stats.enabled = enabled;
+        stats.heapUsed = heap.getUsed();
+        stats.heapMax = maxHeap;
+        stats.cacheBudget = cacheBudget;
+        stats.budgetScale = budgetScale;
+        stats.warnings = WARNINGS.getCount();
+        stats.criticals = CRITICALS.getCount();
+        stats.outOfMemory = OOMS.getCount();
+        stats.trims = trims;
+        stats.releasedBytes = releasedBytes;
+        for (Category category : categories.values()) {
+            long memberBudget = category.members.isEmpty() ? 0 : budgetOf(category) / category.members.size();
+            for (Member member : category.members) {
+                CacheFootprint cache = new CacheFootprint();
+                cache.category = category.name;
+                cache.name = member.name;
+                cache.entries = member.cache.getEntryCount();
+                cache.footprintBytes = safeFootprint(member);
+                cache.budgetBytes = memberBudget;
+                cache.budgetTrims = member.budgetTrims;
+                cache.pressureTrims = member.pressureTrims;
+                stats.caches.add(cache);
+            }
+        }
+        return stats;
+    }
+
+    public static class CacheFootprint {
+        public String category;
+        public String name;
+        public int entries;
+        public long footprintBytes;
+        public long budgetBytes;
+        public long budgetTrims;
+        public long pressureTrims;
+    }
+
+    public static class GovernorStats {
+        public boolean enabled;
+        public long heapUsed;
+        public long heapMax;
+        public long cacheBudget;
+        public double budgetScale;
+        public long warnings;
+        public long criticals;
+        public long outOfMemory;
+        public long trims;
+        public long releasedBytes;
+        public List<CacheFootprint> caches = new ArrayList<>();
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format(
+                "MemoryGovernor{heap=%d/%d MB, budget=%d MB x%.2f, warnings=%d, criticals=%d, oom=%d, released=%d MB}",
+                heapUsed / (1024 * 1024), heapMax / (1024 * 1024), cacheBudget / (1024 * 1024), budgetScale,
+                warnings, criticals, outOfMemory, releasedBytes / (1024 * 1024)));
+            for (CacheFootprint cache : caches) {
+                sb.append(String.format("%n  %-15s %-22s %7d entries %8.1f / %8.1f MB",
+                    cache.category, cache.name, cache.entries,
+                    cache.footprintBytes / (1024.0 * 1024.0), cache.budgetBytes / (1024.0 * 1024.0)));
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.rometransit.service.metrics;
+
+import com.rometransit.service.execution.ExecutionManager;
+import com.rometransit.util.config.AppConfig;
+import com.rometransit.util.json.JsonUtil;
+import com.rometransit.util.metrics.MetricsRegistry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodic dump of the metrics registry to the local metrics directory
+ *
+ * - metrics-latest.json: the last snapshot, replaced atomically
+ * - metrics-history.jsonl: one line per snapshot, with app version and timestamp, so p50/p99
+ *   of a release can be compared with the previous ones
+ *
+ * Histograms are cumulative since startup; the history file is capped and rotated once.
+ */
+public class MetricsSnapshotWriter {
+
+    private static final String LATEST_FILE = "metrics-latest.json";
+    private static final String HISTORY_FILE = "metrics-history.jsonl";
+    private static final long MAX_HISTORY_BYTES = 8L * 1024 * 1024;
+
+    private static MetricsSnapshotWriter instance;
+
+    private final Path directory;
+    private final String appVersion;
+    private final long startedAt = System.currentTimeMillis();
+    private ExecutionManager.PeriodicTask task;
+
+    private MetricsSnapshotWriter() {
+        AppConfig config = AppConfig.getInstance();
+        this.directory = Paths.get(config.getMetricsDirectory());
+        this.appVersion = config.getAppVersion();
+    }
+
+    public static synchronized MetricsSnapshotWriter getInstance() {
+        if (instance == null) {
+            instance = new MetricsSnapshotWriter();
+        }
+        return instance;
+    }
+
+    /**
+     * Start writing snapshots at the configured interval (no-op if disabled or already started)
+     */
+    public synchronized void start() {
+        AppConfig config = AppConfig.getInstance();
+        if (task != null || !config.isMetricsSnapshotEnabled()) {
+            return;
+        }
+        int interval = Math.max(5, config.getMetricsSnapshotInterval());
+        ExecutionManager executionManager = ExecutionManager.getInstance();
+        task = executionManager.scheduleAtFixedRate(executionManager.io("metrics"),
+            this::writeSnapshot, interval, interval, TimeUnit.SECONDS);
+        System.out.println("📈 Metrics snapshots every " + interval + "s in " + directory);
+    }
+
+    /**
+     * Stop the periodic task and write a last snapshot (called on shutdown)
+     */
+    public synchronized void stop() {
+        if (task == null) {
+            return;
+        }
+        task.cancel();
+        task = null;
+        writeSnapshot();
+    }
+
+    public void writeSnapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("timestamp", Instant.now().toString());
+        snapshot.put("version", appVersion);
+        snapshot.put("uptimeSeconds", (System.currentTimeMillis() - startedAt) / 1000);
+        snapshot.putAll(MetricsRegistry.getInstance().snapshot());
+
+        try {
+            Files.createDirectories(directory);
+
+            Path latest = directory.resolve(LATEST_FILE);
+            Path temp = directory.resolve(LATEST_FILE + ".tmp");
+            Files.writeString(temp, JsonUtil.toPrettyJson(snapshot));
+            Files.move(temp, latest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            Path history = directory.resolve(HISTORY_FILE);
+            if (Files.exists(history) && Files.size(history) > MAX_HISTORY_BYTES) {
+                Files.move(history, directory.resolve(HISTORY_FILE + ".1"), StandardCopyOption.REPLACE_EXISTING);
+            }
+            Files.writeString(history, JsonUtil.toJson(snapshot) + System.lineSeparator(),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("⚠️ Failed to write metrics snapshot: " + e.getMessage());
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+}
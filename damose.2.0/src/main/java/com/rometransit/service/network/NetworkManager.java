@@ -1,6 +1,8 @@
 package com.rometransit.service.network;
 
 import com.rometransit.model.enums.ConnectionStatus;
+import com.rometransit.service.execution.ExecutionManager;
+import com.rometransit.service.execution.TaskScope;
 import com.rometransit.util.exception.NetworkException;
 
 import java.io.IOException;
@@ -13,15 +15,14 @@ import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 public class NetworkManager {
     private static NetworkManager instance;
     
     private final HttpClient httpClient;
-    private final ScheduledExecutorService scheduler;
+    private final TaskScope networkScope;
+    private ExecutionManager.PeriodicTask monitorTask;
     private final ConnectionStatusMonitor statusMonitor;
     
     private ConnectionStatus currentStatus;
@@ -29,12 +30,14 @@ public class NetworkManager {
     private boolean autoMonitoring;
 
     private NetworkManager() {
+        // Blocking HTTP calls and connection checks run on virtual threads
+        this.networkScope = ExecutionManager.getInstance().io("network");
         this.httpClient = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(30))
                 .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(networkScope)
                 .build();
 
-        this.scheduler = Executors.newScheduledThreadPool(2);
         this.statusMonitor = new ConnectionStatusMonitor();
         this.currentStatus = ConnectionStatus.OFFLINE;
         this.autoMonitoring = false;
@@ -65,15 +68,17 @@ public class NetworkManager {
         checkConnectionStatus();
 
         // Check connection status every 30 seconds
-        scheduler.scheduleAtFixedRate(this::checkConnectionStatus, 30, 30, TimeUnit.SECONDS);
+        monitorTask = ExecutionManager.getInstance().scheduleAtFixedRate(
+                networkScope, this::checkConnectionStatus, 30, 30, TimeUnit.SECONDS);
 
         System.out.println("Network monitoring started with initial status: " + currentStatus);
     }
 
     public void stopMonitoring() {
         autoMonitoring = false;
-        if (!scheduler.isShutdown()) {
-            scheduler.shutdown();
+        if (monitorTask != null) {
+            monitorTask.cancel();
+            monitorTask = null;
         }
         System.out.println("Network monitoring stopped");
     }
@@ -145,11 +150,11 @@ public class NetworkManager {
     }
 
     public CompletableFuture<Boolean> testConnectionAsync(String url) {
-        return CompletableFuture.supplyAsync(() -> testConnection(url, 5000));
+        return networkScope.supply(() -> testConnection(url, 5000));
     }
 
     public CompletableFuture<String> fetchDataAsync(String url) {
-        return CompletableFuture.supplyAsync(() -> {
+        return networkScope.supply(() -> {
             try {
                 return fetchData(url);
             } catch (NetworkException e) {
@@ -6,6 +6,7 @@ import com.rometransit.model.entity.Vehicle;
 import com.rometransit.model.entity.TransportIncident;
 import com.rometransit.model.entity.NotificationPreferences;
 import com.rometransit.service.auth.AuthService;
+import com.rometransit.service.execution.ExecutionManager;
 import com.rometransit.ui.notification.NotificationPopupManager;
 import com.rometransit.util.logging.Logger;
 
@@ -29,20 +30,24 @@ public class RealtimeNotificationMonitor {
     private final NotificationPopupManager popupManager;
     private final AuthService authService;
 
-    private ScheduledExecutorService scheduler;
+    private ExecutionManager.PeriodicTask monitorTask;
     private boolean isMonitoring = false;
 
     // Track seen incidents to avoid duplicate notifications
     private Set<String> seenIncidentIds = new ConcurrentHashMap().newKeySet();
     private Map<String, Long> lastNotificationTime = new ConcurrentHashMap<>();
 
+    // Active incident set versions already scanned, unchanged sets are skipped
+    private long lastDelayScanVersion = -1;
+    private long lastDeviationScanVersion = -1;
+
     private static final long NOTIFICATION_COOLDOWN_MS = 60000; // 1 minute between same notifications
     private static final int ARRIVAL_THRESHOLD_MINUTES = 5; // Notify when vehicle is within 5 minutes
     private static final int MONITORING_INTERVAL_SECONDS = 15; // Check every 15 seconds
 
     private RealtimeNotificationMonitor() {
         this.vehicleRepository = new VehicleRepository();
-        this.incidentRepository = new IncidentRepository();
+        this.incidentRepository = IncidentRepository.getInstance();
         this.notificationService = NotificationService.getInstance();
         this.popupManager = NotificationPopupManager.getInstance();
         this.authService = AuthService.getInstance();
@@ -65,10 +70,10 @@ public class RealtimeNotificationMonitor {
         }
 
         Logger.log("🔔 Starting real-time notification monitoring...");
-        scheduler = Executors.newScheduledThreadPool(1);
-
         // Schedule periodic checks
-        scheduler.scheduleAtFixedRate(
+        ExecutionManager execution = ExecutionManager.getInstance();
+        monitorTask = execution.scheduleAtFixedRate(
+            execution.io("notifications"),
             this::checkForNotifications,
             0,
             MONITORING_INTERVAL_SECONDS,
@@ -89,16 +94,9 @@ public class RealtimeNotificationMonitor {
 
         Logger.log("🔕 Stopping notification monitoring...");
 
-        if (scheduler != null && !scheduler.isShutdown()) {
-            scheduler.shutdown();
-            try {
-                if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                    scheduler.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                scheduler.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
+        if (monitorTask != null) {
+            monitorTask.cancel();
+            monitorTask = null;
         }
 
         isMonitoring = false;
@@ -180,6 +178,13 @@ public class RealtimeNotificationMonitor {
      */
     private void checkDelayAlerts() {
         try {
+            long version = incidentRepository.getVersion();
+            if (version == lastDelayScanVersion) {
+                cleanupOldSeenIncidents();
+                return;
+            }
+            lastDelayScanVersion = version;
+
             List<TransportIncident> activeIncidents = incidentRepository.findActiveIncidents();
 
             for (TransportIncident incident : activeIncidents) {
@@ -227,6 +232,12 @@ public class RealtimeNotificationMonitor {
      */
     private void checkLineDeviationAlerts() {
         try {
+            long version = incidentRepository.getVersion();
+            if (version == lastDeviationScanVersion) {
+                return;
+            }
+            lastDeviationScanVersion = version;
+
             List<TransportIncident> activeIncidents = incidentRepository.findActiveIncidents();
 
             for (TransportIncident incident : activeIncidents) {
@@ -8,7 +8,6 @@ import com.rometransit.util.logging.Logger;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Servizio di Sincronizzazione Ritardi e Incidenti
@@ -24,6 +23,11 @@ import java.util.stream.Collectors;
  *
  * I ritardi NON sono incidenti - sono segnalazioni di servizio normale ma in ritardo.
  * Gli incidenti sono eventi straordinari (guasti, manifestazioni, incidenti stradali, etc).
+ *
+ * Il rilevamento usa una finestra scorrevole per linea sugli ultimi WINDOW_CYCLES cicli di
+ * trip updates: ogni ciclo è una sola passata sulle previsioni che aggiorna i totali della
+ * finestra in modo incrementale, e una linea è in ritardo finché la media della finestra
+ * resta sopra soglia (niente segnalazioni che compaiono e spariscono a ogni ciclo).
  */
 public class IncidentSyncService {
 
@@ -36,13 +40,24 @@ public class IncidentSyncService {
 
     // Soglie per rilevamento ritardi diffusi su una linea
     private static final int MIN_AFFECTED_TRIPS_FOR_ROUTE_DELAY = 3;
-    private static final double ROUTE_DELAY_PERCENTAGE = 0.5; // 50% delle corse in ritardo
+
+    // Ampiezza della finestra scorrevole (cicli di sync da 30s, ~2.5 minuti)
+    private static final int WINDOW_CYCLES = 5;
+
+    private static final String DELAY_TYPE = "RITARDO";
+    private static final String DELAY_ID_PREFIX = "RITARDO_LINEA_";
 
     private final IncidentRepository incidentRepository;
 
-    // Traccia ritardi attivi (NON incidenti) per evitare duplicati
+    // Finestre scorrevoli per linea (routeId -> finestra)
+    private final Map<String, RouteDelayWindow> windows = new HashMap<>();
+
+    // Ritardi attivi (NON incidenti) per linea (routeId -> ritardo). Sono le stesse istanze
+    // pubblicate da IncidentRepository: si modificano solo copie, che saveAll pubblica
     private final Map<String, TransportIncident> activeDelays = new HashMap<>();
 
+    private long cycleCount;
+
     public IncidentSyncService(IncidentRepository incidentRepository) {
         this.incidentRepository = incidentRepository;
 
@@ -67,75 +82,84 @@ public class IncidentSyncService {
     }
 
     /**
-     * Sincronizza ritardi dai trip updates GTFS
+     * Sincronizza ritardi dai trip updates GTFS di un ciclo
      * NOTA: Questo metodo crea segnalazioni di RITARDO (arancione), NON incidenti (rosso)
      *
      * @param predictions Lista di previsioni arrivo con informazioni sui ritardi
-     * @return Numero di ritardi rilevati/aggiornati
+     * @return Numero di ritardi attivi
      */
-    public int syncIncidentsFromTripUpdates(List<ArrivalPrediction> predictions) {
-        logger.info("Sincronizzazione ritardi da " + predictions.size() + " trip updates...");
-
-        // Filtra previsioni con ritardi significativi (≥5 minuti)
-        List<ArrivalPrediction> delayedPredictions = predictions.stream()
-                .filter(p -> p.getDelayMinutes() >= LOW_DELAY_THRESHOLD)
-                .collect(Collectors.toList());
-
-        if (delayedPredictions.isEmpty()) {
-            logger.info("Nessun ritardo rilevato, risoluzione ritardi attivi");
-            resolveAllActiveDelays();
-            return 0;
+    public synchronized int syncIncidentsFromTripUpdates(List<ArrivalPrediction> predictions) {
+        int slot = (int) (cycleCount % WINDOW_CYCLES);
+        int cyclesInWindow = (int) Math.min(++cycleCount, WINDOW_CYCLES);
+
+        // Una passata: accumula le corse in ritardo (≥5 minuti) nel ciclo corrente di ogni linea
+        for (ArrivalPrediction prediction : predictions) {
+            if (prediction.getRouteId() != null && prediction.getDelayMinutes() >= LOW_DELAY_THRESHOLD) {
+                windows.computeIfAbsent(prediction.getRouteId(), k -> new RouteDelayWindow())
+                       .add(prediction.getTripId(), prediction.getDelayMinutes());
+            }
         }
 
-        logger.info("Trovate " + delayedPredictions.size() + " previsioni con ritardi >= " +
-                   LOW_DELAY_THRESHOLD + " minuti");
-
-        // Raggruppa per linea per rilevare ritardi diffusi
-        Map<String, List<ArrivalPrediction>> delaysByRoute = delayedPredictions.stream()
-                .filter(p -> p.getRouteId() != null)
-                .collect(Collectors.groupingBy(ArrivalPrediction::getRouteId));
-
+        List<TransportIncident> changed = new ArrayList<>();
         int delaysCreated = 0;
-        int delaysUpdated = 0;
+        int delaysResolved = 0;
 
-        // Rileva ritardi diffusi su una linea (≥3 corse in ritardo)
-        for (Map.Entry<String, List<ArrivalPrediction>> entry : delaysByRoute.entrySet()) {
+        Iterator<Map.Entry<String, RouteDelayWindow>> iterator = windows.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, RouteDelayWindow> entry = iterator.next();
             String routeId = entry.getKey();
-            List<ArrivalPrediction> routeDelays = entry.getValue();
-
-            // Verifica se abbastanza corse sono in ritardo per creare una segnalazione di linea
-            if (routeDelays.size() >= MIN_AFFECTED_TRIPS_FOR_ROUTE_DELAY) {
-                TransportIncident delay = detectOrUpdateRouteDelay(routeId, routeDelays);
+            RouteDelayWindow window = entry.getValue();
+            window.closeCycle(slot);
+
+            // Linea in ritardo se in media abbastanza corse per ciclo sono in ritardo
+            double delayedTripsPerCycle = window.totalDelayedTrips / (double) cyclesInWindow;
+            if (delayedTripsPerCycle >= MIN_AFFECTED_TRIPS_FOR_ROUTE_DELAY) {
+                boolean isNew = !activeDelays.containsKey(routeId);
+                TransportIncident delay = detectOrUpdateRouteDelay(routeId, window.averageDelayMinutes(),
+                                                                   (int) Math.round(delayedTripsPerCycle));
                 if (delay != null) {
-                    if (activeDelays.containsKey(delay.getId())) {
-                        delaysUpdated++;
-                    } else {
+                    changed.add(delay);
+                    if (isNew) {
                         delaysCreated++;
                     }
                 }
+            } else {
+                TransportIncident resolved = resolveDelay(routeId);
+                if (resolved != null) {
+                    changed.add(resolved);
+                    delaysResolved++;
+                }
+            }
+
+            if (window.isEmpty()) {
+                iterator.remove();
+            }
+        }
+
+        // Ritardi caricati dal database per linee senza più corse in ritardo
+        for (String routeId : new ArrayList<>(activeDelays.keySet())) {
+            if (!windows.containsKey(routeId)) {
+                changed.add(resolveDelay(routeId));
+                delaysResolved++;
             }
         }
 
-        // Risolvi ritardi non più presenti
-        resolveResolvedDelays(delaysByRoute.keySet());
+        // Salva nel database solo le segnalazioni cambiate, in un'unica transazione
+        incidentRepository.saveAll(changed);
 
         logger.info("Sincronizzazione ritardi completata: " + delaysCreated + " creati, " +
-                   delaysUpdated + " aggiornati, " + activeDelays.size() + " attivi");
+                   delaysResolved + " risolti, " + activeDelays.size() + " attivi (" +
+                   windows.size() + " linee in finestra)");
 
         return activeDelays.size();
     }
 
     /**
      * Rileva o aggiorna ritardo diffuso su una linea
+     *
+     * @return il ritardo se creato o modificato, null se invariato
      */
-    private TransportIncident detectOrUpdateRouteDelay(String routeId,
-                                                       List<ArrivalPrediction> delays) {
-        // Calcola ritardo medio
-        double avgDelay = delays.stream()
-                .mapToInt(ArrivalPrediction::getDelayMinutes)
-                .average()
-                .orElse(0);
-
+    private TransportIncident detectOrUpdateRouteDelay(String routeId, double avgDelay, int affectedTrips) {
         // Determina severità in base al ritardo medio
         TransportIncident.Severity severity;
         if (avgDelay >= HIGH_DELAY_THRESHOLD) {
@@ -146,33 +170,34 @@ public class IncidentSyncService {
             severity = TransportIncident.Severity.LOW;       // 5-10 min
         }
 
-        // Genera ID ritardo basato sulla linea (evita duplicati)
-        String delayId = "RITARDO_LINEA_" + routeId;
+        String description = String.format(
+            LanguageManager.getInstance().getString("incident.delayDescription"),
+            routeId, avgDelay, affectedTrips
+        );
 
-        // Verifica se il ritardo esiste già
-        TransportIncident delay = activeDelays.get(delayId);
+        TransportIncident delay = activeDelays.get(routeId);
 
         if (delay != null) {
-            // Aggiorna ritardo esistente
-            delay.setDescription(String.format(
-                "Ritardo medio di %.0f minuti sulla linea %s (%d corse interessate)",
-                avgDelay, routeId, delays.size()
-            ));
+            if (delay.getSeverity() == severity && description.equals(delay.getDescription())) {
+                return null;
+            }
+
+            // Aggiorna una copia del ritardo esistente
+            delay = new TransportIncident(delay);
+            delay.setDescription(description);
             delay.setSeverity(severity);
+            activeDelays.put(routeId, delay);
 
-            logger.debug("Aggiornato ritardo " + delayId + ": ritardo medio " + avgDelay + " min");
+            logger.debug("Aggiornato ritardo " + delay.getId() + ": ritardo medio " + avgDelay + " min");
 
         } else {
-            // Crea nuovo ritardo
+            // Crea nuovo ritardo (ID basato sulla linea per evitare duplicati)
             delay = new TransportIncident();
-            delay.setId(delayId);
-            delay.setType("RITARDO");  // RITARDO (arancione), non INCIDENTE (rosso)
+            delay.setId(DELAY_ID_PREFIX + routeId);
+            delay.setType(DELAY_TYPE);  // RITARDO (arancione), non INCIDENTE (rosso)
             delay.setSeverity(severity);
             delay.setLocation(LanguageManager.getInstance().getString("incident.routePrefix") + " " + routeId);
-            delay.setDescription(String.format(
-                LanguageManager.getInstance().getString("incident.delayDescription"),
-                routeId, avgDelay, delays.size()
-            ));
+            delay.setDescription(description);
             delay.setStartTime(LocalDateTime.now());
             delay.setActive(true);
 
@@ -181,83 +206,32 @@ public class IncidentSyncService {
             affectedRoutes.add(routeId);
             delay.setAffectedRoutes(affectedRoutes);
 
-            logger.info("Creato nuovo ritardo linea " + delayId + ": ritardo medio " +
+            activeDelays.put(routeId, delay);
+
+            logger.info("Creato nuovo ritardo linea " + delay.getId() + ": ritardo medio " +
                        avgDelay + " min, severità " + severity);
         }
 
-        // Salva nel database
-        incidentRepository.save(delay);
-        activeDelays.put(delayId, delay);
-
         return delay;
     }
 
-
     /**
-     * Risolvi ritardi non più presenti nei dati correnti
-     */
-    private void resolveResolvedDelays(Set<String> currentAffectedRoutes) {
-        List<String> toResolve = new ArrayList<>();
-
-        for (Map.Entry<String, TransportIncident> entry : activeDelays.entrySet()) {
-            String delayId = entry.getKey();
-            TransportIncident delay = entry.getValue();
-
-            // Verifica se la linea è ancora in ritardo
-            boolean stillDelayed = false;
-            if (delay.getAffectedRoutes() != null) {
-                for (String routeId : delay.getAffectedRoutes()) {
-                    if (currentAffectedRoutes.contains(routeId)) {
-                        stillDelayed = true;
-                        break;
-                    }
-                }
-            }
-
-            // Se non è più in ritardo, risolvi
-            if (!stillDelayed) {
-                toResolve.add(delayId);
-            }
-        }
-
-        // Risolvi ritardi
-        for (String delayId : toResolve) {
-            resolveDelay(delayId);
-        }
-    }
-
-    /**
-     * Risolvi tutti i ritardi attivi (chiamato quando non si rilevano ritardi)
-     */
-    private void resolveAllActiveDelays() {
-        if (activeDelays.isEmpty()) {
-            return;
-        }
-
-        logger.info("Nessun ritardo rilevato, risoluzione di tutti i " + activeDelays.size() + " ritardi attivi");
-
-        List<String> toResolve = new ArrayList<>(activeDelays.keySet());
-        for (String delayId : toResolve) {
-            resolveDelay(delayId);
-        }
-    }
-
-    /**
-     * Risolvi (segna come inattivo) un ritardo
+     * Risolvi (segna come inattivo) il ritardo di una linea
+     *
+     * @return il ritardo risolto da salvare, null se la linea non era in ritardo
      */
-    private void resolveDelay(String delayId) {
-        TransportIncident delay = activeDelays.get(delayId);
+    private TransportIncident resolveDelay(String routeId) {
+        TransportIncident delay = activeDelays.remove(routeId);
         if (delay == null) {
-            return;
+            return null;
         }
 
-        logger.info("Risoluzione ritardo " + delayId + ": " + delay.getLocation());
+        logger.info("Risoluzione ritardo " + delay.getId() + ": " + delay.getLocation());
 
+        delay = new TransportIncident(delay);
         delay.setActive(false);
         delay.setEndTime(LocalDateTime.now());
-        incidentRepository.save(delay);
-
-        activeDelays.remove(delayId);
+        return delay;
     }
 
     /**
@@ -265,11 +239,11 @@ public class IncidentSyncService {
      */
     private void loadActiveDelays() {
         try {
-            List<TransportIncident> delays = incidentRepository.findActiveIncidents();
             // Filtra solo i ritardi (type="RITARDO"), non incidenti
-            for (TransportIncident delay : delays) {
-                if ("RITARDO".equals(delay.getType())) {
-                    activeDelays.put(delay.getId(), delay);
+            for (TransportIncident delay : incidentRepository.findActiveIncidents()) {
+                if (DELAY_TYPE.equals(delay.getType()) && delay.getAffectedRoutes() != null &&
+                    !delay.getAffectedRoutes().isEmpty()) {
+                    activeDelays.put(delay.getAffectedRoutes().get(0), delay);
                 }
             }
             logger.info("Caricati " + activeDelays.size() + " ritardi attivi dal database");
@@ -282,31 +256,81 @@ public class IncidentSyncService {
      * Ottieni conteggio ritardi attivi per severità
      */
     public Map<TransportIncident.Severity, Long> getIncidentCountBySeverity() {
-        return activeDelays.values().stream()
-                .collect(Collectors.groupingBy(
-                    TransportIncident::getSeverity,
-                    Collectors.counting()
-                ));
+        Map<TransportIncident.Severity, Long> counts = new EnumMap<>(TransportIncident.Severity.class);
+        for (TransportIncident.Severity severity : TransportIncident.Severity.values()) {
+            int count = incidentRepository.countActiveBySeverity(severity);
+            if (count > 0) {
+                counts.put(severity, (long) count);
+            }
+        }
+        return counts;
     }
 
     /**
-     * Ottieni tutti i ritardi attivi
-     * NOTA: Questo metodo restituisce solo RITARDI (arancione), non incidenti (rosso)
+     * Ottieni tutti gli incidenti e ritardi attivi
      */
     public List<TransportIncident> getActiveIncidents() {
-        return new ArrayList<>(activeDelays.values());
+        return incidentRepository.findActiveIncidents();
     }
 
     /**
      * Cancella tutti i ritardi (per test)
      */
-    public void clearAllIncidents() {
+    public synchronized void clearAllIncidents() {
         logger.info("Cancellazione di tutti i ritardi");
-        for (String delayId : new ArrayList<>(activeDelays.keySet())) {
-            resolveDelay(delayId);
+        List<TransportIncident> resolved = new ArrayList<>();
+        for (String routeId : new ArrayList<>(activeDelays.keySet())) {
+            resolved.add(resolveDelay(routeId));
         }
+        windows.clear();
+        incidentRepository.saveAll(resolved);
     }
 
+    /**
+     * Finestra scorrevole delle corse in ritardo di una linea.
+     * Ogni slot contiene i totali di un ciclo; i totali della finestra sono
+     * aggiornati sottraendo lo slot che esce e sommando il ciclo che entra.
+     */
+    private static class RouteDelayWindow {
+        private final int[] delayedTrips = new int[WINDOW_CYCLES];
+        private final long[] delayMinutes = new long[WINDOW_CYCLES];
+        private int totalDelayedTrips;
+        private long totalDelayMinutes;
+
+        // Ciclo corrente
+        private int cycleDelayedTrips;
+        private long cycleDelayMinutes;
+        private String lastTripId;
+
+        /**
+         * Le previsioni di una corsa sono consecutive nel feed: ogni corsa conta una volta,
+         * con il ritardo della prima fermata in ritardo
+         */
+        void add(String tripId, int delay) {
+            if (tripId != null && tripId.equals(lastTripId)) {
+                return;
+            }
+            lastTripId = tripId;
+            cycleDelayedTrips++;
+            cycleDelayMinutes += delay;
+        }
+
+        void closeCycle(int slot) {
+            totalDelayedTrips += cycleDelayedTrips - delayedTrips[slot];
+            totalDelayMinutes += cycleDelayMinutes - delayMinutes[slot];
+            delayedTrips[slot] = cycleDelayedTrips;
+            delayMinutes[slot] = cycleDelayMinutes;
+            cycleDelayedTrips = 0;
+            cycleDelayMinutes = 0;
+            lastTripId = null;
+        }
 
+        double averageDelayMinutes() {
+            return totalDelayedTrips > 0 ? totalDelayMinutes / (double) totalDelayedTrips : 0;
+        }
 
+        boolean isEmpty() {
+            return totalDelayedTrips == 0;
+        }
     }
+}
@@ -3,19 +3,32 @@ package com.rometransit.service.realtime;
 import com.rometransit.model.converter.VehiclePositionConverter;
 import com.rometransit.data.repository.VehicleRepository;
 import com.rometransit.data.repository.IncidentRepository;
+import com.rometransit.model.dto.ServiceAlert;
 import com.rometransit.model.dto.VehiclePosition;
 import com.rometransit.model.dto.ArrivalPrediction;
 import com.rometransit.model.entity.Vehicle;
+import com.rometransit.service.dashboard.DashboardMetricsAggregator;
+import com.rometransit.service.execution.ExecutionManager;
+import com.rometransit.service.gtfs.GTFSDataManager;
 import com.rometransit.service.gtfs.GTFSOnlineDataService;
 import com.rometransit.service.gtfs.GTFSRealtimeParser;
+import com.rometransit.service.gtfs.feed.DatasetShard;
+import com.rometransit.service.gtfs.feed.FeedShardManager;
+import com.rometransit.service.transit.ArrivalPredictionEngine;
+import com.rometransit.ui.listener.VehicleUpdateListener;
+import com.rometransit.util.diagnostics.RealtimeCycleEvent;
 import com.rometransit.util.logging.Logger;
+import com.rometransit.util.metrics.Counter;
+import com.rometransit.util.metrics.LatencyHistogram;
+import com.rometransit.util.metrics.MetricsRegistry;
 import com.rometransit.data.repository.GTFSRepository;
 
 import java.time.LocalDateTime;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -49,16 +62,22 @@ public class RealtimeDataSyncService {
     private final GTFSRepository gtfsRepository;
     private final VehicleRepository vehicleRepository;
     private final IncidentRepository incidentRepository;
+    private final ArrivalPredictionEngine predictionEngine;
+    private final ServiceAlertStore alertStore;
+    private final FeedShardManager feedShards;
 
     // Converters
     private final VehiclePositionConverter vehicleConverter;
     private final IncidentSyncService incidentSyncService;
 
     // Scheduling
-    private ScheduledExecutorService scheduler;
+    private ExecutionManager.PeriodicTask syncTask;
     private final AtomicBoolean isRunning = new AtomicBoolean(false);
     private final AtomicBoolean isUsingCache = new AtomicBoolean(false);
 
+    // Listeners notified with each cycle's vehicle positions (e.g. the headless server's event stream)
+    private final List<VehicleUpdateListener> vehicleListeners = new CopyOnWriteArrayList<>();
+
     // Metrics
     private final AtomicLong totalSyncCycles = new AtomicLong(0);
     private final AtomicLong successfulSyncs = new AtomicLong(0);
@@ -68,15 +87,45 @@ public class RealtimeDataSyncService {
     private volatile int currentVehicleCount = 0;
     private volatile int currentIncidentCount = 0;
 
+    // Current cycle volume, reported with the cycle's JFR event
+    private long cycleBytes;
+    private int cycleTripUpdates;
+    private int cycleAlerts;
+    private List<VehiclePosition> cycleVehicles = List.of();
+
+    // Per-step latencies and feed volume (registry metrics, see MetricsRegistry)
+    private static final LatencyHistogram CYCLE_LATENCY = latency("realtime.sync.cycle");
+    private static final LatencyHistogram VEHICLES_DOWNLOAD_LATENCY = latency("realtime.vehicles.download");
+    private static final LatencyHistogram VEHICLES_PARSE_LATENCY = latency("realtime.vehicles.parse");
+    private static final LatencyHistogram VEHICLES_CACHE_LATENCY = latency("realtime.vehicles.cache");
+    private static final LatencyHistogram VEHICLES_PERSIST_LATENCY = latency("realtime.vehicles.persist");
+    private static final LatencyHistogram TRIP_UPDATES_DOWNLOAD_LATENCY = latency("realtime.trip_updates.download");
+    private static final LatencyHistogram TRIP_UPDATES_PARSE_LATENCY = latency("realtime.trip_updates.parse");
+    private static final LatencyHistogram TRIP_UPDATES_CACHE_LATENCY = latency("realtime.trip_updates.cache");
+    private static final LatencyHistogram INCIDENTS_SYNC_LATENCY = latency("realtime.incidents.sync");
+    private static final LatencyHistogram ALERTS_DOWNLOAD_LATENCY = latency("realtime.alerts.download");
+    private static final LatencyHistogram ALERTS_PARSE_LATENCY = latency("realtime.alerts.parse");
+    private static final LatencyHistogram CLEANUP_LATENCY = latency("realtime.cleanup");
+    private static final Counter FEED_BYTES = MetricsRegistry.getInstance().counter("realtime.feed.bytes");
+    private static final Counter FAILED_CYCLES = MetricsRegistry.getInstance().counter("realtime.sync.failures");
+
+    private static LatencyHistogram latency(String name) {
+        return MetricsRegistry.getInstance().histogram(name);
+    }
+
     public RealtimeDataSyncService() {
         logger.info("Initializing RealtimeDataSyncService...");
 
         // Initialize services
         this.onlineDataService = new GTFSOnlineDataService();
-        this.realtimeParser = new GTFSRealtimeParser();
+        // Vehicles of the primary feed are bound to the static dataset's symbols
+        this.realtimeParser = new GTFSRealtimeParser(() -> GTFSDataManager.getInstance().getSymbols());
         this.gtfsRepository = GTFSRepository.getInstance();
         this.vehicleRepository = new VehicleRepository();
-        this.incidentRepository = new IncidentRepository();
+        this.incidentRepository = IncidentRepository.getInstance();
+        this.predictionEngine = ArrivalPredictionEngine.getInstance();
+        this.alertStore = ServiceAlertStore.getInstance();
+        this.feedShards = FeedShardManager.getInstance();
 
         // Initialize converters
         this.vehicleConverter = new VehiclePositionConverter();
@@ -106,19 +155,14 @@ public class RealtimeDataSyncService {
 
         isRunning.set(true);
 
-        // Create scheduler
-        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread thread = new Thread(r, "RealtimeSyncThread");
-            thread.setDaemon(true);
-            return thread;
-        });
-
         // Run initial sync immediately
         logger.info("Running initial sync...");
         executeSyncCycle();
 
-        // Schedule periodic sync
-        scheduler.scheduleAtFixedRate(
+        // Schedule periodic sync (fetch, parse and SQLite writes block: IO scope)
+        ExecutionManager execution = ExecutionManager.getInstance();
+        syncTask = execution.scheduleAtFixedRate(
+            execution.io("realtime-sync"),
             this::executeSyncCycle,
             intervalSeconds,
             intervalSeconds,
@@ -141,16 +185,9 @@ public class RealtimeDataSyncService {
 
         isRunning.set(false);
 
-        if (scheduler != null) {
-            scheduler.shutdown();
-            try {
-                if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
-                    scheduler.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                scheduler.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
+        if (syncTask != null) {
+            syncTask.cancel();
+            syncTask = null;
         }
 
         logger.info("Real-time sync service stopped");
@@ -166,7 +203,17 @@ public class RealtimeDataSyncService {
         logger.info("=== Starting sync cycle #" + totalSyncCycles.get() + " ===");
 
         long startTime = System.currentTimeMillis();
+        long cycleStart = System.nanoTime();
         boolean success = false;
+        RealtimeCycleEvent cycleEvent = new RealtimeCycleEvent();
+        cycleEvent.begin();
+        cycleBytes = 0;
+        cycleTripUpdates = 0;
+        cycleAlerts = 0;
+        cycleVehicles = List.of();
+
+        // Extra feeds are polled in parallel with the primary one
+        CompletableFuture<List<DatasetShard.RealtimeBatch>> shardFetch = feedShards.fetchRealtimeAsync();
 
         try {
             // Sync vehicle positions
@@ -175,8 +222,19 @@ public class RealtimeDataSyncService {
             // Sync trip updates and detect incidents
             syncTripUpdates();
 
+            // Sync service alerts (non-critical)
+            syncServiceAlerts();
+
+            // Vehicles and trip updates of the extra feeds
+            applyFeedShards(shardFetch);
+
+            // Recompute the arrival boards of the trips touched by this cycle
+            publishPredictions();
+
             // Cleanup stale data
+            long cleanupStart = System.nanoTime();
             cleanupStaleData();
+            CLEANUP_LATENCY.recordSince(cleanupStart);
 
             // Mark as successful
             success = true;
@@ -192,13 +250,33 @@ public class RealtimeDataSyncService {
         } catch (Exception e) {
             success = false;
             failedSyncs.incrementAndGet();
+            FAILED_CYCLES.increment();
             handleSyncFailure(e);
+
+            // The extra feeds do not depend on the primary one
+            applyFeedShards(shardFetch);
+            publishPredictions();
         }
+        CYCLE_LATENCY.recordSince(cycleStart);
+
+        cycleEvent.source = "sync";
+        cycleEvent.vehicles = currentVehicleCount;
+        cycleEvent.tripUpdates = cycleTripUpdates;
+        cycleEvent.alerts = cycleAlerts;
+        cycleEvent.bytes = cycleBytes;
+        cycleEvent.success = success;
+        cycleEvent.usingCache = isUsingCache.get();
+        cycleEvent.commit();
 
         logger.info("=== Sync cycle #" + totalSyncCycles.get() + " " +
                    (success ? "COMPLETED" : "FAILED") + " ===");
     }
 
+    private void countFeedBytes(byte[] protobufData) {
+        FEED_BYTES.add(protobufData.length);
+        cycleBytes += protobufData.length;
+    }
+
     /**
      * Sync vehicle positions from GTFS real-time feed
      */
@@ -209,7 +287,9 @@ public class RealtimeDataSyncService {
 
         try {
             // Download vehicle positions (protobuf)
+            long stepStart = System.nanoTime();
             byte[] protobufData = onlineDataService.downloadVehiclePositions();
+            VEHICLES_DOWNLOAD_LATENCY.recordSince(stepStart);
 
             if (protobufData == null || protobufData.length == 0) {
                 logger.warn("No vehicle position data available (normal outside operating hours)");
@@ -221,12 +301,17 @@ public class RealtimeDataSyncService {
                 }
             } else {
                 // Parse protobuf
+                countFeedBytes(protobufData);
+                stepStart = System.nanoTime();
                 positions = realtimeParser.parseVehiclePositions(protobufData);
+                VEHICLES_PARSE_LATENCY.recordSince(stepStart);
                 logger.info("Parsed " + positions.size() + " vehicle positions from real-time feed");
 
                 // Cache for fallback
                 if (!positions.isEmpty()) {
+                    stepStart = System.nanoTime();
                     gtfsRepository.saveVehiclePositions(positions);
+                    VEHICLES_CACHE_LATENCY.recordSince(stepStart);
                 }
             }
 
@@ -249,6 +334,8 @@ public class RealtimeDataSyncService {
 
         // Save to database
         if (positions != null && !positions.isEmpty()) {
+            predictionEngine.applyVehiclePositions(positions);
+            cycleVehicles = positions;
             saveVehiclesToDatabase(positions);
         } else {
             logger.warn("No vehicle positions to save");
@@ -256,6 +343,48 @@ public class RealtimeDataSyncService {
         }
     }
 
+    /**
+     * Apply the realtime data of the extra feed shards (namespaced ids, kept in memory only)
+     * and notify listeners with the vehicles of all feeds
+     */
+    private void applyFeedShards(CompletableFuture<List<DatasetShard.RealtimeBatch>> shardFetch) {
+        List<VehiclePosition> vehicles = new ArrayList<>(cycleVehicles);
+        try {
+            for (DatasetShard.RealtimeBatch batch : shardFetch.join()) {
+                predictionEngine.applyVehiclePositions(batch.vehicles());
+                predictionEngine.applyTripUpdates(batch.tripUpdates());
+                vehicles.addAll(batch.vehicles());
+                cycleTripUpdates += batch.tripUpdates().size();
+            }
+        } catch (Exception e) {
+            logger.warn("Error applying extra feeds: " + e.getMessage());
+        }
+        if (!vehicles.isEmpty()) {
+            notifyVehicleListeners(vehicles);
+        }
+    }
+
+    public void addVehicleUpdateListener(VehicleUpdateListener listener) {
+        vehicleListeners.add(listener);
+    }
+
+    public void removeVehicleUpdateListener(VehicleUpdateListener listener) {
+        vehicleListeners.remove(listener);
+    }
+
+    private void notifyVehicleListeners(List<VehiclePosition> positions) {
+        if (vehicleListeners.isEmpty()) return;
+
+        List<VehiclePosition> snapshot = List.copyOf(positions);
+        for (VehicleUpdateListener listener : vehicleListeners) {
+            try {
+                listener.onVehiclesUpdated(snapshot);
+            } catch (Exception e) {
+                logger.warn("Vehicle listener error: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Sync trip updates and detect incidents from delays
      */
@@ -266,7 +395,9 @@ public class RealtimeDataSyncService {
 
         try {
             // Download trip updates (protobuf)
+            long stepStart = System.nanoTime();
             byte[] protobufData = onlineDataService.downloadTripUpdates();
+            TRIP_UPDATES_DOWNLOAD_LATENCY.recordSince(stepStart);
 
             if (protobufData == null || protobufData.length == 0) {
                 logger.warn("No trip update data available (normal outside operating hours)");
@@ -278,12 +409,18 @@ public class RealtimeDataSyncService {
                 }
             } else {
                 // Parse protobuf
+                countFeedBytes(protobufData);
+                stepStart = System.nanoTime();
                 predictions = realtimeParser.parseTripUpdates(protobufData);
+                TRIP_UPDATES_PARSE_LATENCY.recordSince(stepStart);
+                cycleTripUpdates = predictions.size();
                 logger.info("Parsed " + predictions.size() + " trip updates from real-time feed");
 
                 // Cache for fallback
                 if (!predictions.isEmpty()) {
+                    stepStart = System.nanoTime();
                     gtfsRepository.saveTripUpdates(predictions);
+                    TRIP_UPDATES_CACHE_LATENCY.recordSince(stepStart);
                 }
             }
 
@@ -303,26 +440,69 @@ public class RealtimeDataSyncService {
 
         // Rileva e salva ritardi dai trip updates
         if (predictions != null && !predictions.isEmpty()) {
+            predictionEngine.applyTripUpdates(predictions);
+            long incidentsStart = System.nanoTime();
             int delaysDetected = incidentSyncService.syncIncidentsFromTripUpdates(predictions);
+            INCIDENTS_SYNC_LATENCY.recordSince(incidentsStart);
             currentIncidentCount = delaysDetected;
             logger.info("Rilevati/aggiornati " + delaysDetected + " ritardi dai trip updates");
         }
     }
 
+    /**
+     * Sync service alerts into the alert store (non-critical)
+     * An empty download keeps the current alerts, a feed without alerts clears them
+     */
+    private void syncServiceAlerts() {
+        try {
+            long stepStart = System.nanoTime();
+            byte[] protobufData = onlineDataService.downloadServiceAlerts();
+            ALERTS_DOWNLOAD_LATENCY.recordSince(stepStart);
+            if (protobufData == null || protobufData.length == 0) {
+                logger.warn("No service alert data available, keeping current alerts");
+                return;
+            }
+
+            countFeedBytes(protobufData);
+            stepStart = System.nanoTime();
+            List<ServiceAlert> alerts = realtimeParser.parseServiceAlerts(protobufData);
+            ALERTS_PARSE_LATENCY.recordSince(stepStart);
+            cycleAlerts = alerts.size();
+            alertStore.apply(alerts);
+        } catch (Exception e) {
+            logger.warn("Error downloading/parsing service alerts: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Publish arrival predictions for this cycle (non-critical)
+     */
+    private void publishPredictions() {
+        try {
+            predictionEngine.publish();
+            logger.info(predictionEngine.getStats().toString());
+        } catch (Exception e) {
+            logger.warn("Error publishing arrival predictions: " + e.getMessage());
+        }
+    }
+
     /**
      * Save vehicle positions to database
      */
     private void saveVehiclesToDatabase(List<VehiclePosition> positions) {
         logger.info("Saving " + positions.size() + " vehicles to database...");
+        long persistStart = System.nanoTime();
 
         int saved = 0;
         int updated = 0;
         int errors = 0;
+        List<Vehicle> cycleVehicles = new ArrayList<>(positions.size());
 
         for (VehiclePosition position : positions) {
             try {
                 // Convert DTO to Entity
                 Vehicle vehicle = vehicleConverter.convertToEntity(position);
+                cycleVehicles.add(vehicle);
 
                 // Check if vehicle already exists
                 boolean exists = vehicleRepository.exists(vehicle.getVehicleId());
@@ -343,6 +523,10 @@ public class RealtimeDataSyncService {
         }
 
         currentVehicleCount = saved + updated;
+        VEHICLES_PERSIST_LATENCY.recordSince(persistStart);
+
+        // Dashboard metrics follow the cycle without reading the vehicles back
+        DashboardMetricsAggregator.getInstance().onVehicleCycle(cycleVehicles);
 
         logger.info("Database update complete: " + saved + " new, " + updated + " updated, " +
                    errors + " errors");
@@ -366,7 +550,7 @@ public class RealtimeDataSyncService {
             }
 
             // Cleanup resolved incidents older than 1 day
-            incidentRepository.cleanupOldIncidents(1);
+            incidentRepository.cleanupOldIncidents(24 * 60);
 
         } catch (Exception e) {
             logger.warn("Error during cleanup: " + e.getMessage());
@@ -0,0 +1,460 @@
+package com.rometransit.service.realtime;
+
+import com.rometransit.model.dto.ServiceAlert;
+import com.rometransit.model.entity.TransportIncident;
+import com.rometransit.service.execution.ExecutionManager;
+import com.rometransit.util.language.LanguageManager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory store of the GTFS-RT service alerts.
+ *
+ * Each feed cycle is applied as a diff against the known alerts (by id and content hash).
+ * Alerts that are active right now are indexed by informed entity (route, stop, trip,
+ * agency) in an immutable view, so "alerts affecting this stop/route now" is a map lookup.
+ * Active periods are handled by a hashed timer wheel holding the next period boundary of
+ * each alert: when a boundary is due the alert enters or leaves the view, without scanning
+ * all alerts.
+ */
+public class ServiceAlertStore {
+
+    private static ServiceAlertStore instance;
+
+    public static final String ALERT_TYPE = "AVVISO";
+
+    // Timer wheel: 30 s ticks, 120 slots (one revolution per hour)
+    private static final long TICK_SECONDS = 30;
+    private static final int WHEEL_SLOTS = 120;
+
+    private final Map<String, Entry> alerts = new HashMap<>();
+    private final TimerWheel wheel;
+    private volatile ActiveView view = ActiveView.EMPTY;
+    private final AlertStats stats = new AlertStats();
+
+    private ServiceAlertStore() {
+        this(nowSeconds());
+        // Wheel ticks on a shared scope; cancelled with the other periodic tasks at shutdown
+        ExecutionManager execution = ExecutionManager.getInstance();
+        execution.scheduleAtFixedRate(execution.cpu("service-alerts"),
+            () -> advance(nowSeconds()), TICK_SECONDS, TICK_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Store whose wheel starts at the given time, advanced only by apply/advance
+     */
+    ServiceAlertStore(long nowSeconds) {
+        this.wheel = new TimerWheel(nowSeconds);
+    }
+
+    public static synchronized ServiceAlertStore getInstance() {
+        if (instance == null) {
+            instance = new ServiceAlertStore();
+        }
+        return instance;
+    }
+
+    // ===== Feed updates =====
+
+    /**
+     * Apply the alerts of one feed cycle: new alerts are added, changed ones re-indexed,
+     * alerts missing from the feed removed
+     */
+    public void apply(List<ServiceAlert> feedAlerts) {
+        apply(feedAlerts, nowSeconds());
+    }
+
+    synchronized void apply(List<ServiceAlert> feedAlerts, long now) {
+        // A boundary firing here changes the view even when the feed itself did not
+        boolean viewChanged = wheel.advance(now, this::onTimer);
+
+        int added = 0;
+        int updated = 0;
+        int removed = 0;
+        Set<String> seen = new HashSet<>();
+
+        for (ServiceAlert alert : feedAlerts) {
+            if (alert.getAlertId() == null || !seen.add(alert.getAlertId())) {
+                continue;
+            }
+
+            Entry entry = alerts.get(alert.getAlertId());
+            if (entry != null && entry.alert.getContentHash() == alert.getContentHash()) {
+                continue; // Unchanged
+            }
+
+            if (entry == null) {
+                entry = new Entry(alert);
+                alerts.put(alert.getAlertId(), entry);
+                added++;
+            } else {
+                viewChanged |= entry.active; // Indexed under the old informed entities
+                entry.alert = alert;
+                entry.generation++; // Invalidates timers of the previous version
+                updated++;
+            }
+
+            entry.active = alert.isActiveAt(now);
+            viewChanged |= entry.active;
+            schedule(entry, now);
+        }
+
+        Iterator<Map.Entry<String, Entry>> iterator = alerts.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            if (!seen.contains(entry.alert.getAlertId())) {
+                viewChanged |= entry.active;
+                entry.generation++;
+                iterator.remove();
+                removed++;
+            }
+        }
+
+        if (viewChanged) {
+            rebuildView();
+        }
+
+        stats.cycles++;
+        stats.added += added;
+        stats.updated += updated;
+        stats.removed += removed;
+        if (added + updated + removed > 0) {
+            System.out.println("⚠️ Service alerts: +" + added + " ~" + updated + " -" + removed +
+                               " (" + view.all.size() + " active of " + alerts.size() + ")");
+        }
+    }
+
+    /**
+     * Fire the period boundaries that are due
+     */
+    synchronized void advance(long now) {
+        if (wheel.advance(now, this::onTimer)) {
+            rebuildView();
+        }
+    }
+
+    /**
+     * @return true if the alert entered or left the active view
+     */
+    private boolean onTimer(Timer timer, long now) {
+        Entry entry = alerts.get(timer.alertId);
+        if (entry == null || entry.generation != timer.generation) {
+            return false; // Alert removed or replaced since the timer was set
+        }
+
+        stats.transitions++;
+        boolean active = entry.alert.isActiveAt(now);
+        boolean changed = active != entry.active;
+        entry.active = active;
+        schedule(entry, now);
+        return changed;
+    }
+
+    private void schedule(Entry entry, long now) {
+        long next = entry.alert.getNextTransitionAfter(now);
+        if (next > 0) {
+            wheel.schedule(new Timer(entry.alert.getAlertId(), entry.generation, next));
+        }
+    }
+
+    // ===== Lookups (active now) =====
+
+    public List<ServiceAlert> getActiveAlerts() {
+        return view.all;
+    }
+
+    public List<ServiceAlert> getActiveAlertsForStop(String stopId) {
+        return view.byStop.getOrDefault(stopId, Collections.emptyList());
+    }
+
+    public List<ServiceAlert> getActiveAlertsForRoute(String routeId) {
+        return view.byRoute.getOrDefault(routeId, Collections.emptyList());
+    }
+
+    public List<ServiceAlert> getActiveAlertsForTrip(String tripId) {
+        return view.byTrip.getOrDefault(tripId, Collections.emptyList());
+    }
+
+    public List<ServiceAlert> getActiveAlertsForAgency(String agencyId) {
+        return view.byAgency.getOrDefault(agencyId, Collections.emptyList());
+    }
+
+    /**
+     * Active alerts as dashboard incidents (type AVVISO), highest severity first
+     */
+    public List<TransportIncident> getActiveAlertIncidents() {
+        return view.incidents;
+    }
+
+    /**
+     * Incremented whenever the set of active alerts changes
+     */
+    public long getVersion() {
+        return view.version;
+    }
+
+    public synchronized AlertStats getStats() {
+        AlertStats copy = new AlertStats();
+        copy.knownAlerts = alerts.size();
+        copy.activeAlerts = view.all.size();
+        copy.pendingTimers = wheel.size();
+        copy.cycles = stats.cycles;
+        copy.added = stats.added;
+        copy.updated = stats.updated;
+        copy.removed = stats.removed;
+        copy.transitions = stats.transitions;
+        return copy;
+    }
+
+    // ===== Active view =====
+
+    private void rebuildView() {
+        List<ServiceAlert> all = new ArrayList<>();
+        Map<String, List<ServiceAlert>> byRoute = new HashMap<>();
+        Map<String, List<ServiceAlert>> byStop = new HashMap<>();
+        Map<String, List<ServiceAlert>> byTrip = new HashMap<>();
+        Map<String, List<ServiceAlert>> byAgency = new HashMap<>();
+        List<TransportIncident> incidents = new ArrayList<>();
+
+        for (Entry entry : alerts.values()) {
+            if (!entry.active) {
+                continue;
+            }
+            ServiceAlert alert = entry.alert;
+            all.add(alert);
+            index(byRoute, alert.getRouteIds(), alert);
+            index(byStop, alert.getStopIds(), alert);
+            index(byTrip, alert.getTripIds(), alert);
+            index(byAgency, alert.getAgencyIds(), alert);
+            incidents.add(toIncident(alert));
+        }
+        incidents.sort(Comparator.comparing(TransportIncident::getSeverity).reversed());
+
+        view = new ActiveView(Collections.unmodifiableList(all), freeze(byRoute), freeze(byStop),
+                              freeze(byTrip), freeze(byAgency), Collections.unmodifiableList(incidents),
+                              view.version + 1);
+    }
+
+    private static void index(Map<String, List<ServiceAlert>> index, List<String> keys, ServiceAlert alert) {
+        for (String key : keys) {
+            List<ServiceAlert> list = index.computeIfAbsent(key, k -> new ArrayList<>(2));
+            if (!list.contains(alert)) {
+                list.add(alert);
+            }
+        }
+    }
+
+    private static Map<String, List<ServiceAlert>> freeze(Map<String, List<ServiceAlert>> index) {
+        index.replaceAll((key, list) -> Collections.unmodifiableList(list));
+        return index;
+    }
+
+    private static TransportIncident toIncident(ServiceAlert alert) {
+        String language = LanguageManager.getInstance().getCurrentLanguageCode();
+
+        TransportIncident incident = new TransportIncident();
+        incident.setId(ALERT_TYPE + "_" + alert.getAlertId());
+        incident.setType(ALERT_TYPE);
+        incident.setSeverity(severityOf(alert));
+        incident.setDescription(alert.getHeaderText(language));
+        incident.setAffectedRoutes(new ArrayList<>(alert.getRouteIds()));
+        if (!alert.getRouteIds().isEmpty()) {
+            incident.setLocation(LanguageManager.getInstance().getString("incident.routePrefix") + " " +
+                                 String.join(", ", alert.getRouteIds()));
+        } else {
+            String header = alert.getHeaderText(language);
+            incident.setLocation(header != null ? header : alert.getEffect());
+        }
+        long from = alert.getActiveFrom();
+        incident.setStartTime(from > 0
+            ? LocalDateTime.ofInstant(Instant.ofEpochSecond(from), ZoneId.systemDefault())
+            : LocalDateTime.now());
+        incident.setActive(true);
+        return incident;
+    }
+
+    /**
+     * Feed severity level when given, otherwise derived from the effect
+     */
+    static TransportIncident.Severity severityOf(ServiceAlert alert) {
+        if ("SEVERE".equals(alert.getSeverityLevel())) {
+            return TransportIncident.Severity.HIGH;
+        }
+        if ("WARNING".equals(alert.getSeverityLevel())) {
+            return TransportIncident.Severity.MEDIUM;
+        }
+        if ("INFO".equals(alert.getSeverityLevel())) {
+            return TransportIncident.Severity.LOW;
+        }
+
+        String effect = alert.getEffect();
+        if ("NO_SERVICE".equals(effect)) {
+            return TransportIncident.Severity.HIGH;
+        }
+        if ("REDUCED_SERVICE".equals(effect) || "SIGNIFICANT_DELAYS".equals(effect) ||
+            "DETOUR".equals(effect) || "STOP_MOVED".equals(effect)) {
+            return TransportIncident.Severity.MEDIUM;
+        }
+        return TransportIncident.Severity.LOW;
+    }
+
+    private static long nowSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    /**
+     * Known alert with its current active state; the generation tags its pending timer
+     */
+    private static class Entry {
+        ServiceAlert alert;
+        boolean active;
+        int generation;
+
+        Entry(ServiceAlert alert) {
+            this.alert = alert;
+        }
+    }
+
+    /**
+     * Immutable snapshot of the active alerts and their indexes
+     */
+    private static class ActiveView {
+        static final ActiveView EMPTY = new ActiveView(Collections.emptyList(), Collections.emptyMap(),
+            Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), Collections.emptyList(), 0);
+
+        final List<ServiceAlert> all;
+        final Map<String, List<ServiceAlert>> byRoute;
+        final Map<String, List<ServiceAlert>> byStop;
+        final Map<String, List<ServiceAlert>> byTrip;
+        final Map<String, List<ServiceAlert>> byAgency;
+        final List<TransportIncident> incidents;
+        final long version;
+
+        ActiveView(List<ServiceAlert> all, Map<String, List<ServiceAlert>> byRoute,
+                   Map<String, List<ServiceAlert>> byStop, Map<String, List<ServiceAlert>> byTrip,
+                   Map<String, List<ServiceAlert>> byAgency, List<TransportIncident> incidents, long version) {
+            this.all = all;
+            this.byRoute = byRoute;
+            this.byStop = byStop;
+            this.byTrip = byTrip;
+            this.byAgency = byAgency;
+            this.incidents = incidents;
+            this.version = version;
+        }
+    }
+
+    // ===== Timer wheel =====
+
+    /**
+     * Pending period boundary of one alert version
+     */
+    private static class Timer {
+        final String alertId;
+        final int generation;
+        final long dueSeconds;
+
+        Timer(String alertId, int generation, long dueSeconds) {
+            this.alertId = alertId;
+            this.generation = generation;
+            this.dueSeconds = dueSeconds;
+        }
+    }
+
+    /**
+     * Callback for a due timer; returns true if the active view must be rebuilt
+     */
+    @FunctionalInterface
+    private interface TimerHandler {
+        boolean fire(Timer timer, long now);
+    }
+
+    /**
+     * Hashed timer wheel. A timer lives in the slot of the first tick at or after its due
+     * time, so every timer of a visited slot is due unless it is one or more revolutions
+     * ahead; those stay in the slot until their due time is reached.
+     */
+    private static class TimerWheel {
+        private final List<List<Timer>> slots = new ArrayList<>(WHEEL_SLOTS);
+        private long currentTick;
+        private int size;
+
+        TimerWheel(long nowSeconds) {
+            for (int i = 0; i < WHEEL_SLOTS; i++) {
+                slots.add(new ArrayList<>());
+            }
+            this.currentTick = nowSeconds / TICK_SECONDS;
+        }
+
+        void schedule(Timer timer) {
+            // Never behind the wheel: a past boundary fires on the next tick
+            long dueTick = Math.ceilDiv(timer.dueSeconds, TICK_SECONDS);
+            long tick = Math.max(dueTick, currentTick + 1);
+            slots.get((int) (tick % WHEEL_SLOTS)).add(timer);
+            size++;
+        }
+
+        /**
+         * Visit the slots of the ticks elapsed up to now and fire the due timers
+         */
+        boolean advance(long nowSeconds, TimerHandler handler) {
+            long targetTick = nowSeconds / TICK_SECONDS;
+            if (targetTick <= currentTick) {
+                return false;
+            }
+
+            // After a long pause every slot is visited once
+            long ticks = Math.min(targetTick - currentTick, WHEEL_SLOTS);
+            boolean changed = false;
+            List<Timer> due = new ArrayList<>();
+
+            for (long t = targetTick - ticks + 1; t <= targetTick; t++) {
+                List<Timer> slot = slots.get((int) (t % WHEEL_SLOTS));
+                Iterator<Timer> iterator = slot.iterator();
+                while (iterator.hasNext()) {
+                    Timer timer = iterator.next();
+                    if (timer.dueSeconds <= nowSeconds) {
+                        iterator.remove();
+                        size--;
+                        due.add(timer);
+                    }
+                }
+            }
+            currentTick = targetTick;
+
+            // Handlers may schedule the next boundary, so they run after the slots are visited
+            for (Timer timer : due) {
+                changed |= handler.fire(timer, nowSeconds);
+            }
+            return changed;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Counters of the alert store
+     */
+    public static class AlertStats {
+        public int knownAlerts;
+        public int activeAlerts;
+        public int pendingTimers;
+        public long cycles;
+        public long added;
+        public long updated;
+        public long removed;
+        public long transitions;
+
+        @Override
+        public String toString() {
+            return String.format("AlertStats{known=%d, active=%d, timers=%d, cycles=%d, " +
+                "added=%d, updated=%d, removed=%d, transitions=%d}",
+                knownAlerts, activeAlerts, pendingTimers, cycles, added, updated, removed, transitions);
+        }
+    }
+}
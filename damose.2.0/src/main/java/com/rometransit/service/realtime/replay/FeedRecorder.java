@@ -0,0 +1,123 @@
+package com.rometransit.service.realtime.replay;
+
+import com.rometransit.util.config.AppConfig;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Appends raw GTFS-RT protobuf snapshots to a compact on-disk log.
+ *
+ * The log is a gzip stream of records (see {@link FeedRecording} for the layout).
+ * A snapshot identical to the previous one of the same feed is stored as a
+ * zero-payload "unchanged" record, which keeps the timing but not the bytes.
+ * The stream is sync-flushed after every record, so a recording cut short by a
+ * crash stays readable up to its last snapshot.
+ */
+public class FeedRecorder implements Closeable {
+
+    private static FeedRecorder shared;
+
+    private final Path file;
+    private final DataOutputStream out;
+    private final Map<FeedType, byte[]> lastPayload = new EnumMap<>(FeedType.class);
+    private long recordCount;
+    private long bytesCaptured;
+
+    public FeedRecorder(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        this.file = file;
+        this.out = new DataOutputStream(new GZIPOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(file)), 64 * 1024, true));
+        out.write(FeedRecording.MAGIC);
+        out.writeByte(FeedRecording.VERSION);
+        out.flush();
+    }
+
+    /**
+     * Process-wide recorder, opened on first use when recording is enabled in the configuration
+     * @return the recorder, or null if recording is disabled or the file cannot be created
+     */
+    public static synchronized FeedRecorder shared() {
+        if (shared != null || !AppConfig.getInstance().isRealtimeRecordingEnabled()) {
+            return shared;
+        }
+
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        Path file = Paths.get(AppConfig.getInstance().getRealtimeRecordingDirectory(),
+            "gtfsrt_" + timestamp + FeedRecording.FILE_EXTENSION);
+        try {
+            shared = new FeedRecorder(file);
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::closeQuietly, "FeedRecorder-Close"));
+            System.out.println("🎙️ Recording realtime feeds to " + file);
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not open realtime feed recording: " + e.getMessage());
+        }
+        return shared;
+    }
+
+    /**
+     * Append a snapshot captured now
+     */
+    public void record(FeedType type, byte[] payload) {
+        record(type, System.currentTimeMillis(), payload);
+    }
+
+    public synchronized void record(FeedType type, long capturedAtMillis, byte[] payload) {
+        if (payload == null || payload.length == 0) {
+            return;
+        }
+
+        try {
+            boolean unchanged = Arrays.equals(payload, lastPayload.get(type));
+            out.writeByte(type.getCode());
+            out.writeLong(capturedAtMillis);
+            out.writeInt(unchanged ? FeedRecording.UNCHANGED : payload.length);
+            if (!unchanged) {
+                out.write(payload);
+                lastPayload.put(type, payload);
+                bytesCaptured += payload.length;
+            }
+            out.flush();
+            recordCount++;
+        } catch (IOException e) {
+            System.err.println("⚠️ Failed to record " + type + " snapshot: " + e.getMessage());
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    public synchronized long getBytesCaptured() {
+        return bytesCaptured;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            // Shutting down
+        }
+    }
+}
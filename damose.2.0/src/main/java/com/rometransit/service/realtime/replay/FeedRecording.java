@@ -0,0 +1,108 @@
+package com.rometransit.service.realtime.replay;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Sequential reader for logs written by {@link FeedRecorder}.
+ *
+ * Layout (inside gzip): magic "DMRT", version byte, then records of
+ * [feed type byte][captured-at epoch millis long][payload length int][payload].
+ * A length of -1 repeats the previous payload of the same feed.
+ */
+public class FeedRecording implements Closeable {
+
+    static final byte[] MAGIC = {'D', 'M', 'R', 'T'};
+    static final int VERSION = 1;
+    static final int UNCHANGED = -1;
+    public static final String FILE_EXTENSION = ".dmrt";
+
+    private final Path file;
+    private final DataInputStream in;
+    private final Map<FeedType, byte[]> lastPayload = new EnumMap<>(FeedType.class);
+
+    public FeedRecording(Path file) throws IOException {
+        this.file = file;
+        this.in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file)), 64 * 1024));
+
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            in.close();
+            throw new IOException("Not a realtime feed recording: " + file);
+        }
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            in.close();
+            throw new IOException("Unsupported recording version " + version + ": " + file);
+        }
+    }
+
+    /**
+     * Read the next snapshot, or null at the end of the recording
+     * (including a recording truncated mid-record)
+     */
+    public Snapshot next() throws IOException {
+        try {
+            FeedType type = FeedType.fromCode(in.readUnsignedByte());
+            long capturedAt = in.readLong();
+            int length = in.readInt();
+
+            byte[] payload;
+            if (length == UNCHANGED) {
+                payload = lastPayload.get(type);
+                if (payload == null) {
+                    throw new IOException("Unchanged record without a previous " + type + " snapshot");
+                }
+                return new Snapshot(type, capturedAt, payload, false);
+            }
+
+            payload = new byte[length];
+            in.readFully(payload);
+            lastPayload.put(type, payload);
+            return new Snapshot(type, capturedAt, payload, true);
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * One captured feed response
+     */
+    public static class Snapshot {
+        private final FeedType type;
+        private final long capturedAtMillis;
+        private final byte[] payload;
+        private final boolean changed;
+
+        Snapshot(FeedType type, long capturedAtMillis, byte[] payload, boolean changed) {
+            this.type = type;
+            this.capturedAtMillis = capturedAtMillis;
+            this.payload = payload;
+            this.changed = changed;
+        }
+
+        public FeedType getType() { return type; }
+        public long getCapturedAtMillis() { return capturedAtMillis; }
+        public byte[] getPayload() { return payload; }
+        public boolean isChanged() { return changed; }
+    }
+}
@@ -0,0 +1,38 @@
+package com.rometransit.service.realtime.replay;
+
+/**
+ * GTFS-RT feeds that can be recorded and replayed
+ */
+public enum FeedType {
+    VEHICLE_POSITIONS(1, "vehicle_positions.pb"),
+    TRIP_UPDATES(2, "trip_updates.pb"),
+    SERVICE_ALERTS(3, "service_alerts.pb");
+
+    private final int code;
+    private final String path;
+
+    FeedType(int code, String path) {
+        this.code = code;
+        this.path = path;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Path under which the replay server exposes this feed
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public static FeedType fromCode(int code) {
+        for (FeedType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown feed type code: " + code);
+    }
+}
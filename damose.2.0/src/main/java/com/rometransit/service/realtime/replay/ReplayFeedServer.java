@@ -0,0 +1,180 @@
+package com.rometransit.service.realtime.replay;
+
+import com.rometransit.service.execution.ExecutionManager;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Local stand-in for the Roma Mobilità realtime feed URLs, serving a recording.
+ *
+ * Each feed path returns the latest snapshot at the replay's virtual time. At 1x and
+ * 10x the recording advances on a clock; at max speed it advances by one vehicle
+ * positions snapshot every time that feed is requested, so the consumer sets the pace.
+ * Point the app at it with the -Ddamose.* overrides printed by {@link #main}.
+ */
+public class ReplayFeedServer {
+
+    private final Path recordingFile;
+    private final ReplaySpeed speed;
+    private final HttpServer server;
+    private final Map<FeedType, byte[]> current = new EnumMap<>(FeedType.class);
+    private final Semaphore advanceRequests = new Semaphore(0);
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile Thread replayThread; // runs the replay clock, interrupted by stop()
+    private volatile boolean finished;
+    private volatile long snapshotsServed;
+
+    public ReplayFeedServer(Path recordingFile, ReplaySpeed speed, int port) throws IOException {
+        this.recordingFile = recordingFile;
+        this.speed = speed;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        for (FeedType type : FeedType.values()) {
+            server.createContext("/" + type.getPath(), exchange -> serve(exchange, type));
+        }
+    }
+
+    public void start() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+
+        // The clock mostly sleeps or waits for the consumer: IO scope
+        ExecutionManager.getInstance().io("feed-replay").execute(this::replay);
+        server.start();
+        System.out.println("▶️ Replaying " + recordingFile.getFileName() + " at " + speed +
+                           " on http://127.0.0.1:" + getPort() + "/");
+    }
+
+    public void stop() {
+        if (!running.compareAndSet(true, false)) {
+            return;
+        }
+        server.stop(0);
+        advanceRequests.release(); // in case the clock starts waiting after this
+        Thread clock = replayThread;
+        if (clock != null) {
+            clock.interrupt();
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getFeedUrl(FeedType type) {
+        return "http://127.0.0.1:" + getPort() + "/" + type.getPath();
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public long getSnapshotsServed() {
+        return snapshotsServed;
+    }
+
+    // ===== Replay clock =====
+
+    private void replay() {
+        replayThread = Thread.currentThread();
+        try (FeedRecording recording = new FeedRecording(recordingFile)) {
+            FeedRecording.Snapshot snapshot;
+            long previousCapture = -1;
+            boolean vehiclesServed = false;
+
+            while (running.get() && (snapshot = recording.next()) != null) {
+                if (speed == ReplaySpeed.MAX) {
+                    // Hold each vehicle positions snapshot until the consumer has fetched the previous one
+                    if (snapshot.getType() == FeedType.VEHICLE_POSITIONS) {
+                        if (vehiclesServed) {
+                            advanceRequests.acquire();
+                        }
+                        vehiclesServed = true;
+                    }
+                } else if (previousCapture >= 0) {
+                    long wait = speed.scale(snapshot.getCapturedAtMillis() - previousCapture);
+                    if (wait > 0) {
+                        Thread.sleep(wait);
+                    }
+                }
+
+                synchronized (current) {
+                    current.put(snapshot.getType(), snapshot.getPayload());
+                }
+                previousCapture = snapshot.getCapturedAtMillis();
+            }
+            System.out.println("⏹️ Replay of " + recordingFile.getFileName() + " finished");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("❌ Replay failed: " + e.getMessage());
+        } finally {
+            replayThread = null;
+            finished = true;
+        }
+    }
+
+    private void serve(HttpExchange exchange, FeedType type) throws IOException {
+        byte[] payload;
+        synchronized (current) {
+            payload = current.getOrDefault(type, new byte[0]);
+        }
+
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", "application/x-protobuf");
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, payload.length > 0 ? payload.length : -1);
+            if (payload.length > 0) {
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(payload);
+                }
+            }
+            snapshotsServed++;
+        }
+
+        if (type == FeedType.VEHICLE_POSITIONS) {
+            advanceRequests.release();
+        }
+    }
+
+    /**
+     * Usage: ReplayFeedServer &lt;recording.dmrt&gt; [1x|10x|max] [port]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: ReplayFeedServer <recording" + FeedRecording.FILE_EXTENSION + "> [1x|10x|max] [port]");
+            System.exit(1);
+        }
+
+        ReplaySpeed speed = args.length > 1 ? ReplaySpeed.parse(args[1]) : ReplaySpeed.REALTIME;
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : 8089;
+
+        ReplayFeedServer server = new ReplayFeedServer(Paths.get(args[0]), speed, port);
+        server.start();
+
+        System.out.println("   Run the app against the replay with:");
+        System.out.println("   -Ddamose.gtfs.realtime.vehicle_positions_url=" + server.getFeedUrl(FeedType.VEHICLE_POSITIONS));
+        System.out.println("   -Ddamose.gtfs.realtime.trip_updates_url=" + server.getFeedUrl(FeedType.TRIP_UPDATES));
+        System.out.println("   -Ddamose.gtfs.realtime.service_alerts_url=" + server.getFeedUrl(FeedType.SERVICE_ALERTS));
+
+        while (!server.isFinished()) {
+            Thread.sleep(1000);
+        }
+        Thread.sleep(5000); // Let the last snapshot be fetched
+        server.stop();
+    }
+}
@@ -0,0 +1,43 @@
+package com.rometransit.service.realtime.replay;
+
+/**
+ * Pace of a replay relative to the recorded capture times
+ */
+public enum ReplaySpeed {
+    REALTIME(1),
+    FAST(10),
+    MAX(0); // As fast as the consumer asks for the next snapshot
+
+    private final int factor;
+
+    ReplaySpeed(int factor) {
+        this.factor = factor;
+    }
+
+    /**
+     * Wall-clock time to wait for a recorded gap, 0 at maximum speed
+     */
+    public long scale(long recordedGapMillis) {
+        return factor > 0 ? Math.max(0, recordedGapMillis / factor) : 0;
+    }
+
+    /**
+     * Parse "1x", "10x" or "max"
+     */
+    public static ReplaySpeed parse(String value) {
+        switch (value.trim().toLowerCase()) {
+            case "1":
+            case "1x":
+            case "realtime":
+                return REALTIME;
+            case "10":
+            case "10x":
+            case "fast":
+                return FAST;
+            case "max":
+                return MAX;
+            default:
+                throw new IllegalArgumentException("Unknown replay speed: " + value + " (use 1x, 10x or max)");
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.rometransit.service.transit;
+
+import com.rometransit.model.dto.ArrivalPrediction;
+import com.rometransit.service.memory.MemoryBudgeted;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of assembled arrival boards, keyed by stop id.
+ *
+ * Entries are dropped when the prediction engine republishes realtime arrivals at the
+ * stop, when static data is reloaded, or after a maximum age so that the scheduled
+ * part of the board rolls forward. A board computed while an invalidation ran is
+ * returned to the caller but not stored, so a stale board cannot outlive its update.
+ * Its footprint is governed by the "arrival_boards" memory budget.
+ */
+public class ArrivalBoardCache implements MemoryBudgeted {
+
+    private static final int DEFAULT_MAX_ENTRIES = 512;
+    private static final long MAX_ENTRY_AGE_MS = 120_000;
+    // Estimated heap of one board entry and of one prediction in it
+    private static final long ENTRY_BYTES = 128;
+    private static final long PREDICTION_BYTES = 256;
+
+    private final Map<String, Entry> entries;
+    private final int maxEntries;
+
+    // Bumped on every invalidation (guarded by this)
+    private long generation;
+
+    // Metrics (guarded by this)
+    private long hits;
+    private long misses;
+    private long invalidations;
+    private long evictions;
+
+    public ArrivalBoardCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public ArrivalBoardCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        // LRU with access-order (true parameter)
+        this.entries = new LinkedHashMap<String, Entry>(maxEntries + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ArrivalBoardCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the cached board of a stop, computing it with the loader on a miss
+     */
+    public List<ArrivalPrediction> get(String stopId, Function<String, List<ArrivalPrediction>> loader) {
+        long startGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(stopId);
+            if (entry != null && System.currentTimeMillis() - entry.createdAt < MAX_ENTRY_AGE_MS) {
+                hits++;
+                return entry.board;
+            }
+            misses++;
+            startGeneration = generation;
+        }
+
+        // Computed outside the lock: a slow stop does not block lookups of other stops
+        List<ArrivalPrediction> board = Collections.unmodifiableList(loader.apply(stopId));
+
+        synchronized (this) {
+            if (generation == startGeneration) {
+                entries.put(stopId, new Entry(board));
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Drop the boards of stops whose realtime arrivals changed
+     */
+    public synchronized void invalidate(Collection<String> stopIds) {
+        generation++;
+        for (String stopId : stopIds) {
+            if (entries.remove(stopId) != null) {
+                invalidations++;
+            }
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        invalidations += entries.size();
+        entries.clear();
+    }
+
+    // ===== Memory budget =====
+
+    @Override
+    public synchronized long getFootprintBytes() {
+        long bytes = 0;
+        for (Entry entry : entries.values()) {
+            bytes += entry.footprint();
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Evict least recently read boards down to the given footprint
+     */
+    @Override
+    public synchronized void trimTo(long maxBytes) {
+        long excess = getFootprintBytes() - maxBytes;
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (excess > 0 && iterator.hasNext()) {
+            excess -= iterator.next().footprint();
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized CacheStats getStats() {
+        CacheStats stats = new CacheStats();
+        stats.size = entries.size();
+        stats.maxEntries = maxEntries;
+        stats.hits = hits;
+        stats.misses = misses;
+        stats.invalidations = invalidations;
+        stats.evictions = evictions;
+        return stats;
+    }
+
+    private static class Entry {
+        final List<ArrivalPrediction> board;
+        final long createdAt;
+
+        Entry(List<ArrivalPrediction> board) {
+            this.board = board;
+            this.createdAt = System.currentTimeMillis();
+        }
+
+        long footprint() {
+            return ENTRY_BYTES + board.size() * PREDICTION_BYTES;
+        }
+    }
+
+    public static class CacheStats {
+        public int size;
+        public int maxEntries;
+        public long hits;
+        public long misses;
+        public long invalidations;
+        public long evictions;
+
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests > 0 ? (double) hits / requests * 100 : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ArrivalBoardCache{size=%d/%d, hits=%d, misses=%d, hitRate=%.1f%%, invalidations=%d, evictions=%d}",
+                size, maxEntries, hits, misses, hitRate(), invalidations, evictions);
+        }
+    }
+}
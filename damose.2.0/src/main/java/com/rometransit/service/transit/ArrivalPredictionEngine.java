@@ -0,0 +1,1084 @@
+package com.rometransit.service.transit;
+
+import com.rometransit.model.dto.ArrivalPrediction;
+import com.rometransit.model.dto.VehiclePosition;
+import com.rometransit.model.entity.Route;
+import com.rometransit.model.entity.Shape;
+import com.rometransit.model.entity.Stop;
+import com.rometransit.model.entity.StopTime;
+import com.rometransit.model.entity.Trip;
+import com.rometransit.model.symbol.SymbolMap;
+import com.rometransit.model.symbol.SymbolTable;
+import com.rometransit.service.gtfs.GTFSDataManager;
+import com.rometransit.service.gtfs.feed.FeedIds;
+import com.rometransit.service.memory.GovernedSymbolMap;
+import com.rometransit.service.memory.MemoryGovernor;
+import com.rometransit.util.metrics.LatencyHistogram;
+import com.rometransit.util.metrics.MetricsRegistry;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Realtime-anchored arrival prediction engine.
+ *
+ * Keeps one delay state per active trip, fed by the TripUpdates and VehiclePositions
+ * of each realtime cycle. Vehicles are projected onto their trip's shape to get the
+ * distance travelled along the route, which gives a delay against the schedule at the
+ * vehicle's current position. Explicit TripUpdate delays take precedence at the stops
+ * they cover and propagate downstream until the next explicit update, as in the
+ * GTFS-RT specification.
+ *
+ * Only trips touched by a cycle are recomputed; their predictions are patched into
+ * per-stop arrival boards, so reading the board of a stop is an array lookup.
+ *
+ * Trips, stops and shapes are keyed by dense ints (see KeySpace): the symbols of the primary
+ * dataset, which the realtime parser already binds to each vehicle, and keys numbered after
+ * them for the extra feeds. String ids are resolved only where they come in or go out.
+ *
+ * SINGLETON - Use getInstance()
+ */
+public class ArrivalPredictionEngine {
+
+    private static ArrivalPredictionEngine instance;
+
+    private static final long STALE_STATE_SECONDS = 600;
+    private static final long BOARD_HORIZON_SECONDS = 2 * 3600;
+    private static final double MAX_OFF_ROUTE_METERS = 200.0;
+    private static final double STOP_PASSED_TOLERANCE_METERS = 15.0;
+    private static final double BACKTRACK_TOLERANCE_METERS = 50.0;
+    private static final long PASSED_GRACE_SECONDS = 60;
+    private static final int FORWARD_SEARCH_SEGMENTS = 40;
+    private static final int NO_DELAY = Integer.MIN_VALUE;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    // Keys of the current static dataset; replaced with the dataset (boards first, see getBoard)
+    private volatile KeySpace keys = new KeySpace(new SymbolTable());
+
+    // Static geometry by trip and shape key, rebuilt lazily after every static data reload or
+    // memory governor trim (each map guarded by its own monitor, shared with the governor)
+    private final SymbolMap<TripGeometry> geometryByTrip = new SymbolMap<>();
+    private final SymbolMap<Polyline> polylineByShape = new SymbolMap<>();
+
+    // Realtime state by trip key (guarded by this)
+    private final SymbolMap<TripState> tripStates = new SymbolMap<>();
+    private final BitSet dirtyTrips = new BitSet();
+
+    // Published boards by stop key: upcoming arrivals, read without locking
+    private volatile AtomicReferenceArray<StopBoard> boards = new AtomicReferenceArray<>(0);
+    private int boardCount;
+    private final List<BoardListener> boardListeners = new java.util.concurrent.CopyOnWriteArrayList<>();
+
+    // Metrics
+    private long cycles;
+    private long lastCycleMs;
+    private long totalCycleMs;
+    private long accuracySamples;
+    private long absoluteErrorSeconds;
+    private long unknownTrips;
+    private long offRouteFixes;
+
+    private static final LatencyHistogram APPLY_TRIP_UPDATES_LATENCY =
+        MetricsRegistry.getInstance().histogram("prediction.apply_trip_updates");
+    private static final LatencyHistogram APPLY_VEHICLES_LATENCY =
+        MetricsRegistry.getInstance().histogram("prediction.apply_vehicles");
+    private static final LatencyHistogram PUBLISH_LATENCY =
+        MetricsRegistry.getInstance().histogram("prediction.publish");
+
+    private ArrivalPredictionEngine() {
+        // Active trips keep their geometry in TripState: evicted entries are only rebuilt for new trips
+        MemoryGovernor governor = MemoryGovernor.getInstance();
+        governor.register("stop_times", "trip-geometry", new GovernedSymbolMap<>(geometryByTrip, TripGeometry::footprint));
+        governor.register("shapes", "shape-polylines", new GovernedSymbolMap<>(polylineByShape, Polyline::footprint));
+    }
+
+    public static synchronized ArrivalPredictionEngine getInstance() {
+        if (instance == null) {
+            instance = new ArrivalPredictionEngine();
+        }
+        return instance;
+    }
+
+    // ===== Feed input =====
+
+    /**
+     * Apply the stop time updates of one TripUpdates feed.
+     * Each trip's updates replace the explicit delays previously known for that trip.
+     */
+    public synchronized void applyTripUpdates(List<ArrivalPrediction> updates) {
+        if (updates == null || updates.isEmpty()) {
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        long now = nowEpochSeconds();
+        KeySpace keys = syncKeySpace();
+
+        // A feed lists the updates of a trip together: the trip is resolved once per run
+        BitSet cleared = new BitSet();
+        String runTripId = null;
+        TripState state = null;
+        for (ArrivalPrediction update : updates) {
+            String tripId = update.getTripId();
+            if (tripId == null) {
+                continue;
+            }
+            if (!tripId.equals(runTripId)) {
+                runTripId = tripId;
+                state = stateFor(keys.find(SymbolTable.Kind.TRIP, tripId), tripId, now);
+                if (state != null && !cleared.get(state.tripKey)) {
+                    // Replaces the delays of the previous feed, once per trip
+                    cleared.set(state.tripKey);
+                    Arrays.fill(state.explicitDelay, NO_DELAY);
+                    state.lastUpdate = Math.max(state.lastUpdate, now);
+                    dirtyTrips.set(state.tripKey);
+                }
+            }
+            if (state == null) {
+                continue;
+            }
+
+            TripGeometry geometry = state.geometry;
+            int index = geometry.indexOfSequence(update.getStopSequence());
+            if (index < 0 && update.getStopId() != null) {
+                index = geometry.indexOfStop(keys.find(SymbolTable.Kind.STOP, update.getStopId()), state.nextStopIndex);
+            }
+            if (index < 0) {
+                continue;
+            }
+            state.explicitDelay[index] = update.getArrivalTime() > 0
+                ? (int) (update.getArrivalTime() - state.serviceDay - geometry.scheduled[index])
+                : update.getDelay();
+        }
+        APPLY_TRIP_UPDATES_LATENCY.recordSince(startNanos);
+    }
+
+    /**
+     * Apply one VehiclePositions feed, advancing each vehicle along its trip
+     */
+    public synchronized void applyVehiclePositions(List<VehiclePosition> positions) {
+        if (positions == null || positions.isEmpty()) {
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        long now = nowEpochSeconds();
+        KeySpace keys = syncKeySpace();
+        for (VehiclePosition position : positions) {
+            if (position.getTripId() == null || position.isSimulated()) {
+                continue;
+            }
+
+            // Symbol bound by the parser for the primary feed, lookup by id for the others
+            int tripKey = keys.ofSymbol(SymbolTable.Kind.TRIP, position.getTripSymbol());
+            if (tripKey == SymbolTable.UNKNOWN) {
+                tripKey = keys.find(SymbolTable.Kind.TRIP, position.getTripId());
+            }
+            TripState state = stateFor(tripKey, position.getTripId(), now);
+            if (state == null) {
+                continue;
+            }
+
+            long fixTime = position.getTimestamp() > 0 ? position.getTimestamp() : now;
+            if (fixTime <= state.lastFix) {
+                continue; // Same or older fix than the one already applied
+            }
+
+            if (advanceVehicle(state, position, fixTime)) {
+                state.vehicleId = position.getVehicleId();
+                state.lastFix = fixTime;
+                state.lastUpdate = Math.max(state.lastUpdate, fixTime);
+                dirtyTrips.set(state.tripKey);
+            }
+        }
+        APPLY_VEHICLES_LATENCY.recordSince(startNanos);
+    }
+
+    /**
+     * Recompute the trips touched since the last call, expire stale ones and patch the boards
+     */
+    public synchronized void publish() {
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        long now = nowEpochSeconds();
+        KeySpace keys = syncKeySpace();
+
+        BitSet touchedStops = new BitSet();
+
+        BitSet expired = new BitSet();
+        tripStates.forEach((state, tripKey) -> {
+            if (now - state.lastUpdate > STALE_STATE_SECONDS || state.nextStopIndex >= state.geometry.size()) {
+                expired.set(tripKey);
+            }
+        });
+        for (int tripKey = expired.nextSetBit(0); tripKey >= 0; tripKey = expired.nextSetBit(tripKey + 1)) {
+            unpublish(tripStates.remove(tripKey), touchedStops);
+            dirtyTrips.clear(tripKey);
+        }
+
+        for (int tripKey = dirtyTrips.nextSetBit(0); tripKey >= 0; tripKey = dirtyTrips.nextSetBit(tripKey + 1)) {
+            TripState state = tripStates.get(tripKey);
+            if (state != null) {
+                unpublish(state, touchedStops);
+                publishTrip(state, now, touchedStops);
+            }
+        }
+        dirtyTrips.clear();
+
+        AtomicReferenceArray<StopBoard> published = boards;
+        for (int stopKey = touchedStops.nextSetBit(0); stopKey >= 0; stopKey = touchedStops.nextSetBit(stopKey + 1)) {
+            StopBoard board = published.get(stopKey);
+            if (board != null) {
+                if (board.isEmpty()) {
+                    published.set(stopKey, null);
+                    boardCount--;
+                } else {
+                    board.rebuildSnapshot();
+                }
+            }
+        }
+
+        PUBLISH_LATENCY.recordSince(startNanos);
+        lastCycleMs = System.currentTimeMillis() - start;
+        totalCycleMs += lastCycleMs;
+        cycles++;
+
+        if (!touchedStops.isEmpty() && !boardListeners.isEmpty()) {
+            Set<String> stopIds = new HashSet<>();
+            for (int stopKey = touchedStops.nextSetBit(0); stopKey >= 0; stopKey = touchedStops.nextSetBit(stopKey + 1)) {
+                stopIds.add(keys.name(SymbolTable.Kind.STOP, stopKey));
+            }
+            Set<String> changed = Collections.unmodifiableSet(stopIds);
+            for (BoardListener listener : boardListeners) {
+                try {
+                    listener.onBoardsChanged(changed);
+                } catch (Exception e) {
+                    System.err.println("⚠️ Board listener error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop cached geometry after static data is reloaded; active trips are rebuilt on the next cycle
+     */
+    public synchronized void invalidateStaticIndexes() {
+        // The keys of the new dataset are taken on the next cycle (see syncKeySpace)
+        resetKeySpace(new SymbolTable());
+
+        for (BoardListener listener : boardListeners) {
+            try {
+                listener.onStaticDataReloaded();
+            } catch (Exception e) {
+                System.err.println("⚠️ Board listener error: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drop the state of one feed shard after its static data is refreshed (ids "feedId:...");
+     * the primary feed and the other shards keep their trips and boards
+     */
+    public synchronized void invalidateFeed(String feedId) {
+        String prefix = feedId + FeedIds.SEPARATOR;
+        KeySpace keys = this.keys;
+        synchronized (geometryByTrip) {
+            geometryByTrip.removeIf(key -> keys.isFeedKey(SymbolTable.Kind.TRIP, key, prefix));
+        }
+        synchronized (polylineByShape) {
+            polylineByShape.removeIf(key -> keys.isFeedKey(SymbolTable.Kind.SHAPE, key, prefix));
+        }
+        tripStates.removeIf(key -> keys.isFeedKey(SymbolTable.Kind.TRIP, key, prefix));
+        for (int key = dirtyTrips.nextSetBit(0); key >= 0; key = dirtyTrips.nextSetBit(key + 1)) {
+            if (keys.isFeedKey(SymbolTable.Kind.TRIP, key, prefix)) {
+                dirtyTrips.clear(key);
+            }
+        }
+        AtomicReferenceArray<StopBoard> published = boards;
+        for (int key = 0; key < published.length(); key++) {
+            if (published.get(key) != null && keys.isFeedKey(SymbolTable.Kind.STOP, key, prefix)) {
+                published.set(key, null);
+                boardCount--;
+            }
+        }
+
+        for (BoardListener listener : boardListeners) {
+            try {
+                listener.onStaticDataReloaded();
+            } catch (Exception e) {
+                System.err.println("⚠️ Board listener error: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Key space of the current static dataset: a new dataset (a new symbol table) drops the
+     * state keyed by the previous one
+     */
+    private KeySpace syncKeySpace() {
+        SymbolTable primary = GTFSDataManager.getInstance().getSymbols();
+        if (primary != keys.primary) {
+            resetKeySpace(primary);
+        }
+        return keys;
+    }
+
+    private void resetKeySpace(SymbolTable primary) {
+        synchronized (geometryByTrip) {
+            geometryByTrip.clear();
+        }
+        synchronized (polylineByShape) {
+            polylineByShape.clear();
+        }
+        tripStates.clear();
+        dirtyTrips.clear();
+        // Boards before keys: a reader that sees the new keys also sees the new boards
+        boards = new AtomicReferenceArray<>(0);
+        boardCount = 0;
+        keys = new KeySpace(primary);
+    }
+
+    /**
+     * Register a listener notified with the stops whose boards changed after each publish
+     */
+    public void addBoardListener(BoardListener listener) {
+        if (listener != null && !boardListeners.contains(listener)) {
+            boardListeners.add(listener);
+        }
+    }
+
+    public void removeBoardListener(BoardListener listener) {
+        boardListeners.remove(listener);
+    }
+
+    // ===== Lookups =====
+
+    /**
+     * Realtime arrivals at a stop, ordered by predicted arrival
+     */
+    public List<ArrivalPrediction> getBoard(String stopId) {
+        // Keys before boards: both are replaced boards first, so these boards match the keys
+        int stopKey = keys.find(SymbolTable.Kind.STOP, stopId);
+        AtomicReferenceArray<StopBoard> published = boards;
+        StopBoard board = stopKey >= 0 && stopKey < published.length() ? published.get(stopKey) : null;
+        return board != null ? board.snapshot : Collections.emptyList();
+    }
+
+    /**
+     * Current delay of a tracked trip in seconds, if any
+     */
+    public synchronized OptionalInt getTripDelay(String tripId) {
+        int tripKey = keys.find(SymbolTable.Kind.TRIP, tripId);
+        TripState state = tripKey != SymbolTable.UNKNOWN ? tripStates.get(tripKey) : null;
+        if (state == null) {
+            return OptionalInt.empty();
+        }
+        for (ArrivalPrediction prediction : state.published) {
+            if (prediction != null) {
+                return OptionalInt.of(prediction.getDelay());
+            }
+        }
+        return OptionalInt.empty();
+    }
+
+    public synchronized EngineStats getStats() {
+        EngineStats stats = new EngineStats();
+        stats.trackedTrips = tripStates.size();
+        stats.boardStops = boardCount;
+        stats.cycles = cycles;
+        stats.lastCycleMs = lastCycleMs;
+        stats.averageCycleMs = cycles > 0 ? (double) totalCycleMs / cycles : 0;
+        stats.accuracySamples = accuracySamples;
+        stats.meanAbsoluteErrorSeconds = accuracySamples > 0 ? (double) absoluteErrorSeconds / accuracySamples : 0;
+        stats.unknownTrips = unknownTrips;
+        stats.offRouteFixes = offRouteFixes;
+        return stats;
+    }
+
+    // ===== Trip state =====
+
+    /**
+     * State of a trip, created on its first realtime data; tripKey is UNKNOWN for a trip the
+     * engine has not seen yet
+     */
+    private TripState stateFor(int tripKey, String tripId, long now) {
+        TripState state = tripKey != SymbolTable.UNKNOWN ? tripStates.get(tripKey) : null;
+        if (state != null) {
+            return state;
+        }
+
+        TripGeometry geometry = geometryFor(tripKey, tripId);
+        if (geometry == null) {
+            unknownTrips++;
+            return null;
+        }
+
+        state = new TripState(geometry.tripKey, geometry.trip.getTripId(), geometry, resolveServiceDay(geometry, now));
+        tripStates.put(state.tripKey, state);
+        return state;
+    }
+
+    /**
+     * Project a vehicle fix onto its trip and derive the delay at its current position
+     */
+    private boolean advanceVehicle(TripState state, VehiclePosition position, long fixTime) {
+        TripGeometry geometry = state.geometry;
+        Polyline path = geometry.path;
+
+        Projection projection = path.project(position.getLatitude(), position.getLongitude(),
+            Math.max(0, state.segmentHint - 2), state.segmentHint + FORWARD_SEARCH_SEGMENTS);
+        if (projection.offset > MAX_OFF_ROUTE_METERS) {
+            projection = path.project(position.getLatitude(), position.getLongitude(), 0, path.segments());
+        }
+        if (projection.offset > MAX_OFF_ROUTE_METERS) {
+            offRouteFixes++;
+            return false;
+        }
+
+        double along = projection.along;
+        if (state.vehicleAlong >= 0 && along < state.vehicleAlong) {
+            if (state.vehicleAlong - along > BACKTRACK_TOLERANCE_METERS) {
+                // A large jump back usually means a bad fix or a looping shape, keep the previous progress
+                return false;
+            }
+            along = state.vehicleAlong; // GPS jitter
+        }
+
+        int nextStop = state.nextStopIndex;
+        while (nextStop < geometry.size() && geometry.distance[nextStop] <= along + STOP_PASSED_TOLERANCE_METERS) {
+            nextStop++;
+        }
+
+        // Score the predictions published for the stops passed since the previous fix
+        if (state.vehicleAlong >= 0) {
+            for (int i = state.nextStopIndex; i < nextStop; i++) {
+                ArrivalPrediction published = state.published[i];
+                if (published != null) {
+                    absoluteErrorSeconds += Math.abs(fixTime - published.getArrivalTime());
+                    accuracySamples++;
+                }
+            }
+        }
+
+        state.vehicleAlong = along;
+        state.segmentHint = projection.segment;
+        state.nextStopIndex = nextStop;
+        state.vehicleDelay = (int) (fixTime - state.serviceDay - geometry.scheduledAt(along));
+        if (along <= geometry.distance[0]) {
+            // Waiting at the terminus: it can leave late, but not before its scheduled departure
+            state.vehicleDelay = Math.max(0, state.vehicleDelay);
+        }
+        return true;
+    }
+
+    private void publishTrip(TripState state, long now, BitSet touchedStops) {
+        TripGeometry geometry = state.geometry;
+        Trip trip = geometry.trip;
+        Route route = GTFSDataManager.getInstance().getRouteOf(trip);
+        LocalDateTime predictionTime = LocalDateTime.now();
+
+        boolean hasVehicle = state.vehicleAlong >= 0;
+        int delay = hasVehicle ? state.vehicleDelay : 0;
+        boolean fromVehicle = hasVehicle;
+        boolean fromExplicit = false;
+
+        for (int i = state.nextStopIndex; i < geometry.size(); i++) {
+            boolean explicitHere = state.explicitDelay[i] != NO_DELAY;
+            if (explicitHere) {
+                delay = state.explicitDelay[i];
+                fromExplicit = true;
+            }
+            if (!fromVehicle && !fromExplicit) {
+                continue; // No realtime information yet for this part of the trip
+            }
+
+            long scheduled = state.serviceDay + geometry.scheduled[i];
+            if (!hasVehicle && scheduled + delay < now - PASSED_GRACE_SECONDS) {
+                continue; // Without a position, stops predicted in the past are assumed served
+            }
+            long predicted = Math.max(now, scheduled + delay);
+            if (predicted - now > BOARD_HORIZON_SECONDS) {
+                break;
+            }
+
+            Stop stop = geometry.stops[i];
+
+            ArrivalPrediction prediction = new ArrivalPrediction();
+            prediction.setStop(stop);
+            prediction.setStopId(stop.getStopId());
+            prediction.setRoute(route);
+            prediction.setRouteId(trip.getRouteId());
+            prediction.setTripId(state.tripId);
+            prediction.setHeadsign(trip.getTripHeadsign());
+            prediction.setVehicleId(state.vehicleId);
+            prediction.setStopSequence(geometry.stopSequences[i]);
+            prediction.setScheduledArrival(toLocalDateTime(scheduled));
+            prediction.setPredictedArrival(toLocalDateTime(predicted));
+            prediction.setArrivalTime(predicted);
+            prediction.setDelay(delay);
+            prediction.setDelayMinutes(delay / 60);
+            prediction.setPredictionTime(predictionTime);
+            prediction.setRealtime(true);
+            prediction.setConfidence(confidenceFor(explicitHere, fromExplicit, now - state.lastUpdate));
+
+            int stopKey = geometry.stopKeys[i];
+            state.published[i] = prediction;
+            boardFor(stopKey).put(state.tripKey, prediction);
+            touchedStops.set(stopKey);
+        }
+    }
+
+    private void unpublish(TripState state, BitSet touchedStops) {
+        AtomicReferenceArray<StopBoard> published = boards;
+        for (int i = 0; i < state.published.length; i++) {
+            if (state.published[i] == null) {
+                continue;
+            }
+            int stopKey = state.geometry.stopKeys[i];
+            StopBoard board = stopKey < published.length() ? published.get(stopKey) : null;
+            if (board != null && board.remove(state.tripKey)) {
+                touchedStops.set(stopKey);
+            }
+            state.published[i] = null;
+        }
+    }
+
+    /**
+     * Board of a stop, created (and the board array grown) on its first prediction
+     */
+    private StopBoard boardFor(int stopKey) {
+        AtomicReferenceArray<StopBoard> published = boards;
+        if (stopKey >= published.length()) {
+            AtomicReferenceArray<StopBoard> grown =
+                new AtomicReferenceArray<>(Math.max(stopKey + 1, published.length() * 2));
+            for (int key = 0; key < published.length(); key++) {
+                grown.set(key, published.get(key));
+            }
+            boards = grown;
+            published = grown;
+        }
+        StopBoard board = published.get(stopKey);
+        if (board == null) {
+            board = new StopBoard();
+            published.set(stopKey, board);
+            boardCount++;
+        }
+        return board;
+    }
+
+    private double confidenceFor(boolean explicitHere, boolean fromExplicit, long ageSeconds) {
+        double confidence = explicitHere ? 0.95 : fromExplicit ? 0.9 : 0.85;
+        if (ageSeconds > 120) {
+            confidence -= 0.1;
+        }
+        return confidence;
+    }
+
+    // ===== Static geometry =====
+
+    private TripGeometry geometryFor(int tripKey, String tripId) {
+        if (tripKey != SymbolTable.UNKNOWN) {
+            synchronized (geometryByTrip) {
+                TripGeometry cached = geometryByTrip.get(tripKey);
+                if (cached != null) {
+                    return cached;
+                }
+            }
+        }
+
+        KeySpace keys = this.keys;
+        GTFSDataManager data = GTFSDataManager.getInstance();
+        Trip trip = keys.isPrimary(SymbolTable.Kind.TRIP, tripKey) ? data.getTrip(tripKey) : data.getTripById(tripId);
+        if (trip == null) {
+            return null;
+        }
+        List<StopTime> stopTimes = data.getStopTimesForTrip(trip.getTripId());
+        if (stopTimes.size() < 2) {
+            return null;
+        }
+
+        int n = stopTimes.size();
+        Stop[] stops = new Stop[n];
+        int[] stopKeys = new int[n];
+        int[] sequences = new int[n];
+        int[] scheduled = new int[n];
+        double[] lat = new double[n];
+        double[] lon = new double[n];
+
+        for (int i = 0; i < n; i++) {
+            StopTime stopTime = stopTimes.get(i);
+            Stop stop = data.getStopOf(stopTime);
+            if (stop == null) {
+                return null;
+            }
+            stops[i] = stop;
+            int stopKey = keys.ofSymbol(SymbolTable.Kind.STOP, stopTime.getStopSymbol());
+            stopKeys[i] = stopKey != SymbolTable.UNKNOWN ? stopKey : keys.intern(SymbolTable.Kind.STOP, stop.getStopId());
+            sequences[i] = stopTime.getStopSequence();
+            String time = stopTime.getArrivalTime() != null ? stopTime.getArrivalTime() : stopTime.getDepartureTime();
+            scheduled[i] = parseGtfsTime(time);
+            lat[i] = stop.getStopLat();
+            lon[i] = stop.getStopLon();
+        }
+        if (!fillMissingTimes(scheduled)) {
+            return null;
+        }
+
+        Polyline path = trip.getShapeId() != null ? polylineForShape(keys, trip) : null;
+        if (path == null) {
+            path = new Polyline(lat, lon); // No shape: follow the stop sequence
+        }
+
+        // Project the stops in order so that loops and parallel carriageways stay monotonic
+        double[] distance = new double[n];
+        int segment = 0;
+        for (int i = 0; i < n; i++) {
+            Projection projection = path.project(lat[i], lon[i], segment, path.segments());
+            distance[i] = i > 0 ? Math.max(distance[i - 1], projection.along) : projection.along;
+            segment = projection.segment;
+        }
+
+        int key = tripKey != SymbolTable.UNKNOWN ? tripKey : keys.intern(SymbolTable.Kind.TRIP, trip.getTripId());
+        TripGeometry geometry = new TripGeometry(key, trip, stops, stopKeys, sequences, scheduled, distance, path);
+        synchronized (geometryByTrip) {
+            geometryByTrip.put(key, geometry);
+        }
+        return geometry;
+    }
+
+    private Polyline polylineForShape(KeySpace keys, Trip trip) {
+        int shapeKey = keys.ofSymbol(SymbolTable.Kind.SHAPE, trip.getShapeSymbol());
+        if (shapeKey == SymbolTable.UNKNOWN) {
+            shapeKey = keys.intern(SymbolTable.Kind.SHAPE, trip.getShapeId());
+        }
+        synchronized (polylineByShape) {
+            Polyline cached = polylineByShape.get(shapeKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        List<Shape> points = GTFSDataManager.getInstance().getShapePoints(trip.getShapeId());
+        if (points.size() < 2) {
+            return null;
+        }
+
+        double[] lat = new double[points.size()];
+        double[] lon = new double[points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            lat[i] = points.get(i).getShapePtLat();
+            lon[i] = points.get(i).getShapePtLon();
+        }
+
+        Polyline polyline = new Polyline(lat, lon);
+        synchronized (polylineByShape) {
+            polylineByShape.put(shapeKey, polyline);
+        }
+        return polyline;
+    }
+
+    /**
+     * Interpolate stops without a scheduled time (non-timepoints); false if the trip has no times at all
+     */
+    private static boolean fillMissingTimes(int[] scheduled) {
+        int previous = -1;
+        for (int i = 0; i < scheduled.length; i++) {
+            if (scheduled[i] < 0) {
+                continue;
+            }
+            if (previous >= 0 && i - previous > 1) {
+                for (int j = previous + 1; j < i; j++) {
+                    scheduled[j] = scheduled[previous] + (scheduled[i] - scheduled[previous]) * (j - previous) / (i - previous);
+                }
+            }
+            previous = i;
+        }
+        if (previous < 0) {
+            return false;
+        }
+        for (int i = 0; i < scheduled.length && scheduled[i] < 0; i++) {
+            scheduled[i] = scheduled[previous];
+        }
+        for (int i = scheduled.length - 1; i >= 0 && scheduled[i] < 0; i--) {
+            scheduled[i] = scheduled[previous];
+        }
+        return true;
+    }
+
+    /**
+     * Parse a GTFS HH:MM:SS time (hours may exceed 23) into seconds after service-day midnight
+     */
+    static int parseGtfsTime(String time) {
+        if (time == null || time.isEmpty()) {
+            return -1;
+        }
+        try {
+            String[] parts = time.trim().split(":");
+            return Integer.parseInt(parts[0]) * 3600 + Integer.parseInt(parts[1]) * 60 + Integer.parseInt(parts[2]);
+        } catch (RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Pick the service day (today or yesterday, for trips running past midnight) whose run brackets now
+     */
+    private long resolveServiceDay(TripGeometry geometry, long now) {
+        LocalDate today = Instant.ofEpochSecond(now).atZone(zone).toLocalDate();
+        long todayStart = today.atStartOfDay(zone).toEpochSecond();
+        long yesterdayStart = today.minusDays(1).atStartOfDay(zone).toEpochSecond();
+
+        long first = geometry.scheduled[0] - STALE_STATE_SECONDS;
+        long last = geometry.scheduled[geometry.size() - 1] + STALE_STATE_SECONDS;
+        boolean runningFromYesterday = now >= yesterdayStart + first && now <= yesterdayStart + last;
+        boolean startedToday = now >= todayStart + first;
+        return runningFromYesterday && !startedToday ? yesterdayStart : todayStart;
+    }
+
+    private LocalDateTime toLocalDateTime(long epochSeconds) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSeconds), zone);
+    }
+
+    private static long nowEpochSeconds() {
+        return System.currentTimeMillis() / 1000;
+    }
+
+    // ===== Helper Types =====
+
+    /**
+     * Callback for changes to the published arrival boards
+     */
+    public interface BoardListener {
+        void onBoardsChanged(Set<String> stopIds);
+
+        default void onStaticDataReloaded() {
+        }
+    }
+
+    /**
+     * Scheduled stop pattern of a trip with each stop's distance along the trip's path
+     */
+    private static class TripGeometry {
+        final int tripKey;
+        final Trip trip;
+        final Stop[] stops;
+        final int[] stopKeys;
+        final int[] stopSequences;
+        final int[] scheduled;     // seconds after service-day midnight
+        final double[] distance;   // meters along the path
+        final Polyline path;
+
+        TripGeometry(int tripKey, Trip trip, Stop[] stops, int[] stopKeys, int[] stopSequences, int[] scheduled,
+                     double[] distance, Polyline path) {
+            this.tripKey = tripKey;
+            this.trip = trip;
+            this.stops = stops;
+            this.stopKeys = stopKeys;
+            this.stopSequences = stopSequences;
+            this.scheduled = scheduled;
+            this.distance = distance;
+            this.path = path;
+        }
+
+        int size() {
+            return stops.length;
+        }
+
+        /**
+         * Estimated bytes of the arrays (stops and the path are shared)
+         */
+        long footprint() {
+            return 96 + stops.length * 28L;
+        }
+
+        /**
+         * Stop of a stop time update by stop_sequence, -1 if the trip has no such sequence
+         */
+        int indexOfSequence(int stopSequence) {
+            if (stopSequence <= 0) {
+                return -1;
+            }
+            int index = Arrays.binarySearch(stopSequences, stopSequence);
+            return index >= 0 ? index : -1;
+        }
+
+        /**
+         * Stop of a stop time update by stop key, from the vehicle's progress onwards first
+         */
+        int indexOfStop(int stopKey, int fromIndex) {
+            if (stopKey == SymbolTable.UNKNOWN) {
+                return -1;
+            }
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = pass == 0 ? fromIndex : 0; i < stopKeys.length; i++) {
+                    if (stopKeys[i] == stopKey) {
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Scheduled time at a distance along the path, interpolated between the surrounding stops
+         */
+        double scheduledAt(double along) {
+            if (along <= distance[0]) {
+                return scheduled[0];
+            }
+            for (int i = 1; i < distance.length; i++) {
+                if (along <= distance[i]) {
+                    double span = distance[i] - distance[i - 1];
+                    double fraction = span > 0 ? (along - distance[i - 1]) / span : 1.0;
+                    return scheduled[i - 1] + fraction * (scheduled[i] - scheduled[i - 1]);
+                }
+            }
+            return scheduled[scheduled.length - 1];
+        }
+    }
+
+    /**
+     * Path in a local equirectangular plane (meters) with cumulative distances
+     */
+    private static class Polyline {
+        private static final double METERS_PER_DEGREE = 111_320.0;
+
+        final double cosLat;
+        final double[] x;
+        final double[] y;
+        final double[] cumulative;
+
+        Polyline(double[] lat, double[] lon) {
+            this.cosLat = Math.cos(Math.toRadians(lat[0]));
+            this.x = new double[lat.length];
+            this.y = new double[lat.length];
+            this.cumulative = new double[lat.length];
+            for (int i = 0; i < lat.length; i++) {
+                x[i] = lon[i] * METERS_PER_DEGREE * cosLat;
+                y[i] = lat[i] * METERS_PER_DEGREE;
+                if (i > 0) {
+                    cumulative[i] = cumulative[i - 1] + Math.hypot(x[i] - x[i - 1], y[i] - y[i - 1]);
+                }
+            }
+        }
+
+        int segments() {
+            return x.length - 1;
+        }
+
+        long footprint() {
+            return 64 + x.length * 24L;
+        }
+
+        /**
+         * Closest point on segments [from, to) to the given coordinate
+         */
+        Projection project(double lat, double lon, int from, int to) {
+            double px = lon * METERS_PER_DEGREE * cosLat;
+            double py = lat * METERS_PER_DEGREE;
+            int last = Math.min(to, segments());
+
+            Projection best = new Projection();
+            best.offset = Double.MAX_VALUE;
+            for (int i = Math.max(0, from); i < last; i++) {
+                double dx = x[i + 1] - x[i];
+                double dy = y[i + 1] - y[i];
+                double lengthSquared = dx * dx + dy * dy;
+                double t = lengthSquared > 0 ? ((px - x[i]) * dx + (py - y[i]) * dy) / lengthSquared : 0;
+                t = Math.max(0, Math.min(1, t));
+                double offset = Math.hypot(px - (x[i] + t * dx), py - (y[i] + t * dy));
+                if (offset < best.offset) {
+                    best.offset = offset;
+                    best.segment = i;
+                    best.along = cumulative[i] + t * (cumulative[i + 1] - cumulative[i]);
+                }
+            }
+            return best;
+        }
+    }
+
+    private static class Projection {
+        int segment;
+        double along;
+        double offset;
+    }
+
+    private static class TripState {
+        final int tripKey;
+        final String tripId;
+        final TripGeometry geometry;
+        final long serviceDay;          // epoch seconds of the service day's midnight
+        final int[] explicitDelay;      // TripUpdate delay per stop, NO_DELAY if absent
+        final ArrivalPrediction[] published; // prediction on the boards per stop, null if none
+
+        String vehicleId;
+        double vehicleAlong = -1;
+        int segmentHint;
+        int nextStopIndex;
+        int vehicleDelay;
+        long lastFix;
+        long lastUpdate;
+
+        TripState(int tripKey, String tripId, TripGeometry geometry, long serviceDay) {
+            this.tripKey = tripKey;
+            this.tripId = tripId;
+            this.geometry = geometry;
+            this.serviceDay = serviceDay;
+            this.explicitDelay = new int[geometry.size()];
+            this.published = new ArrivalPrediction[geometry.size()];
+            Arrays.fill(explicitDelay, NO_DELAY);
+        }
+    }
+
+    /**
+     * Arrivals at one stop by trip key; a stop has a few dozen trips on its board at most, so
+     * they are kept in parallel arrays and found by a linear scan
+     */
+    private static class StopBoard {
+        private int[] tripKeys = new int[4];
+        private ArrivalPrediction[] predictions = new ArrivalPrediction[4];
+        private int size;
+        volatile List<ArrivalPrediction> snapshot = Collections.emptyList();
+
+        void put(int tripKey, ArrivalPrediction prediction) {
+            for (int i = 0; i < size; i++) {
+                if (tripKeys[i] == tripKey) {
+                    predictions[i] = prediction;
+                    return;
+                }
+            }
+            if (size == tripKeys.length) {
+                tripKeys = Arrays.copyOf(tripKeys, size * 2);
+                predictions = Arrays.copyOf(predictions, size * 2);
+            }
+            tripKeys[size] = tripKey;
+            predictions[size++] = prediction;
+        }
+
+        boolean remove(int tripKey) {
+            for (int i = 0; i < size; i++) {
+                if (tripKeys[i] == tripKey) {
+                    size--;
+                    tripKeys[i] = tripKeys[size];
+                    predictions[i] = predictions[size];
+                    predictions[size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void rebuildSnapshot() {
+            List<ArrivalPrediction> sorted = new ArrayList<>(Arrays.asList(predictions).subList(0, size));
+            sorted.sort(Comparator.comparingLong(ArrivalPrediction::getArrivalTime));
+            snapshot = Collections.unmodifiableList(sorted);
+        }
+    }
+
+    /**
+     * Dense int keys of the trips, stops and shapes the engine tracks: the symbols of the
+     * primary dataset as they are, ids of the extra feeds (no symbols) numbered after them.
+     * One key space per static dataset, replaced with every keyed structure when it is reloaded.
+     */
+    private static final class KeySpace {
+        final SymbolTable primary;
+        private final int[] primarySizes;
+        private final SymbolTable feeds = new SymbolTable(); // guarded by itself
+
+        KeySpace(SymbolTable primary) {
+            this.primary = primary;
+            this.primarySizes = primary.sizes();
+        }
+
+        boolean isPrimary(SymbolTable.Kind kind, int key) {
+            return key >= 0 && key < primarySizes[kind.ordinal()];
+        }
+
+        /**
+         * Key of a symbol of the primary dataset (symbols are append-only, so one bound against an
+         * earlier load is still valid), UNKNOWN if it is not one
+         */
+        int ofSymbol(SymbolTable.Kind kind, int symbol) {
+            return isPrimary(kind, symbol) ? symbol : SymbolTable.UNKNOWN;
+        }
+
+        /**
+         * Key of an id, UNKNOWN if it is neither in the primary dataset nor seen in an extra feed
+         */
+        int find(SymbolTable.Kind kind, String id) {
+            int key = ofSymbol(kind, primary.id(kind, id));
+            if (key != SymbolTable.UNKNOWN || id == null) {
+                return key;
+            }
+            synchronized (feeds) {
+                int feedSymbol = feeds.id(kind, id);
+                return feedSymbol != SymbolTable.UNKNOWN ? primarySizes[kind.ordinal()] + feedSymbol : SymbolTable.UNKNOWN;
+            }
+        }
+
+        /**
+         * Key of an id, numbering it if it is new (callers check that the entity exists first)
+         */
+        int intern(SymbolTable.Kind kind, String id) {
+            int key = find(kind, id);
+            if (key != SymbolTable.UNKNOWN || id == null) {
+                return key;
+            }
+            synchronized (feeds) {
+                return primarySizes[kind.ordinal()] + feeds.intern(kind, id);
+            }
+        }
+
+        String name(SymbolTable.Kind kind, int key) {
+            if (isPrimary(kind, key)) {
+                return primary.name(kind, key);
+            }
+            synchronized (feeds) {
+                return feeds.name(kind, key - primarySizes[kind.ordinal()]);
+            }
+        }
+
+        /**
+         * Whether a key belongs to an extra feed whose ids start with the given prefix
+         */
+        boolean isFeedKey(SymbolTable.Kind kind, int key, String prefix) {
+            if (isPrimary(kind, key)) {
+                return false;
+            }
+            String id = name(kind, key);
+            return id != null && id.startsWith(prefix);
+        }
+    }
+
+    /**
+     * Engine size, cycle latency and realized accuracy (predictions scored when a vehicle passes the stop)
+     */
+    public static class EngineStats {
+        public int trackedTrips;
+        public int boardStops;
+        public long cycles;
+        public long lastCycleMs;
+        public double averageCycleMs;
+        public long accuracySamples;
+        public double meanAbsoluteErrorSeconds;
+        public long unknownTrips;
+        public long offRouteFixes;
+
+        @Override
+        public String toString() {
+            return String.format("Predictions: %d trips on %d stops, cycle %dms (avg %.1fms), " +
+                    "MAE %.0fs over %d arrivals, %d unknown trips, %d off-route fixes",
+                trackedTrips, boardStops, lastCycleMs, averageCycleMs,
+                meanAbsoluteErrorSeconds, accuracySamples, unknownTrips, offRouteFixes);
+        }
+    }
+}
@@ -2,7 +2,6 @@ package com.rometransit.service.transit;
 
 import com.rometransit.data.repository.StopRepository;
 import com.rometransit.data.repository.RouteRepository;
-import com.rometransit.data.repository.TripRepository;
 import com.rometransit.data.repository.VehicleRepository;
 import com.rometransit.model.dto.ArrivalPrediction;
 import com.rometransit.model.entity.Stop;
@@ -11,8 +10,10 @@ import com.rometransit.model.entity.Trip;
 import com.rometransit.model.entity.Vehicle;
 import com.rometransit.model.entity.StopTime;
 import com.rometransit.service.gtfs.GTFSDataManager;
-import com.rometransit.util.math.GeoUtils;
+import com.rometransit.service.memory.MemoryGovernor;
 import com.rometransit.util.math.TimeUtils;
+import com.rometransit.util.metrics.LatencyHistogram;
+import com.rometransit.util.metrics.MetricsRegistry;
 
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -22,18 +23,40 @@ import java.util.stream.Collectors;
 public class ArrivalPredictionService {
     private static ArrivalPredictionService instance;
 
+    private static final LatencyHistogram BOARD_LATENCY =
+        MetricsRegistry.getInstance().histogram("prediction.board");
+    private static final LatencyHistogram BOARD_ASSEMBLE_LATENCY =
+        MetricsRegistry.getInstance().histogram("prediction.board.assemble");
+
     private final StopRepository stopRepository;
     private final RouteRepository routeRepository;
-    private final TripRepository tripRepository;
     private final VehicleRepository vehicleRepository;
     private final GTFSDataManager gtfsDataManager;
+    private final ArrivalPredictionEngine predictionEngine;
+    private final ArrivalBoardCache boardCache = new ArrivalBoardCache();
+    private final Map<String, List<Route>> routesByStop = new java.util.concurrent.ConcurrentHashMap<>();
 
     private ArrivalPredictionService() {
         this.stopRepository = new StopRepository();
         this.routeRepository = new RouteRepository();
-        this.tripRepository = new TripRepository();
         this.vehicleRepository = new VehicleRepository();
         this.gtfsDataManager = GTFSDataManager.getInstance();
+        this.predictionEngine = ArrivalPredictionEngine.getInstance();
+
+        // Drop cached boards exactly for the stops a realtime cycle touched
+        this.predictionEngine.addBoardListener(new ArrivalPredictionEngine.BoardListener() {
+            @Override
+            public void onBoardsChanged(Set<String> stopIds) {
+                boardCache.invalidate(stopIds);
+            }
+
+            @Override
+            public void onStaticDataReloaded() {
+                boardCache.invalidateAll();
+                routesByStop.clear();
+            }
+        });
+        MemoryGovernor.getInstance().register("arrival_boards", "prediction-boards", boardCache);
     }
 
     public static synchronized ArrivalPredictionService getInstance() {
@@ -43,93 +66,134 @@ public class ArrivalPredictionService {
         return instance;
     }
 
+    /**
+     * Arrivals at a stop: realtime predictions from the engine's precomputed board, plus the
+     * static schedule for trips that have no realtime information. Served from the board cache.
+     */
     public List<ArrivalPrediction> getPredictionsForStop(String stopId) {
-        Optional<Stop> stopOpt = stopRepository.findById(stopId);
-        if (!stopOpt.isPresent()) {
+        long start = System.nanoTime();
+        List<ArrivalPrediction> board = boardCache.get(stopId, this::assembleBoard);
+        BOARD_LATENCY.recordSince(start);
+        return board;
+    }
+
+    private List<ArrivalPrediction> assembleBoard(String stopId) {
+        Stop stop = findStop(stopId);
+        if (stop == null) {
             return new ArrayList<>();
         }
 
-        Stop stop = stopOpt.get();
-        List<ArrivalPrediction> predictions = new ArrayList<>();
-
-        // Get all routes serving this stop
-        List<Route> routes = getRoutesForStop(stopId);
+        long start = System.nanoTime();
+        List<ArrivalPrediction> realtime = predictionEngine.getBoard(stopId);
+        List<ArrivalPrediction> board = mergeWithSchedule(realtime, createStaticPredictions(stop, tripIdsOf(realtime)));
+        BOARD_ASSEMBLE_LATENCY.recordSince(start);
+        return board;
+    }
 
-        for (Route route : routes) {
-            List<ArrivalPrediction> routePredictions = getPredictionsForStopAndRoute(stop, route);
-            predictions.addAll(routePredictions);
+    /**
+     * Arrivals at all stops within radiusKm of a point, across the primary feed and the extra
+     * feed shards, ordered by expected arrival (realtime if known, otherwise scheduled)
+     */
+    public List<ArrivalPrediction> getPredictionsNear(double latitude, double longitude, double radiusKm, int limit) {
+        List<ArrivalPrediction> merged = new ArrayList<>();
+        for (Stop stop : gtfsDataManager.findStopsNearby(latitude, longitude, radiusKm)) {
+            merged.addAll(getPredictionsForStop(stop.getStopId()));
         }
+        merged.sort(Comparator.comparing(ArrivalPredictionService::expectedArrival,
+                                         Comparator.nullsLast(Comparator.naturalOrder())));
+        return merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
 
-        // Sort by predicted arrival time
-        return predictions.stream()
-                .sorted(Comparator.comparing(ArrivalPrediction::getPredictedArrival))
-                .collect(Collectors.toList());
+    private static LocalDateTime expectedArrival(ArrivalPrediction prediction) {
+        return prediction.getPredictedArrival() != null ? prediction.getPredictedArrival() : prediction.getScheduledArrival();
     }
 
     public List<ArrivalPrediction> getPredictionsForStopAndRoute(String stopId, String routeId) {
-        Optional<Stop> stopOpt = stopRepository.findById(stopId);
-        Optional<Route> routeOpt = routeRepository.findById(routeId);
+        Stop stop = findStop(stopId);
+        Route route = gtfsDataManager.getRouteById(routeId);
+        if (route == null) {
+            route = routeRepository.findById(routeId).orElse(null);
+        }
 
-        if (!stopOpt.isPresent() || !routeOpt.isPresent()) {
+        if (stop == null || route == null) {
             return new ArrayList<>();
         }
 
-        return getPredictionsForStopAndRoute(stopOpt.get(), routeOpt.get());
+        return getPredictionsForStopAndRoute(stop, route);
     }
 
     private List<ArrivalPrediction> getPredictionsForStopAndRoute(Stop stop, Route route) {
-        List<ArrivalPrediction> predictions = new ArrayList<>();
+        return getPredictionsForStop(stop.getStopId()).stream()
+                .filter(p -> route.getRouteId().equals(p.getRouteId()))
+                .collect(Collectors.toList());
+    }
 
-        // Get active vehicles for this route
-        List<Vehicle> activeVehicles = vehicleRepository.findActiveVehiclesForRoute(route.getRouteId());
+    /**
+     * Routes serving a stop, ordered by short name (cached until static data is reloaded)
+     */
+    public List<Route> getRoutesForStop(String stopId) {
+        return routesByStop.computeIfAbsent(stopId, this::findRoutesForStop);
+    }
 
-        if (!activeVehicles.isEmpty()) {
-            // Real-time predictions based on vehicle positions
-            for (Vehicle vehicle : activeVehicles) {
-                ArrivalPrediction prediction = createRealtimePrediction(stop, route, vehicle);
-                if (prediction != null) {
-                    predictions.add(prediction);
-                }
+    private List<Route> findRoutesForStop(String stopId) {
+        Set<String> routeIds = new HashSet<>();
+        for (StopTime stopTime : gtfsDataManager.getStopTimesForStop(stopId)) {
+            Trip trip = gtfsDataManager.getTripOf(stopTime);
+            if (trip != null) {
+                routeIds.add(trip.getRouteId());
             }
-        } else {
-            // Static schedule-based predictions
-            predictions.addAll(createStaticPredictions(stop, route));
         }
 
-        return predictions;
+        List<Route> routes = new ArrayList<>();
+        for (String routeId : routeIds) {
+            Route route = gtfsDataManager.getRouteById(routeId);
+            if (route != null) {
+                routes.add(route);
+            }
+        }
+
+        // Numeric short names first in numeric order, then by name
+        routes.sort((a, b) -> {
+            try {
+                int numA = Integer.parseInt(a.getRouteShortName().replaceAll("[^0-9]", ""));
+                int numB = Integer.parseInt(b.getRouteShortName().replaceAll("[^0-9]", ""));
+                return Integer.compare(numA, numB);
+            } catch (Exception e) {
+                return a.getRouteShortName().compareTo(b.getRouteShortName());
+            }
+        });
+        return Collections.unmodifiableList(routes);
     }
 
-    private ArrivalPrediction createRealtimePrediction(Stop stop, Route route, Vehicle vehicle) {
-        if (vehicle.getLatitude() == 0 && vehicle.getLongitude() == 0) {
-            return null;
-        }
+    public ArrivalBoardCache.CacheStats getBoardCacheStats() {
+        return boardCache.getStats();
+    }
 
-        // Calculate distance between vehicle and stop
-        double distanceKm = GeoUtils.calculateDistance(
-                vehicle.getLatitude(), vehicle.getLongitude(),
-                stop.getStopLat(), stop.getStopLon()
-        );
+    private Stop findStop(String stopId) {
+        Stop stop = gtfsDataManager.getStopById(stopId);
+        return stop != null ? stop : stopRepository.findById(stopId).orElse(null);
+    }
 
-        // Estimate arrival time based on distance and average speed
-        double averageSpeedKmh = vehicle.getSpeed() > 0 ? vehicle.getSpeed() * 3.6 : 15.0; // Default 15 km/h
-        double estimatedMinutes = (distanceKm / averageSpeedKmh) * 60;
+    private Set<String> tripIdsOf(List<ArrivalPrediction> predictions) {
+        Set<String> tripIds = new HashSet<>();
+        for (ArrivalPrediction prediction : predictions) {
+            tripIds.add(prediction.getTripId());
+        }
+        return tripIds;
+    }
 
-        LocalDateTime predictedArrival = LocalDateTime.now().plusMinutes((long) estimatedMinutes);
-        
-        ArrivalPrediction prediction = new ArrivalPrediction();
-        prediction.setStop(stop);
-        prediction.setRoute(route);
-        prediction.setTripId(vehicle.getTripId());
-        prediction.setVehicleId(vehicle.getVehicleId());
-        prediction.setPredictedArrival(predictedArrival);
-        prediction.setScheduledArrival(predictedArrival); // Simplified - would use actual schedule
-        prediction.setRealtime(true);
-        prediction.setConfidence(0.8);
-
-        return prediction;
+    private List<ArrivalPrediction> mergeWithSchedule(List<ArrivalPrediction> realtime, List<ArrivalPrediction> scheduled) {
+        List<ArrivalPrediction> merged = new ArrayList<>(realtime.size() + scheduled.size());
+        merged.addAll(realtime);
+        merged.addAll(scheduled);
+        merged.sort(Comparator.comparing(ArrivalPrediction::getPredictedArrival));
+        return merged;
     }
 
-    private List<ArrivalPrediction> createStaticPredictions(Stop stop, Route route) {
+    /**
+     * Scheduled arrivals at a stop, next 10 per route
+     */
+    private List<ArrivalPrediction> createStaticPredictions(Stop stop, Set<String> excludedTrips) {
         List<ArrivalPrediction> predictions = new ArrayList<>();
 
         try {
@@ -144,23 +208,23 @@ public class ArrivalPredictionService {
             String currentTimeStr = String.format("%02d:%02d:%02d",
                 now.getHour(), now.getMinute(), now.getSecond());
 
-            // Filter stop_times for this specific route and upcoming times
+            // Upcoming stop_times, skipping trips already covered by realtime predictions
             List<StopTime> upcomingTimes = stopTimes.stream()
-                .filter(st -> {
-                    // Check if this stop_time belongs to the route we're interested in
-                    Trip trip = gtfsDataManager.getTripById(st.getTripId());
-                    return trip != null && trip.getRouteId().equals(route.getRouteId());
-                })
                 .filter(st -> st.getArrivalTime() != null)
                 .filter(st -> st.getArrivalTime().compareTo(currentTimeStr) > 0)
+                .filter(st -> !excludedTrips.contains(st.getTripId()))
                 .sorted((a, b) -> a.getArrivalTime().compareTo(b.getArrivalTime()))
-                .limit(10) // Next 10 arrivals
                 .collect(Collectors.toList());
 
-            // Convert stop_times to ArrivalPredictions
+            // Convert stop_times to ArrivalPredictions, next 10 arrivals per route
+            Map<String, Integer> perRoute = new HashMap<>();
             for (StopTime stopTime : upcomingTimes) {
-                Trip trip = gtfsDataManager.getTripById(stopTime.getTripId());
+                Trip trip = gtfsDataManager.getTripOf(stopTime);
                 if (trip == null) continue;
+                if (perRoute.merge(trip.getRouteId(), 1, Integer::sum) > 10) continue;
+
+                Route route = gtfsDataManager.getRouteOf(trip);
+                if (route == null) continue;
 
                 // Parse the arrival time (format: HH:MM:SS)
                 String[] timeParts = stopTime.getArrivalTime().split(":");
@@ -184,7 +248,9 @@ public class ArrivalPredictionService {
 
                 ArrivalPrediction prediction = new ArrivalPrediction();
                 prediction.setStop(stop);
+                prediction.setStopId(stop.getStopId());
                 prediction.setRoute(route);
+                prediction.setRouteId(route.getRouteId());
                 prediction.setTripId(trip.getTripId());
                 prediction.setHeadsign(trip.getTripHeadsign());
                 prediction.setScheduledArrival(scheduledArrival);
@@ -203,50 +269,6 @@ public class ArrivalPredictionService {
         return predictions;
     }
 
-    private List<Route> getRoutesForStop(String stopId) {
-        List<Route> routes = new ArrayList<>();
-        Set<String> routeIds = new HashSet<>();
-
-        try {
-            // Get all stop times for this stop
-            List<StopTime> stopTimes = gtfsDataManager.getStopTimesForStop(stopId);
-
-            // Extract unique route IDs from trips
-            for (StopTime stopTime : stopTimes) {
-                Trip trip = gtfsDataManager.getTripById(stopTime.getTripId());
-                if (trip != null) {
-                    routeIds.add(trip.getRouteId());
-                }
-            }
-
-            // Get route objects
-            for (String routeId : routeIds) {
-                Route route = gtfsDataManager.getRouteById(routeId);
-                if (route != null) {
-                    routes.add(route);
-                }
-            }
-
-            // Sort routes by short name
-            routes.sort((a, b) -> {
-                try {
-                    // Try to parse as numbers for proper sorting
-                    int numA = Integer.parseInt(a.getRouteShortName().replaceAll("[^0-9]", ""));
-                    int numB = Integer.parseInt(b.getRouteShortName().replaceAll("[^0-9]", ""));
-                    return Integer.compare(numA, numB);
-                } catch (Exception e) {
-                    return a.getRouteShortName().compareTo(b.getRouteShortName());
-                }
-            });
-
-        } catch (Exception e) {
-            System.err.println("Error getting routes for stop: " + e.getMessage());
-            e.printStackTrace();
-        }
-
-        return routes;
-    }
-
     public List<ArrivalPrediction> getUpcomingArrivals(String stopId, int maxPredictions) {
         return getPredictionsForStop(stopId).stream()
                 .filter(p -> p.getPredictedArrival().isAfter(LocalDateTime.now()))
@@ -1,11 +1,24 @@
 package com.rometransit.ui.component;
 
+import com.rometransit.service.execution.ExecutionManager;
 import com.rometransit.service.map.TileManager;
+import com.rometransit.service.memory.MemoryBudgeted;
+import com.rometransit.service.memory.MemoryGovernor;
+import com.rometransit.ui.map.TilePrefetcher;
+import com.rometransit.ui.map.VehicleAnimationEngine;
+import com.rometransit.ui.waypoint.ScreenHitGrid;
 import com.rometransit.ui.waypoint.Waypoint;
 import com.rometransit.ui.waypoint.WaypointManager;
+import com.rometransit.util.diagnostics.MapFrameEvent;
+import com.rometransit.util.diagnostics.TileLoadEvent;
 import com.rometransit.util.logging.Logger;
+import com.rometransit.util.metrics.Counter;
+import com.rometransit.util.metrics.LatencyHistogram;
+import com.rometransit.util.metrics.MetricsRegistry;
+import javafx.animation.AnimationTimer;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Tooltip;
 import javafx.scene.image.Image;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.input.ScrollEvent;
@@ -16,8 +29,14 @@ import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Native JavaFX map view component with OpenStreetMap tiles support
@@ -57,6 +76,47 @@ public class NativeMapView extends StackPane {
             return size() > MAX_TILE_CACHE_SIZE;
         }
     };
+    // Decoded ARGB tile, as counted by the memory governor
+    private static final long TILE_IMAGE_BYTES = (long) TILE_SIZE * TILE_SIZE * 4;
+
+    // Tile cache under the "tiles" budget of the memory governor; trimmed on the FX thread
+    private final MemoryBudgeted tileCacheBudget = new MemoryBudgeted() {
+        @Override
+        public long getFootprintBytes() {
+            return tileCache.size() * TILE_IMAGE_BYTES;
+        }
+
+        @Override
+        public int getEntryCount() {
+            return tileCache.size();
+        }
+
+        @Override
+        public void trimTo(long maxBytes) {
+            if (javafx.application.Platform.isFxApplicationThread()) {
+                trimTileCache(maxBytes);
+            } else {
+                javafx.application.Platform.runLater(() -> trimTileCache(maxBytes));
+            }
+        }
+    };
+
+    // Tile requests in flight and recent failures (FX thread only), so each missing
+    // tile is requested once instead of on every repaint
+    private static final long TILE_RETRY_MS = 15000;
+    private static final int MAX_PREFETCH_PER_PLAN = 32;
+    private static final int MAX_OVERZOOM_LEVELS = 4;
+    private final Set<String> requestedTiles = new HashSet<>();
+    private final Map<String, int[]> prefetchingTiles = new HashMap<>(); // Requested by the prefetcher, not yet visible
+    private final Map<String, Long> failedTiles = new HashMap<>();
+    private boolean tileRepaintScheduled = false;
+    private TilePrefetcher tilePrefetcher;
+
+    // Frame and tile cache metrics
+    private static final LatencyHistogram FRAME_LATENCY = MetricsRegistry.getInstance().histogram("map.frame");
+    private static final Counter TILE_MEMORY_HITS = MetricsRegistry.getInstance().counter("tile.memory.hit");
+    private static final Counter TILE_MEMORY_MISSES = MetricsRegistry.getInstance().counter("tile.memory.miss");
+    private static final Counter TILE_DISK_HITS = MetricsRegistry.getInstance().counter("tile.view.disk.hit");
 
     // Mouse dragging
     private double lastMouseX;
@@ -72,6 +132,21 @@ public class NativeMapView extends StackPane {
     // Rendering optimization
     private boolean needsRepaint = false;
 
+    // Picking: markers drawn in the last repaint, hover drawn on a separate overlay
+    private static final double PICK_RADIUS_PX = 8;
+    private static final double CLICK_SLOP_PX = 4;
+    private ScreenHitGrid hitGrid;
+    private Canvas hoverCanvas;
+    private Tooltip markerTooltip;
+    private Waypoint hoveredWaypoint;
+    private Consumer<Waypoint> markerClickHandler;
+    private double pressX;
+    private double pressY;
+
+    // Vehicle animation: repaint when the engine publishes a new frame
+    private AnimationTimer vehicleAnimationTimer;
+    private long lastVehicleFrame = -1;
+
     /**
      * Create a new map view with specified dimensions
      */
@@ -87,16 +162,27 @@ public class NativeMapView extends StackPane {
         try {
             this.tileManager = new TileManager();
             this.waypointManager = new WaypointManager();
+            this.tilePrefetcher = new TilePrefetcher(minZoom, maxZoom);
         } catch (Exception e) {
             Logger.log("Error initializing map managers: " + e.getMessage());
         }
+        MemoryGovernor.getInstance().register("tiles", "map-view", tileCacheBudget);
+
+        // Hover overlay: redrawn alone when the hovered marker changes
+        hoverCanvas = new Canvas(width, height);
+        hoverCanvas.setMouseTransparent(true);
+        hitGrid = new ScreenHitGrid(width, height);
+        markerTooltip = new Tooltip();
 
         // Add canvas to pane
-        getChildren().add(canvas);
+        getChildren().addAll(canvas, hoverCanvas);
 
         // Setup mouse handlers
         setupMouseHandlers();
 
+        // Follow animated vehicle frames
+        startVehicleAnimation();
+
         // Initial render
         repaint();
 
@@ -106,6 +192,23 @@ public class NativeMapView extends StackPane {
         Logger.log("NativeMapView initialized: " + width + "x" + height + " @ zoom " + zoom + " (advanced rendering enabled)");
     }
 
+    /**
+     * Repaint on each new vehicle animation frame (frames are computed off the FX thread)
+     */
+    private void startVehicleAnimation() {
+        vehicleAnimationTimer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                long sequence = VehicleAnimationEngine.getInstance().getFrame().sequence;
+                if (sequence != lastVehicleFrame) {
+                    lastVehicleFrame = sequence;
+                    repaint();
+                }
+            }
+        };
+        vehicleAnimationTimer.start();
+    }
+
     /**
      * Setup mouse event handlers for pan and zoom
      */
@@ -121,12 +224,19 @@ public class NativeMapView extends StackPane {
 
         // Scroll - zoom
         canvas.setOnScroll(this::handleScroll);
+
+        // Hover - highlight and tooltip of the marker under the cursor
+        canvas.setOnMouseMoved(this::handleMouseMoved);
+        canvas.setOnMouseExited(e -> setHoveredWaypoint(null, 0, 0));
     }
 
     private void handleMousePressed(MouseEvent event) {
         lastMouseX = event.getX();
         lastMouseY = event.getY();
+        pressX = event.getX();
+        pressY = event.getY();
         isDragging = true;
+        setHoveredWaypoint(null, 0, 0);
     }
 
     private void handleMouseDragged(MouseEvent event) {
@@ -139,6 +249,11 @@ public class NativeMapView extends StackPane {
         lastMouseX = event.getX();
         lastMouseY = event.getY();
 
+        // Pan velocity drives the tile prefetcher
+        if (tilePrefetcher != null) {
+            tilePrefetcher.onPan(deltaX, deltaY, System.nanoTime());
+        }
+
         // Convert pixel delta to map coordinate delta
         // Mouse drag RIGHT (positive deltaX) should move map LEFT (decrease centerLon)
         // Mouse drag DOWN (positive deltaY) should move map UP (decrease centerLat)
@@ -165,6 +280,17 @@ public class NativeMapView extends StackPane {
 
     private void handleMouseReleased(MouseEvent event) {
         isDragging = false;
+        if (tilePrefetcher != null) {
+            tilePrefetcher.onPanEnd();
+        }
+
+        // Press and release in place: click on the marker under the cursor
+        if (Math.abs(event.getX() - pressX) <= CLICK_SLOP_PX && Math.abs(event.getY() - pressY) <= CLICK_SLOP_PX) {
+            Waypoint picked = pickWaypoint(event.getX(), event.getY());
+            if (picked != null && markerClickHandler != null) {
+                markerClickHandler.accept(picked);
+            }
+        }
 
         // Final repaint if needed
         if (needsRepaint) {
@@ -188,6 +314,9 @@ public class NativeMapView extends StackPane {
 
         if (zoom != oldZoom) {
             Logger.log("Zoom changed: " + oldZoom + " -> " + zoom);
+            if (tilePrefetcher != null) {
+                tilePrefetcher.onZoom(oldZoom, zoom);
+            }
             repaint();
             // Preload tiles for adjacent zoom levels for smoother zoom transitions
             preloadAdjacentZoomLevels();
@@ -196,11 +325,60 @@ public class NativeMapView extends StackPane {
         event.consume();
     }
 
+    private void handleMouseMoved(MouseEvent event) {
+        if (isDragging) return;
+        setHoveredWaypoint(pickWaypoint(event.getX(), event.getY()), event.getScreenX(), event.getScreenY());
+    }
+
+    /**
+     * Marker under the given view coordinates, from the hit grid of the last repaint
+     */
+    public Waypoint pickWaypoint(double x, double y) {
+        return hitGrid.nearest(x, y, PICK_RADIUS_PX);
+    }
+
+    /**
+     * Change the hovered marker: only the overlay and the tooltip are updated
+     */
+    private void setHoveredWaypoint(Waypoint waypoint, double screenX, double screenY) {
+        if (waypoint == hoveredWaypoint) return;
+        hoveredWaypoint = waypoint;
+        hitGrid.track(waypoint);
+        drawHover();
+
+        String text = waypoint != null ? waypoint.getTooltipText() : null;
+        if (text == null || text.isEmpty()) {
+            markerTooltip.hide();
+        } else {
+            markerTooltip.setText(text);
+            markerTooltip.show(canvas, screenX + 12, screenY + 12);
+        }
+    }
+
+    /**
+     * Highlight ring around the hovered marker, at its position in the last repaint
+     */
+    private void drawHover() {
+        GraphicsContext hover = hoverCanvas.getGraphicsContext2D();
+        hover.clearRect(0, 0, viewWidth, viewHeight);
+        if (hoveredWaypoint == null || !hitGrid.isTrackedVisible()) return;
+
+        double radius = hitGrid.getTrackedRadius() + 5;
+        double x = hitGrid.getTrackedX();
+        double y = hitGrid.getTrackedY();
+        hover.setStroke(Color.web("#f39c12"));
+        hover.setLineWidth(3);
+        hover.strokeOval(x - radius, y - radius, radius * 2, radius * 2);
+    }
+
     /**
      * Repaint the map view with optimized rendering
      * Direct rendering to canvas for better memory efficiency
      */
     public void repaint() {
+        long frameStart = System.nanoTime();
+        MapFrameEvent frameEvent = new MapFrameEvent();
+        frameEvent.begin();
         try {
             // STEP 1: Clear canvas with background color
             gc.setFill(Color.web("#E0E0E0"));
@@ -215,15 +393,26 @@ public class NativeMapView extends StackPane {
             // STEP 4: Draw waypoints on canvas (same layer as tiles)
             drawWaypoints(gc);
 
+            // STEP 5: Tell the animation engine which area is visible
+            // (a quarter screen margin, so vehicles entering the view are already animated)
+            double[] animationBounds = visibleBounds(0.75);
+            VehicleAnimationEngine.getInstance().setViewport(
+                animationBounds[0], animationBounds[1], animationBounds[2], animationBounds[3]);
+
         } catch (OutOfMemoryError e) {
-            // Handle OOM gracefully
-            Logger.log("Out of memory during repaint - clearing cache");
-            clearTileCache();
-            System.gc(); // Suggest garbage collection
+            // Handle OOM gracefully: the governor empties the caches, the next frame reloads
+            Logger.log("Out of memory during repaint - releasing caches");
+            MemoryGovernor.getInstance().onOutOfMemory("map repaint");
         } catch (Exception e) {
             Logger.log("Error repainting map: " + e.getMessage());
             e.printStackTrace();
         }
+        FRAME_LATENCY.recordSince(frameStart);
+        if (frameEvent.shouldCommit()) {
+            frameEvent.zoom = zoom;
+            frameEvent.markers = hitGrid.size();
+            frameEvent.commit();
+        }
     }
 
     /**
@@ -272,35 +461,170 @@ public class NativeMapView extends StackPane {
                     continue;
                 }
 
-                // Load and draw tile (try memory cache first, then disk)
-                Image tile = loadTile(zoom, tileX, tileY);
+                // Load and draw tile (try memory cache first, then disk unless already requested)
+                String tileKey = zoom + "/" + tileX + "/" + tileY;
+                Image tile = tileCache.get(tileKey);
+                if (tile != null) {
+                    TILE_MEMORY_HITS.increment();
+                } else {
+                    TILE_MEMORY_MISSES.increment();
+                    if (!requestedTiles.contains(tileKey) && !failedTiles.containsKey(tileKey)) {
+                        tile = loadTile(zoom, tileX, tileY);
+                    }
+                }
                 if (tile != null && !tile.isError()) {
                     g.drawImage(tile, screenX, screenY, TILE_SIZE * scale, TILE_SIZE * scale);
                 } else {
-                    // Draw placeholder for missing tile with loading indicator
-                    g.setFill(Color.web("#F5F5F5"));
-                    g.fillRect(screenX, screenY, TILE_SIZE * scale, TILE_SIZE * scale);
-                    g.setStroke(Color.web("#CCCCCC"));
-                    g.setLineWidth(1);
-                    g.strokeRect(screenX, screenY, TILE_SIZE * scale, TILE_SIZE * scale);
-
-                    // Trigger async tile load from TileManager (high priority for visible tiles)
-                    if (tileManager != null) {
-                        int finalTileX = tileX;
-                        int finalTileY = tileY;
-                        tileManager.getTile(zoom, tileX, tileY, 100).thenAccept(mapTile -> {
-                            // When tile loads, add to cache and trigger repaint
-                            if (mapTile != null && mapTile.isLoaded()) {
-                                String key = zoom + "/" + finalTileX + "/" + finalTileY;
-                                tileCache.put(key, mapTile.getImage());
-                                // Schedule repaint on JavaFX thread
-                                javafx.application.Platform.runLater(this::repaint);
-                            }
-                        });
+                    // Scaled parent/child tile while loading, grey placeholder if none is cached
+                    if (!drawFallbackTile(g, tileX, tileY, screenX, screenY, TILE_SIZE * scale)) {
+                        g.setFill(Color.web("#F5F5F5"));
+                        g.fillRect(screenX, screenY, TILE_SIZE * scale, TILE_SIZE * scale);
+                        g.setStroke(Color.web("#CCCCCC"));
+                        g.setLineWidth(1);
+                        g.strokeRect(screenX, screenY, TILE_SIZE * scale, TILE_SIZE * scale);
+                    }
+
+                    // Async tile load from TileManager (high priority for visible tiles)
+                    requestTile(zoom, tileX, tileY, 100, false);
+                }
+            }
+        }
+
+        // Low priority requests for what the view is about to show
+        prefetchTiles(centerTileX, centerTileY);
+    }
+
+    /**
+     * Draw a missing tile from cached tiles of other zoom levels
+     * Parent tiles (up to 4 levels up) are cropped and scaled up; otherwise the four
+     * children are scaled down. Memory cache only, no disk access during repaint.
+     * @return true if something was drawn
+     */
+    private boolean drawFallbackTile(GraphicsContext g, int tileX, int tileY,
+                                     double screenX, double screenY, double size) {
+        for (int up = 1; up <= MAX_OVERZOOM_LEVELS && zoom - up >= 0; up++) {
+            Image parent = tileCache.get((zoom - up) + "/" + (tileX >> up) + "/" + (tileY >> up));
+            if (parent != null && !parent.isError()) {
+                double part = parent.getWidth() / (1 << up);
+                double sourceX = (tileX & ((1 << up) - 1)) * part;
+                double sourceY = (tileY & ((1 << up) - 1)) * part;
+                g.drawImage(parent, sourceX, sourceY, part, part, screenX, screenY, size, size);
+                return true;
+            }
+        }
+
+        if (zoom + 1 > maxZoom) return false;
+        Image[] children = new Image[4];
+        boolean found = false;
+        for (int i = 0; i < 4; i++) {
+            Image child = tileCache.get((zoom + 1) + "/" + (tileX * 2 + (i & 1)) + "/" + (tileY * 2 + (i >> 1)));
+            if (child != null && !child.isError()) {
+                children[i] = child;
+                found = true;
+            }
+        }
+        if (!found) return false;
+
+        g.setFill(Color.web("#F5F5F5"));
+        g.fillRect(screenX, screenY, size, size);
+        double half = size / 2;
+        for (int i = 0; i < 4; i++) {
+            if (children[i] != null) {
+                g.drawImage(children[i], screenX + (i & 1) * half, screenY + (i >> 1) * half, half, half);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Request a tile from the TileManager once; the result lands in the memory cache on the FX thread
+     * @param prefetch true for tiles planned by the prefetcher, which may be dropped while queued
+     */
+    private void requestTile(int z, int x, int y, int priority, boolean prefetch) {
+        if (tileManager == null) return;
+
+        String key = z + "/" + x + "/" + y;
+        if (tileCache.containsKey(key)) return;
+        if (requestedTiles.contains(key)) {
+            // Lookahead tile now on screen: its queued download moves up to the visible priority
+            if (!prefetch && prefetchingTiles.remove(key) != null) {
+                tileManager.getTile(z, x, y, priority);
+            }
+            return;
+        }
+
+        Long failedAt = failedTiles.get(key);
+        if (failedAt != null) {
+            if (System.currentTimeMillis() - failedAt < TILE_RETRY_MS) return;
+            failedTiles.remove(key);
+        }
+
+        requestedTiles.add(key);
+        if (prefetch) {
+            prefetchingTiles.put(key, new int[]{z, x, y});
+        }
+        tileManager.getTile(z, x, y, priority).whenComplete((mapTile, error) ->
+            javafx.application.Platform.runLater(() -> {
+                requestedTiles.remove(key);
+                prefetchingTiles.remove(key);
+                if (mapTile != null && mapTile.isLoaded()) {
+                    tileCache.put(key, mapTile.getImage());
+                    // Repaint if the tile is drawn directly or as fallback at the current zoom
+                    if (z <= zoom + 1 && z >= zoom - MAX_OVERZOOM_LEVELS) {
+                        scheduleTileRepaint();
                     }
+                } else if (mapTile == null || mapTile.isFailed() || error != null) {
+                    failedTiles.put(key, System.currentTimeMillis());
                 }
+                // Otherwise the queued prefetch was dropped: requested again when needed
+            }));
+    }
+
+    /**
+     * One repaint for a burst of tiles arriving together
+     */
+    private void scheduleTileRepaint() {
+        if (tileRepaintScheduled) return;
+        tileRepaintScheduled = true;
+        javafx.application.Platform.runLater(() -> {
+            tileRepaintScheduled = false;
+            repaint();
+        });
+    }
+
+    /**
+     * Queue the tiles planned by the prefetcher (pan lookahead, ring, adjacent zoom levels)
+     */
+    private void prefetchTiles(double centerTileX, double centerTileY) {
+        if (tilePrefetcher == null || tileManager == null) return;
+
+        List<int[]> planned = tilePrefetcher.plan(centerTileX, centerTileY, zoom,
+                                                  viewWidth, viewHeight, System.nanoTime());
+        if (planned.isEmpty()) return; // Throttled
+
+        // Prefetches of earlier plans the view has moved away from leave the download queue
+        Set<String> plannedKeys = new HashSet<>();
+        for (int[] tile : planned) {
+            plannedKeys.add(tile[0] + "/" + tile[1] + "/" + tile[2]);
+        }
+        Iterator<Map.Entry<String, int[]>> stale = prefetchingTiles.entrySet().iterator();
+        while (stale.hasNext()) {
+            Map.Entry<String, int[]> entry = stale.next();
+            int[] tile = entry.getValue();
+            if (!plannedKeys.contains(entry.getKey()) && tileManager.cancelQueued(tile[0], tile[1], tile[2])) {
+                stale.remove();
+                requestedTiles.remove(entry.getKey());
             }
         }
+
+        int queued = 0;
+        for (int[] tile : planned) {
+            if (queued >= MAX_PREFETCH_PER_PLAN) break;
+            String key = tile[0] + "/" + tile[1] + "/" + tile[2];
+            if (requestedTiles.contains(key) || tileCache.containsKey(key)) continue;
+            requestTile(tile[0], tile[1], tile[2], tile[3], true);
+            queued++;
+        }
     }
 
     /**
@@ -314,9 +638,22 @@ public class NativeMapView extends StackPane {
     private void drawWaypoints(GraphicsContext g) {
         if (waypointManager == null) return;
 
+        // Clustered layers only query what is on screen (small margin for bubbles on the edge)
+        double[] bounds = visibleBounds(0.55);
+        waypointManager.setViewport(bounds[0], bounds[1], bounds[2], bounds[3]);
+
         // Render all waypoints on the same canvas as tiles
         // This ensures smooth integrated rendering during drag operations
-        waypointManager.renderWaypoints(g, zoom, this::latLonToScreen);
+        waypointManager.renderWaypoints(g, zoom, this::latLonToScreen, hitGrid);
+
+        // The hovered marker may have moved (animation, pan) or left the view
+        if (hoveredWaypoint != null) {
+            if (hitGrid.isTrackedVisible()) {
+                drawHover();
+            } else {
+                setHoveredWaypoint(null, 0, 0);
+            }
+        }
     }
 
     /**
@@ -338,18 +675,28 @@ public class NativeMapView extends StackPane {
             try {
                 // Load with memory-efficient settings
                 // preserveRatio=true, smooth=true, backgroundLoading=false for better memory control
+                TileLoadEvent loadEvent = new TileLoadEvent();
+                loadEvent.begin();
                 Image image = new Image(tilePath.toUri().toString(), TILE_SIZE, TILE_SIZE, true, true, false);
+                if (loadEvent.shouldCommit()) {
+                    loadEvent.zoom = z;
+                    loadEvent.x = x;
+                    loadEvent.y = y;
+                    loadEvent.source = "view-disk";
+                    loadEvent.success = !image.isError();
+                    loadEvent.commit();
+                }
 
                 // Only add to cache if loaded successfully
                 if (!image.isError()) {
+                    TILE_DISK_HITS.increment();
                     tileCache.put(tileKey, image);
                     return image;
                 }
             } catch (OutOfMemoryError e) {
-                // Out of memory - clear cache and retry once
-                Logger.log("OOM loading tile - clearing cache");
-                clearTileCache();
-                System.gc();
+                // Out of memory - release the caches, the tile is retried on a later frame
+                Logger.log("OOM loading tile - releasing caches");
+                MemoryGovernor.getInstance().onOutOfMemory("map tile load");
                 return null;
             } catch (Exception e) {
                 // Failed to load tile - silent fail
@@ -379,6 +726,25 @@ public class NativeMapView extends StackPane {
         return new double[]{screenX, screenY};
     }
 
+    /**
+     * Visible area as {minLat, minLon, maxLat, maxLon}
+     * @param halfScreens half extent in screen sizes (0.5 = exactly the view)
+     */
+    private double[] visibleBounds(double halfScreens) {
+        double scale = getScale();
+        double centerTileX = lonToTileXDouble(centerLon, zoom);
+        double centerTileY = latToTileYDouble(centerLat, zoom);
+        double halfTilesX = viewWidth * halfScreens / (TILE_SIZE * scale);
+        double halfTilesY = viewHeight * halfScreens / (TILE_SIZE * scale);
+
+        return new double[]{
+            tileYToLat(centerTileY + halfTilesY, zoom),
+            tileXToLon(centerTileX - halfTilesX, zoom),
+            tileYToLat(centerTileY - halfTilesY, zoom),
+            tileXToLon(centerTileX + halfTilesX, zoom)
+        };
+    }
+
     /**
      * Get current zoom scale factor
      */
@@ -407,6 +773,15 @@ public class NativeMapView extends StackPane {
         return (1.0 - Math.log(Math.tan(latRad) + 1.0 / Math.cos(latRad)) / Math.PI) / 2.0 * (1 << zoom);
     }
 
+    private double tileXToLon(double tileX, int zoom) {
+        return tileX / (1 << zoom) * 360.0 - 180.0;
+    }
+
+    private double tileYToLat(double tileY, int zoom) {
+        double n = Math.PI - 2.0 * Math.PI * tileY / (1 << zoom);
+        return Math.toDegrees(Math.atan(Math.sinh(n)));
+    }
+
     /**
      * Public API methods
      */
@@ -444,6 +819,13 @@ public class NativeMapView extends StackPane {
         }
     }
 
+    /**
+     * Handler called when a marker is clicked (press and release without dragging)
+     */
+    public void setOnMarkerClicked(Consumer<Waypoint> handler) {
+        this.markerClickHandler = handler;
+    }
+
     public void clearWaypoints() {
         if (waypointManager != null) {
             waypointManager.clearWaypoints();
@@ -475,8 +857,26 @@ public class NativeMapView extends StackPane {
         Logger.log("Cleared tile cache: " + size + " tiles removed");
     }
 
+    /**
+     * Evict least recently drawn tiles down to the given footprint (FX thread)
+     */
+    private void trimTileCache(long maxBytes) {
+        long keep = maxBytes / TILE_IMAGE_BYTES;
+        Iterator<String> keys = tileCache.keySet().iterator();
+        while (tileCache.size() > keep && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
     public void shutdown() {
+        if (vehicleAnimationTimer != null) {
+            vehicleAnimationTimer.stop();
+        }
+        markerTooltip.hide();
+
         // Clear caches
+        MemoryGovernor.getInstance().unregister(tileCacheBudget);
         clearTileCache();
 
         if (waypointManager != null) {
@@ -487,6 +887,9 @@ public class NativeMapView extends StackPane {
             tileManager.shutdown();
         }
 
+        // Animation thread; restarted by the next observed vehicle
+        VehicleAnimationEngine.getInstance().shutdown();
+
         Logger.log("NativeMapView shutdown complete");
     }
 
@@ -518,19 +921,22 @@ public class NativeMapView extends StackPane {
 
     /**
      * Preload visible tiles and surrounding area for current zoom
-     * This improves panning performance
+     * This improves panning performance; runs on the tile maintenance scope
      */
     public void preloadVisibleArea() {
         if (tileManager == null) return;
 
-        java.util.concurrent.CompletableFuture.runAsync(() -> {
-            try {
-                int centerTileX = lonToTileX(centerLon, zoom);
-                int centerTileY = latToTileY(centerLat, zoom);
+        // View state is read here, on the FX thread, not by the background task
+        int zoom = this.zoom;
+        int centerTileX = lonToTileX(centerLon, zoom);
+        int centerTileY = latToTileY(centerLat, zoom);
+
+        // Reduced preload area - only immediate visible tiles, no border
+        int tilesX = (int) Math.ceil(viewWidth / TILE_SIZE) + 1;
+        int tilesY = (int) Math.ceil(viewHeight / TILE_SIZE) + 1;
 
-                // Reduced preload area - only immediate visible tiles, no border
-                int tilesX = (int) Math.ceil(viewWidth / TILE_SIZE) + 1;
-                int tilesY = (int) Math.ceil(viewHeight / TILE_SIZE) + 1;
+        ExecutionManager.getInstance().io("tile-maintenance").execute(() -> {
+            try {
 
                 // Preload only visible tiles with low priority to avoid OOM
                 int preloadCount = 0;
@@ -12,6 +12,7 @@ import javafx.scene.layout.Region;
 /**
  * Custom ListCell per visualizzare i dati di affollamento dei veicoli.
  * Mostra: Route ID + Nome | ProgressBar colorata | Percentuale occupancy
+ * I nodi sono creati una volta e aggiornati in place ad ogni updateItem.
  */
 public class CrowdingListCell extends ListCell<VehicleCrowdingData> {
 
@@ -20,6 +21,7 @@ public class CrowdingListCell extends ListCell<VehicleCrowdingData> {
     private final ProgressBar progressBar;
     private final Label percentageLabel;
     private final Region spacer;
+    private String crowdingStyleClass;
 
     public CrowdingListCell() {
         // Inizializza componenti
@@ -61,15 +63,15 @@ public class CrowdingListCell extends ListCell<VehicleCrowdingData> {
             // Aggiorna progress bar
             progressBar.setProgress(item.getPercentage() / 100.0);
 
-            // Rimuovi tutte le style classes precedenti dalla progress bar
-            progressBar.getStyleClass().removeIf(style ->
-                style.equals("crowding-low") ||
-                style.equals("crowding-medium") ||
-                style.equals("crowding-high"));
-
-            // Applica colore basato sul livello di affollamento
-            String crowdingLevel = item.getCrowdingLevel().toLowerCase();
-            progressBar.getStyleClass().add("crowding-" + crowdingLevel);
+            // Cambia la style class solo quando cambia il livello di affollamento
+            String styleClass = "crowding-" + item.getCrowdingLevel().toLowerCase();
+            if (!styleClass.equals(crowdingStyleClass)) {
+                if (crowdingStyleClass != null) {
+                    progressBar.getStyleClass().remove(crowdingStyleClass);
+                }
+                progressBar.getStyleClass().add(styleClass);
+                crowdingStyleClass = styleClass;
+            }
 
             setGraphic(container);
             setText(null);
@@ -7,6 +7,8 @@ import com.rometransit.service.dashboard.TransportQualityService;
 import com.rometransit.util.language.LanguageManager;
 import com.rometransit.model.entity.TransportIncident;
 import com.rometransit.service.dashboard.TransportQualityService.TransportMetrics;
+import com.rometransit.service.execution.ExecutionManager;
+import com.rometransit.service.execution.TaskScope;
 
 import com.rometransit.service.gtfs.GTFSDataManager;
 import com.rometransit.util.logging.Logger;
@@ -28,7 +30,11 @@ import javafx.scene.web.WebView;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Dashboard View - HTML Background + JavaFX Controls
@@ -72,9 +78,23 @@ public class DashboardView {
     private FilteredList<VehicleCrowdingData> filteredCrowdingData;
     private ObservableList<TransportIncident> incidentData;
 
+    // Keyed patchers: only changed rows are touched on refresh
+    private final ListPatcher<VehicleCrowdingData, String> crowdingPatcher =
+        new ListPatcher<>(VehicleCrowdingData::getVehicleId,
+            c -> Arrays.asList(c.getRouteId(), c.getRouteName(), c.getOccupancy(), c.getCapacity()));
+    private final ListPatcher<TransportIncident, String> incidentPatcher =
+        new ListPatcher<>(TransportIncident::getId,
+            i -> Arrays.asList(i.getType(), i.getSeverity(), i.getLocation(), i.getDescription(),
+                i.getAffectedRoutes() != null ? new ArrayList<>(i.getAffectedRoutes()) : null, i.getStartTime()));
+
     // Auto-refresh Timeline
     private Timeline refreshTimeline;
 
+    // Data assembly runs here, the FX thread only applies the result
+    private final TaskScope refreshScope = ExecutionManager.getInstance().io("dashboard-refresh");
+    private final AtomicBoolean refreshInFlight = new AtomicBoolean(false);
+    private volatile boolean closed;
+
     public DashboardView(Stage stage) {
         this.stage = stage;
         initializeServices();
@@ -377,44 +397,80 @@ public class DashboardView {
 
     /**
      * Refresh all dashboard data from services
+     * Metrics and lists are assembled and diffed on the refresh scope; one FX pulse applies the patches.
+     * A tick arriving while the previous refresh is still running is skipped, so refreshes never overlap.
      */
     private void refreshDashboardData() {
-        Platform.runLater(() -> {
-            try {
-                logger.info("Refreshing dashboard data...");
-
-                // Get transport metrics
-                TransportMetrics metrics = qualityService.getTransportMetrics();
-
-                // Update properties (triggers UI update via binding)
-                activeBuses.set((int) metrics.getActiveVehicles());
-                inactiveBuses.set((int) metrics.getInactiveVehicles());
-                totalIssues.set(metrics.getTotalIncidents());
-                highSeverityIssues.set(metrics.getHighSeverityIncidents());
+        if (closed) {
+            return;
+        }
+        if (!refreshInFlight.compareAndSet(false, true)) {
+            logger.debug("Dashboard refresh still running, skipping tick");
+            return;
+        }
 
-                // Update crowding data
+        try {
+            refreshScope.execute(() -> {
                 try {
-                    List<VehicleCrowdingData> crowding = qualityService.getCrowdingData();
-                    crowdingData.setAll(crowding);
+                    logger.debug("Refreshing dashboard data...");
+
+                    // Get transport metrics
+                    TransportMetrics metrics = qualityService.getTransportMetrics();
+
+                    // Crowding data
+                    ListPatcher.Patch<VehicleCrowdingData> crowdingPatch = null;
+                    try {
+                        crowdingPatch = crowdingPatcher.diff(qualityService.getCrowdingData());
+                    } catch (Exception e) {
+                        logger.warn("Error loading crowding data: " + e.getMessage());
+                    }
+
+                    // Incident data (already sorted by severity, highest first)
+                    ListPatcher.Patch<TransportIncident> incidentPatch =
+                        incidentPatcher.diff(qualityService.getCurrentIncidents());
+
+                    ListPatcher.Patch<VehicleCrowdingData> crowdingChanges = crowdingPatch;
+                    Platform.runLater(() -> {
+                        if (!closed) {
+                            applyRefresh(metrics, crowdingChanges, incidentPatch);
+                        }
+                    });
                 } catch (Exception e) {
-                    logger.warn("Error loading crowding data: " + e.getMessage());
+                    logger.error("Error refreshing dashboard data", e);
+                } finally {
+                    refreshInFlight.set(false);
                 }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshInFlight.set(false);
+        }
+    }
 
-                // Update incident data
-                List<TransportIncident> incidents = qualityService.getCurrentIncidents();
-                incidents.sort((a, b) -> b.getSeverity().compareTo(a.getSeverity()));
-                incidentData.setAll(incidents);
+    /**
+     * Apply a computed refresh, FX thread
+     */
+    private void applyRefresh(TransportMetrics metrics,
+                              ListPatcher.Patch<VehicleCrowdingData> crowdingPatch,
+                              ListPatcher.Patch<TransportIncident> incidentPatch) {
+        // Update properties (triggers UI update via binding)
+        activeBuses.set((int) metrics.getActiveVehicles());
+        inactiveBuses.set((int) metrics.getInactiveVehicles());
+        totalIssues.set(metrics.getTotalIncidents());
+        highSeverityIssues.set(metrics.getHighSeverityIncidents());
+
+        if (crowdingPatch != null) {
+            crowdingPatch.applyTo(crowdingData);
+        }
+        incidentPatch.applyTo(incidentData);
 
-                logger.info("Dashboard data refreshed successfully");
-            } catch (Exception e) {
-                logger.error("Error refreshing dashboard data", e);
-            }
-        });
+        logger.debug("Dashboard data refreshed (" + (crowdingPatch != null ? crowdingPatch.size() : 0) +
+                     " crowding, " + incidentPatch.size() + " incident changes)");
     }
 
     private void goHome() {
         try {
             stopAutoRefresh();
+            closed = true;
             HomeView homeView = new HomeView(stage);
             homeView.show();
         } catch (Exception e) {
@@ -424,6 +480,7 @@ public class DashboardView {
 
     public void cleanup() {
         stopAutoRefresh();
+        closed = true;
         logger.info("Dashboard view cleaned up");
     }
 }
@@ -14,6 +14,7 @@ import java.time.format.DateTimeFormatter;
 /**
  * Custom ListCell per visualizzare gli incident/alert del trasporto.
  * Mostra: Severity badge | Type | Location | Time | Affected Routes
+ * I nodi sono creati una volta e aggiornati in place ad ogni updateItem.
  */
 public class IncidentListCell extends ListCell<TransportIncident> {
 
@@ -26,13 +27,17 @@ public class IncidentListCell extends ListCell<TransportIncident> {
     private final Label routesLabel;
 
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+    private static final String BADGE_STYLE = "-fx-font-size: 11px; -fx-font-weight: bold; -fx-text-fill: white; " +
+            "-fx-padding: 3px 10px; -fx-background-radius: 10px;";
+
+    private String severityStyleClass;
+    private String badgeColor;
 
     public IncidentListCell() {
         // Severity badge
         severityBadge = new Label();
         severityBadge.getStyleClass().add("severity-badge");
-        severityBadge.setStyle("-fx-font-size: 11px; -fx-font-weight: bold; -fx-text-fill: white; " +
-                "-fx-padding: 3px 10px; -fx-background-radius: 10px;");
+        severityBadge.setStyle(BADGE_STYLE);
 
         // Type label
         typeLabel = new Label();
@@ -71,49 +76,71 @@ public class IncidentListCell extends ListCell<TransportIncident> {
             setText(null);
         } else {
             // Update severity badge - mostra il tipo (RITARDO/INCIDENTE) invece della severità
-            String badgeText = "RITARDO".equals(item.getType()) ? "RITARDO" : "INCIDENTE";
+            String badgeText = "RITARDO".equals(item.getType()) || "AVVISO".equals(item.getType())
+                    ? item.getType() : "INCIDENTE";
             severityBadge.setText(badgeText);
 
-            // Rimuovi style classes precedenti
-            severityBadge.getStyleClass().removeIf(style ->
-                style.startsWith("severity-"));
-
-            severityBadge.getStyleClass().add("severity-badge");
-            severityBadge.getStyleClass().add("severity-" + item.getSeverity().name().toLowerCase());
+            // Cambia la style class solo quando cambia la severità
+            String styleClass = "severity-" + item.getSeverity().name().toLowerCase();
+            if (!styleClass.equals(severityStyleClass)) {
+                if (severityStyleClass != null) {
+                    severityBadge.getStyleClass().remove(severityStyleClass);
+                }
+                severityBadge.getStyleClass().add(styleClass);
+                severityStyleClass = styleClass;
+            }
 
             // Applica colore background al badge in base al TIPO (non alla severità)
-            // RITARDO (arancione) vs INCIDENTE (rosso)
-            String badgeColor;
-            if ("RITARDO".equals(item.getType())) {
+            // RITARDO (arancione) vs AVVISO (blu) vs INCIDENTE (rosso)
+            String color;
+            if ("AVVISO".equals(item.getType())) {
+                // AVVISI di servizio dal feed GTFS-RT: blu con gradazione per severità
+                switch (item.getSeverity()) {
+                    case HIGH:
+                        color = "#1565C0"; // Blu scuro
+                        break;
+                    case MEDIUM:
+                        color = "#1E88E5"; // Blu medio
+                        break;
+                    case LOW:
+                    default:
+                        color = "#64B5F6"; // Blu chiaro
+                        break;
+                }
+            } else if ("RITARDO".equals(item.getType())) {
                 // RITARDI: arancione con gradazione per severità
                 switch (item.getSeverity()) {
                     case HIGH:
-                        badgeColor = "#FF6F00"; // Arancione scuro
+                        color = "#FF6F00"; // Arancione scuro
                         break;
                     case MEDIUM:
-                        badgeColor = "#FF9800"; // Arancione medio
+                        color = "#FF9800"; // Arancione medio
                         break;
                     case LOW:
                     default:
-                        badgeColor = "#FFB74D"; // Arancione chiaro
+                        color = "#FFB74D"; // Arancione chiaro
                         break;
                 }
             } else {
                 // INCIDENTI: rosso con gradazione per severità
                 switch (item.getSeverity()) {
                     case HIGH:
-                        badgeColor = "#C62828"; // Rosso scuro
+                        color = "#C62828"; // Rosso scuro
                         break;
                     case MEDIUM:
-                        badgeColor = "#F44336"; // Rosso medio
+                        color = "#F44336"; // Rosso medio
                         break;
                     case LOW:
                     default:
-                        badgeColor = "#E57373"; // Rosso chiaro
+                        color = "#E57373"; // Rosso chiaro
                         break;
                 }
             }
-            severityBadge.setStyle(severityBadge.getStyle() + "-fx-background-color: " + badgeColor + ";");
+            // Lo stile è ricostruito dalla base, non accodato a quello precedente
+            if (!color.equals(badgeColor)) {
+                severityBadge.setStyle(BADGE_STYLE + "-fx-background-color: " + color + ";");
+                badgeColor = color;
+            }
 
             // Update other labels
             typeLabel.setText(item.getType());
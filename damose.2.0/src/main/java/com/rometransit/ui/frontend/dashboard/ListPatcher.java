@@ -0,0 +1,220 @@
+package com.rometransit.ui.frontend.dashboard;
+
+import javafx.collections.ObservableList;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Keeps an ObservableList in line with successive snapshots using keyed, minimal edits.
+ *
+ * {@link #diff} runs on any thread against a shadow copy of what the list will contain once
+ * the previous patches are applied; the returned {@link Patch} is then applied on the FX
+ * thread. Items whose key is unchanged but whose fingerprint changed are replaced in place,
+ * so the ListView only re-renders the rows that actually changed. Adjacent edits of the same
+ * kind are applied as one range change, so list listeners see a handful of changes per patch.
+ *
+ * Diffs must be computed sequentially and patches applied in the same order.
+ */
+public class ListPatcher<T, K> {
+
+    private final Function<T, K> keyOf;
+    private final Function<T, Object> fingerprintOf;
+
+    private List<T> shadow = new ArrayList<>();
+    private Map<K, Object> fingerprints = new HashMap<>();
+
+    public ListPatcher(Function<T, K> keyOf, Function<T, Object> fingerprintOf) {
+        this.keyOf = keyOf;
+        this.fingerprintOf = fingerprintOf;
+    }
+
+    /**
+     * Compute the edits turning the current content into the target (first item wins on duplicate keys).
+     * The shadow only moves on when the diff completes: if it throws, the next diff starts again
+     * from the content the list actually has.
+     */
+    public synchronized Patch<T> diff(List<T> target) {
+        List<T> shadow = new ArrayList<>(this.shadow);
+        Map<K, Object> fingerprints = new HashMap<>(this.fingerprints);
+
+        Map<K, T> wanted = new LinkedHashMap<>();
+        for (T item : target) {
+            wanted.putIfAbsent(keyOf.apply(item), item);
+        }
+
+        List<Op<T>> ops = new ArrayList<>();
+
+        // Removals first, from the end so indexes stay valid
+        for (int i = shadow.size() - 1; i >= 0; i--) {
+            K key = keyOf.apply(shadow.get(i));
+            if (!wanted.containsKey(key)) {
+                ops.add(new Op<>(OpType.REMOVE, i, null));
+                shadow.remove(i);
+                fingerprints.remove(key);
+            }
+        }
+
+        int i = 0;
+        for (Map.Entry<K, T> entry : wanted.entrySet()) {
+            K key = entry.getKey();
+            T item = entry.getValue();
+
+            // An item moved further down: drop it here, it is inserted again at its new position
+            if (i + 1 < shadow.size() && !key.equals(keyOf.apply(shadow.get(i)))
+                    && key.equals(keyOf.apply(shadow.get(i + 1)))) {
+                ops.add(new Op<>(OpType.REMOVE, i, null));
+                shadow.remove(i);
+            }
+
+            Object fingerprint = fingerprintOf.apply(item);
+            if (i < shadow.size() && key.equals(keyOf.apply(shadow.get(i)))) {
+                if (!Objects.equals(fingerprints.get(key), fingerprint)) {
+                    ops.add(new Op<>(OpType.SET, i, item));
+                    shadow.set(i, item);
+                }
+            } else {
+                int from = indexOfKey(shadow, key, i + 1);
+                if (from >= 0) {
+                    ops.add(new Op<>(OpType.REMOVE, from, null));
+                    shadow.remove(from);
+                }
+                ops.add(new Op<>(OpType.INSERT, i, item));
+                shadow.add(i, item);
+            }
+            fingerprints.put(key, fingerprint);
+            i++;
+        }
+
+        this.shadow = shadow;
+        this.fingerprints = fingerprints;
+        return new Patch<>(ops);
+    }
+
+    private int indexOfKey(List<T> shadow, K key, int from) {
+        for (int j = from; j < shadow.size(); j++) {
+            if (key.equals(keyOf.apply(shadow.get(j)))) {
+                return j;
+            }
+        }
+        return -1;
+    }
+
+    enum OpType { REMOVE, INSERT, SET }
+
+    private static class Op<T> {
+        final OpType type;
+        final int index;
+        final T item;
+
+        Op(OpType type, int index, T item) {
+            this.type = type;
+            this.index = index;
+            this.item = item;
+        }
+    }
+
+    /**
+     * Adjacent edits of one kind: REMOVE drops [index, end) of the list as it is before the run,
+     * INSERT and SET write items from index on
+     */
+    private static class Run<T> {
+        final OpType type;
+        int index;
+        int end;
+        final List<T> items = new ArrayList<>();
+
+        Run(Op<T> op) {
+            this.type = op.type;
+            this.index = op.index;
+            this.end = op.index + 1;
+            if (op.item != null) {
+                items.add(op.item);
+            }
+        }
+
+        /**
+         * Extend the run with the next edit if it touches the same range
+         */
+        boolean absorb(Op<T> op) {
+            if (op.type != type) {
+                return false;
+            }
+            switch (type) {
+                case REMOVE:
+                    if (op.index == index - 1) {        // Removals walking up the list
+                        index--;
+                        return true;
+                    }
+                    if (op.index == index) {            // Repeated removal at the same position
+                        end++;
+                        return true;
+                    }
+                    return false;
+                case INSERT:
+                case SET:
+                    if (op.index == index + items.size()) {
+                        items.add(op.item);
+                        return true;
+                    }
+                    return false;
+                default:
+                    return false;
+            }
+        }
+    }
+
+    /**
+     * Ordered edits for one snapshot
+     */
+    public static class Patch<T> {
+        private final List<Run<T>> runs = new ArrayList<>();
+        private final int edits;
+
+        Patch(List<Op<T>> ops) {
+            this.edits = ops.size();
+            Run<T> current = null;
+            for (Op<T> op : ops) {
+                if (current == null || !current.absorb(op)) {
+                    current = new Run<>(op);
+                    runs.add(current);
+                }
+            }
+        }
+
+        public boolean isEmpty() {
+            return edits == 0;
+        }
+
+        public int size() {
+            return edits;
+        }
+
+        /**
+         * Apply the edits, FX thread only; each run is one list change (a replaced range is
+         * one removal and one insertion, or a full setAll when it covers the whole list)
+         */
+        public void applyTo(ObservableList<T> list) {
+            for (Run<T> run : runs) {
+                switch (run.type) {
+                    case REMOVE:
+                        list.remove(run.index, run.end);
+                        break;
+                    case INSERT:
+                        list.addAll(run.index, run.items);
+                        break;
+                    case SET:
+                        if (run.items.size() == 1) {
+                            list.set(run.index, run.items.get(0));
+                        } else if (run.index == 0 && run.items.size() == list.size()) {
+                            list.setAll(run.items);
+                        } else {
+                            list.remove(run.index, run.index + run.items.size());
+                            list.addAll(run.index, run.items);
+                        }
+                        break;
+                }
+            }
+        }
+    }
+}
@@ -15,8 +15,10 @@ import com.rometransit.model.entity.Route;
 import com.rometransit.model.entity.Trip;
 import com.rometransit.model.entity.Shape;
 import com.rometransit.model.entity.User;
+import com.rometransit.model.dto.ServiceAlert;
 import com.rometransit.model.dto.VehiclePosition;
 import com.rometransit.data.repository.RouteRepository;
+import com.rometransit.service.execution.ExecutionManager;
 import com.rometransit.service.gtfs.GTFSDataManager;
 import com.rometransit.service.map.MapService;
 import com.rometransit.service.map.StopVisualizationService;
@@ -28,6 +30,7 @@ import com.rometransit.service.transit.VehicleTrackingService;
 import com.rometransit.service.transit.ArrivalPredictionService;
 import com.rometransit.service.transit.RouteCalculationService;
 import com.rometransit.service.notification.RealtimeNotificationMonitor;
+import com.rometransit.service.realtime.ServiceAlertStore;
 import com.rometransit.ui.notification.NotificationPopupManager;
 import com.rometransit.model.enums.ConnectionStatus;
 import com.rometransit.util.logging.Logger;
@@ -44,7 +47,6 @@ import javafx.geometry.Insets;
 import javafx.geometry.Pos;
 import java.net.URL;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 
 public class HomeView {
 
@@ -75,11 +77,14 @@ public class HomeView {
     private LanguageManager languageManager;
     private NotificationPopupManager notificationPopupManager;
     private RealtimeNotificationMonitor notificationMonitor;
+    private final java.util.function.Consumer<GTFSDataManager.TimetableStatus> timetableStatusListener = this::onTimetableStatusChanged;
+    private boolean timetableConversionNotified;
 
     // UI Components
     private Label connectionStatusLabel;
     private Label offlineModeIndicator;
     private ProgressIndicator loadingIndicator;
+    private Label dataStatusLabel;
     private HBox statusBar;
     private HBox mapToolbar;
     private Timeline statusUpdater;
@@ -91,6 +96,7 @@ public class HomeView {
     private Map<String, RoutePathWaypoint> activeRouteWaypoints = new HashMap<>();
     private Map<String, List<StopMarkerWaypoint>> activeStopWaypoints = new HashMap<>();
     private Map<String, VehicleMarkerWaypoint> activeVehicleWaypoints = new HashMap<>();
+    private NetworkOverviewWaypoint networkOverview;
     private RouteRepository routeRepository;
 
     public HomeView(Stage stage) {
@@ -138,7 +144,7 @@ public class HomeView {
             this.notificationMonitor = RealtimeNotificationMonitor.getInstance();
 
             // Warmup tile cache for Rome in background
-            CompletableFuture.runAsync(() -> {
+            ExecutionManager.getInstance().io("tile-maintenance").run(() -> {
                 try {
                     Logger.log("Starting tile cache warmup for Rome...");
                     tileManager.warmupCacheForRome();
@@ -156,11 +162,11 @@ public class HomeView {
 
 
     /**
-     * Show all live vehicles currently operating in Rome
+     * Show the whole network: all stops and live vehicles, clustered at low zoom
      */
-    private void showAllLiveVehicles() {
+    private void showNetworkOverview() {
         try {
-            Logger.log("🚍 Showing all live vehicles in Rome...");
+            Logger.log("🚍 Showing network overview...");
 
             if (mapView == null || vehicleTrackingService == null) {
                 Logger.log("⚠️ MapView or VehicleTrackingService not available");
@@ -168,21 +174,25 @@ public class HomeView {
             }
 
             // Clear previous visualizations
-            clearMap();
+            clearVisualizations();
 
-            // Get all active vehicles
-            List<VehiclePosition> allVehicles = vehicleTrackingService.getAllActiveVehicles();
-            Logger.log("📌 Found " + allVehicles.size() + " active vehicles");
+            NetworkOverviewWaypoint overview = new NetworkOverviewWaypoint();
+            networkOverview = overview;
+            mapView.addWaypoint(overview);
 
-            // Add all vehicles to map as GREEN DOTS
-            for (VehiclePosition vehiclePos : allVehicles) {
-                VehicleMarkerWaypoint vehicleWaypoint = new VehicleMarkerWaypoint(
-                        "vehicle_" + vehiclePos.getVehicleId(),
-                        vehiclePos
-                );
-                mapView.addWaypoint(vehicleWaypoint);
-                activeVehicleWaypoints.put(vehiclePos.getVehicleId(), vehicleWaypoint);
-            }
+            // Stop index built in background (thousands of stops)
+            ExecutionManager.getInstance().cpu("map-index").run(() -> {
+                try {
+                    overview.setStops(gtfsDataManager.getAllStops());
+                    Logger.log("📌 Network overview: " + overview.getStopCount() + " stops indexed");
+                    Platform.runLater(() -> mapView.repaint());
+                } catch (Exception e) {
+                    Logger.log("❌ Error indexing stops for overview: " + e.getMessage());
+                }
+            });
+
+            // Active vehicles come from SQLite: read in background
+            refreshOverviewVehicles(overview);
 
             // Center on Rome
             mapView.centerOnRome();
@@ -191,9 +201,9 @@ public class HomeView {
             // Start auto-update for all vehicles
             startGlobalVehicleTracking();
 
-            Logger.log("✅ " + allVehicles.size() + " live vehicles displayed");
+            Logger.log("✅ Network overview displayed");
         } catch (Exception e) {
-            Logger.log("❌ Error showing all live vehicles: " + e.getMessage());
+            Logger.log("❌ Error showing network overview: " + e.getMessage());
             e.printStackTrace();
         }
     }
@@ -225,55 +235,33 @@ public class HomeView {
      * Update all vehicle positions (called every 30 seconds for global tracking)
      */
     private void updateAllVehiclePositions() {
-        try {
-            if (vehicleTrackingService == null || mapView == null) return;
-
-            List<VehiclePosition> allVehicles = vehicleTrackingService.getAllActiveVehicles();
-
-            // Update or add vehicles
-            for (VehiclePosition vehiclePos : allVehicles) {
-                VehicleMarkerWaypoint existingWaypoint = activeVehicleWaypoints.get(vehiclePos.getVehicleId());
-
-                if (existingWaypoint != null) {
-                    // Update existing waypoint
-                    existingWaypoint.updatePosition(vehiclePos);
-                } else {
-                    // Add new vehicle waypoint
-                    VehicleMarkerWaypoint newWaypoint = new VehicleMarkerWaypoint(
-                            "vehicle_" + vehiclePos.getVehicleId(),
-                            vehiclePos
-                    );
-                    mapView.addWaypoint(newWaypoint);
-                    activeVehicleWaypoints.put(vehiclePos.getVehicleId(), newWaypoint);
-                }
-            }
-
-            // Remove vehicles that are no longer active
-            Set<String> activeVehicleIds = allVehicles.stream()
-                    .map(VehiclePosition::getVehicleId)
-                    .collect(java.util.stream.Collectors.toSet());
-
-            List<String> vehiclesToRemove = new ArrayList<>();
-            for (String vehicleId : activeVehicleWaypoints.keySet()) {
-                if (!activeVehicleIds.contains(vehicleId)) {
-                    vehiclesToRemove.add(vehicleId);
-                }
-            }
+        if (vehicleTrackingService == null || mapView == null || networkOverview == null) return;
+        refreshOverviewVehicles(networkOverview);
+    }
 
-            for (String vehicleId : vehiclesToRemove) {
-                VehicleMarkerWaypoint waypoint = activeVehicleWaypoints.remove(vehicleId);
-                if (waypoint != null) {
-                    mapView.removeWaypoint(waypoint);
+    /**
+     * Read the active vehicles on an IO scope (a full SQLite read) and apply them to the
+     * overview on the FX thread, unless the overview was replaced in the meantime
+     */
+    private void refreshOverviewVehicles(NetworkOverviewWaypoint overview) {
+        ExecutionManager.getInstance().io("ui-queries").supply(() -> {
+            return vehicleTrackingService.getAllActiveVehicles();
+        }).thenAccept(allVehicles -> {
+            Platform.runLater(() -> {
+                if (overview != networkOverview || mapView == null) {
+                    return;
                 }
-            }
 
-            // Refresh map
-            mapView.repaint();
+                // Incremental update of the clustered vehicle index
+                overview.updateVehicles(allVehicles);
+                mapView.repaint();
 
-            Logger.log("🔄 Vehicle positions updated: " + allVehicles.size() + " active vehicles");
-        } catch (Exception e) {
+                Logger.log("🔄 Vehicle positions updated: " + allVehicles.size() + " active vehicles");
+            });
+        }).exceptionally(e -> {
             Logger.log("❌ Error updating all vehicle positions: " + e.getMessage());
-        }
+            return null;
+        });
     }
 
     /**
@@ -299,7 +287,7 @@ public class HomeView {
         cacheStatsLabel.setStyle("-fx-font-size: 11px;");
 
         // Data status label
-        Label dataStatusLabel = new Label(LanguageManager.getInstance().getString("home.gtfsReady"));
+        dataStatusLabel = new Label(LanguageManager.getInstance().getString("home.gtfsReady"));
         dataStatusLabel.setStyle("-fx-font-size: 11px;");
 
         // Loading indicator
@@ -332,6 +320,7 @@ public class HomeView {
             try {
                 updateConnectionStatus();
                 updateCacheStats(cacheStatsLabel);
+                updateTimetableStatus();
             } catch (Exception ex) {
                 Logger.log("Error updating status: " + ex.getMessage());
             }
@@ -376,6 +365,65 @@ public class HomeView {
         }
     }
 
+    /**
+     * Show the timetable state (conversion progress, unavailable schedules) in the status bar
+     */
+    private void updateTimetableStatus() {
+        if (dataStatusLabel == null) {
+            return;
+        }
+        LanguageManager lang = LanguageManager.getInstance();
+        switch (gtfsDataManager.getTimetableStatus()) {
+            case CONVERTING:
+                dataStatusLabel.setText("⏳ " + lang.getString("home.timetableTitle") + " " +
+                                        gtfsDataManager.getTimetableConversionPercent() + "%");
+                dataStatusLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: orange;");
+                break;
+            case UNAVAILABLE:
+                dataStatusLabel.setText("⚠️ " + lang.getString("home.timetableTitle"));
+                dataStatusLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: darkred;");
+                break;
+            default:
+                dataStatusLabel.setText(lang.getString("home.gtfsReady"));
+                dataStatusLabel.setStyle("-fx-font-size: 11px;");
+                break;
+        }
+    }
+
+    /**
+     * Timetable status changes come from the loader threads
+     */
+    private void onTimetableStatusChanged(GTFSDataManager.TimetableStatus status) {
+        Platform.runLater(() -> {
+            updateTimetableStatus();
+            if (notificationPopupManager == null) {
+                return;
+            }
+            LanguageManager lang = LanguageManager.getInstance();
+            String title = lang.getString("home.timetableTitle");
+            switch (status) {
+                case CONVERTING:
+                    timetableConversionNotified = true;
+                    notificationPopupManager.showPopup(title, lang.getString("home.timetableConverting"),
+                        NotificationPopupManager.NotificationType.DEVIATION);
+                    break;
+                case UNAVAILABLE:
+                    notificationPopupManager.showPopup(title, lang.getString("home.timetableUnavailable"),
+                        NotificationPopupManager.NotificationType.DELAY);
+                    break;
+                case READY:
+                    if (timetableConversionNotified) {
+                        timetableConversionNotified = false;
+                        notificationPopupManager.showPopup(title, lang.getString("home.timetableReady"),
+                            NotificationPopupManager.NotificationType.ARRIVAL);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        });
+    }
+
     /**
      * Update cache statistics
      */
@@ -483,7 +531,7 @@ public class HomeView {
             }
 
             // Clear ALL previous visualizations to show only the new route
-            clearMap();
+            clearVisualizations();
 
             // 1. Draw RED LINE - Route Path
             visualizeRoutePath(route, direction);
@@ -864,7 +912,7 @@ public class HomeView {
             }
 
             // Get arrival predictions for this stop
-            CompletableFuture.supplyAsync(() -> {
+            ExecutionManager.getInstance().io("ui-queries").supply(() -> {
                 return arrivalPredictionService.getUpcomingArrivals(stop.getStopId(), 10);
             }).thenAccept(arrivals -> {
                 Platform.runLater(() -> {
@@ -1194,56 +1242,16 @@ public class HomeView {
     }
 
     /**
-     * Get all routes that serve a specific stop - OPTIMIZED
+     * Get all routes that serve a specific stop (cached per stop by the prediction service)
      */
     private List<Route> getRoutesForStop(Stop stop) {
-        List<Route> routes = new ArrayList<>();
-        Set<String> routeIds = new HashSet<>();
-
         try {
-            Logger.log("🔍 Getting routes for stop: " + stop.getStopName() + " (" + stop.getStopId() + ")");
-
-            // Get all stop times for this stop (EFFICIENT!)
-            List<com.rometransit.model.entity.StopTime> stopTimes = gtfsDataManager.getStopTimesForStop(stop.getStopId());
-            Logger.log("📊 Found " + stopTimes.size() + " stop times");
-
-            // Extract unique route IDs from trips
-            for (com.rometransit.model.entity.StopTime stopTime : stopTimes) {
-                Trip trip = gtfsDataManager.getTripById(stopTime.getTripId());
-                if (trip != null) {
-                    routeIds.add(trip.getRouteId());
-                }
-            }
-
-            Logger.log("📍 Found " + routeIds.size() + " unique routes");
-
-            // Get route objects
-            for (String routeId : routeIds) {
-                Route route = gtfsDataManager.getRouteById(routeId);
-                if (route != null) {
-                    routes.add(route);
-                    Logger.log("  ✅ Route: " + route.getRouteShortName() + " - " + route.getRouteLongName());
-                }
-            }
-
-            // Sort routes by short name
-            routes.sort((a, b) -> {
-                try {
-                    // Try to parse as numbers for proper sorting
-                    int numA = Integer.parseInt(a.getRouteShortName().replaceAll("[^0-9]", ""));
-                    int numB = Integer.parseInt(b.getRouteShortName().replaceAll("[^0-9]", ""));
-                    return Integer.compare(numA, numB);
-                } catch (Exception e) {
-                    return a.getRouteShortName().compareTo(b.getRouteShortName());
-                }
-            });
-
+            return arrivalPredictionService.getRoutesForStop(stop.getStopId());
         } catch (Exception e) {
             Logger.log("❌ Error getting routes for stop: " + e.getMessage());
             e.printStackTrace();
+            return new ArrayList<>();
         }
-
-        return routes;
     }
 
     /**
@@ -1500,6 +1508,8 @@ public class HomeView {
                        .append(": ").append(stop.getStopDesc()).append("\n");
             }
 
+            appendServiceAlerts(details, stop);
+
             details.append("\n🕐 ").append(LanguageManager.getInstance().getString("home.upcomingArrivalsLabel").toUpperCase()).append(":\n");
 
             // Get upcoming arrivals (first 4)
@@ -1553,6 +1563,31 @@ public class HomeView {
         }
     }
 
+    /**
+     * Append the service alerts active now for the stop and the routes serving it
+     */
+    private void appendServiceAlerts(StringBuilder details, Stop stop) {
+        ServiceAlertStore alertStore = ServiceAlertStore.getInstance();
+        Set<ServiceAlert> alerts = new LinkedHashSet<>(alertStore.getActiveAlertsForStop(stop.getStopId()));
+        for (Route route : arrivalPredictionService.getRoutesForStop(stop.getStopId())) {
+            alerts.addAll(alertStore.getActiveAlertsForRoute(route.getRouteId()));
+        }
+        if (alerts.isEmpty()) {
+            return;
+        }
+
+        String language = LanguageManager.getInstance().getCurrentLanguageCode();
+        details.append("\n⚠️ ").append(LanguageManager.getInstance().getString("home.serviceAlertsLabel").toUpperCase()).append(":\n");
+        for (ServiceAlert alert : alerts) {
+            String header = alert.getHeaderText(language);
+            details.append("   • ").append(header != null ? header : alert.getEffect()).append("\n");
+            String description = alert.getDescriptionText(language);
+            if (description != null && !description.isEmpty() && !description.equals(header)) {
+                details.append("     ").append(description).append("\n");
+            }
+        }
+    }
+
     /**
      * Find the closest stop to a vehicle position
      */
@@ -1636,6 +1671,13 @@ public class HomeView {
         // Create map view for the large rectangle on the right
         mapView = new NativeMapView(829, 704);
         mapView.centerOnRome();
+        mapView.setOnMarkerClicked(waypoint -> {
+            // Click on a stop marker: same as selecting it from the search
+            if (waypoint instanceof StopMarkerWaypoint) {
+                showStop(((StopMarkerWaypoint) waypoint).getStop());
+            }
+        });
+        showNetworkOverview();
 
         // Position map in the same coordinates as Rectangle50 in HTML (line 70)
         // Rectangle50: left: 513px, top: 237px
@@ -1956,6 +1998,14 @@ public class HomeView {
             Logger.log("✅ NotificationPopupManager initialized with stage");
         }
 
+        // Timetable conversion/failure may already be under way (started by the data load)
+        gtfsDataManager.addTimetableStatusListener(timetableStatusListener);
+        GTFSDataManager.TimetableStatus timetableStatus = gtfsDataManager.getTimetableStatus();
+        if (timetableStatus == GTFSDataManager.TimetableStatus.CONVERTING
+                || timetableStatus == GTFSDataManager.TimetableStatus.UNAVAILABLE) {
+            onTimetableStatusChanged(timetableStatus);
+        }
+
         // Start real-time notification monitoring
         if (notificationMonitor != null) {
             notificationMonitor.startMonitoring();
@@ -1980,7 +2030,18 @@ public class HomeView {
         }
     }
 
+    /**
+     * Clear the map back to the network overview
+     */
     public void clearMap() {
+        clearVisualizations();
+        showNetworkOverview();
+    }
+
+    /**
+     * Remove every visualization (overview included) and stop vehicle tracking
+     */
+    private void clearVisualizations() {
         try {
             Logger.log("🗑️ Clearing map...");
 
@@ -1994,6 +2055,7 @@ public class HomeView {
             activeRouteWaypoints.clear();
             activeStopWaypoints.clear();
             activeVehicleWaypoints.clear();
+            networkOverview = null;
 
             // Clear map view
             if (mapView != null) {
@@ -2011,6 +2073,8 @@ public class HomeView {
         try {
             Logger.log("🔌 Shutting down HomeView services...");
 
+            gtfsDataManager.removeTimetableStatusListener(timetableStatusListener);
+
             // Stop notification monitoring
             if (notificationMonitor != null) {
                 notificationMonitor.stopMonitoring();
@@ -2030,7 +2094,7 @@ public class HomeView {
             }
 
             // Clear map and waypoints
-            clearMap();
+            clearVisualizations();
 
             // Shutdown map view
             if (mapView != null) {
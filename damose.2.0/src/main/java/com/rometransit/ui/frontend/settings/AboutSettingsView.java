@@ -2,6 +2,8 @@ package com.rometransit.ui.frontend.settings;
 
 import com.rometransit.ui.frontend.settings.SettingsView;
 import com.rometransit.ui.frontend.settings.ThemeManager;
+import com.rometransit.ui.util.UIUtils;
+import com.rometransit.util.diagnostics.DiagnosticsCapture;
 import com.rometransit.util.language.LanguageManager;
 import javafx.application.Platform;
 import javafx.scene.Scene;
@@ -11,11 +13,13 @@ import javafx.scene.web.WebEngine;
 import javafx.scene.web.WebView;
 import javafx.stage.Stage;
 import java.net.URL;
+import java.nio.file.Path;
 
 public class AboutSettingsView {
     private Stage stage;
     private LanguageManager languageManager;
     private WebEngine webEngine;
+    private Button diagnosticsButton;
 
     public AboutSettingsView(Stage stage) {
         this.stage = stage;
@@ -44,11 +48,20 @@ public class AboutSettingsView {
             }
         });
 
+        // Capture diagnostics: bounded JFR recording to send with a problem report
+        diagnosticsButton = new Button();
+        diagnosticsButton.setStyle("-fx-background-color: white; -fx-border-color: #ccc; " +
+                "-fx-border-radius: 5px; -fx-background-radius: 5px; -fx-font-size: 12px;");
+        diagnosticsButton.setOnAction(e -> captureDiagnostics());
+        updateDiagnosticsButton();
+
         AnchorPane root = new AnchorPane();
-        root.getChildren().addAll(webView, settingsButton);
+        root.getChildren().addAll(webView, settingsButton, diagnosticsButton);
 
         AnchorPane.setTopAnchor(settingsButton, 70.0);
         AnchorPane.setLeftAnchor(settingsButton, 28.0);
+        AnchorPane.setBottomAnchor(diagnosticsButton, 28.0);
+        AnchorPane.setRightAnchor(diagnosticsButton, 28.0);
 
         webView.setPrefSize(1440, 1000);
         AnchorPane.setTopAnchor(webView, 0.0);
@@ -60,6 +73,42 @@ public class AboutSettingsView {
         stage.show();
     }
 
+    /**
+     * Start a diagnostics capture; the button shows the recording until the file is written
+     */
+    private void captureDiagnostics() {
+        DiagnosticsCapture capture = DiagnosticsCapture.getInstance();
+        if (!capture.isAvailable()) {
+            UIUtils.showWarningDialog(stage, languageManager.getString("diagnostics.title"),
+                    languageManager.getString("diagnostics.unavailable"));
+            return;
+        }
+        if (capture.isCapturing()) {
+            return;
+        }
+
+        try {
+            Path file = capture.start(path -> Platform.runLater(() -> {
+                updateDiagnosticsButton();
+                UIUtils.showInfoDialog(stage, languageManager.getString("diagnostics.title"),
+                        languageManager.getString("diagnostics.saved", path.toString()));
+            }));
+            updateDiagnosticsButton();
+            System.out.println("🩺 Diagnostics capture started: " + file);
+        } catch (Exception ex) {
+            System.err.println("❌ Failed to start diagnostics capture: " + ex.getMessage());
+            UIUtils.showErrorDialog(stage, languageManager.getString("diagnostics.title"),
+                    languageManager.getString("diagnostics.failed", ex.getMessage()));
+        }
+    }
+
+    private void updateDiagnosticsButton() {
+        boolean capturing = DiagnosticsCapture.getInstance().isCapturing();
+        diagnosticsButton.setText(languageManager.getString(
+                capturing ? "diagnostics.capturing" : "diagnostics.capture"));
+        diagnosticsButton.setDisable(capturing);
+    }
+
     /**
      * Load HTML background with language-aware path
      */
@@ -0,0 +1,303 @@
+package com.rometransit.ui.map;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indice gerarchico di clustering dei punti per zoom.
+ *
+ * Per ogni livello di zoom i punti (in coordinate Web Mercator normalizzate) sono raggruppati
+ * in celle grandi quanto il raggio di cluster in pixel a quello zoom. Le celle di un livello
+ * contengono esattamente quattro celle del livello successivo, quindi i cluster si
+ * scompongono zoomando. Ogni cella tiene conteggio e somme per il baricentro, così inserimento,
+ * spostamento e rimozione costano O(livelli): le fermate si caricano una volta, i veicoli si
+ * aggiornano a ogni poll. Oltre maxZoom i punti sono restituiti singolarmente.
+ *
+ * Le query visitano solo le celle nel riquadro richiesto. Non thread-safe.
+ */
+public class PointClusterIndex<T> {
+
+    private static final int TILE_SIZE = 256;
+
+    private final int maxZoom;
+    private final double[] cellSize;                 // Per livello, unità normalizzate
+    private final List<Map<Long, Cell<T>>> levels;   // 0..maxZoom cluster, maxZoom+1 foglie
+    private final Map<String, Entry<T>> entries = new HashMap<>();
+
+    /**
+     * @param maxZoom ultimo zoom con cluster; sopra, punti singoli
+     * @param radiusPixels raggio di aggregazione in pixel schermo
+     */
+    public PointClusterIndex(int maxZoom, double radiusPixels) {
+        this.maxZoom = maxZoom;
+        this.cellSize = new double[maxZoom + 2];
+        this.levels = new ArrayList<>(maxZoom + 2);
+        for (int z = 0; z <= maxZoom + 1; z++) {
+            cellSize[z] = radiusPixels / (TILE_SIZE * (double) (1L << z));
+            levels.add(new HashMap<>());
+        }
+    }
+
+    // ===== Updates =====
+
+    /**
+     * Inserisce o sposta un punto
+     */
+    public void put(String id, T item, double lat, double lon) {
+        double x = mercatorX(lon);
+        double y = mercatorY(lat);
+        Entry<T> entry = entries.get(id);
+
+        if (entry == null) {
+            entry = new Entry<>(item, x, y);
+            entries.put(id, entry);
+            for (int z = 0; z <= maxZoom + 1; z++) {
+                add(z, entry);
+            }
+            return;
+        }
+
+        entry.item = item;
+        if (entry.x == x && entry.y == y) {
+            return;
+        }
+        for (int z = 0; z <= maxZoom + 1; z++) {
+            long oldKey = key(z, entry.x, entry.y);
+            long newKey = key(z, x, y);
+            if (oldKey == newKey) {
+                // Stessa cella: aggiorna solo il baricentro
+                Cell<T> cell = levels.get(z).get(oldKey);
+                cell.sumX += x - entry.x;
+                cell.sumY += y - entry.y;
+            } else {
+                remove(z, entry);
+                double oldX = entry.x;
+                double oldY = entry.y;
+                entry.x = x;
+                entry.y = y;
+                add(z, entry);
+                entry.x = oldX;
+                entry.y = oldY;
+            }
+        }
+        entry.x = x;
+        entry.y = y;
+    }
+
+    public void remove(String id) {
+        Entry<T> entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (int z = 0; z <= maxZoom + 1; z++) {
+            remove(z, entry);
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        levels.forEach(Map::clear);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean contains(String id) {
+        return entries.containsKey(id);
+    }
+
+    public T get(String id) {
+        Entry<T> entry = entries.get(id);
+        return entry != null ? entry.item : null;
+    }
+
+    public Iterable<String> ids() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    private void add(int z, Entry<T> entry) {
+        long key = key(z, entry.x, entry.y);
+        Cell<T> cell = levels.get(z).computeIfAbsent(key, k -> new Cell<>());
+        cell.count++;
+        cell.sumX += entry.x;
+        cell.sumY += entry.y;
+        if (cell.any == null) {
+            cell.any = entry;
+        }
+        if (z == maxZoom + 1) {
+            cell.leaves.add(entry);
+        }
+    }
+
+    private void remove(int z, Entry<T> entry) {
+        long key = key(z, entry.x, entry.y);
+        Map<Long, Cell<T>> level = levels.get(z);
+        Cell<T> cell = level.get(key);
+        if (cell == null) {
+            return;
+        }
+        if (z == maxZoom + 1) {
+            cell.leaves.remove(entry);
+        }
+        if (--cell.count == 0) {
+            level.remove(key);
+            return;
+        }
+        cell.sumX -= entry.x;
+        cell.sumY -= entry.y;
+        if (cell.any == entry) {
+            cell.any = findAny(z, cellX(z, entry.x), cellY(z, entry.y), entry);
+        }
+    }
+
+    /**
+     * Un punto qualsiasi della cella diverso da quello rimosso, scendendo nelle celle figlie
+     */
+    private Entry<T> findAny(int z, long cx, long cy, Entry<T> excluded) {
+        if (z == maxZoom + 1) {
+            Cell<T> leaf = levels.get(z).get(pack(cx, cy));
+            if (leaf == null) {
+                return null;
+            }
+            for (Entry<T> candidate : leaf.leaves) {
+                if (candidate != excluded) {
+                    return candidate;
+                }
+            }
+            return null;
+        }
+        for (int dx = 0; dx < 2; dx++) {
+            for (int dy = 0; dy < 2; dy++) {
+                Cell<T> child = levels.get(z + 1).get(pack(cx * 2 + dx, cy * 2 + dy));
+                if (child != null && child.any != null && child.any != excluded) {
+                    return child.any;
+                }
+                if (child != null) {
+                    Entry<T> found = findAny(z + 1, cx * 2 + dx, cy * 2 + dy, excluded);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    // ===== Queries =====
+
+    /**
+     * Cluster e punti singoli visibili nel riquadro allo zoom dato
+     */
+    public void query(int zoom, double minLat, double minLon, double maxLat, double maxLon, Visitor<T> visitor) {
+        int z = Math.max(0, Math.min(zoom, maxZoom + 1));
+        Map<Long, Cell<T>> level = levels.get(z);
+        if (level.isEmpty()) {
+            return;
+        }
+
+        long minCx = cellX(z, mercatorX(minLon));
+        long maxCx = cellX(z, mercatorX(maxLon));
+        long minCy = cellY(z, mercatorY(maxLat));
+        long maxCy = cellY(z, mercatorY(minLat));
+
+        // Riquadro più grande delle celle occupate: conviene scorrere le celle
+        if ((maxCx - minCx + 1) * (maxCy - minCy + 1) > level.size()) {
+            for (Map.Entry<Long, Cell<T>> e : level.entrySet()) {
+                long cx = e.getKey() >> 32;
+                long cy = e.getKey() & 0xFFFFFFFFL;
+                if (cx >= minCx && cx <= maxCx && cy >= minCy && cy <= maxCy) {
+                    visit(z, e.getValue(), visitor);
+                }
+            }
+            return;
+        }
+
+        for (long cx = minCx; cx <= maxCx; cx++) {
+            for (long cy = minCy; cy <= maxCy; cy++) {
+                Cell<T> cell = level.get(pack(cx, cy));
+                if (cell != null) {
+                    visit(z, cell, visitor);
+                }
+            }
+        }
+    }
+
+    private void visit(int z, Cell<T> cell, Visitor<T> visitor) {
+        if (z == maxZoom + 1) {
+            for (Entry<T> leaf : cell.leaves) {
+                visitor.point(leaf.item, latitude(leaf.y), longitude(leaf.x));
+            }
+        } else if (cell.count == 1) {
+            visitor.point(cell.any.item, latitude(cell.any.y), longitude(cell.any.x));
+        } else {
+            visitor.cluster(cell.count, latitude(cell.sumY / cell.count), longitude(cell.sumX / cell.count));
+        }
+    }
+
+    /**
+     * Riceve i risultati di una query
+     */
+    public interface Visitor<T> {
+        void cluster(int count, double lat, double lon);
+
+        void point(T item, double lat, double lon);
+    }
+
+    // ===== Coordinates =====
+
+    private long key(int z, double x, double y) {
+        return pack(cellX(z, x), cellY(z, y));
+    }
+
+    private long cellX(int z, double x) {
+        return (long) Math.floor(x / cellSize[z]);
+    }
+
+    private long cellY(int z, double y) {
+        return (long) Math.floor(y / cellSize[z]);
+    }
+
+    private static long pack(long cx, long cy) {
+        return (cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    static double mercatorX(double lon) {
+        return (lon + 180.0) / 360.0;
+    }
+
+    static double mercatorY(double lat) {
+        double latRad = Math.toRadians(Math.max(-85.0511, Math.min(85.0511, lat)));
+        return (1.0 - Math.log(Math.tan(latRad) + 1.0 / Math.cos(latRad)) / Math.PI) / 2.0;
+    }
+
+    static double longitude(double x) {
+        return x * 360.0 - 180.0;
+    }
+
+    static double latitude(double y) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y))));
+    }
+
+    private static class Entry<T> {
+        T item;
+        double x;
+        double y;
+
+        Entry(T item, double x, double y) {
+            this.item = item;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    private static class Cell<T> {
+        int count;
+        double sumX;
+        double sumY;
+        Entry<T> any;
+        final List<Entry<T>> leaves = new ArrayList<>(2);
+    }
+}
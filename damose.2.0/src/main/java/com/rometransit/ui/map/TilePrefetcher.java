@@ -0,0 +1,170 @@
+package com.rometransit.ui.map;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Predictive tile prefetching for the map view
+ *
+ * Follows pan velocity (smoothed over drag events) and the last zoom direction, and plans
+ * low-priority requests for the tiles the view is about to show:
+ * - while panning, the viewport shifted ahead along the velocity, plus one tile of margin
+ * - when idle, a one-tile ring around the viewport
+ * - the parent level of the viewport, used as overzoom placeholder for missing tiles
+ * - after zooming in, the next level under the view; after zooming out, the whole parent view
+ *
+ * Plans are throttled; the caller filters tiles already cached or requested. FX thread only.
+ */
+public class TilePrefetcher {
+
+    public static final int PRIORITY_LOOKAHEAD = 40;
+    public static final int PRIORITY_RING = 25;
+    public static final int PRIORITY_ZOOM = 20;
+
+    private static final int TILE_SIZE = 256;
+    private static final double LOOKAHEAD_SECONDS = 0.6;
+    private static final double MAX_LOOKAHEAD_SCREENS = 1.5;
+    private static final double MIN_PAN_SPEED = 60;                  // px/s, below this the view is idle
+    private static final double VELOCITY_SMOOTHING = 0.3;
+    private static final long VELOCITY_TIMEOUT_NANOS = 300_000_000L;  // Drag paused: velocity is stale
+    private static final long MIN_PLAN_INTERVAL_NANOS = 100_000_000L;
+
+    private final int minZoom;
+    private final int maxZoom;
+
+    // Viewport velocity in screen pixels per second
+    private double velocityX;
+    private double velocityY;
+    private long lastPanNanos;
+    private int zoomDirection;
+    private long lastPlanNanos;
+
+    public TilePrefetcher(int minZoom, int maxZoom) {
+        this.minZoom = minZoom;
+        this.maxZoom = maxZoom;
+    }
+
+    // ===== Input =====
+
+    /**
+     * Drag step: the content moved by (deltaX, deltaY) pixels, the viewport the opposite way
+     */
+    public void onPan(double deltaX, double deltaY, long nowNanos) {
+        if (lastPanNanos != 0) {
+            long elapsed = nowNanos - lastPanNanos;
+            if (elapsed > 0 && elapsed < VELOCITY_TIMEOUT_NANOS) {
+                double seconds = elapsed / 1e9;
+                velocityX += VELOCITY_SMOOTHING * (-deltaX / seconds - velocityX);
+                velocityY += VELOCITY_SMOOTHING * (-deltaY / seconds - velocityY);
+            } else {
+                velocityX = 0;
+                velocityY = 0;
+            }
+        }
+        lastPanNanos = nowNanos;
+    }
+
+    public void onPanEnd() {
+        velocityX = 0;
+        velocityY = 0;
+        lastPanNanos = 0;
+    }
+
+    public void onZoom(int oldZoom, int newZoom) {
+        zoomDirection = Integer.signum(newZoom - oldZoom);
+        // Plan the next level right away
+        lastPlanNanos = 0;
+    }
+
+    // ===== Planning =====
+
+    /**
+     * Tiles to request now, as {zoom, x, y, priority}; empty when throttled
+     * @param centerTileX view center in fractional tile coordinates at zoom
+     * @param centerTileY view center in fractional tile coordinates at zoom
+     */
+    public List<int[]> plan(double centerTileX, double centerTileY, int zoom,
+                            double viewWidth, double viewHeight, long nowNanos) {
+        List<int[]> tiles = new ArrayList<>();
+        if (nowNanos - lastPlanNanos < MIN_PLAN_INTERVAL_NANOS) {
+            return tiles;
+        }
+        lastPlanNanos = nowNanos;
+
+        double halfW = viewWidth / 2.0 / TILE_SIZE;
+        double halfH = viewHeight / 2.0 / TILE_SIZE;
+        int visibleMinX = (int) Math.floor(centerTileX - halfW);
+        int visibleMaxX = (int) Math.floor(centerTileX + halfW);
+        int visibleMinY = (int) Math.floor(centerTileY - halfH);
+        int visibleMaxY = (int) Math.floor(centerTileY + halfH);
+
+        boolean panning = nowNanos - lastPanNanos < VELOCITY_TIMEOUT_NANOS
+            && Math.hypot(velocityX, velocityY) > MIN_PAN_SPEED;
+
+        if (panning) {
+            // Viewport where it will be shortly, one tile wider
+            double aheadX = clamp(velocityX * LOOKAHEAD_SECONDS, viewWidth * MAX_LOOKAHEAD_SCREENS) / TILE_SIZE;
+            double aheadY = clamp(velocityY * LOOKAHEAD_SECONDS, viewHeight * MAX_LOOKAHEAD_SCREENS) / TILE_SIZE;
+            int minX = (int) Math.floor(centerTileX + aheadX - halfW) - 1;
+            int maxX = (int) Math.floor(centerTileX + aheadX + halfW) + 1;
+            int minY = (int) Math.floor(centerTileY + aheadY - halfH) - 1;
+            int maxY = (int) Math.floor(centerTileY + aheadY + halfH) + 1;
+            for (int x = minX; x <= maxX; x++) {
+                for (int y = minY; y <= maxY; y++) {
+                    boolean visible = x >= visibleMinX && x <= visibleMaxX && y >= visibleMinY && y <= visibleMaxY;
+                    if (!visible) {
+                        add(tiles, zoom, x, y, PRIORITY_LOOKAHEAD);
+                    }
+                }
+            }
+        } else {
+            // Idle: ring just outside the viewport
+            for (int x = visibleMinX - 1; x <= visibleMaxX + 1; x++) {
+                for (int y = visibleMinY - 1; y <= visibleMaxY + 1; y++) {
+                    if (x < visibleMinX || x > visibleMaxX || y < visibleMinY || y > visibleMaxY) {
+                        add(tiles, zoom, x, y, PRIORITY_RING);
+                    }
+                }
+            }
+        }
+
+        // Parent level: placeholder coverage for missing tiles, and the whole next
+        // view when zooming out (scroll zoom keeps the center)
+        if (zoom - 1 >= minZoom) {
+            double parentHalf = zoomDirection < 0 ? 1.0 : 0.5;
+            addRange(tiles, zoom - 1, centerTileX / 2, centerTileY / 2,
+                     halfW * parentHalf, halfH * parentHalf, PRIORITY_ZOOM);
+        }
+
+        // Zooming in: the next level under the current view
+        if (zoomDirection > 0 && zoom + 1 <= maxZoom) {
+            addRange(tiles, zoom + 1, centerTileX * 2, centerTileY * 2, halfW, halfH, PRIORITY_ZOOM);
+        }
+
+        return tiles;
+    }
+
+    private static void addRange(List<int[]> tiles, int zoom, double centerX, double centerY,
+                                 double halfW, double halfH, int priority) {
+        for (int x = (int) Math.floor(centerX - halfW); x <= (int) Math.floor(centerX + halfW); x++) {
+            for (int y = (int) Math.floor(centerY - halfH); y <= (int) Math.floor(centerY + halfH); y++) {
+                add(tiles, zoom, x, y, priority);
+            }
+        }
+    }
+
+    /**
+     * Add a tile, wrapping longitude and dropping rows outside the world
+     */
+    private static void add(List<int[]> tiles, int zoom, int x, int y, int priority) {
+        int maxTile = 1 << zoom;
+        if (y < 0 || y >= maxTile) {
+            return;
+        }
+        tiles.add(new int[]{zoom, ((x % maxTile) + maxTile) % maxTile, y, priority});
+    }
+
+    private static double clamp(double value, double limit) {
+        return Math.max(-limit, Math.min(limit, value));
+    }
+}
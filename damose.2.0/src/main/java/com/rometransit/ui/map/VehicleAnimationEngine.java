@@ -0,0 +1,622 @@
+package com.rometransit.ui.map;
+
+import com.rometransit.model.dto.VehiclePosition;
+import com.rometransit.model.entity.Shape;
+import com.rometransit.model.entity.Trip;
+import com.rometransit.service.gtfs.GTFSDataManager;
+import com.rometransit.service.memory.GovernedMap;
+import com.rometransit.service.memory.MemoryGovernor;
+import com.rometransit.service.transit.ArrivalPredictionEngine;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Motore di animazione dei veicoli sulla mappa.
+ *
+ * Ogni posizione ricevuta viene agganciata allo shape della sua corsa e il veicolo avanza
+ * lungo la distanza cumulata dello shape con la velocità osservata tra due aggiornamenti,
+ * così gli autobus seguono le strade invece di tagliare gli isolati.
+ *
+ * Il calcolo avviene su un thread dedicato: ad ogni frame le posizioni di tutti i veicoli
+ * nel viewport vengono scritte in un buffer float compatto (lat, lon, bearing per slot,
+ * relativi a un'origine fissa) pubblicato in modo atomico. Il renderer sul thread FX legge
+ * solo il buffer, senza calcoli geometrici.
+ */
+public class VehicleAnimationEngine {
+
+    private static VehicleAnimationEngine instance;
+
+    private static final long FRAME_INTERVAL_MS = 33;           // ~30 FPS
+    private static final long BLEND_MS = 2000;                  // Raccordo verso la nuova posizione
+    private static final long MAX_EXTRAPOLATION_MS = 45_000;    // Oltre, il veicolo resta fermo
+    private static final long STALE_TRACK_MS = 10 * 60 * 1000L;
+    private static final double SNAP_TOLERANCE_M = 60.0;
+    private static final double MAX_SPEED_MS = 25.0;            // ~90 km/h
+    private static final double SEARCH_BEHIND_M = 300.0;
+    private static final double SEARCH_AHEAD_M = 2500.0;
+    private static final long ERROR_REPORT_INTERVAL_MS = 10_000; // Al più un errore ogni 10 s
+
+    static final int STRIDE = 3;                                // lat, lon, bearing
+    private static final int BUFFERS = 3;
+
+    // Origine del buffer: gli offset float mantengono precisione sub-metrica
+    private static final double ORIGIN_LAT = 41.9028;
+    private static final double ORIGIN_LON = 12.4964;
+
+    private final Map<String, Track> tracks = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Observation> pending = new ConcurrentLinkedQueue<>();
+    private final Map<String, ShapeGeometry> shapes = new ConcurrentHashMap<>();
+
+    private final Object slotLock = new Object();
+    private int[] freeSlots = new int[64];
+    private int freeCount;
+    private int slotCount;
+
+    // Scritti solo dal thread di animazione
+    private float[][] buffers = new float[BUFFERS][0];
+    private int nextBuffer;
+    private long lastEviction;
+    private boolean evicted;
+    private int failedFrames;       // Frame falliti dall'ultimo errore riportato
+    private long lastErrorReport;
+
+    private volatile Frame frame = Frame.EMPTY;
+    private volatile double[] viewport; // minLat, minLon, maxLat, maxLon
+
+    private ScheduledExecutorService scheduler;
+
+    private VehicleAnimationEngine() {
+        // Gli shape in cache si ricostruiscono su richiesta: il budget "shapes" può svuotarli
+        MemoryGovernor.getInstance().register("shapes", "animation-shapes",
+            new GovernedMap<>(shapes, ShapeGeometry::footprint));
+        // Dati statici ricaricati: gli shape_id possono puntare a geometrie diverse
+        ArrivalPredictionEngine.getInstance().addBoardListener(new ArrivalPredictionEngine.BoardListener() {
+            @Override
+            public void onBoardsChanged(Set<String> stopIds) {
+                // Le tabelle di arrivo non toccano la geometria
+            }
+
+            @Override
+            public void onStaticDataReloaded() {
+                clearShapeCache();
+            }
+        });
+    }
+
+    public static synchronized VehicleAnimationEngine getInstance() {
+        if (instance == null) {
+            instance = new VehicleAnimationEngine();
+        }
+        return instance;
+    }
+
+    // ===== Input =====
+
+    /**
+     * Registra una nuova posizione osservata; il calcolo avviene sul thread di animazione
+     * @return handle del veicolo da usare per leggere il frame
+     */
+    public Track observe(VehiclePosition position) {
+        if (position == null || position.getVehicleId() == null) {
+            return null;
+        }
+
+        Track track = tracks.computeIfAbsent(position.getVehicleId(), id -> new Track(id, allocateSlot()));
+        pending.add(new Observation(track, position, System.currentTimeMillis()));
+        ensureStarted();
+        return track;
+    }
+
+    /**
+     * Area visibile della mappa: i veicoli fuori non vengono calcolati
+     */
+    public void setViewport(double minLat, double minLon, double maxLat, double maxLon) {
+        double[] current = viewport;
+        if (current != null && current[0] == minLat && current[1] == minLon
+                && current[2] == maxLat && current[3] == maxLon) {
+            return;
+        }
+        viewport = new double[]{minLat, minLon, maxLat, maxLon};
+    }
+
+    // ===== Output =====
+
+    public Frame getFrame() {
+        return frame;
+    }
+
+    /**
+     * Posizione animata del veicolo nel frame corrente
+     * @param out riceve lat, lon, bearing
+     * @return false se il veicolo non è nel frame (fuori viewport o non ancora calcolato)
+     */
+    public boolean positionOf(Track track, double[] out) {
+        if (track == null || track.released) {
+            return false;
+        }
+        return frame.read(track.slot, out);
+    }
+
+    public int getTrackCount() {
+        return tracks.size();
+    }
+
+    public void shutdown() {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdownNow();
+                scheduler = null;
+            }
+        }
+    }
+
+    // ===== Animation thread =====
+
+    private synchronized void ensureStarted() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "VehicleAnimation");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(this::computeFrameSafely, 0, FRAME_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        System.out.println("🎞️ Vehicle animation engine started (" + (1000 / FRAME_INTERVAL_MS) + " FPS)");
+    }
+
+    private void computeFrameSafely() {
+        long now = System.currentTimeMillis();
+        try {
+            computeFrame(now);
+        } catch (Exception e) {
+            // A 30 FPS un errore persistente si ripete ad ogni frame: si riporta il primo,
+            // poi uno ogni ERROR_REPORT_INTERVAL_MS con il conteggio dei frame falliti
+            failedFrames++;
+            if (lastErrorReport == 0 || now - lastErrorReport >= ERROR_REPORT_INTERVAL_MS) {
+                System.err.println("❌ Vehicle animation frame failed (" + failedFrames
+                    + (failedFrames == 1 ? " frame" : " frames") + " since last report): " + e.getMessage());
+                failedFrames = 0;
+                lastErrorReport = now;
+            }
+        }
+    }
+
+    void computeFrame(long now) {
+        Observation observation;
+        while ((observation = pending.poll()) != null) {
+            apply(observation);
+        }
+
+        if (now - lastEviction > 1000) {
+            evictStale(now);
+            lastEviction = now;
+        }
+
+        int capacity;
+        synchronized (slotLock) {
+            capacity = slotCount;
+        }
+        if (tracks.isEmpty() && frame.count == 0) {
+            return;
+        }
+
+        float[] data = buffers[nextBuffer];
+        if (data.length < capacity * STRIDE) {
+            data = new float[Math.max(capacity * STRIDE, data.length * 2)];
+            buffers[nextBuffer] = data;
+        }
+        java.util.Arrays.fill(data, 0, capacity * STRIDE, Float.NaN);
+
+        double[] bounds = viewport;
+        double[] point = new double[3];
+        Frame previous = frame;
+        boolean moved = previous.count != capacity || evicted;
+        evicted = false;
+
+        for (Track track : tracks.values()) {
+            Motion motion = track.motion;
+            if (motion == null || !inside(bounds, motion.lat, motion.lon)) {
+                continue;
+            }
+            motion.positionAt(now, point);
+            int base = track.slot * STRIDE;
+            data[base] = (float) (point[0] - ORIGIN_LAT);
+            data[base + 1] = (float) (point[1] - ORIGIN_LON);
+            data[base + 2] = (float) point[2];
+
+            if (!moved && (previous.data.length <= base + 2
+                    || Float.compare(previous.data[base], data[base]) != 0
+                    || Float.compare(previous.data[base + 1], data[base + 1]) != 0)) {
+                moved = true;
+            }
+        }
+
+        // Nessun veicolo si è spostato: il frame corrente resta valido e la mappa non viene ridisegnata
+        if (!moved) {
+            return;
+        }
+
+        frame = new Frame(data, capacity, previous.sequence + 1);
+        nextBuffer = (nextBuffer + 1) % BUFFERS;
+    }
+
+    private static boolean inside(double[] bounds, double lat, double lon) {
+        return bounds == null
+            || (lat >= bounds[0] && lat <= bounds[2] && lon >= bounds[1] && lon <= bounds[3]);
+    }
+
+    private void apply(Observation observation) {
+        Track track = observation.track;
+        if (track.released) {
+            return;
+        }
+
+        VehiclePosition position = observation.position;
+        Motion previous = track.motion;
+        long now = observation.receivedAt;
+
+        // Stessa posizione registrata di nuovo (più marker per lo stesso veicolo): nessun cambio di moto
+        if (previous != null && position.getTimestamp() > 0 && previous.feedTimestamp == position.getTimestamp()
+                && previous.lat == position.getLatitude() && previous.lon == position.getLongitude()) {
+            return;
+        }
+
+        ShapeGeometry shape = shapeForTrip(position);
+        double[] snapped = null;
+        if (shape != null) {
+            double hint = previous != null && previous.shape == shape ? previous.distance : -1;
+            snapped = shape.snap(position.getLatitude(), position.getLongitude(), hint);
+            if (snapped[1] > SNAP_TOLERANCE_M) {
+                snapped = null;
+            }
+        }
+
+        double[] rendered = new double[3];
+        if (previous != null) {
+            previous.positionAt(now, rendered);
+        }
+
+        Motion motion;
+        if (snapped != null) {
+            double distance = snapped[0];
+            double speed = 0;
+            double offset = 0;
+
+            if (previous != null && previous.shape == shape) {
+                long dtMillis = position.getTimestamp() > 0 && previous.feedTimestamp > 0
+                    ? (position.getTimestamp() - previous.feedTimestamp) * 1000
+                    : now - previous.observedAt;
+                if (dtMillis > 0) {
+                    speed = (distance - previous.distance) * 1000.0 / dtMillis;
+                }
+                if (position.getSpeed() > 0) {
+                    speed = speed > 0 ? (speed + position.getSpeed()) / 2 : position.getSpeed();
+                }
+                speed = Math.max(0, Math.min(speed, MAX_SPEED_MS));
+                offset = previous.renderedDistanceAt(now) - distance;
+            } else if (position.getSpeed() > 0) {
+                speed = Math.min(position.getSpeed(), MAX_SPEED_MS);
+            }
+
+            motion = new Motion(shape, distance, speed, offset, now, position.getTimestamp(),
+                position.getLatitude(), position.getLongitude(), 0, 0, position.getBearing());
+        } else {
+            double fromLat = previous != null ? rendered[0] - position.getLatitude() : 0;
+            double fromLon = previous != null ? rendered[1] - position.getLongitude() : 0;
+            motion = new Motion(null, 0, 0, 0, now, position.getTimestamp(),
+                position.getLatitude(), position.getLongitude(), fromLat, fromLon, position.getBearing());
+        }
+        track.motion = motion;
+    }
+
+    private ShapeGeometry shapeForTrip(VehiclePosition position) {
+        if (position.getTripId() == null) {
+            return null;
+        }
+        Trip trip = GTFSDataManager.getInstance().getTripOf(position);
+        if (trip == null || trip.getShapeId() == null) {
+            return null;
+        }
+        ShapeGeometry geometry = shapes.computeIfAbsent(trip.getShapeId(), shapeId -> {
+            List<Shape> points = GTFSDataManager.getInstance().getShapePoints(shapeId);
+            return points.size() < 2 ? ShapeGeometry.NONE : new ShapeGeometry(points);
+        });
+        return geometry == ShapeGeometry.NONE ? null : geometry;
+    }
+
+    private void evictStale(long now) {
+        Iterator<Track> iterator = tracks.values().iterator();
+        while (iterator.hasNext()) {
+            Track track = iterator.next();
+            Motion motion = track.motion;
+            if (motion != null && now - motion.observedAt > STALE_TRACK_MS) {
+                iterator.remove();
+                track.released = true;
+                releaseSlot(track.slot);
+                evicted = true;
+            }
+        }
+    }
+
+    /**
+     * Dimentica gli shape in cache (dopo un ricaricamento dei dati statici)
+     */
+    public void clearShapeCache() {
+        shapes.clear();
+    }
+
+    // ===== Slots =====
+
+    private int allocateSlot() {
+        synchronized (slotLock) {
+            if (freeCount > 0) {
+                return freeSlots[--freeCount];
+            }
+            return slotCount++;
+        }
+    }
+
+    private void releaseSlot(int slot) {
+        synchronized (slotLock) {
+            if (freeCount == freeSlots.length) {
+                freeSlots = java.util.Arrays.copyOf(freeSlots, freeCount * 2);
+            }
+            freeSlots[freeCount++] = slot;
+        }
+    }
+
+    // ===== Data structures =====
+
+    /**
+     * Veicolo animato: slot fisso nel buffer e ultimo stato di moto
+     */
+    public static class Track {
+        final String vehicleId;
+        final int slot;
+        volatile Motion motion;
+        volatile boolean released;
+
+        Track(String vehicleId, int slot) {
+            this.vehicleId = vehicleId;
+            this.slot = slot;
+        }
+
+        public String getVehicleId() {
+            return vehicleId;
+        }
+
+        public boolean isReleased() {
+            return released;
+        }
+    }
+
+    private static class Observation {
+        final Track track;
+        final VehiclePosition position;
+        final long receivedAt;
+
+        Observation(Track track, VehiclePosition position, long receivedAt) {
+            this.track = track;
+            this.position = position;
+            this.receivedAt = receivedAt;
+        }
+    }
+
+    /**
+     * Stato di moto immutabile dall'ultima osservazione.
+     * Su shape: distanza + velocità (m/s) con un offset che si annulla in BLEND_MS;
+     * fuori shape: posizione osservata con raccordo lineare dalla posizione precedente.
+     */
+    static class Motion {
+        final ShapeGeometry shape;
+        final double distance;
+        final double speed;
+        final double offset;
+        final long observedAt;
+        final long feedTimestamp;
+        final double lat;
+        final double lon;
+        final double fromLatOffset;
+        final double fromLonOffset;
+        final double bearing;
+
+        Motion(ShapeGeometry shape, double distance, double speed, double offset, long observedAt,
+               long feedTimestamp, double lat, double lon, double fromLatOffset, double fromLonOffset,
+               double bearing) {
+            this.shape = shape;
+            this.distance = distance;
+            this.speed = speed;
+            this.offset = offset;
+            this.observedAt = observedAt;
+            this.feedTimestamp = feedTimestamp;
+            this.lat = lat;
+            this.lon = lon;
+            this.fromLatOffset = fromLatOffset;
+            this.fromLonOffset = fromLonOffset;
+            this.bearing = bearing;
+        }
+
+        private double blend(long now) {
+            long elapsed = now - observedAt;
+            return elapsed >= BLEND_MS ? 0 : 1.0 - (double) Math.max(elapsed, 0) / BLEND_MS;
+        }
+
+        double renderedDistanceAt(long now) {
+            long elapsed = Math.max(0, Math.min(now - observedAt, MAX_EXTRAPOLATION_MS));
+            double d = distance + speed * elapsed / 1000.0 + offset * blend(now);
+            return Math.max(0, Math.min(d, shape.length()));
+        }
+
+        void positionAt(long now, double[] out) {
+            if (shape != null) {
+                shape.pointAt(renderedDistanceAt(now), out);
+            } else {
+                double weight = blend(now);
+                out[0] = lat + fromLatOffset * weight;
+                out[1] = lon + fromLonOffset * weight;
+                out[2] = bearing;
+            }
+        }
+    }
+
+    /**
+     * Buffer pubblicato: per ogni slot lat/lon relativi all'origine e bearing, NaN se assente.
+     * I buffer ruotano su tre array, quindi un frame resta valido per tutta la durata di un repaint.
+     */
+    public static class Frame {
+        static final Frame EMPTY = new Frame(new float[0], 0, 0);
+
+        final float[] data;
+        final int count;
+        public final long sequence;
+
+        Frame(float[] data, int count, long sequence) {
+            this.data = data;
+            this.count = count;
+            this.sequence = sequence;
+        }
+
+        boolean read(int slot, double[] out) {
+            if (slot >= count) {
+                return false;
+            }
+            int base = slot * STRIDE;
+            float lat = data[base];
+            if (Float.isNaN(lat)) {
+                return false;
+            }
+            out[0] = ORIGIN_LAT + lat;
+            out[1] = ORIGIN_LON + data[base + 1];
+            out[2] = data[base + 2];
+            return true;
+        }
+    }
+
+    /**
+     * Shape di una corsa proiettato in metri (equirettangolare locale) con distanze cumulate
+     */
+    static class ShapeGeometry {
+        static final ShapeGeometry NONE = new ShapeGeometry();
+
+        private static final double METERS_PER_DEG_LAT = 110_540.0;
+
+        final double[] lat;
+        final double[] lon;
+        final double[] x;
+        final double[] y;
+        final double[] cumulative;
+        final double metersPerDegLon;
+
+        private ShapeGeometry() {
+            lat = lon = x = y = cumulative = new double[0];
+            metersPerDegLon = 0;
+        }
+
+        ShapeGeometry(List<Shape> points) {
+            int n = points.size();
+            lat = new double[n];
+            lon = new double[n];
+            x = new double[n];
+            y = new double[n];
+            cumulative = new double[n];
+            metersPerDegLon = 111_320.0 * Math.cos(Math.toRadians(points.get(0).getShapePtLat()));
+
+            for (int i = 0; i < n; i++) {
+                lat[i] = points.get(i).getShapePtLat();
+                lon[i] = points.get(i).getShapePtLon();
+                x[i] = lon[i] * metersPerDegLon;
+                y[i] = lat[i] * METERS_PER_DEG_LAT;
+                if (i > 0) {
+                    cumulative[i] = cumulative[i - 1] + Math.hypot(x[i] - x[i - 1], y[i] - y[i - 1]);
+                }
+            }
+        }
+
+        double length() {
+            return cumulative[cumulative.length - 1];
+        }
+
+        long footprint() {
+            return 96 + lat.length * 40L;
+        }
+
+        /**
+         * Proiezione sullo shape
+         * @param hint distanza precedente del veicolo, -1 per cercare su tutto lo shape
+         * @return {distanza lungo lo shape, distanza dal punto in metri}
+         */
+        double[] snap(double pointLat, double pointLon, double hint) {
+            double px = pointLon * metersPerDegLon;
+            double py = pointLat * METERS_PER_DEG_LAT;
+
+            if (hint >= 0) {
+                double[] near = snapBetween(px, py, hint - SEARCH_BEHIND_M, hint + SEARCH_AHEAD_M);
+                if (near[1] <= SNAP_TOLERANCE_M) {
+                    return near;
+                }
+            }
+            return snapBetween(px, py, 0, Double.MAX_VALUE);
+        }
+
+        private double[] snapBetween(double px, double py, double fromDistance, double toDistance) {
+            int first = Math.max(segmentAt(fromDistance), 0);
+            double bestDist2 = Double.MAX_VALUE;
+            double bestAlong = 0;
+
+            for (int i = first; i < x.length - 1 && cumulative[i] <= toDistance; i++) {
+                double dx = x[i + 1] - x[i];
+                double dy = y[i + 1] - y[i];
+                double len2 = dx * dx + dy * dy;
+                double t = len2 > 0 ? ((px - x[i]) * dx + (py - y[i]) * dy) / len2 : 0;
+                t = Math.max(0, Math.min(1, t));
+                double qx = x[i] + t * dx - px;
+                double qy = y[i] + t * dy - py;
+                double dist2 = qx * qx + qy * qy;
+                if (dist2 < bestDist2) {
+                    bestDist2 = dist2;
+                    bestAlong = cumulative[i] + t * (cumulative[i + 1] - cumulative[i]);
+                }
+            }
+            return new double[]{bestAlong, Math.sqrt(bestDist2)};
+        }
+
+        /**
+         * Indice del segmento che contiene la distanza (ricerca binaria sulle cumulate)
+         */
+        private int segmentAt(double distance) {
+            int lo = 0;
+            int hi = cumulative.length - 1;
+            while (lo < hi) {
+                int mid = (lo + hi + 1) >>> 1;
+                if (cumulative[mid] <= distance) {
+                    lo = mid;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return Math.min(lo, cumulative.length - 2);
+        }
+
+        /**
+         * Punto e direzione alla distanza data
+         */
+        void pointAt(double distance, double[] out) {
+            int i = segmentAt(distance);
+            double segment = cumulative[i + 1] - cumulative[i];
+            double t = segment > 0 ? (distance - cumulative[i]) / segment : 0;
+            out[0] = lat[i] + (lat[i + 1] - lat[i]) * t;
+            out[1] = lon[i] + (lon[i + 1] - lon[i]) * t;
+            double bearing = Math.toDegrees(Math.atan2(x[i + 1] - x[i], y[i + 1] - y[i]));
+            out[2] = bearing < 0 ? bearing + 360 : bearing;
+        }
+    }
+}
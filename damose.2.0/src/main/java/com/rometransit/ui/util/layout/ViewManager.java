@@ -1,5 +1,6 @@
 package com.rometransit.ui.util.layout;
 
+import com.rometransit.service.memory.MemoryGovernor;
 import com.rometransit.ui.frontend.ViewBase;
 import com.rometransit.util.logging.Logger;
 
@@ -18,7 +19,7 @@ import java.util.List;
  *   <li>Tracks currently active (visible) views</li>
  *   <li>Uses weak references for inactive views to allow garbage collection</li>
  *   <li>Automatically disposes views when they become inactive</li>
- *   <li>Suggests garbage collection after disposing heavy views (WebView-based)</li>
+ *   <li>Asks the memory governor to re-check cache budgets after disposing views</li>
  *   <li>Provides memory usage monitoring</li>
  * </ul>
  *
@@ -50,9 +51,6 @@ public class ViewManager {
     // List of all registered views (using weak references for inactive ones)
     private final List<WeakReference<ViewBase>> registeredViews;
 
-    // Memory threshold for suggesting garbage collection (in MB)
-    private static final long GC_THRESHOLD_MB = 100;
-
     /**
      * Private constructor for singleton pattern.
      */
@@ -158,9 +156,9 @@ public class ViewManager {
 
         logger.info("Disposed " + disposedCount + " inactive views");
 
-        // Suggest GC if we disposed views
+        // Let the governor re-check the caches now that the views are gone
         if (disposedCount > 0) {
-            suggestGarbageCollection();
+            MemoryGovernor.getInstance().checkNow();
         }
     }
 
@@ -189,20 +187,6 @@ public class ViewManager {
         registeredViews.removeIf(ref -> ref.get() == null);
     }
 
-    /**
-     * Suggests garbage collection if memory usage is high.
-     * This is only a suggestion; the JVM decides when to actually run GC.
-     */
-    private void suggestGarbageCollection() {
-        Runtime runtime = Runtime.getRuntime();
-        long usedMemory = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
-
-        if (usedMemory > GC_THRESHOLD_MB) {
-            logger.info("High memory usage (" + usedMemory + " MB), suggesting garbage collection");
-            System.gc();
-        }
-    }
-
     /**
      * Logs current memory usage for monitoring.
      */
@@ -247,6 +231,5 @@ public class ViewManager {
         activeView = null;
 
         logger.info("All views disposed");
-        suggestGarbageCollection();
     }
 }
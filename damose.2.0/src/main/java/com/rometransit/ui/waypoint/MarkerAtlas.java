@@ -0,0 +1,140 @@
+package com.rometransit.ui.waypoint;
+
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Atlas dei marker della mappa.
+ *
+ * Ogni variante (colore, reale/simulato, bearing in 16 settori, dimensione per zoom) viene
+ * disegnata una sola volta con il codice vettoriale dei waypoint in una WritableImage;
+ * in rendering ogni marker è un singolo drawImage dalla cella corrispondente.
+ * I fogli sono creati al primo uso, sul thread FX.
+ */
+public final class MarkerAtlas {
+
+    /** Zoom minimo per disegnare le label di veicoli e fermate */
+    public static final int LABEL_MIN_ZOOM = 14;
+
+    static final int BEARING_BUCKETS = 16;
+    private static final int VEHICLE_COLUMNS = BEARING_BUCKETS + 1; // 0 = senza freccia
+    private static final int MIN_VEHICLE_ZOOM = 12;                 // Sotto, raggio base
+    private static final int MAX_VEHICLE_ZOOM = 18;
+    private static final int[] STOP_ZOOMS = {0, 12, 14, 16};         // Soglie di getMarkerRadius
+
+    // Solo thread FX
+    private static final Map<String, Sheet> sheets = new HashMap<>();
+
+    private MarkerAtlas() {}
+
+    /**
+     * Foglio dei marker veicolo per colore e raggio base
+     */
+    public static Sheet vehicleSheet(Color color, double baseRadius) {
+        return sheets.computeIfAbsent("vehicle|" + color + "|" + baseRadius, key -> buildVehicleSheet(color, baseRadius));
+    }
+
+    /**
+     * Foglio dei marker fermata per colore
+     */
+    public static Sheet stopSheet(Color color) {
+        return sheets.computeIfAbsent("stop|" + color, key -> buildStopSheet(color));
+    }
+
+    /**
+     * Settore di bearing (1..16, il 16 è il nord), 0 se il veicolo non ha direzione
+     */
+    static int bearingBucket(double bearing) {
+        if (!(bearing > 0)) {
+            return 0;
+        }
+        int bucket = (int) Math.round(bearing / (360.0 / BEARING_BUCKETS)) % BEARING_BUCKETS;
+        return bucket == 0 ? BEARING_BUCKETS : bucket;
+    }
+
+    private static Sheet buildVehicleSheet(Color color, double baseRadius) {
+        int rows = MAX_VEHICLE_ZOOM - MIN_VEHICLE_ZOOM + 1;
+        double maxRadius = VehicleMarkerWaypoint.radiusAt(baseRadius, MAX_VEHICLE_ZOOM);
+        // Freccia lunga 1.5 raggi più la punta
+        int cell = (int) Math.ceil(maxRadius * 3 + 12) + 2;
+
+        Canvas canvas = new Canvas(cell * VEHICLE_COLUMNS * 2, cell * rows);
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        for (int row = 0; row < rows; row++) {
+            double radius = VehicleMarkerWaypoint.radiusAt(baseRadius, MIN_VEHICLE_ZOOM + row);
+            for (int column = 0; column < VEHICLE_COLUMNS * 2; column++) {
+                int bucket = column % VEHICLE_COLUMNS;
+                boolean simulated = column >= VEHICLE_COLUMNS;
+                double bearing = bucket * (360.0 / BEARING_BUCKETS);
+                VehicleMarkerWaypoint.drawVector(gc, column * cell + cell / 2.0, row * cell + cell / 2.0,
+                    radius, color, simulated, bearing);
+            }
+        }
+        return new Sheet(snapshot(canvas), cell);
+    }
+
+    private static Sheet buildStopSheet(Color color) {
+        double maxRadius = StopMarkerWaypoint.getMarkerRadius(STOP_ZOOMS[STOP_ZOOMS.length - 1]);
+        int cell = (int) Math.ceil(maxRadius * 3.6) + 4;
+
+        Canvas canvas = new Canvas(cell, cell * STOP_ZOOMS.length);
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        for (int row = 0; row < STOP_ZOOMS.length; row++) {
+            StopMarkerWaypoint.drawVector(gc, cell / 2.0, row * cell + cell / 2.0,
+                StopMarkerWaypoint.getMarkerRadius(STOP_ZOOMS[row]), color);
+        }
+        return new Sheet(snapshot(canvas), cell);
+    }
+
+    private static WritableImage snapshot(Canvas canvas) {
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        WritableImage image = new WritableImage((int) canvas.getWidth(), (int) canvas.getHeight());
+        return canvas.snapshot(parameters, image);
+    }
+
+    /**
+     * Immagine con le varianti di un marker disposte a griglia di celle quadrate
+     */
+    public static final class Sheet {
+        private final WritableImage image;
+        private final int cell;
+        private final double half;
+
+        Sheet(WritableImage image, int cell) {
+            this.image = image;
+            this.cell = cell;
+            this.half = cell / 2.0;
+        }
+
+        public void drawVehicle(GraphicsContext gc, int zoom, boolean simulated, double bearing,
+                                double screenX, double screenY) {
+            int row = Math.max(0, Math.min(zoom, MAX_VEHICLE_ZOOM) - MIN_VEHICLE_ZOOM);
+            int column = bearingBucket(bearing) + (simulated ? VEHICLE_COLUMNS : 0);
+            draw(gc, column, row, screenX, screenY);
+        }
+
+        public void drawStop(GraphicsContext gc, int zoom, double screenX, double screenY) {
+            int row = 0;
+            while (row + 1 < STOP_ZOOMS.length && zoom >= STOP_ZOOMS[row + 1]) {
+                row++;
+            }
+            draw(gc, 0, row, screenX, screenY);
+        }
+
+        private void draw(GraphicsContext gc, int column, int row, double screenX, double screenY) {
+            gc.drawImage(image, column * cell, row * cell, cell, cell,
+                         screenX - half, screenY - half, cell, cell);
+        }
+
+        public WritableImage getImage() {
+            return image;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.rometransit.ui.waypoint;
+
+import com.rometransit.model.dto.VehiclePosition;
+import com.rometransit.model.entity.Stop;
+import com.rometransit.ui.map.PointClusterIndex;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+import javafx.scene.text.TextAlignment;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Livello con tutte le fermate e tutti i veicoli della rete.
+ *
+ * A zoom bassi fermate e veicoli vicini sono raggruppati in bolle con il conteggio;
+ * zoomando le bolle si scompongono fino ai marker singoli (StopMarkerWaypoint e
+ * VehicleMarkerWaypoint, quindi atlas e animazione). Ogni frame interroga solo le celle
+ * del viewport, non l'intera rete.
+ * L'indice delle fermate si costruisce una volta (anche fuori dal thread FX), quello
+ * dei veicoli si aggiorna in modo incrementale a ogni poll.
+ */
+public class NetworkOverviewWaypoint extends Waypoint implements ViewportAware {
+
+    /** Ultimo zoom con fermate raggruppate */
+    public static final int STOP_CLUSTER_MAX_ZOOM = 15;
+    /** Ultimo zoom con veicoli raggruppati */
+    public static final int VEHICLE_CLUSTER_MAX_ZOOM = 13;
+
+    private static final double STOP_CLUSTER_RADIUS = 60;
+    private static final double VEHICLE_CLUSTER_RADIUS = 50;
+
+    private static final Color STOP_COLOR = Color.web("#3498db");
+    private static final Color VEHICLE_COLOR = Color.web("#27ae60");
+    private static final Font COUNT_FONT = Font.font("Arial", FontWeight.BOLD, 11);
+
+    // Sostituito in blocco da setStops, letto dal thread FX
+    private volatile PointClusterIndex<StopMarkerWaypoint> stopIndex =
+        new PointClusterIndex<>(STOP_CLUSTER_MAX_ZOOM, STOP_CLUSTER_RADIUS);
+    // Solo thread FX
+    private final PointClusterIndex<VehicleMarkerWaypoint> vehicleIndex =
+        new PointClusterIndex<>(VEHICLE_CLUSTER_MAX_ZOOM, VEHICLE_CLUSTER_RADIUS);
+
+    private double minLat = -85;
+    private double minLon = -180;
+    private double maxLat = 85;
+    private double maxLon = 180;
+
+    public NetworkOverviewWaypoint() {
+        super("network_overview");
+    }
+
+    // ===== Data =====
+
+    /**
+     * Costruisce l'indice delle fermate; può essere chiamato da un thread di background
+     */
+    public void setStops(Collection<Stop> stops) {
+        PointClusterIndex<StopMarkerWaypoint> index =
+            new PointClusterIndex<>(STOP_CLUSTER_MAX_ZOOM, STOP_CLUSTER_RADIUS);
+        for (Stop stop : stops) {
+            if (stop.getStopLat() == 0 && stop.getStopLon() == 0) {
+                continue;
+            }
+            index.put(stop.getStopId(), new StopMarkerWaypoint(stop), stop.getStopLat(), stop.getStopLon());
+        }
+        this.stopIndex = index;
+    }
+
+    /**
+     * Allinea i veicoli all'ultimo poll: aggiunge, sposta e rimuove solo quelli cambiati
+     */
+    public void updateVehicles(List<VehiclePosition> positions) {
+        Set<String> seen = new HashSet<>();
+        for (VehiclePosition position : positions) {
+            String vehicleId = position.getVehicleId();
+            if (vehicleId == null || !seen.add(vehicleId)) {
+                continue;
+            }
+            VehicleMarkerWaypoint marker = vehicleIndex.get(vehicleId);
+            if (marker == null) {
+                marker = new VehicleMarkerWaypoint("vehicle_" + vehicleId, position);
+            } else {
+                marker.updatePosition(position);
+            }
+            vehicleIndex.put(vehicleId, marker, position.getLatitude(), position.getLongitude());
+        }
+
+        for (String vehicleId : vehicleIndex.ids()) {
+            if (!seen.contains(vehicleId)) {
+                vehicleIndex.remove(vehicleId);
+            }
+        }
+    }
+
+    public int getStopCount() {
+        return stopIndex.size();
+    }
+
+    public int getVehicleCount() {
+        return vehicleIndex.size();
+    }
+
+    // ===== Rendering =====
+
+    @Override
+    public void setViewport(double minLat, double minLon, double maxLat, double maxLon) {
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.maxLat = maxLat;
+        this.maxLon = maxLon;
+    }
+
+    @Override
+    public void render(GraphicsContext gc, int zoom, GeoToScreenConverter geoToScreenConverter) {
+        render(gc, zoom, geoToScreenConverter, null);
+    }
+
+    @Override
+    public void render(GraphicsContext gc, int zoom, GeoToScreenConverter geoToScreenConverter, ScreenHitGrid hits) {
+        if (!visible) {
+            return;
+        }
+
+        // Fermate sotto, veicoli sopra
+        stopIndex.query(zoom, minLat, minLon, maxLat, maxLon, new PointClusterIndex.Visitor<>() {
+            @Override
+            public void cluster(int count, double lat, double lon) {
+                drawBubble(gc, geoToScreenConverter.convert(lat, lon), count, STOP_COLOR);
+            }
+
+            @Override
+            public void point(StopMarkerWaypoint marker, double lat, double lon) {
+                marker.render(gc, zoom, geoToScreenConverter, hits);
+            }
+        });
+
+        vehicleIndex.query(zoom, minLat, minLon, maxLat, maxLon, new PointClusterIndex.Visitor<>() {
+            @Override
+            public void cluster(int count, double lat, double lon) {
+                drawBubble(gc, geoToScreenConverter.convert(lat, lon), count, VEHICLE_COLOR);
+            }
+
+            @Override
+            public void point(VehicleMarkerWaypoint marker, double lat, double lon) {
+                marker.render(gc, zoom, geoToScreenConverter, hits);
+            }
+        });
+    }
+
+    /**
+     * Bolla di cluster: dimensione crescente col logaritmo del conteggio
+     */
+    private static void drawBubble(GraphicsContext gc, double[] screen, int count, Color color) {
+        double radius = Math.min(26, 10 + 3 * Math.log(count));
+        double x = screen[0];
+        double y = screen[1];
+
+        gc.setFill(color.deriveColor(0, 1, 1, 0.3));
+        gc.fillOval(x - radius - 4, y - radius - 4, (radius + 4) * 2, (radius + 4) * 2);
+
+        gc.setFill(color);
+        gc.fillOval(x - radius, y - radius, radius * 2, radius * 2);
+
+        gc.setStroke(Color.WHITE);
+        gc.setLineWidth(2);
+        gc.strokeOval(x - radius, y - radius, radius * 2, radius * 2);
+
+        gc.setFill(Color.WHITE);
+        gc.setFont(COUNT_FONT);
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.CENTER);
+        gc.fillText(formatCount(count), x, y);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.setTextBaseline(VPos.BASELINE);
+    }
+
+    private static String formatCount(int count) {
+        if (count >= 10_000) {
+            return (count / 1000) + "k";
+        }
+        if (count >= 1000) {
+            return String.format("%.1fk", count / 1000.0);
+        }
+        return String.valueOf(count);
+    }
+}
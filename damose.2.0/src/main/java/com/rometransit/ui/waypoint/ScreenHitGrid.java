@@ -0,0 +1,173 @@
+package com.rometransit.ui.waypoint;
+
+import java.util.Arrays;
+
+/**
+ * Screen-space grid of the markers drawn in the last render pass
+ *
+ * Markers register their projected position while they render, so picking under the
+ * cursor never re-projects or scans the waypoint list: a query only looks at the cells
+ * around the point. Cleared and refilled on every repaint; FX thread only.
+ */
+public final class ScreenHitGrid {
+
+    private static final int CELL_SIZE = 32;
+    /** Largest marker radius considered by queries */
+    private static final double MAX_MARKER_RADIUS = 16;
+
+    private double width;
+    private double height;
+    private int columns;
+    private int rows;
+    private int[] cellHeads;
+
+    // Entries as parallel arrays, chained per cell
+    private int size;
+    private double[] xs = new double[256];
+    private double[] ys = new double[256];
+    private double[] radii = new double[256];
+    private int[] next = new int[256];
+    private Waypoint[] targets = new Waypoint[256];
+
+    // Waypoint followed across repaints (hover highlight)
+    private Waypoint tracked;
+    private int trackedIndex = -1;
+
+    public ScreenHitGrid(double width, double height) {
+        resize(width, height);
+    }
+
+    /**
+     * Adapt the grid to the view size; entries are dropped
+     */
+    public void resize(double width, double height) {
+        this.width = width;
+        this.height = height;
+        columns = Math.max(1, (int) Math.ceil(width / CELL_SIZE));
+        rows = Math.max(1, (int) Math.ceil(height / CELL_SIZE));
+        cellHeads = new int[columns * rows];
+        clear();
+    }
+
+    /**
+     * Start a new render pass
+     */
+    public void clear() {
+        Arrays.fill(cellHeads, -1);
+        Arrays.fill(targets, 0, size, null);
+        size = 0;
+        trackedIndex = -1;
+    }
+
+    /**
+     * Register a marker drawn at the given screen position. A marker centred just off screen
+     * whose icon still shows at the edge goes in the nearest edge cell; markers entirely off
+     * screen are ignored.
+     */
+    public void add(Waypoint target, double screenX, double screenY, double radius) {
+        if (screenX + radius < 0 || screenY + radius < 0 || screenX - radius > width || screenY - radius > height) {
+            return;
+        }
+        int cx = Math.max(0, Math.min(columns - 1, (int) Math.floor(screenX / CELL_SIZE)));
+        int cy = Math.max(0, Math.min(rows - 1, (int) Math.floor(screenY / CELL_SIZE)));
+
+        if (size == xs.length) {
+            int capacity = size * 2;
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            radii = Arrays.copyOf(radii, capacity);
+            next = Arrays.copyOf(next, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+        }
+
+        int cell = cy * columns + cx;
+        xs[size] = screenX;
+        ys[size] = screenY;
+        radii[size] = radius;
+        targets[size] = target;
+        next[size] = cellHeads[cell];
+        cellHeads[cell] = size;
+        if (target == tracked) {
+            trackedIndex = size;
+        }
+        size++;
+    }
+
+    /**
+     * Nearest marker whose edge is within maxDistance pixels of the point, drawn last wins on ties
+     * @return the marker or null
+     */
+    public Waypoint nearest(double screenX, double screenY, double maxDistance) {
+        int reach = (int) Math.ceil((maxDistance + MAX_MARKER_RADIUS) / CELL_SIZE);
+        int cx = (int) Math.floor(screenX / CELL_SIZE);
+        int cy = (int) Math.floor(screenY / CELL_SIZE);
+
+        Waypoint best = null;
+        int bestIndex = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int y = Math.max(0, cy - reach); y <= Math.min(rows - 1, cy + reach); y++) {
+            for (int x = Math.max(0, cx - reach); x <= Math.min(columns - 1, cx + reach); x++) {
+                for (int i = cellHeads[y * columns + x]; i != -1; i = next[i]) {
+                    double dx = xs[i] - screenX;
+                    double dy = ys[i] - screenY;
+                    double distance = Math.sqrt(dx * dx + dy * dy) - Math.min(radii[i], MAX_MARKER_RADIUS);
+                    if (distance > maxDistance) {
+                        continue;
+                    }
+                    if (distance < bestDistance || (distance == bestDistance && i > bestIndex)) {
+                        bestDistance = distance;
+                        bestIndex = i;
+                        best = targets[i];
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // ===== Tracked marker =====
+
+    /**
+     * Follow a marker: its position is recorded by the next render passes
+     */
+    public void track(Waypoint target) {
+        tracked = target;
+        trackedIndex = -1;
+        if (target == null) {
+            return;
+        }
+        for (int i = size - 1; i >= 0; i--) {
+            if (targets[i] == target) {
+                trackedIndex = i;
+                return;
+            }
+        }
+    }
+
+    public Waypoint getTracked() {
+        return tracked;
+    }
+
+    /**
+     * Whether the tracked marker was drawn in the last render pass
+     */
+    public boolean isTrackedVisible() {
+        return trackedIndex >= 0;
+    }
+
+    public double getTrackedX() {
+        return trackedIndex >= 0 ? xs[trackedIndex] : Double.NaN;
+    }
+
+    public double getTrackedY() {
+        return trackedIndex >= 0 ? ys[trackedIndex] : Double.NaN;
+    }
+
+    public double getTrackedRadius() {
+        return trackedIndex >= 0 ? radii[trackedIndex] : 0;
+    }
+
+    public int size() {
+        return size;
+    }
+}
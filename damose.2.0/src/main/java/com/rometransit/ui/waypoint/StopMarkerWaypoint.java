@@ -17,6 +17,8 @@ public class StopMarkerWaypoint extends Waypoint {
     private final Color markerColor;
     private final boolean showLabel;
 
+    private static final Font LABEL_FONT = Font.font("Arial", FontWeight.BOLD, 10);
+
     /**
      * Costruttore con colore blu di default
      */
@@ -38,6 +40,11 @@ public class StopMarkerWaypoint extends Waypoint {
 
     @Override
     public void render(GraphicsContext gc, int zoom, GeoToScreenConverter geoToScreenConverter) {
+        render(gc, zoom, geoToScreenConverter, null);
+    }
+
+    @Override
+    public void render(GraphicsContext gc, int zoom, GeoToScreenConverter geoToScreenConverter, ScreenHitGrid hits) {
         if (!visible) {
             return;
         }
@@ -47,9 +54,22 @@ public class StopMarkerWaypoint extends Waypoint {
         double screenX = screenCoords[0];
         double screenY = screenCoords[1];
 
-        // Dimensione del pallino in base allo zoom
-        double radius = getMarkerRadius(zoom);
+        // Marker dall'atlas: un solo drawImage per fermata
+        MarkerAtlas.stopSheet(markerColor).drawStop(gc, zoom, screenX, screenY);
+        if (hits != null) {
+            hits.add(this, screenX, screenY, getMarkerRadius(zoom));
+        }
+
+        // Disegna il nome della fermata a zoom elevati
+        if (showLabel && zoom >= MarkerAtlas.LABEL_MIN_ZOOM) {
+            drawStopLabel(gc, screenX, screenY, getMarkerRadius(zoom));
+        }
+    }
 
+    /**
+     * Disegno vettoriale del marker, usato per pre-renderizzare l'atlas
+     */
+    static void drawVector(GraphicsContext gc, double screenX, double screenY, double radius, Color markerColor) {
         // Disegna alone esterno (glow effect) per migliore visibilità
         gc.setFill(markerColor.deriveColor(0, 1, 1, 0.3));
         gc.fillOval(screenX - radius * 1.8, screenY - radius * 1.8, radius * 3.6, radius * 3.6);
@@ -67,11 +87,6 @@ public class StopMarkerWaypoint extends Waypoint {
         double innerRadius = radius * 0.35;
         gc.setFill(Color.WHITE);
         gc.fillOval(screenX - innerRadius, screenY - innerRadius, innerRadius * 2, innerRadius * 2);
-
-        // Disegna il nome della fermata a zoom elevati
-        if (showLabel && zoom >= 14) {
-            drawStopLabel(gc, screenX, screenY, radius);
-        }
     }
 
     private void drawStopLabel(GraphicsContext gc, double screenX, double screenY, double radius) {
@@ -84,7 +99,7 @@ public class StopMarkerWaypoint extends Waypoint {
         }
 
         // Impostazioni testo
-        gc.setFont(Font.font("Arial", FontWeight.BOLD, 10));
+        gc.setFont(LABEL_FONT);
         double textWidth = stopName.length() * 6;
         double textX = screenX + radius + 6;
         double textY = screenY + 4;
@@ -102,7 +117,17 @@ public class StopMarkerWaypoint extends Waypoint {
         gc.fillText(stopName, textX, textY);
     }
 
-    private double getMarkerRadius(int zoom) {
+    @Override
+    public String getTooltipText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("🚏 ").append(stop.getStopName() != null ? stop.getStopName() : stop.getStopId());
+        if (stop.getStopCode() != null && !stop.getStopCode().isEmpty()) {
+            sb.append("\n🔢 Codice: ").append(stop.getStopCode());
+        }
+        return sb.toString();
+    }
+
+    static double getMarkerRadius(int zoom) {
         // Dimensione adattiva in base allo zoom
         if (zoom >= 16) return 7;
         if (zoom >= 14) return 6;
@@ -1,6 +1,7 @@
 package com.rometransit.ui.waypoint;
 
 import com.rometransit.model.dto.VehiclePosition;
+import com.rometransit.ui.map.VehicleAnimationEngine;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
@@ -8,14 +9,18 @@ import javafx.scene.text.FontWeight;
 
 /**
  * Waypoint che rappresenta un veicolo (autobus) sulla mappa
- * Visualizzato come pallino verde con direzione e info
+ * Visualizzato come pallino verde con direzione e info.
+ * La posizione disegnata viene dal frame del VehicleAnimationEngine (veicolo agganciato allo shape);
+ * se il veicolo non è nel frame si usa l'ultima posizione ricevuta.
  */
 public class VehicleMarkerWaypoint extends Waypoint {
 
     private VehiclePosition currentPosition;
-    private VehiclePosition previousPosition;
-    private long transitionStartTime;
-    private static final long TRANSITION_DURATION = 30000; // 30 secondi
+    private VehicleAnimationEngine.Track track;
+
+    // Usato solo dal thread FX durante render/hit test
+    private static final double[] FRAME_POINT = new double[3];
+    private static final Font LABEL_FONT = Font.font("Arial", FontWeight.BOLD, 10);
 
     private final Color vehicleColor;
     private final double baseRadius;
@@ -31,8 +36,7 @@ public class VehicleMarkerWaypoint extends Waypoint {
                                 boolean showLabel, boolean showDirection) {
         super(id);
         this.currentPosition = position;
-        this.previousPosition = null;
-        this.transitionStartTime = System.currentTimeMillis();
+        this.track = VehicleAnimationEngine.getInstance().observe(position);
         this.vehicleColor = color;
         this.baseRadius = radius;
         this.showLabel = showLabel;
@@ -42,39 +46,70 @@ public class VehicleMarkerWaypoint extends Waypoint {
     @Override
     public void render(GraphicsContext gc, int zoom,
                       GeoToScreenConverter geoToScreenConverter) {
-        if (!visible) {
-            System.out.println("⚠️  [VehicleMarkerWaypoint] SKIPPED rendering - waypoint NOT visible");
-            return;
-        }
+        render(gc, zoom, geoToScreenConverter, null);
+    }
 
-        if (currentPosition == null) {
-            System.out.println("⚠️  [VehicleMarkerWaypoint] currentPosition is NULL");
+    @Override
+    public void render(GraphicsContext gc, int zoom,
+                      GeoToScreenConverter geoToScreenConverter, ScreenHitGrid hits) {
+        if (!visible || currentPosition == null) {
             return;
         }
 
-        // Usa posizione interpolata per movimento smooth
-        double[] interpolatedPos = getInterpolatedPosition();
-        double[] screenCoords = geoToScreenConverter.convert(interpolatedPos[0], interpolatedPos[1]);
+        // Posizione animata dal frame corrente (lat, lon, bearing)
+        double[] animated = getAnimatedPosition();
+        double[] screenCoords = geoToScreenConverter.convert(animated[0], animated[1]);
 
         double screenX = screenCoords[0];
         double screenY = screenCoords[1];
+        double bearing = animated[2];
 
-        System.out.println("🚍 [VehicleMarkerWaypoint] Rendering veicolo " + currentPosition.getVehicleId() +
-                         " routeId=" + currentPosition.getRouteId() +
-                         " at geo[" + interpolatedPos[0] + "," + interpolatedPos[1] + "]" +
-                         " screen[" + screenX + "," + screenY + "]" +
-                         " zoom=" + zoom);
+        // Marker dall'atlas: un solo drawImage per veicolo
+        MarkerAtlas.vehicleSheet(vehicleColor, baseRadius)
+            .drawVehicle(gc, zoom, currentPosition.isSimulated(), showDirection ? bearing : 0, screenX, screenY);
+        if (hits != null) {
+            hits.add(this, screenX, screenY, radiusAt(baseRadius, zoom));
+        }
+
+        // Label con numero linea
+        if (showLabel && zoom >= MarkerAtlas.LABEL_MIN_ZOOM) {
+            String label = currentPosition.getRouteShortName();
+            if (label != null && !label.isEmpty()) {
+                double radius = radiusAt(baseRadius, zoom);
+
+                // Background bianco per leggibilità
+                double textWidth = label.length() * 6;
+                gc.setFill(Color.WHITE);
+                gc.fillRect(screenX - textWidth/2, screenY + radius + 2,
+                          textWidth, 14);
 
-        // Calcola raggio in base allo zoom
-        double radius = baseRadius + Math.max(0, (zoom - 12) * 0.5);
+                gc.setFill(Color.BLACK);
+                gc.setFont(LABEL_FONT);
+                gc.fillText(label, screenX - textWidth/2 + 2,
+                          screenY + radius + 13);
+            }
+        }
+    }
 
+    /**
+     * Raggio del pallino in base allo zoom
+     */
+    static double radiusAt(double baseRadius, int zoom) {
+        return baseRadius + Math.max(0, (zoom - 12) * 0.5);
+    }
+
+    /**
+     * Disegno vettoriale del marker, usato per pre-renderizzare l'atlas
+     */
+    static void drawVector(GraphicsContext gc, double screenX, double screenY, double radius,
+                           Color vehicleColor, boolean simulated, double bearing) {
         // Disegna pallino verde (veicolo)
         gc.setFill(vehicleColor);
         gc.fillOval(screenX - radius, screenY - radius, radius * 2, radius * 2);
 
         // Bordo nero per visibilità
         // Se simulato, usa linea tratteggiata
-        if (currentPosition.isSimulated()) {
+        if (simulated) {
             gc.setStroke(Color.BLACK);
             gc.setLineWidth(2);
             gc.setLineDashes(5, 5); // Linea tratteggiata
@@ -93,36 +128,16 @@ public class VehicleMarkerWaypoint extends Waypoint {
                      (radius - 1) * 2, (radius - 1) * 2);
 
         // Freccia direzionale (bearing)
-        if (showDirection && currentPosition.getBearing() > 0) {
-            drawDirectionArrow(gc, screenX, screenY, radius,
-                             currentPosition.getBearing());
-        }
-
-        // Label con numero linea
-        if (showLabel && zoom >= 14) {
-            String label = currentPosition.getRouteShortName();
-            if (label != null && !label.isEmpty()) {
-                gc.setFill(Color.BLACK);
-                gc.setFont(Font.font("Arial", FontWeight.BOLD, 10));
-
-                // Background bianco per leggibilità
-                double textWidth = label.length() * 6;
-                gc.setFill(Color.WHITE);
-                gc.fillRect(screenX - textWidth/2, screenY + radius + 2,
-                          textWidth, 14);
-
-                gc.setFill(Color.BLACK);
-                gc.fillText(label, screenX - textWidth/2 + 2,
-                          screenY + radius + 13);
-            }
+        if (bearing > 0) {
+            drawDirectionArrow(gc, screenX, screenY, radius, bearing);
         }
     }
 
     /**
      * Disegna freccia che indica la direzione del veicolo
      */
-    private void drawDirectionArrow(GraphicsContext gc, double x, double y,
-                                    double radius, double bearing) {
+    private static void drawDirectionArrow(GraphicsContext gc, double x, double y,
+                                           double radius, double bearing) {
         double arrowLength = radius * 1.5;
         double bearingRad = Math.toRadians(bearing);
 
@@ -151,36 +166,26 @@ public class VehicleMarkerWaypoint extends Waypoint {
     }
 
     /**
-     * Calcola posizione interpolata per rendering smooth
-     * Interpola linearmente tra posizione precedente e corrente
+     * Posizione da disegnare: frame del motore di animazione, altrimenti l'ultima ricevuta
      */
-    private double[] getInterpolatedPosition() {
-        if (previousPosition == null || currentPosition == null) {
-            return new double[]{
-                currentPosition.getLatitude(),
-                currentPosition.getLongitude()
-            };
+    private double[] getAnimatedPosition() {
+        if (track != null && track.isReleased()) {
+            track = VehicleAnimationEngine.getInstance().observe(currentPosition);
         }
-
-        long elapsed = System.currentTimeMillis() - transitionStartTime;
-        double progress = Math.min(1.0, elapsed / (double) TRANSITION_DURATION);
-
-        // Interpolazione lineare
-        double lat = previousPosition.getLatitude() +
-            (currentPosition.getLatitude() - previousPosition.getLatitude()) * progress;
-        double lon = previousPosition.getLongitude() +
-            (currentPosition.getLongitude() - previousPosition.getLongitude()) * progress;
-
-        return new double[]{lat, lon};
+        if (!VehicleAnimationEngine.getInstance().positionOf(track, FRAME_POINT)) {
+            FRAME_POINT[0] = currentPosition.getLatitude();
+            FRAME_POINT[1] = currentPosition.getLongitude();
+            FRAME_POINT[2] = currentPosition.getBearing();
+        }
+        return FRAME_POINT;
     }
 
     /**
      * Aggiorna la posizione del veicolo (chiamato ogni 30s)
      */
     public void updatePosition(VehiclePosition newPosition) {
-        this.previousPosition = this.currentPosition;
         this.currentPosition = newPosition;
-        this.transitionStartTime = System.currentTimeMillis();
+        this.track = VehicleAnimationEngine.getInstance().observe(newPosition);
     }
 
     /**
@@ -190,8 +195,8 @@ public class VehicleMarkerWaypoint extends Waypoint {
                                 GeoToScreenConverter geoToScreenConverter) {
         if (currentPosition == null) return false;
 
-        double[] interpolatedPos = getInterpolatedPosition();
-        double[] screenCoords = geoToScreenConverter.convert(interpolatedPos[0], interpolatedPos[1]);
+        double[] animated = getAnimatedPosition();
+        double[] screenCoords = geoToScreenConverter.convert(animated[0], animated[1]);
 
         double dx = screenX - screenCoords[0];
         double dy = screenY - screenCoords[1];
@@ -203,6 +208,7 @@ public class VehicleMarkerWaypoint extends Waypoint {
     /**
      * Genera testo tooltip con informazioni dettagliate
      */
+    @Override
     public String getTooltipText() {
         if (currentPosition == null) return "";
 
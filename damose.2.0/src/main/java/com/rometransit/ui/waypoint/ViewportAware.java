@@ -0,0 +1,13 @@
+package com.rometransit.ui.waypoint;
+
+/**
+ * Waypoint that only draws what falls inside the visible map area
+ * The map view passes the visible bounds (with a margin) before each render
+ */
+public interface ViewportAware {
+
+    /**
+     * Set the geographic bounds of the visible area
+     */
+    void setViewport(double minLat, double minLon, double maxLat, double maxLon);
+}
@@ -22,6 +22,22 @@ public abstract class Waypoint {
      */
     public abstract void render(GraphicsContext gc, int zoom, GeoToScreenConverter geoToScreenConverter);
 
+    /**
+     * Render this waypoint and register its pickable markers in the hit grid of the pass
+     * Waypoints that can be picked override this; the default only renders
+     * @param hits Hit grid being built, or null when picking is not needed
+     */
+    public void render(GraphicsContext gc, int zoom, GeoToScreenConverter geoToScreenConverter, ScreenHitGrid hits) {
+        render(gc, zoom, geoToScreenConverter);
+    }
+
+    /**
+     * Tooltip shown when hovering this waypoint, null for none
+     */
+    public String getTooltipText() {
+        return null;
+    }
+
     /**
      * Check if this waypoint is visible at current zoom level
      */
@@ -34,12 +34,17 @@ public class WaypointManager {
             renderOrder.clear();
 
             // Render order (bottom to top):
+            // 0. NetworkOverviewWaypoint (clustered stops and vehicles of the whole network)
             // 1. RoutePathWaypoint (red lines - base layer)
             // 2. RouteVisualizationWaypoint (complete route visualization)
             // 3. StopMarkerWaypoint (blue dots for stops)
             // 4. StopWaypoint (selected stops)
             // 5. VehicleMarkerWaypoint (green dots for vehicles - top layer)
 
+            waypoints.values().stream()
+                .filter(w -> w instanceof NetworkOverviewWaypoint)
+                .forEach(renderOrder::add);
+
             waypoints.values().stream()
                 .filter(w -> w instanceof RoutePathWaypoint)
                 .forEach(renderOrder::add);
@@ -127,10 +132,35 @@ public class WaypointManager {
      * @param converter Geo-to-screen coordinate converter
      */
     public void renderWaypoints(GraphicsContext gc, int zoom, Waypoint.GeoToScreenConverter converter) {
+        renderWaypoints(gc, zoom, converter, null);
+    }
+
+    /**
+     * Render all visible waypoints, rebuilding the hit grid used for picking
+     * @param hits Hit grid to refill, or null
+     */
+    public void renderWaypoints(GraphicsContext gc, int zoom, Waypoint.GeoToScreenConverter converter,
+                                ScreenHitGrid hits) {
+        if (hits != null) {
+            hits.clear();
+        }
         synchronized (renderOrder) {
             for (Waypoint waypoint : renderOrder) {
                 if (waypoint.isVisible()) {
-                    waypoint.render(gc, zoom, converter);
+                    waypoint.render(gc, zoom, converter, hits);
+                }
+            }
+        }
+    }
+
+    /**
+     * Pass the visible bounds to viewport-aware waypoints before rendering
+     */
+    public void setViewport(double minLat, double minLon, double maxLat, double maxLon) {
+        synchronized (renderOrder) {
+            for (Waypoint waypoint : renderOrder) {
+                if (waypoint instanceof ViewportAware) {
+                    ((ViewportAware) waypoint).setViewport(minLat, minLon, maxLat, maxLon);
                 }
             }
         }
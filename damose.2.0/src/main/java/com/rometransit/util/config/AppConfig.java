@@ -2,15 +2,20 @@ package com.rometransit.util.config;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 public class AppConfig {
     private static AppConfig instance;
     private final Properties properties;
 
+    private static final String OVERRIDE_PREFIX = "damose.";
+
     private AppConfig() {
         this.properties = new Properties();
         loadConfiguration();
+        applySystemOverrides();
     }
 
     public static synchronized AppConfig getInstance() {
@@ -40,6 +45,18 @@ public class AppConfig {
         }
     }
 
+    /**
+     * Let -Ddamose.&lt;key&gt;=value override any configuration key,
+     * e.g. to point the realtime feed URLs at a local replay server
+     */
+    private void applySystemOverrides() {
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(OVERRIDE_PREFIX)) {
+                properties.setProperty(name.substring(OVERRIDE_PREFIX.length()), System.getProperty(name));
+            }
+        }
+    }
+
     private void loadDefaults() {
         properties.setProperty("app.name", "Damose 2.0");
         properties.setProperty("app.version", "2.0.0");
@@ -139,6 +156,15 @@ public class AppConfig {
                 "https://romamobilita.it/sites/default/files/rome_rtgtfs_service_alerts_feed.pb");
     }
 
+    public boolean isRealtimeRecordingEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("gtfs.realtime.record", "false"));
+    }
+
+    public String getRealtimeRecordingDirectory() {
+        return properties.getProperty("gtfs.realtime.record_directory",
+                System.getProperty("user.home") + "/.damose/recordings");
+    }
+
     public String getStopTimesJsonUrl() {
         return properties.getProperty("gtfs.static.stop_times_json_url", "");
     }
@@ -155,6 +181,47 @@ public class AppConfig {
         return Integer.parseInt(properties.getProperty("gtfs.realtime.retry_interval", "60"));
     }
 
+    /**
+     * Low-memory timetable mode: true, false or auto (on when the max heap is below
+     * gtfs.low_memory.heap_threshold_mb)
+     */
+    public String getGtfsLowMemoryMode() {
+        return properties.getProperty("gtfs.low_memory", "auto").trim().toLowerCase();
+    }
+
+    public int getGtfsLowMemoryHeapThresholdMb() {
+        return Integer.parseInt(properties.getProperty("gtfs.low_memory.heap_threshold_mb", "1536"));
+    }
+
+    public int getGtfsLowMemoryMaxCachedRows() {
+        return Integer.parseInt(properties.getProperty("gtfs.low_memory.max_cached_rows", "200000"));
+    }
+
+    public int getGtfsLowMemoryPrefetchTrips() {
+        return Integer.parseInt(properties.getProperty("gtfs.low_memory.prefetch_trips", "4"));
+    }
+
+    // Extra GTFS feeds (dataset shards next to the Roma Mobilità feed)
+    public List<String> getGtfsFeedIds() {
+        List<String> ids = new ArrayList<>();
+        for (String id : properties.getProperty("gtfs.feeds", "").split(",")) {
+            if (!id.trim().isEmpty()) {
+                ids.add(id.trim());
+            }
+        }
+        return ids;
+    }
+
+    public String getGtfsFeedProperty(String feedId, String key) {
+        String value = properties.getProperty("gtfs.feed." + feedId + "." + key);
+        return value != null && !value.trim().isEmpty() ? value.trim() : null;
+    }
+
+    public String getGtfsFeedsDirectory() {
+        return properties.getProperty("gtfs.feeds.directory",
+                System.getProperty("user.home") + "/.damose/feeds");
+    }
+
     // Database Configuration
     public String getDatabaseDirectory() {
         return properties.getProperty("database.directory", 
@@ -251,6 +318,71 @@ public class AppConfig {
         return Integer.parseInt(properties.getProperty("logging.max_files", "5"));
     }
 
+    // Metrics Configuration
+    public boolean isMetricsSnapshotEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("metrics.snapshot_enabled", "true"));
+    }
+
+    public String getMetricsDirectory() {
+        return properties.getProperty("metrics.directory",
+                System.getProperty("user.home") + "/.damose/metrics");
+    }
+
+    public int getMetricsSnapshotInterval() {
+        return Integer.parseInt(properties.getProperty("metrics.snapshot_interval", "60"));
+    }
+
+    // Diagnostics Configuration
+    public String getDiagnosticsDirectory() {
+        return properties.getProperty("diagnostics.directory",
+                System.getProperty("user.home") + "/.damose/diagnostics");
+    }
+
+    public int getDiagnosticsCaptureSeconds() {
+        return Integer.parseInt(properties.getProperty("diagnostics.capture_seconds", "60"));
+    }
+
+    // Memory Configuration
+    public boolean isMemoryGovernorEnabled() {
+        return Boolean.parseBoolean(properties.getProperty("memory.governor_enabled", "true"));
+    }
+
+    public int getMemoryCacheBudgetPercent() {
+        return Integer.parseInt(properties.getProperty("memory.cache_budget_percent", "30"));
+    }
+
+    /**
+     * Share of the cache budget (percent) given to a cache category
+     */
+    public int getMemoryCacheShare(String category, int defaultShare) {
+        return Integer.parseInt(properties.getProperty("memory.budget." + category, String.valueOf(defaultShare)));
+    }
+
+    public int getMemoryWarningPercent() {
+        return Integer.parseInt(properties.getProperty("memory.warning_percent", "75"));
+    }
+
+    public int getMemoryCriticalPercent() {
+        return Integer.parseInt(properties.getProperty("memory.critical_percent", "90"));
+    }
+
+    public int getMemoryCheckInterval() {
+        return Integer.parseInt(properties.getProperty("memory.check_interval", "10"));
+    }
+
+    // Server Configuration (headless mode)
+    public String getServerBindAddress() {
+        return properties.getProperty("server.bind_address", "127.0.0.1");
+    }
+
+    public int getServerPort() {
+        return Integer.parseInt(properties.getProperty("server.port", "8080"));
+    }
+
+    public int getServerMaxStreamClients() {
+        return Integer.parseInt(properties.getProperty("server.max_stream_clients", "500"));
+    }
+
     // Feature Flags
     public boolean isOfflineModeEnabled() {
         return Boolean.parseBoolean(properties.getProperty("features.offline_mode", "true"));
@@ -0,0 +1,148 @@
+package com.rometransit.util.diagnostics;
+
+import com.rometransit.util.config.AppConfig;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * "Capture diagnostics": a bounded JDK Flight Recorder recording with the application events
+ *
+ * The application events (GTFS import and cache load, realtime cycles, SQLite transactions,
+ * tile loads, map frames) are always compiled in, but cost nothing until a recording is
+ * running. A capture records them without threshold, on top of the JDK "default" settings
+ * plus method sampling and lock contention, and stops by itself after the configured
+ * duration, writing a .jfr file (open it with JDK Mission Control or `jfr print`).
+ */
+public class DiagnosticsCapture {
+
+    private static final int MIN_SECONDS = 10;
+    private static final int MAX_SECONDS = 600;
+    private static final long MAX_SIZE_BYTES = 128L * 1024 * 1024;
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private static final List<Class<? extends jdk.jfr.Event>> EVENTS = List.of(
+        GtfsImportEvent.class,
+        GtfsLoadEvent.class,
+        RealtimeCycleEvent.class,
+        SqliteTransactionEvent.class,
+        TileLoadEvent.class,
+        MapFrameEvent.class
+    );
+
+    private static DiagnosticsCapture instance;
+
+    private final Path directory;
+    private Recording recording;
+    private Path destination;
+
+    private DiagnosticsCapture() {
+        this.directory = Paths.get(AppConfig.getInstance().getDiagnosticsDirectory());
+    }
+
+    public static synchronized DiagnosticsCapture getInstance() {
+        if (instance == null) {
+            instance = new DiagnosticsCapture();
+        }
+        return instance;
+    }
+
+    public boolean isAvailable() {
+        return FlightRecorder.isAvailable();
+    }
+
+    public synchronized boolean isCapturing() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+
+    /**
+     * Start a capture with the configured duration
+     */
+    public Path start(Consumer<Path> onFinished) throws IOException {
+        return start(Duration.ofSeconds(AppConfig.getInstance().getDiagnosticsCaptureSeconds()), onFinished);
+    }
+
+    /**
+     * Start a capture; the recording stops after the duration (clamped to 10 s - 10 min)
+     * @param onFinished called with the file once it is written, on the recorder thread (may be null)
+     * @return the file the recording will be written to
+     * @throws IllegalStateException if a capture is already running or JFR is not available
+     */
+    public synchronized Path start(Duration duration, Consumer<Path> onFinished) throws IOException {
+        if (!isAvailable()) {
+            throw new IllegalStateException("Flight Recorder not available in this runtime");
+        }
+        if (isCapturing()) {
+            throw new IllegalStateException("A diagnostics capture is already running: " + destination);
+        }
+
+        long seconds = Math.max(MIN_SECONDS, Math.min(MAX_SECONDS, duration.getSeconds()));
+        Files.createDirectories(directory);
+        Path file = directory.resolve("damose-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".jfr");
+
+        Recording capture;
+        try {
+            capture = new Recording(Configuration.getConfiguration("default"));
+        } catch (ParseException e) {
+            throw new IOException("Invalid JFR configuration", e);
+        }
+        capture.setName("Damose diagnostics");
+        for (Class<? extends jdk.jfr.Event> event : EVENTS) {
+            capture.enable(event).withThreshold(Duration.ZERO);
+        }
+        // Where the FX thread and the workers spend their time, and who waits on whom
+        capture.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(20));
+        capture.enable("jdk.JavaMonitorEnter").withThreshold(Duration.ofMillis(10));
+        capture.enable("jdk.ThreadPark").withThreshold(Duration.ofMillis(10));
+        capture.setToDisk(true);
+        capture.setMaxSize(MAX_SIZE_BYTES);
+        capture.setDuration(Duration.ofSeconds(seconds));
+        capture.setDestination(file);
+
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recordingStateChanged(Recording changed) {
+                if (changed != capture || changed.getState() != RecordingState.CLOSED) {
+                    return;
+                }
+                FlightRecorder.removeListener(this);
+                System.out.println("✅ Diagnostics written to " + file);
+                if (onFinished != null) {
+                    onFinished.accept(file);
+                }
+            }
+        });
+
+        capture.start();
+        this.recording = capture;
+        this.destination = file;
+        System.out.println("🩺 Capturing diagnostics for " + seconds + "s -> " + file);
+        return file;
+    }
+
+    /**
+     * Stop the running capture early; the file is written as if the duration had elapsed
+     */
+    public synchronized void stop() {
+        if (isCapturing()) {
+            recording.stop();
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+}
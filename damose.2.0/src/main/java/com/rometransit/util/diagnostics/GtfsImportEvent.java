@@ -0,0 +1,25 @@
+package com.rometransit.util.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One phase of a GTFS ZIP import (extract, one file parsed, save to SQLite)
+ */
+@Name("com.rometransit.GtfsImport")
+@Label("GTFS Import Phase")
+@Category({"Damose", "GTFS"})
+@Description("Extraction, parsing of one GTFS file or the save to the database")
+@StackTrace(false)
+public class GtfsImportEvent extends Event {
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Records")
+    public long records;
+}
@@ -0,0 +1,25 @@
+package com.rometransit.util.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One stage of loading the GTFS cache from SQLite into memory
+ */
+@Name("com.rometransit.GtfsLoad")
+@Label("GTFS Cache Load")
+@Category({"Damose", "GTFS"})
+@Description("Loading of stops, routes, trips, shapes or stop_times from the database")
+@StackTrace(false)
+public class GtfsLoadEvent extends Event {
+
+    @Label("Stage")
+    public String stage;
+
+    @Label("Records")
+    public long records;
+}
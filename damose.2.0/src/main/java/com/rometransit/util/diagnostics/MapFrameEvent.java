@@ -0,0 +1,23 @@
+package com.rometransit.util.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One repaint of the map canvas (tiles and markers), on the FX thread
+ */
+@Name("com.rometransit.MapFrame")
+@Label("Map Frame")
+@Category({"Damose", "Map"})
+@StackTrace(false)
+public class MapFrameEvent extends Event {
+
+    @Label("Zoom")
+    public int zoom;
+
+    @Label("Markers")
+    public int markers;
+}
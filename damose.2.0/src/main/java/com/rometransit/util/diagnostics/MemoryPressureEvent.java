@@ -0,0 +1,47 @@
+package com.rometransit.util.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Caches shrunk by the memory governor after a heap threshold was crossed
+ */
+@Name("com.rometransit.MemoryPressure")
+@Label("Memory Pressure")
+@Category({"Damose", "Memory"})
+@Description("Heap usage that triggered the cache trim and the estimated bytes released")
+@StackTrace(false)
+public class MemoryPressureEvent extends Event {
+
+    @Label("Level")
+    @Description("warning, critical or oom")
+    public String level;
+
+    @Label("Reason")
+    public String reason;
+
+    @Label("Heap Used")
+    @DataAmount
+    public long heapUsed;
+
+    @Label("Heap Max")
+    @DataAmount
+    public long heapMax;
+
+    @Label("Cache Footprint")
+    @DataAmount
+    public long cacheFootprint;
+
+    @Label("Released")
+    @DataAmount
+    public long released;
+
+    @Label("Keep Fraction")
+    @Description("Share of each cache kept after the trim")
+    public double keepFraction;
+}
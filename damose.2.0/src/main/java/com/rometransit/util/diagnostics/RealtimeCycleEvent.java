@@ -0,0 +1,43 @@
+package com.rometransit.util.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One realtime update: a full sync cycle or a vehicle positions poll
+ */
+@Name("com.rometransit.RealtimeCycle")
+@Label("Realtime Cycle")
+@Category({"Damose", "Realtime"})
+@Description("Download, parse and persistence of the GTFS-RT feeds")
+@StackTrace(false)
+public class RealtimeCycleEvent extends Event {
+
+    @Label("Source")
+    @Description("sync (RealtimeDataSyncService) or poll (GTFSDataManager)")
+    public String source;
+
+    @Label("Vehicles")
+    public int vehicles;
+
+    @Label("Trip Updates")
+    public int tripUpdates;
+
+    @Label("Alerts")
+    public int alerts;
+
+    @Label("Feed Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Success")
+    public boolean success;
+
+    @Label("Using Cache")
+    public boolean usingCache;
+}
@@ -0,0 +1,22 @@
+package com.rometransit.util.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * SQLite transaction, from connection checkout to commit or rollback
+ *
+ * Keeps the stack trace: the caller is what identifies the transaction.
+ */
+@Name("com.rometransit.SqliteTransaction")
+@Label("SQLite Transaction")
+@Category({"Damose", "Database"})
+@StackTrace(true)
+public class SqliteTransactionEvent extends Event {
+
+    @Label("Committed")
+    public boolean committed;
+}
@@ -0,0 +1,39 @@
+package com.rometransit.util.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Map tile read from the disk cache or downloaded from the tile server
+ */
+@Name("com.rometransit.TileLoad")
+@Label("Tile Load")
+@Category({"Damose", "Map"})
+@StackTrace(false)
+public class TileLoadEvent extends Event {
+
+    @Label("Zoom")
+    public int zoom;
+
+    @Label("X")
+    public int x;
+
+    @Label("Y")
+    public int y;
+
+    @Label("Source")
+    @Description("disk, network or view-disk (synchronous read on the FX thread)")
+    public String source;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,30 @@
+package com.rometransit.util.metrics;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * Value read on demand from its owner (queue sizes, cache sizes...)
+ */
+public class Gauge implements MetricsRegistry.GaugeMXBean {
+
+    private final String name;
+    private final DoubleSupplier supplier;
+
+    Gauge(String name, DoubleSupplier supplier) {
+        this.name = name;
+        this.supplier = supplier;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public double getValue() {
+        try {
+            return supplier.getAsDouble();
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.rometransit.util.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets (HDR style)
+ *
+ * Values below 128 ns have their own bucket; above that every power of two is split in 64
+ * sub-buckets, so any recorded value is reported within 0.8% of its real value. Values up to
+ * 2^40 ns (~18 minutes) are tracked, longer ones are clamped. Recording is one array increment
+ * plus two adders, cheap enough for per-frame and per-query paths.
+ */
+public class LatencyHistogram implements MetricsRegistry.LatencyHistogramMXBean {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;           // 64
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;                // 128, exact below
+    private static final int MAX_VALUE_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    // ===== Recording =====
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        long clamped = Math.min(nanos, MAX_VALUE);
+        buckets.incrementAndGet(bucketIndex(clamped));
+        count.increment();
+        totalNanos.add(clamped);
+        if (clamped > maxNanos.get()) {
+            maxNanos.accumulateAndGet(clamped, Math::max);
+        }
+    }
+
+    /**
+     * Record the time elapsed since a System.nanoTime() value
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - SUB_BUCKET_BITS;
+        int mantissa = (int) (value >>> shift);             // 64..127
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (mantissa - SUB_BUCKETS);
+    }
+
+    /**
+     * Middle of the value range covered by a bucket
+     */
+    static long bucketValue(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long mantissa = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return (mantissa << shift) + (1L << (shift - 1));
+    }
+
+    // ===== Snapshot =====
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        long max = maxNanos.get();
+        if (total == 0) {
+            return new Snapshot(name, 0, 0, 0, 0, 0, 0, 0);
+        }
+
+        double[] quantiles = {0.50, 0.90, 0.99, 0.999};
+        long[] values = new long[quantiles.length];
+        long seen = 0;
+        int q = 0;
+        for (int i = 0; i < BUCKET_COUNT && q < quantiles.length; i++) {
+            seen += counts[i];
+            while (q < quantiles.length && seen >= Math.ceil(quantiles[q] * total)) {
+                values[q++] = Math.min(bucketValue(i), max);
+            }
+        }
+
+        return new Snapshot(name, total, totalNanos.sum() / (double) total / 1_000_000.0,
+            values[0] / 1_000_000.0, values[1] / 1_000_000.0, values[2] / 1_000_000.0,
+            values[3] / 1_000_000.0, max / 1_000_000.0);
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        maxNanos.set(0);
+    }
+
+    // ===== JMX =====
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public double getMeanMs() {
+        return snapshot().meanMs;
+    }
+
+    @Override
+    public double getP50Ms() {
+        return snapshot().p50Ms;
+    }
+
+    @Override
+    public double getP90Ms() {
+        return snapshot().p90Ms;
+    }
+
+    @Override
+    public double getP99Ms() {
+        return snapshot().p99Ms;
+    }
+
+    @Override
+    public double getP999Ms() {
+        return snapshot().p999Ms;
+    }
+
+    @Override
+    public double getMaxMs() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Percentiles of a histogram at one point in time, in milliseconds
+     */
+    public static class Snapshot {
+        public final String name;
+        public final long count;
+        public final double meanMs;
+        public final double p50Ms;
+        public final double p90Ms;
+        public final double p99Ms;
+        public final double p999Ms;
+        public final double maxMs;
+
+        Snapshot(String name, long count, double meanMs, double p50Ms, double p90Ms,
+                 double p99Ms, double p999Ms, double maxMs) {
+            this.name = name;
+            this.count = count;
+            this.meanMs = meanMs;
+            this.p50Ms = p50Ms;
+            this.p90Ms = p90Ms;
+            this.p99Ms = p99Ms;
+            this.p999Ms = p999Ms;
+            this.maxMs = maxMs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-32s n=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms",
+                name, count, meanMs, p50Ms, p90Ms, p99Ms, p999Ms, maxMs);
+        }
+    }
+}
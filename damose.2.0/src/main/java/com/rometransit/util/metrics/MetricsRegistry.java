@@ -0,0 +1,186 @@
+package com.rometransit.util.metrics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * In-process metrics: counters, gauges and latency histograms of the hot paths
+ *
+ * Metrics are created on first use and live for the whole process, so call sites keep them in
+ * static fields and pay only the recording cost. Each metric is also published as an MXBean
+ * under "com.rometransit:type=&lt;Counter|Gauge|Histogram&gt;,name=&lt;metric&gt;" (JConsole,
+ * VisualVM), and MetricsSnapshotWriter dumps the whole registry to disk periodically.
+ *
+ * Names are dotted, area first: gtfs.import.*, realtime.*, sqlite.*, tile.*, search.*,
+ * prediction.*, map.*, execution.*
+ */
+public class MetricsRegistry {
+
+    private static final String JMX_DOMAIN = "com.rometransit";
+
+    private static MetricsRegistry instance;
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final MBeanServer mbeanServer;
+
+    private MetricsRegistry() {
+        MBeanServer server = null;
+        try {
+            server = ManagementFactory.getPlatformMBeanServer();
+        } catch (Throwable t) {
+            System.err.println("⚠️ JMX not available, metrics are only written to disk: " + t.getMessage());
+        }
+        this.mbeanServer = server;
+    }
+
+    public static synchronized MetricsRegistry getInstance() {
+        if (instance == null) {
+            instance = new MetricsRegistry();
+        }
+        return instance;
+    }
+
+    // ===== Metrics =====
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> register("Counter", key, new Counter(key)));
+    }
+
+    /**
+     * Register a gauge; a gauge with the same name replaces the previous one
+     */
+    public Gauge gauge(String name, DoubleSupplier supplier) {
+        Gauge gauge = new Gauge(name, supplier);
+        Gauge previous = gauges.put(name, gauge);
+        if (previous != null) {
+            unregister("Gauge", name);
+        }
+        return register("Gauge", name, gauge);
+    }
+
+    public LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, key -> register("Histogram", key, new LatencyHistogram(key)));
+    }
+
+    // ===== JMX =====
+
+    private <T> T register(String type, String name, T metric) {
+        if (mbeanServer == null) {
+            return metric;
+        }
+        try {
+            ObjectName objectName = objectName(type, name);
+            if (mbeanServer.isRegistered(objectName)) {
+                mbeanServer.unregisterMBean(objectName);
+            }
+            mbeanServer.registerMBean(metric, objectName);
+        } catch (Exception e) {
+            System.err.println("⚠️ Failed to publish metric " + name + " via JMX: " + e.getMessage());
+        }
+        return metric;
+    }
+
+    private void unregister(String type, String name) {
+        if (mbeanServer == null) {
+            return;
+        }
+        try {
+            ObjectName objectName = objectName(type, name);
+            if (mbeanServer.isRegistered(objectName)) {
+                mbeanServer.unregisterMBean(objectName);
+            }
+        } catch (Exception e) {
+            // Already gone
+        }
+    }
+
+    private static ObjectName objectName(String type, String name) throws Exception {
+        boolean plain = name.chars().noneMatch(c -> c == ',' || c == '=' || c == ':' || c == '"' ||
+                                                    c == '*' || c == '?' || c == '\n');
+        return new ObjectName(JMX_DOMAIN + ":type=" + type + ",name=" + (plain ? name : ObjectName.quote(name)));
+    }
+
+    public interface CounterMXBean {
+        long getCount();
+    }
+
+    public interface GaugeMXBean {
+        double getValue();
+    }
+
+    public interface LatencyHistogramMXBean {
+        long getCount();
+        double getMeanMs();
+        double getP50Ms();
+        double getP90Ms();
+        double getP99Ms();
+        double getP999Ms();
+        double getMaxMs();
+        void reset();
+    }
+
+    // ===== Snapshot =====
+
+    /**
+     * All metrics sorted by name, as plain maps (ready for JSON)
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> counterValues = new TreeMap<>();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.getCount()));
+
+        Map<String, Object> gaugeValues = new TreeMap<>();
+        gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.getValue()));
+
+        Map<String, Object> histogramValues = new TreeMap<>();
+        for (LatencyHistogram.Snapshot s : getHistogramSnapshots()) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            values.put("count", s.count);
+            values.put("meanMs", round(s.meanMs));
+            values.put("p50Ms", round(s.p50Ms));
+            values.put("p90Ms", round(s.p90Ms));
+            values.put("p99Ms", round(s.p99Ms));
+            values.put("p999Ms", round(s.p999Ms));
+            values.put("maxMs", round(s.maxMs));
+            histogramValues.put(s.name, values);
+        }
+
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("counters", counterValues);
+        snapshot.put("gauges", gaugeValues);
+        snapshot.put("histograms", histogramValues);
+        return snapshot;
+    }
+
+    public List<LatencyHistogram.Snapshot> getHistogramSnapshots() {
+        List<LatencyHistogram.Snapshot> snapshots = new ArrayList<>();
+        histograms.values().forEach(histogram -> snapshots.add(histogram.snapshot()));
+        snapshots.sort((a, b) -> a.name.compareTo(b.name));
+        return snapshots;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+
+    public void printStats() {
+        System.out.println("\n📈 Metrics (" + counters.size() + " counters, " + gauges.size() +
+                           " gauges, " + histograms.size() + " histograms):");
+        new TreeMap<>(counters).forEach((name, counter) ->
+            System.out.println("   " + name + " = " + counter.getCount()));
+        new TreeMap<>(gauges).forEach((name, gauge) ->
+            System.out.println("   " + name + " = " + gauge.getValue()));
+        getHistogramSnapshots().stream()
+            .filter(s -> s.count > 0)
+            .forEach(s -> System.out.println("   " + s));
+    }
+}
@@ -74,26 +74,44 @@ CREATE INDEX IF NOT EXISTS idx_trips_route ON trips(route_id);
 CREATE INDEX IF NOT EXISTS idx_trips_service ON trips(service_id);
 CREATE INDEX IF NOT EXISTS idx_trips_shape ON trips(shape_id);
 
--- Stop Times (schedule for each stop in each trip)
-CREATE TABLE IF NOT EXISTS stop_times (
-    trip_id TEXT NOT NULL,
-    arrival_time TEXT,
-    departure_time TEXT,
+-- Stop times in trip-pattern form (stop_times.txt is not stored row by row):
+-- trips serving the same stops with the same attributes share a stop pattern, trips of a
+-- pattern with the same running times share a time profile, and each trip is stored as
+-- (pattern, profile, start time). StopTimeDAO expands rows on read.
+
+-- Encoded per-stop attributes of a pattern (StopPattern.encode), unique per distinct pattern
+CREATE TABLE IF NOT EXISTS stop_patterns (
+    pattern_id INTEGER PRIMARY KEY,
+    stop_count INTEGER NOT NULL,
+    stops TEXT NOT NULL UNIQUE
+);
+
+-- Stops visited by each pattern, for stop_times lookups by stop
+CREATE TABLE IF NOT EXISTS pattern_stops (
     stop_id TEXT NOT NULL,
-    stop_sequence INTEGER NOT NULL,
-    stop_headsign TEXT,
-    pickup_type INTEGER DEFAULT 0,
-    drop_off_type INTEGER DEFAULT 0,
-    shape_dist_traveled REAL DEFAULT 0.0,
-    timepoint INTEGER DEFAULT 1,
-    PRIMARY KEY (trip_id, stop_sequence),
+    pattern_id INTEGER NOT NULL,
+    position INTEGER NOT NULL,
+    PRIMARY KEY (stop_id, pattern_id, position)
+) WITHOUT ROWID;
+
+-- Arrival/departure offsets from the trip start (TimeProfile.encode), unique per distinct profile
+CREATE TABLE IF NOT EXISTS time_profiles (
+    profile_id INTEGER PRIMARY KEY,
+    offsets TEXT NOT NULL UNIQUE
+);
+
+-- One row per trip with stop_times (start_time in seconds after service-day midnight)
+CREATE TABLE IF NOT EXISTS trip_schedules (
+    trip_id TEXT PRIMARY KEY NOT NULL,
+    pattern_id INTEGER NOT NULL,
+    profile_id INTEGER NOT NULL,
+    start_time INTEGER NOT NULL,
     FOREIGN KEY (trip_id) REFERENCES trips(trip_id),
-    FOREIGN KEY (stop_id) REFERENCES stops(stop_id)
+    FOREIGN KEY (pattern_id) REFERENCES stop_patterns(pattern_id),
+    FOREIGN KEY (profile_id) REFERENCES time_profiles(profile_id)
 );
 
-CREATE INDEX IF NOT EXISTS idx_stop_times_trip ON stop_times(trip_id);
-CREATE INDEX IF NOT EXISTS idx_stop_times_stop ON stop_times(stop_id);
-CREATE INDEX IF NOT EXISTS idx_stop_times_sequence ON stop_times(trip_id, stop_sequence);
+CREATE INDEX IF NOT EXISTS idx_trip_schedules_pattern ON trip_schedules(pattern_id);
 
 -- Shapes (geographic path points for drawing routes on map)
 CREATE TABLE IF NOT EXISTS shapes (
@@ -105,8 +123,9 @@ CREATE TABLE IF NOT EXISTS shapes (
     PRIMARY KEY (shape_id, shape_pt_sequence)
 );
 
-CREATE INDEX IF NOT EXISTS idx_shapes_id ON shapes(shape_id);
-CREATE INDEX IF NOT EXISTS idx_shapes_sequence ON shapes(shape_id, shape_pt_sequence);
+-- Lookups by shape_id are served by the primary key (shape_id, shape_pt_sequence)
+DROP INDEX IF EXISTS idx_shapes_id;
+DROP INDEX IF EXISTS idx_shapes_sequence;
 
 -- =====================================================
 -- Realtime Data Tables
@@ -156,6 +175,43 @@ CREATE INDEX IF NOT EXISTS idx_trip_updates_stop ON trip_updates(stop_id);
 CREATE INDEX IF NOT EXISTS idx_trip_updates_route ON trip_updates(route_id);
 CREATE INDEX IF NOT EXISTS idx_trip_updates_timestamp ON trip_updates(last_updated);
 
+-- Row hashes of the last imported static feed
+-- One hash per agency/route/stop/trip row, per trip for stop_times and per shape_id for shapes.
+-- Used by the delta importer to apply only changed entities on a feed refresh.
+CREATE TABLE IF NOT EXISTS feed_row_hashes (
+    entity TEXT NOT NULL,
+    entity_key TEXT NOT NULL,
+    row_hash INTEGER NOT NULL,
+    PRIMARY KEY (entity, entity_key)
+);
+
+-- Dictionary of the string ids of the static feed (kind: 1 stop, 2 route, 3 trip, 4 shape)
+-- Ids are dense per kind and append-only: a delta import never renumbers an existing symbol.
+CREATE TABLE IF NOT EXISTS id_symbols (
+    kind INTEGER NOT NULL,
+    id INTEGER NOT NULL,
+    symbol TEXT NOT NULL,
+    PRIMARY KEY (kind, id)
+);
+
+-- Incidents and route delays (active ones are also indexed in memory by IncidentRepository)
+-- affected_routes is a comma-separated list of route_ids
+CREATE TABLE IF NOT EXISTS incidents (
+    incident_id TEXT PRIMARY KEY NOT NULL,
+    type TEXT NOT NULL,
+    severity TEXT NOT NULL,
+    location TEXT,
+    description TEXT,
+    affected_routes TEXT,
+    start_time INTEGER,
+    end_time INTEGER,
+    active INTEGER NOT NULL DEFAULT 1,
+    updated_at INTEGER NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_incidents_active ON incidents(active);
+CREATE INDEX IF NOT EXISTS idx_incidents_end_time ON incidents(end_time);
+
 -- =====================================================
 -- Metadata Table
 -- =====================================================
@@ -0,0 +1,66 @@
+package com.rometransit.service.realtime;
+
+import com.rometransit.model.dto.ServiceAlert;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServiceAlertStoreTest {
+
+    // Tick boundary (30 s ticks) far from any other test's times
+    private static final long BASE = 1_800_000_000L;
+
+    private static ServiceAlert alert(String id, long start, long end) {
+        ServiceAlert alert = new ServiceAlert(id);
+        alert.getActivePeriods().add(new ServiceAlert.ActivePeriod(start, end));
+        alert.getStopIds().add("S1");
+        alert.setContentHash(id.hashCode());
+        return alert;
+    }
+
+    @Test
+    void periodEndingMidTickExpiresOnTheFirstTickAfterIt() {
+        ServiceAlertStore store = new ServiceAlertStore(BASE);
+        store.apply(List.of(alert("A1", BASE - 100, BASE + 45)), BASE + 10);
+        assertEquals(1, store.getActiveAlertsForStop("S1").size());
+
+        // Ticker runs inside the end's tick, before the end
+        store.advance(BASE + 40);
+        assertEquals(1, store.getActiveAlertsForStop("S1").size());
+
+        store.advance(BASE + 70);
+        assertTrue(store.getActiveAlerts().isEmpty());
+        assertTrue(store.getActiveAlertsForStop("S1").isEmpty());
+    }
+
+    @Test
+    void periodStartingMidTickActivatesOnTheFirstTickAfterIt() {
+        ServiceAlertStore store = new ServiceAlertStore(BASE);
+        store.apply(List.of(alert("A2", BASE + 75, BASE + 3_000)), BASE + 5);
+        assertTrue(store.getActiveAlerts().isEmpty());
+
+        store.advance(BASE + 62);
+        assertTrue(store.getActiveAlerts().isEmpty());
+
+        store.advance(BASE + 92);
+        assertEquals(1, store.getActiveAlerts().size());
+    }
+
+    @Test
+    void boundaryFiredByAnUnchangedFeedCycleUpdatesTheView() {
+        ServiceAlertStore store = new ServiceAlertStore(BASE);
+        ServiceAlert alert = alert("A3", BASE - 100, BASE + 45);
+        store.apply(List.of(alert), BASE + 10);
+        assertEquals(1, store.getActiveAlerts().size());
+        long version = store.getVersion();
+
+        // Same feed content; only the wheel has something to fire
+        store.apply(List.of(alert), BASE + 70);
+        assertTrue(store.getActiveAlerts().isEmpty());
+        assertTrue(store.getVersion() > version);
+        assertEquals(0, store.getStats().pendingTimers);
+    }
+}